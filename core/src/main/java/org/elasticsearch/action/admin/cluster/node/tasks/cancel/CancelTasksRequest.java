@@ -0,0 +1,123 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.action.admin.cluster.node.tasks.cancel;
+
+import org.elasticsearch.action.ActionRequestValidationException;
+import org.elasticsearch.action.support.nodes.BaseNodesRequest;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.tasks.TaskId;
+
+import java.io.IOException;
+
+import static org.elasticsearch.action.ValidateActions.addValidationError;
+
+/**
+ * A request to cancel tasks, either by their ids or by the actions they execute. The children of the cancelled
+ * tasks are cancelled as well, on whatever node they run on.
+ */
+public class CancelTasksRequest extends BaseNodesRequest<CancelTasksRequest> {
+
+    public static final String DEFAULT_REASON = "by user request";
+
+    private TaskId[] taskIds = new TaskId[0];
+    private String[] actions = Strings.EMPTY_ARRAY;
+    private String reason = DEFAULT_REASON;
+
+    public CancelTasksRequest() {
+    }
+
+    /**
+     * Cancel the tasks with the given ids.
+     */
+    public CancelTasksRequest(TaskId... taskIds) {
+        this.taskIds = taskIds;
+    }
+
+    public CancelTasksRequest taskIds(TaskId... taskIds) {
+        this.taskIds = taskIds;
+        return this;
+    }
+
+    public TaskId[] taskIds() {
+        return taskIds;
+    }
+
+    /**
+     * Cancel the tasks whose action matches one of the given patterns, e.g. <code>*search*</code>. Only the tasks
+     * running on the {@link #nodesIds() requested nodes} are matched.
+     */
+    public CancelTasksRequest actions(String... actions) {
+        this.actions = actions;
+        return this;
+    }
+
+    public String[] actions() {
+        return actions;
+    }
+
+    /**
+     * The reason the tasks are cancelled for, reported by the cancelled tasks.
+     */
+    public CancelTasksRequest reason(String reason) {
+        this.reason = reason;
+        return this;
+    }
+
+    public String reason() {
+        return reason;
+    }
+
+    @Override
+    public ActionRequestValidationException validate() {
+        ActionRequestValidationException validationException = super.validate();
+        if (taskIds.length == 0 && actions.length == 0) {
+            validationException = addValidationError("either task ids or actions must be specified", validationException);
+        } else if (taskIds.length > 0 && actions.length > 0) {
+            validationException = addValidationError("task ids and actions can not be specified together", validationException);
+        }
+        if (reason == null) {
+            validationException = addValidationError("reason must not be null", validationException);
+        }
+        return validationException;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        super.readFrom(in);
+        taskIds = new TaskId[in.readVInt()];
+        for (int i = 0; i < taskIds.length; i++) {
+            taskIds[i] = TaskId.readTaskId(in);
+        }
+        actions = in.readStringArray();
+        reason = in.readString();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeVInt(taskIds.length);
+        for (TaskId taskId : taskIds) {
+            taskId.writeTo(out);
+        }
+        out.writeStringArray(actions);
+        out.writeString(reason);
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.action.admin.cluster.node.tasks.cancel;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.admin.cluster.node.tasks.list.ListTasksRequest;
+import org.elasticsearch.action.admin.cluster.node.tasks.list.ListTasksResponse;
+import org.elasticsearch.action.admin.cluster.node.tasks.list.NodeTasks;
+import org.elasticsearch.action.admin.cluster.node.tasks.list.TransportListTasksAction;
+import org.elasticsearch.action.support.ActionFilters;
+import org.elasticsearch.action.support.nodes.BaseNodeRequest;
+import org.elasticsearch.action.support.nodes.BaseNodesRequest;
+import org.elasticsearch.action.support.nodes.TransportNodesAction;
+import org.elasticsearch.cluster.ClusterName;
+import org.elasticsearch.cluster.ClusterService;
+import org.elasticsearch.cluster.metadata.IndexNameExpressionResolver;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.tasks.Task;
+import org.elasticsearch.tasks.TaskId;
+import org.elasticsearch.tasks.TaskInfo;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.TransportService;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Cancels tasks and their children. Tasks that are selected by action are resolved on the requested nodes first,
+ * the ids of the tasks to cancel are then sent to all nodes of the cluster so that children running on other
+ * nodes get cancelled too.
+ */
+public class TransportCancelTasksAction extends TransportNodesAction<CancelTasksRequest, CancelTasksResponse, TransportCancelTasksAction.NodeRequest, NodeTasks> {
+
+    private final TransportListTasksAction listTasksAction;
+
+    @Inject
+    public TransportCancelTasksAction(Settings settings, ClusterName clusterName, ThreadPool threadPool,
+                                      ClusterService clusterService, TransportService transportService,
+                                      ActionFilters actionFilters, IndexNameExpressionResolver indexNameExpressionResolver,
+                                      TransportListTasksAction listTasksAction) {
+        super(settings, CancelTasksAction.NAME, clusterName, threadPool, clusterService, transportService, actionFilters,
+                indexNameExpressionResolver, CancelTasksRequest::new, NodeRequest::new, ThreadPool.Names.MANAGEMENT);
+        this.listTasksAction = listTasksAction;
+    }
+
+    @Override
+    protected void doExecute(final CancelTasksRequest request, final ActionListener<CancelTasksResponse> listener) {
+        if (request.actions().length == 0) {
+            super.doExecute(request.nodesIds(BaseNodesRequest.ALL_NODES), listener);
+            return;
+        }
+        ListTasksRequest listTasksRequest = new ListTasksRequest(request.nodesIds()).actions(request.actions());
+        listTasksAction.execute(listTasksRequest, new ActionListener<ListTasksResponse>() {
+            @Override
+            public void onResponse(ListTasksResponse response) {
+                List<TaskId> taskIds = new ArrayList<>();
+                for (TaskInfo task : response.getTasks()) {
+                    if (task.isCancellable()) {
+                        taskIds.add(task.getTaskId());
+                    }
+                }
+                request.taskIds(taskIds.toArray(new TaskId[taskIds.size()]));
+                request.actions(Strings.EMPTY_ARRAY);
+                if (taskIds.isEmpty()) {
+                    listener.onResponse(new CancelTasksResponse(clusterName, new NodeTasks[0]));
+                } else {
+                    TransportCancelTasksAction.super.doExecute(request.nodesIds(BaseNodesRequest.ALL_NODES), listener);
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable e) {
+                listener.onFailure(e);
+            }
+        });
+    }
+
+    @Override
+    protected CancelTasksResponse newResponse(CancelTasksRequest request, AtomicReferenceArray responses) {
+        final List<NodeTasks> nodes = new ArrayList<>();
+        for (int i = 0; i < responses.length(); i++) {
+            Object resp = responses.get(i);
+            if (resp instanceof NodeTasks && ((NodeTasks) resp).getTasks().isEmpty() == false) {
+                nodes.add((NodeTasks) resp);
+            }
+        }
+        return new CancelTasksResponse(clusterName, nodes.toArray(new NodeTasks[nodes.size()]));
+    }
+
+    @Override
+    protected NodeRequest newNodeRequest(String nodeId, CancelTasksRequest request) {
+        return new NodeRequest(nodeId, request);
+    }
+
+    @Override
+    protected NodeTasks newNodeResponse() {
+        return new NodeTasks();
+    }
+
+    @Override
+    protected NodeTasks nodeOperation(NodeRequest request) {
+        final String localNodeId = clusterService.localNode().id();
+        List<Task> cancelled = transportService.getTaskManager().cancel(localNodeId, Arrays.asList(request.request.taskIds()),
+                request.request.reason());
+        List<TaskInfo> tasks = new ArrayList<>(cancelled.size());
+        for (Task task : cancelled) {
+            tasks.add(task.taskInfo(localNodeId, false));
+        }
+        return new NodeTasks(clusterService.localNode(), tasks);
+    }
+
+    @Override
+    protected boolean accumulateExceptions() {
+        return false;
+    }
+
+    public static class NodeRequest extends BaseNodeRequest {
+
+        CancelTasksRequest request;
+
+        public NodeRequest() {
+        }
+
+        NodeRequest(String nodeId, CancelTasksRequest request) {
+            super(request, nodeId);
+            this.request = request;
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            super.readFrom(in);
+            request = new CancelTasksRequest();
+            request.readFrom(in);
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            super.writeTo(out);
+            request.writeTo(out);
+        }
+    }
+}
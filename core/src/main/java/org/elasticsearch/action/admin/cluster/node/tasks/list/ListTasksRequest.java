@@ -0,0 +1,99 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.action.admin.cluster.node.tasks.list;
+
+import org.elasticsearch.action.support.nodes.BaseNodesRequest;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.tasks.TaskId;
+
+import java.io.IOException;
+
+/**
+ * A request to get the tasks that are currently running on the given nodes
+ */
+public class ListTasksRequest extends BaseNodesRequest<ListTasksRequest> {
+
+    private String[] actions = Strings.EMPTY_ARRAY;
+    private TaskId parentTaskId = TaskId.EMPTY_TASK_ID;
+    private boolean detailed = false;
+
+    public ListTasksRequest() {
+    }
+
+    /**
+     * Get the tasks running on the given nodes. If none are passed, the tasks of all nodes are returned.
+     */
+    public ListTasksRequest(String... nodesIds) {
+        super(nodesIds);
+    }
+
+    /**
+     * Only return the tasks whose action matches one of the given patterns, e.g. <code>*search*</code>.
+     */
+    public ListTasksRequest actions(String... actions) {
+        this.actions = actions;
+        return this;
+    }
+
+    public String[] actions() {
+        return actions;
+    }
+
+    /**
+     * Only return the children of the given task.
+     */
+    public ListTasksRequest parentTaskId(TaskId parentTaskId) {
+        this.parentTaskId = parentTaskId;
+        return this;
+    }
+
+    public TaskId parentTaskId() {
+        return parentTaskId;
+    }
+
+    /**
+     * Should the descriptions of the tasks be returned? Building them can be costly, so they are not by default.
+     */
+    public ListTasksRequest detailed(boolean detailed) {
+        this.detailed = detailed;
+        return this;
+    }
+
+    public boolean detailed() {
+        return detailed;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        super.readFrom(in);
+        actions = in.readStringArray();
+        parentTaskId = TaskId.readTaskId(in);
+        detailed = in.readBoolean();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeStringArray(actions);
+        parentTaskId.writeTo(out);
+        out.writeBoolean(detailed);
+    }
+}
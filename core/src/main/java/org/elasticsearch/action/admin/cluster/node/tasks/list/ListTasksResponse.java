@@ -0,0 +1,93 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.action.admin.cluster.node.tasks.list;
+
+import org.elasticsearch.action.support.nodes.BaseNodesResponse;
+import org.elasticsearch.cluster.ClusterName;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.tasks.TaskInfo;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The tasks running on the requested nodes, grouped by node
+ */
+public class ListTasksResponse extends BaseNodesResponse<NodeTasks> implements ToXContent {
+
+    public ListTasksResponse() {
+    }
+
+    public ListTasksResponse(ClusterName clusterName, NodeTasks[] nodes) {
+        super(clusterName, nodes);
+    }
+
+    /**
+     * Returns the tasks of all nodes.
+     */
+    public List<TaskInfo> getTasks() {
+        List<TaskInfo> tasks = new ArrayList<>();
+        for (NodeTasks node : nodes) {
+            tasks.addAll(node.getTasks());
+        }
+        return tasks;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        super.readFrom(in);
+        nodes = new NodeTasks[in.readVInt()];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = NodeTasks.readNodeTasks(in);
+        }
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeVInt(nodes.length);
+        for (NodeTasks node : nodes) {
+            node.writeTo(out);
+        }
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject("nodes");
+        for (NodeTasks node : this) {
+            builder.startObject(node.getNode().id(), XContentBuilder.FieldCaseConversion.NONE);
+            builder.field("name", node.getNode().name(), XContentBuilder.FieldCaseConversion.NONE);
+            builder.field("transport_address", node.getNode().address().toString());
+            builder.field("host", node.getNode().getHostName(), XContentBuilder.FieldCaseConversion.NONE);
+            builder.field("ip", node.getNode().getHostAddress(), XContentBuilder.FieldCaseConversion.NONE);
+            builder.startObject("tasks");
+            for (TaskInfo task : node.getTasks()) {
+                task.toXContent(builder, params);
+            }
+            builder.endObject();
+            builder.endObject();
+        }
+        builder.endObject();
+        return builder;
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.action.admin.cluster.node.tasks.list;
+
+import org.elasticsearch.action.support.ActionFilters;
+import org.elasticsearch.action.support.nodes.BaseNodeRequest;
+import org.elasticsearch.action.support.nodes.TransportNodesAction;
+import org.elasticsearch.cluster.ClusterName;
+import org.elasticsearch.cluster.ClusterService;
+import org.elasticsearch.cluster.metadata.IndexNameExpressionResolver;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.tasks.Task;
+import org.elasticsearch.tasks.TaskInfo;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.TransportService;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Collects the tasks that are running on each of the requested nodes from their task manager.
+ */
+public class TransportListTasksAction extends TransportNodesAction<ListTasksRequest, ListTasksResponse, TransportListTasksAction.NodeRequest, NodeTasks> {
+
+    @Inject
+    public TransportListTasksAction(Settings settings, ClusterName clusterName, ThreadPool threadPool,
+                                    ClusterService clusterService, TransportService transportService,
+                                    ActionFilters actionFilters, IndexNameExpressionResolver indexNameExpressionResolver) {
+        super(settings, ListTasksAction.NAME, clusterName, threadPool, clusterService, transportService, actionFilters,
+                indexNameExpressionResolver, ListTasksRequest::new, NodeRequest::new, ThreadPool.Names.MANAGEMENT);
+    }
+
+    @Override
+    protected ListTasksResponse newResponse(ListTasksRequest request, AtomicReferenceArray responses) {
+        final List<NodeTasks> nodes = new ArrayList<>();
+        for (int i = 0; i < responses.length(); i++) {
+            Object resp = responses.get(i);
+            if (resp instanceof NodeTasks) {
+                nodes.add((NodeTasks) resp);
+            }
+        }
+        return new ListTasksResponse(clusterName, nodes.toArray(new NodeTasks[nodes.size()]));
+    }
+
+    @Override
+    protected NodeRequest newNodeRequest(String nodeId, ListTasksRequest request) {
+        return new NodeRequest(nodeId, request);
+    }
+
+    @Override
+    protected NodeTasks newNodeResponse() {
+        return new NodeTasks();
+    }
+
+    @Override
+    protected NodeTasks nodeOperation(NodeRequest request) {
+        final String localNodeId = clusterService.localNode().id();
+        List<TaskInfo> tasks = new ArrayList<>();
+        for (Task task : transportService.getTaskManager().findTasks(request.request.actions(), request.request.parentTaskId())) {
+            tasks.add(task.taskInfo(localNodeId, request.request.detailed()));
+        }
+        return new NodeTasks(clusterService.localNode(), tasks);
+    }
+
+    @Override
+    protected boolean accumulateExceptions() {
+        return false;
+    }
+
+    public static class NodeRequest extends BaseNodeRequest {
+
+        ListTasksRequest request;
+
+        public NodeRequest() {
+        }
+
+        NodeRequest(String nodeId, ListTasksRequest request) {
+            super(request, nodeId);
+            this.request = request;
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            super.readFrom(in);
+            request = new ListTasksRequest();
+            request.readFrom(in);
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            super.writeTo(out);
+            request.writeTo(out);
+        }
+    }
+}
@@ -45,8 +45,10 @@ import org.elasticsearch.common.logging.ESLogger;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.concurrent.CountDown;
 import org.elasticsearch.gateway.AsyncShardFetch;
+import org.elasticsearch.gateway.ShardFetchBatcher;
 import org.elasticsearch.gateway.TransportNodesListGatewayStartedShards;
 import org.elasticsearch.gateway.TransportNodesListGatewayStartedShards.NodeGatewayStartedShards;
+import org.elasticsearch.gateway.TransportNodesListGatewayStartedShards.NodesGatewayStartedShards;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.TransportService;
@@ -105,11 +107,8 @@ public class TransportIndicesShardStoresAction extends TransportMasterNodeReadAc
             }
         }
 
-        // async fetch store infos from all the nodes
-        // NOTE: instead of fetching shard store info one by one from every node (nShards * nNodes requests)
-        // we could fetch all shard store info from every node once (nNodes requests)
-        // we have to implement a TransportNodesAction instead of using TransportNodesListGatewayStartedShards
-        // for fetching shard stores info, that operates on a list of shards instead of a single shard
+        // async fetch store infos from all the nodes, the fetches of all shards are batched so that every node
+        // only gets a single request (nNodes requests instead of nShards * nNodes requests)
         new AsyncShardStoresInfoFetches(state.nodes(), routingNodes, state.metaData(), shardIdsToFetch, listener).start();
     }
 
@@ -141,16 +140,19 @@ public class TransportIndicesShardStoresAction extends TransportMasterNodeReadAc
             if (shardIds.isEmpty()) {
                 listener.onResponse(new IndicesShardStoresResponse());
             } else {
+                ShardFetchBatcher<NodesGatewayStartedShards, NodeGatewayStartedShards> batcher =
+                        new ShardFetchBatcher<>(logger, "shard_stores", listShardStoresInfo, shardIds.size());
                 for (ShardId shardId : shardIds) {
-                    InternalAsyncFetch fetch = new InternalAsyncFetch(logger, "shard_stores", shardId, listShardStoresInfo);
+                    InternalAsyncFetch fetch = new InternalAsyncFetch(logger, "shard_stores", shardId, batcher);
                     fetch.fetchData(nodes, metaData, Collections.<String>emptySet());
                 }
+                batcher.flush();
             }
         }
 
         private class InternalAsyncFetch extends AsyncShardFetch<NodeGatewayStartedShards> {
 
-            InternalAsyncFetch(ESLogger logger, String type, ShardId shardId, TransportNodesListGatewayStartedShards action) {
+            InternalAsyncFetch(ESLogger logger, String type, ShardId shardId, AsyncShardFetch.List<NodesGatewayStartedShards, NodeGatewayStartedShards> action) {
                 super(logger, type, shardId, action);
             }
 
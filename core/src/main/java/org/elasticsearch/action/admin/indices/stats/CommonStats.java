@@ -134,13 +134,13 @@ public class CommonStats implements Streamable, ToXContent {
                     store = indexShard.storeStats();
                     break;
                 case Indexing:
-                    indexing = indexShard.indexingStats(flags.types());
+                    indexing = indexShard.indexingStats(flags.resetLatency(), flags.types());
                     break;
                 case Get:
-                    get = indexShard.getStats();
+                    get = indexShard.getStats(flags.resetLatency());
                     break;
                 case Search:
-                    search = indexShard.searchStats(flags.groups());
+                    search = indexShard.searchStats(flags.resetLatency(), flags.groups());
                     break;
                 case Merge:
                     merge = indexShard.mergeStats();
@@ -38,6 +38,7 @@ public class CommonStatsFlags implements Streamable, Cloneable {
     private String[] groups = null;
     private String[] fieldDataFields = null;
     private String[] completionDataFields = null;
+    private boolean resetLatency = false;
 
 
     /**
@@ -137,6 +138,19 @@ public class CommonStatsFlags implements Streamable, Cloneable {
         return this.completionDataFields;
     }
 
+    /**
+     * Sets whether the latency histograms of the indexing, get and search stats should be reset
+     * once they have been read, so that the next request only sees latencies recorded in between.
+     */
+    public CommonStatsFlags resetLatency(boolean resetLatency) {
+        this.resetLatency = resetLatency;
+        return this;
+    }
+
+    public boolean resetLatency() {
+        return this.resetLatency;
+    }
+
     public boolean isSet(Flag flag) {
         return flags.contains(flag);
     }
@@ -177,6 +191,7 @@ public class CommonStatsFlags implements Streamable, Cloneable {
         out.writeStringArrayNullable(groups);
         out.writeStringArrayNullable(fieldDataFields);
         out.writeStringArrayNullable(completionDataFields);
+        out.writeBoolean(resetLatency);
     }
 
     @Override
@@ -192,6 +207,7 @@ public class CommonStatsFlags implements Streamable, Cloneable {
         groups = in.readStringArray();
         fieldDataFields = in.readStringArray();
         completionDataFields = in.readStringArray();
+        resetLatency = in.readBoolean();
     }
 
     @Override
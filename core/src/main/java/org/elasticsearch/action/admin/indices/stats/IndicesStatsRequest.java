@@ -84,6 +84,18 @@ public class IndicesStatsRequest extends BroadcastRequest<IndicesStatsRequest> {
         return this.flags.groups();
     }
 
+    /**
+     * Sets whether the latency histograms should be reset once they have been read.
+     */
+    public IndicesStatsRequest resetLatency(boolean resetLatency) {
+        flags.resetLatency(resetLatency);
+        return this;
+    }
+
+    public boolean resetLatency() {
+        return flags.resetLatency();
+    }
+
     public IndicesStatsRequest docs(boolean docs) {
         flags.set(Flag.Docs, docs);
         return this;
@@ -102,6 +102,7 @@ public class TransportIndicesStatsAction extends TransportBroadcastByNodeAction<
         }
 
         CommonStatsFlags flags = new CommonStatsFlags().clear();
+        flags.resetLatency(request.resetLatency());
 
         if (request.docs()) {
             flags.set(CommonStatsFlags.Flag.Docs);
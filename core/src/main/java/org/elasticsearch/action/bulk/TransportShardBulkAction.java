@@ -43,6 +43,7 @@ import org.elasticsearch.cluster.metadata.MetaData;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.lucene.uid.Versions;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.xcontent.XContentHelper;
 import org.elasticsearch.common.xcontent.XContentType;
@@ -50,6 +51,9 @@ import org.elasticsearch.index.IndexService;
 import org.elasticsearch.index.VersionType;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.engine.VersionConflictEngineException;
+import org.elasticsearch.index.mapper.DocumentMapper;
+import org.elasticsearch.index.mapper.internal.TTLFieldMapper;
+import org.elasticsearch.index.mapper.internal.TimestampFieldMapper;
 import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.translog.Translog;
@@ -60,6 +64,7 @@ import org.elasticsearch.transport.TransportRequestOptions;
 import org.elasticsearch.transport.TransportService;
 
 import java.util.Map;
+import java.util.Objects;
 
 /**
  * Performs the index operation.
@@ -109,8 +114,29 @@ public class TransportShardBulkAction extends TransportReplicationAction<BulkSha
         long[] preVersions = new long[request.items().length];
         VersionType[] preVersionTypes = new VersionType[request.items().length];
         Translog.Location location = null;
+        // updates before this item are not coalesced, because coalescing them failed
+        int coalesceFrom = 0;
         for (int requestIndex = 0; requestIndex < request.items().length; requestIndex++) {
             BulkItemRequest item = request.items()[requestIndex];
+            if (item.request() instanceof UpdateRequest && requestIndex >= coalesceFrom) {
+                final int count = countCoalescableUpdates(request, requestIndex, indexShard);
+                if (count > 1) {
+                    CoalescedUpdates coalesced = executeCoalescedUpdates(metaData, request, requestIndex, count, indexShard);
+                    if (coalesced == null) {
+                        coalesceFrom = requestIndex + count;
+                    } else {
+                        for (int i = requestIndex; i < requestIndex + coalesced.applied; i++) {
+                            // coalesced updates neither carry a version nor a version type
+                            preVersions[i] = Versions.MATCH_ANY;
+                            preVersionTypes[i] = VersionType.INTERNAL;
+                            assert request.items()[i].getPrimaryResponse() != null;
+                        }
+                        location = locationToSync(location, coalesced.location);
+                        requestIndex += coalesced.applied - 1;
+                        continue;
+                    }
+                }
+            }
             if (item.request() instanceof IndexRequest) {
                 IndexRequest indexRequest = (IndexRequest) item.request();
                 preVersions[requestIndex] = indexRequest.version();
@@ -310,6 +336,11 @@ public class TransportShardBulkAction extends TransportReplicationAction<BulkSha
 
     private WriteResult shardIndexOperation(BulkShardRequest request, IndexRequest indexRequest, MetaData metaData,
                                             IndexShard indexShard, boolean processed) throws Throwable {
+        return shardIndexOperation(request, indexRequest, metaData, indexShard, processed, 1);
+    }
+
+    private WriteResult shardIndexOperation(BulkShardRequest request, IndexRequest indexRequest, MetaData metaData,
+                                            IndexShard indexShard, boolean processed, int mergedUpdates) throws Throwable {
 
         // validate, if routing is required, that we got routing
         MappingMetaData mappingMd = metaData.index(request.index()).mappingOrDefault(indexRequest.type());
@@ -322,7 +353,139 @@ public class TransportShardBulkAction extends TransportReplicationAction<BulkSha
         if (!processed) {
             indexRequest.process(metaData, mappingMd, allowIdGeneration, request.index());
         }
-        return TransportIndexAction.executeIndexRequestOnPrimary(indexRequest, indexShard, mappingUpdatedAction);
+        return TransportIndexAction.executeIndexRequestOnPrimary(indexRequest, indexShard, mappingUpdatedAction, mergedUpdates);
+    }
+
+    /**
+     * Returns the number of consecutive update items, starting at the given one, that update the same document
+     * and can be applied in memory on top of each other, see {@link #executeCoalescedUpdates}.
+     */
+    private int countCoalescableUpdates(BulkShardRequest request, int from, IndexShard indexShard) {
+        final BulkItemRequest[] items = request.items();
+        final UpdateRequest first = (UpdateRequest) items[from].request();
+        if (isCoalescable(items[from]) == false) {
+            return 1;
+        }
+        // the in-memory source must be the one a get would return, and TTLs and timestamps are not carried over
+        DocumentMapper docMapper = indexShard.mapperService().documentMapper(first.type());
+        if (docMapper == null || docMapper.sourceMapper().enabled() == false || docMapper.sourceMapper().isComplete() == false
+                || docMapper.metadataMapper(TTLFieldMapper.class).enabled() || docMapper.metadataMapper(TimestampFieldMapper.class).enabled()) {
+            return 1;
+        }
+        int count = 1;
+        while (from + count < items.length && isCoalescable(items[from + count])) {
+            UpdateRequest next = (UpdateRequest) items[from + count].request();
+            if (first.type().equals(next.type()) == false || first.id().equals(next.id()) == false
+                    || Objects.equals(first.routing(), next.routing()) == false || Objects.equals(first.parent(), next.parent()) == false) {
+                break;
+            }
+            count++;
+        }
+        return count;
+    }
+
+    private static boolean isCoalescable(BulkItemRequest item) {
+        if (item.request() instanceof UpdateRequest == false || item.getPrimaryResponse() != null) {
+            // items that were already executed on a previous primary go through the regular conflict handling
+            return false;
+        }
+        UpdateRequest updateRequest = (UpdateRequest) item.request();
+        return updateRequest.versionType() == VersionType.INTERNAL && updateRequest.version() == Versions.MATCH_ANY
+                && (updateRequest.doc() == null || (updateRequest.doc().ttl() == null && updateRequest.doc().timestamp() == null));
+    }
+
+    static class CoalescedUpdates {
+
+        final int applied;
+        final Translog.Location location;
+
+        CoalescedUpdates(int applied, Translog.Location location) {
+            this.applied = applied;
+            this.location = location;
+        }
+    }
+
+    /**
+     * Applies consecutive updates of the same document in memory, each on top of the source the previous one
+     * produced, and indexes the document once. The document is only read from the shard for the first update,
+     * and the write fails on a version conflict if it was modified concurrently. Every update still gets its own
+     * response and version. Stops at the first update that does not translate to an index request, which then
+     * goes through the regular path. Returns <code>null</code> if the updates could not be applied this way, in
+     * which case nothing was written and they should all go through the regular path.
+     */
+    private CoalescedUpdates executeCoalescedUpdates(MetaData metaData, BulkShardRequest request, int from, int count, IndexShard indexShard) {
+        final BulkItemRequest[] items = request.items();
+        final IndexRequest[] indexRequests = new IndexRequest[count];
+        int applied = 0;
+        try {
+            UpdateHelper.Result translate = updateHelper.prepare((UpdateRequest) items[from].request(), indexShard);
+            if (translate.operation() != UpdateHelper.Operation.INDEX) {
+                return null;
+            }
+            indexRequests[applied++] = translate.action();
+            Map<String, Object> source = translate.updatedSourceAsMap();
+            XContentType sourceContentType = translate.updateSourceContentType();
+            final long version = indexRequests[0].version();
+            for (; applied < count; applied++) {
+                IndexRequest previous = indexRequests[applied - 1];
+                if (previous.ttl() != null || previous.timestamp() != null) {
+                    break;
+                }
+                try {
+                    translate = updateHelper.prepare((UpdateRequest) items[from + applied].request(), previous, version + applied,
+                            source, sourceContentType);
+                } catch (Throwable t) {
+                    // the update will fail the same way on the regular path, on top of the written document
+                    break;
+                }
+                if (translate.operation() != UpdateHelper.Operation.INDEX) {
+                    break;
+                }
+                indexRequests[applied] = translate.action();
+                source = translate.updatedSourceAsMap();
+                sourceContentType = translate.updateSourceContentType();
+            }
+        } catch (Throwable t) {
+            return null;
+        }
+
+        // index the last source with the version the first update read
+        final IndexRequest indexRequest = indexRequests[applied - 1];
+        indexRequest.version(indexRequests[0].version()).versionType(indexRequests[0].versionType());
+        final WriteResult<IndexResponse> result;
+        try {
+            result = shardIndexOperation(request, indexRequest, metaData, indexShard, false, applied);
+        } catch (Throwable t) {
+            logger.trace("{} failed to execute [{}] coalesced updates of [{}], executing them one by one", t, request.shardId(), applied,
+                    indexRequest.id());
+            return null;
+        }
+
+        final IndexResponse indexResponse = result.response();
+        for (int i = 0; i < applied; i++) {
+            final UpdateRequest updateRequest = (UpdateRequest) items[from + i].request();
+            final IndexRequest itemIndexRequest = indexRequests[i];
+            final long itemVersion = indexResponse.getVersion() - (applied - 1 - i);
+            UpdateResponse updateResponse = new UpdateResponse(indexResponse.getShardInfo(), indexResponse.getShardId(), indexResponse.getType(),
+                    indexResponse.getId(), itemVersion, i == 0 && indexResponse.isCreated());
+            if (updateRequest.fields() != null && updateRequest.fields().length > 0) {
+                BytesReference sourceAsBytes = itemIndexRequest.source();
+                Tuple<XContentType, Map<String, Object>> sourceAndContent = XContentHelper.convertToMap(sourceAsBytes, true);
+                updateResponse.setGetResult(updateHelper.extractGetResult(updateRequest, request.index(), itemVersion, sourceAndContent.v2(),
+                        sourceAndContent.v1(), sourceAsBytes));
+            }
+            if (i < applied - 1) {
+                // only the last item carries the document to the replicas, the others are kept in the same state as if
+                // they had been executed, so that a retry on another primary uses their responses
+                itemIndexRequest.version(itemVersion).versionType(itemIndexRequest.versionType().versionTypeForReplicationAndRecovery());
+            }
+            BulkItemRequest item = items[from + i] = new BulkItemRequest(items[from + i].id(), itemIndexRequest);
+            setResponse(item, new BulkItemResponse(item.id(), OP_TYPE_UPDATE, updateResponse));
+            if (i < applied - 1) {
+                item.setIgnoreOnReplica();
+            }
+        }
+        return new CoalescedUpdates(applied, result.location);
     }
 
     static class UpdateResult {
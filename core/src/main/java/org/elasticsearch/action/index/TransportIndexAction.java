@@ -200,13 +200,22 @@ public class TransportIndexAction extends TransportReplicationAction<IndexReques
      * {@link RetryOnPrimaryException} if the operation needs to be re-tried.
      */
     public static WriteResult<IndexResponse> executeIndexRequestOnPrimary(IndexRequest request, IndexShard indexShard, MappingUpdatedAction mappingUpdatedAction) throws Throwable {
-        Engine.Index operation = prepareIndexOperationOnPrimary(request, indexShard);
+        return executeIndexRequestOnPrimary(request, indexShard, mappingUpdatedAction, 1);
+    }
+
+    /**
+     * Executes an index request that applies the given number of updates of the same document at once, see
+     * {@link Engine.Index#mergedUpdates(int)}.
+     */
+    public static WriteResult<IndexResponse> executeIndexRequestOnPrimary(IndexRequest request, IndexShard indexShard, MappingUpdatedAction mappingUpdatedAction,
+                                                                          int mergedUpdates) throws Throwable {
+        Engine.Index operation = prepareIndexOperationOnPrimary(request, indexShard).mergedUpdates(mergedUpdates);
         Mapping update = operation.parsedDoc().dynamicMappingsUpdate();
         final ShardId shardId = indexShard.shardId();
         if (update != null) {
             final String indexName = shardId.getIndex();
             mappingUpdatedAction.updateMappingOnMasterSynchronously(indexName, request.type(), update);
-            operation = prepareIndexOperationOnPrimary(request, indexShard);
+            operation = prepareIndexOperationOnPrimary(request, indexShard).mergedUpdates(mergedUpdates);
             update = operation.parsedDoc().dynamicMappingsUpdate();
             if (update != null) {
                 throw new RetryOnPrimaryException(shardId,
@@ -32,8 +32,11 @@ import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.script.Template;
 import org.elasticsearch.search.Scroll;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.tasks.Task;
+import org.elasticsearch.tasks.TaskId;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 import static org.elasticsearch.search.Scroll.readScroll;
 
@@ -132,6 +135,24 @@ public class SearchRequest extends ActionRequest<SearchRequest> implements Indic
         return validationException;
     }
 
+    @Override
+    public Task createTask(long id, String type, String action) {
+        return new SearchTask(id, type, action, this::getDescription, TaskId.EMPTY_TASK_ID);
+    }
+
+    @Override
+    public String getDescription() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("indices").append(Arrays.toString(indices)).append(", ");
+        sb.append("types").append(Arrays.toString(types)).append(", ");
+        sb.append("search_type[").append(searchType).append("], ");
+        if (scroll != null) {
+            sb.append("scroll[").append(scroll.keepAlive()).append("], ");
+        }
+        sb.append("source[").append(source == null ? "" : source.toString()).append("]");
+        return sb.toString();
+    }
+
     /**
      * Sets the indices the search will be executed on.
      */
@@ -352,6 +352,22 @@ public class SearchRequestBuilder extends ActionRequestBuilder<SearchRequest, Se
         return this;
     }
 
+    /**
+     * Controls if the total number of hits is computed accurately. Defaults to <tt>true</tt>.
+     */
+    public SearchRequestBuilder setTrackTotalHits(boolean trackTotalHits) {
+        sourceBuilder().trackTotalHits(trackTotalHits);
+        return this;
+    }
+
+    /**
+     * Set the sort values of the last hit of the previous page, hits are returned starting right after it.
+     */
+    public SearchRequestBuilder searchAfter(Object[] values) {
+        sourceBuilder().searchAfter(values);
+        return this;
+    }
+
     /**
      * Sets the fields to load and return as part of the search request. If none
      * are specified, the source of the document will be returned.
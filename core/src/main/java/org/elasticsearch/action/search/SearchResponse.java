@@ -174,6 +174,14 @@ public class SearchResponse extends ActionResponse implements StatusToXContent {
         return internalResponse.profile();
     }
 
+    /**
+     * If profiling was enabled, this returns the time it took to reduce the aggregations of all shards, in
+     * nanoseconds. Returns <code>-1</code> if profiling was not enabled or the request has no aggregations.
+     */
+    public long getProfileAggregationsReduceTime() {
+        return internalResponse.profileAggregationsReduceTime();
+    }
+
     static final class Fields {
         static final XContentBuilderString _SCROLL_ID = new XContentBuilderString("_scroll_id");
         static final XContentBuilderString TOOK = new XContentBuilderString("took");
@@ -88,7 +88,7 @@ public class TransportSearchDfsQueryAndFetchAction extends TransportSearchTypeAc
             for (final AtomicArray.Entry<DfsSearchResult> entry : firstResults.asList()) {
                 DfsSearchResult dfsResult = entry.value;
                 DiscoveryNode node = nodes.get(dfsResult.shardTarget().nodeId());
-                QuerySearchRequest querySearchRequest = new QuerySearchRequest(request, dfsResult.id(), dfs);
+                QuerySearchRequest querySearchRequest = asChildRequest(new QuerySearchRequest(request, dfsResult.id(), dfs));
                 executeSecondPhase(entry.index, dfsResult, counter, node, querySearchRequest);
             }
         }
@@ -97,7 +97,7 @@ public class TransportSearchDfsQueryThenFetchAction extends TransportSearchTypeA
             for (final AtomicArray.Entry<DfsSearchResult> entry : firstResults.asList()) {
                 DfsSearchResult dfsResult = entry.value;
                 DiscoveryNode node = nodes.get(dfsResult.shardTarget().nodeId());
-                QuerySearchRequest querySearchRequest = new QuerySearchRequest(request, dfsResult.id(), dfs);
+                QuerySearchRequest querySearchRequest = asChildRequest(new QuerySearchRequest(request, dfsResult.id(), dfs));
                 executeQuery(entry.index, dfsResult, counter, querySearchRequest, node);
             }
         }
@@ -154,6 +154,7 @@ public class TransportSearchDfsQueryThenFetchAction extends TransportSearchTypeA
             boolean useScroll = request.scroll() != null;
             sortedShardList = searchPhaseController.sortDocs(useScroll, queryResults);
             searchPhaseController.fillDocIdsToLoad(docIdsToLoad, sortedShardList);
+            prepareTopHitsFetch(queryResults, docIdsToLoad);
 
             if (docIdsToLoad.asList().isEmpty()) {
                 finishHim();
@@ -210,8 +211,7 @@ public class TransportSearchDfsQueryThenFetchAction extends TransportSearchTypeA
             threadPool.executor(ThreadPool.Names.SEARCH).execute(new ActionRunnable<SearchResponse>(listener) {
                 @Override
                 public void doRun() throws IOException {
-                    final InternalSearchResponse internalResponse = searchPhaseController.merge(sortedShardList, queryResults,
-                            fetchResults, request);
+                    final InternalSearchResponse internalResponse = merge(queryResults, fetchResults);
                     String scrollId = null;
                     if (request.scroll() != null) {
                         scrollId = TransportSearchHelper.buildScrollId(request.searchType(), firstResults, null);
@@ -44,6 +44,7 @@ import org.elasticsearch.search.query.QuerySearchResultProvider;
 import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -84,11 +85,22 @@ public class TransportSearchQueryThenFetchAction extends TransportSearchTypeActi
             searchService.sendExecuteQuery(node, request, listener);
         }
 
+        @Override
+        protected void sendExecuteFirstPhase(DiscoveryNode node, List<ShardSearchTransportRequest> requests,
+                                             List<ActionListener<QuerySearchResultProvider>> listeners) {
+            if (requests.size() == 1) {
+                searchService.sendExecuteQuery(node, requests.get(0), listeners.get(0));
+            } else {
+                searchService.sendExecuteQuery(node, requests, listeners);
+            }
+        }
+
         @Override
         protected void moveToSecondPhase() throws Exception {
             boolean useScroll = request.scroll() != null;
             sortedShardList = searchPhaseController.sortDocs(useScroll, firstResults);
             searchPhaseController.fillDocIdsToLoad(docIdsToLoad, sortedShardList);
+            prepareTopHitsFetch(firstResults, docIdsToLoad);
 
             if (docIdsToLoad.asList().isEmpty()) {
                 finishHim();
@@ -145,8 +157,7 @@ public class TransportSearchQueryThenFetchAction extends TransportSearchTypeActi
             threadPool.executor(ThreadPool.Names.SEARCH).execute(new ActionRunnable<SearchResponse>(listener) {
                 @Override
                 public void doRun() throws IOException {
-                    final InternalSearchResponse internalResponse = searchPhaseController.merge(sortedShardList, firstResults,
-                            fetchResults, request);
+                    final InternalSearchResponse internalResponse = merge(firstResults, fetchResults);
                     String scrollId = null;
                     if (request.scroll() != null) {
                         scrollId = TransportSearchHelper.buildScrollId(request.searchType(), firstResults, null);
@@ -29,6 +29,7 @@ import org.elasticsearch.action.search.SearchAction;
 import org.elasticsearch.action.search.SearchPhaseExecutionException;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchTask;
 import org.elasticsearch.action.search.ShardSearchFailure;
 import org.elasticsearch.action.support.ActionFilters;
 import org.elasticsearch.action.support.TransportAction;
@@ -49,13 +50,20 @@ import org.elasticsearch.search.SearchPhaseResult;
 import org.elasticsearch.search.SearchShardTarget;
 import org.elasticsearch.search.action.SearchServiceTransportAction;
 import org.elasticsearch.search.controller.SearchPhaseController;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.metrics.tophits.DeferredTopHits;
+import org.elasticsearch.search.fetch.FetchSearchResultProvider;
 import org.elasticsearch.search.fetch.ShardFetchSearchRequest;
 import org.elasticsearch.search.internal.InternalSearchResponse;
 import org.elasticsearch.search.internal.ShardSearchTransportRequest;
 import org.elasticsearch.search.query.QuerySearchResult;
 import org.elasticsearch.search.query.QuerySearchResultProvider;
+import org.elasticsearch.tasks.ChildTaskRequest;
+import org.elasticsearch.tasks.TaskManager;
 import org.elasticsearch.threadpool.ThreadPool;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -91,6 +99,9 @@ public abstract class TransportSearchTypeAction extends TransportAction<SearchRe
 
         protected final SearchRequest request;
 
+        /** the task the shard level requests are children of, unregistered once the listener is notified */
+        protected final SearchTask task;
+
         protected final ClusterState clusterState;
         protected final DiscoveryNodes nodes;
 
@@ -104,10 +115,13 @@ public abstract class TransportSearchTypeAction extends TransportAction<SearchRe
         private volatile AtomicArray<ShardSearchFailure> shardFailures;
         private final Object shardFailuresMutex = new Object();
         protected volatile ScoreDoc[] sortedShardList;
+        // only set if top_hits aggregations deferred fetching their hits, see prepareTopHitsFetch
+        private volatile InternalAggregations reducedAggregations;
+        private volatile long aggregationsReduceTime;
+        private volatile AtomicArray<Map<String, int[]>> topHitsDocIdsToLoad;
 
         protected BaseAsyncAction(SearchRequest request, ActionListener<SearchResponse> listener) {
             this.request = request;
-            this.listener = listener;
 
             this.clusterState = clusterService.state();
             nodes = clusterState.nodes();
@@ -125,12 +139,37 @@ public abstract class TransportSearchTypeAction extends TransportAction<SearchRe
 
             Map<String, Set<String>> routingMap = indexNameExpressionResolver.resolveSearchRouting(clusterState, request.routing(), request.indices());
 
-            shardsIts = clusterService.operationRouting().searchShards(clusterState, concreteIndices, routingMap, request.preference());
+            shardsIts = clusterService.operationRouting().searchShards(clusterState, concreteIndices, routingMap, request.preference(),
+                searchService.responseCollectorService());
             expectedSuccessfulOps = shardsIts.size();
             // we need to add 1 for non active partition, since we count it in the total!
             expectedTotalOps = shardsIts.totalSizeWith1ForEmpty();
 
             firstResults = new AtomicArray<>(shardsIts.size());
+
+            final TaskManager taskManager = searchService.taskManager();
+            this.task = (SearchTask) taskManager.register("transport", SearchAction.NAME, request);
+            this.listener = new ActionListener<SearchResponse>() {
+                @Override
+                public void onResponse(SearchResponse response) {
+                    taskManager.unregister(task);
+                    listener.onResponse(response);
+                }
+
+                @Override
+                public void onFailure(Throwable e) {
+                    taskManager.unregister(task);
+                    listener.onFailure(e);
+                }
+            };
+        }
+
+        /**
+         * Marks the given shard level request as a child of this search's task, so that it gets cancelled with it.
+         */
+        protected final <R extends ChildTaskRequest> R asChildRequest(R shardRequest) {
+            shardRequest.setParentTask(clusterService.localNode().id(), task.getId());
+            return shardRequest;
         }
 
         public void start() {
@@ -139,16 +178,35 @@ public abstract class TransportSearchTypeAction extends TransportAction<SearchRe
                 listener.onResponse(new SearchResponse(InternalSearchResponse.empty(), null, 0, 0, buildTookInMillis(), ShardSearchFailure.EMPTY_ARRAY));
                 return;
             }
+            // the first copy of each shard is searched with a single request per node, so that nodes holding many of
+            // the shards only receive the search source once, other copies are searched shard by shard on failure
+            final Map<String, List<ShardSearchTransportRequest>> nodeRequests = new HashMap<>();
+            final Map<String, List<ActionListener<FirstResult>>> nodeListeners = new HashMap<>();
             int shardIndex = -1;
             for (final ShardIterator shardIt : shardsIts) {
                 shardIndex++;
                 final ShardRouting shard = shardIt.nextOrNull();
-                if (shard != null) {
-                    performFirstPhase(shardIndex, shardIt, shard);
-                } else {
+                if (shard == null) {
                     // really, no shards active in this group
                     onFirstPhaseResult(shardIndex, null, null, shardIt, new NoShardAvailableActionException(shardIt.shardId()));
+                    continue;
+                }
+                final DiscoveryNode node = nodes.get(shard.currentNodeId());
+                if (node == null) {
+                    onFirstPhaseResult(shardIndex, shard, null, shardIt, new NoShardAvailableActionException(shardIt.shardId()));
+                    continue;
                 }
+                List<ShardSearchTransportRequest> requests = nodeRequests.get(node.id());
+                if (requests == null) {
+                    requests = new ArrayList<>();
+                    nodeRequests.put(node.id(), requests);
+                    nodeListeners.put(node.id(), new ArrayList<>());
+                }
+                requests.add(firstPhaseRequest(shard));
+                nodeListeners.get(node.id()).add(firstPhaseListener(shardIndex, shardIt, shard, node));
+            }
+            for (Map.Entry<String, List<ShardSearchTransportRequest>> entry : nodeRequests.entrySet()) {
+                sendExecuteFirstPhase(nodes.get(entry.getKey()), entry.getValue(), nodeListeners.get(entry.getKey()));
             }
         }
 
@@ -161,22 +219,31 @@ public abstract class TransportSearchTypeAction extends TransportAction<SearchRe
                 if (node == null) {
                     onFirstPhaseResult(shardIndex, shard, null, shardIt, new NoShardAvailableActionException(shardIt.shardId()));
                 } else {
-                    String[] filteringAliases = indexNameExpressionResolver.filteringAliases(clusterState, shard.index(), request.indices());
-                    sendExecuteFirstPhase(node, internalSearchRequest(shard, shardsIts.size(), request, filteringAliases, startTime()), new ActionListener<FirstResult>() {
-                        @Override
-                        public void onResponse(FirstResult result) {
-                            onFirstPhaseResult(shardIndex, shard, result, shardIt);
-                        }
-
-                        @Override
-                        public void onFailure(Throwable t) {
-                            onFirstPhaseResult(shardIndex, shard, node.id(), shardIt, t);
-                        }
-                    });
+                    sendExecuteFirstPhase(node, firstPhaseRequest(shard), firstPhaseListener(shardIndex, shardIt, shard, node));
                 }
             }
         }
 
+        private ShardSearchTransportRequest firstPhaseRequest(ShardRouting shard) {
+            String[] filteringAliases = indexNameExpressionResolver.filteringAliases(clusterState, shard.index(), request.indices());
+            return asChildRequest(internalSearchRequest(shard, shardsIts.size(), request, filteringAliases, startTime()));
+        }
+
+        private ActionListener<FirstResult> firstPhaseListener(final int shardIndex, final ShardIterator shardIt, final ShardRouting shard,
+                                                               final DiscoveryNode node) {
+            return new ActionListener<FirstResult>() {
+                @Override
+                public void onResponse(FirstResult result) {
+                    onFirstPhaseResult(shardIndex, shard, result, shardIt);
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    onFirstPhaseResult(shardIndex, shard, node.id(), shardIt, t);
+                }
+            };
+        }
+
         void onFirstPhaseResult(int shardIndex, ShardRouting shard, FirstResult result, ShardIterator shardIt) {
             result.shardTarget(new SearchShardTarget(shard.currentNodeId(), shard.index(), shard.id()));
             processFirstPhaseResult(shardIndex, result);
@@ -329,7 +396,9 @@ public abstract class TransportSearchTypeAction extends TransportAction<SearchRe
             if (request.scroll() == null) {
                 for (AtomicArray.Entry<? extends QuerySearchResultProvider> entry : queryResults.asList()) {
                     final TopDocs topDocs = entry.value.queryResult().queryResult().topDocs();
-                    if (topDocs != null && topDocs.scoreDocs.length > 0 // the shard had matches
+                    final boolean hadMatches = (topDocs != null && topDocs.scoreDocs.length > 0)
+                            || DeferredTopHits.hasDeferredHits(entry.value.queryResult().aggregations());
+                    if (hadMatches // the shard had matches, or top hits to fetch
                             && docIdsToLoad.get(entry.index) == null) { // but none of them made it to the global top docs
                         try {
                             DiscoveryNode node = nodes.get(entry.value.queryResult().shardTarget().nodeId());
@@ -349,16 +418,64 @@ public abstract class TransportSearchTypeAction extends TransportAction<SearchRe
         }
 
         protected ShardFetchSearchRequest createFetchRequest(QuerySearchResult queryResult, AtomicArray.Entry<IntArrayList> entry, ScoreDoc[] lastEmittedDocPerShard) {
+            final ShardFetchSearchRequest fetchRequest;
             if (lastEmittedDocPerShard != null) {
                 ScoreDoc lastEmittedDoc = lastEmittedDocPerShard[entry.index];
-                return new ShardFetchSearchRequest(request, queryResult.id(), entry.value, lastEmittedDoc);
+                fetchRequest = asChildRequest(new ShardFetchSearchRequest(request, queryResult.id(), entry.value, lastEmittedDoc));
             } else {
-                return new ShardFetchSearchRequest(request, queryResult.id(), entry.value);
+                fetchRequest = asChildRequest(new ShardFetchSearchRequest(request, queryResult.id(), entry.value));
+            }
+            if (topHitsDocIdsToLoad != null && topHitsDocIdsToLoad.get(entry.index) != null) {
+                fetchRequest.topHitsDocIds(topHitsDocIdsToLoad.get(entry.index));
             }
+            return fetchRequest;
+        }
+
+        /**
+         * If top_hits aggregations deferred fetching their hits, reduces the aggregations ahead of the fetch phase so
+         * that only the hits of the buckets that survived get fetched. The shards that these hits come from are added
+         * to the docs to load.
+         */
+        protected void prepareTopHitsFetch(AtomicArray<? extends QuerySearchResultProvider> queryResults,
+                                           AtomicArray<IntArrayList> docIdsToLoad) {
+            if (searchPhaseController.prepareDeferredTopHits(queryResults) == false) {
+                return;
+            }
+            final long start = System.nanoTime();
+            reducedAggregations = searchPhaseController.reduceAggregations(queryResults, request);
+            aggregationsReduceTime = System.nanoTime() - start;
+            final AtomicArray<Map<String, int[]>> topHitsDocIdsToLoad = new AtomicArray<>(queryResults.length());
+            searchPhaseController.fillTopHitsDocIdsToLoad(topHitsDocIdsToLoad, reducedAggregations);
+            for (AtomicArray.Entry<Map<String, int[]>> entry : topHitsDocIdsToLoad.asList()) {
+                if (docIdsToLoad.get(entry.index) == null) {
+                    docIdsToLoad.set(entry.index, new IntArrayList());
+                }
+            }
+            this.topHitsDocIdsToLoad = topHitsDocIdsToLoad;
+        }
+
+        protected InternalSearchResponse merge(AtomicArray<? extends QuerySearchResultProvider> queryResults,
+                                               AtomicArray<? extends FetchSearchResultProvider> fetchResults) {
+            if (topHitsDocIdsToLoad == null) {
+                return searchPhaseController.merge(sortedShardList, queryResults, fetchResults, request);
+            }
+            return searchPhaseController.merge(sortedShardList, queryResults, fetchResults, request, reducedAggregations,
+                    aggregationsReduceTime, topHitsDocIdsToLoad);
         }
 
         protected abstract void sendExecuteFirstPhase(DiscoveryNode node, ShardSearchTransportRequest request, ActionListener<FirstResult> listener);
 
+        /**
+         * Sends the first phase requests of several shards that are held by the same node, each listener is notified of
+         * the result of the request at the same position. Requests are sent one by one unless the search type supports
+         * sending them together.
+         */
+        protected void sendExecuteFirstPhase(DiscoveryNode node, List<ShardSearchTransportRequest> requests, List<ActionListener<FirstResult>> listeners) {
+            for (int i = 0; i < requests.size(); i++) {
+                sendExecuteFirstPhase(node, requests.get(i), listeners.get(i));
+            }
+        }
+
         protected final void processFirstPhaseResult(int shardIndex, FirstResult result) {
             firstResults.set(shardIndex, result);
 
@@ -394,6 +511,8 @@ public abstract class TransportSearchTypeAction extends TransportAction<SearchRe
 
                 logger.trace("Moving to second phase, based on results from: {} (cluster state version: {})", sb, clusterState.version());
             }
+            // no need to start the second phase if the search was cancelled in the meantime
+            task.ensureNotCancelled();
             moveToSecondPhase();
         }
 
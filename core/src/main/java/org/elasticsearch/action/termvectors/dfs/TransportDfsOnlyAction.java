@@ -128,7 +128,7 @@ public class TransportDfsOnlyAction extends TransportBroadcastAction<DfsOnlyRequ
 
     @Override
     protected ShardDfsOnlyResponse shardOperation(ShardDfsOnlyRequest request) {
-        DfsSearchResult dfsSearchResult = searchService.executeDfsPhase(request.getShardSearchRequest());
+        DfsSearchResult dfsSearchResult = searchService.executeDfsPhase(request.getShardSearchRequest(), null);
         searchService.freeContext(dfsSearchResult.id());
         return new ShardDfsOnlyResponse(request.shardId(), dfsSearchResult);
     }
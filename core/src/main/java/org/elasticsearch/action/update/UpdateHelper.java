@@ -81,8 +81,33 @@ public class UpdateHelper extends AbstractComponent {
     /**
      * Prepares an update request by converting it into an index or delete request or an update response (no action).
      */
-    @SuppressWarnings("unchecked")
     protected Result prepare(UpdateRequest request, final GetResult getResult) {
+        return prepare(request, getResult, null);
+    }
+
+    /**
+     * Prepares an update request on top of the index request that a previous update of the same document
+     * translated to, without reading the document from the shard. This lets consecutive updates of a document
+     * be applied in memory and indexed at once. The previous update must not have set a TTL or a timestamp,
+     * and the given source, which is the one of the previous update, may be modified in place.
+     *
+     * @param version   the version the document would have if the previous updates had been indexed
+     */
+    public Result prepare(UpdateRequest request, IndexRequest previous, long version, Map<String, Object> source, XContentType sourceContentType) {
+        assert previous.ttl() == null && previous.timestamp() == null : "the TTL and timestamp of previous updates are not carried over";
+        Map<String, GetField> fields = new HashMap<>(2);
+        if (previous.routing() != null) {
+            fields.put(RoutingFieldMapper.NAME, new GetField(RoutingFieldMapper.NAME, Collections.<Object>singletonList(previous.routing())));
+        }
+        if (previous.parent() != null) {
+            fields.put(ParentFieldMapper.NAME, new GetField(ParentFieldMapper.NAME, Collections.<Object>singletonList(previous.parent())));
+        }
+        GetResult getResult = new GetResult(previous.index(), previous.type(), previous.id(), version, true, null, fields);
+        return prepare(request, getResult, new Tuple<>(sourceContentType, source));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Result prepare(UpdateRequest request, final GetResult getResult, @Nullable Tuple<XContentType, Map<String, Object>> parsedSource) {
         long getDateNS = System.nanoTime();
         final ShardId shardId = new ShardId(getResult.getIndex(), request.shardId());
         if (!getResult.isExists()) {
@@ -145,12 +170,13 @@ public class UpdateHelper extends AbstractComponent {
             updateVersion = request.version(); // remember, match_any is excluded by the conflict test
         }
 
-        if (getResult.internalSourceRef() == null) {
+        if (getResult.internalSourceRef() == null && parsedSource == null) {
             // no source, we can't do nothing, through a failure...
             throw new DocumentSourceMissingException(shardId, request.type(), request.id());
         }
 
-        Tuple<XContentType, Map<String, Object>> sourceAndContent = XContentHelper.convertToMap(getResult.internalSourceRef(), true);
+        Tuple<XContentType, Map<String, Object>> sourceAndContent = parsedSource != null ? parsedSource
+                : XContentHelper.convertToMap(getResult.internalSourceRef(), true);
         String operation = null;
         String timestamp = null;
         TimeValue ttl = null;
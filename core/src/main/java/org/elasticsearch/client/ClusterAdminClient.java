@@ -33,6 +33,12 @@ import org.elasticsearch.action.admin.cluster.node.info.NodesInfoResponse;
 import org.elasticsearch.action.admin.cluster.node.stats.NodesStatsRequest;
 import org.elasticsearch.action.admin.cluster.node.stats.NodesStatsRequestBuilder;
 import org.elasticsearch.action.admin.cluster.node.stats.NodesStatsResponse;
+import org.elasticsearch.action.admin.cluster.node.tasks.cancel.CancelTasksRequest;
+import org.elasticsearch.action.admin.cluster.node.tasks.cancel.CancelTasksRequestBuilder;
+import org.elasticsearch.action.admin.cluster.node.tasks.cancel.CancelTasksResponse;
+import org.elasticsearch.action.admin.cluster.node.tasks.list.ListTasksRequest;
+import org.elasticsearch.action.admin.cluster.node.tasks.list.ListTasksRequestBuilder;
+import org.elasticsearch.action.admin.cluster.node.tasks.list.ListTasksResponse;
 import org.elasticsearch.action.admin.cluster.repositories.delete.DeleteRepositoryRequest;
 import org.elasticsearch.action.admin.cluster.repositories.delete.DeleteRepositoryRequestBuilder;
 import org.elasticsearch.action.admin.cluster.repositories.delete.DeleteRepositoryResponse;
@@ -249,6 +255,36 @@ public interface ClusterAdminClient extends ElasticsearchClient {
      */
     NodesHotThreadsRequestBuilder prepareNodesHotThreads(String... nodesIds);
 
+    /**
+     * Lists the tasks that are currently running on the nodes specified in the request.
+     */
+    ActionFuture<ListTasksResponse> listTasks(ListTasksRequest request);
+
+    /**
+     * Lists the tasks that are currently running on the nodes specified in the request.
+     */
+    void listTasks(ListTasksRequest request, ActionListener<ListTasksResponse> listener);
+
+    /**
+     * Returns a request builder to list the tasks that are currently running on the given nodes.
+     */
+    ListTasksRequestBuilder prepareListTasks(String... nodesIds);
+
+    /**
+     * Cancels tasks, and their children on all nodes.
+     */
+    ActionFuture<CancelTasksResponse> cancelTasks(CancelTasksRequest request);
+
+    /**
+     * Cancels tasks, and their children on all nodes.
+     */
+    void cancelTasks(CancelTasksRequest request, ActionListener<CancelTasksResponse> listener);
+
+    /**
+     * Returns a request builder to cancel tasks.
+     */
+    CancelTasksRequestBuilder prepareCancelTasks(String... nodesIds);
+
     /**
      * Returns list of shards the given search would be executed on.
      */
@@ -31,7 +31,9 @@ import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.joda.DateMathParser;
 import org.elasticsearch.common.joda.FormatDateTimeFormatter;
 import org.elasticsearch.common.regex.Regex;
+import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.IndexNotFoundException;
 import org.elasticsearch.indices.IndexClosedException;
@@ -48,14 +50,26 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
 import java.util.stream.Collectors;
 
 public class IndexNameExpressionResolver extends AbstractComponent {
 
+    /**
+     * The maximum number of index expressions whose resolution is cached for the current cluster metadata, 0 disables
+     * the cache. The cache is dropped as a whole whenever the metadata changes.
+     */
+    public static final Setting<Integer> RESOLUTION_CACHE_SIZE_SETTING =
+        Setting.intSetting("cluster.indices.resolution_cache.size", 1000, 0, false, Setting.Scope.CLUSTER);
+
     private final List<ExpressionResolver> expressionResolvers;
     private final DateMathExpressionResolver dateMathExpressionResolver;
+    private final int resolutionCacheSize;
+
+    private volatile ResolutionCache resolutionCache;
 
     @Inject
     public IndexNameExpressionResolver(Settings settings) {
@@ -64,6 +78,7 @@ public class IndexNameExpressionResolver extends AbstractComponent {
                 dateMathExpressionResolver = new DateMathExpressionResolver(settings),
                 new WildcardExpressionResolver()
         );
+        resolutionCacheSize = RESOLUTION_CACHE_SIZE_SETTING.get(settings);
     }
 
     /**
@@ -115,6 +130,21 @@ public class IndexNameExpressionResolver extends AbstractComponent {
         if (indexExpressions == null || indexExpressions.length == 0) {
             indexExpressions = new String[]{MetaData.ALL};
         }
+        final ResolutionCache cache = resolutionCache(context.getState().metaData(), indexExpressions);
+        if (cache == null) {
+            return doConcreteIndices(context, indexExpressions);
+        }
+        final ResolutionKey key = new ResolutionKey(context.getOptions(), indexExpressions);
+        String[] concreteIndices = cache.concreteIndices.get(key);
+        if (concreteIndices == null) {
+            concreteIndices = doConcreteIndices(context, indexExpressions);
+            cache.put(cache.concreteIndices, key, concreteIndices);
+        }
+        // callers are free to modify the returned array
+        return concreteIndices.clone();
+    }
+
+    private String[] doConcreteIndices(Context context, String... indexExpressions) {
         MetaData metaData = context.getState().metaData();
         IndicesOptions options = context.getOptions();
         boolean failClosed = options.forbidClosedIndices() && options.ignoreUnavailable() == false;
@@ -126,10 +156,7 @@ public class IndexNameExpressionResolver extends AbstractComponent {
             failNoIndices = options.allowNoIndices() == false;
         }
 
-        List<String> expressions = Arrays.asList(indexExpressions);
-        for (ExpressionResolver expressionResolver : expressionResolvers) {
-            expressions = expressionResolver.resolve(context, expressions);
-        }
+        List<String> expressions = resolveExpressions(context, indexExpressions);
 
         if (expressions.isEmpty()) {
             if (!options.allowNoIndices()) {
@@ -189,6 +216,57 @@ public class IndexNameExpressionResolver extends AbstractComponent {
         return concreteIndices.toArray(new String[concreteIndices.size()]);
     }
 
+    /**
+     * Resolves date math and wildcards in the given expressions into index and alias names, which might or might not exist.
+     */
+    private List<String> resolveExpressions(Context context, String... expressions) {
+        final ResolutionCache cache = resolutionCache(context.getState().metaData(), expressions);
+        final ResolutionKey key = cache == null ? null : new ResolutionKey(context.getOptions(), expressions);
+        if (key != null) {
+            List<String> resolvedExpressions = cache.expressions.get(key);
+            if (resolvedExpressions != null) {
+                return resolvedExpressions;
+            }
+        }
+        List<String> resolvedExpressions = Arrays.asList(expressions);
+        for (ExpressionResolver expressionResolver : expressionResolvers) {
+            resolvedExpressions = expressionResolver.resolve(context, resolvedExpressions);
+        }
+        if (key != null) {
+            // resolvers may return the given expressions as is, which are backed by the caller's array
+            resolvedExpressions = Collections.unmodifiableList(new ArrayList<>(resolvedExpressions));
+            cache.put(cache.expressions, key, resolvedExpressions);
+        }
+        return resolvedExpressions;
+    }
+
+    /**
+     * Returns the cache of resolutions against the given metadata, or <code>null</code> if the resolution of the given
+     * expressions must not be cached.
+     */
+    private ResolutionCache resolutionCache(MetaData metaData, String... expressions) {
+        if (resolutionCacheSize == 0) {
+            return null;
+        }
+        for (String expression : expressions) {
+            if (expression == null || expression.startsWith(DateMathExpressionResolver.EXPRESSION_LEFT_BOUND)) {
+                // date math depends on the time of the request
+                return null;
+            }
+        }
+        ResolutionCache cache = this.resolutionCache;
+        if (cache != null && cache.metaData == metaData) {
+            return cache;
+        }
+        if (cache != null && metaData.version() < cache.metaData.version()) {
+            // resolving against stale metadata, keep the cache of the newer one
+            return null;
+        }
+        cache = new ResolutionCache(metaData, resolutionCacheSize);
+        this.resolutionCache = cache;
+        return cache;
+    }
+
     /**
      * Utility method that allows to resolve an index expression to its corresponding single concrete index.
      * Callers should make sure they provide proper {@link org.elasticsearch.action.support.IndicesOptions}
@@ -236,11 +314,8 @@ public class IndexNameExpressionResolver extends AbstractComponent {
      */
     public String[] filteringAliases(ClusterState state, String index, String... expressions) {
         // expand the aliases wildcard
-        List<String> resolvedExpressions = expressions != null ? Arrays.asList(expressions) : Collections.<String>emptyList();
         Context context = new Context(state, IndicesOptions.lenientExpandOpen());
-        for (ExpressionResolver expressionResolver : expressionResolvers) {
-            resolvedExpressions = expressionResolver.resolve(context, resolvedExpressions);
-        }
+        List<String> resolvedExpressions = resolveExpressions(context, expressions != null ? expressions : Strings.EMPTY_ARRAY);
 
         if (isAllIndices(resolvedExpressions)) {
             return null;
@@ -302,11 +377,8 @@ public class IndexNameExpressionResolver extends AbstractComponent {
      * @return routing values grouped by concrete index
      */
     public Map<String, Set<String>> resolveSearchRouting(ClusterState state, @Nullable String routing, String... expressions) {
-        List<String> resolvedExpressions = expressions != null ? Arrays.asList(expressions) : Collections.<String>emptyList();
         Context context = new Context(state, IndicesOptions.lenientExpandOpen());
-        for (ExpressionResolver expressionResolver : expressionResolvers) {
-            resolvedExpressions = expressionResolver.resolve(context, resolvedExpressions);
-        }
+        List<String> resolvedExpressions = resolveExpressions(context, expressions != null ? expressions : Strings.EMPTY_ARRAY);
 
         if (isAllIndices(resolvedExpressions)) {
             return resolveSearchRoutingAllIndices(state.metaData(), routing);
@@ -454,6 +526,58 @@ public class IndexNameExpressionResolver extends AbstractComponent {
         return false;
     }
 
+    /**
+     * The resolutions of index expressions against a given metadata instance. Entries are only added until the cache is
+     * full, which lets repeated requests skip resolution without having to track usage, since the cache starts from scratch
+     * on the next metadata change anyway.
+     */
+    private static final class ResolutionCache {
+
+        private final MetaData metaData;
+        private final int maxSize;
+        private final ConcurrentMap<ResolutionKey, String[]> concreteIndices = ConcurrentCollections.newConcurrentMap();
+        private final ConcurrentMap<ResolutionKey, List<String>> expressions = ConcurrentCollections.newConcurrentMap();
+
+        ResolutionCache(MetaData metaData, int maxSize) {
+            this.metaData = metaData;
+            this.maxSize = maxSize;
+        }
+
+        <V> void put(ConcurrentMap<ResolutionKey, V> map, ResolutionKey key, V value) {
+            if (map.size() < maxSize) {
+                map.putIfAbsent(key, value);
+            }
+        }
+    }
+
+    private static final class ResolutionKey {
+
+        private final IndicesOptions options;
+        private final List<String> expressions;
+
+        ResolutionKey(IndicesOptions options, String... expressions) {
+            this.options = options;
+            this.expressions = Arrays.asList(expressions.clone());
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null || getClass() != obj.getClass()) {
+                return false;
+            }
+            ResolutionKey other = (ResolutionKey) obj;
+            return options.equals(other.options) && expressions.equals(other.expressions);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(options, expressions);
+        }
+    }
+
     final static class Context {
 
         private final ClusterState state;
@@ -648,7 +772,7 @@ public class IndexNameExpressionResolver extends AbstractComponent {
 
     final static class DateMathExpressionResolver implements ExpressionResolver {
 
-        private static final String EXPRESSION_LEFT_BOUND = "<";
+        static final String EXPRESSION_LEFT_BOUND = "<";
         private static final String EXPRESSION_RIGHT_BOUND = ">";
         private static final char LEFT_BOUND = '{';
         private static final char RIGHT_BOUND = '}';
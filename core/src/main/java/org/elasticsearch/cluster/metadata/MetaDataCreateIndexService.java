@@ -59,6 +59,7 @@ import org.elasticsearch.index.mapper.DocumentMapper;
 import org.elasticsearch.index.mapper.MapperParsingException;
 import org.elasticsearch.index.mapper.MapperService;
 import org.elasticsearch.index.query.QueryShardContext;
+import org.elasticsearch.index.shard.IndexSortConfig;
 import org.elasticsearch.indices.IndexAlreadyExistsException;
 import org.elasticsearch.indices.IndexCreationException;
 import org.elasticsearch.indices.IndicesService;
@@ -332,6 +333,9 @@ public class MetaDataCreateIndexService extends AbstractComponent {
                         }
                     }
 
+                    // the index sort is applied by the merge policy of every shard so its fields must be mapped up-front
+                    new IndexSortConfig(indexService.getIndexSettings().getSettings()).buildIndexSort(mapperService);
+
                     QueryShardContext queryShardContext = indexService.getQueryShardContext();
                     for (Alias alias : request.aliases()) {
                         if (Strings.hasLength(alias.filter())) {
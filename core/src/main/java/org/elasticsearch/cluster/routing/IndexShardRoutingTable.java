@@ -26,11 +26,13 @@ import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.util.set.Sets;
 import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.node.ResponseCollectorService;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -278,6 +280,42 @@ public class IndexShardRoutingTable implements Iterable<ShardRouting> {
         return new PlainShardIterator(shardId, ordered);
     }
 
+    /**
+     * Returns an iterator over active and initializing shards, ordered by the rank of the nodes holding the active shards
+     * as computed by the given collector, best first. Copies on nodes without recent statistics come first so that
+     * their statistics get collected, ties are broken randomly. Initializing shards are the last to iterate through.
+     * <p>
+     * <code>nodeSearchCounts</code> holds the number of shards of the same search that were already routed to each node.
+     * These requests count as outstanding when ranking the nodes, and the node that this shard is routed to is added,
+     * so that the shards of a search spread over the nodes instead of all going to the one that ranks best.
+     */
+    public ShardIterator activeInitializingShardsRankedIt(ResponseCollectorService collector, Map<String, Long> nodeSearchCounts) {
+        final List<ShardRouting> shuffled = shuffler.shuffle(activeShards);
+        final Map<String, Double> ranks = new HashMap<>(shuffled.size());
+        for (ShardRouting shard : shuffled) {
+            final String nodeId = shard.currentNodeId();
+            if (ranks.containsKey(nodeId) == false) {
+                ranks.put(nodeId, collector.rank(nodeId, nodeSearchCounts.getOrDefault(nodeId, 0L)));
+            }
+        }
+        ArrayList<ShardRouting> ordered = new ArrayList<>(activeShards.size() + allInitializingShards.size());
+        ordered.addAll(shuffled);
+        // the sort is stable so copies with equal ranks keep their random order
+        ordered.sort((a, b) -> {
+            Double rankA = ranks.get(a.currentNodeId());
+            Double rankB = ranks.get(b.currentNodeId());
+            if (rankA == null || rankB == null) {
+                return rankA == null ? (rankB == null ? 0 : -1) : 1;
+            }
+            return Double.compare(rankA, rankB);
+        });
+        if (ordered.isEmpty() == false) {
+            nodeSearchCounts.merge(ordered.get(0).currentNodeId(), 1L, Long::sum);
+        }
+        ordered.addAll(allInitializingShards);
+        return new PlainShardIterator(shardId, ordered);
+    }
+
     /**
      * Returns true if no primaries are active or initializing for this shard
      */
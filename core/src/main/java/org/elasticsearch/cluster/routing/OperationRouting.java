@@ -28,29 +28,67 @@ import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.math.MathUtils;
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.index.IndexNotFoundException;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.shard.ShardNotFoundException;
+import org.elasticsearch.node.ResponseCollectorService;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  *
  */
 public class OperationRouting extends AbstractComponent {
 
+    /**
+     * If enabled, search requests without a preference are routed to the shard copy on the node that is expected to
+     * respond the fastest according to the statistics collected by the {@link ResponseCollectorService}.
+     */
+    public static final Setting<Boolean> USE_ADAPTIVE_REPLICA_SELECTION_SETTING =
+        Setting.boolSetting("cluster.routing.use_adaptive_replica_selection", true, true, Setting.Scope.CLUSTER);
+
+    /**
+     * The maximum number of sets of concrete indices whose shards to search are cached for the current routing table,
+     * 0 disables the cache. The cache is dropped as a whole whenever the routing table changes.
+     */
+    public static final Setting<Integer> SEARCH_SHARDS_CACHE_SIZE_SETTING =
+        Setting.intSetting("cluster.routing.search_shards_cache.size", 1000, 0, false, Setting.Scope.CLUSTER);
 
     private final AwarenessAllocationDecider awarenessAllocationDecider;
+    private final int searchShardsCacheSize;
+
+    private volatile boolean useAdaptiveReplicaSelection;
+
+    private volatile SearchShardsCache searchShardsCache;
 
-    @Inject
     public OperationRouting(Settings settings, AwarenessAllocationDecider awarenessAllocationDecider) {
+        this(settings, awarenessAllocationDecider, new ClusterSettings(settings, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS));
+    }
+
+    @Inject
+    public OperationRouting(Settings settings, AwarenessAllocationDecider awarenessAllocationDecider, ClusterSettings clusterSettings) {
         super(settings);
         this.awarenessAllocationDecider = awarenessAllocationDecider;
+        this.useAdaptiveReplicaSelection = USE_ADAPTIVE_REPLICA_SELECTION_SETTING.get(settings);
+        this.searchShardsCacheSize = SEARCH_SHARDS_CACHE_SIZE_SETTING.get(settings);
+        clusterSettings.addSettingsUpdateConsumer(USE_ADAPTIVE_REPLICA_SELECTION_SETTING, this::setUseAdaptiveReplicaSelection);
+    }
+
+    private void setUseAdaptiveReplicaSelection(boolean useAdaptiveReplicaSelection) {
+        this.useAdaptiveReplicaSelection = useAdaptiveReplicaSelection;
     }
 
     public ShardIterator indexShards(ClusterState clusterState, String index, String type, String id, @Nullable String routing) {
@@ -71,25 +109,95 @@ public class OperationRouting extends AbstractComponent {
     }
 
     public int searchShardsCount(ClusterState clusterState, String[] concreteIndices, @Nullable Map<String, Set<String>> routing) {
-        final Set<IndexShardRoutingTable> shards = computeTargetedShards(clusterState, concreteIndices, routing);
+        final Collection<IndexShardRoutingTable> shards = computeTargetedShards(clusterState, concreteIndices, routing);
         return shards.size();
     }
 
     public GroupShardsIterator searchShards(ClusterState clusterState, String[] concreteIndices, @Nullable Map<String, Set<String>> routing, @Nullable String preference) {
-        final Set<IndexShardRoutingTable> shards = computeTargetedShards(clusterState, concreteIndices, routing);
-        final Set<ShardIterator> set = new HashSet<>(shards.size());
+        return searchShards(clusterState, concreteIndices, routing, preference, null);
+    }
+
+    /**
+     * Returns the shards to search, ranking the copies of each shard by the statistics of the given collector if adaptive
+     * replica selection is enabled and no preference is given.
+     */
+    public GroupShardsIterator searchShards(ClusterState clusterState, String[] concreteIndices, @Nullable Map<String, Set<String>> routing,
+                                            @Nullable String preference, @Nullable ResponseCollectorService collectorService) {
+        final Collection<IndexShardRoutingTable> shards = computeTargetedShards(clusterState, concreteIndices, routing);
+        // the targeted shards are distinct, and so are their iterators
+        final List<ShardIterator> iterators = new ArrayList<>(shards.size());
+        final ResponseCollectorService collector = useAdaptiveReplicaSelection ? collectorService : null;
+        // the number of shards of this search that are routed to each node, so far
+        final Map<String, Long> nodeSearchCounts = collector == null ? null : new HashMap<>();
         for (IndexShardRoutingTable shard : shards) {
-            ShardIterator iterator = preferenceActiveShardIterator(shard, clusterState.nodes().localNodeId(), clusterState.nodes(), preference);
+            ShardIterator iterator = preferenceActiveShardIterator(shard, clusterState.nodes().localNodeId(), clusterState.nodes(), preference,
+                    collector, nodeSearchCounts);
             if (iterator != null) {
-                set.add(iterator);
+                iterators.add(iterator);
             }
         }
-        return new GroupShardsIterator(new ArrayList<>(set));
+        return new GroupShardsIterator(iterators);
     }
 
     private static final Map<String, Set<String>> EMPTY_ROUTING = Collections.emptyMap();
 
-    private Set<IndexShardRoutingTable> computeTargetedShards(ClusterState clusterState, String[] concreteIndices, @Nullable Map<String, Set<String>> routing) {
+    private Collection<IndexShardRoutingTable> computeTargetedShards(ClusterState clusterState, String[] concreteIndices,
+                                                                     @Nullable Map<String, Set<String>> routing) {
+        if (routing != null && routing.isEmpty() == false) {
+            return doComputeTargetedShards(clusterState, concreteIndices, routing);
+        }
+        // without routing, the targeted shards only depend on the routing table, which only changes when shards move
+        final SearchShardsCache cache = searchShardsCache(clusterState.routingTable());
+        if (cache == null) {
+            return doComputeTargetedShards(clusterState, concreteIndices, routing);
+        }
+        final List<String> key = Arrays.asList(concreteIndices.clone());
+        Collection<IndexShardRoutingTable> shards = cache.shards.get(key);
+        if (shards == null) {
+            shards = Collections.unmodifiableList(new ArrayList<>(doComputeTargetedShards(clusterState, concreteIndices, routing)));
+            if (cache.shards.size() < searchShardsCacheSize) {
+                cache.shards.putIfAbsent(key, shards);
+            }
+        }
+        return shards;
+    }
+
+    /**
+     * Returns the cache of targeted shards for the given routing table, or <code>null</code> if they must not be cached.
+     */
+    private SearchShardsCache searchShardsCache(RoutingTable routingTable) {
+        if (searchShardsCacheSize == 0) {
+            return null;
+        }
+        SearchShardsCache cache = this.searchShardsCache;
+        if (cache != null && cache.routingTable == routingTable) {
+            return cache;
+        }
+        if (cache != null && routingTable.version() < cache.routingTable.version()) {
+            // computing against a stale routing table, keep the cache of the newer one
+            return null;
+        }
+        cache = new SearchShardsCache(routingTable);
+        this.searchShardsCache = cache;
+        return cache;
+    }
+
+    /**
+     * The shards targeted by searches on sets of concrete indices, for a given routing table instance. Entries are only
+     * added until the cache is full, the cache starts from scratch on the next routing table change anyway.
+     */
+    private static final class SearchShardsCache {
+
+        private final RoutingTable routingTable;
+        private final ConcurrentMap<List<String>, Collection<IndexShardRoutingTable>> shards = ConcurrentCollections.newConcurrentMap();
+
+        SearchShardsCache(RoutingTable routingTable) {
+            this.routingTable = routingTable;
+        }
+    }
+
+    private Set<IndexShardRoutingTable> doComputeTargetedShards(ClusterState clusterState, String[] concreteIndices,
+                                                                @Nullable Map<String, Set<String>> routing) {
         routing = routing == null ? EMPTY_ROUTING : routing; // just use an empty map
         final Set<IndexShardRoutingTable> set = new HashSet<>();
         // we use set here and not list since we might get duplicates
@@ -116,9 +224,18 @@ public class OperationRouting extends AbstractComponent {
     }
 
     private ShardIterator preferenceActiveShardIterator(IndexShardRoutingTable indexShard, String localNodeId, DiscoveryNodes nodes, @Nullable String preference) {
+        return preferenceActiveShardIterator(indexShard, localNodeId, nodes, preference, null, null);
+    }
+
+    private ShardIterator preferenceActiveShardIterator(IndexShardRoutingTable indexShard, String localNodeId, DiscoveryNodes nodes, @Nullable String preference,
+                                                        @Nullable ResponseCollectorService collector,
+                                                        @Nullable Map<String, Long> nodeSearchCounts) {
         if (preference == null || preference.isEmpty()) {
             String[] awarenessAttributes = awarenessAllocationDecider.awarenessAttributes();
             if (awarenessAttributes.length == 0) {
+                if (collector != null) {
+                    return indexShard.activeInitializingShardsRankedIt(collector, nodeSearchCounts);
+                }
                 return indexShard.activeInitializingShardsRandomIt();
             } else {
                 return indexShard.preferAttributesActiveInitializingShardsIt(awarenessAttributes, nodes);
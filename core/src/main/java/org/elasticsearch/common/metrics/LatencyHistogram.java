@@ -0,0 +1,65 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.common.metrics;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A metric that tracks the distribution of latencies. Recording is wait-free, the recorded values
+ * are only folded into the cumulative histogram when the stats are read. Latencies are tracked with
+ * microsecond resolution and two significant digits. Histograms resize automatically, so metrics that
+ * never see slow operations stay small.
+ */
+public class LatencyHistogram implements Metric {
+
+    static final int SIGNIFICANT_VALUE_DIGITS = 2;
+
+    private final Recorder recorder = new Recorder(SIGNIFICANT_VALUE_DIGITS);
+    private final Histogram total = new Histogram(SIGNIFICANT_VALUE_DIGITS); // guarded by this
+    private Histogram interval; // guarded by this, recycled across reads
+
+    /**
+     * Records a latency, given in nanoseconds.
+     */
+    public void inc(long tookInNanos) {
+        recorder.recordValue(Math.max(0L, TimeUnit.NANOSECONDS.toMicros(tookInNanos)));
+    }
+
+    /**
+     * Returns the latencies recorded so far. If <code>reset</code> is set, the histogram starts over
+     * from scratch after it has been read, so the next read only returns latencies recorded after this one.
+     */
+    public synchronized LatencyStats stats(boolean reset) {
+        interval = recorder.getIntervalHistogram(interval);
+        total.add(interval);
+        LatencyStats stats = new LatencyStats(total.copy());
+        if (reset) {
+            total.reset();
+        }
+        return stats;
+    }
+
+    public synchronized void clear() {
+        recorder.reset();
+        total.reset();
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.common.metrics;
+
+import org.HdrHistogram.Histogram;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DataFormatException;
+
+/**
+ * A point in time copy of a {@link LatencyHistogram}. Stats of several shards or nodes can be merged
+ * with {@link #add(LatencyStats)} without losing precision, percentiles are only computed when the stats
+ * are rendered. The percentiles to render can be configured with the <code>latency_percentiles</code>
+ * parameter, a comma separated list that defaults to <code>50,95,99</code>.
+ */
+public class LatencyStats implements Streamable, ToXContent {
+
+    public static final String PERCENTILES_PARAM = "latency_percentiles";
+
+    private static final double[] DEFAULT_PERCENTILES = new double[] { 50, 95, 99 };
+
+    private Histogram histogram;
+
+    public LatencyStats() {
+    }
+
+    LatencyStats(Histogram histogram) {
+        this.histogram = histogram;
+        this.histogram.setAutoResize(true);
+    }
+
+    /**
+     * Returns a copy of the given stats that can safely be {@link #add(LatencyStats) added} to.
+     */
+    public static LatencyStats copyOf(LatencyStats stats) {
+        return new LatencyStats(stats.histogram.copy());
+    }
+
+    public void add(LatencyStats stats) {
+        histogram.add(stats.histogram);
+    }
+
+    /**
+     * Drops all latencies recorded so far.
+     */
+    public void reset() {
+        histogram.reset();
+    }
+
+    /**
+     * The number of recorded latencies.
+     */
+    public long getCount() {
+        return histogram.getTotalCount();
+    }
+
+    /**
+     * The latency, in microseconds, below which the given percentage of the recorded latencies fall.
+     */
+    public long getPercentileInMicros(double percentile) {
+        if (histogram.getTotalCount() == 0) {
+            return 0;
+        }
+        return histogram.getValueAtPercentile(percentile);
+    }
+
+    /**
+     * The latency below which the given percentage of the recorded latencies fall.
+     */
+    public TimeValue getPercentile(double percentile) {
+        return new TimeValue(getPercentileInMicros(percentile), TimeUnit.MICROSECONDS);
+    }
+
+    /**
+     * The highest recorded latency, in microseconds.
+     */
+    public long getMaxInMicros() {
+        if (histogram.getTotalCount() == 0) {
+            return 0;
+        }
+        return histogram.getMaxValue();
+    }
+
+    public static LatencyStats readLatencyStats(StreamInput in) throws IOException {
+        LatencyStats stats = new LatencyStats();
+        stats.readFrom(in);
+        return stats;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        final int serializedLen = in.readVInt();
+        byte[] bytes = new byte[serializedLen];
+        in.readBytes(bytes, 0, serializedLen);
+        try {
+            histogram = Histogram.decodeFromCompressedByteBuffer(ByteBuffer.wrap(bytes), 2);
+        } catch (DataFormatException e) {
+            throw new IOException("Failed to decode latency histogram", e);
+        }
+        histogram.setAutoResize(true);
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+        final int serializedLen = histogram.encodeIntoCompressedByteBuffer(buffer);
+        out.writeVInt(serializedLen);
+        out.writeBytes(buffer.array(), 0, serializedLen);
+    }
+
+    /**
+     * Renders the configured percentiles and the maximum latency as fields of the current object.
+     */
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        for (double percentile : percentiles(params)) {
+            builder.field(percentileKey(percentile) + "_in_micros", getPercentileInMicros(percentile));
+        }
+        builder.field("max_in_micros", getMaxInMicros());
+        return builder;
+    }
+
+    /**
+     * Parses the percentiles to render from the given parameters.
+     */
+    public static double[] percentiles(Params params) {
+        String[] values = Strings.splitStringByCommaToArray(params.param(PERCENTILES_PARAM));
+        if (values.length == 0) {
+            return DEFAULT_PERCENTILES;
+        }
+        double[] percentiles = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            try {
+                percentiles[i] = Double.parseDouble(values[i].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("failed to parse [" + PERCENTILES_PARAM + "] value [" + values[i] + "]", e);
+            }
+            if (percentiles[i] < 0 || percentiles[i] > 100) {
+                throw new IllegalArgumentException("[" + PERCENTILES_PARAM + "] must be between 0 and 100 but was [" + values[i] + "]");
+            }
+        }
+        return percentiles;
+    }
+
+    /**
+     * Returns the key a percentile is rendered under, e.g. <code>p99</code> or <code>p99.9</code>.
+     */
+    public static String percentileKey(double percentile) {
+        if (percentile == Math.rint(percentile)) {
+            return "p" + (long) percentile;
+        }
+        return "p" + percentile;
+    }
+}
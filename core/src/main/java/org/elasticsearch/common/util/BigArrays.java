@@ -425,6 +425,23 @@ public class BigArrays {
         return this.circuitBreakingInstance;
     }
 
+    /**
+     * Return an instance of this BigArrays class that shares its recycler but
+     * neither accounts for nor checks the circuit breaker, for callers that
+     * reserve the memory they need on a breaker of their own
+     */
+    public BigArrays withoutCircuitBreaker() {
+        return new BigArrays(recycler, null, false);
+    }
+
+    /**
+     * The circuit breaker service that allocations are accounted against, if any
+     */
+    @Nullable
+    public CircuitBreakerService breakerService() {
+        return this.breakerService;
+    }
+
     private <T extends AbstractBigArray> T resizeInPlace(T array, long newSize) {
         final long oldMemSize = array.ramBytesUsed();
         array.resize(newSize);
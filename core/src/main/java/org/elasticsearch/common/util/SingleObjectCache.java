@@ -64,6 +64,14 @@ public abstract class SingleObjectCache<T>{
         return cached;
     }
 
+    /**
+     * Returns the currently cached object without triggering a refresh.
+     */
+    public T getNoRefresh() {
+        assert cached != null;
+        return cached;
+    }
+
     /**
      * Returns a new instance to cache
      */
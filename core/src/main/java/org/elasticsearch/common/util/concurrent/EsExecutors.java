@@ -20,6 +20,7 @@
 package org.elasticsearch.common.util.concurrent;
 
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
 
 import java.util.Arrays;
 import java.util.concurrent.BlockingQueue;
@@ -86,6 +87,22 @@ public class EsExecutors {
         return new EsThreadPoolExecutor(name, size, size, 0, TimeUnit.MILLISECONDS, queue, threadFactory, new EsAbortPolicy());
     }
 
+    /**
+     * Creates a fixed size executor whose queue capacity is adjusted between <code>minQueueSize</code> and
+     * <code>maxQueueSize</code> so that queued tasks wait for roughly <code>targetedResponseTime</code>.
+     */
+    public static QueueResizingEsThreadPoolExecutor newAutoQueueFixed(String name, int size, int initialQueueCapacity, int minQueueSize,
+                                                                      int maxQueueSize, int frameSize, TimeValue targetedResponseTime,
+                                                                      ThreadFactory threadFactory) {
+        if (initialQueueCapacity < 0) {
+            throw new IllegalArgumentException("initial queue capacity for [" + name + "] executor must be bounded, got [" + initialQueueCapacity + "]");
+        }
+        ResizableBlockingQueue<Runnable> queue = new ResizableBlockingQueue<>(ConcurrentCollections.<Runnable>newBlockingQueue(),
+            Math.max(minQueueSize, Math.min(maxQueueSize, initialQueueCapacity)));
+        return new QueueResizingEsThreadPoolExecutor(name, size, queue, minQueueSize, maxQueueSize, targetedResponseTime, frameSize,
+            threadFactory);
+    }
+
     public static String threadName(Settings settings, String ... names) {
         String namePrefix =
                 Arrays
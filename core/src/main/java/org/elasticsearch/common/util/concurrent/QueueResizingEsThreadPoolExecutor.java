@@ -0,0 +1,195 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.common.util.concurrent;
+
+import org.elasticsearch.common.logging.ESLogger;
+import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.common.metrics.ExponentiallyWeightedMovingAverage;
+import org.elasticsearch.common.unit.TimeValue;
+
+import java.util.Locale;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A fixed size thread pool executor that adjusts the capacity of its queue so that queued tasks wait roughly the
+ * targeted response time before they get executed. Every <code>tasksPerFrame</code> executed tasks, the executor
+ * derives the rate at which its threads can process tasks from the moving average of the task execution time, and
+ * uses Little's law (<code>L = λW</code>) to compute the number of tasks that can wait in the queue for the targeted
+ * response time. The queue capacity is then moved towards that number by a bounded step, and is always kept between
+ * the configured minimum and maximum queue sizes.
+ */
+public final class QueueResizingEsThreadPoolExecutor extends EsThreadPoolExecutor {
+
+    /** The weight of a new sample in the moving average of the task execution time */
+    public static final double EWMA_ALPHA = 0.3;
+
+    private static final ESLogger logger = Loggers.getLogger(QueueResizingEsThreadPoolExecutor.class);
+
+    private final String name;
+    private final ResizableBlockingQueue<Runnable> workQueue;
+    private final int tasksPerFrame;
+    private final int minQueueSize;
+    private final int maxQueueSize;
+    private final int adjustmentAmount;
+    private final TimeValue targetedResponseTime;
+    private final ExponentiallyWeightedMovingAverage executionEWMA = new ExponentiallyWeightedMovingAverage(EWMA_ALPHA, 0);
+    private final ThreadLocal<Long> taskStartNanos = new ThreadLocal<>();
+    private final AtomicInteger taskCount = new AtomicInteger();
+    private final AtomicLong queueAdjustments = new AtomicLong();
+    private final AtomicLong completedFrames = new AtomicLong();
+
+    private volatile long frameStartNanos;
+    private volatile double taskRate = -1;
+
+    QueueResizingEsThreadPoolExecutor(String name, int size, ResizableBlockingQueue<Runnable> workQueue, int minQueueSize,
+                                      int maxQueueSize, TimeValue targetedResponseTime, int tasksPerFrame, ThreadFactory threadFactory) {
+        super(name, size, size, 0, TimeUnit.MILLISECONDS, workQueue, threadFactory, new EsAbortPolicy());
+        if (minQueueSize > maxQueueSize) {
+            throw new IllegalArgumentException("min queue size [" + minQueueSize + "] of thread pool [" + name
+                + "] must be less than or equal to max queue size [" + maxQueueSize + "]");
+        }
+        if (tasksPerFrame <= 0) {
+            throw new IllegalArgumentException("frame size of thread pool [" + name + "] must be greater than 0, got [" + tasksPerFrame + "]");
+        }
+        this.name = name;
+        this.workQueue = workQueue;
+        this.minQueueSize = minQueueSize;
+        this.maxQueueSize = maxQueueSize;
+        this.targetedResponseTime = targetedResponseTime;
+        this.tasksPerFrame = tasksPerFrame;
+        // move by a twentieth of the allowed range at a time so that a single noisy frame can't swing the capacity
+        this.adjustmentAmount = Math.max(1, (maxQueueSize - minQueueSize) / 20);
+        this.frameStartNanos = System.nanoTime();
+    }
+
+    @Override
+    protected void beforeExecute(Thread t, Runnable r) {
+        super.beforeExecute(t, r);
+        taskStartNanos.set(System.nanoTime());
+    }
+
+    @Override
+    protected void afterExecute(Runnable r, Throwable t) {
+        super.afterExecute(r, t);
+        final Long startNanos = taskStartNanos.get();
+        if (startNanos == null) {
+            return;
+        }
+        taskStartNanos.remove();
+        final long now = System.nanoTime();
+        executionEWMA.addValue(now - startNanos);
+
+        final int count = taskCount.incrementAndGet();
+        // only the thread that takes a frame's worth of tasks off the counter ends the frame, tasks that complete
+        // concurrently stay counted towards the next frame
+        if (count >= tasksPerFrame && taskCount.compareAndSet(count, count - tasksPerFrame)) {
+            final long frameNanos = Math.max(1, now - frameStartNanos);
+            frameStartNanos = now;
+            // the rate at which the threads of the pool can process tasks, in tasks per nanosecond
+            final double lambda = calculateLambda(getMaximumPoolSize(), executionEWMA.getAverage());
+            final int desiredQueueSize = calculateL(lambda, targetedResponseTime.nanos());
+            final int oldCapacity = workQueue.capacity();
+            final int newCapacity = workQueue.adjustCapacity(desiredQueueSize, adjustmentAmount, minQueueSize, maxQueueSize);
+            taskRate = (double) tasksPerFrame / frameNanos * TimeUnit.SECONDS.toNanos(1);
+            if (oldCapacity != newCapacity) {
+                queueAdjustments.incrementAndGet();
+                if (logger.isDebugEnabled()) {
+                    logger.debug("thread pool [{}] processed [{}] tasks/s with an average task time of [{}], adjusted queue capacity from [{}] to [{}] (optimal [{}])",
+                        name, String.format(Locale.ROOT, "%.2f", taskRate), TimeValue.timeValueNanos((long) executionEWMA.getAverage()),
+                        oldCapacity, newCapacity, desiredQueueSize);
+                }
+            }
+            completedFrames.incrementAndGet();
+        }
+    }
+
+    /**
+     * Returns the rate at which the given number of threads process tasks that take <code>averageTaskNanos</code> to
+     * execute, in tasks per nanosecond.
+     */
+    static double calculateLambda(int threads, double averageTaskNanos) {
+        assert threads > 0 : "cannot calculate for no threads";
+        // tasks that finish within a nanosecond are accounted as taking one
+        return threads / Math.max(1d, averageTaskNanos);
+    }
+
+    /**
+     * Returns the number of tasks that can be queued so that they wait <code>targetedResponseTimeNanos</code> at the
+     * given processing rate, following Little's law.
+     */
+    static int calculateL(final double lambda, final long targetedResponseTimeNanos) {
+        assert targetedResponseTimeNanos > 0 : "cannot calculate for instantaneous requests";
+        return (int) Math.min(Integer.MAX_VALUE, (long) (lambda * targetedResponseTimeNanos));
+    }
+
+    /**
+     * Returns the current capacity of the queue.
+     */
+    public int getCurrentCapacity() {
+        return workQueue.capacity();
+    }
+
+    public int getMinQueueSize() {
+        return minQueueSize;
+    }
+
+    public int getMaxQueueSize() {
+        return maxQueueSize;
+    }
+
+    public TimeValue getTargetedResponseTime() {
+        return targetedResponseTime;
+    }
+
+    public int getTasksPerFrame() {
+        return tasksPerFrame;
+    }
+
+    /**
+     * Returns the moving average of the time it took to execute a task, in nanoseconds.
+     */
+    public long getTaskExecutionEWMA() {
+        return (long) executionEWMA.getAverage();
+    }
+
+    /**
+     * Returns the number of tasks per second processed during the last completed frame, or <code>-1</code> if no
+     * frame has completed yet.
+     */
+    public double getTaskRate() {
+        return taskRate;
+    }
+
+    /**
+     * Returns how many times the capacity of the queue has been changed.
+     */
+    public long getQueueAdjustments() {
+        return queueAdjustments.get();
+    }
+
+    /**
+     * Returns how many frames of <code>tasksPerFrame</code> executed tasks have been completed.
+     */
+    long getCompletedFrames() {
+        return completedFrames.get();
+    }
+}
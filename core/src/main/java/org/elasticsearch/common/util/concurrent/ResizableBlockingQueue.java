@@ -0,0 +1,65 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.common.util.concurrent;
+
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A {@link SizeBlockingQueue} whose capacity can be adjusted while it is in use. Lowering the capacity never drops
+ * queued elements, it only causes new elements to be rejected until enough elements have been taken.
+ */
+final class ResizableBlockingQueue<E> extends SizeBlockingQueue<E> {
+
+    private volatile int capacity;
+
+    ResizableBlockingQueue(BlockingQueue<E> queue, int initialCapacity) {
+        super(queue, initialCapacity);
+        this.capacity = initialCapacity;
+    }
+
+    @Override
+    public int capacity() {
+        return this.capacity;
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return Math.max(0, super.remainingCapacity());
+    }
+
+    /**
+     * Moves the capacity of the queue by at most <code>adjustmentAmount</code> towards <code>optimalCapacity</code>,
+     * keeping it between <code>minCapacity</code> and <code>maxCapacity</code>.
+     *
+     * @return the new capacity of the queue
+     */
+    synchronized int adjustCapacity(int optimalCapacity, int adjustmentAmount, int minCapacity, int maxCapacity) {
+        assert adjustmentAmount > 0 : "adjustment amount should be a positive value";
+        assert minCapacity <= maxCapacity : "min capacity [" + minCapacity + "] must be less than or equal to max capacity [" + maxCapacity + "]";
+        final int oldCapacity = capacity;
+        final int newCapacity;
+        if (optimalCapacity > oldCapacity) {
+            newCapacity = Math.min(oldCapacity + adjustmentAmount, optimalCapacity);
+        } else {
+            newCapacity = Math.max(oldCapacity - adjustmentAmount, optimalCapacity);
+        }
+        capacity = Math.max(minCapacity, Math.min(maxCapacity, newCapacity));
+        return capacity;
+    }
+}
@@ -25,6 +25,7 @@ import org.elasticsearch.common.SuppressForbidden;
 import org.elasticsearch.common.io.PathUtils;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.FileStore;
 import java.nio.file.FileSystemException;
 import java.nio.file.Files;
@@ -32,6 +33,7 @@ import java.nio.file.Path;
 import java.nio.file.attribute.FileAttributeView;
 import java.nio.file.attribute.FileStoreAttributeView;
 import java.util.Arrays;
+import java.util.List;
 
 /** 
  * Implementation of FileStore that supports
@@ -44,6 +46,9 @@ class ESFileStore extends FileStore {
     final FileStore in;
     /** Cached result of Lucene's {@code IOUtils.spins} on path. */
     final Boolean spins;
+    /** Major and minor number of the device backing this filestore, -1 if unknown. */
+    final int majorDeviceNumber;
+    final int minorDeviceNumber;
     
     @SuppressForbidden(reason = "tries to determine if disk is spinning")
     // TODO: move PathUtils to be package-private here instead of 
@@ -62,6 +67,30 @@ class ESFileStore extends FileStore {
             spins = null;
         }
         this.spins = spins;
+        int major = -1;
+        int minor = -1;
+        // device numbers are only used to look up I/O statistics in /proc/diskstats:
+        if (Constants.LINUX) {
+            try {
+                final List<String> lines = Files.readAllLines(PathUtils.get("/proc/self/mountinfo"), StandardCharsets.UTF_8);
+                final String mount = getMountPointLinux(in);
+                for (final String line : lines) {
+                    // e.g. 36 35 98:0 /mnt1 /mnt2 rw,noatime master:1 - ext3 /dev/root rw,errors=continue
+                    final String[] fields = line.trim().split("\\s+");
+                    if (fields.length > 4 && fields[4].equals(mount)) {
+                        final String[] deviceNumbers = fields[2].split(":");
+                        major = Integer.parseInt(deviceNumbers[0]);
+                        minor = Integer.parseInt(deviceNumbers[1]);
+                        // later mounts shadow earlier ones on the same mount point, so keep looking
+                    }
+                }
+            } catch (Exception e) {
+                major = -1;
+                minor = -1;
+            }
+        }
+        this.majorDeviceNumber = major;
+        this.minorDeviceNumber = minor;
     }
     
     // these are hacks that are not guaranteed
@@ -231,6 +260,10 @@ class ESFileStore extends FileStore {
     public Object getAttribute(String attribute) throws IOException {
         if ("lucene:spins".equals(attribute)) {
             return spins;
+        } else if ("lucene:major_device_number".equals(attribute)) {
+            return majorDeviceNumber;
+        } else if ("lucene:minor_device_number".equals(attribute)) {
+            return minorDeviceNumber;
         } else {
             return in.getAttribute(attribute);
         }
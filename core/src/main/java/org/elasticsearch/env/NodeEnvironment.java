@@ -84,6 +84,9 @@ public class NodeEnvironment extends AbstractComponent implements Closeable {
         /** Cached result of Lucene's {@code IOUtils.spins} on path.  This is a trilean value: null means we could not determine it (we are
          *  not running on Linux, or we hit an exception trying), True means the device possibly spins and False means it does not. */
         public final Boolean spins;
+        /** Major and minor number of the device backing this path, used to look up its I/O statistics. -1 if they are unknown. */
+        public final int majorDeviceNumber;
+        public final int minorDeviceNumber;
 
         public NodePath(Path path, Environment environment) throws IOException {
             this.path = path;
@@ -91,8 +94,12 @@ public class NodeEnvironment extends AbstractComponent implements Closeable {
             this.fileStore = Environment.getFileStore(path);
             if (fileStore.supportsFileAttributeView("lucene")) {
                 this.spins = (Boolean) fileStore.getAttribute("lucene:spins");
+                this.majorDeviceNumber = (int) fileStore.getAttribute("lucene:major_device_number");
+                this.minorDeviceNumber = (int) fileStore.getAttribute("lucene:minor_device_number");
             } else {
                 this.spins = null;
+                this.majorDeviceNumber = -1;
+                this.minorDeviceNumber = -1;
             }
         }
 
@@ -63,6 +63,15 @@ public abstract class AsyncShardFetch<T extends BaseNodeResponse> implements Rel
         void list(ShardId shardId, IndexMetaData indexMetaData, String[] nodesIds, ActionListener<NodesResponse> listener);
     }
 
+    /**
+     * An action that lists the relevant shard data of many shards at once, sending a single request to each node
+     * for all of them. The listener is notified with the response of each of the given shards.
+     */
+    public interface BatchedList<NodesResponse extends BaseNodesResponse<NodeResponse>, NodeResponse extends BaseNodeResponse>
+            extends List<NodesResponse, NodeResponse> {
+        void list(Map<ShardId, IndexMetaData> shards, String[] nodesIds, ActionListener<Map<ShardId, NodesResponse>> listener);
+    }
+
     protected final ESLogger logger;
     protected final String type;
     private final ShardId shardId;
@@ -52,14 +52,21 @@ public class GatewayAllocator extends AbstractComponent {
     private final PrimaryShardAllocator primaryShardAllocator;
     private final ReplicaShardAllocator replicaShardAllocator;
 
+    private final ShardFetchBatcher<TransportNodesListGatewayStartedShards.NodesGatewayStartedShards, TransportNodesListGatewayStartedShards.NodeGatewayStartedShards> startedFetchBatcher;
+    private final ShardFetchBatcher<TransportNodesListShardStoreMetaData.NodesStoreFilesMetaData, TransportNodesListShardStoreMetaData.NodeStoreFilesMetaData> storeFetchBatcher;
+
     private final ConcurrentMap<ShardId, AsyncShardFetch<TransportNodesListGatewayStartedShards.NodeGatewayStartedShards>> asyncFetchStarted = ConcurrentCollections.newConcurrentMap();
     private final ConcurrentMap<ShardId, AsyncShardFetch<TransportNodesListShardStoreMetaData.NodeStoreFilesMetaData>> asyncFetchStore = ConcurrentCollections.newConcurrentMap();
 
     @Inject
     public GatewayAllocator(Settings settings, final TransportNodesListGatewayStartedShards startedAction, final TransportNodesListShardStoreMetaData storeAction) {
         super(settings);
-        this.primaryShardAllocator = new InternalPrimaryShardAllocator(settings, startedAction);
-        this.replicaShardAllocator = new InternalReplicaShardAllocator(settings, storeAction);
+        // the maximum number of shards to fetch with a single request to each node
+        final int fetchBatchSize = settings.getAsInt("gateway.allocator.fetch_batch_size", 500);
+        this.startedFetchBatcher = new ShardFetchBatcher<>(logger, "shard_started", startedAction, fetchBatchSize);
+        this.storeFetchBatcher = new ShardFetchBatcher<>(logger, "shard_store", storeAction, fetchBatchSize);
+        this.primaryShardAllocator = new InternalPrimaryShardAllocator(settings, startedFetchBatcher);
+        this.replicaShardAllocator = new InternalReplicaShardAllocator(settings, storeFetchBatcher);
     }
 
     public void setReallocation(final ClusterService clusterService, final RoutingService routingService) {
@@ -117,9 +124,15 @@ public class GatewayAllocator extends AbstractComponent {
         RoutingNodes.UnassignedShards unassigned = allocation.routingNodes().unassigned();
         unassigned.sort(PriorityComparator.getAllocationComparator(allocation)); // sort for priority ordering
 
-        changed |= primaryShardAllocator.allocateUnassigned(allocation);
-        changed |= replicaShardAllocator.processExistingRecoveries(allocation);
-        changed |= replicaShardAllocator.allocateUnassigned(allocation);
+        try {
+            changed |= primaryShardAllocator.allocateUnassigned(allocation);
+            changed |= replicaShardAllocator.processExistingRecoveries(allocation);
+            changed |= replicaShardAllocator.allocateUnassigned(allocation);
+        } finally {
+            // the allocators only collected the shards they need data for, send them with one request per node
+            startedFetchBatcher.flush();
+            storeFetchBatcher.flush();
+        }
         return changed;
     }
 
@@ -138,9 +151,9 @@ public class GatewayAllocator extends AbstractComponent {
 
     class InternalPrimaryShardAllocator extends PrimaryShardAllocator {
 
-        private final TransportNodesListGatewayStartedShards startedAction;
+        private final AsyncShardFetch.List<TransportNodesListGatewayStartedShards.NodesGatewayStartedShards, TransportNodesListGatewayStartedShards.NodeGatewayStartedShards> startedAction;
 
-        public InternalPrimaryShardAllocator(Settings settings, TransportNodesListGatewayStartedShards startedAction) {
+        public InternalPrimaryShardAllocator(Settings settings, AsyncShardFetch.List<TransportNodesListGatewayStartedShards.NodesGatewayStartedShards, TransportNodesListGatewayStartedShards.NodeGatewayStartedShards> startedAction) {
             super(settings);
             this.startedAction = startedAction;
         }
@@ -164,9 +177,9 @@ public class GatewayAllocator extends AbstractComponent {
 
     class InternalReplicaShardAllocator extends ReplicaShardAllocator {
 
-        private final TransportNodesListShardStoreMetaData storeAction;
+        private final AsyncShardFetch.List<TransportNodesListShardStoreMetaData.NodesStoreFilesMetaData, TransportNodesListShardStoreMetaData.NodeStoreFilesMetaData> storeAction;
 
-        public InternalReplicaShardAllocator(Settings settings, TransportNodesListShardStoreMetaData storeAction) {
+        public InternalReplicaShardAllocator(Settings settings, AsyncShardFetch.List<TransportNodesListShardStoreMetaData.NodesStoreFilesMetaData, TransportNodesListShardStoreMetaData.NodeStoreFilesMetaData> storeAction) {
             super(settings);
             this.storeAction = storeAction;
         }
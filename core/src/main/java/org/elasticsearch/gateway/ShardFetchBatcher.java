@@ -0,0 +1,163 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.gateway;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.support.nodes.BaseNodeResponse;
+import org.elasticsearch.action.support.nodes.BaseNodesResponse;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.common.logging.ESLogger;
+import org.elasticsearch.index.shard.ShardId;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Collects the shard level fetches that {@link AsyncShardFetch} issues during an allocation round and sends them
+ * as node level batches on {@link #flush()}, so that each node gets a single request for all the shards it has to
+ * be asked about instead of one request per shard. Shards are batched together when they have to be fetched from
+ * the same set of nodes, which is the common case after a full cluster restart.
+ */
+public class ShardFetchBatcher<NodesResponse extends BaseNodesResponse<NodeResponse>, NodeResponse extends BaseNodeResponse>
+        implements AsyncShardFetch.List<NodesResponse, NodeResponse> {
+
+    private final ESLogger logger;
+    private final String type;
+    private final AsyncShardFetch.BatchedList<NodesResponse, NodeResponse> action;
+    private final int maxBatchSize;
+    private final Map<Set<String>, Batch> pending = new HashMap<>();
+
+    public ShardFetchBatcher(ESLogger logger, String type, AsyncShardFetch.BatchedList<NodesResponse, NodeResponse> action, int maxBatchSize) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("batch size must be at least 1 but was [" + maxBatchSize + "]");
+        }
+        this.logger = logger;
+        this.type = type;
+        this.action = action;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    @Override
+    public synchronized void list(ShardId shardId, IndexMetaData indexMetaData, String[] nodesIds, ActionListener<NodesResponse> listener) {
+        final Set<String> nodes = new HashSet<>(Arrays.asList(nodesIds));
+        Batch batch = pending.get(nodes);
+        if (batch == null) {
+            batch = new Batch(nodesIds);
+            pending.put(nodes, batch);
+        }
+        batch.add(shardId, indexMetaData, listener);
+        if (batch.size() >= maxBatchSize) {
+            pending.remove(nodes);
+            send(batch);
+        }
+    }
+
+    /**
+     * Sends all the fetches that have been collected so far.
+     */
+    public void flush() {
+        final List<Batch> batches;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batches = new ArrayList<>(pending.values());
+            pending.clear();
+        }
+        for (Batch batch : batches) {
+            send(batch);
+        }
+    }
+
+    /**
+     * Returns the number of shards whose fetch has been collected but not sent yet.
+     */
+    public synchronized int getNumberOfPendingFetches() {
+        int count = 0;
+        for (Batch batch : pending.values()) {
+            count += batch.size();
+        }
+        return count;
+    }
+
+    private void send(final Batch batch) {
+        logger.trace("fetching [{}] for [{}] shards from {}", type, batch.size(), batch.nodesIds);
+        try {
+            action.list(batch.shards, batch.nodesIds, new ActionListener<Map<ShardId, NodesResponse>>() {
+                @Override
+                public void onResponse(Map<ShardId, NodesResponse> responses) {
+                    for (Map.Entry<ShardId, List<ActionListener<NodesResponse>>> entry : batch.listeners.entrySet()) {
+                        final NodesResponse response = responses.get(entry.getKey());
+                        for (ActionListener<NodesResponse> listener : entry.getValue()) {
+                            if (response == null) {
+                                listener.onFailure(new IllegalStateException("no [" + type + "] response for shard " + entry.getKey()));
+                            } else {
+                                listener.onResponse(response);
+                            }
+                        }
+                    }
+                }
+
+                @Override
+                public void onFailure(Throwable e) {
+                    batch.onFailure(e);
+                }
+            });
+        } catch (Throwable e) {
+            batch.onFailure(e);
+        }
+    }
+
+    private class Batch {
+        private final String[] nodesIds;
+        private final Map<ShardId, IndexMetaData> shards = new HashMap<>();
+        private final Map<ShardId, List<ActionListener<NodesResponse>>> listeners = new HashMap<>();
+
+        Batch(String[] nodesIds) {
+            this.nodesIds = nodesIds;
+        }
+
+        void add(ShardId shardId, IndexMetaData indexMetaData, ActionListener<NodesResponse> listener) {
+            shards.put(shardId, indexMetaData);
+            List<ActionListener<NodesResponse>> shardListeners = listeners.get(shardId);
+            if (shardListeners == null) {
+                shardListeners = new ArrayList<>(1);
+                listeners.put(shardId, shardListeners);
+            }
+            shardListeners.add(listener);
+        }
+
+        int size() {
+            return shards.size();
+        }
+
+        void onFailure(Throwable e) {
+            for (List<ActionListener<NodesResponse>> shardListeners : listeners.values()) {
+                for (ActionListener<NodesResponse> listener : shardListeners) {
+                    listener.onFailure(e);
+                }
+            }
+        }
+    }
+}
@@ -49,17 +49,22 @@ import org.elasticsearch.transport.TransportService;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * This transport action is used to fetch the shard version from each node during primary allocation in {@link GatewayAllocator}.
  * We use this to find out which node holds the latest shard version and which of them used to be a primary in order to allocate
- * shards after node or cluster restarts.
+ * shards after node or cluster restarts. A single request lists the state of many shards, so that each node is only asked once
+ * for all the shards the master is looking for.
  */
-public class TransportNodesListGatewayStartedShards extends TransportNodesAction<TransportNodesListGatewayStartedShards.Request, TransportNodesListGatewayStartedShards.NodesGatewayStartedShards, TransportNodesListGatewayStartedShards.NodeRequest, TransportNodesListGatewayStartedShards.NodeGatewayStartedShards>
-        implements AsyncShardFetch.List<TransportNodesListGatewayStartedShards.NodesGatewayStartedShards, TransportNodesListGatewayStartedShards.NodeGatewayStartedShards> {
+public class TransportNodesListGatewayStartedShards extends TransportNodesAction<TransportNodesListGatewayStartedShards.Request, TransportNodesListGatewayStartedShards.NodesGatewayStartedShardsBatch, TransportNodesListGatewayStartedShards.NodeRequest, TransportNodesListGatewayStartedShards.NodeGatewayStartedShardsBatch>
+        implements AsyncShardFetch.BatchedList<TransportNodesListGatewayStartedShards.NodesGatewayStartedShards, TransportNodesListGatewayStartedShards.NodeGatewayStartedShards> {
 
     public static final String ACTION_NAME = "internal:gateway/local/started_shards";
     private final NodeEnvironment nodeEnv;
@@ -74,8 +79,37 @@ public class TransportNodesListGatewayStartedShards extends TransportNodesAction
     }
 
     @Override
-    public void list(ShardId shardId, IndexMetaData indexMetaData, String[] nodesIds, ActionListener<NodesGatewayStartedShards> listener) {
-        execute(new Request(shardId, indexMetaData.getIndexUUID(), nodesIds), listener);
+    public void list(final ShardId shardId, IndexMetaData indexMetaData, String[] nodesIds, final ActionListener<NodesGatewayStartedShards> listener) {
+        list(Collections.singletonMap(shardId, indexMetaData), nodesIds, new ActionListener<Map<ShardId, NodesGatewayStartedShards>>() {
+            @Override
+            public void onResponse(Map<ShardId, NodesGatewayStartedShards> responses) {
+                listener.onResponse(responses.get(shardId));
+            }
+
+            @Override
+            public void onFailure(Throwable e) {
+                listener.onFailure(e);
+            }
+        });
+    }
+
+    @Override
+    public void list(Map<ShardId, IndexMetaData> shards, String[] nodesIds, final ActionListener<Map<ShardId, NodesGatewayStartedShards>> listener) {
+        final Map<ShardId, String> indexUUIDs = new HashMap<>(shards.size());
+        for (Map.Entry<ShardId, IndexMetaData> entry : shards.entrySet()) {
+            indexUUIDs.put(entry.getKey(), entry.getValue().getIndexUUID());
+        }
+        execute(new Request(indexUUIDs, nodesIds), new ActionListener<NodesGatewayStartedShardsBatch>() {
+            @Override
+            public void onResponse(NodesGatewayStartedShardsBatch response) {
+                listener.onResponse(response.byShard(indexUUIDs.keySet()));
+            }
+
+            @Override
+            public void onFailure(Throwable e) {
+                listener.onFailure(e);
+            }
+        });
     }
 
     @Override
@@ -96,68 +130,75 @@ public class TransportNodesListGatewayStartedShards extends TransportNodesAction
     }
 
     @Override
-    protected NodeGatewayStartedShards newNodeResponse() {
-        return new NodeGatewayStartedShards();
+    protected NodeGatewayStartedShardsBatch newNodeResponse() {
+        return new NodeGatewayStartedShardsBatch();
     }
 
     @Override
-    protected NodesGatewayStartedShards newResponse(Request request, AtomicReferenceArray responses) {
-        final List<NodeGatewayStartedShards> nodesList = new ArrayList<>();
+    protected NodesGatewayStartedShardsBatch newResponse(Request request, AtomicReferenceArray responses) {
+        final List<NodeGatewayStartedShardsBatch> nodesList = new ArrayList<>();
         final List<FailedNodeException> failures = new ArrayList<>();
         for (int i = 0; i < responses.length(); i++) {
             Object resp = responses.get(i);
-            if (resp instanceof NodeGatewayStartedShards) { // will also filter out null response for unallocated ones
-                nodesList.add((NodeGatewayStartedShards) resp);
+            if (resp instanceof NodeGatewayStartedShardsBatch) { // will also filter out null response for unallocated ones
+                nodesList.add((NodeGatewayStartedShardsBatch) resp);
             } else if (resp instanceof FailedNodeException) {
                 failures.add((FailedNodeException) resp);
             } else {
-                logger.warn("unknown response type [{}], expected NodeLocalGatewayStartedShards or FailedNodeException", resp);
+                logger.warn("unknown response type [{}], expected NodeGatewayStartedShardsBatch or FailedNodeException", resp);
             }
         }
-        return new NodesGatewayStartedShards(clusterName, nodesList.toArray(new NodeGatewayStartedShards[nodesList.size()]),
+        return new NodesGatewayStartedShardsBatch(clusterName, nodesList.toArray(new NodeGatewayStartedShardsBatch[nodesList.size()]),
                 failures.toArray(new FailedNodeException[failures.size()]));
     }
 
     @Override
-    protected NodeGatewayStartedShards nodeOperation(NodeRequest request) {
-        try {
-            final ShardId shardId = request.getShardId();
-            final String indexUUID = request.getIndexUUID();
-            logger.trace("{} loading local shard state info", shardId);
-            ShardStateMetaData shardStateMetaData = ShardStateMetaData.FORMAT.loadLatestState(logger, nodeEnv.availableShardPaths(request.shardId));
-            if (shardStateMetaData != null) {
-                final IndexMetaData metaData = clusterService.state().metaData().index(shardId.index().name()); // it's a mystery why this is sometimes null
-                if (metaData != null) {
-                    ShardPath shardPath = null;
-                    try {
-                        IndexSettings indexSettings = new IndexSettings(metaData, settings, Collections.emptyList());
-                        shardPath = ShardPath.loadShardPath(logger, nodeEnv, shardId, indexSettings);
-                        if (shardPath == null) {
-                            throw new IllegalStateException(shardId + " no shard path found");
-                        }
-                        Store.tryOpenIndex(shardPath.resolveIndex());
-                    } catch (Exception exception) {
-                        logger.trace("{} can't open index for shard [{}] in path [{}]", exception, shardId, shardStateMetaData, (shardPath != null) ? shardPath.resolveIndex() : "");
-                        String allocationId = shardStateMetaData.allocationId != null ? shardStateMetaData.allocationId.getId() : null;
-                        return new NodeGatewayStartedShards(clusterService.localNode(), shardStateMetaData.version, allocationId, exception);
+    protected NodeGatewayStartedShardsBatch nodeOperation(NodeRequest request) {
+        final Map<ShardId, NodeGatewayStartedShards> shardStates = new HashMap<>(request.shards.size());
+        final Map<ShardId, Throwable> failures = new HashMap<>();
+        for (Map.Entry<ShardId, String> entry : request.shards.entrySet()) {
+            try {
+                shardStates.put(entry.getKey(), listShardState(entry.getKey(), entry.getValue()));
+            } catch (Exception e) {
+                failures.put(entry.getKey(), new ElasticsearchException("failed to load started shards", e));
+            }
+        }
+        return new NodeGatewayStartedShardsBatch(clusterService.localNode(), shardStates, failures);
+    }
+
+    private NodeGatewayStartedShards listShardState(ShardId shardId, String indexUUID) throws IOException {
+        logger.trace("{} loading local shard state info", shardId);
+        ShardStateMetaData shardStateMetaData = ShardStateMetaData.FORMAT.loadLatestState(logger, nodeEnv.availableShardPaths(shardId));
+        if (shardStateMetaData != null) {
+            final IndexMetaData metaData = clusterService.state().metaData().index(shardId.index().name()); // it's a mystery why this is sometimes null
+            if (metaData != null) {
+                ShardPath shardPath = null;
+                try {
+                    IndexSettings indexSettings = new IndexSettings(metaData, settings, Collections.emptyList());
+                    shardPath = ShardPath.loadShardPath(logger, nodeEnv, shardId, indexSettings);
+                    if (shardPath == null) {
+                        throw new IllegalStateException(shardId + " no shard path found");
                     }
-                }
-                // old shard metadata doesn't have the actual index UUID so we need to check if the actual uuid in the metadata
-                // is equal to IndexMetaData.INDEX_UUID_NA_VALUE otherwise this shard doesn't belong to the requested index.
-                if (indexUUID.equals(shardStateMetaData.indexUUID) == false
-                        && IndexMetaData.INDEX_UUID_NA_VALUE.equals(shardStateMetaData.indexUUID) == false) {
-                    logger.warn("{} shard state info found but indexUUID didn't match expected [{}] actual [{}]", shardId, indexUUID, shardStateMetaData.indexUUID);
-                } else {
-                    logger.debug("{} shard state info found: [{}]", shardId, shardStateMetaData);
+                    Store.tryOpenIndex(shardPath.resolveIndex());
+                } catch (Exception exception) {
+                    logger.trace("{} can't open index for shard [{}] in path [{}]", exception, shardId, shardStateMetaData, (shardPath != null) ? shardPath.resolveIndex() : "");
                     String allocationId = shardStateMetaData.allocationId != null ? shardStateMetaData.allocationId.getId() : null;
-                    return new NodeGatewayStartedShards(clusterService.localNode(), shardStateMetaData.version, allocationId);
+                    return new NodeGatewayStartedShards(clusterService.localNode(), shardStateMetaData.version, allocationId, exception);
                 }
             }
-            logger.trace("{} no local shard info found", shardId);
-            return new NodeGatewayStartedShards(clusterService.localNode(), -1, null);
-        } catch (Exception e) {
-            throw new ElasticsearchException("failed to load started shards", e);
+            // old shard metadata doesn't have the actual index UUID so we need to check if the actual uuid in the metadata
+            // is equal to IndexMetaData.INDEX_UUID_NA_VALUE otherwise this shard doesn't belong to the requested index.
+            if (indexUUID.equals(shardStateMetaData.indexUUID) == false
+                    && IndexMetaData.INDEX_UUID_NA_VALUE.equals(shardStateMetaData.indexUUID) == false) {
+                logger.warn("{} shard state info found but indexUUID didn't match expected [{}] actual [{}]", shardId, indexUUID, shardStateMetaData.indexUUID);
+            } else {
+                logger.debug("{} shard state info found: [{}]", shardId, shardStateMetaData);
+                String allocationId = shardStateMetaData.allocationId != null ? shardStateMetaData.allocationId.getId() : null;
+                return new NodeGatewayStartedShards(clusterService.localNode(), shardStateMetaData.version, allocationId);
+            }
         }
+        logger.trace("{} no local shard info found", shardId);
+        return new NodeGatewayStartedShards(clusterService.localNode(), -1, null);
     }
 
     @Override
@@ -165,44 +206,60 @@ public class TransportNodesListGatewayStartedShards extends TransportNodesAction
         return true;
     }
 
+    static Map<ShardId, String> readShards(StreamInput in) throws IOException {
+        final int size = in.readVInt();
+        final Map<ShardId, String> shards = new HashMap<>(size);
+        for (int i = 0; i < size; i++) {
+            shards.put(ShardId.readShardId(in), in.readString());
+        }
+        return shards;
+    }
+
+    static void writeShards(Map<ShardId, String> shards, StreamOutput out) throws IOException {
+        out.writeVInt(shards.size());
+        for (Map.Entry<ShardId, String> entry : shards.entrySet()) {
+            entry.getKey().writeTo(out);
+            out.writeString(entry.getValue());
+        }
+    }
+
     public static class Request extends BaseNodesRequest<Request> {
 
-        private ShardId shardId;
-        private String indexUUID;
+        // the shards to list, with the uuid of their index
+        private Map<ShardId, String> shards;
 
         public Request() {
         }
 
-        public Request(ShardId shardId, String indexUUID, String[] nodesIds) {
+        public Request(Map<ShardId, String> shards, String[] nodesIds) {
             super(nodesIds);
-            this.shardId = shardId;
-            this.indexUUID = indexUUID;
+            this.shards = shards;
         }
 
+        public Request(ShardId shardId, String indexUUID, String[] nodesIds) {
+            this(Collections.singletonMap(shardId, indexUUID), nodesIds);
+        }
 
-        public ShardId shardId() {
-            return this.shardId;
+        public Map<ShardId, String> shards() {
+            return this.shards;
         }
 
         @Override
         public void readFrom(StreamInput in) throws IOException {
             super.readFrom(in);
-            shardId = ShardId.readShardId(in);
-            indexUUID = in.readString();
+            shards = readShards(in);
         }
 
         @Override
         public void writeTo(StreamOutput out) throws IOException {
             super.writeTo(out);
-            shardId.writeTo(out);
-            out.writeString(indexUUID);
-        }
-
-        public String getIndexUUID() {
-            return indexUUID;
+            writeShards(shards, out);
         }
     }
 
+    /**
+     * The started shard states of a single shard, as returned by each of the nodes.
+     */
     public static class NodesGatewayStartedShards extends BaseNodesResponse<NodeGatewayStartedShards> {
 
         private FailedNodeException[] failures;
@@ -237,41 +294,170 @@ public class TransportNodesListGatewayStartedShards extends TransportNodesAction
         }
     }
 
+    /**
+     * The started shard states of all the requested shards, as returned by each of the nodes.
+     */
+    public static class NodesGatewayStartedShardsBatch extends BaseNodesResponse<NodeGatewayStartedShardsBatch> {
+
+        private FailedNodeException[] failures;
+
+        NodesGatewayStartedShardsBatch() {
+        }
+
+        public NodesGatewayStartedShardsBatch(ClusterName clusterName, NodeGatewayStartedShardsBatch[] nodes, FailedNodeException[] failures) {
+            super(clusterName, nodes);
+            this.failures = failures;
+        }
+
+        @Override
+        public FailedNodeException[] failures() {
+            return failures;
+        }
+
+        /**
+         * Splits this response into the responses of each of the given shards. A node that failed as a whole counts
+         * as a failure for every shard.
+         */
+        public Map<ShardId, NodesGatewayStartedShards> byShard(Set<ShardId> shardIds) {
+            final Map<ShardId, NodesGatewayStartedShards> responses = new HashMap<>(shardIds.size());
+            for (ShardId shardId : shardIds) {
+                final List<NodeGatewayStartedShards> shardNodes = new ArrayList<>(nodes.length);
+                final List<FailedNodeException> shardFailures = new ArrayList<>(Arrays.asList(failures));
+                for (NodeGatewayStartedShardsBatch node : nodes) {
+                    final NodeGatewayStartedShards shardState = node.shardStates.get(shardId);
+                    if (shardState != null) {
+                        shardNodes.add(shardState);
+                    } else {
+                        final String nodeId = node.getNode().id();
+                        Throwable failure = node.failures.get(shardId);
+                        if (failure == null) {
+                            failure = new IllegalStateException("node [" + nodeId + "] didn't return the state of shard " + shardId);
+                        }
+                        shardFailures.add(new FailedNodeException(nodeId, "Failed node [" + nodeId + "]", failure));
+                    }
+                }
+                responses.put(shardId, new NodesGatewayStartedShards(getClusterName(),
+                        shardNodes.toArray(new NodeGatewayStartedShards[shardNodes.size()]),
+                        shardFailures.toArray(new FailedNodeException[shardFailures.size()])));
+            }
+            return responses;
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            super.readFrom(in);
+            nodes = new NodeGatewayStartedShardsBatch[in.readVInt()];
+            for (int i = 0; i < nodes.length; i++) {
+                nodes[i] = new NodeGatewayStartedShardsBatch();
+                nodes[i].readFrom(in);
+            }
+            failures = new FailedNodeException[in.readVInt()];
+            for (int i = 0; i < failures.length; i++) {
+                failures[i] = in.readThrowable();
+            }
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            super.writeTo(out);
+            out.writeVInt(nodes.length);
+            for (NodeGatewayStartedShardsBatch response : nodes) {
+                response.writeTo(out);
+            }
+            out.writeVInt(failures.length);
+            for (FailedNodeException failure : failures) {
+                out.writeThrowable(failure);
+            }
+        }
+    }
+
 
     public static class NodeRequest extends BaseNodeRequest {
 
-        private ShardId shardId;
-        private String indexUUID;
+        private Map<ShardId, String> shards;
 
         public NodeRequest() {
         }
 
         NodeRequest(String nodeId, TransportNodesListGatewayStartedShards.Request request) {
             super(request, nodeId);
-            this.shardId = request.shardId();
-            this.indexUUID = request.getIndexUUID();
+            this.shards = request.shards();
         }
 
         @Override
         public void readFrom(StreamInput in) throws IOException {
             super.readFrom(in);
-            shardId = ShardId.readShardId(in);
-            indexUUID = in.readString();
+            shards = readShards(in);
         }
 
         @Override
         public void writeTo(StreamOutput out) throws IOException {
             super.writeTo(out);
-            shardId.writeTo(out);
-            out.writeString(indexUUID);
+            writeShards(shards, out);
         }
 
-        public ShardId getShardId() {
-            return shardId;
+        public Map<ShardId, String> getShards() {
+            return shards;
         }
+    }
+
+    /**
+     * The started shard states of all the requested shards on a single node. The node is only serialized once, not
+     * with the state of every shard.
+     */
+    public static class NodeGatewayStartedShardsBatch extends BaseNodeResponse {
+
+        private Map<ShardId, NodeGatewayStartedShards> shardStates;
+        private Map<ShardId, Throwable> failures;
 
-        public String getIndexUUID() {
-            return indexUUID;
+        NodeGatewayStartedShardsBatch() {
+        }
+
+        public NodeGatewayStartedShardsBatch(DiscoveryNode node, Map<ShardId, NodeGatewayStartedShards> shardStates, Map<ShardId, Throwable> failures) {
+            super(node);
+            this.shardStates = shardStates;
+            this.failures = failures;
+        }
+
+        public Map<ShardId, NodeGatewayStartedShards> shardStates() {
+            return shardStates;
+        }
+
+        public Map<ShardId, Throwable> failures() {
+            return failures;
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            super.readFrom(in);
+            int size = in.readVInt();
+            shardStates = new HashMap<>(size);
+            for (int i = 0; i < size; i++) {
+                ShardId shardId = ShardId.readShardId(in);
+                NodeGatewayStartedShards shardState = new NodeGatewayStartedShards(getNode(), -1, null);
+                shardState.readShardState(in);
+                shardStates.put(shardId, shardState);
+            }
+            size = in.readVInt();
+            failures = new HashMap<>(size);
+            for (int i = 0; i < size; i++) {
+                failures.put(ShardId.readShardId(in), in.readThrowable());
+            }
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            super.writeTo(out);
+            out.writeVInt(shardStates.size());
+            for (Map.Entry<ShardId, NodeGatewayStartedShards> entry : shardStates.entrySet()) {
+                entry.getKey().writeTo(out);
+                entry.getValue().writeShardState(out);
+            }
+            out.writeVInt(failures.size());
+            for (Map.Entry<ShardId, Throwable> entry : failures.entrySet()) {
+                entry.getKey().writeTo(out);
+                out.writeThrowable(entry.getValue());
+            }
         }
     }
 
@@ -309,6 +495,10 @@ public class TransportNodesListGatewayStartedShards extends TransportNodesAction
         @Override
         public void readFrom(StreamInput in) throws IOException {
             super.readFrom(in);
+            readShardState(in);
+        }
+
+        private void readShardState(StreamInput in) throws IOException {
             version = in.readLong();
             allocationId = in.readOptionalString();
             if (in.readBoolean()) {
@@ -319,6 +509,10 @@ public class TransportNodesListGatewayStartedShards extends TransportNodesAction
         @Override
         public void writeTo(StreamOutput out) throws IOException {
             super.writeTo(out);
+            writeShardState(out);
+        }
+
+        private void writeShardState(StreamOutput out) throws IOException {
             out.writeLong(version);
             out.writeOptionalString(allocationId);
             if (storeException != null) {
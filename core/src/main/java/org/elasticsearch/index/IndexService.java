@@ -39,6 +39,7 @@ import org.elasticsearch.index.analysis.AnalysisRegistry;
 import org.elasticsearch.index.analysis.AnalysisService;
 import org.elasticsearch.index.cache.IndexCache;
 import org.elasticsearch.index.cache.bitset.BitsetFilterCache;
+import org.elasticsearch.index.cache.docfreq.DocFreqCache;
 import org.elasticsearch.index.cache.query.QueryCache;
 import org.elasticsearch.index.engine.EngineClosedException;
 import org.elasticsearch.index.engine.EngineFactory;
@@ -116,20 +117,29 @@ public final class IndexService extends AbstractIndexComponent implements IndexC
         super(indexSettings);
         this.indexSettings = indexSettings;
         this.analysisService = registry.build(indexSettings);
-        this.similarityService = similarityService;
-        this.mapperService = new MapperService(indexSettings, analysisService, similarityService, mapperRegistry);
-        this.indexFieldData = new IndexFieldDataService(indexSettings, nodeServicesProvider.getIndicesFieldDataCache(), nodeServicesProvider.getCircuitBreakerService(), mapperService);
-        this.shardStoreDeleter = shardStoreDeleter;
-        this.eventListener = eventListener;
-        this.nodeEnv = nodeEnv;
-        this.nodeServicesProvider = nodeServicesProvider;
-        this.indexStore = indexStore;
-        indexFieldData.setListener(new FieldDataCacheListener(this));
-        this.bitsetFilterCache = new BitsetFilterCache(indexSettings, nodeServicesProvider.getWarmer(), new BitsetCacheListener(this));
-        this.indexCache = new IndexCache(indexSettings, queryCache, bitsetFilterCache);
-        this.engineFactory = engineFactory;
-        // initialize this last -- otherwise if the wrapper requires any other member to be non-null we fail with an NPE
-        this.searcherWrapper = wrapperFactory.newWrapper(this);
+        boolean success = false;
+        try {
+            this.similarityService = similarityService;
+            this.mapperService = new MapperService(indexSettings, analysisService, similarityService, mapperRegistry);
+            this.indexFieldData = new IndexFieldDataService(indexSettings, nodeServicesProvider.getIndicesFieldDataCache(), nodeServicesProvider.getCircuitBreakerService(), mapperService);
+            this.shardStoreDeleter = shardStoreDeleter;
+            this.eventListener = eventListener;
+            this.nodeEnv = nodeEnv;
+            this.nodeServicesProvider = nodeServicesProvider;
+            this.indexStore = indexStore;
+            indexFieldData.setListener(new FieldDataCacheListener(this));
+            this.bitsetFilterCache = new BitsetFilterCache(indexSettings, nodeServicesProvider.getWarmer(), new BitsetCacheListener(this));
+            this.indexCache = new IndexCache(indexSettings, queryCache, bitsetFilterCache, new DocFreqCache(indexSettings, nodeServicesProvider.getIndicesDocFreqCache()));
+            this.engineFactory = engineFactory;
+            // initialize this last -- otherwise if the wrapper requires any other member to be non-null we fail with an NPE
+            this.searcherWrapper = wrapperFactory.newWrapper(this);
+            success = true;
+        } finally {
+            if (success == false) {
+                // the analysis service holds references on resources that are shared across indices
+                IOUtils.closeWhileHandlingException(analysisService);
+            }
+        }
     }
 
     public int numberOfShards() {
@@ -26,6 +26,7 @@ import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.index.termvectors.TermVectorsService;
 import org.elasticsearch.indices.IndicesWarmer;
 import org.elasticsearch.indices.breaker.CircuitBreakerService;
+import org.elasticsearch.indices.cache.docfreq.IndicesDocFreqCache;
 import org.elasticsearch.indices.cache.query.IndicesQueryCache;
 import org.elasticsearch.indices.fielddata.cache.IndicesFieldDataCache;
 import org.elasticsearch.indices.query.IndicesQueriesRegistry;
@@ -41,6 +42,7 @@ public final class NodeServicesProvider {
 
     private final ThreadPool threadPool;
     private final IndicesQueryCache indicesQueryCache;
+    private final IndicesDocFreqCache indicesDocFreqCache;
     private final TermVectorsService termVectorsService;
     private final IndicesWarmer warmer;
     private final BigArrays bigArrays;
@@ -51,9 +53,10 @@ public final class NodeServicesProvider {
     private final CircuitBreakerService circuitBreakerService;
 
     @Inject
-    public NodeServicesProvider(ThreadPool threadPool, IndicesQueryCache indicesQueryCache, TermVectorsService termVectorsService, @Nullable IndicesWarmer warmer, BigArrays bigArrays, Client client, ScriptService scriptService, IndicesQueriesRegistry indicesQueriesRegistry, IndicesFieldDataCache indicesFieldDataCache, CircuitBreakerService circuitBreakerService) {
+    public NodeServicesProvider(ThreadPool threadPool, IndicesQueryCache indicesQueryCache, IndicesDocFreqCache indicesDocFreqCache, TermVectorsService termVectorsService, @Nullable IndicesWarmer warmer, BigArrays bigArrays, Client client, ScriptService scriptService, IndicesQueriesRegistry indicesQueriesRegistry, IndicesFieldDataCache indicesFieldDataCache, CircuitBreakerService circuitBreakerService) {
         this.threadPool = threadPool;
         this.indicesQueryCache = indicesQueryCache;
+        this.indicesDocFreqCache = indicesDocFreqCache;
         this.termVectorsService = termVectorsService;
         this.warmer = warmer;
         this.bigArrays = bigArrays;
@@ -72,6 +75,10 @@ public final class NodeServicesProvider {
         return indicesQueryCache;
     }
 
+    public IndicesDocFreqCache getIndicesDocFreqCache() {
+        return indicesDocFreqCache;
+    }
+
     public TermVectorsService getTermVectorsService() {
         return termVectorsService;
     }
@@ -38,8 +38,10 @@ import org.elasticsearch.indices.analysis.PreBuiltTokenizers;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -58,6 +60,7 @@ public final class AnalysisRegistry implements Closeable {
     private final PrebuiltAnalysis prebuiltAnalysis;
     private final HunspellService hunspellService;
     private final Environment environemnt;
+    private final SharedAnalysisResources sharedResources = new SharedAnalysisResources();
 
     public AnalysisRegistry(HunspellService hunspellService, Environment environment) {
         this(hunspellService, environment, Collections.emptyMap(), Collections.emptyMap(), Collections.emptyMap(), Collections.emptyMap());
@@ -124,6 +127,13 @@ public final class AnalysisRegistry implements Closeable {
         return analyzerProvider.get(environemnt, analyzer).get();
     }
 
+    /**
+     * Returns the node level registry of resources that are shared across indices with identical analysis configurations
+     */
+    public SharedAnalysisResources getSharedResources() {
+        return sharedResources;
+    }
+
     @Override
     public void close() throws IOException {
         try {
@@ -151,10 +161,25 @@ public final class AnalysisRegistry implements Closeable {
          * instead of building the infrastructure for plugins we rather make it a real exception to not pollute the general interface and
          * hide internal data-structures as much as possible.
          */
-        tokenFilters.put("synonym", requriesAnalysisSettings((is, env, name, settings) -> new SynonymTokenFilterFactory(is, env, tokenizerFactories, name, settings)));
-        final Map<String, TokenFilterFactory> tokenFilterFactories = buildMapping(false, "tokenfilter", indexSettings, tokenFiltersSettings, Collections.unmodifiableMap(tokenFilters), prebuiltAnalysis.tokenFilterFactories);
-        final Map<String, AnalyzerProvider> analyzierFactories = buildMapping(true, "analyzer", indexSettings, analyzersSettings, analyzers, prebuiltAnalysis.analyzerProviderFactories);
-        return new AnalysisService(indexSettings, analyzierFactories, tokenizerFactories, charFilterFactories, tokenFilterFactories);
+        final List<Closeable> sharedResourceHolders = new ArrayList<>();
+        tokenFilters.put("synonym", requriesAnalysisSettings((is, env, name, settings) -> {
+            SynonymTokenFilterFactory factory = new SynonymTokenFilterFactory(is, env, tokenizerFactories, sharedResources, name, settings);
+            sharedResourceHolders.add(factory);
+            return factory;
+        }));
+        boolean success = false;
+        try {
+            final Map<String, TokenFilterFactory> tokenFilterFactories = buildMapping(false, "tokenfilter", indexSettings, tokenFiltersSettings, Collections.unmodifiableMap(tokenFilters), prebuiltAnalysis.tokenFilterFactories);
+            final Map<String, AnalyzerProvider> analyzierFactories = buildMapping(true, "analyzer", indexSettings, analyzersSettings, analyzers, prebuiltAnalysis.analyzerProviderFactories);
+            final AnalysisService analysisService = new AnalysisService(indexSettings, analyzierFactories, tokenizerFactories, charFilterFactories, tokenFilterFactories);
+            success = true;
+            return analysisService;
+        } finally {
+            if (success == false) {
+                // the analysis service won't release the shared resources that the factories built so far hold on to
+                IOUtils.closeWhileHandlingException(sharedResourceHolders);
+            }
+        }
     }
 
 
@@ -159,6 +159,16 @@ public class AnalysisService extends AbstractIndexComponent implements Closeable
                 }
             }
         }
+        // token filters might hold references on resources shared across indices like synonym maps
+        for (TokenFilterFactory tokenFilter : tokenFilters.values()) {
+            if (tokenFilter instanceof Closeable) {
+                try {
+                    ((Closeable) tokenFilter).close();
+                } catch (Exception e) {
+                    logger.debug("failed to close token filter [{}]", e, tokenFilter.name());
+                }
+            }
+        }
     }
 
     public NamedAnalyzer analyzer(String name) {
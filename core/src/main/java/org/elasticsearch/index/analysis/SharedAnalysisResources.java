@@ -0,0 +1,145 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.index.analysis;
+
+import org.elasticsearch.common.hash.MessageDigests;
+import org.elasticsearch.common.lease.Releasable;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A node level registry for large, immutable analysis resources like synonym maps. Resources are keyed by a content
+ * hash of everything that went into building them so that indices declaring identical configurations share a single
+ * instance instead of building and holding their own copy. Every user holds a {@link Reference} that must be released
+ * once it's done with the resource, typically when the owning index is closed. The resource is dropped from the
+ * registry once its last reference is released.
+ */
+public final class SharedAnalysisResources {
+
+    /**
+     * Builds a resource if it's not present in the registry yet.
+     */
+    @FunctionalInterface
+    public interface Loader<T> {
+        T load() throws IOException;
+    }
+
+    private final Map<String, Entry> entries = new HashMap<>(); // guarded by this
+
+    /**
+     * Returns a reference to the resource registered under the given key, building it with the given loader if it
+     * isn't present yet. Concurrent callers for the same key wait for a single build instead of building the resource
+     * in parallel.
+     */
+    public <T> Reference<T> acquire(String key, Loader<T> loader) throws IOException {
+        final Entry entry;
+        synchronized (this) {
+            Entry existing = entries.get(key);
+            if (existing == null) {
+                entry = new Entry(key);
+                entries.put(key, entry);
+            } else {
+                entry = existing;
+                entry.refCount++;
+            }
+        }
+        boolean success = false;
+        try {
+            @SuppressWarnings("unchecked")
+            T value = (T) entry.get(loader);
+            success = true;
+            return new Reference<>(entry, value);
+        } finally {
+            if (success == false) {
+                release(entry);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of resources currently held by this registry.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private synchronized void release(Entry entry) {
+        assert entry.refCount > 0 : "entry [" + entry.key + "] is already released";
+        if (--entry.refCount == 0) {
+            entries.remove(entry.key);
+        }
+    }
+
+    /**
+     * Computes a registry key from the given resource kind and the content that the resource is built from.
+     */
+    public static String key(String kind, String content) {
+        byte[] digest = MessageDigests.sha256().digest(content.getBytes(StandardCharsets.UTF_8));
+        return kind + "/" + MessageDigests.toHexString(digest);
+    }
+
+    private static final class Entry {
+        private final String key;
+        private int refCount = 1; // guarded by the registry
+        private Object value; // guarded by this
+
+        Entry(String key) {
+            this.key = key;
+        }
+
+        synchronized Object get(Loader<?> loader) throws IOException {
+            if (value == null) {
+                value = loader.load();
+                if (value == null) {
+                    throw new IllegalStateException("loader for [" + key + "] returned null");
+                }
+            }
+            return value;
+        }
+    }
+
+    /**
+     * A handle on a shared resource. Releasing it more than once has no effect.
+     */
+    public final class Reference<T> implements Releasable {
+        private final Entry entry;
+        private final T value;
+        private final AtomicBoolean released = new AtomicBoolean(false);
+
+        private Reference(Entry entry, T value) {
+            this.entry = entry;
+            this.value = value;
+        }
+
+        public T get() {
+            return value;
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                release(entry);
+            }
+        }
+    }
+}
@@ -29,47 +29,87 @@ import org.apache.lucene.analysis.synonym.SynonymFilter;
 import org.apache.lucene.analysis.synonym.SynonymMap;
 import org.apache.lucene.analysis.synonym.WordnetSynonymParser;
 import org.elasticsearch.common.io.FastStringReader;
+import org.elasticsearch.common.io.Streams;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.env.Environment;
 import org.elasticsearch.index.IndexSettings;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.Reader;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
-public class SynonymTokenFilterFactory extends AbstractTokenFilterFactory {
+public class SynonymTokenFilterFactory extends AbstractTokenFilterFactory implements Closeable {
 
     private final SynonymMap synonymMap;
     private final boolean ignoreCase;
+    private final SharedAnalysisResources.Reference<SynonymMap> sharedSynonymMap;
 
     public SynonymTokenFilterFactory(IndexSettings indexSettings, Environment env, Map<String, TokenizerFactory> tokenizerFactories,
                                       String name, Settings settings) throws IOException {
+        this(indexSettings, env, tokenizerFactories, null, name, settings);
+    }
+
+    /**
+     * Creates a new synonym token filter factory. If <code>sharedResources</code> is not <code>null</code> the synonym map is
+     * shared with all other synonym filters on this node that are built from the same rules and the same analysis chain.
+     */
+    public SynonymTokenFilterFactory(IndexSettings indexSettings, Environment env, Map<String, TokenizerFactory> tokenizerFactories,
+                                     SharedAnalysisResources sharedResources, String name, Settings settings) throws IOException {
         super(indexSettings, name, settings);
 
-        Reader rulesReader = null;
+        final String rules;
         if (settings.getAsArray("synonyms", null) != null) {
-            List<String> rules = Analysis.getWordList(env, settings, "synonyms");
+            List<String> rulesList = Analysis.getWordList(env, settings, "synonyms");
             StringBuilder sb = new StringBuilder();
-            for (String line : rules) {
+            for (String line : rulesList) {
                 sb.append(line).append(System.getProperty("line.separator"));
             }
-            rulesReader = new FastStringReader(sb.toString());
+            rules = sb.toString();
         } else if (settings.get("synonyms_path") != null) {
-            rulesReader = Analysis.getReaderFromFile(env, settings, "synonyms_path");
+            try (Reader reader = Analysis.getReaderFromFile(env, settings, "synonyms_path")) {
+                rules = Streams.copyToString(reader);
+            }
         } else {
             throw new IllegalArgumentException("synonym requires either `synonyms` or `synonyms_path` to be configured");
         }
 
         this.ignoreCase = settings.getAsBoolean("ignore_case", false);
-        boolean expand = settings.getAsBoolean("expand", true);
+        final boolean expand = settings.getAsBoolean("expand", true);
+        final boolean wordnet = "wordnet".equalsIgnoreCase(settings.get("format"));
 
-        String tokenizerName = settings.get("tokenizer", "whitespace");
+        final String tokenizerName = settings.get("tokenizer", "whitespace");
         final TokenizerFactory tokenizerFactory = tokenizerFactories.get(tokenizerName);
         if (tokenizerFactory == null) {
             throw new IllegalArgumentException("failed to find tokenizer [" + tokenizerName + "] for synonym token filter");
         }
 
+        if (sharedResources == null) {
+            this.sharedSynonymMap = null;
+            this.synonymMap = buildSynonymMap(rules, tokenizerFactory, ignoreCase, expand, wordnet);
+        } else {
+            // the map depends on the rules and on the analysis chain used to parse them, the latter is identified by the
+            // tokenizer's settings in this index and the index created version for built-in tokenizers
+            StringBuilder key = new StringBuilder();
+            key.append("ignore_case=").append(ignoreCase).append('\n');
+            key.append("expand=").append(expand).append('\n');
+            key.append("wordnet=").append(wordnet).append('\n');
+            key.append("tokenizer=").append(tokenizerName).append('\n');
+            key.append("tokenizer_settings=")
+                .append(new TreeMap<>(indexSettings.getSettings().getByPrefix("index.analysis.tokenizer." + tokenizerName + ".").getAsMap()))
+                .append('\n');
+            key.append("version=").append(indexSettings.getIndexVersionCreated().id).append('\n');
+            key.append(rules);
+            this.sharedSynonymMap = sharedResources.acquire(SharedAnalysisResources.key("synonym", key.toString()),
+                () -> buildSynonymMap(rules, tokenizerFactory, ignoreCase, expand, wordnet));
+            this.synonymMap = sharedSynonymMap.get();
+        }
+    }
+
+    private static SynonymMap buildSynonymMap(String rules, TokenizerFactory tokenizerFactory, boolean ignoreCase, boolean expand,
+                                              boolean wordnet) {
         Analyzer analyzer = new Analyzer() {
             @Override
             protected TokenStreamComponents createComponents(String fieldName) {
@@ -82,15 +122,15 @@ public class SynonymTokenFilterFactory extends AbstractTokenFilterFactory {
         try {
             SynonymMap.Builder parser = null;
 
-            if ("wordnet".equalsIgnoreCase(settings.get("format"))) {
+            if (wordnet) {
                 parser = new WordnetSynonymParser(true, expand, analyzer);
-                ((WordnetSynonymParser) parser).parse(rulesReader);
+                ((WordnetSynonymParser) parser).parse(new FastStringReader(rules));
             } else {
                 parser = new SolrSynonymParser(true, expand, analyzer);
-                ((SolrSynonymParser) parser).parse(rulesReader);
+                ((SolrSynonymParser) parser).parse(new FastStringReader(rules));
             }
 
-            synonymMap = parser.build();
+            return parser.build();
         } catch (Exception e) {
             throw new IllegalArgumentException("failed to build synonyms", e);
         }
@@ -101,4 +141,11 @@ public class SynonymTokenFilterFactory extends AbstractTokenFilterFactory {
         // fst is null means no synonyms
         return synonymMap.fst == null ? tokenStream : new SynonymFilter(tokenStream, synonymMap, ignoreCase);
     }
+
+    @Override
+    public void close() {
+        if (sharedSynonymMap != null) {
+            sharedSynonymMap.close();
+        }
+    }
 }
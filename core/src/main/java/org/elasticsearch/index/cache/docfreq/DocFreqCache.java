@@ -0,0 +1,65 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.index.cache.docfreq;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.Query;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.index.AbstractIndexComponent;
+import org.elasticsearch.index.IndexSettings;
+import org.elasticsearch.indices.cache.docfreq.IndicesDocFreqCache;
+
+import java.io.Closeable;
+
+/**
+ * A per segment cache of the document frequencies of terms, optionally counting only the documents that match a
+ * filter. Frequencies are looked up again and again by aggregations like <code>significant_terms</code> that compare
+ * the frequency of terms in the matching documents to their frequency in the whole index, and they do not change as
+ * long as the segment does not change. Frequencies that are counted against a filter take deleted documents into
+ * account and are not reused once the deletes of the segment change.
+ * <p>
+ * The frequencies are held by the node level {@link IndicesDocFreqCache}, which bounds their total size.
+ */
+public final class DocFreqCache extends AbstractIndexComponent implements Closeable {
+
+    private final IndicesDocFreqCache indicesDocFreqCache;
+
+    public DocFreqCache(IndexSettings indexSettings, IndicesDocFreqCache indicesDocFreqCache) {
+        super(indexSettings);
+        this.indicesDocFreqCache = indicesDocFreqCache;
+    }
+
+    /**
+     * Returns the cached frequencies of the terms of the given field in the given segment, counting only documents that
+     * match the given filter if it is not <code>null</code>.
+     */
+    public IndicesDocFreqCache.Segment getSegment(LeafReaderContext context, String field, @Nullable Query filter) {
+        return indicesDocFreqCache.segment(index(), context, field, filter);
+    }
+
+    @Override
+    public void close() {
+        clear("close");
+    }
+
+    public void clear(String reason) {
+        logger.debug("clearing all document frequencies because [{}]", reason);
+        indicesDocFreqCache.clear(index());
+    }
+}
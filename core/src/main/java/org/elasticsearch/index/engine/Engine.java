@@ -329,6 +329,18 @@ public abstract class Engine implements Closeable {
     /** returns the translog for this engine */
     public abstract Translog getTranslog();
 
+    /**
+     * Returns a new view of the translog operations that were applied since the synced flush with the given sync id,
+     * or <code>null</code> if this engine does not retain them, e.g. because it synced flushed again since, because
+     * the operations got older or larger than the retention limits or because it was restarted. A copy whose last
+     * commit carries the given sync id and holds the given number of documents can be brought up to date by replaying
+     * these operations. The caller must close the returned view.
+     */
+    @Nullable
+    public Translog.View acquireRetainedTranslogView(String syncId, long numDocs) {
+        return null;
+    }
+
     protected void ensureOpen() {
         if (isClosed.get()) {
             throw new EngineClosedException(shardId, failedEngine);
@@ -707,6 +719,7 @@ public abstract class Engine implements Closeable {
     public static class Index extends Operation {
 
         private final ParsedDocument doc;
+        private int mergedUpdates = 1;
 
         public Index(Term uid, ParsedDocument doc, long version, VersionType versionType, Origin origin, long startTime) {
             super(uid, version, versionType, origin, startTime);
@@ -725,6 +738,21 @@ public abstract class Engine implements Closeable {
             return this.doc;
         }
 
+        /**
+         * Sets the number of updates of the document that this operation applies at once. With internal
+         * versioning, the version of the document is incremented once per update, as if they had been
+         * indexed one after the other.
+         */
+        public Index mergedUpdates(int mergedUpdates) {
+            assert mergedUpdates > 0 : "must merge at least one update but was " + mergedUpdates;
+            this.mergedUpdates = mergedUpdates;
+            return this;
+        }
+
+        public int mergedUpdates() {
+            return this.mergedUpdates;
+        }
+
         public String type() {
             return this.doc.type();
         }
@@ -26,6 +26,7 @@ import org.apache.lucene.search.QueryCache;
 import org.apache.lucene.search.QueryCachingPolicy;
 import org.apache.lucene.search.similarities.Similarity;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.index.IndexSettings;
@@ -55,6 +56,8 @@ public final class EngineConfig {
     private volatile String versionMapSizeSetting;
     private long gcDeletesInMillis = DEFAULT_GC_DELETES.millis();
     private volatile boolean enableGcDeletes = true;
+    private volatile TimeValue translogRetentionAge;
+    private volatile ByteSizeValue translogRetentionSize;
     private final TimeValue flushMergesAfter;
     private final String codecName;
     private final ThreadPool threadPool;
@@ -91,12 +94,28 @@ public final class EngineConfig {
     public static final String INDEX_VERSION_MAP_SIZE = "index.version_map_size";
 
 
+    /**
+     * Index setting for how long the translog operations since the last synced flush are retained in order
+     * to recover copies that hold the synced commit by replaying operations instead of copying files.
+     * The age is only checked when the shard flushes and when a recovery asks for the operations, so an
+     * idle shard can retain them for longer. This setting is realtime updateable.
+     */
+    public static final String INDEX_TRANSLOG_RETENTION_AGE_SETTING = "index.translog.retention.age";
+
+    /**
+     * Index setting for the maximum size of the translog operations retained since the last synced flush,
+     * <code>0</code> disables the retention. This setting is realtime updateable.
+     */
+    public static final String INDEX_TRANSLOG_RETENTION_SIZE_SETTING = "index.translog.retention.size";
+
     /** if set to true the engine will start even if the translog id in the commit point can not be found */
     public static final String INDEX_FORCE_NEW_TRANSLOG = "index.engine.force_new_translog";
 
 
     public static final TimeValue DEFAULT_REFRESH_INTERVAL = new TimeValue(1, TimeUnit.SECONDS);
     public static final TimeValue DEFAULT_GC_DELETES = TimeValue.timeValueSeconds(60);
+    public static final TimeValue DEFAULT_TRANSLOG_RETENTION_AGE = TimeValue.timeValueHours(12);
+    public static final ByteSizeValue DEFAULT_TRANSLOG_RETENTION_SIZE = new ByteSizeValue(512, ByteSizeUnit.MB);
 
     public static final String DEFAULT_VERSION_MAP_SIZE = "25%";
 
@@ -130,6 +149,8 @@ public final class EngineConfig {
         // We start up inactive and rely on IndexingMemoryController to give us our fair share once we start indexing:
         indexingBufferSize = IndexingMemoryController.INACTIVE_SHARD_INDEXING_BUFFER;
         gcDeletesInMillis = settings.getAsTime(INDEX_GC_DELETES_SETTING, EngineConfig.DEFAULT_GC_DELETES).millis();
+        translogRetentionAge = settings.getAsTime(INDEX_TRANSLOG_RETENTION_AGE_SETTING, DEFAULT_TRANSLOG_RETENTION_AGE);
+        translogRetentionSize = settings.getAsBytesSize(INDEX_TRANSLOG_RETENTION_SIZE_SETTING, DEFAULT_TRANSLOG_RETENTION_SIZE);
         versionMapSizeSetting = settings.get(INDEX_VERSION_MAP_SIZE, DEFAULT_VERSION_MAP_SIZE);
         updateVersionMapSize();
         this.translogRecoveryPerformer = translogRecoveryPerformer;
@@ -332,6 +353,36 @@ public final class EngineConfig {
         this.gcDeletesInMillis = gcDeletesInMillis;
     }
 
+    /**
+     * Returns how long the translog operations since the last synced flush are retained.
+     * See {@link #INDEX_TRANSLOG_RETENTION_AGE_SETTING} for details.
+     */
+    public TimeValue getTranslogRetentionAge() {
+        return translogRetentionAge;
+    }
+
+    /**
+     * Sets how long the translog operations since the last synced flush are retained.
+     */
+    public void setTranslogRetentionAge(TimeValue translogRetentionAge) {
+        this.translogRetentionAge = translogRetentionAge;
+    }
+
+    /**
+     * Returns the maximum size of the translog operations retained since the last synced flush.
+     * See {@link #INDEX_TRANSLOG_RETENTION_SIZE_SETTING} for details.
+     */
+    public ByteSizeValue getTranslogRetentionSize() {
+        return translogRetentionSize;
+    }
+
+    /**
+     * Sets the maximum size of the translog operations retained since the last synced flush.
+     */
+    public void setTranslogRetentionSize(ByteSizeValue translogRetentionSize) {
+        this.translogRetentionSize = translogRetentionSize;
+    }
+
     /**
      * Returns the {@link org.elasticsearch.index.shard.TranslogRecoveryPerformer} for this engine. This class is used
      * to apply transaction log operations to the engine. It encapsulates all the logic to transfer the translog entry into
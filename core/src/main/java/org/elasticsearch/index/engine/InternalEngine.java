@@ -59,6 +59,7 @@ import org.elasticsearch.common.util.concurrent.AbstractRunnable;
 import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 import org.elasticsearch.common.util.concurrent.ReleasableLock;
 import org.elasticsearch.index.IndexSettings;
+import org.elasticsearch.index.VersionType;
 import org.elasticsearch.index.indexing.ShardIndexingService;
 import org.elasticsearch.index.mapper.Uid;
 import org.elasticsearch.index.merge.MergeStats;
@@ -120,6 +121,9 @@ public class InternalEngine extends Engine {
 
     private final IndexThrottle throttle;
 
+    private final Object retainedTranslogMutex = new Object();
+    private RetainedTranslog retainedTranslog; // guarded by retainedTranslogMutex
+
     public InternalEngine(EngineConfig engineConfig, boolean skipInitialTranslogRecovery) throws EngineException {
         super(engineConfig);
         this.versionMap = new LiveVersionMap();
@@ -394,6 +398,10 @@ public class InternalEngine extends Engine {
                 }
             }
             long updatedVersion = index.versionType().updateVersion(currentVersion, expectedVersion);
+            if (index.versionType() == VersionType.INTERNAL) {
+                // the updates that were merged into this operation each get a version
+                updatedVersion += index.mergedUpdates() - 1;
+            }
 
             final boolean created;
             index.updateVersion(updatedVersion);
@@ -579,6 +587,7 @@ public class InternalEngine extends Engine {
             commitIndexWriter(indexWriter, translog, syncId);
             logger.debug("successfully sync committed. sync id [{}].", syncId);
             lastCommittedSegmentInfos = store.readLastCommittedSegmentsInfo();
+            retainTranslog(syncId);
             return SyncedFlushResult.SUCCESS;
         } catch (IOException ex) {
             maybeFailEngine("sync commit", ex);
@@ -652,6 +661,7 @@ public class InternalEngine extends Engine {
                     } catch (Throwable e) {
                         throw new FlushFailedEngineException(shardId, e);
                     }
+                    trimRetainedTranslog();
                 }
                 /*
                  * we have to inc-ref the store here since if the engine is closed by a tragic event
@@ -689,6 +699,87 @@ public class InternalEngine extends Engine {
         return new CommitId(newCommitId);
     }
 
+    /**
+     * Retains the translog operations that follow the synced commit with the given sync id, so that copies which
+     * hold the same commit can be recovered by replaying them. This must be called under the write lock right after
+     * the commit so that no operation can slip in between the commit and the view.
+     */
+    private void retainTranslog(String syncId) {
+        assert rwl.isWriteLockedByCurrentThread() : "the write lock must be held to retain the translog";
+        final RetainedTranslog previous;
+        synchronized (retainedTranslogMutex) {
+            previous = retainedTranslog;
+            retainedTranslog = null;
+            if (engineConfig.getTranslogRetentionSize().bytes() > 0) {
+                retainedTranslog = new RetainedTranslog(syncId, Lucene.getNumDocs(lastCommittedSegmentInfos),
+                        engineConfig.getThreadPool().estimatedTimeInMillis(), translog.newView());
+            }
+        }
+        if (previous != null) {
+            previous.view.close();
+        }
+    }
+
+    /**
+     * Releases the translog operations retained since the last synced flush once they got older or larger than
+     * the configured retention limits.
+     */
+    private void trimRetainedTranslog() {
+        final RetainedTranslog toRelease;
+        synchronized (retainedTranslogMutex) {
+            if (retainedTranslog == null) {
+                return;
+            }
+            final long age = engineConfig.getThreadPool().estimatedTimeInMillis() - retainedTranslog.createdTimeInMillis;
+            if (age <= engineConfig.getTranslogRetentionAge().millis()
+                    && retainedTranslog.view.sizeInBytes() <= engineConfig.getTranslogRetentionSize().bytes()) {
+                return;
+            }
+            toRelease = retainedTranslog;
+            retainedTranslog = null;
+        }
+        logger.debug("releasing translog retained since sync commit [{}]", toRelease.syncId);
+        toRelease.view.close();
+    }
+
+    private void releaseRetainedTranslog() {
+        final RetainedTranslog toRelease;
+        synchronized (retainedTranslogMutex) {
+            toRelease = retainedTranslog;
+            retainedTranslog = null;
+        }
+        if (toRelease != null) {
+            toRelease.view.close();
+        }
+    }
+
+    @Override
+    public Translog.View acquireRetainedTranslogView(String syncId, long numDocs) {
+        ensureOpen();
+        trimRetainedTranslog();
+        synchronized (retainedTranslogMutex) {
+            if (retainedTranslog != null && retainedTranslog.syncId.equals(syncId) && retainedTranslog.numDocs == numDocs) {
+                return translog.newView(retainedTranslog.view);
+            }
+        }
+        return null;
+    }
+
+    /** The translog operations applied since a synced flush, along with the commit they apply on top of. */
+    private static final class RetainedTranslog {
+        private final String syncId;
+        private final long numDocs;
+        private final long createdTimeInMillis;
+        private final Translog.View view;
+
+        RetainedTranslog(String syncId, long numDocs, long createdTimeInMillis, Translog.View view) {
+            this.syncId = syncId;
+            this.numDocs = numDocs;
+            this.createdTimeInMillis = createdTimeInMillis;
+            this.view = view;
+        }
+    }
+
     private void pruneDeletedTombstones() {
         long timeMSec = engineConfig.getThreadPool().estimatedTimeInMillis();
 
@@ -868,6 +959,11 @@ public class InternalEngine extends Engine {
                 } catch (Throwable t) {
                     logger.warn("Failed to close SearcherManager", t);
                 }
+                try {
+                    releaseRetainedTranslog();
+                } catch (Throwable t) {
+                    logger.warn("Failed to release retained translog", t);
+                }
                 try {
                     IOUtils.close(translog);
                 } catch (Throwable t) {
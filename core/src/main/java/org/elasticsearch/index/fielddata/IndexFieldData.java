@@ -228,6 +228,33 @@ public interface IndexFieldData<FD extends AtomicFieldData> extends IndexCompone
         public Object missingValue(boolean reversed) {
             return null;
         }
+
+        /**
+         * The missing value this source was created with, as given in the search request. <code>null</code> sorts
+         * missing values last, like <code>_last</code>.
+         */
+        @Nullable
+        public Object sortMissingValue() {
+            return null;
+        }
+
+        /**
+         * The mode used to pick the value that multi-valued documents sort on, or <code>null</code> if this source doesn't
+         * sort on the values of a field.
+         */
+        @Nullable
+        public MultiValueMode sortMode() {
+            return null;
+        }
+
+        /**
+         * The nested documents whose values the root documents sort on, or <code>null</code> if documents sort on their
+         * own values.
+         */
+        @Nullable
+        public Nested nested() {
+            return null;
+        }
     }
 
     interface Builder {
@@ -59,6 +59,21 @@ public class BytesRefFieldComparatorSource extends IndexFieldData.XFieldComparat
         return SortField.Type.STRING;
     }
 
+    @Override
+    public Object sortMissingValue() {
+        return missingValue;
+    }
+
+    @Override
+    public MultiValueMode sortMode() {
+        return sortMode;
+    }
+
+    @Override
+    public Nested nested() {
+        return nested;
+    }
+
     @Override
     public Object missingValue(boolean reversed) {
         if (sortMissingFirst(missingValue) || sortMissingLast(missingValue)) {
@@ -57,6 +57,21 @@ public class DoubleValuesComparatorSource extends IndexFieldData.XFieldComparato
         return SortField.Type.DOUBLE;
     }
 
+    @Override
+    public Object sortMissingValue() {
+        return missingValue;
+    }
+
+    @Override
+    public MultiValueMode sortMode() {
+        return sortMode;
+    }
+
+    @Override
+    public Nested nested() {
+        return nested;
+    }
+
     protected SortedNumericDoubleValues getValues(LeafReaderContext context) throws IOException {
         return indexFieldData.load(context).getDoubleValues();
     }
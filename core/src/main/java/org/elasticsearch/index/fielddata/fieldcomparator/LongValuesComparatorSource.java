@@ -54,6 +54,21 @@ public class LongValuesComparatorSource extends IndexFieldData.XFieldComparatorS
         return SortField.Type.LONG;
     }
 
+    @Override
+    public Object sortMissingValue() {
+        return missingValue;
+    }
+
+    @Override
+    public MultiValueMode sortMode() {
+        return sortMode;
+    }
+
+    @Override
+    public Nested nested() {
+        return nested;
+    }
+
     @Override
     public FieldComparator<?> newComparator(String fieldname, int numHits, int sortPos, boolean reversed) throws IOException {
         assert indexFieldData == null || fieldname.equals(indexFieldData.getFieldName());
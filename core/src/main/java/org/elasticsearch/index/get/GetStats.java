@@ -19,9 +19,11 @@
 
 package org.elasticsearch.index.get;
 
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.metrics.LatencyStats;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
@@ -38,6 +40,8 @@ public class GetStats implements Streamable, ToXContent {
     private long missingCount;
     private long missingTimeInMillis;
     private long current;
+    @Nullable
+    private LatencyStats latency;
 
     public GetStats() {
     }
@@ -50,6 +54,12 @@ public class GetStats implements Streamable, ToXContent {
         this.current = current;
     }
 
+    public GetStats(long existsCount, long existsTimeInMillis, long missingCount, long missingTimeInMillis, long current,
+                    LatencyStats latency) {
+        this(existsCount, existsTimeInMillis, missingCount, missingTimeInMillis, current);
+        this.latency = latency;
+    }
+
     public void add(GetStats stats) {
         if (stats == null) {
             return;
@@ -67,6 +77,13 @@ public class GetStats implements Streamable, ToXContent {
         missingCount += stats.missingCount;
         missingTimeInMillis += stats.missingTimeInMillis;
         current += stats.current;
+        if (stats.latency != null) {
+            if (latency == null) {
+                latency = LatencyStats.copyOf(stats.latency);
+            } else {
+                latency.add(stats.latency);
+            }
+        }
     }
 
     public long getCount() {
@@ -109,6 +126,14 @@ public class GetStats implements Streamable, ToXContent {
         return this.current;
     }
 
+    /**
+     * The distribution of get latencies, or <code>null</code> if not tracked.
+     */
+    @Nullable
+    public LatencyStats getLatency() {
+        return latency;
+    }
+
     @Override
     public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
         builder.startObject(Fields.GET);
@@ -119,6 +144,11 @@ public class GetStats implements Streamable, ToXContent {
         builder.field(Fields.MISSING_TOTAL, missingCount);
         builder.timeValueField(Fields.MISSING_TIME_IN_MILLIS, Fields.MISSING_TIME, missingTimeInMillis);
         builder.field(Fields.CURRENT, current);
+        if (latency != null) {
+            builder.startObject(Fields.LATENCY);
+            latency.toXContent(builder, params);
+            builder.endObject();
+        }
         builder.endObject();
         return builder;
     }
@@ -135,6 +165,7 @@ public class GetStats implements Streamable, ToXContent {
         static final XContentBuilderString MISSING_TIME = new XContentBuilderString("missing_time");
         static final XContentBuilderString MISSING_TIME_IN_MILLIS = new XContentBuilderString("missing_time_in_millis");
         static final XContentBuilderString CURRENT = new XContentBuilderString("current");
+        static final XContentBuilderString LATENCY = new XContentBuilderString("latency");
     }
 
     public static GetStats readGetStats(StreamInput in) throws IOException {
@@ -150,6 +181,7 @@ public class GetStats implements Streamable, ToXContent {
         missingCount = in.readVLong();
         missingTimeInMillis = in.readVLong();
         current = in.readVLong();
+        latency = in.readOptionalStreamable(LatencyStats::new);
     }
 
     @Override
@@ -159,5 +191,6 @@ public class GetStats implements Streamable, ToXContent {
         out.writeVLong(missingCount);
         out.writeVLong(missingTimeInMillis);
         out.writeVLong(current);
+        out.writeOptionalStreamable(latency);
     }
 }
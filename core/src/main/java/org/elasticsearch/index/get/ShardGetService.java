@@ -26,6 +26,7 @@ import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.lucene.uid.Versions;
 import org.elasticsearch.common.metrics.CounterMetric;
+import org.elasticsearch.common.metrics.LatencyHistogram;
 import org.elasticsearch.common.metrics.MeanMetric;
 import org.elasticsearch.common.util.set.Sets;
 import org.elasticsearch.common.xcontent.XContentFactory;
@@ -71,6 +72,7 @@ public final class ShardGetService extends AbstractIndexShardComponent {
     private final MeanMetric existsMetric = new MeanMetric();
     private final MeanMetric missingMetric = new MeanMetric();
     private final CounterMetric currentMetric = new CounterMetric();
+    private final LatencyHistogram latency = new LatencyHistogram();
     private final IndexShard indexShard;
 
     public ShardGetService(IndexSettings indexSettings, IndexShard indexShard,
@@ -81,7 +83,15 @@ public final class ShardGetService extends AbstractIndexShardComponent {
     }
 
     public GetStats stats() {
-        return new GetStats(existsMetric.count(), TimeUnit.NANOSECONDS.toMillis(existsMetric.sum()), missingMetric.count(), TimeUnit.NANOSECONDS.toMillis(missingMetric.sum()), currentMetric.count());
+        return stats(false);
+    }
+
+    /**
+     * Returns the get stats. If <code>resetLatency</code> is set, the latency histogram is reset once it has been read.
+     */
+    public GetStats stats(boolean resetLatency) {
+        return new GetStats(existsMetric.count(), TimeUnit.NANOSECONDS.toMillis(existsMetric.sum()), missingMetric.count(), TimeUnit.NANOSECONDS.toMillis(missingMetric.sum()), currentMetric.count(),
+                latency.stats(resetLatency));
     }
 
 
@@ -91,11 +101,13 @@ public final class ShardGetService extends AbstractIndexShardComponent {
             long now = System.nanoTime();
             GetResult getResult = innerGet(type, id, gFields, realtime, version, versionType, fetchSourceContext, ignoreErrorsOnGeneratedFields);
 
+            long took = System.nanoTime() - now;
             if (getResult.isExists()) {
-                existsMetric.inc(System.nanoTime() - now);
+                existsMetric.inc(took);
             } else {
-                missingMetric.inc(System.nanoTime() - now);
+                missingMetric.inc(took);
             }
+            latency.inc(took);
             return getResult;
         } finally {
             currentMetric.dec();
@@ -119,16 +131,20 @@ public final class ShardGetService extends AbstractIndexShardComponent {
             long now = System.nanoTime();
             DocumentMapper docMapper = mapperService.documentMapper(type);
             if (docMapper == null) {
-                missingMetric.inc(System.nanoTime() - now);
+                long took = System.nanoTime() - now;
+                missingMetric.inc(took);
+                latency.inc(took);
                 return new GetResult(shardId.index().name(), type, id, -1, false, null, null);
             }
             fetchSourceContext = normalizeFetchSourceContent(fetchSourceContext, fields);
             GetResult getResult = innerGetLoadFromStoredFields(type, id, fields, fetchSourceContext, engineGetResult, docMapper, ignoreErrorsOnGeneratedFields);
+            long took = System.nanoTime() - now;
             if (getResult.isExists()) {
-                existsMetric.inc(System.nanoTime() - now);
+                existsMetric.inc(took);
             } else {
-                missingMetric.inc(System.nanoTime() - now); // This shouldn't happen...
+                missingMetric.inc(took); // This shouldn't happen...
             }
+            latency.inc(took);
             return getResult;
         } finally {
             currentMetric.dec();
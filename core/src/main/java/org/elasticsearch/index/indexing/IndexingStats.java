@@ -24,6 +24,7 @@ import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.metrics.LatencyStats;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
@@ -53,6 +54,11 @@ public class IndexingStats implements Streamable, ToXContent {
         private long throttleTimeInMillis;
         private boolean isThrottled;
 
+        @Nullable
+        private LatencyStats indexLatency;
+        @Nullable
+        private LatencyStats deleteLatency;
+
         Stats() {
 
         }
@@ -70,6 +76,13 @@ public class IndexingStats implements Streamable, ToXContent {
             this.throttleTimeInMillis = throttleTimeInMillis;
         }
 
+        public Stats(long indexCount, long indexTimeInMillis, long indexCurrent, long indexFailedCount, long deleteCount, long deleteTimeInMillis, long deleteCurrent, long noopUpdateCount, boolean isThrottled, long throttleTimeInMillis,
+                     LatencyStats indexLatency, LatencyStats deleteLatency) {
+            this(indexCount, indexTimeInMillis, indexCurrent, indexFailedCount, deleteCount, deleteTimeInMillis, deleteCurrent, noopUpdateCount, isThrottled, throttleTimeInMillis);
+            this.indexLatency = indexLatency;
+            this.deleteLatency = deleteLatency;
+        }
+
         public void add(Stats stats) {
             indexCount += stats.indexCount;
             indexTimeInMillis += stats.indexTimeInMillis;
@@ -85,6 +98,19 @@ public class IndexingStats implements Streamable, ToXContent {
             if (isThrottled != stats.isThrottled) {
                 isThrottled = true; //When combining if one is throttled set result to throttled.
             }
+            indexLatency = addLatency(indexLatency, stats.indexLatency);
+            deleteLatency = addLatency(deleteLatency, stats.deleteLatency);
+        }
+
+        private static LatencyStats addLatency(@Nullable LatencyStats current, @Nullable LatencyStats other) {
+            if (other == null) {
+                return current;
+            }
+            if (current == null) {
+                return LatencyStats.copyOf(other);
+            }
+            current.add(other);
+            return current;
         }
 
         public long getIndexCount() {
@@ -148,6 +174,22 @@ public class IndexingStats implements Streamable, ToXContent {
             return noopUpdateCount;
         }
 
+        /**
+         * The distribution of index operation latencies, or <code>null</code> if not tracked.
+         */
+        @Nullable
+        public LatencyStats getIndexLatency() {
+            return indexLatency;
+        }
+
+        /**
+         * The distribution of delete operation latencies, or <code>null</code> if not tracked.
+         */
+        @Nullable
+        public LatencyStats getDeleteLatency() {
+            return deleteLatency;
+        }
+
         public static Stats readStats(StreamInput in) throws IOException {
             Stats stats = new Stats();
             stats.readFrom(in);
@@ -170,6 +212,8 @@ public class IndexingStats implements Streamable, ToXContent {
             noopUpdateCount = in.readVLong();
             isThrottled = in.readBoolean();
             throttleTimeInMillis = in.readLong();
+            indexLatency = in.readOptionalStreamable(LatencyStats::new);
+            deleteLatency = in.readOptionalStreamable(LatencyStats::new);
         }
 
         @Override
@@ -188,6 +232,8 @@ public class IndexingStats implements Streamable, ToXContent {
             out.writeVLong(noopUpdateCount);
             out.writeBoolean(isThrottled);
             out.writeLong(throttleTimeInMillis);
+            out.writeOptionalStreamable(indexLatency);
+            out.writeOptionalStreamable(deleteLatency);
 
         }
 
@@ -206,6 +252,16 @@ public class IndexingStats implements Streamable, ToXContent {
 
             builder.field(Fields.IS_THROTTLED, isThrottled);
             builder.timeValueField(Fields.THROTTLED_TIME_IN_MILLIS, Fields.THROTTLED_TIME, throttleTimeInMillis);
+            if (indexLatency != null) {
+                builder.startObject(Fields.INDEX_LATENCY);
+                indexLatency.toXContent(builder, params);
+                builder.endObject();
+            }
+            if (deleteLatency != null) {
+                builder.startObject(Fields.DELETE_LATENCY);
+                deleteLatency.toXContent(builder, params);
+                builder.endObject();
+            }
             return builder;
         }
     }
@@ -297,6 +353,8 @@ public class IndexingStats implements Streamable, ToXContent {
         static final XContentBuilderString IS_THROTTLED = new XContentBuilderString("is_throttled");
         static final XContentBuilderString THROTTLED_TIME_IN_MILLIS = new XContentBuilderString("throttle_time_in_millis");
         static final XContentBuilderString THROTTLED_TIME = new XContentBuilderString("throttle_time");
+        static final XContentBuilderString INDEX_LATENCY = new XContentBuilderString("index_latency");
+        static final XContentBuilderString DELETE_LATENCY = new XContentBuilderString("delete_latency");
     }
 
     public static IndexingStats readIndexingStats(StreamInput in) throws IOException {
@@ -21,6 +21,7 @@ package org.elasticsearch.index.indexing;
 
 import org.elasticsearch.common.collect.MapBuilder;
 import org.elasticsearch.common.metrics.CounterMetric;
+import org.elasticsearch.common.metrics.LatencyHistogram;
 import org.elasticsearch.common.metrics.MeanMetric;
 import org.elasticsearch.common.regex.Regex;
 import org.elasticsearch.common.settings.Settings;
@@ -43,7 +44,7 @@ public class ShardIndexingService extends AbstractIndexShardComponent {
 
     private final IndexingSlowLog slowLog;
 
-    private final StatsHolder totalStats = new StatsHolder();
+    private final StatsHolder totalStats = new StatsHolder(true);
 
     private final CopyOnWriteArrayList<IndexingOperationListener> listeners = new CopyOnWriteArrayList<>();
 
@@ -60,18 +61,26 @@ public class ShardIndexingService extends AbstractIndexShardComponent {
      * <tt>_all</tt> for all types.
      */
     public IndexingStats stats(String... types) {
-        IndexingStats.Stats total = totalStats.stats();
+        return stats(false, types);
+    }
+
+    /**
+     * Returns the stats like {@link #stats(String...)} does. If <code>resetLatency</code> is set, the latency
+     * histograms are reset once they have been read.
+     */
+    public IndexingStats stats(boolean resetLatency, String... types) {
+        IndexingStats.Stats total = totalStats.stats(resetLatency);
         Map<String, IndexingStats.Stats> typesSt = null;
         if (types != null && types.length > 0) {
             typesSt = new HashMap<>(typesStats.size());
             if (types.length == 1 && types[0].equals("_all")) {
                 for (Map.Entry<String, StatsHolder> entry : typesStats.entrySet()) {
-                    typesSt.put(entry.getKey(), entry.getValue().stats());
+                    typesSt.put(entry.getKey(), entry.getValue().stats(false));
                 }
             } else {
                 for (Map.Entry<String, StatsHolder> entry : typesStats.entrySet()) {
                     if (Regex.simpleMatch(types, entry.getKey())) {
-                        typesSt.put(entry.getKey(), entry.getValue().stats());
+                        typesSt.put(entry.getKey(), entry.getValue().stats(false));
                     }
                 }
             }
@@ -117,6 +126,7 @@ public class ShardIndexingService extends AbstractIndexShardComponent {
     public void postIndex(Engine.Index index) {
         long took = index.endTime() - index.startTime();
         totalStats.indexMetric.inc(took);
+        totalStats.indexLatency.inc(took);
         totalStats.indexCurrent.dec();
         StatsHolder typeStats = typeStats(index.type());
         typeStats.indexMetric.inc(took);
@@ -167,6 +177,7 @@ public class ShardIndexingService extends AbstractIndexShardComponent {
     public void postDelete(Engine.Delete delete) {
         long took = delete.endTime() - delete.startTime();
         totalStats.deleteMetric.inc(took);
+        totalStats.deleteLatency.inc(took);
         totalStats.deleteCurrent.dec();
         StatsHolder typeStats = typeStats(delete.type());
         typeStats.deleteMetric.inc(took);
@@ -219,7 +230,7 @@ public class ShardIndexingService extends AbstractIndexShardComponent {
             synchronized (this) {
                 stats = typesStats.get(type);
                 if (stats == null) {
-                    stats = new StatsHolder();
+                    stats = new StatsHolder(false);
                     typesStats = MapBuilder.newMapBuilder(typesStats).put(type, stats).immutableMap();
                 }
             }
@@ -241,8 +252,16 @@ public class ShardIndexingService extends AbstractIndexShardComponent {
         public final CounterMetric throttleTimeMillisMetric = new CounterMetric();
         volatile boolean isThrottled = false;
         volatile long startOfThrottleNS;
+        // latency histograms are only tracked for the total stats, null for types
+        final LatencyHistogram indexLatency;
+        final LatencyHistogram deleteLatency;
 
-        public IndexingStats.Stats stats() {
+        StatsHolder(boolean trackLatency) {
+            indexLatency = trackLatency ? new LatencyHistogram() : null;
+            deleteLatency = trackLatency ? new LatencyHistogram() : null;
+        }
+
+        public IndexingStats.Stats stats(boolean resetLatency) {
             long currentThrottleNS = 0;
             if (isThrottled && startOfThrottleNS != 0) {
                 currentThrottleNS +=  System.nanoTime() - startOfThrottleNS;
@@ -254,7 +273,9 @@ public class ShardIndexingService extends AbstractIndexShardComponent {
             return new IndexingStats.Stats(
                     indexMetric.count(), TimeUnit.NANOSECONDS.toMillis(indexMetric.sum()), indexCurrent.count(), indexFailed.count(),
                     deleteMetric.count(), TimeUnit.NANOSECONDS.toMillis(deleteMetric.sum()), deleteCurrent.count(),
-                    noopUpdates.count(), isThrottled, TimeUnit.MILLISECONDS.toMillis(throttleTimeMillisMetric.count() + TimeValue.nsecToMSec(currentThrottleNS)));
+                    noopUpdates.count(), isThrottled, TimeUnit.MILLISECONDS.toMillis(throttleTimeMillisMetric.count() + TimeValue.nsecToMSec(currentThrottleNS)),
+                    indexLatency == null ? null : indexLatency.stats(resetLatency),
+                    deleteLatency == null ? null : deleteLatency.stats(resetLatency));
         }
 
 
@@ -279,6 +300,10 @@ public class ShardIndexingService extends AbstractIndexShardComponent {
         public void clear() {
             indexMetric.clear();
             deleteMetric.clear();
+            if (indexLatency != null) {
+                indexLatency.clear();
+                deleteLatency.clear();
+            }
         }
 
 
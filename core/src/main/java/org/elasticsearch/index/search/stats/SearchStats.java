@@ -23,6 +23,7 @@ import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.metrics.LatencyStats;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
@@ -51,6 +52,13 @@ public class SearchStats implements Streamable, ToXContent {
         private long scrollTimeInMillis;
         private long scrollCurrent;
 
+        @Nullable
+        private LatencyStats queryLatency;
+        @Nullable
+        private LatencyStats fetchLatency;
+        @Nullable
+        private LatencyStats scrollLatency;
+
         Stats() {
 
         }
@@ -73,12 +81,28 @@ public class SearchStats implements Streamable, ToXContent {
             this.scrollCurrent = scrollCurrent;
         }
 
+        public Stats(
+                long queryCount, long queryTimeInMillis, long queryCurrent,
+                long fetchCount, long fetchTimeInMillis, long fetchCurrent,
+                long scrollCount, long scrollTimeInMillis, long scrollCurrent,
+                LatencyStats queryLatency, LatencyStats fetchLatency, LatencyStats scrollLatency
+        ) {
+            this(queryCount, queryTimeInMillis, queryCurrent, fetchCount, fetchTimeInMillis, fetchCurrent,
+                    scrollCount, scrollTimeInMillis, scrollCurrent);
+            this.queryLatency = queryLatency;
+            this.fetchLatency = fetchLatency;
+            this.scrollLatency = scrollLatency;
+        }
+
         public Stats(Stats stats) {
             this(
                     stats.queryCount, stats.queryTimeInMillis, stats.queryCurrent,
                     stats.fetchCount, stats.fetchTimeInMillis, stats.fetchCurrent,
                     stats.scrollCount, stats.scrollTimeInMillis, stats.scrollCurrent
             );
+            queryLatency = addLatency(null, stats.queryLatency);
+            fetchLatency = addLatency(null, stats.fetchLatency);
+            scrollLatency = addLatency(null, stats.scrollLatency);
         }
 
         public void add(Stats stats) {
@@ -93,6 +117,21 @@ public class SearchStats implements Streamable, ToXContent {
             scrollCount += stats.scrollCount;
             scrollTimeInMillis += stats.scrollTimeInMillis;
             scrollCurrent += stats.scrollCurrent;
+
+            queryLatency = addLatency(queryLatency, stats.queryLatency);
+            fetchLatency = addLatency(fetchLatency, stats.fetchLatency);
+            scrollLatency = addLatency(scrollLatency, stats.scrollLatency);
+        }
+
+        private static LatencyStats addLatency(@Nullable LatencyStats current, @Nullable LatencyStats other) {
+            if (other == null) {
+                return current;
+            }
+            if (current == null) {
+                return LatencyStats.copyOf(other);
+            }
+            current.add(other);
+            return current;
         }
 
         public long getQueryCount() {
@@ -143,6 +182,30 @@ public class SearchStats implements Streamable, ToXContent {
             return scrollCurrent;
         }
 
+        /**
+         * The distribution of query phase latencies, or <code>null</code> if not tracked.
+         */
+        @Nullable
+        public LatencyStats getQueryLatency() {
+            return queryLatency;
+        }
+
+        /**
+         * The distribution of fetch phase latencies, or <code>null</code> if not tracked.
+         */
+        @Nullable
+        public LatencyStats getFetchLatency() {
+            return fetchLatency;
+        }
+
+        /**
+         * The distribution of scroll lifetimes, or <code>null</code> if not tracked.
+         */
+        @Nullable
+        public LatencyStats getScrollLatency() {
+            return scrollLatency;
+        }
+
         public static Stats readStats(StreamInput in) throws IOException {
             Stats stats = new Stats();
             stats.readFrom(in);
@@ -162,6 +225,10 @@ public class SearchStats implements Streamable, ToXContent {
             scrollCount = in.readVLong();
             scrollTimeInMillis = in.readVLong();
             scrollCurrent = in.readVLong();
+
+            queryLatency = in.readOptionalStreamable(LatencyStats::new);
+            fetchLatency = in.readOptionalStreamable(LatencyStats::new);
+            scrollLatency = in.readOptionalStreamable(LatencyStats::new);
         }
 
         @Override
@@ -177,6 +244,10 @@ public class SearchStats implements Streamable, ToXContent {
             out.writeVLong(scrollCount);
             out.writeVLong(scrollTimeInMillis);
             out.writeVLong(scrollCurrent);
+
+            out.writeOptionalStreamable(queryLatency);
+            out.writeOptionalStreamable(fetchLatency);
+            out.writeOptionalStreamable(scrollLatency);
         }
 
         @Override
@@ -193,8 +264,21 @@ public class SearchStats implements Streamable, ToXContent {
             builder.timeValueField(Fields.SCROLL_TIME_IN_MILLIS, Fields.SCROLL_TIME, scrollTimeInMillis);
             builder.field(Fields.SCROLL_CURRENT, scrollCurrent);
 
+            latencyToXContent(builder, params, Fields.QUERY_LATENCY, queryLatency);
+            latencyToXContent(builder, params, Fields.FETCH_LATENCY, fetchLatency);
+            latencyToXContent(builder, params, Fields.SCROLL_LATENCY, scrollLatency);
+
             return builder;
         }
+
+        private static void latencyToXContent(XContentBuilder builder, Params params, XContentBuilderString name,
+                                              @Nullable LatencyStats latency) throws IOException {
+            if (latency != null) {
+                builder.startObject(name);
+                latency.toXContent(builder, params);
+                builder.endObject();
+            }
+        }
     }
 
     Stats totalStats;
@@ -292,6 +376,9 @@ public class SearchStats implements Streamable, ToXContent {
         static final XContentBuilderString SCROLL_TIME = new XContentBuilderString("scroll_time");
         static final XContentBuilderString SCROLL_TIME_IN_MILLIS = new XContentBuilderString("scroll_time_in_millis");
         static final XContentBuilderString SCROLL_CURRENT = new XContentBuilderString("scroll_current");
+        static final XContentBuilderString QUERY_LATENCY = new XContentBuilderString("query_latency");
+        static final XContentBuilderString FETCH_LATENCY = new XContentBuilderString("fetch_latency");
+        static final XContentBuilderString SCROLL_LATENCY = new XContentBuilderString("scroll_latency");
     }
 
     public static SearchStats readSearchStats(StreamInput in) throws IOException {
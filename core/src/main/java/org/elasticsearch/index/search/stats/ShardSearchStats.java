@@ -21,6 +21,7 @@ package org.elasticsearch.index.search.stats;
 
 import org.elasticsearch.common.collect.MapBuilder;
 import org.elasticsearch.common.metrics.CounterMetric;
+import org.elasticsearch.common.metrics.LatencyHistogram;
 import org.elasticsearch.common.metrics.MeanMetric;
 import org.elasticsearch.common.regex.Regex;
 import org.elasticsearch.common.settings.Settings;
@@ -37,7 +38,7 @@ import static java.util.Collections.emptyMap;
 public final class ShardSearchStats {
 
     private final SearchSlowLog slowLogSearchService;
-    private final StatsHolder totalStats = new StatsHolder();
+    private final StatsHolder totalStats = new StatsHolder(true);
     private final CounterMetric openContexts = new CounterMetric();
     private volatile Map<String, StatsHolder> groupsStats = emptyMap();
 
@@ -51,18 +52,26 @@ public final class ShardSearchStats {
      * <tt>_all</tt> for all groups.
      */
     public SearchStats stats(String... groups) {
-        SearchStats.Stats total = totalStats.stats();
+        return stats(false, groups);
+    }
+
+    /**
+     * Returns the stats like {@link #stats(String...)} does. If <code>resetLatency</code> is set, the latency
+     * histograms are reset once they have been read.
+     */
+    public SearchStats stats(boolean resetLatency, String... groups) {
+        SearchStats.Stats total = totalStats.stats(resetLatency);
         Map<String, SearchStats.Stats> groupsSt = null;
         if (groups != null && groups.length > 0) {
             groupsSt = new HashMap<>(groupsStats.size());
             if (groups.length == 1 && groups[0].equals("_all")) {
                 for (Map.Entry<String, StatsHolder> entry : groupsStats.entrySet()) {
-                    groupsSt.put(entry.getKey(), entry.getValue().stats());
+                    groupsSt.put(entry.getKey(), entry.getValue().stats(false));
                 }
             } else {
                 for (Map.Entry<String, StatsHolder> entry : groupsStats.entrySet()) {
                     if (Regex.simpleMatch(groups, entry.getKey())) {
-                        groupsSt.put(entry.getKey(), entry.getValue().stats());
+                        groupsSt.put(entry.getKey(), entry.getValue().stats(false));
                     }
                 }
             }
@@ -90,6 +99,7 @@ public final class ShardSearchStats {
 
     public void onQueryPhase(SearchContext searchContext, long tookInNanos) {
         totalStats.queryMetric.inc(tookInNanos);
+        totalStats.queryLatency.inc(tookInNanos);
         totalStats.queryCurrent.dec();
         if (searchContext.groupStats() != null) {
             for (int i = 0; i < searchContext.groupStats().size(); i++) {
@@ -121,6 +131,7 @@ public final class ShardSearchStats {
 
     public void onFetchPhase(SearchContext searchContext, long tookInNanos) {
         totalStats.fetchMetric.inc(tookInNanos);
+        totalStats.fetchLatency.inc(tookInNanos);
         totalStats.fetchCurrent.dec();
         if (searchContext.groupStats() != null) {
             for (int i = 0; i < searchContext.groupStats().size(); i++) {
@@ -154,7 +165,7 @@ public final class ShardSearchStats {
             synchronized (this) {
                 stats = groupsStats.get(group);
                 if (stats == null) {
-                    stats = new StatsHolder();
+                    stats = new StatsHolder(false);
                     groupsStats = MapBuilder.newMapBuilder(groupsStats).put(group, stats).immutableMap();
                 }
             }
@@ -176,7 +187,9 @@ public final class ShardSearchStats {
 
     public void onFreeScrollContext(SearchContext context) {
         totalStats.scrollCurrent.dec();
-        totalStats.scrollMetric.inc(System.nanoTime() - context.getOriginNanoTime());
+        long tookInNanos = System.nanoTime() - context.getOriginNanoTime();
+        totalStats.scrollMetric.inc(tookInNanos);
+        totalStats.scrollLatency.inc(tookInNanos);
     }
 
     public void onRefreshSettings(Settings settings) {
@@ -190,12 +203,30 @@ public final class ShardSearchStats {
         public final CounterMetric queryCurrent = new CounterMetric();
         public final CounterMetric fetchCurrent = new CounterMetric();
         public final CounterMetric scrollCurrent = new CounterMetric();
+        // latency histograms are only tracked for the total stats, null for groups
+        public final LatencyHistogram queryLatency;
+        public final LatencyHistogram fetchLatency;
+        public final LatencyHistogram scrollLatency;
+
+        StatsHolder(boolean trackLatency) {
+            queryLatency = trackLatency ? new LatencyHistogram() : null;
+            fetchLatency = trackLatency ? new LatencyHistogram() : null;
+            scrollLatency = trackLatency ? new LatencyHistogram() : null;
+        }
 
-        public SearchStats.Stats stats() {
+        public SearchStats.Stats stats(boolean resetLatency) {
+            if (queryLatency == null) {
+                return new SearchStats.Stats(
+                        queryMetric.count(), TimeUnit.NANOSECONDS.toMillis(queryMetric.sum()), queryCurrent.count(),
+                        fetchMetric.count(), TimeUnit.NANOSECONDS.toMillis(fetchMetric.sum()), fetchCurrent.count(),
+                        scrollMetric.count(), TimeUnit.NANOSECONDS.toMillis(scrollMetric.sum()), scrollCurrent.count()
+                );
+            }
             return new SearchStats.Stats(
                     queryMetric.count(), TimeUnit.NANOSECONDS.toMillis(queryMetric.sum()), queryCurrent.count(),
                     fetchMetric.count(), TimeUnit.NANOSECONDS.toMillis(fetchMetric.sum()), fetchCurrent.count(),
-                    scrollMetric.count(), TimeUnit.NANOSECONDS.toMillis(scrollMetric.sum()), scrollCurrent.count()
+                    scrollMetric.count(), TimeUnit.NANOSECONDS.toMillis(scrollMetric.sum()), scrollCurrent.count(),
+                    queryLatency.stats(resetLatency), fetchLatency.stats(resetLatency), scrollLatency.stats(resetLatency)
             );
         }
 
@@ -207,6 +238,11 @@ public final class ShardSearchStats {
             queryMetric.clear();
             fetchMetric.clear();
             scrollMetric.clear();
+            if (queryLatency != null) {
+                queryLatency.clear();
+                fetchLatency.clear();
+                scrollLatency.clear();
+            }
         }
     }
 }
@@ -25,6 +25,7 @@ import org.apache.lucene.index.KeepOnlyLastCommitDeletionPolicy;
 import org.apache.lucene.index.SnapshotDeletionPolicy;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.QueryCachingPolicy;
+import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.UsageTrackingQueryCachingPolicy;
 import org.apache.lucene.store.AlreadyClosedException;
 import org.apache.lucene.util.CloseableThreadLocal;
@@ -163,6 +164,7 @@ public class IndexShard extends AbstractIndexShardComponent {
     private final EngineConfig engineConfig;
     private final TranslogConfig translogConfig;
     private final MergePolicyConfig mergePolicyConfig;
+    private final Sort indexSort;
     private final IndicesQueryCache indicesQueryCache;
     private final IndexEventListener indexEventListener;
     private final IndexSettings idxSettings;
@@ -171,6 +173,9 @@ public class IndexShard extends AbstractIndexShardComponent {
     private TimeValue refreshInterval;
 
     private volatile ScheduledFuture<?> refreshScheduledFuture;
+    private volatile TimeValue searchIdleAfter;
+    private volatile long lastSearcherAccess;
+    private final Object searchIdleMutex = new Object();
     protected volatile ShardRouting shardRouting;
     protected volatile IndexShardState state;
     protected final AtomicReference<Engine> currentEngineReference = new AtomicReference<>();
@@ -244,9 +249,13 @@ public class IndexShard extends AbstractIndexShardComponent {
         this.shardBitsetFilterCache = new ShardBitsetFilterCache(shardId, indexSettings);
         state = IndexShardState.CREATED;
         this.refreshInterval = settings.getAsTime(INDEX_REFRESH_INTERVAL, EngineConfig.DEFAULT_REFRESH_INTERVAL);
+        this.searchIdleAfter = settings.getAsTime(INDEX_SEARCH_IDLE_AFTER, DEFAULT_SEARCH_IDLE_AFTER);
+        this.lastSearcherAccess = threadPool.estimatedTimeInMillis();
         this.flushOnClose = settings.getAsBoolean(INDEX_FLUSH_ON_CLOSE, true);
         this.path = path;
         this.mergePolicyConfig = new MergePolicyConfig(logger, settings);
+        // mappings are applied before shards are created and index sort fields are validated on index creation
+        this.indexSort = new IndexSortConfig(settings).buildIndexSort(mapperService);
         /* create engine config */
         logger.debug("state: [CREATED]");
 
@@ -310,6 +319,14 @@ public class IndexShard extends AbstractIndexShardComponent {
         return indexFieldDataService;
     }
 
+    /**
+     * Returns the sort that merged segments of this shard are sorted by or <code>null</code> if the index has no sort configured.
+     */
+    @Nullable
+    public Sort getIndexSort() {
+        return indexSort;
+    }
+
     public MapperService mapperService() {
         return mapperService;
     }
@@ -588,14 +605,26 @@ public class IndexShard extends AbstractIndexShardComponent {
         return indexingService.stats(types);
     }
 
+    public IndexingStats indexingStats(boolean resetLatency, String... types) {
+        return indexingService.stats(resetLatency, types);
+    }
+
     public SearchStats searchStats(String... groups) {
         return searchService.stats(groups);
     }
 
+    public SearchStats searchStats(boolean resetLatency, String... groups) {
+        return searchService.stats(resetLatency, groups);
+    }
+
     public GetStats getStats() {
         return getService.stats();
     }
 
+    public GetStats getStats(boolean resetLatency) {
+        return getService.stats(resetLatency);
+    }
+
     public StoreStats storeStats() {
         try {
             return store.stats();
@@ -1004,6 +1033,39 @@ public class IndexShard extends AbstractIndexShardComponent {
     }
 
     public static final String INDEX_REFRESH_INTERVAL = "index.refresh_interval";
+    /**
+     * Index setting to stop scheduled refreshes on shards that haven't been searched for the given time. The next search
+     * refreshes the shard before it executes. Disabled by default. This setting is realtime updateable.
+     */
+    public static final String INDEX_SEARCH_IDLE_AFTER = "index.search.idle.after";
+    public static final TimeValue DEFAULT_SEARCH_IDLE_AFTER = TimeValue.timeValueMillis(-1);
+
+    /**
+     * Records that this shard is about to be searched. If the shard was search idle and has skipped scheduled refreshes
+     * since, it is refreshed first so that the search sees all changes that would otherwise have been made visible.
+     * The shard only stops being search idle once that refresh is done, concurrent searches wait for it.
+     */
+    public void markSearcherAccessed() {
+        if (isSearchIdle() == false) {
+            lastSearcherAccess = threadPool.estimatedTimeInMillis();
+            return;
+        }
+        synchronized (searchIdleMutex) {
+            if (isSearchIdle() && refreshInterval.millis() > 0 && readAllowedStates.contains(state) && getEngine().refreshNeeded()) {
+                refresh("search_idle");
+            }
+            lastSearcherAccess = threadPool.estimatedTimeInMillis();
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if this shard hasn't been searched for longer than <code>index.search.idle.after</code>, in which case
+     * scheduled refreshes are skipped.
+     */
+    public boolean isSearchIdle() {
+        final long idleAfterMillis = searchIdleAfter.millis();
+        return idleAfterMillis >= 0 && threadPool.estimatedTimeInMillis() - lastSearcherAccess >= idleAfterMillis;
+    }
 
     public void addShardFailureCallback(Callback<ShardFailure> onShardFailure) {
         this.shardEventListener.delegates.add(onShardFailure);
@@ -1172,6 +1234,12 @@ public class IndexShard extends AbstractIndexShardComponent {
                 }
             }
 
+            TimeValue searchIdleAfter = settings.getAsTime(INDEX_SEARCH_IDLE_AFTER, this.searchIdleAfter);
+            if (!searchIdleAfter.equals(this.searchIdleAfter)) {
+                logger.info("updating {} from [{}] to [{}]", INDEX_SEARCH_IDLE_AFTER, this.searchIdleAfter, searchIdleAfter);
+                this.searchIdleAfter = searchIdleAfter;
+            }
+
             long gcDeletesInMillis = settings.getAsTime(EngineConfig.INDEX_GC_DELETES_SETTING, TimeValue.timeValueMillis(config.getGcDeletesInMillis())).millis();
             if (gcDeletesInMillis != config.getGcDeletesInMillis()) {
                 logger.info("updating {} from [{}] to [{}]", EngineConfig.INDEX_GC_DELETES_SETTING, TimeValue.timeValueMillis(config.getGcDeletesInMillis()), TimeValue.timeValueMillis(gcDeletesInMillis));
@@ -1179,6 +1247,18 @@ public class IndexShard extends AbstractIndexShardComponent {
                 change = true;
             }
 
+            final TimeValue translogRetentionAge = settings.getAsTime(EngineConfig.INDEX_TRANSLOG_RETENTION_AGE_SETTING, config.getTranslogRetentionAge());
+            if (translogRetentionAge.equals(config.getTranslogRetentionAge()) == false) {
+                logger.info("updating {} from [{}] to [{}]", EngineConfig.INDEX_TRANSLOG_RETENTION_AGE_SETTING, config.getTranslogRetentionAge(), translogRetentionAge);
+                config.setTranslogRetentionAge(translogRetentionAge);
+            }
+
+            final ByteSizeValue translogRetentionSize = settings.getAsBytesSize(EngineConfig.INDEX_TRANSLOG_RETENTION_SIZE_SETTING, config.getTranslogRetentionSize());
+            if (translogRetentionSize.equals(config.getTranslogRetentionSize()) == false) {
+                logger.info("updating {} from [{}] to [{}]", EngineConfig.INDEX_TRANSLOG_RETENTION_SIZE_SETTING, config.getTranslogRetentionSize(), translogRetentionSize);
+                config.setTranslogRetentionSize(translogRetentionSize);
+            }
+
             final String versionMapSize = settings.get(EngineConfig.INDEX_VERSION_MAP_SIZE, config.getVersionMapSizeSetting());
             if (config.getVersionMapSizeSetting().equals(versionMapSize) == false) {
                 config.setVersionMapSizeSetting(versionMapSize);
@@ -1219,6 +1299,15 @@ public class IndexShard extends AbstractIndexShardComponent {
         return engine.getTranslog().newView();
     }
 
+    /**
+     * Returns a view of the translog operations since the synced flush with the given sync id, or <code>null</code>
+     * if they are not retained anymore. See {@link Engine#acquireRetainedTranslogView(String, long)}.
+     */
+    @Nullable
+    public Translog.View acquireRetainedTranslogView(String syncId, long numDocs) {
+        return getEngine().acquireRetainedTranslogView(syncId, numDocs);
+    }
+
     public List<Segment> segments(boolean verbose) {
         return getEngine().segments(verbose);
     }
@@ -1251,6 +1340,12 @@ public class IndexShard extends AbstractIndexShardComponent {
                 reschedule();
                 return;
             }
+            if (isSearchIdle()) {
+                // nobody searches this shard, the next search refreshes it instead, see markSearcherAccessed
+                logger.trace("skipping scheduled refresh, shard is search idle");
+                reschedule();
+                return;
+            }
             threadPool.executor(ThreadPool.Names.REFRESH).execute(new Runnable() {
                 @Override
                 public void run() {
@@ -1470,7 +1565,7 @@ public class IndexShard extends AbstractIndexShardComponent {
         };
         final Engine.Warmer engineWarmer = (searcher, toLevel) -> warmer.warm(searcher, this, idxSettings, toLevel);
         return new EngineConfig(shardId,
-            threadPool, indexingService, indexSettings, engineWarmer, store, deletionPolicy, mergePolicyConfig.getMergePolicy(), mergeSchedulerConfig,
+            threadPool, indexingService, indexSettings, engineWarmer, store, deletionPolicy, IndexSortConfig.wrapMergePolicy(mergePolicyConfig.getMergePolicy(), indexSort), mergeSchedulerConfig,
             mapperService.indexAnalyzer(), similarityService.similarity(mapperService), codecService, shardEventListener, translogRecoveryPerformer, indexCache.query(), cachingPolicy, translogConfig, inactiveTime);
     }
 
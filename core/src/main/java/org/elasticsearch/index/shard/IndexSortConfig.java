@@ -0,0 +1,205 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.index.shard;
+
+import org.apache.lucene.index.MergePolicy;
+import org.apache.lucene.index.SortingMergePolicy;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.SortedNumericSelector;
+import org.apache.lucene.search.SortedNumericSortField;
+import org.apache.lucene.search.SortedSetSelector;
+import org.apache.lucene.search.SortedSetSortField;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.fielddata.IndexFieldData;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.index.mapper.MapperService;
+import org.elasticsearch.index.mapper.core.NumberFieldMapper;
+import org.elasticsearch.index.mapper.core.StringFieldMapper;
+import org.elasticsearch.search.MultiValueMode;
+
+import java.util.Locale;
+
+/**
+ * Holds the configuration of the order segments of an index are kept in. When set, merged segments are sorted by
+ * the configured fields using Lucene's {@link SortingMergePolicy}, which allows search requests that sort on a prefix
+ * of these fields to stop collecting a sorted segment once they have found enough hits.
+ * <p>
+ * The sort is configured through the following index settings:
+ * <ul>
+ *     <li><code>index.sort.field</code>: the fields to sort on. Numeric, date and not analyzed string fields with doc
+ *     values are supported.</li>
+ *     <li><code>index.sort.order</code>: the order for each field, either <code>asc</code> (the default) or
+ *     <code>desc</code>.</li>
+ * </ul>
+ * Like the search request sort, multi-valued fields use their minimum value when sorted in ascending order and their
+ * maximum value otherwise, and documents that miss a value are sorted last.
+ */
+public final class IndexSortConfig {
+
+    public static final String INDEX_SORT_FIELD = "index.sort.field";
+    public static final String INDEX_SORT_ORDER = "index.sort.order";
+
+    private final String[] fields;
+    private final boolean[] reverse;
+
+    public IndexSortConfig(Settings indexSettings) {
+        this.fields = indexSettings.getAsArray(INDEX_SORT_FIELD);
+        String[] orders = indexSettings.getAsArray(INDEX_SORT_ORDER);
+        if (orders.length != 0 && orders.length != fields.length) {
+            throw new IllegalArgumentException("[" + INDEX_SORT_ORDER + "] must have the same number of values as [" + INDEX_SORT_FIELD
+                + "], got " + orders.length + " orders for " + fields.length + " fields");
+        }
+        this.reverse = new boolean[fields.length];
+        for (int i = 0; i < orders.length; i++) {
+            switch (orders[i].toLowerCase(Locale.ROOT)) {
+                case "asc":
+                    reverse[i] = false;
+                    break;
+                case "desc":
+                    reverse[i] = true;
+                    break;
+                default:
+                    throw new IllegalArgumentException("illegal value [" + orders[i] + "] for [" + INDEX_SORT_ORDER + "], must be one of [asc, desc]");
+            }
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if the index has a sort configured.
+     */
+    public boolean hasIndexSort() {
+        return fields.length > 0;
+    }
+
+    /**
+     * Builds the sort that segments of the index are kept in, or returns <code>null</code> if the index has no sort configured.
+     *
+     * @throws IllegalArgumentException if a sort field is not mapped or can't be used to sort the index
+     */
+    @Nullable
+    public Sort buildIndexSort(MapperService mapperService) {
+        if (hasIndexSort() == false) {
+            return null;
+        }
+        SortField[] sortFields = new SortField[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            MappedFieldType fieldType = mapperService.fullName(fields[i]);
+            if (fieldType == null) {
+                throw new IllegalArgumentException("unknown index sort field [" + fields[i] + "], index sort fields must be mapped when the index is created");
+            }
+            if (fieldType.hasDocValues() == false) {
+                throw new IllegalArgumentException("index sort field [" + fields[i] + "] must have doc values");
+            }
+            sortFields[i] = buildSortField(fieldType, reverse[i]);
+        }
+        return new Sort(sortFields);
+    }
+
+    private static SortField buildSortField(MappedFieldType fieldType, boolean reverse) {
+        final String name = fieldType.name();
+        if (fieldType instanceof NumberFieldMapper.NumberFieldType) {
+            final SortedNumericSelector.Type selector = reverse ? SortedNumericSelector.Type.MAX : SortedNumericSelector.Type.MIN;
+            final SortField sortField;
+            switch (fieldType.numericType()) {
+                case INT:
+                    sortField = new SortedNumericSortField(name, SortField.Type.INT, reverse, selector);
+                    sortField.setMissingValue(reverse ? Integer.MIN_VALUE : Integer.MAX_VALUE);
+                    break;
+                case LONG:
+                    sortField = new SortedNumericSortField(name, SortField.Type.LONG, reverse, selector);
+                    sortField.setMissingValue(reverse ? Long.MIN_VALUE : Long.MAX_VALUE);
+                    break;
+                case FLOAT:
+                    sortField = new SortedNumericSortField(name, SortField.Type.FLOAT, reverse, selector);
+                    sortField.setMissingValue(reverse ? Float.NEGATIVE_INFINITY : Float.POSITIVE_INFINITY);
+                    break;
+                case DOUBLE:
+                    sortField = new SortedNumericSortField(name, SortField.Type.DOUBLE, reverse, selector);
+                    sortField.setMissingValue(reverse ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY);
+                    break;
+                default:
+                    throw new IllegalArgumentException("index sort field [" + name + "] has unsupported numeric type [" + fieldType.numericType() + "]");
+            }
+            return sortField;
+        } else if (fieldType instanceof StringFieldMapper.StringFieldType && fieldType.tokenized() == false) {
+            final SortedSetSortField sortField = new SortedSetSortField(name, reverse,
+                reverse ? SortedSetSelector.Type.MAX : SortedSetSelector.Type.MIN);
+            sortField.setMissingValue(reverse ? SortField.STRING_FIRST : SortField.STRING_LAST);
+            return sortField;
+        }
+        throw new IllegalArgumentException("index sort field [" + name + "] of type [" + fieldType.typeName()
+            + "] is not supported, only numeric, date and not analyzed string fields can be used to sort the index");
+    }
+
+    /**
+     * Wraps the given merge policy so that it sorts merged segments by the index sort, or returns it as-is if the
+     * index has no sort configured.
+     */
+    public static MergePolicy wrapMergePolicy(MergePolicy mergePolicy, @Nullable Sort indexSort) {
+        return indexSort == null ? mergePolicy : new SortingMergePolicy(mergePolicy, indexSort);
+    }
+
+    /**
+     * Returns <code>true</code> if a search that sorts by the given sort can stop collecting a segment sorted by the
+     * index sort once it has collected enough hits, that is if the search sort is a prefix of the index sort. Search sort
+     * fields must not only use the same fields and orders but also pick the same value of multi-valued documents, sort
+     * missing values last and not sort on nested documents.
+     */
+    public static boolean canEarlyTerminate(@Nullable Sort indexSort, @Nullable Sort searchSort) {
+        if (indexSort == null || searchSort == null) {
+            return false;
+        }
+        final SortField[] indexSortFields = indexSort.getSort();
+        final SortField[] searchSortFields = searchSort.getSort();
+        if (searchSortFields.length > indexSortFields.length) {
+            return false;
+        }
+        for (int i = 0; i < searchSortFields.length; i++) {
+            final SortField searchSortField = searchSortFields[i];
+            final SortField indexSortField = indexSortFields[i];
+            if (searchSortField.getField() == null
+                || searchSortField.getField().equals(indexSortField.getField()) == false
+                || searchSortField.getReverse() != indexSortField.getReverse()) {
+                return false;
+            }
+            if (searchSortField.getComparatorSource() instanceof IndexFieldData.XFieldComparatorSource) {
+                if (sortsLikeIndexSort((IndexFieldData.XFieldComparatorSource) searchSortField.getComparatorSource(),
+                    searchSortField.getReverse()) == false) {
+                    return false;
+                }
+            } else if (searchSortField.equals(indexSortField) == false) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Whether the search sort built by the given source sorts like the index sort, see {@link #buildSortField}.
+     */
+    private static boolean sortsLikeIndexSort(IndexFieldData.XFieldComparatorSource source, boolean reverse) {
+        final Object missingValue = source.sortMissingValue();
+        final MultiValueMode indexSortMode = reverse ? MultiValueMode.MAX : MultiValueMode.MIN;
+        return (missingValue == null || "_last".equals(missingValue))
+            && source.sortMode() == indexSortMode
+            && source.nested() == null;
+    }
+}
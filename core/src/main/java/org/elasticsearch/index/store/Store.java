@@ -34,11 +34,14 @@ import org.apache.lucene.store.BufferedChecksum;
 import org.apache.lucene.store.ByteArrayDataInput;
 import org.apache.lucene.store.ChecksumIndexInput;
 import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.FileSwitchDirectory;
 import org.apache.lucene.store.FilterDirectory;
 import org.apache.lucene.store.IOContext;
 import org.apache.lucene.store.IndexInput;
 import org.apache.lucene.store.IndexOutput;
 import org.apache.lucene.store.Lock;
+import org.apache.lucene.store.RateLimitedFSDirectory;
 import org.apache.lucene.store.SimpleFSDirectory;
 import org.apache.lucene.util.ArrayUtil;
 import org.apache.lucene.util.BytesRef;
@@ -47,6 +50,7 @@ import org.apache.lucene.util.IOUtils;
 import org.apache.lucene.util.Version;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.collect.Tuple;
@@ -167,6 +171,33 @@ public class Store extends AbstractIndexShardComponent implements Closeable, Ref
         return directory;
     }
 
+    /**
+     * Returns the path of the given file if this store's directory reads it as is from the file system, or <code>null</code>
+     * if the file must be read through {@link #directory()}, e.g. because the directory is wrapped by a plugin or for testing.
+     * Callers that read the file through the returned path must hold a reference to this store and to a commit that
+     * contains the file.
+     */
+    @Nullable
+    public Path fileSystemPath(String name) {
+        ensureOpen();
+        Directory delegate = directory.getDelegate();
+        if (delegate instanceof RateLimitedFSDirectory) {
+            delegate = ((RateLimitedFSDirectory) delegate).getDelegate();
+        }
+        if (delegate instanceof FileSwitchDirectory) {
+            final Directory primary = ((FileSwitchDirectory) delegate).getPrimaryDir();
+            final Directory secondary = ((FileSwitchDirectory) delegate).getSecondaryDir();
+            if (primary instanceof FSDirectory && secondary instanceof FSDirectory
+                    && ((FSDirectory) primary).getDirectory().equals(((FSDirectory) secondary).getDirectory())) {
+                delegate = primary;
+            }
+        }
+        if (delegate instanceof FSDirectory) {
+            return ((FSDirectory) delegate).getDirectory().resolve(name);
+        }
+        return null;
+    }
+
     /**
      * Returns the last committed segments info for this store
      *
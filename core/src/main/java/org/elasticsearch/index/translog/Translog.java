@@ -490,6 +490,33 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
         }
     }
 
+    /**
+     * Returns a new view that retains the same operations as the given view, which stays open. The new
+     * view can be closed independently of the given one.
+     */
+    public Translog.View newView(Translog.View from) {
+        // the read lock prevents the current translog from being rolled while we copy the readers
+        try (ReleasableLock lock = readLock.acquire()) {
+            ArrayList<TranslogReader> translogs = new ArrayList<>();
+            try {
+                synchronized (from) {
+                    from.ensureOpen();
+                    // all but the last reader are immutable, the last one always follows the current translog
+                    for (int i = 0; i < from.orderedTranslogs.size() - 1; i++) {
+                        translogs.add(((ImmutableTranslogReader) from.orderedTranslogs.get(i)).clone());
+                    }
+                }
+                translogs.add(current.newReaderFromWriter());
+                View view = new View(translogs, onViewClose);
+                outstandingViews.add(view);
+                translogs.clear();
+                return view;
+            } finally {
+                IOUtils.closeWhileHandlingException(translogs);
+            }
+        }
+    }
+
     /**
      * Sync's the translog.
      */
@@ -36,6 +36,7 @@ import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.component.AbstractLifecycleComponent;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.io.FileSystemUtils;
+import org.elasticsearch.common.metrics.LatencyStats;
 import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.TimeValue;
@@ -101,6 +102,8 @@ public class IndicesService extends AbstractLifecycleComponent<IndicesService> i
     private final ClusterService clusterService;
     private final IndexNameExpressionResolver indexNameExpressionResolver;
     private volatile Map<String, IndexService> indices = emptyMap();
+    // the names of the indices that are being created, mapped to the thread that creates them, guarded by this
+    private final Map<String, Thread> indicesBeingCreated = new HashMap<>();
     private final Map<Index, List<PendingDelete>> pendingDeletes = new HashMap<>();
     private final OldShardsStats oldShardsStats = new OldShardsStats();
     private final IndexStoreConfig indexStoreConfig;
@@ -167,7 +170,8 @@ public class IndicesService extends AbstractLifecycleComponent<IndicesService> i
     /**
      * Returns the node stats indices stats. The <tt>includePrevious</tt> flag controls
      * if old shards stats will be aggregated as well (only for relevant stats, such as
-     * refresh and indexing, not for docs/store).
+     * refresh and indexing, not for docs/store). If latencies are reset, the latencies
+     * of old shards are reset along with the ones of the current shards.
      */
     public NodeIndicesStats stats(boolean includePrevious) {
         return stats(includePrevious, new CommonStatsFlags().all());
@@ -177,31 +181,8 @@ public class IndicesService extends AbstractLifecycleComponent<IndicesService> i
         CommonStats oldStats = new CommonStats(flags);
 
         if (includePrevious) {
-            Flag[] setFlags = flags.getFlags();
-            for (Flag flag : setFlags) {
-                switch (flag) {
-                    case Get:
-                        oldStats.get.add(oldShardsStats.getStats);
-                        break;
-                    case Indexing:
-                        oldStats.indexing.add(oldShardsStats.indexingStats);
-                        break;
-                    case Search:
-                        oldStats.search.add(oldShardsStats.searchStats);
-                        break;
-                    case Merge:
-                        oldStats.merge.add(oldShardsStats.mergeStats);
-                        break;
-                    case Refresh:
-                        oldStats.refresh.add(oldShardsStats.refreshStats);
-                        break;
-                    case Recovery:
-                        oldStats.recoveryStats.add(oldShardsStats.recoveryStats);
-                        break;
-                    case Flush:
-                        oldStats.flush.add(oldShardsStats.flushStats);
-                        break;
-                }
+            synchronized (oldShardsStats) {
+                addOldShardsStats(oldStats, flags);
             }
         }
 
@@ -227,6 +208,52 @@ public class IndicesService extends AbstractLifecycleComponent<IndicesService> i
         return new NodeIndicesStats(oldStats, statsByShard);
     }
 
+    private void addOldShardsStats(CommonStats oldStats, CommonStatsFlags flags) {
+        for (Flag flag : flags.getFlags()) {
+            switch (flag) {
+                case Get:
+                    oldStats.get.add(oldShardsStats.getStats);
+                    if (flags.resetLatency()) {
+                        resetLatency(oldShardsStats.getStats.getLatency());
+                    }
+                    break;
+                case Indexing:
+                    oldStats.indexing.add(oldShardsStats.indexingStats);
+                    if (flags.resetLatency()) {
+                        resetLatency(oldShardsStats.indexingStats.getTotal().getIndexLatency());
+                        resetLatency(oldShardsStats.indexingStats.getTotal().getDeleteLatency());
+                    }
+                    break;
+                case Search:
+                    oldStats.search.add(oldShardsStats.searchStats);
+                    if (flags.resetLatency()) {
+                        resetLatency(oldShardsStats.searchStats.getTotal().getQueryLatency());
+                        resetLatency(oldShardsStats.searchStats.getTotal().getFetchLatency());
+                        resetLatency(oldShardsStats.searchStats.getTotal().getScrollLatency());
+                    }
+                    break;
+                case Merge:
+                    oldStats.merge.add(oldShardsStats.mergeStats);
+                    break;
+                case Refresh:
+                    oldStats.refresh.add(oldShardsStats.refreshStats);
+                    break;
+                case Recovery:
+                    oldStats.recoveryStats.add(oldShardsStats.recoveryStats);
+                    break;
+                case Flush:
+                    oldStats.flush.add(oldShardsStats.flushStats);
+                    break;
+            }
+        }
+    }
+
+    private static void resetLatency(@Nullable LatencyStats latency) {
+        if (latency != null) {
+            latency.reset();
+        }
+    }
+
     /**
      * Returns <tt>true</tt> if changes (adding / removing) indices, shards and so on are allowed.
      */
@@ -253,6 +280,24 @@ public class IndicesService extends AbstractLifecycleComponent<IndicesService> i
         return indices.get(index);
     }
 
+    /**
+     * Waits until the given index is no longer being created by another thread. Must be called while holding the lock
+     * on this service, which is released while waiting. Only used before removing an index or deleting its store, lookups
+     * never wait since they may run on network threads.
+     */
+    private void awaitPendingCreation(String index) {
+        assert Thread.holdsLock(this);
+        Thread creator;
+        while ((creator = indicesBeingCreated.get(index)) != null && creator != Thread.currentThread()) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ElasticsearchException("interrupted while waiting for index [" + index + "] to be created", e);
+            }
+        }
+    }
+
     /**
      * Returns an IndexService for the specified index if exists otherwise a {@link IndexNotFoundException} is thrown.
      */
@@ -267,50 +312,60 @@ public class IndicesService extends AbstractLifecycleComponent<IndicesService> i
 
 
     /**
-     * Creates a new {@link IndexService} for the given metadata.
+     * Creates a new {@link IndexService} for the given metadata. Distinct indices may be created concurrently.
      * @param indexMetaData the index metadata to create the index for
      * @param builtInListeners a list of built-in lifecycle {@link IndexEventListener} that should should be used along side with the per-index listeners
-     * @throws IndexAlreadyExistsException if the index already exists.
+     * @throws IndexAlreadyExistsException if the index already exists or is being created.
      */
-    public synchronized IndexService createIndex(final NodeServicesProvider nodeServicesProvider, IndexMetaData indexMetaData, List<IndexEventListener> builtInListeners) throws IOException {
+    public IndexService createIndex(final NodeServicesProvider nodeServicesProvider, IndexMetaData indexMetaData, List<IndexEventListener> builtInListeners) throws IOException {
         if (!lifecycle.started()) {
             throw new IllegalStateException("Can't create an index [" + indexMetaData.getIndex() + "], node is closed");
         }
         final String indexName = indexMetaData.getIndex();
-        final Predicate<String> indexNameMatcher = (indexExpression) -> indexNameExpressionResolver.matchesIndex(indexName, indexExpression, clusterService.state());
-        final IndexSettings idxSettings = new IndexSettings(indexMetaData, this.settings, Collections.emptyList(), indexNameMatcher);
         Index index = new Index(indexMetaData.getIndex());
-        if (indices.containsKey(index.name())) {
-            throw new IndexAlreadyExistsException(index);
-        }
-        logger.debug("creating Index [{}], shards [{}]/[{}{}]",
-                indexMetaData.getIndex(),
-                idxSettings.getNumberOfShards(),
-                idxSettings.getNumberOfReplicas(),
-                idxSettings.isShadowReplicaIndex() ? "s" : "");
-
-        final IndexModule indexModule = new IndexModule(idxSettings, indexStoreConfig, analysisRegistry);
-        pluginsService.onIndexModule(indexModule);
-        for (IndexEventListener listener : builtInListeners) {
-            indexModule.addIndexEventListener(listener);
+        synchronized (this) {
+            if (indices.containsKey(index.name()) || indicesBeingCreated.putIfAbsent(index.name(), Thread.currentThread()) != null) {
+                throw new IndexAlreadyExistsException(index);
+            }
         }
-        indexModule.addIndexEventListener(oldShardsStats);
-        final IndexEventListener listener = indexModule.freeze();
-        listener.beforeIndexCreated(index, idxSettings.getSettings());
-        final IndexService indexService = indexModule.newIndexService(nodeEnv, this, nodeServicesProvider, mapperRegistry);
-        boolean success = false;
         try {
-            assert indexService.getIndexEventListener() == listener;
-            listener.afterIndexCreated(indexService);
-            indices = newMapBuilder(indices).put(index.name(), indexService).immutableMap();
-            success = true;
-            return indexService;
+            final Predicate<String> indexNameMatcher = (indexExpression) -> indexNameExpressionResolver.matchesIndex(indexName, indexExpression, clusterService.state());
+            final IndexSettings idxSettings = new IndexSettings(indexMetaData, this.settings, Collections.emptyList(), indexNameMatcher);
+            logger.debug("creating Index [{}], shards [{}]/[{}{}]",
+                    indexMetaData.getIndex(),
+                    idxSettings.getNumberOfShards(),
+                    idxSettings.getNumberOfReplicas(),
+                    idxSettings.isShadowReplicaIndex() ? "s" : "");
+
+            final IndexModule indexModule = new IndexModule(idxSettings, indexStoreConfig, analysisRegistry);
+            pluginsService.onIndexModule(indexModule);
+            for (IndexEventListener listener : builtInListeners) {
+                indexModule.addIndexEventListener(listener);
+            }
+            indexModule.addIndexEventListener(oldShardsStats);
+            final IndexEventListener listener = indexModule.freeze();
+            listener.beforeIndexCreated(index, idxSettings.getSettings());
+            final IndexService indexService = indexModule.newIndexService(nodeEnv, this, nodeServicesProvider, mapperRegistry);
+            boolean success = false;
+            try {
+                assert indexService.getIndexEventListener() == listener;
+                listener.afterIndexCreated(indexService);
+                synchronized (this) {
+                    indices = newMapBuilder(indices).put(index.name(), indexService).immutableMap();
+                }
+                success = true;
+                return indexService;
+            } finally {
+                if (success == false) {
+                    indexService.close("plugins_failed", true);
+                }
+            }
         } finally {
-            if (success == false) {
-                indexService.close("plugins_failed", true);
+            synchronized (this) {
+                indicesBeingCreated.remove(index.name());
+                notifyAll();
             }
         }
-
     }
 
     /**
@@ -328,6 +383,7 @@ public class IndicesService extends AbstractLifecycleComponent<IndicesService> i
             final IndexService indexService;
             final IndexEventListener listener;
             synchronized (this) {
+                awaitPendingCreation(index);
                 if (indices.containsKey(index) == false) {
                     return;
                 }
@@ -418,6 +474,8 @@ public class IndicesService extends AbstractLifecycleComponent<IndicesService> i
         if (nodeEnv.hasNodeFile()) {
             synchronized (this) {
                 String indexName = metaData.getIndex();
+                // an index that is being created is about to use the store, we must not delete it underneath
+                awaitPendingCreation(indexName);
                 if (indices.containsKey(indexName)) {
                     String localUUid = indices.get(indexName).indexUUID();
                     throw new IllegalStateException("Can't delete index store for [" + indexName + "] - it's still part of the indices service [" + localUUid + "] [" + metaData.getIndexUUID() + "]");
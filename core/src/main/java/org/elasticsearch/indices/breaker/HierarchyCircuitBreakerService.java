@@ -29,7 +29,10 @@ import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.MemorySizeValue;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
@@ -38,7 +41,9 @@ import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * CircuitBreakerService that attempts to redistribute space between breakers
- * if tripped
+ * if tripped. The parent breaker either checks the sum of the usages of the child
+ * breakers, or, if <code>indices.breaker.total.use_real_memory</code> is set, the
+ * real heap usage as reported by the JVM.
  */
 public class HierarchyCircuitBreakerService extends CircuitBreakerService {
 
@@ -46,7 +51,13 @@ public class HierarchyCircuitBreakerService extends CircuitBreakerService {
 
     private final ConcurrentMap<String, CircuitBreaker> breakers = new ConcurrentHashMap();
 
-    public static final Setting<ByteSizeValue> TOTAL_CIRCUIT_BREAKER_LIMIT_SETTING = Setting.byteSizeSetting("indices.breaker.total.limit", "70%", true, Setting.Scope.CLUSTER);
+    private static final MemoryMXBean MEMORY_MX_BEAN = ManagementFactory.getMemoryMXBean();
+
+    public static final Setting<Boolean> USE_REAL_MEMORY_USAGE_SETTING = Setting.boolSetting("indices.breaker.total.use_real_memory", false, false, Setting.Scope.CLUSTER);
+    // the real memory usage includes garbage that has not been collected yet, so it needs more headroom than the accounted usage
+    public static final Setting<ByteSizeValue> TOTAL_CIRCUIT_BREAKER_LIMIT_SETTING = new Setting<>("indices.breaker.total.limit",
+            (s) -> USE_REAL_MEMORY_USAGE_SETTING.get(s) ? "95%" : "70%",
+            (s) -> MemorySizeValue.parseBytesSizeValueOrHeapRatio(s, "indices.breaker.total.limit"), true, Setting.Scope.CLUSTER);
 
     public static final Setting<ByteSizeValue> FIELDDATA_CIRCUIT_BREAKER_LIMIT_SETTING = Setting.byteSizeSetting("indices.breaker.fielddata.limit", "60%", true, Setting.Scope.CLUSTER);
     public static final Setting<Double> FIELDDATA_CIRCUIT_BREAKER_OVERHEAD_SETTING = Setting.doubleSetting("indices.breaker.fielddata.overhead", 1.03d, 0.0d, true, Setting.Scope.CLUSTER);
@@ -56,11 +67,17 @@ public class HierarchyCircuitBreakerService extends CircuitBreakerService {
     public static final Setting<Double> REQUEST_CIRCUIT_BREAKER_OVERHEAD_SETTING = Setting.doubleSetting("indices.breaker.request.overhead", 1.0d, 0.0d, true, Setting.Scope.CLUSTER);
     public static final Setting<CircuitBreaker.Type> REQUEST_CIRCUIT_BREAKER_TYPE_SETTING = new Setting<>("indices.breaker.request.type", "memory", CircuitBreaker.Type::parseValue, false, Setting.Scope.CLUSTER);
 
+    public static final Setting<ByteSizeValue> IN_FLIGHT_REQUESTS_CIRCUIT_BREAKER_LIMIT_SETTING = Setting.byteSizeSetting("network.breaker.inflight_requests.limit", "100%", true, Setting.Scope.CLUSTER);
+    public static final Setting<Double> IN_FLIGHT_REQUESTS_CIRCUIT_BREAKER_OVERHEAD_SETTING = Setting.doubleSetting("network.breaker.inflight_requests.overhead", 1.0d, 0.0d, true, Setting.Scope.CLUSTER);
+
 
 
     private volatile BreakerSettings parentSettings;
     private volatile BreakerSettings fielddataSettings;
     private volatile BreakerSettings requestSettings;
+    private volatile BreakerSettings inFlightRequestsSettings;
+
+    private final boolean trackRealMemoryUsage;
 
     // Tripped count for when redistribution was attempted but wasn't successful
     private final AtomicLong parentTripCount = new AtomicLong(0);
@@ -80,17 +97,26 @@ public class HierarchyCircuitBreakerService extends CircuitBreakerService {
                 REQUEST_CIRCUIT_BREAKER_TYPE_SETTING.get(settings)
         );
 
+        this.inFlightRequestsSettings = new BreakerSettings(CircuitBreaker.IN_FLIGHT_REQUESTS,
+                IN_FLIGHT_REQUESTS_CIRCUIT_BREAKER_LIMIT_SETTING.get(settings).bytes(),
+                IN_FLIGHT_REQUESTS_CIRCUIT_BREAKER_OVERHEAD_SETTING.get(settings),
+                CircuitBreaker.Type.MEMORY
+        );
+
         this.parentSettings = new BreakerSettings(CircuitBreaker.PARENT, TOTAL_CIRCUIT_BREAKER_LIMIT_SETTING.get(settings).bytes(), 1.0, CircuitBreaker.Type.PARENT);
+        this.trackRealMemoryUsage = USE_REAL_MEMORY_USAGE_SETTING.get(settings);
         if (logger.isTraceEnabled()) {
             logger.trace("parent circuit breaker with settings {}", this.parentSettings);
         }
 
         registerBreaker(this.requestSettings);
         registerBreaker(this.fielddataSettings);
+        registerBreaker(this.inFlightRequestsSettings);
 
         clusterSettings.addSettingsUpdateConsumer(TOTAL_CIRCUIT_BREAKER_LIMIT_SETTING, this::setTotalCircuitBreakerLimit, this::validateTotalCircuitBreakerLimit);
         clusterSettings.addSettingsUpdateConsumer(FIELDDATA_CIRCUIT_BREAKER_LIMIT_SETTING, FIELDDATA_CIRCUIT_BREAKER_OVERHEAD_SETTING, this::setFieldDataBreakerLimit);
         clusterSettings.addSettingsUpdateConsumer(REQUEST_CIRCUIT_BREAKER_LIMIT_SETTING, REQUEST_CIRCUIT_BREAKER_OVERHEAD_SETTING, this::setRequestBreakerLimit);
+        clusterSettings.addSettingsUpdateConsumer(IN_FLIGHT_REQUESTS_CIRCUIT_BREAKER_LIMIT_SETTING, IN_FLIGHT_REQUESTS_CIRCUIT_BREAKER_OVERHEAD_SETTING, this::setInFlightRequestsBreakerLimit);
     }
     private void setRequestBreakerLimit(ByteSizeValue newRequestMax, Double newRequestOverhead) {
         BreakerSettings newRequestSettings = new BreakerSettings(CircuitBreaker.REQUEST, newRequestMax.bytes(), newRequestOverhead,
@@ -100,6 +126,14 @@ public class HierarchyCircuitBreakerService extends CircuitBreakerService {
         logger.info("Updated breaker settings request: {}", newRequestSettings);
     }
 
+    private void setInFlightRequestsBreakerLimit(ByteSizeValue newInFlightRequestsMax, Double newInFlightRequestsOverhead) {
+        BreakerSettings newInFlightRequestsSettings = new BreakerSettings(CircuitBreaker.IN_FLIGHT_REQUESTS, newInFlightRequestsMax.bytes(),
+                newInFlightRequestsOverhead, HierarchyCircuitBreakerService.this.inFlightRequestsSettings.getType());
+        registerBreaker(newInFlightRequestsSettings);
+        HierarchyCircuitBreakerService.this.inFlightRequestsSettings = newInFlightRequestsSettings;
+        logger.info("Updated breaker settings for in-flight requests: {}", newInFlightRequestsSettings);
+    }
+
     private void setFieldDataBreakerLimit(ByteSizeValue newFielddataMax, Double newFielddataOverhead) {
         long newFielddataLimitBytes = newFielddataMax == null ? HierarchyCircuitBreakerService.this.fielddataSettings.getLimit() : newFielddataMax.bytes();
         newFielddataOverhead = newFielddataOverhead == null ? HierarchyCircuitBreakerService.this.fielddataSettings.getOverhead() : newFielddataOverhead;
@@ -153,6 +187,10 @@ public class HierarchyCircuitBreakerService extends CircuitBreakerService {
             allStats.add(stats(breaker.getName()));
             parentEstimated += breaker.getUsed();
         }
+        if (trackRealMemoryUsage) {
+            // the parent breaker decides based on the real memory usage, report what it sees
+            parentEstimated = currentMemoryUsage();
+        }
         // Manually add the parent breaker settings since they aren't part of the breaker map
         allStats.add(new CircuitBreakerStats(CircuitBreaker.PARENT, parentSettings.getLimit(),
                 parentEstimated, 1.0, parentTripCount.get()));
@@ -166,21 +204,49 @@ public class HierarchyCircuitBreakerService extends CircuitBreakerService {
     }
 
     /**
-     * Checks whether the parent breaker has been tripped
+     * Checks whether the parent breaker has been tripped. If real memory usage is tracked, the parent breaker trips
+     * if the heap usage reported by the JVM plus the bytes that are about to be reserved exceeds the limit. Otherwise
+     * it trips if the sum of the usages of all child breakers exceeds the limit.
+     *
+     * @param newBytesReserved  the number of bytes that were just added to a child breaker
      */
-    public void checkParentLimit(String label) throws CircuitBreakingException {
+    public void checkParentLimit(long newBytesReserved, String label) throws CircuitBreakingException {
         long totalUsed = 0;
-        for (CircuitBreaker breaker : this.breakers.values()) {
-            totalUsed += (breaker.getUsed() * breaker.getOverhead());
+        if (trackRealMemoryUsage) {
+            if (newBytesReserved <= 0) {
+                // releasing memory, or reserving none, must never trip the breaker
+                return;
+            }
+            totalUsed = currentMemoryUsage() + newBytesReserved;
+        } else {
+            for (CircuitBreaker breaker : this.breakers.values()) {
+                totalUsed += (breaker.getUsed() * breaker.getOverhead());
+            }
         }
 
         long parentLimit = this.parentSettings.getLimit();
         if (totalUsed > parentLimit) {
             this.parentTripCount.incrementAndGet();
-            throw new CircuitBreakingException("[parent] Data too large, data for [" +
-                    label + "] would be larger than limit of [" +
-                    parentLimit + "/" + new ByteSizeValue(parentLimit) + "]",
-                    totalUsed, parentLimit);
+            String message = "[parent] Data too large, data for [" + label + "] would be larger than limit of [" +
+                    parentLimit + "/" + new ByteSizeValue(parentLimit) + "]";
+            if (trackRealMemoryUsage) {
+                message += ", real usage: [" + (totalUsed - newBytesReserved) + "/" + new ByteSizeValue(totalUsed - newBytesReserved) +
+                        "], new bytes reserved: [" + newBytesReserved + "/" + new ByteSizeValue(newBytesReserved) + "]";
+            }
+            logger.debug(message);
+            throw new CircuitBreakingException(message, totalUsed, parentLimit);
+        }
+    }
+
+    /**
+     * Returns the heap usage reported by the JVM, including garbage that has not been collected yet.
+     */
+    protected long currentMemoryUsage() {
+        try {
+            return MEMORY_MX_BEAN.getHeapMemoryUsage().getUsed();
+        } catch (IllegalArgumentException e) {
+            // the JVM can report inconsistent pool sizes while the heap is being resized, see JDK-6870537
+            return 0;
         }
     }
 
@@ -0,0 +1,271 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.indices.cache.docfreq;
+
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.elasticsearch.common.cache.Cache;
+import org.elasticsearch.common.cache.CacheBuilder;
+import org.elasticsearch.common.cache.RemovalListener;
+import org.elasticsearch.common.cache.RemovalNotification;
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.MemorySizeValue;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.indices.breaker.CircuitBreakerService;
+
+import java.io.Closeable;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The node level cache of the document frequencies of terms per segment, optionally counting only the documents that
+ * match a filter, see {@link org.elasticsearch.index.cache.docfreq.DocFreqCache}.
+ * <p>
+ * The cache holds at most <code>indices.cache.doc_freq.size</code> bytes (defaults to <code>1%</code> of the heap) and
+ * evicts the least recently used frequencies beyond that. Cached frequencies are also accounted for on the fielddata
+ * circuit breaker, frequencies that would trip it are not cached. Everything that is cached for a segment is dropped
+ * once the segment is closed. The keys of the cached frequencies are also tracked per segment for that purpose, so that
+ * closing a segment does not need to go through the whole cache.
+ */
+public class IndicesDocFreqCache extends AbstractComponent implements RemovalListener<IndicesDocFreqCache.Key, Integer>,
+        LeafReader.CoreClosedListener, Closeable {
+
+    public static final String INDICES_CACHE_DOC_FREQ_SIZE = "indices.cache.doc_freq.size";
+
+    // the key, the term and its bytes, the boxed frequency, the entry of the cache and the entry of the keys of the segment
+    private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(Key.class)
+        + RamUsageEstimator.shallowSizeOfInstance(BytesRef.class) + RamUsageEstimator.NUM_BYTES_ARRAY_HEADER
+        + RamUsageEstimator.shallowSizeOfInstance(Integer.class) + 6 * RamUsageEstimator.NUM_BYTES_OBJECT_REF
+        + RamUsageEstimator.NUM_BYTES_OBJECT_HEADER + RamUsageEstimator.NUM_BYTES_LONG
+        + 3 * RamUsageEstimator.NUM_BYTES_OBJECT_REF + RamUsageEstimator.NUM_BYTES_OBJECT_HEADER + RamUsageEstimator.NUM_BYTES_INT;
+
+    private final CircuitBreakerService breakerService;
+    private final Cache<Key, Integer> cache;
+    // the keys of the cached frequencies per segment core, a segment is registered until it is closed
+    private final ConcurrentMap<Object, Set<Key>> keysByCore = ConcurrentCollections.newConcurrentMap();
+
+    @Inject
+    public IndicesDocFreqCache(Settings settings, CircuitBreakerService breakerService) {
+        super(settings);
+        this.breakerService = breakerService;
+        final String sizeString = settings.get(INDICES_CACHE_DOC_FREQ_SIZE, "1%");
+        final ByteSizeValue size = MemorySizeValue.parseBytesSizeValueOrHeapRatio(sizeString, INDICES_CACHE_DOC_FREQ_SIZE);
+        logger.debug("using [node] doc freq cache with size [{}], actual_size [{}]", sizeString, size);
+        this.cache = CacheBuilder.<Key, Integer>builder()
+            .setMaximumWeight(size.bytes())
+            .weigher((key, value) -> key.ramBytesUsed())
+            .removalListener(this)
+            .build();
+    }
+
+    /**
+     * Returns the cached frequencies of the terms of the given field in the given segment of the given index, counting
+     * only documents that match the given filter if it is not <code>null</code>.
+     */
+    public Segment segment(Index index, LeafReaderContext context, String field, @Nullable Query filter) {
+        final LeafReader reader = context.reader();
+        final Object coreKey = reader.getCoreCacheKey();
+        Set<Key> keys = keysByCore.get(coreKey);
+        if (keys == null) {
+            keys = ConcurrentCollections.newConcurrentSet();
+            final Set<Key> existing = keysByCore.putIfAbsent(coreKey, keys);
+            if (existing == null) {
+                reader.addCoreClosedListener(this);
+            } else {
+                keys = existing;
+            }
+        }
+        // deletes only ever grow on a segment, so the number of deleted documents identifies its live documents, which
+        // are only relevant when documents are counted through a filter, the terms dictionary ignores them
+        final int numDeletedDocs = filter == null ? -1 : reader.numDeletedDocs();
+        return new Segment(index, coreKey, keys, numDeletedDocs, field, filter);
+    }
+
+    /**
+     * The number of cached frequencies.
+     */
+    public int count() {
+        return cache.count();
+    }
+
+    /**
+     * The estimated memory used by the cached frequencies.
+     */
+    public long ramBytesUsed() {
+        return cache.weight();
+    }
+
+    private int get(Key key) {
+        final Integer value = cache.get(key);
+        return value == null ? -1 : value;
+    }
+
+    private void put(Set<Key> keys, Key key, int value) {
+        try {
+            breakerService.getBreaker(CircuitBreaker.FIELDDATA).addEstimateBytesAndMaybeBreak(key.ramBytesUsed(), "doc_freq");
+        } catch (CircuitBreakingException e) {
+            // caching is best effort, the frequency is simply looked up again next time
+            return;
+        }
+        // the key is tracked once it is cached since replacing an equal key untracks it
+        cache.put(key, value);
+        keys.add(key);
+    }
+
+    @Override
+    public void onRemoval(RemovalNotification<Key, Integer> notification) {
+        final Key key = notification.getKey();
+        breakerService.getBreaker(CircuitBreaker.FIELDDATA).addWithoutBreaking(-key.ramBytesUsed());
+        final Set<Key> keys = keysByCore.get(key.coreKey);
+        if (keys != null) {
+            keys.remove(key);
+        }
+    }
+
+    @Override
+    public void onClose(Object ownerCoreCacheKey) {
+        final Set<Key> keys = keysByCore.remove(ownerCoreCacheKey);
+        if (keys != null) {
+            for (Key key : keys) {
+                cache.invalidate(key);
+            }
+        }
+    }
+
+    /**
+     * Drops the cached frequencies of all segments of the given index.
+     */
+    public void clear(Index index) {
+        for (Set<Key> keys : keysByCore.values()) {
+            for (Key key : keys) {
+                if (key.index.equals(index)) {
+                    cache.invalidate(key);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * The cached frequencies of the terms of a field in a single segment.
+     */
+    public final class Segment {
+
+        private final Index index;
+        private final Object coreKey;
+        private final Set<Key> keys;
+        private final int numDeletedDocs;
+        private final String field;
+        private final Query filter;
+
+        Segment(Index index, Object coreKey, Set<Key> keys, int numDeletedDocs, String field, Query filter) {
+            this.index = index;
+            this.coreKey = coreKey;
+            this.keys = keys;
+            this.numDeletedDocs = numDeletedDocs;
+            this.field = field;
+            this.filter = filter;
+        }
+
+        /**
+         * Returns the cached frequency of the given term, or <code>-1</code> if it is not cached.
+         */
+        public int docFreq(BytesRef term) {
+            return get(new Key(index, coreKey, numDeletedDocs, field, filter, term));
+        }
+
+        /**
+         * Caches the frequency of the given term.
+         */
+        public void cacheDocFreq(BytesRef term, int docFreq) {
+            put(keys, new Key(index, coreKey, numDeletedDocs, field, filter, BytesRef.deepCopyOf(term)), docFreq);
+        }
+
+        /**
+         * Returns the cached number of documents that match the filter, or <code>-1</code> if it is not cached.
+         */
+        public int numDocs() {
+            return get(new Key(index, coreKey, numDeletedDocs, field, filter, null));
+        }
+
+        public void cacheNumDocs(int numDocs) {
+            put(keys, new Key(index, coreKey, numDeletedDocs, field, filter, null), numDocs);
+        }
+    }
+
+    static final class Key {
+        private final Index index;
+        private final Object coreKey;
+        private final int numDeletedDocs;
+        private final String field;
+        private final Query filter;
+        // null for the number of documents that match the filter
+        private final BytesRef term;
+
+        Key(Index index, Object coreKey, int numDeletedDocs, String field, Query filter, BytesRef term) {
+            this.index = index;
+            this.coreKey = coreKey;
+            this.numDeletedDocs = numDeletedDocs;
+            this.field = field;
+            this.filter = filter;
+            this.term = term;
+        }
+
+        long ramBytesUsed() {
+            return BASE_RAM_BYTES_USED + (term == null ? 0 : term.length);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return coreKey == key.coreKey
+                && numDeletedDocs == key.numDeletedDocs
+                && index.equals(key.index)
+                && field.equals(key.field)
+                && Objects.equals(filter, key.filter)
+                && Objects.equals(term, key.term);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(index, System.identityHashCode(coreKey), numDeletedDocs, field, filter, term);
+        }
+    }
+}
@@ -49,6 +49,8 @@ import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.util.Callback;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 import org.elasticsearch.index.IndexService;
 import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.IndexShardAlreadyExistsException;
@@ -73,12 +75,18 @@ import org.elasticsearch.search.SearchService;
 import org.elasticsearch.snapshots.RestoreService;
 import org.elasticsearch.threadpool.ThreadPool;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 
 /**
  *
@@ -120,6 +128,7 @@ public class IndicesClusterStateService extends AbstractLifecycleComponent<Indic
     private final FailedShardHandler failedShardHandler = new FailedShardHandler();
 
     private final boolean sendRefreshMapping;
+    private final int applyConcurrency;
     private final List<IndexEventListener> buildInIndexListener;
 
     @Inject
@@ -143,6 +152,9 @@ public class IndicesClusterStateService extends AbstractLifecycleComponent<Indic
         this.restoreService = restoreService;
         this.repositoriesService = repositoriesService;
         this.sendRefreshMapping = this.settings.getAsBoolean("indices.cluster.send_refresh_mapping", true);
+        // the number of threads, including the cluster state update thread, that apply independent index level changes
+        this.applyConcurrency = this.settings.getAsInt("indices.cluster.apply_concurrency",
+                Math.min(4, EsExecutors.boundedNumberOfProcessors(settings)));
         this.nodeServicesProvider = nodeServicesProvider;
     }
 
@@ -276,7 +288,16 @@ public class IndicesClusterStateService extends AbstractLifecycleComponent<Indic
         if (routingNode == null) {
             return;
         }
-        IntHashSet newShardIds = new IntHashSet();
+        final Map<String, IntHashSet> newShardIdsPerIndex = new HashMap<>();
+        for (ShardRouting shard : routingNode) {
+            IntHashSet newShardIds = newShardIdsPerIndex.get(shard.index());
+            if (newShardIds == null) {
+                newShardIds = new IntHashSet();
+                newShardIdsPerIndex.put(shard.index(), newShardIds);
+            }
+            newShardIds.add(shard.id());
+        }
+        final List<Runnable> tasks = new ArrayList<>();
         for (IndexService indexService : indicesService) {
             String index = indexService.index().name();
             IndexMetaData indexMetaData = event.state().metaData().index(index);
@@ -284,30 +305,28 @@ public class IndicesClusterStateService extends AbstractLifecycleComponent<Indic
                 continue;
             }
             // now, go over and delete shards that needs to get deleted
-            newShardIds.clear();
-            for (ShardRouting shard : routingNode) {
-                if (shard.index().equals(index)) {
-                    newShardIds.add(shard.id());
-                }
-            }
-            for (Integer existingShardId : indexService.shardIds()) {
-                if (!newShardIds.contains(existingShardId)) {
-                    if (indexMetaData.getState() == IndexMetaData.State.CLOSE) {
-                        if (logger.isDebugEnabled()) {
-                            logger.debug("[{}][{}] removing shard (index is closed)", index, existingShardId);
-                        }
-                        indexService.removeShard(existingShardId, "removing shard (index is closed)");
-                    } else {
-                        // we can just remove the shard, without cleaning it locally, since we will clean it
-                        // when all shards are allocated in the IndicesStore
-                        if (logger.isDebugEnabled()) {
-                            logger.debug("[{}][{}] removing shard (not allocated)", index, existingShardId);
+            final IntHashSet newShardIds = newShardIdsPerIndex.getOrDefault(index, new IntHashSet());
+            tasks.add(() -> {
+                for (Integer existingShardId : indexService.shardIds()) {
+                    if (!newShardIds.contains(existingShardId)) {
+                        if (indexMetaData.getState() == IndexMetaData.State.CLOSE) {
+                            if (logger.isDebugEnabled()) {
+                                logger.debug("[{}][{}] removing shard (index is closed)", index, existingShardId);
+                            }
+                            indexService.removeShard(existingShardId, "removing shard (index is closed)");
+                        } else {
+                            // we can just remove the shard, without cleaning it locally, since we will clean it
+                            // when all shards are allocated in the IndicesStore
+                            if (logger.isDebugEnabled()) {
+                                logger.debug("[{}][{}] removing shard (not allocated)", index, existingShardId);
+                            }
+                            indexService.removeShard(existingShardId, "removing shard (not allocated)");
                         }
-                        indexService.removeShard(existingShardId, "removing shard (not allocated)");
                     }
                 }
-            }
+            });
         }
+        runConcurrently("remove shards", tasks);
     }
 
     private void applyNewIndices(final ClusterChangedEvent event) {
@@ -316,19 +335,34 @@ public class IndicesClusterStateService extends AbstractLifecycleComponent<Indic
         if (routingNode == null) {
             return;
         }
+        final Map<String, List<ShardRouting>> shardsPerNewIndex = new HashMap<>();
         for (ShardRouting shard : routingNode) {
             if (!indicesService.hasIndex(shard.index())) {
-                final IndexMetaData indexMetaData = event.state().metaData().index(shard.index());
+                List<ShardRouting> shards = shardsPerNewIndex.get(shard.index());
+                if (shards == null) {
+                    shards = new ArrayList<>();
+                    shardsPerNewIndex.put(shard.index(), shards);
+                }
+                shards.add(shard);
+            }
+        }
+        final List<Runnable> tasks = new ArrayList<>(shardsPerNewIndex.size());
+        for (Map.Entry<String, List<ShardRouting>> entry : shardsPerNewIndex.entrySet()) {
+            final IndexMetaData indexMetaData = event.state().metaData().index(entry.getKey());
+            tasks.add(() -> {
                 if (logger.isDebugEnabled()) {
                     logger.debug("[{}] creating index", indexMetaData.getIndex());
                 }
                 try {
                     indicesService.createIndex(nodeServicesProvider, indexMetaData, buildInIndexListener);
                 } catch (Throwable e) {
-                    sendFailShard(shard, indexMetaData.getIndexUUID(), "failed to create index", e);
+                    for (ShardRouting shard : entry.getValue()) {
+                        sendFailShard(shard, indexMetaData.getIndexUUID(), "failed to create index", e);
+                    }
                 }
-            }
+            });
         }
+        runConcurrently("create indices", tasks);
     }
 
     private void applySettings(ClusterChangedEvent event) {
@@ -356,42 +390,49 @@ public class IndicesClusterStateService extends AbstractLifecycleComponent<Indic
 
 
     private void applyMappings(ClusterChangedEvent event) {
-        // go over and update mappings
+        // go over and update mappings, each index has its own mapper service so indices are updated concurrently
+        final List<Runnable> tasks = new ArrayList<>();
         for (IndexMetaData indexMetaData : event.state().metaData()) {
             if (!indicesService.hasIndex(indexMetaData.getIndex())) {
                 // we only create / update here
                 continue;
             }
-            boolean requireRefresh = false;
             String index = indexMetaData.getIndex();
             IndexService indexService = indicesService.indexService(index);
             if (indexService == null) {
                 // got deleted on us, ignore (closing the node)
-                return;
+                continue;
             }
-            try {
-                MapperService mapperService = indexService.mapperService();
-                // go over and add the relevant mappings (or update them)
-                for (ObjectCursor<MappingMetaData> cursor : indexMetaData.getMappings().values()) {
-                    MappingMetaData mappingMd = cursor.value;
-                    String mappingType = mappingMd.type();
-                    CompressedXContent mappingSource = mappingMd.source();
-                    requireRefresh |= processMapping(index, mapperService, mappingType, mappingSource);
-                }
-                if (requireRefresh && sendRefreshMapping) {
-                    nodeMappingRefreshAction.nodeMappingRefresh(event.state(),
-                            new NodeMappingRefreshAction.NodeMappingRefreshRequest(index, indexMetaData.getIndexUUID(),
-                                    event.state().nodes().localNodeId())
-                    );
-                }
-            } catch (Throwable t) {
-                // if we failed the mappings anywhere, we need to fail the shards for this index, note, we safeguard
-                // by creating the processing the mappings on the master, or on the node the mapping was introduced on,
-                // so this failure typically means wrong node level configuration or something similar
-                for (IndexShard indexShard : indexService) {
-                    ShardRouting shardRouting = indexShard.routingEntry();
-                    failAndRemoveShard(shardRouting, indexService.indexUUID(), indexService, true, "failed to update mappings", t);
-                }
+            tasks.add(() -> applyMappings(event, indexMetaData, indexService));
+        }
+        runConcurrently("apply mappings", tasks);
+    }
+
+    private void applyMappings(ClusterChangedEvent event, IndexMetaData indexMetaData, IndexService indexService) {
+        final String index = indexMetaData.getIndex();
+        boolean requireRefresh = false;
+        try {
+            MapperService mapperService = indexService.mapperService();
+            // go over and add the relevant mappings (or update them)
+            for (ObjectCursor<MappingMetaData> cursor : indexMetaData.getMappings().values()) {
+                MappingMetaData mappingMd = cursor.value;
+                String mappingType = mappingMd.type();
+                CompressedXContent mappingSource = mappingMd.source();
+                requireRefresh |= processMapping(index, mapperService, mappingType, mappingSource);
+            }
+            if (requireRefresh && sendRefreshMapping) {
+                nodeMappingRefreshAction.nodeMappingRefresh(event.state(),
+                        new NodeMappingRefreshAction.NodeMappingRefreshRequest(index, indexMetaData.getIndexUUID(),
+                                event.state().nodes().localNodeId())
+                );
+            }
+        } catch (Throwable t) {
+            // if we failed the mappings anywhere, we need to fail the shards for this index, note, we safeguard
+            // by creating the processing the mappings on the master, or on the node the mapping was introduced on,
+            // so this failure typically means wrong node level configuration or something similar
+            for (IndexShard indexShard : indexService) {
+                ShardRouting shardRouting = indexShard.routingEntry();
+                failAndRemoveShard(shardRouting, indexService.indexUUID(), indexService, true, "failed to update mappings", t);
             }
         }
     }
@@ -751,6 +792,71 @@ public class IndicesClusterStateService extends AbstractLifecycleComponent<Indic
         }
     }
 
+    /**
+     * Runs the given independent tasks on up to <code>indices.cluster.apply_concurrency</code> threads and returns once
+     * all of them are done. The calling thread runs tasks too, the other threads are taken from the generic pool.
+     * Failures are logged, they don't prevent the remaining tasks from running.
+     */
+    private void runConcurrently(String description, List<Runnable> tasks) {
+        runConcurrently(threadPool.generic(), applyConcurrency, tasks, t -> logger.warn("failed to {}", t, description));
+    }
+
+    /**
+     * Runs the given independent tasks on up to <code>maxConcurrency</code> threads, including the calling thread, and
+     * returns once all of them are done. Tasks whose worker thread is rejected by the executor are run by the calling
+     * thread. Every failure is passed to the failure handler, they don't prevent the remaining tasks from running.
+     */
+    static void runConcurrently(Executor executor, int maxConcurrency, List<Runnable> tasks, Consumer<Throwable> failureHandler) {
+        final int concurrency = Math.min(maxConcurrency, tasks.size());
+        if (concurrency <= 1) {
+            for (Runnable task : tasks) {
+                runSafely(task, failureHandler);
+            }
+            return;
+        }
+        final ConcurrentLinkedQueue<Runnable> queue = new ConcurrentLinkedQueue<>(tasks);
+        final CountDownLatch latch = new CountDownLatch(concurrency);
+        final Runnable drain = () -> {
+            try {
+                for (Runnable task = queue.poll(); task != null; task = queue.poll()) {
+                    runSafely(task, failureHandler);
+                }
+            } finally {
+                latch.countDown();
+            }
+        };
+        for (int i = 1; i < concurrency; i++) {
+            try {
+                executor.execute(drain);
+            } catch (EsRejectedExecutionException e) {
+                // the calling thread picks up the tasks instead
+                latch.countDown();
+            }
+        }
+        drain.run();
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                // the cluster state must be fully applied before we return, so we keep waiting
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void runSafely(Runnable task, Consumer<Throwable> failureHandler) {
+        try {
+            task.run();
+        } catch (Throwable t) {
+            failureHandler.accept(t);
+        }
+    }
+
     private void removeIndex(String index, String reason) {
         try {
             indicesService.removeIndex(index, reason);
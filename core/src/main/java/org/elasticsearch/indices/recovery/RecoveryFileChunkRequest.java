@@ -27,6 +27,7 @@ import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.store.StoreFileMetaData;
+import org.elasticsearch.transport.PayloadTransportRequest;
 import org.elasticsearch.transport.TransportRequest;
 
 import java.io.IOException;
@@ -34,7 +35,7 @@ import java.io.IOException;
 /**
  *
  */
-public final class RecoveryFileChunkRequest extends TransportRequest {
+public final class RecoveryFileChunkRequest extends TransportRequest implements PayloadTransportRequest {
     private boolean lastChunk;
     private long recoveryId;
     private ShardId shardId;
@@ -118,6 +119,23 @@ public final class RecoveryFileChunkRequest extends TransportRequest {
 
     @Override
     public void writeTo(StreamOutput out) throws IOException {
+        writeHeader(out);
+        out.writeBytesReference(content);
+        writeTrailer(out);
+    }
+
+    @Override
+    public void writeThin(StreamOutput out) throws IOException {
+        writeHeader(out);
+        out.writeVInt(content.length());
+    }
+
+    @Override
+    public BytesReference payload() {
+        return content;
+    }
+
+    private void writeHeader(StreamOutput out) throws IOException {
         super.writeTo(out);
         out.writeLong(recoveryId);
         shardId.writeTo(out);
@@ -125,7 +143,10 @@ public final class RecoveryFileChunkRequest extends TransportRequest {
         out.writeVLong(position);
         out.writeVLong(metaData.length());
         out.writeOptionalString(metaData.checksum());
-        out.writeBytesReference(content);
+    }
+
+    @Override
+    public void writeTrailer(StreamOutput out) throws IOException {
         out.writeOptionalString(metaData.writtenBy() == null ? null : metaData.writtenBy().toString());
         out.writeBoolean(lastChunk);
         out.writeVInt(totalTranslogOps);
@@ -33,12 +33,16 @@ import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.StopWatch;
 import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.ChannelBufferBytesReference;
+import org.elasticsearch.common.io.Channels;
 import org.elasticsearch.common.io.Streams;
 import org.elasticsearch.common.logging.ESLogger;
 import org.elasticsearch.common.lucene.store.InputStreamIndexInput;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.util.CancellableThreads;
 import org.elasticsearch.common.util.CancellableThreads.Interruptable;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.index.engine.RecoveryEngineException;
 import org.elasticsearch.index.shard.IllegalIndexShardStateException;
 import org.elasticsearch.index.shard.IndexShard;
@@ -51,13 +55,18 @@ import org.elasticsearch.transport.EmptyTransportResponseHandler;
 import org.elasticsearch.transport.RemoteTransportException;
 import org.elasticsearch.transport.TransportRequestOptions;
 import org.elasticsearch.transport.TransportService;
+import org.jboss.netty.buffer.ChannelBuffers;
 
-import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Queue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -82,6 +91,8 @@ public class RecoverySourceHandler {
     private final RecoverySettings recoverySettings;
     private final TransportService transportService;
     private final int chunkSizeInBytes;
+    // off-heap buffers of chunk size that are reused by the streams that send files, see RecoveryOutputStream#sendFile
+    private final Queue<ByteBuffer> chunkBuffers = ConcurrentCollections.newQueue();
 
     protected final RecoveryResponse response;
 
@@ -118,6 +129,13 @@ public class RecoverySourceHandler {
      * performs the recovery from the local engine to the target
      */
     public RecoveryResponse recoverToTarget() {
+        final Translog.View retainedTranslogView = acquireRetainedTranslogView();
+        if (retainedTranslogView != null) {
+            try (Translog.View translogView = retainedTranslogView) {
+                recoverFromRetainedTranslog(translogView);
+            }
+            return response;
+        }
         try (Translog.View translogView = shard.acquireTranslogView()) {
             logger.trace("captured translog id [{}] for recovery", translogView.minTranslogGeneration());
             final IndexCommit phase1Snapshot;
@@ -152,6 +170,38 @@ public class RecoverySourceHandler {
         return response;
     }
 
+    /**
+     * Returns a view of the operations that were applied since the synced flush whose commit the target
+     * holds, or <code>null</code> if the source does not retain them and files need to be copied.
+     */
+    private Translog.View acquireRetainedTranslogView() {
+        final String targetSyncId = request.metadataSnapshot().getSyncId();
+        if (targetSyncId == null) {
+            return null;
+        }
+        return shard.acquireRetainedTranslogView(targetSyncId, request.metadataSnapshot().getNumDocs());
+    }
+
+    /**
+     * Recovers a target that holds the commit of a synced flush by only replaying the operations that
+     * were applied since that flush. The target keeps all of its files so phase1 is skipped entirely.
+     */
+    void recoverFromRetainedTranslog(final Translog.View translogView) {
+        logger.trace("[{}][{}] skipping [phase1] to {} - replaying [{}] operations retained since sync id [{}]", indexName, shardId,
+                request.targetNode(), translogView.totalOperations(), request.metadataSnapshot().getSyncId());
+        try {
+            prepareTargetForTranslog(translogView);
+        } catch (Throwable e) {
+            throw new RecoveryEngineException(shard.shardId(), 1, "prepare target for translog failed", e);
+        }
+        try (Translog.Snapshot phase2Snapshot = translogView.snapshot()) {
+            phase2(phase2Snapshot);
+        } catch (Throwable e) {
+            throw new RecoveryEngineException(shard.shardId(), 2, "phase2 failed", e);
+        }
+        finalizeRecovery();
+    }
+
     /**
      * Perform phase1 of the recovery operations. Once this {@link IndexCommit}
      * snapshot has been performed no commit operations (files being fsync'd)
@@ -247,7 +297,7 @@ public class RecoverySourceHandler {
                 });
                 // How many bytes we've copied since we last called RateLimiter.pause
                 final AtomicLong bytesSinceLastPause = new AtomicLong();
-                final Function<StoreFileMetaData, OutputStream> outputStreamFactories = (md) -> new BufferedOutputStream(new RecoveryOutputStream(md, bytesSinceLastPause, translogView), chunkSizeInBytes);
+                final Function<StoreFileMetaData, OutputStream> outputStreamFactories = (md) -> new RecoveryOutputStream(md, bytesSinceLastPause, translogView);
                 sendFiles(store, phase1Files.toArray(new StoreFileMetaData[phase1Files.size()]), outputStreamFactories);
                 cancellableThreads.execute(() -> {
                     // Send the CLEAN_FILES request, which takes all of the files that
@@ -545,7 +595,50 @@ public class RecoverySourceHandler {
             assert md.length() >= position : "length: " + md.length() + " but positions was: " + position;
         }
 
-        private void sendNextChunk(long position, BytesArray content, boolean lastChunk) throws IOException {
+        /**
+         * Sends the whole file chunk by chunk. Chunks are read straight from the file into an off-heap buffer if the
+         * store exposes the file on the file system, so that the bytes of the file are not copied on heap on their way
+         * to the network. The off-heap buffer is taken from the buffers of this recovery and handed back once the file
+         * is sent, so that each stream allocates a buffer only once. The target verifies the checksum of the file once
+         * it received the last chunk.
+         */
+        void sendFile(Store store) throws IOException {
+            final Path path = store.fileSystemPath(md.name());
+            if (path == null) {
+                try (final IndexInput indexInput = store.directory().openInput(md.name(), IOContext.READONCE)) {
+                    final byte[] buffer = new byte[(int) Math.min(chunkSizeInBytes, md.length())];
+                    while (position < md.length()) {
+                        final int length = (int) Math.min(buffer.length, md.length() - position);
+                        indexInput.readBytes(buffer, 0, length);
+                        write(buffer, 0, length);
+                    }
+                }
+            } else {
+                final ByteBuffer buffer = acquireChunkBuffer();
+                boolean success = false;
+                try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                    // the buffer is only reused once the previous chunk was acknowledged by the target
+                    while (position < md.length()) {
+                        final int length = (int) Math.min(buffer.capacity(), md.length() - position);
+                        buffer.clear();
+                        buffer.limit(length);
+                        Channels.readFromFileChannelWithEofException(channel, position, buffer);
+                        buffer.flip();
+                        sendNextChunk(position, new ChannelBufferBytesReference(ChannelBuffers.wrappedBuffer(buffer)),
+                                md.length() == position + length);
+                        position += length;
+                    }
+                    success = true;
+                } finally {
+                    // if a chunk failed or timed out the transport may still read from the buffer, so it is dropped
+                    if (success) {
+                        chunkBuffers.add(buffer);
+                    }
+                }
+            }
+        }
+
+        private void sendNextChunk(long position, BytesReference content, boolean lastChunk) throws IOException {
             final TransportRequestOptions chunkSendOptions = TransportRequestOptions.builder()
                 .withCompress(false)  // lucene files are already compressed and therefore compressing this won't really help much so we are safing the cpu for other things
                 .withType(TransportRequestOptions.Type.RECOVERY)
@@ -588,6 +681,11 @@ public class RecoverySourceHandler {
         }
     }
 
+    private ByteBuffer acquireChunkBuffer() {
+        final ByteBuffer buffer = chunkBuffers.poll();
+        return buffer == null ? ByteBuffer.allocateDirect(chunkSizeInBytes) : buffer;
+    }
+
     void sendFiles(Store store, StoreFileMetaData[] files, Function<StoreFileMetaData, OutputStream> outputStreamFactory) throws Throwable {
         store.incRef();
         try {
@@ -611,6 +709,8 @@ public class RecoverySourceHandler {
                 ExceptionsHelper.rethrowAndSuppress(exceptions);
             }
         } finally {
+            // all files are sent, release the buffers rather than keeping them around for the lifetime of the recovery
+            chunkBuffers.clear();
             store.decRef();
         }
     }
@@ -673,10 +773,15 @@ public class RecoverySourceHandler {
                     pool = recoverySettings.concurrentSmallFileStreamPool();
                 }
                 Future<Void> future = pool.submit(() -> {
+                    final OutputStream outputStream = outputStreamFactory.apply(md);
+                    if (outputStream instanceof RecoveryOutputStream) {
+                        ((RecoveryOutputStream) outputStream).sendFile(store);
+                        return null;
+                    }
                     try (final IndexInput indexInput = store.directory().openInput(md.name(), IOContext.READONCE)) {
                         // it's fine that we are only having the indexInput int he try/with block. The copy methods handles
                         // exceptions during close correctly and doesn't hide the original exception.
-                        Streams.copy(new InputStreamIndexInput(indexInput, md.length()), outputStreamFactory.apply(md));
+                        Streams.copy(new InputStreamIndexInput(indexInput, md.length()), outputStream);
                     }
                     return null;
                 });
@@ -34,6 +34,7 @@ import org.elasticsearch.cluster.ClusterStateObserver;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.lucene.store.IndexOutputOutputStream;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.lucene.Lucene;
@@ -450,10 +451,7 @@ public class RecoveryTarget extends AbstractComponent implements IndexEventListe
                 } else {
                     indexOutput = recoveryStatus.getOpenIndexOutput(request.name());
                 }
-                BytesReference content = request.content();
-                if (!content.hasArray()) {
-                    content = content.toBytesArray();
-                }
+                final BytesReference content = request.content();
                 RateLimiter rl = recoverySettings.rateLimiter();
                 if (rl != null) {
                     long bytes = bytesSinceLastPause.addAndGet(content.length());
@@ -465,7 +463,12 @@ public class RecoveryTarget extends AbstractComponent implements IndexEventListe
                         recoveryStatus.indexShard().recoveryStats().addThrottleTime(throttleTimeInNanos);
                     }
                 }
-                indexOutput.writeBytes(content.array(), content.arrayOffset(), content.length());
+                if (content.hasArray()) {
+                    indexOutput.writeBytes(content.array(), content.arrayOffset(), content.length());
+                } else {
+                    // chunks are often spread over several network buffers, write them one by one rather than copying them first
+                    content.writeTo(new IndexOutputOutputStream(indexOutput));
+                }
                 indexState.addRecoveredBytesToFile(request.name(), content.length());
                 if (indexOutput.getFilePointer() >= request.length() || request.lastChunk()) {
                     try {
@@ -56,18 +56,24 @@ import org.elasticsearch.transport.TransportService;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
- *
+ * Lists the store metadata of shards on nodes, used by the {@link org.elasticsearch.gateway.GatewayAllocator} to allocate
+ * replicas where most of their files already are. A single request lists many shards, so that each node is only asked
+ * once for all the shards the master is looking for.
  */
-public class TransportNodesListShardStoreMetaData extends TransportNodesAction<TransportNodesListShardStoreMetaData.Request, TransportNodesListShardStoreMetaData.NodesStoreFilesMetaData, TransportNodesListShardStoreMetaData.NodeRequest, TransportNodesListShardStoreMetaData.NodeStoreFilesMetaData>
-        implements AsyncShardFetch.List<TransportNodesListShardStoreMetaData.NodesStoreFilesMetaData, TransportNodesListShardStoreMetaData.NodeStoreFilesMetaData> {
+public class TransportNodesListShardStoreMetaData extends TransportNodesAction<TransportNodesListShardStoreMetaData.Request, TransportNodesListShardStoreMetaData.NodesStoreFilesMetaDataBatch, TransportNodesListShardStoreMetaData.NodeRequest, TransportNodesListShardStoreMetaData.NodeStoreFilesMetaDataBatch>
+        implements AsyncShardFetch.BatchedList<TransportNodesListShardStoreMetaData.NodesStoreFilesMetaData, TransportNodesListShardStoreMetaData.NodeStoreFilesMetaData> {
 
     public static final String ACTION_NAME = "internal:cluster/nodes/indices/shard/store";
 
@@ -86,8 +92,34 @@ public class TransportNodesListShardStoreMetaData extends TransportNodesAction<T
     }
 
     @Override
-    public void list(ShardId shardId, IndexMetaData indexMetaData, String[] nodesIds, ActionListener<NodesStoreFilesMetaData> listener) {
-        execute(new Request(shardId, false, nodesIds), listener);
+    public void list(final ShardId shardId, IndexMetaData indexMetaData, String[] nodesIds, final ActionListener<NodesStoreFilesMetaData> listener) {
+        list(Collections.singletonMap(shardId, indexMetaData), nodesIds, new ActionListener<Map<ShardId, NodesStoreFilesMetaData>>() {
+            @Override
+            public void onResponse(Map<ShardId, NodesStoreFilesMetaData> responses) {
+                listener.onResponse(responses.get(shardId));
+            }
+
+            @Override
+            public void onFailure(Throwable e) {
+                listener.onFailure(e);
+            }
+        });
+    }
+
+    @Override
+    public void list(Map<ShardId, IndexMetaData> shards, String[] nodesIds, final ActionListener<Map<ShardId, NodesStoreFilesMetaData>> listener) {
+        final Request request = new Request(shards.keySet(), false, nodesIds);
+        execute(request, new ActionListener<NodesStoreFilesMetaDataBatch>() {
+            @Override
+            public void onResponse(NodesStoreFilesMetaDataBatch response) {
+                listener.onResponse(response.byShard(request.shardIds));
+            }
+
+            @Override
+            public void onFailure(Throwable e) {
+                listener.onFailure(e);
+            }
+        });
     }
 
     @Override
@@ -103,48 +135,59 @@ public class TransportNodesListShardStoreMetaData extends TransportNodesAction<T
     }
 
     @Override
-    protected NodeStoreFilesMetaData newNodeResponse() {
-        return new NodeStoreFilesMetaData();
+    protected NodeStoreFilesMetaDataBatch newNodeResponse() {
+        return new NodeStoreFilesMetaDataBatch();
     }
 
     @Override
-    protected NodesStoreFilesMetaData newResponse(Request request, AtomicReferenceArray responses) {
-        final List<NodeStoreFilesMetaData> nodeStoreFilesMetaDatas = new ArrayList<>();
+    protected NodesStoreFilesMetaDataBatch newResponse(Request request, AtomicReferenceArray responses) {
+        final List<NodeStoreFilesMetaDataBatch> nodeStoreFilesMetaDatas = new ArrayList<>();
         final List<FailedNodeException> failures = new ArrayList<>();
         for (int i = 0; i < responses.length(); i++) {
             Object resp = responses.get(i);
-            if (resp instanceof NodeStoreFilesMetaData) { // will also filter out null response for unallocated ones
-                nodeStoreFilesMetaDatas.add((NodeStoreFilesMetaData) resp);
+            if (resp instanceof NodeStoreFilesMetaDataBatch) { // will also filter out null response for unallocated ones
+                nodeStoreFilesMetaDatas.add((NodeStoreFilesMetaDataBatch) resp);
             } else if (resp instanceof FailedNodeException) {
                 failures.add((FailedNodeException) resp);
             } else {
-                logger.warn("unknown response type [{}], expected NodeStoreFilesMetaData or FailedNodeException", resp);
+                logger.warn("unknown response type [{}], expected NodeStoreFilesMetaDataBatch or FailedNodeException", resp);
             }
         }
-        return new NodesStoreFilesMetaData(clusterName, nodeStoreFilesMetaDatas.toArray(new NodeStoreFilesMetaData[nodeStoreFilesMetaDatas.size()]),
+        return new NodesStoreFilesMetaDataBatch(clusterName, nodeStoreFilesMetaDatas.toArray(new NodeStoreFilesMetaDataBatch[nodeStoreFilesMetaDatas.size()]),
                 failures.toArray(new FailedNodeException[failures.size()]));
     }
 
     @Override
-    protected NodeStoreFilesMetaData nodeOperation(NodeRequest request) {
-        if (request.unallocated) {
-            IndexService indexService = indicesService.indexService(request.shardId.index().name());
+    protected NodeStoreFilesMetaDataBatch nodeOperation(NodeRequest request) {
+        final Map<ShardId, StoreFilesMetaData> storeFilesMetaData = new HashMap<>(request.shardIds.size());
+        final Map<ShardId, Throwable> failures = new HashMap<>();
+        for (ShardId shardId : request.shardIds) {
+            try {
+                storeFilesMetaData.put(shardId, nodeOperation(shardId, request.unallocated));
+            } catch (IOException e) {
+                failures.put(shardId, new ElasticsearchException("Failed to list store metadata for shard [" + shardId + "]", e));
+            } catch (Exception e) {
+                failures.put(shardId, e);
+            }
+        }
+        return new NodeStoreFilesMetaDataBatch(clusterService.localNode(), storeFilesMetaData, failures);
+    }
+
+    private StoreFilesMetaData nodeOperation(ShardId shardId, boolean unallocated) throws IOException {
+        if (unallocated) {
+            IndexService indexService = indicesService.indexService(shardId.index().name());
             if (indexService == null) {
-                return new NodeStoreFilesMetaData(clusterService.localNode(), null);
+                return null;
             }
-            if (!indexService.hasShard(request.shardId.id())) {
-                return new NodeStoreFilesMetaData(clusterService.localNode(), null);
+            if (!indexService.hasShard(shardId.id())) {
+                return null;
             }
         }
-        IndexMetaData metaData = clusterService.state().metaData().index(request.shardId.index().name());
+        IndexMetaData metaData = clusterService.state().metaData().index(shardId.index().name());
         if (metaData == null) {
-            return new NodeStoreFilesMetaData(clusterService.localNode(), null);
-        }
-        try {
-            return new NodeStoreFilesMetaData(clusterService.localNode(), listStoreMetaData(request.shardId));
-        } catch (IOException e) {
-            throw new ElasticsearchException("Failed to list store metadata for shard [" + request.shardId + "]", e);
+            return null;
         }
+        return listStoreMetaData(shardId);
     }
 
     private StoreFilesMetaData listStoreMetaData(ShardId shardId) throws IOException {
@@ -261,9 +304,25 @@ public class TransportNodesListShardStoreMetaData extends TransportNodesAction<T
     }
 
 
+    static List<ShardId> readShardIds(StreamInput in) throws IOException {
+        final int size = in.readVInt();
+        final List<ShardId> shardIds = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            shardIds.add(ShardId.readShardId(in));
+        }
+        return shardIds;
+    }
+
+    static void writeShardIds(List<ShardId> shardIds, StreamOutput out) throws IOException {
+        out.writeVInt(shardIds.size());
+        for (ShardId shardId : shardIds) {
+            shardId.writeTo(out);
+        }
+    }
+
     public static class Request extends BaseNodesRequest<Request> {
 
-        private ShardId shardId;
+        private List<ShardId> shardIds;
 
         private boolean unallocated;
 
@@ -271,28 +330,30 @@ public class TransportNodesListShardStoreMetaData extends TransportNodesAction<T
         }
 
         public Request(ShardId shardId, boolean unallocated, Set<String> nodesIds) {
-            super(nodesIds.toArray(new String[nodesIds.size()]));
-            this.shardId = shardId;
-            this.unallocated = unallocated;
+            this(Collections.singletonList(shardId), unallocated, nodesIds.toArray(new String[nodesIds.size()]));
         }
 
         public Request(ShardId shardId, boolean unallocated, String... nodesIds) {
+            this(Collections.singletonList(shardId), unallocated, nodesIds);
+        }
+
+        public Request(Collection<ShardId> shardIds, boolean unallocated, String... nodesIds) {
             super(nodesIds);
-            this.shardId = shardId;
+            this.shardIds = new ArrayList<>(shardIds);
             this.unallocated = unallocated;
         }
 
         @Override
         public void readFrom(StreamInput in) throws IOException {
             super.readFrom(in);
-            shardId = ShardId.readShardId(in);
+            shardIds = readShardIds(in);
             unallocated = in.readBoolean();
         }
 
         @Override
         public void writeTo(StreamOutput out) throws IOException {
             super.writeTo(out);
-            shardId.writeTo(out);
+            writeShardIds(shardIds, out);
             out.writeBoolean(unallocated);
         }
     }
@@ -333,10 +394,86 @@ public class TransportNodesListShardStoreMetaData extends TransportNodesAction<T
         }
     }
 
+    /**
+     * The store metadata of all the requested shards, as returned by each of the nodes.
+     */
+    public static class NodesStoreFilesMetaDataBatch extends BaseNodesResponse<NodeStoreFilesMetaDataBatch> {
+
+        private FailedNodeException[] failures;
+
+        NodesStoreFilesMetaDataBatch() {
+        }
+
+        public NodesStoreFilesMetaDataBatch(ClusterName clusterName, NodeStoreFilesMetaDataBatch[] nodes, FailedNodeException[] failures) {
+            super(clusterName, nodes);
+            this.failures = failures;
+        }
+
+        @Override
+        public FailedNodeException[] failures() {
+            return failures;
+        }
+
+        /**
+         * Splits this response into the responses of each of the given shards. A node that failed as a whole counts
+         * as a failure for every shard.
+         */
+        public Map<ShardId, NodesStoreFilesMetaData> byShard(Collection<ShardId> shardIds) {
+            final Map<ShardId, NodesStoreFilesMetaData> responses = new HashMap<>(shardIds.size());
+            for (ShardId shardId : shardIds) {
+                final List<NodeStoreFilesMetaData> shardNodes = new ArrayList<>(nodes.length);
+                final List<FailedNodeException> shardFailures = new ArrayList<>(Arrays.asList(failures));
+                for (NodeStoreFilesMetaDataBatch node : nodes) {
+                    if (node.storeFilesMetaData.containsKey(shardId)) {
+                        shardNodes.add(new NodeStoreFilesMetaData(node.getNode(), node.storeFilesMetaData.get(shardId)));
+                    } else {
+                        final String nodeId = node.getNode().id();
+                        Throwable failure = node.failures.get(shardId);
+                        if (failure == null) {
+                            failure = new IllegalStateException("node [" + nodeId + "] didn't return the store metadata of shard " + shardId);
+                        }
+                        shardFailures.add(new FailedNodeException(nodeId, "Failed node [" + nodeId + "]", failure));
+                    }
+                }
+                responses.put(shardId, new NodesStoreFilesMetaData(getClusterName(),
+                        shardNodes.toArray(new NodeStoreFilesMetaData[shardNodes.size()]),
+                        shardFailures.toArray(new FailedNodeException[shardFailures.size()])));
+            }
+            return responses;
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            super.readFrom(in);
+            nodes = new NodeStoreFilesMetaDataBatch[in.readVInt()];
+            for (int i = 0; i < nodes.length; i++) {
+                nodes[i] = new NodeStoreFilesMetaDataBatch();
+                nodes[i].readFrom(in);
+            }
+            failures = new FailedNodeException[in.readVInt()];
+            for (int i = 0; i < failures.length; i++) {
+                failures[i] = in.readThrowable();
+            }
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            super.writeTo(out);
+            out.writeVInt(nodes.length);
+            for (NodeStoreFilesMetaDataBatch response : nodes) {
+                response.writeTo(out);
+            }
+            out.writeVInt(failures.length);
+            for (FailedNodeException failure : failures) {
+                out.writeThrowable(failure);
+            }
+        }
+    }
+
 
     public static class NodeRequest extends BaseNodeRequest {
 
-        private ShardId shardId;
+        private List<ShardId> shardIds;
 
         private boolean unallocated;
 
@@ -345,25 +482,88 @@ public class TransportNodesListShardStoreMetaData extends TransportNodesAction<T
 
         NodeRequest(String nodeId, TransportNodesListShardStoreMetaData.Request request) {
             super(request, nodeId);
-            this.shardId = request.shardId;
+            this.shardIds = request.shardIds;
             this.unallocated = request.unallocated;
         }
 
         @Override
         public void readFrom(StreamInput in) throws IOException {
             super.readFrom(in);
-            shardId = ShardId.readShardId(in);
+            shardIds = readShardIds(in);
             unallocated = in.readBoolean();
         }
 
         @Override
         public void writeTo(StreamOutput out) throws IOException {
             super.writeTo(out);
-            shardId.writeTo(out);
+            writeShardIds(shardIds, out);
             out.writeBoolean(unallocated);
         }
     }
 
+    /**
+     * The store metadata of all the requested shards on a single node. A shard maps to <code>null</code> if the node
+     * has nothing to list for it.
+     */
+    public static class NodeStoreFilesMetaDataBatch extends BaseNodeResponse {
+
+        private Map<ShardId, StoreFilesMetaData> storeFilesMetaData;
+        private Map<ShardId, Throwable> failures;
+
+        NodeStoreFilesMetaDataBatch() {
+        }
+
+        public NodeStoreFilesMetaDataBatch(DiscoveryNode node, Map<ShardId, StoreFilesMetaData> storeFilesMetaData, Map<ShardId, Throwable> failures) {
+            super(node);
+            this.storeFilesMetaData = storeFilesMetaData;
+            this.failures = failures;
+        }
+
+        public Map<ShardId, StoreFilesMetaData> storeFilesMetaData() {
+            return storeFilesMetaData;
+        }
+
+        public Map<ShardId, Throwable> failures() {
+            return failures;
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            super.readFrom(in);
+            int size = in.readVInt();
+            storeFilesMetaData = new HashMap<>(size);
+            for (int i = 0; i < size; i++) {
+                ShardId shardId = ShardId.readShardId(in);
+                storeFilesMetaData.put(shardId, in.readBoolean() ? StoreFilesMetaData.readStoreFilesMetaData(in) : null);
+            }
+            size = in.readVInt();
+            failures = new HashMap<>(size);
+            for (int i = 0; i < size; i++) {
+                failures.put(ShardId.readShardId(in), in.readThrowable());
+            }
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            super.writeTo(out);
+            out.writeVInt(storeFilesMetaData.size());
+            for (Map.Entry<ShardId, StoreFilesMetaData> entry : storeFilesMetaData.entrySet()) {
+                entry.getKey().writeTo(out);
+                if (entry.getValue() == null) {
+                    out.writeBoolean(false);
+                } else {
+                    out.writeBoolean(true);
+                    entry.getValue().writeTo(out);
+                }
+            }
+            out.writeVInt(failures.size());
+            for (Map.Entry<ShardId, Throwable> entry : failures.entrySet()) {
+                entry.getKey().writeTo(out);
+                out.writeThrowable(entry.getValue());
+            }
+        }
+    }
+
     public static class NodeStoreFilesMetaData extends BaseNodeResponse {
 
         private StoreFilesMetaData storeFilesMetaData;
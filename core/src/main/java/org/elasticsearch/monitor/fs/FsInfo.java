@@ -193,16 +193,330 @@ public class FsInfo implements Iterable<FsInfo.Path>, Streamable, ToXContent {
         }
     }
 
+    /**
+     * I/O statistics of a block device backing one or more data paths, read from <code>/proc/diskstats</code>.
+     * Counters are cumulative since the device was attached, the statistics that are reported are the
+     * differences with the previous sample and <code>-1</code> if there was no previous sample.
+     */
+    public static class DeviceStats implements Streamable, ToXContent {
+
+        int majorDeviceNumber;
+        int minorDeviceNumber;
+        String deviceName;
+        long currentReadsCompleted;
+        long previousReadsCompleted;
+        long currentSectorsRead;
+        long previousSectorsRead;
+        long currentWritesCompleted;
+        long previousWritesCompleted;
+        long currentSectorsWritten;
+        long previousSectorsWritten;
+        long currentIOTime;
+        long previousIOTime;
+        /** number of I/O operations in flight when the sample was taken */
+        long queueSize;
+
+        DeviceStats() {
+        }
+
+        public DeviceStats(int majorDeviceNumber, int minorDeviceNumber, String deviceName, long currentReadsCompleted,
+                           long currentSectorsRead, long currentWritesCompleted, long currentSectorsWritten, long currentIOTime,
+                           long queueSize, @Nullable DeviceStats previous) {
+            this.majorDeviceNumber = majorDeviceNumber;
+            this.minorDeviceNumber = minorDeviceNumber;
+            this.deviceName = deviceName;
+            this.currentReadsCompleted = currentReadsCompleted;
+            this.previousReadsCompleted = previous == null ? -1 : previous.currentReadsCompleted;
+            this.currentSectorsRead = currentSectorsRead;
+            this.previousSectorsRead = previous == null ? -1 : previous.currentSectorsRead;
+            this.currentWritesCompleted = currentWritesCompleted;
+            this.previousWritesCompleted = previous == null ? -1 : previous.currentWritesCompleted;
+            this.currentSectorsWritten = currentSectorsWritten;
+            this.previousSectorsWritten = previous == null ? -1 : previous.currentSectorsWritten;
+            this.currentIOTime = currentIOTime;
+            this.previousIOTime = previous == null ? -1 : previous.currentIOTime;
+            this.queueSize = queueSize;
+        }
+
+        public static DeviceStats readDeviceStats(StreamInput in) throws IOException {
+            DeviceStats stats = new DeviceStats();
+            stats.readFrom(in);
+            return stats;
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            majorDeviceNumber = in.readVInt();
+            minorDeviceNumber = in.readVInt();
+            deviceName = in.readString();
+            currentReadsCompleted = in.readLong();
+            previousReadsCompleted = in.readLong();
+            currentSectorsRead = in.readLong();
+            previousSectorsRead = in.readLong();
+            currentWritesCompleted = in.readLong();
+            previousWritesCompleted = in.readLong();
+            currentSectorsWritten = in.readLong();
+            previousSectorsWritten = in.readLong();
+            currentIOTime = in.readLong();
+            previousIOTime = in.readLong();
+            queueSize = in.readLong();
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeVInt(majorDeviceNumber);
+            out.writeVInt(minorDeviceNumber);
+            out.writeString(deviceName);
+            out.writeLong(currentReadsCompleted);
+            out.writeLong(previousReadsCompleted);
+            out.writeLong(currentSectorsRead);
+            out.writeLong(previousSectorsRead);
+            out.writeLong(currentWritesCompleted);
+            out.writeLong(previousWritesCompleted);
+            out.writeLong(currentSectorsWritten);
+            out.writeLong(previousSectorsWritten);
+            out.writeLong(currentIOTime);
+            out.writeLong(previousIOTime);
+            out.writeLong(queueSize);
+        }
+
+        public String getDeviceName() {
+            return deviceName;
+        }
+
+        public long operations() {
+            if (previousReadsCompleted == -1 || previousWritesCompleted == -1) {
+                return -1;
+            }
+            return (currentReadsCompleted - previousReadsCompleted) + (currentWritesCompleted - previousWritesCompleted);
+        }
+
+        public long readOperations() {
+            return delta(currentReadsCompleted, previousReadsCompleted);
+        }
+
+        public long writeOperations() {
+            return delta(currentWritesCompleted, previousWritesCompleted);
+        }
+
+        /** kilobytes read, sectors in <code>/proc/diskstats</code> are always 512 bytes */
+        public long readKilobytes() {
+            long sectors = delta(currentSectorsRead, previousSectorsRead);
+            return sectors == -1 ? -1 : sectors / 2;
+        }
+
+        public long writeKilobytes() {
+            long sectors = delta(currentSectorsWritten, previousSectorsWritten);
+            return sectors == -1 ? -1 : sectors / 2;
+        }
+
+        /** milliseconds the device spent doing I/O, the device is saturated if this is close to the sampling interval */
+        public long ioTimeInMillis() {
+            return delta(currentIOTime, previousIOTime);
+        }
+
+        public long queueSize() {
+            return queueSize;
+        }
+
+        private static long delta(long current, long previous) {
+            return previous == -1 ? -1 : current - previous;
+        }
+
+        static final class Fields {
+            static final XContentBuilderString DEVICE_NAME = new XContentBuilderString("device_name");
+            static final XContentBuilderString OPERATIONS = new XContentBuilderString("operations");
+            static final XContentBuilderString READ_OPERATIONS = new XContentBuilderString("read_operations");
+            static final XContentBuilderString WRITE_OPERATIONS = new XContentBuilderString("write_operations");
+            static final XContentBuilderString READ_KILOBYTES = new XContentBuilderString("read_kilobytes");
+            static final XContentBuilderString WRITE_KILOBYTES = new XContentBuilderString("write_kilobytes");
+            static final XContentBuilderString IO_TIME_IN_MILLIS = new XContentBuilderString("io_time_in_millis");
+            static final XContentBuilderString QUEUE_SIZE = new XContentBuilderString("queue_size");
+        }
+
+        @Override
+        public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+            builder.startObject();
+            builder.field(Fields.DEVICE_NAME, deviceName, XContentBuilder.FieldCaseConversion.NONE);
+            builder.field(Fields.OPERATIONS, operations());
+            builder.field(Fields.READ_OPERATIONS, readOperations());
+            builder.field(Fields.WRITE_OPERATIONS, writeOperations());
+            builder.field(Fields.READ_KILOBYTES, readKilobytes());
+            builder.field(Fields.WRITE_KILOBYTES, writeKilobytes());
+            builder.field(Fields.IO_TIME_IN_MILLIS, ioTimeInMillis());
+            builder.field(Fields.QUEUE_SIZE, queueSize());
+            builder.endObject();
+            return builder;
+        }
+    }
+
+    /**
+     * I/O statistics of the block devices behind the data paths, only available on Linux.
+     */
+    public static class IoStats implements Streamable, ToXContent {
+
+        DeviceStats[] devicesStats;
+        /** time elapsed between the previous sample and this one, or <code>-1</code> if there was none */
+        long intervalInMillis = -1;
+        long totalOperations = -1;
+        long totalReadOperations = -1;
+        long totalWriteOperations = -1;
+        long totalReadKilobytes = -1;
+        long totalWriteKilobytes = -1;
+        long totalIOTimeInMillis = -1;
+        long totalQueueSize;
+
+        IoStats() {
+        }
+
+        public IoStats(DeviceStats[] devicesStats, long intervalInMillis) {
+            this.devicesStats = devicesStats;
+            this.intervalInMillis = intervalInMillis;
+            for (DeviceStats deviceStats : devicesStats) {
+                totalOperations = addLong(totalOperations, deviceStats.operations());
+                totalReadOperations = addLong(totalReadOperations, deviceStats.readOperations());
+                totalWriteOperations = addLong(totalWriteOperations, deviceStats.writeOperations());
+                totalReadKilobytes = addLong(totalReadKilobytes, deviceStats.readKilobytes());
+                totalWriteKilobytes = addLong(totalWriteKilobytes, deviceStats.writeKilobytes());
+                totalIOTimeInMillis = addLong(totalIOTimeInMillis, deviceStats.ioTimeInMillis());
+                totalQueueSize += deviceStats.queueSize();
+            }
+        }
+
+        private static long addLong(long current, long other) {
+            if (other == -1) {
+                return current;
+            }
+            if (current == -1) {
+                return other;
+            }
+            return current + other;
+        }
+
+        public static IoStats readIoStats(StreamInput in) throws IOException {
+            IoStats stats = new IoStats();
+            stats.readFrom(in);
+            return stats;
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            devicesStats = new DeviceStats[in.readVInt()];
+            for (int i = 0; i < devicesStats.length; i++) {
+                devicesStats[i] = DeviceStats.readDeviceStats(in);
+            }
+            intervalInMillis = in.readLong();
+            totalOperations = in.readLong();
+            totalReadOperations = in.readLong();
+            totalWriteOperations = in.readLong();
+            totalReadKilobytes = in.readLong();
+            totalWriteKilobytes = in.readLong();
+            totalIOTimeInMillis = in.readLong();
+            totalQueueSize = in.readLong();
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeVInt(devicesStats.length);
+            for (DeviceStats deviceStats : devicesStats) {
+                deviceStats.writeTo(out);
+            }
+            out.writeLong(intervalInMillis);
+            out.writeLong(totalOperations);
+            out.writeLong(totalReadOperations);
+            out.writeLong(totalWriteOperations);
+            out.writeLong(totalReadKilobytes);
+            out.writeLong(totalWriteKilobytes);
+            out.writeLong(totalIOTimeInMillis);
+            out.writeLong(totalQueueSize);
+        }
+
+        public DeviceStats[] getDevicesStats() {
+            return devicesStats;
+        }
+
+        /**
+         * The time the deltas of the statistics were taken over, or <code>-1</code> if there was no previous sample.
+         */
+        public long getIntervalInMillis() {
+            return intervalInMillis;
+        }
+
+        public long getTotalOperations() {
+            return totalOperations;
+        }
+
+        public long getTotalReadOperations() {
+            return totalReadOperations;
+        }
+
+        public long getTotalWriteOperations() {
+            return totalWriteOperations;
+        }
+
+        public long getTotalReadKilobytes() {
+            return totalReadKilobytes;
+        }
+
+        public long getTotalWriteKilobytes() {
+            return totalWriteKilobytes;
+        }
+
+        public long getTotalIOTimeInMillis() {
+            return totalIOTimeInMillis;
+        }
+
+        public long getTotalQueueSize() {
+            return totalQueueSize;
+        }
+
+        static final class Fields {
+            static final XContentBuilderString INTERVAL = new XContentBuilderString("interval");
+            static final XContentBuilderString INTERVAL_IN_MILLIS = new XContentBuilderString("interval_in_millis");
+            static final XContentBuilderString DEVICES = new XContentBuilderString("devices");
+            static final XContentBuilderString TOTAL = new XContentBuilderString("total");
+        }
+
+        @Override
+        public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+            if (intervalInMillis != -1) {
+                builder.timeValueField(Fields.INTERVAL_IN_MILLIS, Fields.INTERVAL, intervalInMillis);
+            }
+            builder.startArray(Fields.DEVICES);
+            for (DeviceStats deviceStats : devicesStats) {
+                deviceStats.toXContent(builder, params);
+            }
+            builder.endArray();
+            builder.startObject(Fields.TOTAL);
+            builder.field(DeviceStats.Fields.OPERATIONS, totalOperations);
+            builder.field(DeviceStats.Fields.READ_OPERATIONS, totalReadOperations);
+            builder.field(DeviceStats.Fields.WRITE_OPERATIONS, totalWriteOperations);
+            builder.field(DeviceStats.Fields.READ_KILOBYTES, totalReadKilobytes);
+            builder.field(DeviceStats.Fields.WRITE_KILOBYTES, totalWriteKilobytes);
+            builder.field(DeviceStats.Fields.IO_TIME_IN_MILLIS, totalIOTimeInMillis);
+            builder.field(DeviceStats.Fields.QUEUE_SIZE, totalQueueSize);
+            builder.endObject();
+            return builder;
+        }
+    }
+
     long timestamp;
     Path total;
     Path[] paths;
+    @Nullable
+    IoStats ioStats;
 
     FsInfo() {
 
     }
 
     public FsInfo(long timestamp, Path[] paths) {
+        this(timestamp, null, paths);
+    }
+
+    public FsInfo(long timestamp, @Nullable IoStats ioStats, Path[] paths) {
         this.timestamp = timestamp;
+        this.ioStats = ioStats;
         this.paths = paths;
         this.total = null;
     }
@@ -233,6 +547,14 @@ public class FsInfo implements Iterable<FsInfo.Path>, Streamable, ToXContent {
         return timestamp;
     }
 
+    /**
+     * The I/O statistics of the devices behind the data paths, or <code>null</code> if they are not available on this platform.
+     */
+    @Nullable
+    public IoStats getIoStats() {
+        return ioStats;
+    }
+
     @Override
     public Iterator<Path> iterator() {
         return Arrays.stream(paths).iterator();
@@ -251,6 +573,7 @@ public class FsInfo implements Iterable<FsInfo.Path>, Streamable, ToXContent {
         for (int i = 0; i < paths.length; i++) {
             paths[i] = Path.readInfoFrom(in);
         }
+        ioStats = in.readOptionalStreamable(IoStats::new);
     }
 
     @Override
@@ -260,6 +583,7 @@ public class FsInfo implements Iterable<FsInfo.Path>, Streamable, ToXContent {
         for (Path path : paths) {
             path.writeTo(out);
         }
+        out.writeOptionalStreamable(ioStats);
     }
 
     static final class Fields {
@@ -267,6 +591,7 @@ public class FsInfo implements Iterable<FsInfo.Path>, Streamable, ToXContent {
         static final XContentBuilderString TIMESTAMP = new XContentBuilderString("timestamp");
         static final XContentBuilderString DATA = new XContentBuilderString("data");
         static final XContentBuilderString TOTAL = new XContentBuilderString("total");
+        static final XContentBuilderString IO_STATS = new XContentBuilderString("io_stats");
     }
 
     @Override
@@ -280,6 +605,11 @@ public class FsInfo implements Iterable<FsInfo.Path>, Streamable, ToXContent {
             path.toXContent(builder, params);
         }
         builder.endArray();
+        if (ioStats != null) {
+            builder.startObject(Fields.IO_STATS);
+            ioStats.toXContent(builder, params);
+            builder.endObject();
+        }
         builder.endObject();
         return builder;
     }
@@ -19,12 +19,23 @@
 
 package org.elasticsearch.monitor.fs;
 
+import org.apache.lucene.util.Constants;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.SuppressForbidden;
+import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.io.PathUtils;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.env.NodeEnvironment;
 import org.elasticsearch.env.NodeEnvironment.NodePath;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 public class FsProbe extends AbstractComponent {
 
@@ -36,15 +47,91 @@ public class FsProbe extends AbstractComponent {
     }
 
     public FsInfo stats() throws IOException {
+        return stats(null);
+    }
+
+    /**
+     * Returns the current file system stats. The I/O statistics of the devices are reported as the
+     * difference with the given previous stats, along with the time elapsed since they were taken.
+     */
+    public FsInfo stats(@Nullable FsInfo previous) throws IOException {
         if (!nodeEnv.hasNodeFile()) {
-            return new FsInfo(System.currentTimeMillis(), new FsInfo.Path[0]);
+            return new FsInfo(System.currentTimeMillis(), null, new FsInfo.Path[0]);
         }
         NodePath[] dataLocations = nodeEnv.nodePaths();
         FsInfo.Path[] paths = new FsInfo.Path[dataLocations.length];
         for (int i = 0; i < dataLocations.length; i++) {
             paths[i] = getFSInfo(dataLocations[i]);
         }
-        return new FsInfo(System.currentTimeMillis(), paths);
+        final long timestamp = System.currentTimeMillis();
+        FsInfo.IoStats ioStats = null;
+        if (Constants.LINUX) {
+            Set<Tuple<Integer, Integer>> devicesNumbers = new HashSet<>();
+            for (NodePath dataLocation : dataLocations) {
+                if (dataLocation.majorDeviceNumber != -1 && dataLocation.minorDeviceNumber != -1) {
+                    devicesNumbers.add(Tuple.tuple(dataLocation.majorDeviceNumber, dataLocation.minorDeviceNumber));
+                }
+            }
+            ioStats = ioStats(devicesNumbers, previous, timestamp);
+        }
+        return new FsInfo(timestamp, ioStats, paths);
+    }
+
+    final FsInfo.IoStats ioStats(final Set<Tuple<Integer, Integer>> devicesNumbers, @Nullable final FsInfo previous,
+                                 final long timestamp) {
+        if (devicesNumbers.isEmpty()) {
+            return null;
+        }
+        try {
+            List<FsInfo.DeviceStats> devicesStats = new ArrayList<>();
+            for (String line : readProcDiskStats()) {
+                // /proc/diskstats fields: major minor name reads reads_merged sectors_read ms_reading
+                // writes writes_merged sectors_written ms_writing ios_in_progress ms_doing_io weighted_ms_doing_io
+                final String[] fields = line.trim().split("\\s+");
+                if (fields.length < 14) {
+                    continue;
+                }
+                final int majorDeviceNumber = Integer.parseInt(fields[0]);
+                final int minorDeviceNumber = Integer.parseInt(fields[1]);
+                if (devicesNumbers.contains(Tuple.tuple(majorDeviceNumber, minorDeviceNumber)) == false) {
+                    continue;
+                }
+                final String deviceName = fields[2];
+                final long readsCompleted = Long.parseLong(fields[3]);
+                final long sectorsRead = Long.parseLong(fields[5]);
+                final long writesCompleted = Long.parseLong(fields[7]);
+                final long sectorsWritten = Long.parseLong(fields[9]);
+                final long queueSize = Long.parseLong(fields[11]);
+                final long ioTime = Long.parseLong(fields[12]);
+                devicesStats.add(new FsInfo.DeviceStats(majorDeviceNumber, minorDeviceNumber, deviceName, readsCompleted, sectorsRead,
+                        writesCompleted, sectorsWritten, ioTime, queueSize, previousDeviceStats(previous, majorDeviceNumber, minorDeviceNumber)));
+            }
+            // the cache behind the stats is refreshed on demand, so the previous sample can be of any age
+            final long intervalInMillis =
+                    previous == null || previous.getIoStats() == null ? -1 : timestamp - previous.getTimestamp();
+            return new FsInfo.IoStats(devicesStats.toArray(new FsInfo.DeviceStats[devicesStats.size()]), intervalInMillis);
+        } catch (Exception e) {
+            // do not fail the node stats if the I/O statistics cannot be read
+            logger.debug("unexpected exception processing /proc/diskstats for devices {}", e, devicesNumbers);
+            return null;
+        }
+    }
+
+    private static FsInfo.DeviceStats previousDeviceStats(@Nullable FsInfo previous, int majorDeviceNumber, int minorDeviceNumber) {
+        if (previous == null || previous.getIoStats() == null) {
+            return null;
+        }
+        for (FsInfo.DeviceStats deviceStats : previous.getIoStats().getDevicesStats()) {
+            if (deviceStats.majorDeviceNumber == majorDeviceNumber && deviceStats.minorDeviceNumber == minorDeviceNumber) {
+                return deviceStats;
+            }
+        }
+        return null;
+    }
+
+    @SuppressForbidden(reason = "read /proc/diskstats")
+    List<String> readProcDiskStats() throws IOException {
+        return Files.readAllLines(PathUtils.get("/proc/diskstats"), StandardCharsets.UTF_8);
     }
 
     public static FsInfo.Path getFSInfo(NodePath nodePath) throws IOException {
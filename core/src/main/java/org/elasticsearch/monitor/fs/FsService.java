@@ -55,7 +55,8 @@ public class FsService extends AbstractComponent {
         @Override
         protected FsInfo refresh() {
             try {
-                return probe.stats();
+                // pass the previous stats along so the I/O statistics are reported as deltas
+                return probe.stats(getNoRefresh());
             } catch (IOException ex) {
                 logger.warn("Failed to fetch fs stats - returning empty instance");
                 return new FsInfo();
@@ -0,0 +1,130 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.node;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentBuilderString;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Collections.unmodifiableMap;
+
+/**
+ * The statistics collected by a node for adaptive replica selection, per node it sent search requests to.
+ */
+public class AdaptiveSelectionStats implements Streamable, ToXContent {
+
+    private Map<String, ResponseCollectorService.ComputedNodeStats> nodeStats;
+    private long clientNum;
+
+    public AdaptiveSelectionStats() {
+    }
+
+    public AdaptiveSelectionStats(Map<String, ResponseCollectorService.ComputedNodeStats> nodeStats, long clientNum) {
+        this.nodeStats = unmodifiableMap(new HashMap<>(nodeStats));
+        this.clientNum = clientNum;
+    }
+
+    public static AdaptiveSelectionStats readAdaptiveSelectionStats(StreamInput in) throws IOException {
+        AdaptiveSelectionStats stats = new AdaptiveSelectionStats();
+        stats.readFrom(in);
+        return stats;
+    }
+
+    public Map<String, ResponseCollectorService.ComputedNodeStats> getNodeStats() {
+        return nodeStats;
+    }
+
+    /**
+     * Returns the rank of every node statistics are available for
+     */
+    public Map<String, Double> getRanks() {
+        Map<String, Double> ranks = new HashMap<>();
+        for (ResponseCollectorService.ComputedNodeStats stats : nodeStats.values()) {
+            ranks.put(stats.getNodeId(), stats.rank(clientNum));
+        }
+        return ranks;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        clientNum = in.readVLong();
+        int size = in.readVInt();
+        Map<String, ResponseCollectorService.ComputedNodeStats> nodeStats = new HashMap<>(size);
+        for (int i = 0; i < size; i++) {
+            ResponseCollectorService.ComputedNodeStats stats = new ResponseCollectorService.ComputedNodeStats();
+            stats.readFrom(in);
+            nodeStats.put(stats.getNodeId(), stats);
+        }
+        this.nodeStats = unmodifiableMap(nodeStats);
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeVLong(clientNum);
+        out.writeVInt(nodeStats.size());
+        for (ResponseCollectorService.ComputedNodeStats stats : nodeStats.values()) {
+            stats.writeTo(out);
+        }
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject(Fields.ADAPTIVE_SELECTION);
+        for (ResponseCollectorService.ComputedNodeStats stats : nodeStats.values()) {
+            builder.startObject(stats.getNodeId(), XContentBuilder.FieldCaseConversion.NONE);
+            builder.field(Fields.OUTGOING_SEARCHES, stats.getOutstandingRequests());
+            builder.field(Fields.AVG_QUEUE_SIZE, Math.round(stats.getQueueSize()));
+            nanosField(builder, Fields.AVG_SERVICE_TIME_NS, Fields.AVG_SERVICE_TIME, (long) stats.getServiceTime());
+            nanosField(builder, Fields.AVG_RESPONSE_TIME_NS, Fields.AVG_RESPONSE_TIME, (long) stats.getResponseTime());
+            builder.field(Fields.RANK, String.format(Locale.ROOT, "%.1f", stats.rank(clientNum)));
+            builder.endObject();
+        }
+        builder.endObject();
+        return builder;
+    }
+
+    private static void nanosField(XContentBuilder builder, XContentBuilderString rawFieldName, XContentBuilderString readableFieldName,
+                                   long nanos) throws IOException {
+        if (builder.humanReadable()) {
+            builder.field(readableFieldName, new TimeValue(nanos, TimeUnit.NANOSECONDS).toString());
+        }
+        builder.field(rawFieldName, nanos);
+    }
+
+    static final class Fields {
+        static final XContentBuilderString ADAPTIVE_SELECTION = new XContentBuilderString("adaptive_selection");
+        static final XContentBuilderString OUTGOING_SEARCHES = new XContentBuilderString("outgoing_searches");
+        static final XContentBuilderString AVG_QUEUE_SIZE = new XContentBuilderString("avg_queue_size");
+        static final XContentBuilderString AVG_SERVICE_TIME = new XContentBuilderString("avg_service_time");
+        static final XContentBuilderString AVG_SERVICE_TIME_NS = new XContentBuilderString("avg_service_time_ns");
+        static final XContentBuilderString AVG_RESPONSE_TIME = new XContentBuilderString("avg_response_time");
+        static final XContentBuilderString AVG_RESPONSE_TIME_NS = new XContentBuilderString("avg_response_time_ns");
+        static final XContentBuilderString RANK = new XContentBuilderString("rank");
+    }
+}
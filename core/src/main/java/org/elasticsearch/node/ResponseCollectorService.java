@@ -0,0 +1,248 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.node;
+
+import org.elasticsearch.cluster.ClusterChangedEvent;
+import org.elasticsearch.cluster.ClusterService;
+import org.elasticsearch.cluster.ClusterStateListener;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.metrics.ExponentiallyWeightedMovingAverage;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects statistics about the search requests this node coordinates, per target node. For every node it keeps the
+ * number of outstanding requests, an exponentially weighted moving average of the response time as seen by this node
+ * as well as the search queue size and service time the target node reported back. These statistics are used to
+ * rank shard copies by the expected latency of the node holding them, following the C3 replica selection algorithm.
+ */
+public final class ResponseCollectorService extends AbstractComponent implements ClusterStateListener {
+
+    /**
+     * The weight of a new sample in the moving averages, the value recommended by the C3 paper.
+     */
+    public static final double ALPHA = 0.3;
+
+    /**
+     * Statistics older than this are considered stale, the node is then ranked as if it was unknown so that it gets
+     * probed again instead of being avoided forever after a single slow period.
+     */
+    private static final long STALE_STATISTICS_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private final ConcurrentMap<String, NodeStatistics> nodeStats = ConcurrentCollections.newConcurrentMap();
+
+    @Inject
+    public ResponseCollectorService(Settings settings, ClusterService clusterService) {
+        super(settings);
+        clusterService.add(this);
+    }
+
+    @Override
+    public void clusterChanged(ClusterChangedEvent event) {
+        if (event.nodesRemoved()) {
+            for (DiscoveryNode removedNode : event.nodesDelta().removedNodes()) {
+                nodeStats.remove(removedNode.id());
+            }
+        }
+    }
+
+    /**
+     * Called when a search request is sent to the given node.
+     */
+    public void onRequestSent(String nodeId) {
+        nodeStats(nodeId).outstandingRequests.incrementAndGet();
+    }
+
+    /**
+     * Called when a response for a search request was received from the given node.
+     *
+     * @param responseTimeNanos the time between sending the request and receiving the response on this node
+     * @param queueSize         the search queue size the node reported or <code>-1</code> if it didn't report one
+     * @param serviceTimeNanos  the average service time the node reported or <code>-1</code> if it didn't report one
+     */
+    public void onResponseReceived(String nodeId, long responseTimeNanos, int queueSize, long serviceTimeNanos) {
+        NodeStatistics stats = nodeStats(nodeId);
+        stats.outstandingRequests.decrementAndGet();
+        stats.responseTime.addValue(responseTimeNanos);
+        if (queueSize >= 0) {
+            stats.queueSize.addValue(queueSize);
+        }
+        if (serviceTimeNanos >= 0) {
+            stats.serviceTime = serviceTimeNanos;
+        }
+        stats.lastUpdated = System.nanoTime();
+    }
+
+    /**
+     * Called when a search request sent to the given node failed.
+     */
+    public void onFailure(String nodeId) {
+        nodeStats(nodeId).outstandingRequests.decrementAndGet();
+    }
+
+    private NodeStatistics nodeStats(String nodeId) {
+        return nodeStats.computeIfAbsent(nodeId, (id) -> new NodeStatistics());
+    }
+
+    /**
+     * Returns the rank of the given node, lower is better, or <code>null</code> if there are no recent statistics for
+     * this node.
+     */
+    @Nullable
+    public Double rank(String nodeId) {
+        return rank(nodeId, 0);
+    }
+
+    /**
+     * Returns the rank of the given node as if the given number of requests were outstanding on top of the ones that were
+     * already sent, or <code>null</code> if there are no recent statistics for this node. This accounts for the requests
+     * that a search is about to send to the node while it is still picking the copies of its shards.
+     */
+    @Nullable
+    public Double rank(String nodeId, long additionalRequests) {
+        NodeStatistics stats = nodeStats.get(nodeId);
+        if (stats == null || stats.lastUpdated == 0 || System.nanoTime() - stats.lastUpdated > STALE_STATISTICS_NANOS) {
+            return null;
+        }
+        return stats.compute(nodeId).rank(Math.max(1, nodeStats.size()), additionalRequests);
+    }
+
+    /**
+     * Returns a snapshot of the statistics of all nodes this node has sent search requests to.
+     */
+    public AdaptiveSelectionStats getAdaptiveStats() {
+        Map<String, ComputedNodeStats> computed = new HashMap<>();
+        for (Map.Entry<String, NodeStatistics> entry : nodeStats.entrySet()) {
+            computed.put(entry.getKey(), entry.getValue().compute(entry.getKey()));
+        }
+        return new AdaptiveSelectionStats(computed, Math.max(1, computed.size()));
+    }
+
+    private static final class NodeStatistics {
+        final AtomicLong outstandingRequests = new AtomicLong();
+        final ExponentiallyWeightedMovingAverage queueSize = new ExponentiallyWeightedMovingAverage(ALPHA, 0);
+        final ExponentiallyWeightedMovingAverage responseTime = new ExponentiallyWeightedMovingAverage(ALPHA, 0);
+        volatile double serviceTime;
+        volatile long lastUpdated;
+
+        ComputedNodeStats compute(String nodeId) {
+            return new ComputedNodeStats(nodeId, Math.max(0, outstandingRequests.get()), queueSize.getAverage(),
+                responseTime.getAverage(), serviceTime);
+        }
+    }
+
+    /**
+     * A point in time snapshot of the statistics collected for a single node.
+     */
+    public static final class ComputedNodeStats implements Streamable {
+
+        private String nodeId;
+        private long outstandingRequests;
+        private double queueSize;
+        private double responseTime;
+        private double serviceTime;
+
+        ComputedNodeStats() {
+        }
+
+        public ComputedNodeStats(String nodeId, long outstandingRequests, double queueSize, double responseTime, double serviceTime) {
+            this.nodeId = nodeId;
+            this.outstandingRequests = outstandingRequests;
+            this.queueSize = queueSize;
+            this.responseTime = responseTime;
+            this.serviceTime = serviceTime;
+        }
+
+        public String getNodeId() {
+            return nodeId;
+        }
+
+        public long getOutstandingRequests() {
+            return outstandingRequests;
+        }
+
+        public double getQueueSize() {
+            return queueSize;
+        }
+
+        /**
+         * The moving average of the response time in nanoseconds
+         */
+        public double getResponseTime() {
+            return responseTime;
+        }
+
+        /**
+         * The moving average of the service time in nanoseconds
+         */
+        public double getServiceTime() {
+            return serviceTime;
+        }
+
+        /**
+         * Computes the C3 rank of this node: the response time minus the service time, which approximates the network
+         * and queueing overhead, plus the service time weighted by the cube of the estimated queue size, which
+         * penalizes nodes with long queues. <code>clientNum</code> is the number of nodes that are assumed to send
+         * requests to this node concurrently.
+         */
+        public double rank(long clientNum) {
+            return rank(clientNum, 0);
+        }
+
+        /**
+         * Computes the C3 rank of this node as if the given number of requests were outstanding on top of the ones that
+         * were already sent.
+         */
+        public double rank(long clientNum, long additionalRequests) {
+            double queueEstimate = 1 + ((outstandingRequests + additionalRequests) * clientNum) + queueSize;
+            return responseTime - serviceTime + Math.pow(queueEstimate, 3) * serviceTime;
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            nodeId = in.readString();
+            outstandingRequests = in.readVLong();
+            queueSize = in.readDouble();
+            responseTime = in.readDouble();
+            serviceTime = in.readDouble();
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeString(nodeId);
+            out.writeVLong(outstandingRequests);
+            out.writeDouble(queueSize);
+            out.writeDouble(responseTime);
+            out.writeDouble(serviceTime);
+        }
+    }
+}
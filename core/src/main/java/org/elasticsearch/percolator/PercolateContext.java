@@ -23,12 +23,14 @@ import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexableField;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.FieldDoc;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.Sort;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.Counter;
 import org.elasticsearch.action.percolate.PercolateShardRequest;
+import org.elasticsearch.action.search.SearchTask;
 import org.elasticsearch.action.search.SearchType;
 import org.elasticsearch.cache.recycler.PageCacheRecycler;
 import org.elasticsearch.common.HasContext;
@@ -42,6 +44,7 @@ import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.index.IndexService;
 import org.elasticsearch.index.analysis.AnalysisService;
 import org.elasticsearch.index.cache.bitset.BitsetFilterCache;
+import org.elasticsearch.index.cache.docfreq.DocFreqCache;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.fielddata.IndexFieldDataService;
 import org.elasticsearch.index.mapper.MappedFieldType;
@@ -446,6 +449,11 @@ public class PercolateContext extends SearchContext {
         return indexService.cache().bitsetFilterCache();
     }
 
+    @Override
+    public DocFreqCache docFreqCache() {
+        return indexService.cache().docFreqCache();
+    }
+
     @Override
     public long timeoutInMillis() {
         return -1;
@@ -498,6 +506,26 @@ public class PercolateContext extends SearchContext {
         return trackScores;
     }
 
+    @Override
+    public SearchContext trackTotalHits(boolean trackTotalHits) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean trackTotalHits() {
+        return true;
+    }
+
+    @Override
+    public SearchContext searchAfter(FieldDoc searchAfter) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public FieldDoc searchAfter() {
+        return null;
+    }
+
     @Override
     public SearchContext parsedPostFilter(ParsedQuery postFilter) {
         throw new UnsupportedOperationException();
@@ -743,6 +771,18 @@ public class PercolateContext extends SearchContext {
 
     @Override
     public Profilers getProfilers() {
+        // percolation is never profiled, aggregators check for profilers while they are created
+        return null;
+    }
+
+    @Override
+    public void setTask(SearchTask task) {
         throw new UnsupportedOperationException();
     }
+
+    @Override
+    public SearchTask getTask() {
+        // percolations are not tracked as search tasks
+        return null;
+    }
 }
@@ -0,0 +1,76 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.rest.action.admin.cluster.node.tasks;
+
+import org.elasticsearch.action.admin.cluster.node.tasks.cancel.CancelTasksRequest;
+import org.elasticsearch.action.admin.cluster.node.tasks.cancel.CancelTasksResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.rest.BaseRestHandler;
+import org.elasticsearch.rest.BytesRestResponse;
+import org.elasticsearch.rest.RestChannel;
+import org.elasticsearch.rest.RestController;
+import org.elasticsearch.rest.RestRequest;
+import org.elasticsearch.rest.RestResponse;
+import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.rest.action.support.RestBuilderListener;
+import org.elasticsearch.tasks.TaskId;
+
+import static org.elasticsearch.rest.RestRequest.Method.POST;
+
+/**
+ * Cancels a task by id, or all tasks running a matching action, together with their children.
+ */
+public class RestCancelTasksAction extends BaseRestHandler {
+
+    @Inject
+    public RestCancelTasksAction(Settings settings, RestController controller, Client client) {
+        super(settings, controller, client);
+        controller.registerHandler(POST, "/_tasks/_cancel", this);
+        controller.registerHandler(POST, "/_tasks/{task_id}/_cancel", this);
+    }
+
+    @Override
+    public void handleRequest(final RestRequest request, final RestChannel channel, final Client client) {
+        String[] nodesIds = Strings.splitStringByCommaToArray(request.param("nodes"));
+        CancelTasksRequest cancelTasksRequest = new CancelTasksRequest();
+        cancelTasksRequest.nodesIds(nodesIds);
+        String[] taskIds = Strings.splitStringByCommaToArray(request.param("task_id"));
+        TaskId[] parsedTaskIds = new TaskId[taskIds.length];
+        for (int i = 0; i < taskIds.length; i++) {
+            parsedTaskIds[i] = new TaskId(taskIds[i]);
+        }
+        cancelTasksRequest.taskIds(parsedTaskIds);
+        cancelTasksRequest.actions(Strings.splitStringByCommaToArray(request.param("actions")));
+        cancelTasksRequest.reason(request.param("reason", cancelTasksRequest.reason()));
+        cancelTasksRequest.timeout(request.param("timeout"));
+        client.admin().cluster().cancelTasks(cancelTasksRequest, new RestBuilderListener<CancelTasksResponse>(channel) {
+            @Override
+            public RestResponse buildResponse(CancelTasksResponse response, XContentBuilder builder) throws Exception {
+                builder.startObject();
+                response.toXContent(builder, request);
+                builder.endObject();
+                return new BytesRestResponse(RestStatus.OK, builder);
+            }
+        });
+    }
+}
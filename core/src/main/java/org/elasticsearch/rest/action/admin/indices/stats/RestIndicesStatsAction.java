@@ -25,6 +25,7 @@ import org.elasticsearch.action.support.IndicesOptions;
 import org.elasticsearch.client.Client;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.metrics.LatencyStats;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.rest.BaseRestHandler;
@@ -96,6 +97,10 @@ public class RestIndicesStatsAction extends BaseRestHandler {
             indicesStatsRequest.types(Strings.splitStringByCommaToArray(request.param("types")));
         }
 
+        indicesStatsRequest.resetLatency(request.paramAsBoolean("reset_latency", false));
+        // fail before collecting the stats rather than half way through rendering them
+        LatencyStats.percentiles(request);
+
         if (indicesStatsRequest.completion() && (request.hasParam("fields") || request.hasParam("completion_fields"))) {
             indicesStatsRequest.completionFields(request.paramAsStringArray("completion_fields", request.paramAsStringArray("fields", Strings.EMPTY_ARRAY)));
         }
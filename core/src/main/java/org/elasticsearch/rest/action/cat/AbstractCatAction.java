@@ -19,10 +19,13 @@
 package org.elasticsearch.rest.action.cat;
 
 import org.elasticsearch.client.Client;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.Table;
 import org.elasticsearch.common.io.UTF8StreamWriter;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.metrics.LatencyStats;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.rest.BaseRestHandler;
 import org.elasticsearch.rest.BytesRestResponse;
 import org.elasticsearch.rest.RestChannel;
@@ -71,4 +74,28 @@ public abstract class AbstractCatAction extends BaseRestHandler {
             doRequest(request, channel, client);
         }
     }
+
+    /**
+     * The percentile that latency columns show, set with the <code>latency_percentile</code> parameter. Defaults to 99.
+     */
+    protected static double latencyPercentile(RestRequest request) {
+        String value = request.param("latency_percentile", "99");
+        final double percentile;
+        try {
+            percentile = Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("failed to parse [latency_percentile] value [" + value + "]", e);
+        }
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("[latency_percentile] must be between 0 and 100 but was [" + value + "]");
+        }
+        return percentile;
+    }
+
+    /**
+     * Returns the latency at the given percentile, or <code>null</code> if latencies are not tracked.
+     */
+    protected static TimeValue latency(@Nullable LatencyStats latency, double percentile) {
+        return latency == null ? null : latency.getPercentile(percentile);
+    }
 }
@@ -82,6 +82,7 @@ public class RestNodesAction extends AbstractCatAction {
 
     @Override
     public void doRequest(final RestRequest request, final RestChannel channel, final Client client) {
+        final double latencyPercentile = latencyPercentile(request);
         final ClusterStateRequest clusterStateRequest = new ClusterStateRequest();
         clusterStateRequest.clear().nodes(true);
         clusterStateRequest.local(request.paramAsBoolean("local", clusterStateRequest.local()));
@@ -100,7 +101,7 @@ public class RestNodesAction extends AbstractCatAction {
                         client.admin().cluster().nodesStats(nodesStatsRequest, new RestResponseListener<NodesStatsResponse>(channel) {
                             @Override
                             public RestResponse buildResponse(NodesStatsResponse nodesStatsResponse) throws Exception {
-                                return RestTable.buildResponse(buildTable(request, clusterStateResponse, nodesInfoResponse, nodesStatsResponse), channel);
+                                return RestTable.buildResponse(buildTable(request, clusterStateResponse, nodesInfoResponse, nodesStatsResponse, latencyPercentile), channel);
                             }
                         });
                     }
@@ -163,6 +164,7 @@ public class RestNodesAction extends AbstractCatAction {
         table.addCell("get.exists_total", "alias:geto,getExistsTotal;default:false;text-align:right;desc:number of successful gets");
         table.addCell("get.missing_time", "alias:gmti,getMissingTime;default:false;text-align:right;desc:time spent in failed gets");
         table.addCell("get.missing_total", "alias:gmto,getMissingTotal;default:false;text-align:right;desc:number of failed gets");
+        table.addCell("get.latency", "alias:gl,getLatency;default:false;text-align:right;desc:get latency at the requested percentile");
 
         table.addCell("indexing.delete_current", "alias:idc,indexingDeleteCurrent;default:false;text-align:right;desc:number of current deletions");
         table.addCell("indexing.delete_time", "alias:idti,indexingDeleteTime;default:false;text-align:right;desc:time spent in deletions");
@@ -171,6 +173,8 @@ public class RestNodesAction extends AbstractCatAction {
         table.addCell("indexing.index_time", "alias:iiti,indexingIndexTime;default:false;text-align:right;desc:time spent in indexing");
         table.addCell("indexing.index_total", "alias:iito,indexingIndexTotal;default:false;text-align:right;desc:number of indexing ops");
         table.addCell("indexing.index_failed", "alias:iif,indexingIndexFailed;default:false;text-align:right;desc:number of failed indexing ops");
+        table.addCell("indexing.index_latency", "alias:iil,indexingIndexLatency;default:false;text-align:right;desc:indexing latency at the requested percentile");
+        table.addCell("indexing.delete_latency", "alias:idl,indexingDeleteLatency;default:false;text-align:right;desc:delete latency at the requested percentile");
 
         table.addCell("merges.current", "alias:mc,mergesCurrent;default:false;text-align:right;desc:number of current merges");
         table.addCell("merges.current_docs", "alias:mcd,mergesCurrentDocs;default:false;text-align:right;desc:number of current merging docs");
@@ -202,6 +206,9 @@ public class RestNodesAction extends AbstractCatAction {
         table.addCell("search.scroll_current", "alias:scc,searchScrollCurrent;default:false;text-align:right;desc:open scroll contexts");
         table.addCell("search.scroll_time", "alias:scti,searchScrollTime;default:false;text-align:right;desc:time scroll contexts held open");
         table.addCell("search.scroll_total", "alias:scto,searchScrollTotal;default:false;text-align:right;desc:completed scroll contexts");
+        table.addCell("search.query_latency", "alias:sql,searchQueryLatency;default:false;text-align:right;desc:query phase latency at the requested percentile");
+        table.addCell("search.fetch_latency", "alias:sfl,searchFetchLatency;default:false;text-align:right;desc:fetch phase latency at the requested percentile");
+        table.addCell("search.scroll_latency", "alias:scl,searchScrollLatency;default:false;text-align:right;desc:scroll context lifetime at the requested percentile");
 
         table.addCell("segments.count", "alias:sc,segmentsCount;default:false;text-align:right;desc:number of segments");
         table.addCell("segments.memory", "alias:sm,segmentsMemory;default:false;text-align:right;desc:memory used by segments");
@@ -218,7 +225,8 @@ public class RestNodesAction extends AbstractCatAction {
         return table;
     }
 
-    private Table buildTable(RestRequest req, ClusterStateResponse state, NodesInfoResponse nodesInfo, NodesStatsResponse nodesStats) {
+    private Table buildTable(RestRequest req, ClusterStateResponse state, NodesInfoResponse nodesInfo, NodesStatsResponse nodesStats,
+                             double latencyPercentile) {
         boolean fullId = req.paramAsBoolean("full_id", false);
 
         DiscoveryNodes nodes = state.getState().nodes();
@@ -298,6 +306,7 @@ public class RestNodesAction extends AbstractCatAction {
             table.addCell(getStats == null ? null : getStats.getExistsCount());
             table.addCell(getStats == null ? null : getStats.getMissingTime());
             table.addCell(getStats == null ? null : getStats.getMissingCount());
+            table.addCell(getStats == null ? null : latency(getStats.getLatency(), latencyPercentile));
 
             IndexingStats indexingStats = indicesStats == null ? null : indicesStats.getIndexing();
             table.addCell(indexingStats == null ? null : indexingStats.getTotal().getDeleteCurrent());
@@ -307,6 +316,8 @@ public class RestNodesAction extends AbstractCatAction {
             table.addCell(indexingStats == null ? null : indexingStats.getTotal().getIndexTime());
             table.addCell(indexingStats == null ? null : indexingStats.getTotal().getIndexCount());
             table.addCell(indexingStats == null ? null : indexingStats.getTotal().getIndexFailedCount());
+            table.addCell(indexingStats == null ? null : latency(indexingStats.getTotal().getIndexLatency(), latencyPercentile));
+            table.addCell(indexingStats == null ? null : latency(indexingStats.getTotal().getDeleteLatency(), latencyPercentile));
 
             MergeStats mergeStats = indicesStats == null ? null : indicesStats.getMerge();
             table.addCell(mergeStats == null ? null : mergeStats.getCurrent());
@@ -343,6 +354,9 @@ public class RestNodesAction extends AbstractCatAction {
             table.addCell(searchStats == null ? null : searchStats.getTotal().getScrollCurrent());
             table.addCell(searchStats == null ? null : searchStats.getTotal().getScrollTime());
             table.addCell(searchStats == null ? null : searchStats.getTotal().getScrollCount());
+            table.addCell(searchStats == null ? null : latency(searchStats.getTotal().getQueryLatency(), latencyPercentile));
+            table.addCell(searchStats == null ? null : latency(searchStats.getTotal().getFetchLatency(), latencyPercentile));
+            table.addCell(searchStats == null ? null : latency(searchStats.getTotal().getScrollLatency(), latencyPercentile));
 
             SegmentsStats segmentsStats = indicesStats == null ? null : indicesStats.getSegments();
             table.addCell(segmentsStats == null ? null : segmentsStats.getCount());
@@ -63,6 +63,7 @@ public class RestShardsAction extends AbstractCatAction {
 
     @Override
     public void doRequest(final RestRequest request, final RestChannel channel, final Client client) {
+        final double latencyPercentile = latencyPercentile(request);
         final String[] indices = Strings.splitStringByCommaToArray(request.param("index"));
         final ClusterStateRequest clusterStateRequest = new ClusterStateRequest();
         clusterStateRequest.local(request.paramAsBoolean("local", clusterStateRequest.local()));
@@ -76,7 +77,7 @@ public class RestShardsAction extends AbstractCatAction {
                 client.admin().indices().stats(indicesStatsRequest, new RestResponseListener<IndicesStatsResponse>(channel) {
                     @Override
                     public RestResponse buildResponse(IndicesStatsResponse indicesStatsResponse) throws Exception {
-                        return RestTable.buildResponse(buildTable(request, clusterStateResponse, indicesStatsResponse), channel);
+                        return RestTable.buildResponse(buildTable(request, clusterStateResponse, indicesStatsResponse, latencyPercentile), channel);
                     }
                 });
             }
@@ -122,6 +123,7 @@ public class RestShardsAction extends AbstractCatAction {
         table.addCell("get.exists_total", "alias:geto,getExistsTotal;default:false;text-align:right;desc:number of successful gets");
         table.addCell("get.missing_time", "alias:gmti,getMissingTime;default:false;text-align:right;desc:time spent in failed gets");
         table.addCell("get.missing_total", "alias:gmto,getMissingTotal;default:false;text-align:right;desc:number of failed gets");
+        table.addCell("get.latency", "alias:gl,getLatency;default:false;text-align:right;desc:get latency at the requested percentile");
 
         table.addCell("indexing.delete_current", "alias:idc,indexingDeleteCurrent;default:false;text-align:right;desc:number of current deletions");
         table.addCell("indexing.delete_time", "alias:idti,indexingDeleteTime;default:false;text-align:right;desc:time spent in deletions");
@@ -130,6 +132,8 @@ public class RestShardsAction extends AbstractCatAction {
         table.addCell("indexing.index_time", "alias:iiti,indexingIndexTime;default:false;text-align:right;desc:time spent in indexing");
         table.addCell("indexing.index_total", "alias:iito,indexingIndexTotal;default:false;text-align:right;desc:number of indexing ops");
         table.addCell("indexing.index_failed", "alias:iif,indexingIndexFailed;default:false;text-align:right;desc:number of failed indexing ops");
+        table.addCell("indexing.index_latency", "alias:iil,indexingIndexLatency;default:false;text-align:right;desc:indexing latency at the requested percentile");
+        table.addCell("indexing.delete_latency", "alias:idl,indexingDeleteLatency;default:false;text-align:right;desc:delete latency at the requested percentile");
 
         table.addCell("merges.current", "alias:mc,mergesCurrent;default:false;text-align:right;desc:number of current merges");
         table.addCell("merges.current_docs", "alias:mcd,mergesCurrentDocs;default:false;text-align:right;desc:number of current merging docs");
@@ -158,6 +162,9 @@ public class RestShardsAction extends AbstractCatAction {
         table.addCell("search.scroll_current", "alias:scc,searchScrollCurrent;default:false;text-align:right;desc:open scroll contexts");
         table.addCell("search.scroll_time", "alias:scti,searchScrollTime;default:false;text-align:right;desc:time scroll contexts held open");
         table.addCell("search.scroll_total", "alias:scto,searchScrollTotal;default:false;text-align:right;desc:completed scroll contexts");
+        table.addCell("search.query_latency", "alias:sql,searchQueryLatency;default:false;text-align:right;desc:query phase latency at the requested percentile");
+        table.addCell("search.fetch_latency", "alias:sfl,searchFetchLatency;default:false;text-align:right;desc:fetch phase latency at the requested percentile");
+        table.addCell("search.scroll_latency", "alias:scl,searchScrollLatency;default:false;text-align:right;desc:scroll context lifetime at the requested percentile");
 
         table.addCell("segments.count", "alias:sc,segmentsCount;default:false;text-align:right;desc:number of segments");
         table.addCell("segments.memory", "alias:sm,segmentsMemory;default:false;text-align:right;desc:memory used by segments");
@@ -174,7 +181,7 @@ public class RestShardsAction extends AbstractCatAction {
         return table;
     }
 
-    private Table buildTable(RestRequest request, ClusterStateResponse state, IndicesStatsResponse stats) {
+    private Table buildTable(RestRequest request, ClusterStateResponse state, IndicesStatsResponse stats, double latencyPercentile) {
         Table table = getTableWithHeader(request);
 
         for (ShardRouting shard : state.getState().routingTable().allShards()) {
@@ -265,6 +272,7 @@ public class RestShardsAction extends AbstractCatAction {
             table.addCell(commonStats == null ? null : commonStats.getGet().getExistsCount());
             table.addCell(commonStats == null ? null : commonStats.getGet().getMissingTime());
             table.addCell(commonStats == null ? null : commonStats.getGet().getMissingCount());
+            table.addCell(commonStats == null ? null : latency(commonStats.getGet().getLatency(), latencyPercentile));
 
             table.addCell(commonStats == null ? null : commonStats.getIndexing().getTotal().getDeleteCurrent());
             table.addCell(commonStats == null ? null : commonStats.getIndexing().getTotal().getDeleteTime());
@@ -273,6 +281,8 @@ public class RestShardsAction extends AbstractCatAction {
             table.addCell(commonStats == null ? null : commonStats.getIndexing().getTotal().getIndexTime());
             table.addCell(commonStats == null ? null : commonStats.getIndexing().getTotal().getIndexCount());
             table.addCell(commonStats == null ? null : commonStats.getIndexing().getTotal().getIndexFailedCount());
+            table.addCell(commonStats == null ? null : latency(commonStats.getIndexing().getTotal().getIndexLatency(), latencyPercentile));
+            table.addCell(commonStats == null ? null : latency(commonStats.getIndexing().getTotal().getDeleteLatency(), latencyPercentile));
 
             table.addCell(commonStats == null ? null : commonStats.getMerge().getCurrent());
             table.addCell(commonStats == null ? null : commonStats.getMerge().getCurrentNumDocs());
@@ -301,6 +311,9 @@ public class RestShardsAction extends AbstractCatAction {
             table.addCell(commonStats == null ? null : commonStats.getSearch().getTotal().getScrollCurrent());
             table.addCell(commonStats == null ? null : commonStats.getSearch().getTotal().getScrollTime());
             table.addCell(commonStats == null ? null : commonStats.getSearch().getTotal().getScrollCount());
+            table.addCell(commonStats == null ? null : latency(commonStats.getSearch().getTotal().getQueryLatency(), latencyPercentile));
+            table.addCell(commonStats == null ? null : latency(commonStats.getSearch().getTotal().getFetchLatency(), latencyPercentile));
+            table.addCell(commonStats == null ? null : latency(commonStats.getSearch().getTotal().getScrollLatency(), latencyPercentile));
 
             table.addCell(commonStats == null ? null : commonStats.getSegments().getCount());
             table.addCell(commonStats == null ? null : commonStats.getSegments().getMemory());
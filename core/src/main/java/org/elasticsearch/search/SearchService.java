@@ -28,6 +28,7 @@ import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.NumericDocValues;
 import org.apache.lucene.search.TopDocs;
 import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.search.SearchTask;
 import org.elasticsearch.action.search.SearchType;
 import org.elasticsearch.cache.recycler.PageCacheRecycler;
 import org.elasticsearch.cluster.ClusterService;
@@ -38,6 +39,7 @@ import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.component.AbstractLifecycleComponent;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.common.metrics.ExponentiallyWeightedMovingAverage;
 import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Settings;
@@ -72,10 +74,13 @@ import org.elasticsearch.indices.IndicesService;
 import org.elasticsearch.indices.IndicesWarmer;
 import org.elasticsearch.indices.IndicesWarmer.TerminationHandle;
 import org.elasticsearch.indices.cache.request.IndicesRequestCache;
+import org.elasticsearch.node.ResponseCollectorService;
 import org.elasticsearch.script.ExecutableScript;
 import org.elasticsearch.script.ScriptContext;
 import org.elasticsearch.script.ScriptService;
 import org.elasticsearch.script.SearchScript;
+import org.elasticsearch.search.aggregations.metrics.tophits.DeferredTopHits;
+import org.elasticsearch.search.aggregations.metrics.tophits.TopHitsAggregator;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.search.dfs.DfsPhase;
 import org.elasticsearch.search.dfs.DfsSearchResult;
@@ -102,6 +107,7 @@ import org.elasticsearch.search.query.QuerySearchRequest;
 import org.elasticsearch.search.query.QuerySearchResult;
 import org.elasticsearch.search.query.QuerySearchResultProvider;
 import org.elasticsearch.search.query.ScrollQuerySearchResult;
+import org.elasticsearch.search.searchafter.SearchAfterBuilder;
 import org.elasticsearch.search.warmer.IndexWarmersMetaData;
 import org.elasticsearch.threadpool.ThreadPool;
 
@@ -113,6 +119,7 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.atomic.AtomicLong;
 
 import static java.util.Collections.unmodifiableMap;
@@ -168,6 +175,8 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> imp
 
     private final ParseFieldMatcher parseFieldMatcher;
 
+    private final ExponentiallyWeightedMovingAverage queryServiceTime = new ExponentiallyWeightedMovingAverage(ResponseCollectorService.ALPHA, 0);
+
     @Inject
     public SearchService(Settings settings, ClusterSettings clusterSettings, ClusterService clusterService, IndicesService indicesService, IndicesWarmer indicesWarmer, ThreadPool threadPool,
                          ScriptService scriptService, PageCacheRecycler pageCacheRecycler, BigArrays bigArrays, DfsPhase dfsPhase, QueryPhase queryPhase, FetchPhase fetchPhase,
@@ -257,8 +266,9 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> imp
         FutureUtils.cancel(keepAliveReaper);
     }
 
-    public DfsSearchResult executeDfsPhase(ShardSearchRequest request) {
+    public DfsSearchResult executeDfsPhase(ShardSearchRequest request, @Nullable SearchTask task) {
         final SearchContext context = createAndPutContext(request);
+        context.setTask(task);
         try {
             contextProcessing(context);
             dfsPhase.execute(context);
@@ -286,8 +296,9 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> imp
         }
     }
 
-    public QuerySearchResultProvider executeQueryPhase(ShardSearchRequest request) {
+    public QuerySearchResultProvider executeQueryPhase(ShardSearchRequest request, SearchTask task) {
         final SearchContext context = createAndPutContext(request);
+        context.setTask(task);
         final ShardSearchStats shardSearchStats = context.indexShard().searchService();
         try {
             shardSearchStats.onPreQueryPhase(context);
@@ -296,12 +307,14 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> imp
 
             loadOrExecuteQueryPhase(request, context, queryPhase);
 
-            if (context.queryResult().topDocs().scoreDocs.length == 0 && context.scrollContext() == null) {
+            if (hasNothingToFetch(context)) {
                 freeContext(context.id());
             } else {
                 contextProcessedSuccessfully(context);
             }
-            shardSearchStats.onQueryPhase(context, System.nanoTime() - time);
+            final long took = System.nanoTime() - time;
+            shardSearchStats.onQueryPhase(context, took);
+            recordServiceTime(context.queryResult(), took);
 
             return context.queryResult();
         } catch (Throwable e) {
@@ -340,8 +353,9 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> imp
         }
     }
 
-    public QuerySearchResult executeQueryPhase(QuerySearchRequest request) {
+    public QuerySearchResult executeQueryPhase(QuerySearchRequest request, SearchTask task) {
         final SearchContext context = findContext(request.id());
+        context.setTask(task);
         contextProcessing(context);
         context.searcher().setAggregatedDfs(request.dfs());
         IndexShard indexShard = context.indexShard();
@@ -350,7 +364,7 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> imp
             shardSearchStats.onPreQueryPhase(context);
             long time = System.nanoTime();
             queryPhase.execute(context);
-            if (context.queryResult().topDocs().scoreDocs.length == 0 && context.scrollContext() == null) {
+            if (hasNothingToFetch(context)) {
                 // no hits, we can release the context since there will be no fetch phase
                 freeContext(context.id());
             } else {
@@ -368,6 +382,19 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> imp
         }
     }
 
+    /**
+     * Records the service time of a query phase and attaches the current search load of this node to its result so that
+     * the coordinating node can rank shard copies by it, see {@link ResponseCollectorService}.
+     */
+    private void recordServiceTime(QuerySearchResult result, long tookInNanos) {
+        queryServiceTime.addValue(tookInNanos);
+        result.serviceTimeEWMA((long) queryServiceTime.getAverage());
+        Executor executor = threadPool.executor(ThreadPool.Names.SEARCH);
+        if (executor instanceof ThreadPoolExecutor) {
+            result.nodeQueueSize(((ThreadPoolExecutor) executor).getQueue().size());
+        }
+    }
+
     private boolean fetchPhaseShouldFreeContext(SearchContext context) {
         if (context.scrollContext() == null) {
             // simple search, no scroll
@@ -378,8 +405,9 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> imp
         }
     }
 
-    public QueryFetchSearchResult executeFetchPhase(ShardSearchRequest request) {
+    public QueryFetchSearchResult executeFetchPhase(ShardSearchRequest request, SearchTask task) {
         final SearchContext context = createAndPutContext(request);
+        context.setTask(task);
         contextProcessing(context);
         try {
             ShardSearchStats shardSearchStats = context.indexShard().searchService();
@@ -393,6 +421,7 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> imp
             }
             long time2 = System.nanoTime();
             shardSearchStats.onQueryPhase(context, time2 - time);
+            recordServiceTime(context.queryResult(), time2 - time);
             shardSearchStats.onPreFetchPhase(context);
             try {
                 shortcutDocIdsToLoad(context);
@@ -417,8 +446,9 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> imp
         }
     }
 
-    public QueryFetchSearchResult executeFetchPhase(QuerySearchRequest request) {
+    public QueryFetchSearchResult executeFetchPhase(QuerySearchRequest request, SearchTask task) {
         final SearchContext context = findContext(request.id());
+        context.setTask(task);
         contextProcessing(context);
         context.searcher().setAggregatedDfs(request.dfs());
         try {
@@ -497,8 +527,9 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> imp
         }
     }
 
-    public FetchSearchResult executeFetchPhase(ShardFetchRequest request) {
+    public FetchSearchResult executeFetchPhase(ShardFetchRequest request, SearchTask task) {
         final SearchContext context = findContext(request.id());
+        context.setTask(task);
         contextProcessing(context);
         final ShardSearchStats shardSearchStats = context.indexShard().searchService();
         try {
@@ -509,6 +540,7 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> imp
             shardSearchStats.onPreFetchPhase(context);
             long time = System.nanoTime();
             fetchPhase.execute(context);
+            fetchDeferredTopHits(context, request.topHitsDocIds());
             if (fetchPhaseShouldFreeContext(context)) {
                 freeContext(request.id());
             } else {
@@ -526,6 +558,25 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> imp
         }
     }
 
+    /**
+     * Whether the context can be released right after the query phase because neither top docs nor the hits of
+     * top_hits aggregations are going to be fetched from it.
+     */
+    private static boolean hasNothingToFetch(SearchContext context) {
+        return context.queryResult().topDocs().scoreDocs.length == 0 && context.scrollContext() == null
+                && DeferredTopHits.hasDeferredHits(context.queryResult().aggregations()) == false;
+    }
+
+    private void fetchDeferredTopHits(SearchContext context, Map<String, int[]> topHitsDocIds) {
+        for (Map.Entry<String, int[]> entry : topHitsDocIds.entrySet()) {
+            TopHitsAggregator.Factory factory = context.deferredTopHits(entry.getKey());
+            if (factory == null) {
+                throw new IllegalArgumentException("no top_hits aggregation [" + entry.getKey() + "] to fetch hits for");
+            }
+            context.fetchResult().topHits(entry.getKey(), factory.fetch(entry.getValue()));
+        }
+    }
+
     private SearchContext findContext(long id) throws SearchContextMissingException {
         SearchContext context = activeContexts.get(id);
         if (context == null) {
@@ -559,6 +610,9 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> imp
 
         SearchShardTarget shardTarget = new SearchShardTarget(clusterService.localNode().id(), request.index(), request.shardId());
 
+        if (searcher == null) {
+            indexShard.markSearcherAccessed();
+        }
         Engine.Searcher engineSearcher = searcher == null ? indexShard.acquireSearcher("search") : searcher;
 
         DefaultSearchContext context = new DefaultSearchContext(idGenerator.incrementAndGet(), request, shardTarget, engineSearcher, indexService, indexShard, scriptService, pageCacheRecycler, bigArrays, threadPool.estimatedTimeInMillisCounter(), parseFieldMatcher, defaultSearchTimeout);
@@ -568,6 +622,9 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> imp
             if (request.scroll() != null) {
                 context.scrollContext(new ScrollContext());
                 context.scrollContext().scroll = request.scroll();
+            } else if (request.searchType() == SearchType.QUERY_THEN_FETCH || request.searchType() == SearchType.DFS_QUERY_THEN_FETCH) {
+                // the coordinating node fetches the hits of top_hits aggregations along with the top docs of the request
+                context.deferTopHitsFetch();
             }
             if (request.template() != null) {
                 ExecutableScript executable = this.scriptService.executable(request.template(), ScriptContext.Standard.SEARCH, context, Collections.emptyMap());
@@ -653,6 +710,8 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> imp
 
     private void cleanContext(SearchContext context) {
         assert context == SearchContext.current();
+        // the task is only valid for the phase that just completed
+        context.setTask(null);
         context.clearReleasables(Lifetime.PHASE);
         SearchContext.removeCurrent();
     }
@@ -721,6 +780,20 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> imp
             }
         }
         context.trackScores(source.trackScores());
+        context.trackTotalHits(source.trackTotalHits());
+        if (source.searchAfter() != null && source.searchAfter().length > 0) {
+            if (context.scrollContext() != null) {
+                throw new SearchContextException(context, "`search_after` cannot be used in a scroll context.");
+            }
+            if (context.from() > 0) {
+                throw new SearchContextException(context, "`from` parameter must be set to 0 when `search_after` is used.");
+            }
+            try {
+                context.searchAfter(SearchAfterBuilder.buildFieldDoc(context.sort(), source.searchAfter()));
+            } catch (IllegalArgumentException e) {
+                throw new SearchContextException(context, "failed to parse `search_after`: " + e.getMessage(), e);
+            }
+        }
         if (source.minScore() != null) {
             context.minimumScore(source.minScore());
         }
@@ -25,6 +25,7 @@ import org.elasticsearch.action.IndicesRequest;
 import org.elasticsearch.action.OriginalIndices;
 import org.elasticsearch.action.search.ClearScrollRequest;
 import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchTask;
 import org.elasticsearch.action.support.IndicesOptions;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.common.component.AbstractComponent;
@@ -32,6 +33,9 @@ import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.AbstractRunnable;
+import org.elasticsearch.common.util.concurrent.CountDown;
+import org.elasticsearch.node.ResponseCollectorService;
 import org.elasticsearch.search.SearchService;
 import org.elasticsearch.search.dfs.DfsSearchResult;
 import org.elasticsearch.search.fetch.FetchSearchResult;
@@ -40,19 +44,27 @@ import org.elasticsearch.search.fetch.ScrollQueryFetchSearchResult;
 import org.elasticsearch.search.fetch.ShardFetchRequest;
 import org.elasticsearch.search.fetch.ShardFetchSearchRequest;
 import org.elasticsearch.search.internal.InternalScrollSearchRequest;
+import org.elasticsearch.search.internal.NodeSearchTransportRequest;
 import org.elasticsearch.search.internal.ShardSearchTransportRequest;
+import org.elasticsearch.search.query.NodeQuerySearchResult;
 import org.elasticsearch.search.query.QuerySearchRequest;
 import org.elasticsearch.search.query.QuerySearchResult;
 import org.elasticsearch.search.query.QuerySearchResultProvider;
 import org.elasticsearch.search.query.ScrollQuerySearchResult;
+import org.elasticsearch.tasks.TaskManager;
 import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.BaseTransportResponseHandler;
 import org.elasticsearch.transport.TransportChannel;
+import org.elasticsearch.transport.TransportException;
 import org.elasticsearch.transport.TransportRequest;
 import org.elasticsearch.transport.TransportRequestHandler;
 import org.elasticsearch.transport.TransportResponse;
 import org.elasticsearch.transport.TransportService;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 
 /**
  * An encapsulation of {@link org.elasticsearch.search.SearchService} operations exposed through
@@ -65,6 +77,7 @@ public class SearchServiceTransportAction extends AbstractComponent {
     public static final String CLEAR_SCROLL_CONTEXTS_ACTION_NAME = "indices:data/read/search[clear_scroll_contexts]";
     public static final String DFS_ACTION_NAME = "indices:data/read/search[phase/dfs]";
     public static final String QUERY_ACTION_NAME = "indices:data/read/search[phase/query]";
+    public static final String QUERY_BATCH_ACTION_NAME = "indices:data/read/search[phase/query/batch]";
     public static final String QUERY_ID_ACTION_NAME = "indices:data/read/search[phase/query/id]";
     public static final String QUERY_SCROLL_ACTION_NAME = "indices:data/read/search[phase/query/scroll]";
     public static final String QUERY_FETCH_ACTION_NAME = "indices:data/read/search[phase/query+fetch]";
@@ -73,27 +86,48 @@ public class SearchServiceTransportAction extends AbstractComponent {
     public static final String FETCH_ID_SCROLL_ACTION_NAME = "indices:data/read/search[phase/fetch/id/scroll]";
     public static final String FETCH_ID_ACTION_NAME = "indices:data/read/search[phase/fetch/id]";
 
+    private final ThreadPool threadPool;
     private final TransportService transportService;
     private final SearchService searchService;
+    private final ResponseCollectorService responseCollectorService;
 
     @Inject
-    public SearchServiceTransportAction(Settings settings, TransportService transportService, SearchService searchService) {
+    public SearchServiceTransportAction(Settings settings, ThreadPool threadPool, TransportService transportService, SearchService searchService,
+                                        ResponseCollectorService responseCollectorService) {
         super(settings);
+        this.threadPool = threadPool;
         this.transportService = transportService;
         this.searchService = searchService;
+        this.responseCollectorService = responseCollectorService;
 
         transportService.registerRequestHandler(FREE_CONTEXT_SCROLL_ACTION_NAME, ScrollFreeContextRequest::new, ThreadPool.Names.SAME, new FreeContextTransportHandler<>());
         transportService.registerRequestHandler(FREE_CONTEXT_ACTION_NAME, SearchFreeContextRequest::new, ThreadPool.Names.SAME, new FreeContextTransportHandler<SearchFreeContextRequest>());
         transportService.registerRequestHandler(CLEAR_SCROLL_CONTEXTS_ACTION_NAME, ClearScrollContextsRequest::new, ThreadPool.Names.SAME, new ClearScrollContextsTransportHandler());
-        transportService.registerRequestHandler(DFS_ACTION_NAME, ShardSearchTransportRequest::new, ThreadPool.Names.SEARCH, new SearchDfsTransportHandler());
-        transportService.registerRequestHandler(QUERY_ACTION_NAME, ShardSearchTransportRequest::new, ThreadPool.Names.SEARCH, new SearchQueryTransportHandler());
-        transportService.registerRequestHandler(QUERY_ID_ACTION_NAME, QuerySearchRequest::new, ThreadPool.Names.SEARCH, new SearchQueryByIdTransportHandler());
+        transportService.registerRequestHandler(DFS_ACTION_NAME, ShardSearchTransportRequest::new, ThreadPool.Names.SEARCH, new SearchDfsTransportHandler(DFS_ACTION_NAME));
+        transportService.registerRequestHandler(QUERY_ACTION_NAME, ShardSearchTransportRequest::new, ThreadPool.Names.SEARCH, new SearchQueryTransportHandler(QUERY_ACTION_NAME));
+        // the shard requests are forked to the search thread pool one by one
+        transportService.registerRequestHandler(QUERY_BATCH_ACTION_NAME, NodeSearchTransportRequest::new, ThreadPool.Names.SAME, new SearchQueryBatchTransportHandler());
+        transportService.registerRequestHandler(QUERY_ID_ACTION_NAME, QuerySearchRequest::new, ThreadPool.Names.SEARCH, new SearchQueryByIdTransportHandler(QUERY_ID_ACTION_NAME));
         transportService.registerRequestHandler(QUERY_SCROLL_ACTION_NAME, InternalScrollSearchRequest::new, ThreadPool.Names.SEARCH, new SearchQueryScrollTransportHandler());
-        transportService.registerRequestHandler(QUERY_FETCH_ACTION_NAME, ShardSearchTransportRequest::new, ThreadPool.Names.SEARCH, new SearchQueryFetchTransportHandler());
-        transportService.registerRequestHandler(QUERY_QUERY_FETCH_ACTION_NAME, QuerySearchRequest::new, ThreadPool.Names.SEARCH, new SearchQueryQueryFetchTransportHandler());
+        transportService.registerRequestHandler(QUERY_FETCH_ACTION_NAME, ShardSearchTransportRequest::new, ThreadPool.Names.SEARCH, new SearchQueryFetchTransportHandler(QUERY_FETCH_ACTION_NAME));
+        transportService.registerRequestHandler(QUERY_QUERY_FETCH_ACTION_NAME, QuerySearchRequest::new, ThreadPool.Names.SEARCH, new SearchQueryQueryFetchTransportHandler(QUERY_QUERY_FETCH_ACTION_NAME));
         transportService.registerRequestHandler(QUERY_FETCH_SCROLL_ACTION_NAME, InternalScrollSearchRequest::new, ThreadPool.Names.SEARCH, new SearchQueryFetchScrollTransportHandler());
-        transportService.registerRequestHandler(FETCH_ID_SCROLL_ACTION_NAME, ShardFetchRequest::new, ThreadPool.Names.SEARCH, new FetchByIdTransportHandler<>());
-        transportService.registerRequestHandler(FETCH_ID_ACTION_NAME, ShardFetchSearchRequest::new, ThreadPool.Names.SEARCH, new FetchByIdTransportHandler<ShardFetchSearchRequest>());
+        transportService.registerRequestHandler(FETCH_ID_SCROLL_ACTION_NAME, ShardFetchRequest::new, ThreadPool.Names.SEARCH, new FetchByIdTransportHandler<>(FETCH_ID_SCROLL_ACTION_NAME));
+        transportService.registerRequestHandler(FETCH_ID_ACTION_NAME, ShardFetchSearchRequest::new, ThreadPool.Names.SEARCH, new FetchByIdTransportHandler<ShardFetchSearchRequest>(FETCH_ID_ACTION_NAME));
+    }
+
+    /**
+     * Returns the service collecting the response statistics of the search requests sent by this node
+     */
+    public ResponseCollectorService responseCollectorService() {
+        return responseCollectorService;
+    }
+
+    /**
+     * The task manager search tasks are registered with.
+     */
+    public TaskManager taskManager() {
+        return transportService.getTaskManager();
     }
 
     public void sendFreeContext(DiscoveryNode node, final long contextId, SearchRequest request) {
@@ -143,7 +177,7 @@ public class SearchServiceTransportAction extends AbstractComponent {
     }
 
     public void sendExecuteQuery(DiscoveryNode node, final ShardSearchTransportRequest request, final ActionListener<QuerySearchResultProvider> listener) {
-        transportService.sendRequest(node, QUERY_ACTION_NAME, request, new ActionListenerResponseHandler<QuerySearchResultProvider>(listener) {
+        transportService.sendRequest(node, QUERY_ACTION_NAME, request, new ActionListenerResponseHandler<QuerySearchResultProvider>(collectResponseStats(node, listener)) {
             @Override
             public QuerySearchResult newInstance() {
                 return new QuerySearchResult();
@@ -151,6 +185,72 @@ public class SearchServiceTransportAction extends AbstractComponent {
         });
     }
 
+    /**
+     * Executes the query phase of several shards that are held by the given node, sending a single request that holds
+     * the search source once. Each listener is notified of the result or failure of the shard request at the same position.
+     */
+    public void sendExecuteQuery(DiscoveryNode node, final List<ShardSearchTransportRequest> requests,
+                                 final List<ActionListener<QuerySearchResultProvider>> listeners) {
+        assert requests.size() == listeners.size();
+        final String nodeId = node.id();
+        for (int i = 0; i < listeners.size(); i++) {
+            // every shard counts as an outstanding request, like when shards are queried one by one
+            responseCollectorService.onRequestSent(nodeId);
+        }
+        final long startNanos = System.nanoTime();
+        transportService.sendRequest(node, QUERY_BATCH_ACTION_NAME, new NodeSearchTransportRequest(requests), new BaseTransportResponseHandler<NodeQuerySearchResult>() {
+            @Override
+            public NodeQuerySearchResult newInstance() {
+                return new NodeQuerySearchResult();
+            }
+
+            @Override
+            public void handleResponse(NodeQuerySearchResult response) {
+                final long roundTripNanos = System.nanoTime() - startNanos;
+                long nodeNanos = 0;
+                for (int i = 0; i < listeners.size(); i++) {
+                    nodeNanos = Math.max(nodeNanos, response.tookInNanos(i));
+                }
+                // the transport overhead is shared by all shards of the batch, but every shard is only charged the time
+                // the node took for it rather than the latency of the whole batch
+                final long overheadNanos = Math.max(0, roundTripNanos - nodeNanos);
+                for (int i = 0; i < listeners.size(); i++) {
+                    final ActionListener<QuerySearchResultProvider> listener = listeners.get(i);
+                    try {
+                        if (response.failure(i) != null) {
+                            responseCollectorService.onFailure(nodeId);
+                            listener.onFailure(response.failure(i));
+                        } else {
+                            final QuerySearchResult result = response.result(i);
+                            responseCollectorService.onResponseReceived(nodeId, overheadNanos + response.tookInNanos(i),
+                                    result.nodeQueueSize(), result.serviceTimeEWMA());
+                            listener.onResponse(result);
+                        }
+                    } catch (Throwable e) {
+                        logger.warn("failed to handle the query phase result of shard [{}]", e, requests.get(i).getDescription());
+                    }
+                }
+            }
+
+            @Override
+            public void handleException(TransportException exp) {
+                for (ActionListener<QuerySearchResultProvider> listener : listeners) {
+                    try {
+                        responseCollectorService.onFailure(nodeId);
+                        listener.onFailure(exp);
+                    } catch (Throwable e) {
+                        logger.warn("failed to handle the query phase failure", e);
+                    }
+                }
+            }
+
+            @Override
+            public String executor() {
+                return ThreadPool.Names.SAME;
+            }
+        });
+    }
+
     public void sendExecuteQuery(DiscoveryNode node, final QuerySearchRequest request, final ActionListener<QuerySearchResult> listener) {
         transportService.sendRequest(node, QUERY_ID_ACTION_NAME, request, new ActionListenerResponseHandler<QuerySearchResult>(listener) {
             @Override
@@ -170,7 +270,7 @@ public class SearchServiceTransportAction extends AbstractComponent {
     }
 
     public void sendExecuteFetch(DiscoveryNode node, final ShardSearchTransportRequest request, final ActionListener<QueryFetchSearchResult> listener) {
-        transportService.sendRequest(node, QUERY_FETCH_ACTION_NAME, request, new ActionListenerResponseHandler<QueryFetchSearchResult>(listener) {
+        transportService.sendRequest(node, QUERY_FETCH_ACTION_NAME, request, new ActionListenerResponseHandler<QueryFetchSearchResult>(collectResponseStats(node, listener)) {
             @Override
             public QueryFetchSearchResult newInstance() {
                 return new QueryFetchSearchResult();
@@ -196,6 +296,31 @@ public class SearchServiceTransportAction extends AbstractComponent {
         });
     }
 
+    /**
+     * Wraps the listener of a shard query request so that its response time and the search load the target node reported
+     * are recorded for adaptive replica selection.
+     */
+    private <T extends QuerySearchResultProvider> ActionListener<T> collectResponseStats(DiscoveryNode node, final ActionListener<T> listener) {
+        final String nodeId = node.id();
+        final long startNanos = System.nanoTime();
+        responseCollectorService.onRequestSent(nodeId);
+        return new ActionListener<T>() {
+            @Override
+            public void onResponse(T result) {
+                QuerySearchResult queryResult = result.queryResult();
+                responseCollectorService.onResponseReceived(nodeId, System.nanoTime() - startNanos, queryResult.nodeQueueSize(),
+                    queryResult.serviceTimeEWMA());
+                listener.onResponse(result);
+            }
+
+            @Override
+            public void onFailure(Throwable e) {
+                responseCollectorService.onFailure(nodeId);
+                listener.onFailure(e);
+            }
+        };
+    }
+
     public void sendExecuteFetch(DiscoveryNode node, final ShardFetchSearchRequest request, final ActionListener<FetchSearchResult> listener) {
         sendExecuteFetch(node, FETCH_ID_ACTION_NAME, request, listener);
     }
@@ -340,26 +465,134 @@ public class SearchServiceTransportAction extends AbstractComponent {
         }
     }
 
-    class SearchDfsTransportHandler implements TransportRequestHandler<ShardSearchTransportRequest> {
+    /**
+     * Registers a {@link SearchTask} with the task manager for the duration of a shard level phase, so
+     * that the phase can be listed and cancelled.
+     */
+    abstract class SearchTaskTransportHandler<Request extends TransportRequest> implements TransportRequestHandler<Request> {
+        private final String action;
+
+        SearchTaskTransportHandler(String action) {
+            this.action = action;
+        }
+
+        @Override
+        public final void messageReceived(Request request, TransportChannel channel) throws Exception {
+            final TaskManager taskManager = transportService.getTaskManager();
+            final SearchTask task = (SearchTask) taskManager.register("transport", action, request);
+            try {
+                messageReceived(request, task, channel);
+            } finally {
+                taskManager.unregister(task);
+            }
+        }
+
+        protected abstract void messageReceived(Request request, SearchTask task, TransportChannel channel) throws Exception;
+    }
+
+    class SearchDfsTransportHandler extends SearchTaskTransportHandler<ShardSearchTransportRequest> {
+        SearchDfsTransportHandler(String action) {
+            super(action);
+        }
+
         @Override
-        public void messageReceived(ShardSearchTransportRequest request, TransportChannel channel) throws Exception {
-            DfsSearchResult result = searchService.executeDfsPhase(request);
+        protected void messageReceived(ShardSearchTransportRequest request, SearchTask task, TransportChannel channel) throws Exception {
+            DfsSearchResult result = searchService.executeDfsPhase(request, task);
             channel.sendResponse(result);
         }
     }
 
-    class SearchQueryTransportHandler implements TransportRequestHandler<ShardSearchTransportRequest> {
+    class SearchQueryTransportHandler extends SearchTaskTransportHandler<ShardSearchTransportRequest> {
+        SearchQueryTransportHandler(String action) {
+            super(action);
+        }
+
         @Override
-        public void messageReceived(ShardSearchTransportRequest request, TransportChannel channel) throws Exception {
-            QuerySearchResultProvider result = searchService.executeQueryPhase(request);
+        protected void messageReceived(ShardSearchTransportRequest request, SearchTask task, TransportChannel channel) throws Exception {
+            QuerySearchResultProvider result = searchService.executeQueryPhase(request, task);
             channel.sendResponse(result);
         }
     }
 
-    class SearchQueryByIdTransportHandler implements TransportRequestHandler<QuerySearchRequest> {
+    /**
+     * Executes the query phase of each shard of a {@link NodeSearchTransportRequest} on the search thread pool, and
+     * responds once all of them are done. Each shard is registered as its own task, as if it was sent on its own.
+     */
+    class SearchQueryBatchTransportHandler implements TransportRequestHandler<NodeSearchTransportRequest> {
+
         @Override
-        public void messageReceived(QuerySearchRequest request, TransportChannel channel) throws Exception {
-            QuerySearchResult result = searchService.executeQueryPhase(request);
+        public void messageReceived(NodeSearchTransportRequest request, TransportChannel channel) throws Exception {
+            final List<ShardSearchTransportRequest> shardRequests = request.shardRequests();
+            final TaskManager taskManager = transportService.getTaskManager();
+            executeShards(threadPool.executor(ThreadPool.Names.SEARCH), shardRequests.size(), index -> {
+                final ShardSearchTransportRequest shardRequest = shardRequests.get(index);
+                final SearchTask task = (SearchTask) taskManager.register("transport", QUERY_ACTION_NAME, shardRequest);
+                try {
+                    return searchService.executeQueryPhase(shardRequest, task).queryResult();
+                } finally {
+                    taskManager.unregister(task);
+                }
+            }, result -> {
+                try {
+                    channel.sendResponse(result);
+                } catch (Throwable e) {
+                    logger.warn("failed to send the query phase results of [{}] shards", e, result.size());
+                }
+            });
+        }
+    }
+
+    /**
+     * Executes the query phase of a single shard of a batch.
+     */
+    @FunctionalInterface
+    interface ShardQueryPhase {
+        QuerySearchResult execute(int index) throws Exception;
+    }
+
+    /**
+     * Runs the query phase of <code>numShards</code> shards on the given executor and calls the listener once all of them
+     * either succeeded or failed. Shards that are rejected by the executor fail with the rejection, the other shards keep
+     * running.
+     */
+    static void executeShards(Executor executor, int numShards, ShardQueryPhase shardQueryPhase,
+                              Consumer<NodeQuerySearchResult> listener) {
+        final NodeQuerySearchResult result = new NodeQuerySearchResult(numShards);
+        final CountDown countDown = new CountDown(numShards);
+        final long startNanos = System.nanoTime();
+        for (int i = 0; i < numShards; i++) {
+            final int index = i;
+            // the executor calls onAfter after onRejection, so each shard counts down exactly once
+            executor.execute(new AbstractRunnable() {
+                @Override
+                protected void doRun() throws Exception {
+                    result.result(index, shardQueryPhase.execute(index));
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    result.failure(index, t);
+                }
+
+                @Override
+                public void onAfter() {
+                    result.tookInNanos(index, System.nanoTime() - startNanos);
+                    if (countDown.countDown()) {
+                        listener.accept(result);
+                    }
+                }
+            });
+        }
+    }
+
+    class SearchQueryByIdTransportHandler extends SearchTaskTransportHandler<QuerySearchRequest> {
+        SearchQueryByIdTransportHandler(String action) {
+            super(action);
+        }
+
+        @Override
+        protected void messageReceived(QuerySearchRequest request, SearchTask task, TransportChannel channel) throws Exception {
+            QuerySearchResult result = searchService.executeQueryPhase(request, task);
             channel.sendResponse(result);
         }
     }
@@ -372,26 +605,38 @@ public class SearchServiceTransportAction extends AbstractComponent {
         }
     }
 
-    class SearchQueryFetchTransportHandler implements TransportRequestHandler<ShardSearchTransportRequest> {
+    class SearchQueryFetchTransportHandler extends SearchTaskTransportHandler<ShardSearchTransportRequest> {
+        SearchQueryFetchTransportHandler(String action) {
+            super(action);
+        }
+
         @Override
-        public void messageReceived(ShardSearchTransportRequest request, TransportChannel channel) throws Exception {
-            QueryFetchSearchResult result = searchService.executeFetchPhase(request);
+        protected void messageReceived(ShardSearchTransportRequest request, SearchTask task, TransportChannel channel) throws Exception {
+            QueryFetchSearchResult result = searchService.executeFetchPhase(request, task);
             channel.sendResponse(result);
         }
     }
 
-    class SearchQueryQueryFetchTransportHandler implements TransportRequestHandler<QuerySearchRequest> {
+    class SearchQueryQueryFetchTransportHandler extends SearchTaskTransportHandler<QuerySearchRequest> {
+        SearchQueryQueryFetchTransportHandler(String action) {
+            super(action);
+        }
+
         @Override
-        public void messageReceived(QuerySearchRequest request, TransportChannel channel) throws Exception {
-            QueryFetchSearchResult result = searchService.executeFetchPhase(request);
+        protected void messageReceived(QuerySearchRequest request, SearchTask task, TransportChannel channel) throws Exception {
+            QueryFetchSearchResult result = searchService.executeFetchPhase(request, task);
             channel.sendResponse(result);
         }
     }
 
-    class FetchByIdTransportHandler<Request extends ShardFetchRequest> implements TransportRequestHandler<Request> {
+    class FetchByIdTransportHandler<Request extends ShardFetchRequest> extends SearchTaskTransportHandler<Request> {
+        FetchByIdTransportHandler(String action) {
+            super(action);
+        }
+
         @Override
-        public void messageReceived(Request request, TransportChannel channel) throws Exception {
-            FetchSearchResult result = searchService.executeFetchPhase(request);
+        protected void messageReceived(Request request, SearchTask task, TransportChannel channel) throws Exception {
+            FetchSearchResult result = searchService.executeFetchPhase(request, task);
             channel.sendResponse(result);
         }
     }
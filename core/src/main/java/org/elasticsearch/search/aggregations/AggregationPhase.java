@@ -33,7 +33,10 @@ import org.elasticsearch.search.aggregations.support.AggregationContext;
 import org.elasticsearch.search.internal.SearchContext;
 import org.elasticsearch.search.profile.CollectorResult;
 import org.elasticsearch.search.profile.InternalProfileCollector;
+import org.elasticsearch.search.profile.ProfilingAggregator;
+import org.elasticsearch.search.query.CancellableCollector;
 import org.elasticsearch.search.query.QueryPhaseExecutionException;
+import org.elasticsearch.tasks.TaskCancelledException;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -79,7 +82,7 @@ public class AggregationPhase implements SearchPhase {
                 AggregatorFactories factories = context.aggregations().factories();
                 aggregators = factories.createTopLevelAggregators(aggregationContext);
                 for (int i = 0; i < aggregators.length; i++) {
-                    if (aggregators[i] instanceof GlobalAggregator == false) {
+                    if (ProfilingAggregator.unwrap(aggregators[i]) instanceof GlobalAggregator == false) {
                         collectors.add(aggregators[i]);
                     }
                 }
@@ -115,7 +118,7 @@ public class AggregationPhase implements SearchPhase {
         Aggregator[] aggregators = context.aggregations().aggregators();
         List<Aggregator> globals = new ArrayList<>();
         for (int i = 0; i < aggregators.length; i++) {
-            if (aggregators[i] instanceof GlobalAggregator) {
+            if (ProfilingAggregator.unwrap(aggregators[i]) instanceof GlobalAggregator) {
                 globals.add(aggregators[i]);
             }
         }
@@ -134,12 +137,13 @@ public class AggregationPhase implements SearchPhase {
                 query = filtered;
             }
             try {
-                final Collector collector;
-                if (context.getProfilers() == null) {
-                    collector = globalsCollector;
-                } else {
+                Collector collector = globalsCollector;
+                if (context.getTask() != null) {
+                    collector = new CancellableCollector(context::isCancelled, collector);
+                }
+                if (context.getProfilers() != null) {
                     InternalProfileCollector profileCollector = new InternalProfileCollector(
-                            globalsCollector, CollectorResult.REASON_AGGREGATION_GLOBAL,
+                            collector, CollectorResult.REASON_AGGREGATION_GLOBAL,
                             // TODO: report on sub collectors
                             Collections.emptyList());
                     collector = profileCollector;
@@ -148,6 +152,8 @@ public class AggregationPhase implements SearchPhase {
                 }
                 globalsCollector.preCollection();
                 context.searcher().search(query, collector);
+            } catch (TaskCancelledException e) {
+                throw e;
             } catch (Exception e) {
                 throw new QueryPhaseExecutionException(context, "Failed to execute global aggregators", e);
             } finally {
@@ -157,6 +163,10 @@ public class AggregationPhase implements SearchPhase {
 
         List<InternalAggregation> aggregations = new ArrayList<>(aggregators.length);
         for (Aggregator aggregator : context.aggregations().aggregators()) {
+            // building aggregations can be expensive, don't bother if the search has been cancelled
+            if (context.isCancelled()) {
+                throw new TaskCancelledException("cancelled");
+            }
             try {
                 aggregator.postCollection();
                 aggregations.add(aggregator.buildAggregation(0));
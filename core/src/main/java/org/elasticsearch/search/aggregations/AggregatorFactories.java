@@ -23,6 +23,9 @@ import org.elasticsearch.search.aggregations.pipeline.PipelineAggregatorFactory;
 import org.elasticsearch.search.aggregations.support.AggregationContext;
 import org.elasticsearch.search.aggregations.support.AggregationPath;
 import org.elasticsearch.search.aggregations.support.AggregationPath.PathElement;
+import org.elasticsearch.search.profile.AggregationProfileBreakdown;
+import org.elasticsearch.search.profile.Profilers;
+import org.elasticsearch.search.profile.ProfilingAggregator;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -73,7 +76,7 @@ public class AggregatorFactories {
             // propagate the fact that only bucket 0 will be collected with single-bucket
             // aggs
             final boolean collectsFromSingleBucket = false;
-            aggregators[i] = factories[i].create(parent.context(), parent, collectsFromSingleBucket);
+            aggregators[i] = create(parent.context(), factories[i], parent, collectsFromSingleBucket);
         }
         return aggregators;
     }
@@ -84,11 +87,33 @@ public class AggregatorFactories {
         for (int i = 0; i < factories.length; i++) {
             // top-level aggs only get called with bucket 0
             final boolean collectsFromSingleBucket = true;
-            aggregators[i] = factories[i].create(ctx, null, collectsFromSingleBucket);
+            aggregators[i] = create(ctx, factories[i], null, collectsFromSingleBucket);
         }
         return aggregators;
     }
 
+    /**
+     * Creates an aggregator with the given factory. If the search request is profiled, the time it takes to
+     * create it, including its sub-aggregators, is recorded as part of its initialization and the aggregator is
+     * wrapped so that the rest of its timings are recorded too.
+     */
+    private static Aggregator create(AggregationContext context, AggregatorFactory factory, Aggregator parent,
+                                     boolean collectsFromSingleBucket) throws IOException {
+        Profilers profilers = context.searchContext().getProfilers();
+        if (profilers == null) {
+            return factory.create(context, parent, collectsFromSingleBucket);
+        }
+        AggregationProfileBreakdown profile = profilers.getAggregationProfiler().getBreakdown(parent, factory.name, factory.type);
+        final long start = System.nanoTime();
+        final Aggregator aggregator;
+        try {
+            aggregator = factory.create(context, parent, collectsFromSingleBucket);
+        } finally {
+            profile.addTime(AggregationProfileBreakdown.TimingType.INITIALIZE, System.nanoTime() - start);
+        }
+        return new ProfilingAggregator(aggregator, profile);
+    }
+
     public int count() {
         return factories.length;
     }
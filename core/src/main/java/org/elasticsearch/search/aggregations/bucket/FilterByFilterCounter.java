@@ -0,0 +1,212 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.bucket;
+
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.NumericRangeQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.TwoPhaseIterator;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.Bits;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.aggregations.AggregatorFactories;
+import org.elasticsearch.search.aggregations.support.AggregationContext;
+import org.elasticsearch.search.internal.DefaultSearchContext;
+import org.elasticsearch.search.internal.SearchContext;
+
+import java.io.IOException;
+
+/**
+ * Counts the documents that match the main query and each of a set of filters by intersecting every
+ * filter with the main query, segment by segment, instead of checking every filter for each document
+ * that the main query matches. This only works for aggregations that need nothing but a doc count per
+ * bucket, see {@link #canCountFilterByFilter(AggregationContext, Aggregator, AggregatorFactories)}.
+ */
+public class FilterByFilterCounter {
+
+    private final Weight query;
+    private final Weight[] filters;
+
+    /**
+     * @param query     the weight of the main query
+     * @param filters   the weights of the filters to count, a <code>null</code> filter matches no documents
+     */
+    public FilterByFilterCounter(Weight query, Weight[] filters) {
+        this.query = query;
+        this.filters = filters;
+    }
+
+    /**
+     * Whether an aggregator can count its buckets filter by filter: it must be a top-level aggregator
+     * without sub-aggregations, so that its buckets only need doc counts, and the documents it collects
+     * must be exactly those that match the main query.
+     */
+    public static boolean canCountFilterByFilter(AggregationContext context, Aggregator parent, AggregatorFactories factories) {
+        final SearchContext searchContext = context.searchContext();
+        return parent == null
+                && factories.count() == 0
+                && searchContext instanceof DefaultSearchContext
+                && searchContext.query() != null
+                && searchContext.minimumScore() == null
+                && searchContext.terminateAfter() == SearchContext.DEFAULT_TERMINATE_AFTER
+                && searchContext.scrollContext() == null
+                && searchContext.getProfilers() == null;
+    }
+
+    /**
+     * Counts the live documents of the segment that match the main query and each of the filters. Returns
+     * <code>null</code> if checking the filters for each document that matches the main query is expected
+     * to be cheaper, in which case the caller should collect the segment document by document.
+     */
+    public int[] count(LeafReaderContext ctx) throws IOException {
+        final int[] counts = new int[filters.length];
+        Scorer queryScorer = query.scorer(ctx);
+        if (queryScorer == null) {
+            return counts;
+        }
+        final long queryCost = queryScorer.iterator().cost();
+        final Scorer[] filterScorers = new Scorer[filters.length];
+        long intersectionCost = 0;
+        for (int i = 0; i < filters.length; ++i) {
+            if (filters[i] != null) {
+                filterScorers[i] = filters[i].scorer(ctx);
+            }
+            if (filterScorers[i] != null) {
+                intersectionCost += Math.min(queryCost, filterScorers[i].iterator().cost());
+            }
+        }
+        // collecting checks each filter for every document that matches the query, while counting filter
+        // by filter runs the query once per filter, leading with whichever of the two is sparser
+        if (intersectionCost > queryCost * filters.length / 2) {
+            return null;
+        }
+        final Bits liveDocs = ctx.reader().getLiveDocs();
+        for (int i = 0; i < filters.length; ++i) {
+            if (filterScorers[i] != null) {
+                if (queryScorer == null) {
+                    queryScorer = query.scorer(ctx);
+                }
+                counts[i] = countIntersection(queryScorer, filterScorers[i], liveDocs);
+                queryScorer = null;
+            }
+        }
+        return counts;
+    }
+
+    static int countIntersection(Scorer first, Scorer second, Bits liveDocs) throws IOException {
+        final TwoPhaseIterator firstTwoPhase = first.twoPhaseIterator();
+        final TwoPhaseIterator secondTwoPhase = second.twoPhaseIterator();
+        DocIdSetIterator lead = firstTwoPhase == null ? first.iterator() : firstTwoPhase.approximation();
+        DocIdSetIterator other = secondTwoPhase == null ? second.iterator() : secondTwoPhase.approximation();
+        if (other.cost() < lead.cost()) {
+            DocIdSetIterator tmp = lead;
+            lead = other;
+            other = tmp;
+        }
+        int count = 0;
+        int doc = lead.nextDoc();
+        while (doc != DocIdSetIterator.NO_MORE_DOCS) {
+            int otherDoc = other.docID();
+            if (otherDoc < doc) {
+                otherDoc = other.advance(doc);
+            }
+            if (otherDoc > doc) {
+                doc = lead.advance(otherDoc);
+                continue;
+            }
+            if ((liveDocs == null || liveDocs.get(doc))
+                    && (firstTwoPhase == null || firstTwoPhase.matches())
+                    && (secondTwoPhase == null || secondTwoPhase.matches())) {
+                ++count;
+            }
+            doc = lead.nextDoc();
+        }
+        return count;
+    }
+
+    /**
+     * Whether {@link #rangeQuery(MappedFieldType, double, double)} can build queries on the given field.
+     */
+    public static boolean supportsRangeQueries(MappedFieldType fieldType) {
+        if (fieldType == null || fieldType.indexOptions() == IndexOptions.NONE || fieldType.numericType() == null) {
+            return false;
+        }
+        switch (fieldType.numericType()) {
+        case LONG:
+        case INT:
+        case DOUBLE:
+            return true;
+        default:
+            // floats are compared as doubles by aggregations, which does not translate to float bounds
+            return false;
+        }
+    }
+
+    /**
+     * Builds a query that matches the documents that have a value in the <code>[from, to)</code> range
+     * on the given numeric field, or returns <code>null</code> if no value of the field can be in that
+     * range. Infinite bounds are open.
+     */
+    public static Query rangeQuery(MappedFieldType fieldType, double from, double to) {
+        assert supportsRangeQueries(fieldType);
+        if (Double.isNaN(from) || Double.isNaN(to) || from >= to) {
+            return null;
+        }
+        final String field = fieldType.name();
+        final int precisionStep = fieldType.numericPrecisionStep();
+        switch (fieldType.numericType()) {
+        case LONG: {
+            // a long value is in [from, to) if and only if it is in [ceil(from), ceil(to))
+            final double lower = Math.ceil(from);
+            final double upper = Math.ceil(to);
+            // Long.MAX_VALUE widens to 2^63, which is out of the range of longs
+            if (lower >= upper || lower >= Long.MAX_VALUE || upper <= Long.MIN_VALUE) {
+                return null;
+            }
+            return NumericRangeQuery.newLongRange(field, precisionStep,
+                    lower <= Long.MIN_VALUE ? null : (long) lower,
+                    upper >= Long.MAX_VALUE ? null : (long) upper,
+                    true, false);
+        }
+        case INT: {
+            final double lower = Math.ceil(from);
+            final double upper = Math.ceil(to);
+            if (lower >= upper || lower > Integer.MAX_VALUE || upper <= Integer.MIN_VALUE) {
+                return null;
+            }
+            return NumericRangeQuery.newIntRange(field, precisionStep,
+                    lower <= Integer.MIN_VALUE ? null : (int) lower,
+                    upper > Integer.MAX_VALUE ? null : (int) upper,
+                    true, false);
+        }
+        case DOUBLE:
+            return NumericRangeQuery.newDoubleRange(field, precisionStep,
+                    Double.isInfinite(from) ? null : from,
+                    Double.isInfinite(to) ? null : to,
+                    true, false);
+        default:
+            throw new IllegalArgumentException("Cannot build a range query on field [" + field + "] of type ["
+                    + fieldType.numericType() + "]");
+        }
+    }
+}
@@ -0,0 +1,388 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.bucket;
+
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.IntArray;
+import org.elasticsearch.common.util.LongArray;
+import org.elasticsearch.common.util.LongHash;
+import org.elasticsearch.common.util.LongLongHash;
+
+/**
+ * Maps <code>long</code> values that are collected into an owning bucket to the ordinals of the buckets that they create.
+ * Bucket aggregators that may be collected from many owning buckets use this to share a single structure across all of
+ * them rather than being wrapped into one aggregator per owning bucket. Ordinals are dense and assigned in the order
+ * the (owning bucket, value) pairs are first seen.
+ */
+public abstract class LongKeyedBucketOrds implements Releasable {
+
+    /**
+     * Build bucket ordinals for an aggregator that is either only ever collected from the owning bucket <code>0</code>,
+     * or collected from any number of owning buckets.
+     */
+    public static LongKeyedBucketOrds build(BigArrays bigArrays, boolean collectsFromSingleBucket) {
+        return collectsFromSingleBucket ? new FromSingle(bigArrays) : new FromMany(bigArrays);
+    }
+
+    /**
+     * Build bucket ordinals for an aggregator that is only ever collected from the owning bucket <code>0</code> and
+     * whose values all fall between <code>minValue</code> and <code>maxValue</code>, both inclusive. The values are
+     * mapped through an array if the range is small enough, and through a hash table otherwise.
+     */
+    public static LongKeyedBucketOrds buildForRange(BigArrays bigArrays, long minValue, long maxValue, long maxDenseRange) {
+        if (isDenseRange(minValue, maxValue, maxDenseRange)) {
+            return new FromSingleDense(minValue, maxValue, bigArrays);
+        }
+        return new FromSingle(bigArrays);
+    }
+
+    /**
+     * Returns <code>true</code> if there are less than <code>maxDenseRange</code> values between the given bounds.
+     */
+    public static boolean isDenseRange(long minValue, long maxValue, long maxDenseRange) {
+        // the difference overflows for very wide ranges
+        final long range = maxValue - minValue;
+        return minValue <= maxValue && range >= 0 && range < maxDenseRange;
+    }
+
+    /**
+     * Adds a value that was collected into the given owning bucket, returns the ordinal of the new bucket or
+     * <code>-1 - ordinal</code> if the value was already collected into the owning bucket.
+     */
+    public abstract long add(long owningBucketOrd, long value);
+
+    /**
+     * Returns the value of the given bucket.
+     */
+    public abstract long get(long bucketOrd);
+
+    /**
+     * Returns the total number of buckets across all owning buckets.
+     */
+    public abstract long size();
+
+    /**
+     * Returns the number of buckets of the given owning bucket.
+     */
+    public abstract long bucketsInOrd(long owningBucketOrd);
+
+    /**
+     * Returns an iterator over the buckets of the given owning bucket.
+     */
+    public abstract BucketOrdsEnum ordsEnum(long owningBucketOrd);
+
+    /**
+     * An iterator over the buckets of an owning bucket. Call {@link #next()} before reading the first bucket.
+     */
+    public interface BucketOrdsEnum {
+
+        /**
+         * Advances to the next bucket, returns <code>false</code> if there are no more buckets.
+         */
+        boolean next();
+
+        /**
+         * The ordinal of the current bucket.
+         */
+        long ord();
+
+        /**
+         * The value of the current bucket.
+         */
+        long value();
+
+        BucketOrdsEnum EMPTY = new BucketOrdsEnum() {
+            @Override
+            public boolean next() {
+                return false;
+            }
+
+            @Override
+            public long ord() {
+                throw new IllegalStateException("no current bucket");
+            }
+
+            @Override
+            public long value() {
+                throw new IllegalStateException("no current bucket");
+            }
+        };
+    }
+
+    /**
+     * Iterates over the ordinals <code>0</code> to <code>size - 1</code>.
+     */
+    private static class SequentialOrdsEnum implements BucketOrdsEnum {
+
+        private final LongKeyedBucketOrds ords;
+        private final long size;
+        private long ord = -1;
+
+        SequentialOrdsEnum(LongKeyedBucketOrds ords) {
+            this.ords = ords;
+            this.size = ords.size();
+        }
+
+        @Override
+        public boolean next() {
+            return ++ord < size;
+        }
+
+        @Override
+        public long ord() {
+            return ord;
+        }
+
+        @Override
+        public long value() {
+            return ords.get(ord);
+        }
+    }
+
+    /**
+     * Bucket ordinals of an aggregator that is only collected from the owning bucket <code>0</code>.
+     */
+    static final class FromSingle extends LongKeyedBucketOrds {
+
+        private final LongHash hash;
+
+        FromSingle(BigArrays bigArrays) {
+            hash = new LongHash(1, bigArrays);
+        }
+
+        @Override
+        public long add(long owningBucketOrd, long value) {
+            assert owningBucketOrd == 0;
+            return hash.add(value);
+        }
+
+        @Override
+        public long get(long bucketOrd) {
+            return hash.get(bucketOrd);
+        }
+
+        @Override
+        public long size() {
+            return hash.size();
+        }
+
+        @Override
+        public long bucketsInOrd(long owningBucketOrd) {
+            assert owningBucketOrd == 0;
+            return hash.size();
+        }
+
+        @Override
+        public BucketOrdsEnum ordsEnum(long owningBucketOrd) {
+            assert owningBucketOrd == 0;
+            return new SequentialOrdsEnum(this);
+        }
+
+        @Override
+        public void close() {
+            hash.close();
+        }
+    }
+
+    /**
+     * Bucket ordinals of an aggregator that is only collected from the owning bucket <code>0</code> and whose values
+     * fall into a small range. Values are mapped through an array that is indexed by their distance to the minimum,
+     * which is much cheaper than probing a hash table.
+     */
+    static final class FromSingleDense extends LongKeyedBucketOrds {
+
+        private final BigArrays bigArrays;
+        private final long minValue;
+        private final long maxValue;
+        private final IntArray ordsPlusOne; // 0 means the value was not seen yet
+        private LongArray values;
+        private int size;
+
+        FromSingleDense(long minValue, long maxValue, BigArrays bigArrays) {
+            assert minValue <= maxValue && maxValue - minValue >= 0 && maxValue - minValue < Integer.MAX_VALUE;
+            this.bigArrays = bigArrays;
+            this.minValue = minValue;
+            this.maxValue = maxValue;
+            boolean success = false;
+            try {
+                ordsPlusOne = bigArrays.newIntArray(maxValue - minValue + 1, true);
+                values = bigArrays.newLongArray(1, false);
+                success = true;
+            } finally {
+                if (success == false) {
+                    close();
+                }
+            }
+        }
+
+        @Override
+        public long add(long owningBucketOrd, long value) {
+            assert owningBucketOrd == 0;
+            if (value < minValue || value > maxValue) {
+                // the bounds are taken from the index, they must hold for all values of the field
+                throw new IllegalStateException("value [" + value + "] is out of the expected range [" + minValue + "-" + maxValue + "]");
+            }
+            final long index = value - minValue;
+            final int existing = ordsPlusOne.get(index);
+            if (existing != 0) {
+                return -existing;
+            }
+            final int ord = size++;
+            values = bigArrays.grow(values, size);
+            values.set(ord, value);
+            ordsPlusOne.set(index, ord + 1);
+            return ord;
+        }
+
+        @Override
+        public long get(long bucketOrd) {
+            return values.get(bucketOrd);
+        }
+
+        @Override
+        public long size() {
+            return size;
+        }
+
+        @Override
+        public long bucketsInOrd(long owningBucketOrd) {
+            assert owningBucketOrd == 0;
+            return size;
+        }
+
+        @Override
+        public BucketOrdsEnum ordsEnum(long owningBucketOrd) {
+            assert owningBucketOrd == 0;
+            return new SequentialOrdsEnum(this);
+        }
+
+        @Override
+        public void close() {
+            Releasables.close(ordsPlusOne, values);
+        }
+    }
+
+    /**
+     * Bucket ordinals of an aggregator that is collected from many owning buckets. The (owning bucket, value) pairs
+     * are mapped through a single hash table, and the buckets of each owning bucket are chained together so that they
+     * can be iterated without visiting the buckets of other owning buckets.
+     */
+    static final class FromMany extends LongKeyedBucketOrds {
+
+        private final BigArrays bigArrays;
+        private final LongLongHash hash;
+        // for each owning bucket, the last bucket that was added to it plus one, 0 if it has no buckets
+        private LongArray lastOrdPlusOne;
+        // for each owning bucket, its number of buckets
+        private LongArray counts;
+        // for each bucket, the previous bucket of the same owning bucket plus one, 0 for the first bucket
+        private LongArray previousOrdPlusOne;
+
+        FromMany(BigArrays bigArrays) {
+            this.bigArrays = bigArrays;
+            boolean success = false;
+            try {
+                hash = new LongLongHash(1, bigArrays);
+                lastOrdPlusOne = bigArrays.newLongArray(1, true);
+                counts = bigArrays.newLongArray(1, true);
+                previousOrdPlusOne = bigArrays.newLongArray(1, false);
+                success = true;
+            } finally {
+                if (success == false) {
+                    close();
+                }
+            }
+        }
+
+        @Override
+        public long add(long owningBucketOrd, long value) {
+            final long ord = hash.add(owningBucketOrd, value);
+            if (ord < 0) {
+                return ord;
+            }
+            if (owningBucketOrd >= lastOrdPlusOne.size()) {
+                lastOrdPlusOne = bigArrays.grow(lastOrdPlusOne, owningBucketOrd + 1);
+                counts = bigArrays.grow(counts, owningBucketOrd + 1);
+            }
+            previousOrdPlusOne = bigArrays.grow(previousOrdPlusOne, ord + 1);
+            previousOrdPlusOne.set(ord, lastOrdPlusOne.set(owningBucketOrd, ord + 1));
+            counts.increment(owningBucketOrd, 1);
+            return ord;
+        }
+
+        @Override
+        public long get(long bucketOrd) {
+            return hash.getKey2(bucketOrd);
+        }
+
+        @Override
+        public long size() {
+            return hash.size();
+        }
+
+        @Override
+        public long bucketsInOrd(long owningBucketOrd) {
+            if (owningBucketOrd >= counts.size()) {
+                return 0;
+            }
+            return counts.get(owningBucketOrd);
+        }
+
+        @Override
+        public BucketOrdsEnum ordsEnum(long owningBucketOrd) {
+            if (owningBucketOrd >= lastOrdPlusOne.size()) {
+                return BucketOrdsEnum.EMPTY;
+            }
+            final long last = lastOrdPlusOne.get(owningBucketOrd) - 1;
+            // walks the chain from the most recently added bucket backwards
+            return new BucketOrdsEnum() {
+
+                private long ord = -1;
+                private long next = last;
+
+                @Override
+                public boolean next() {
+                    if (next < 0) {
+                        return false;
+                    }
+                    ord = next;
+                    next = previousOrdPlusOne.get(ord) - 1;
+                    return true;
+                }
+
+                @Override
+                public long ord() {
+                    return ord;
+                }
+
+                @Override
+                public long value() {
+                    return hash.getKey2(ord);
+                }
+            };
+        }
+
+        @Override
+        public void close() {
+            Releasables.close(hash, lastOrdPlusOne, counts, previousOrdPlusOne);
+        }
+    }
+}
@@ -32,8 +32,10 @@ import org.elasticsearch.search.aggregations.InternalAggregations;
 import org.elasticsearch.search.aggregations.LeafBucketCollector;
 import org.elasticsearch.search.aggregations.LeafBucketCollectorBase;
 import org.elasticsearch.search.aggregations.bucket.BucketsAggregator;
+import org.elasticsearch.search.aggregations.bucket.FilterByFilterCounter;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 import org.elasticsearch.search.aggregations.support.AggregationContext;
+import org.elasticsearch.search.internal.SearchContext;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -62,6 +64,7 @@ public class FiltersAggregator extends BucketsAggregator {
     private final boolean showOtherBucket;
     private final String otherBucketKey;
     private final int totalNumKeys;
+    private final FilterByFilterCounter filterByFilterCounter;
 
     public FiltersAggregator(String name, AggregatorFactories factories, List<KeyedFilter> filters, boolean keyed, String otherBucketKey,
             AggregationContext aggregationContext,
@@ -83,11 +86,27 @@ public class FiltersAggregator extends BucketsAggregator {
             this.keys[i] = keyedFilter.key;
             this.filters[i] = aggregationContext.searchContext().searcher().createNormalizedWeight(keyedFilter.filter, false);
         }
+        if (showOtherBucket == false && FilterByFilterCounter.canCountFilterByFilter(aggregationContext, parent, factories)) {
+            SearchContext searchContext = aggregationContext.searchContext();
+            Weight query = searchContext.searcher().createNormalizedWeight(searchContext.query(), false);
+            this.filterByFilterCounter = new FilterByFilterCounter(query, this.filters);
+        } else {
+            this.filterByFilterCounter = null;
+        }
     }
 
     @Override
     public LeafBucketCollector getLeafCollector(LeafReaderContext ctx,
             final LeafBucketCollector sub) throws IOException {
+        if (filterByFilterCounter != null) {
+            final int[] counts = filterByFilterCounter.count(ctx);
+            if (counts != null) {
+                for (int i = 0; i < counts.length; ++i) {
+                    incrementBucketDocCount(bucketOrd(0, i), counts[i]);
+                }
+                return LeafBucketCollector.NO_OP_COLLECTOR;
+            }
+        }
         // no need to provide deleted docs to the filter
         final Bits[] bits = new Bits[filters.length];
         for (int i = 0; i < filters.length; ++i) {
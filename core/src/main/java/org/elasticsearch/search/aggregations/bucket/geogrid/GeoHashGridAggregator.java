@@ -21,13 +21,13 @@ package org.elasticsearch.search.aggregations.bucket.geogrid;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.SortedNumericDocValues;
 import org.elasticsearch.common.lease.Releasables;
-import org.elasticsearch.common.util.LongHash;
 import org.elasticsearch.search.aggregations.Aggregator;
 import org.elasticsearch.search.aggregations.AggregatorFactories;
 import org.elasticsearch.search.aggregations.InternalAggregations;
 import org.elasticsearch.search.aggregations.LeafBucketCollector;
 import org.elasticsearch.search.aggregations.LeafBucketCollectorBase;
 import org.elasticsearch.search.aggregations.bucket.BucketsAggregator;
+import org.elasticsearch.search.aggregations.bucket.LongKeyedBucketOrds;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 import org.elasticsearch.search.aggregations.support.AggregationContext;
 
@@ -47,16 +47,22 @@ public class GeoHashGridAggregator extends BucketsAggregator {
     private final int requiredSize;
     private final int shardSize;
     private final GeoHashGridParser.GeoGridFactory.CellIdSource valuesSource;
-    private final LongHash bucketOrds;
+    private final LongKeyedBucketOrds bucketOrds;
 
     public GeoHashGridAggregator(String name, AggregatorFactories factories, GeoHashGridParser.GeoGridFactory.CellIdSource valuesSource,
             int requiredSize, int shardSize, AggregationContext aggregationContext, Aggregator parent, List<PipelineAggregator> pipelineAggregators,
             Map<String, Object> metaData) throws IOException {
+        this(name, factories, valuesSource, requiredSize, shardSize, aggregationContext, parent, true, pipelineAggregators, metaData);
+    }
+
+    public GeoHashGridAggregator(String name, AggregatorFactories factories, GeoHashGridParser.GeoGridFactory.CellIdSource valuesSource,
+            int requiredSize, int shardSize, AggregationContext aggregationContext, Aggregator parent, boolean collectsFromSingleBucket,
+            List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
         super(name, factories, aggregationContext, parent, pipelineAggregators, metaData);
         this.valuesSource = valuesSource;
         this.requiredSize = requiredSize;
         this.shardSize = shardSize;
-        bucketOrds = new LongHash(1, aggregationContext.bigArrays());
+        bucketOrds = LongKeyedBucketOrds.build(aggregationContext.bigArrays(), collectsFromSingleBucket);
     }
 
     @Override
@@ -71,7 +77,6 @@ public class GeoHashGridAggregator extends BucketsAggregator {
         return new LeafBucketCollectorBase(sub, null) {
             @Override
             public void collect(int doc, long bucket) throws IOException {
-                assert bucket == 0;
                 values.setDocument(doc);
                 final int valuesCount = values.count();
 
@@ -79,7 +84,7 @@ public class GeoHashGridAggregator extends BucketsAggregator {
                 for (int i = 0; i < valuesCount; ++i) {
                     final long val = values.valueAt(i);
                     if (previous != val || i == 0) {
-                        long bucketOrdinal = bucketOrds.add(val);
+                        long bucketOrdinal = bucketOrds.add(bucket, val);
                         if (bucketOrdinal < 0) { // already seen
                             bucketOrdinal = - 1 - bucketOrdinal;
                             collectExistingBucket(sub, doc, bucketOrdinal);
@@ -106,19 +111,19 @@ public class GeoHashGridAggregator extends BucketsAggregator {
 
     @Override
     public InternalGeoHashGrid buildAggregation(long owningBucketOrdinal) throws IOException {
-        assert owningBucketOrdinal == 0;
-        final int size = (int) Math.min(bucketOrds.size(), shardSize);
+        final int size = (int) Math.min(bucketOrds.bucketsInOrd(owningBucketOrdinal), shardSize);
 
         InternalGeoHashGrid.BucketPriorityQueue ordered = new InternalGeoHashGrid.BucketPriorityQueue(size);
         OrdinalBucket spare = null;
-        for (long i = 0; i < bucketOrds.size(); i++) {
+        LongKeyedBucketOrds.BucketOrdsEnum ordsEnum = bucketOrds.ordsEnum(owningBucketOrdinal);
+        while (ordsEnum.next()) {
             if (spare == null) {
                 spare = new OrdinalBucket();
             }
 
-            spare.geohashAsLong = bucketOrds.get(i);
-            spare.docCount = bucketDocCount(i);
-            spare.bucketOrd = i;
+            spare.geohashAsLong = ordsEnum.value();
+            spare.docCount = bucketDocCount(ordsEnum.ord());
+            spare.bucketOrd = ordsEnum.ord();
             spare = (OrdinalBucket) ordered.insertWithOverflow(spare);
         }
 
@@ -24,13 +24,13 @@ import org.apache.lucene.util.CollectionUtil;
 import org.elasticsearch.common.inject.internal.Nullable;
 import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.rounding.Rounding;
-import org.elasticsearch.common.util.LongHash;
 import org.elasticsearch.search.aggregations.Aggregator;
 import org.elasticsearch.search.aggregations.AggregatorFactories;
 import org.elasticsearch.search.aggregations.InternalAggregation;
 import org.elasticsearch.search.aggregations.LeafBucketCollector;
 import org.elasticsearch.search.aggregations.LeafBucketCollectorBase;
 import org.elasticsearch.search.aggregations.bucket.BucketsAggregator;
+import org.elasticsearch.search.aggregations.bucket.LongKeyedBucketOrds;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 import org.elasticsearch.search.aggregations.support.AggregationContext;
 import org.elasticsearch.search.aggregations.support.ValuesSource;
@@ -56,12 +56,21 @@ public class HistogramAggregator extends BucketsAggregator {
     private final ExtendedBounds extendedBounds;
     private final InternalHistogram.Factory histogramFactory;
 
-    private final LongHash bucketOrds;
+    private final LongKeyedBucketOrds bucketOrds;
 
     public HistogramAggregator(String name, AggregatorFactories factories, Rounding rounding, InternalOrder order, boolean keyed,
             long minDocCount, @Nullable ExtendedBounds extendedBounds, @Nullable ValuesSource.Numeric valuesSource,
             ValueFormatter formatter, InternalHistogram.Factory<?> histogramFactory, AggregationContext aggregationContext,
             Aggregator parent, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
+        this(name, factories, rounding, order, keyed, minDocCount, extendedBounds, valuesSource, formatter, histogramFactory,
+                aggregationContext, parent, true, pipelineAggregators, metaData);
+    }
+
+    public HistogramAggregator(String name, AggregatorFactories factories, Rounding rounding, InternalOrder order, boolean keyed,
+            long minDocCount, @Nullable ExtendedBounds extendedBounds, @Nullable ValuesSource.Numeric valuesSource,
+            ValueFormatter formatter, InternalHistogram.Factory<?> histogramFactory, AggregationContext aggregationContext,
+            Aggregator parent, boolean collectsFromSingleBucket, List<PipelineAggregator> pipelineAggregators,
+            Map<String, Object> metaData) throws IOException {
 
         super(name, factories, aggregationContext, parent, pipelineAggregators, metaData);
         this.rounding = rounding;
@@ -73,7 +82,7 @@ public class HistogramAggregator extends BucketsAggregator {
         this.formatter = formatter;
         this.histogramFactory = histogramFactory;
 
-        bucketOrds = new LongHash(1, aggregationContext.bigArrays());
+        bucketOrds = LongKeyedBucketOrds.build(aggregationContext.bigArrays(), collectsFromSingleBucket);
     }
 
     @Override
@@ -91,7 +100,6 @@ public class HistogramAggregator extends BucketsAggregator {
         return new LeafBucketCollectorBase(sub, values) {
             @Override
             public void collect(int doc, long bucket) throws IOException {
-                assert bucket == 0;
                 values.setDocument(doc);
                 final int valuesCount = values.count();
 
@@ -103,7 +111,7 @@ public class HistogramAggregator extends BucketsAggregator {
                     if (key == previousKey) {
                         continue;
                     }
-                    long bucketOrd = bucketOrds.add(key);
+                    long bucketOrd = bucketOrds.add(bucket, key);
                     if (bucketOrd < 0) { // already seen
                         bucketOrd = -1 - bucketOrd;
                         collectExistingBucket(sub, doc, bucketOrd);
@@ -118,10 +126,11 @@ public class HistogramAggregator extends BucketsAggregator {
 
     @Override
     public InternalAggregation buildAggregation(long owningBucketOrdinal) throws IOException {
-        assert owningBucketOrdinal == 0;
-        List<InternalHistogram.Bucket> buckets = new ArrayList<>((int) bucketOrds.size());
-        for (long i = 0; i < bucketOrds.size(); i++) {
-            buckets.add(histogramFactory.createBucket(rounding.valueForKey(bucketOrds.get(i)), bucketDocCount(i), bucketAggregations(i), keyed, formatter));
+        List<InternalHistogram.Bucket> buckets = new ArrayList<>((int) bucketOrds.bucketsInOrd(owningBucketOrdinal));
+        LongKeyedBucketOrds.BucketOrdsEnum ordsEnum = bucketOrds.ordsEnum(owningBucketOrdinal);
+        while (ordsEnum.next()) {
+            buckets.add(histogramFactory.createBucket(rounding.valueForKey(ordsEnum.value()), bucketDocCount(ordsEnum.ord()),
+                    bucketAggregations(ordsEnum.ord()), keyed, formatter));
         }
 
         // the contract of the histogram aggregation is that shards must return buckets ordered by key in ascending order
@@ -180,9 +189,6 @@ public class HistogramAggregator extends BucketsAggregator {
         @Override
         protected Aggregator doCreateInternal(ValuesSource.Numeric valuesSource, AggregationContext aggregationContext, Aggregator parent,
                 boolean collectsFromSingleBucket, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
-            if (collectsFromSingleBucket == false) {
-                return asMultiBucketAggregator(this, aggregationContext, parent);
-            }
             // we need to round the bounds given by the user and we have to do it for every aggregator we crate
             // as the rounding is not necessarily an idempotent operation.
             // todo we need to think of a better structure to the factory/agtor code so we won't need to do that
@@ -193,7 +199,8 @@ public class HistogramAggregator extends BucketsAggregator {
                 roundedBounds = extendedBounds.round(rounding);
             }
             return new HistogramAggregator(name, factories, rounding, order, keyed, minDocCount, roundedBounds, valuesSource,
-                    config.formatter(), histogramFactory, aggregationContext, parent, pipelineAggregators, metaData);
+                    config.formatter(), histogramFactory, aggregationContext, parent, collectsFromSingleBucket, pipelineAggregators,
+                    metaData);
         }
 
     }
@@ -19,8 +19,11 @@
 package org.elasticsearch.search.aggregations.bucket.range;
 
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Weight;
 import org.apache.lucene.util.InPlaceMergeSorter;
 import org.elasticsearch.index.fielddata.SortedNumericDoubleValues;
+import org.elasticsearch.index.mapper.MappedFieldType;
 import org.elasticsearch.search.aggregations.Aggregator;
 import org.elasticsearch.search.aggregations.AggregatorFactories;
 import org.elasticsearch.search.aggregations.InternalAggregation;
@@ -29,6 +32,7 @@ import org.elasticsearch.search.aggregations.LeafBucketCollector;
 import org.elasticsearch.search.aggregations.LeafBucketCollectorBase;
 import org.elasticsearch.search.aggregations.NonCollectingAggregator;
 import org.elasticsearch.search.aggregations.bucket.BucketsAggregator;
+import org.elasticsearch.search.aggregations.bucket.FilterByFilterCounter;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 import org.elasticsearch.search.aggregations.support.AggregationContext;
 import org.elasticsearch.search.aggregations.support.ValuesSource;
@@ -93,9 +97,23 @@ public class RangeAggregator extends BucketsAggregator {
 
     final double[] maxTo;
 
+    final FilterByFilterCounter filterByFilterCounter;
+
     public RangeAggregator(String name, AggregatorFactories factories, ValuesSource.Numeric valuesSource, ValueFormat format,
             InternalRange.Factory rangeFactory, List<Range> ranges, boolean keyed, AggregationContext aggregationContext,
             Aggregator parent, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
+        this(name, factories, valuesSource, null, format, rangeFactory, ranges, keyed, aggregationContext, parent, pipelineAggregators,
+                metaData);
+    }
+
+    /**
+     * Creates a range aggregator on the given field. If the values are read straight from an indexed numeric field,
+     * the ranges can be counted by intersecting range queries with the main query.
+     */
+    public RangeAggregator(String name, AggregatorFactories factories, ValuesSource.Numeric valuesSource, MappedFieldType fieldType,
+            ValueFormat format, InternalRange.Factory rangeFactory, List<Range> ranges, boolean keyed,
+            AggregationContext aggregationContext, Aggregator parent, List<PipelineAggregator> pipelineAggregators,
+            Map<String, Object> metaData) throws IOException {
 
         super(name, factories, aggregationContext, parent, pipelineAggregators, metaData);
         assert valuesSource != null;
@@ -117,6 +135,22 @@ public class RangeAggregator extends BucketsAggregator {
             maxTo[i] = Math.max(this.ranges[i].to,maxTo[i-1]);
         }
 
+        if (valuesSource instanceof ValuesSource.Numeric.FieldData
+                && FilterByFilterCounter.supportsRangeQueries(fieldType)
+                && FilterByFilterCounter.canCountFilterByFilter(aggregationContext, parent, factories)) {
+            final SearchContext searchContext = aggregationContext.searchContext();
+            final Weight[] filters = new Weight[this.ranges.length];
+            for (int i = 0; i < this.ranges.length; ++i) {
+                Query filter = FilterByFilterCounter.rangeQuery(fieldType, this.ranges[i].from, this.ranges[i].to);
+                if (filter != null) {
+                    filters[i] = searchContext.searcher().createNormalizedWeight(filter, false);
+                }
+            }
+            Weight query = searchContext.searcher().createNormalizedWeight(searchContext.query(), false);
+            filterByFilterCounter = new FilterByFilterCounter(query, filters);
+        } else {
+            filterByFilterCounter = null;
+        }
     }
 
     @Override
@@ -127,6 +161,15 @@ public class RangeAggregator extends BucketsAggregator {
     @Override
     public LeafBucketCollector getLeafCollector(LeafReaderContext ctx,
             final LeafBucketCollector sub) throws IOException {
+        if (filterByFilterCounter != null) {
+            final int[] counts = filterByFilterCounter.count(ctx);
+            if (counts != null) {
+                for (int i = 0; i < counts.length; ++i) {
+                    incrementBucketDocCount(subBucketOrdinal(0, i), counts[i]);
+                }
+                return LeafBucketCollector.NO_OP_COLLECTOR;
+            }
+        }
         final SortedNumericDoubleValues values = valuesSource.doubleValues(ctx);
         return new LeafBucketCollectorBase(sub, values) {
             @Override
@@ -298,7 +341,9 @@ public class RangeAggregator extends BucketsAggregator {
         @Override
         protected Aggregator doCreateInternal(ValuesSource.Numeric valuesSource, AggregationContext aggregationContext, Aggregator parent,
                 boolean collectsFromSingleBucket, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
-            return new RangeAggregator(name, factories, valuesSource, config.format(), rangeFactory, ranges, keyed, aggregationContext, parent, pipelineAggregators, metaData);
+            MappedFieldType fieldType = config.fieldContext() == null ? null : config.fieldContext().fieldType();
+            return new RangeAggregator(name, factories, valuesSource, fieldType, config.format(), rangeFactory, ranges, keyed,
+                    aggregationContext, parent, pipelineAggregators, metaData);
         }
     }
 
@@ -0,0 +1,202 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.bucket.significant;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.FilteredDocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.BitDocIdSet;
+import org.apache.lucene.util.BitSet;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.index.cache.docfreq.DocFreqCache;
+import org.elasticsearch.indices.cache.docfreq.IndicesDocFreqCache;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Looks up the background frequencies of the terms of a field, optionally only counting the documents that match a
+ * background filter. Frequencies are resolved segment by segment and cached per segment in the {@link DocFreqCache}
+ * of the index, so that repeated requests on unchanged segments neither seek the terms dictionary nor intersect
+ * postings with the filter again. Looking terms up in ascending order walks each terms dictionary forward.
+ */
+class BackgroundFrequencyLookup {
+
+    private final Leaf[] leaves;
+    private final long numDocs;
+
+    BackgroundFrequencyLookup(IndexReader reader, String field, @Nullable Query filter, @Nullable DocFreqCache cache) throws IOException {
+        final Weight weight;
+        if (filter == null) {
+            weight = null;
+        } else {
+            final IndexSearcher searcher = new IndexSearcher(reader);
+            searcher.setQueryCache(null);
+            weight = searcher.createNormalizedWeight(filter, false);
+        }
+        long numDocs = 0;
+        if (filter == null) {
+            // Important - need to use the doc count that includes deleted docs
+            // or we have this issue: https://github.com/elasticsearch/elasticsearch/issues/7951
+            numDocs = reader.maxDoc();
+        }
+        final List<Leaf> leaves = new ArrayList<>(reader.leaves().size());
+        for (LeafReaderContext context : reader.leaves()) {
+            final Terms terms = context.reader().terms(field);
+            if (terms == null) {
+                continue;
+            }
+            final IndicesDocFreqCache.Segment segment = cache == null ? null : cache.getSegment(context, field, filter);
+            final Leaf leaf = new Leaf(context, terms, weight, segment);
+            if (weight != null) {
+                final int leafNumDocs = leaf.numDocs();
+                if (leafNumDocs == 0) {
+                    // fully filtered, none matching, no need to look terms up in this segment
+                    continue;
+                }
+                numDocs += leafNumDocs;
+            }
+            leaves.add(leaf);
+        }
+        this.leaves = leaves.toArray(new Leaf[leaves.size()]);
+        this.numDocs = numDocs;
+    }
+
+    /**
+     * The number of documents in the background set.
+     */
+    long numDocs() {
+        return numDocs;
+    }
+
+    /**
+     * The number of documents in the background set that contain the given term.
+     */
+    long docFreq(BytesRef term) throws IOException {
+        long docFreq = 0;
+        for (Leaf leaf : leaves) {
+            docFreq += leaf.docFreq(term);
+        }
+        return docFreq;
+    }
+
+    private static final class Leaf {
+        private final LeafReaderContext context;
+        private final Terms terms;
+        @Nullable
+        private final Weight filter;
+        @Nullable
+        private final IndicesDocFreqCache.Segment cache;
+        private TermsEnum termsEnum;
+        private BitSet filterBits;
+        private boolean filterBitsLoaded;
+        private PostingsEnum postings;
+
+        Leaf(LeafReaderContext context, Terms terms, Weight filter, IndicesDocFreqCache.Segment cache) {
+            this.context = context;
+            this.terms = terms;
+            this.filter = filter;
+            this.cache = cache;
+        }
+
+        /**
+         * The number of live documents of this segment that match the filter.
+         */
+        int numDocs() throws IOException {
+            int numDocs = cache == null ? -1 : cache.numDocs();
+            if (numDocs < 0) {
+                final BitSet bits = filterBits();
+                numDocs = bits == null ? 0 : bits.cardinality();
+                if (cache != null) {
+                    cache.cacheNumDocs(numDocs);
+                }
+            }
+            return numDocs;
+        }
+
+        int docFreq(BytesRef term) throws IOException {
+            int docFreq = cache == null ? -1 : cache.docFreq(term);
+            if (docFreq >= 0) {
+                return docFreq;
+            }
+            docFreq = 0;
+            if (termsEnum == null) {
+                termsEnum = terms.iterator();
+            }
+            if (termsEnum.seekExact(term)) {
+                if (filter == null) {
+                    docFreq = termsEnum.docFreq();
+                } else {
+                    final Bits bits = filterBits();
+                    if (bits != null) {
+                        postings = termsEnum.postings(postings, PostingsEnum.NONE);
+                        for (int doc = postings.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = postings.nextDoc()) {
+                            if (bits.get(doc)) {
+                                docFreq++;
+                            }
+                        }
+                    }
+                }
+            }
+            if (cache != null) {
+                cache.cacheDocFreq(term, docFreq);
+            }
+            return docFreq;
+        }
+
+        /**
+         * The live documents of this segment that match the filter, or <code>null</code> if there are none.
+         */
+        private BitSet filterBits() throws IOException {
+            if (filterBitsLoaded == false) {
+                filterBitsLoaded = true;
+                final Scorer scorer = filter.scorer(context);
+                if (scorer != null) {
+                    DocIdSetIterator docs = scorer.iterator();
+                    // we want to force apply deleted docs
+                    final Bits liveDocs = context.reader().getLiveDocs();
+                    if (liveDocs != null) {
+                        docs = new FilteredDocIdSetIterator(docs) {
+                            @Override
+                            protected boolean match(int doc) {
+                                return liveDocs.get(doc);
+                            }
+                        };
+                    }
+                    BitDocIdSet.Builder builder = new BitDocIdSet.Builder(context.reader().maxDoc());
+                    builder.or(docs);
+                    final BitDocIdSet bits = builder.build();
+                    filterBits = bits == null ? null : bits.bits();
+                }
+            }
+            return filterBits;
+        }
+    }
+}
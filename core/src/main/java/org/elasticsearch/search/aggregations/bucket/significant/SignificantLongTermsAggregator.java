@@ -78,20 +78,31 @@ public class SignificantLongTermsAggregator extends LongTermsAggregator {
         long supersetSize = termsAggFactory.prepareBackground(context);
         long subsetSize = numCollectedDocs;
 
-        BucketSignificancePriorityQueue ordered = new BucketSignificancePriorityQueue(size);
-        SignificantLongTerms.Bucket spare = null;
+        // gather the candidate terms first so that their background frequencies can be looked up in a single sorted pass
+        final long[] candidates = new long[(int) bucketOrds.size()];
+        final long[] candidateTerms = new long[candidates.length];
+        int numCandidates = 0;
         for (long i = 0; i < bucketOrds.size(); i++) {
-            final int docCount = bucketDocCount(i);
-            if (docCount < bucketCountThresholds.getShardMinDocCount()) {
+            if (bucketDocCount(i) < bucketCountThresholds.getShardMinDocCount()) {
                 continue;
             }
+            candidates[numCandidates] = i;
+            candidateTerms[numCandidates] = bucketOrds.get(i);
+            numCandidates++;
+        }
+        final long[] supersetDfs = termsAggFactory.getBackgroundFrequencies(candidateTerms, numCandidates);
+
+        BucketSignificancePriorityQueue ordered = new BucketSignificancePriorityQueue(size);
+        SignificantLongTerms.Bucket spare = null;
+        for (int c = 0; c < numCandidates; c++) {
+            final long i = candidates[c];
             if (spare == null) {
                 spare = new SignificantLongTerms.Bucket(0, 0, 0, 0, 0, null, formatter);
             }
-            spare.term = bucketOrds.get(i);
-            spare.subsetDf = docCount;
+            spare.term = candidateTerms[c];
+            spare.subsetDf = bucketDocCount(i);
             spare.subsetSize = subsetSize;
-            spare.supersetDf = termsAggFactory.getBackgroundFrequency(spare.term);
+            spare.supersetDf = supersetDfs[c];
             spare.supersetSize = supersetSize;
             // During shard-local down-selection we use subset/superset stats that are for this shard only
             // Back at the central reducer these properties will be updated with global stats
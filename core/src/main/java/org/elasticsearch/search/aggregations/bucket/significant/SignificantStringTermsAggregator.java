@@ -26,6 +26,7 @@ import org.elasticsearch.search.aggregations.Aggregator;
 import org.elasticsearch.search.aggregations.AggregatorFactories;
 import org.elasticsearch.search.aggregations.LeafBucketCollector;
 import org.elasticsearch.search.aggregations.LeafBucketCollectorBase;
+import org.elasticsearch.search.aggregations.bucket.LongKeyedBucketOrds;
 import org.elasticsearch.search.aggregations.bucket.terms.StringTermsAggregator;
 import org.elasticsearch.search.aggregations.bucket.terms.support.IncludeExclude;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
@@ -75,26 +76,37 @@ public class SignificantStringTermsAggregator extends StringTermsAggregator {
     public SignificantStringTerms buildAggregation(long owningBucketOrdinal) throws IOException {
         assert owningBucketOrdinal == 0;
 
-        final int size = (int) Math.min(bucketOrds.size(), bucketCountThresholds.getShardSize());
+        final int size = (int) Math.min(bucketOrds.bucketsInOrd(owningBucketOrdinal), bucketCountThresholds.getShardSize());
         long supersetSize = termsAggFactory.prepareBackground(context);
         long subsetSize = numCollectedDocs;
 
-        BucketSignificancePriorityQueue ordered = new BucketSignificancePriorityQueue(size);
-        SignificantStringTerms.Bucket spare = null;
-        for (int i = 0; i < bucketOrds.size(); i++) {
-            final int docCount = bucketDocCount(i);
-            if (docCount < bucketCountThresholds.getShardMinDocCount()) {
+        // gather the candidate terms first so that their background frequencies can be looked up in a single sorted pass
+        final long[] candidates = new long[(int) bucketOrds.bucketsInOrd(owningBucketOrdinal)];
+        final BytesRef[] candidateTerms = new BytesRef[candidates.length];
+        int numCandidates = 0;
+        LongKeyedBucketOrds.BucketOrdsEnum ordsEnum = bucketOrds.ordsEnum(owningBucketOrdinal);
+        while (ordsEnum.next()) {
+            if (bucketDocCount(ordsEnum.ord()) < bucketCountThresholds.getShardMinDocCount()) {
                 continue;
             }
+            candidates[numCandidates] = ordsEnum.ord();
+            candidateTerms[numCandidates] = terms.get(ordsEnum.value(), new BytesRef());
+            numCandidates++;
+        }
+        final long[] supersetDfs = termsAggFactory.getBackgroundFrequencies(candidateTerms, numCandidates);
 
+        BucketSignificancePriorityQueue ordered = new BucketSignificancePriorityQueue(size);
+        SignificantStringTerms.Bucket spare = null;
+        for (int c = 0; c < numCandidates; c++) {
+            final long bucketOrd = candidates[c];
             if (spare == null) {
                 spare = new SignificantStringTerms.Bucket(new BytesRef(), 0, 0, 0, 0, null);
             }
 
-            bucketOrds.get(i, spare.termBytes);
-            spare.subsetDf = docCount;
+            spare.termBytes = candidateTerms[c];
+            spare.subsetDf = bucketDocCount(bucketOrd);
             spare.subsetSize = subsetSize;
-            spare.supersetDf = termsAggFactory.getBackgroundFrequency(spare.termBytes);
+            spare.supersetDf = supersetDfs[c];
             spare.supersetSize = supersetSize;
             // During shard-local down-selection we use subset/superset stats
             // that are for this shard only
@@ -102,7 +114,7 @@ public class SignificantStringTermsAggregator extends StringTermsAggregator {
             // global stats
             spare.updateScore(termsAggFactory.getSignificanceHeuristic());
 
-            spare.bucketOrd = i;
+            spare.bucketOrd = bucketOrd;
             spare = (SignificantStringTerms.Bucket) ordered.insertWithOverflow(spare);
         }
 
@@ -133,7 +145,7 @@ public class SignificantStringTermsAggregator extends StringTermsAggregator {
 
     @Override
     public void doClose() {
-        Releasables.close(bucketOrds, termsAggFactory);
+        Releasables.close(terms, bucketOrds, termsAggFactory);
     }
 
 }
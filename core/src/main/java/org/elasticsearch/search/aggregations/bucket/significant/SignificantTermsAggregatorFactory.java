@@ -19,16 +19,13 @@
 package org.elasticsearch.search.aggregations.bucket.significant;
 
 import org.apache.lucene.index.IndexReader;
-import org.apache.lucene.index.PostingsEnum;
-import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.IntroSorter;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.common.ParseField;
 import org.elasticsearch.common.ParseFieldMatcher;
 import org.elasticsearch.common.lease.Releasable;
-import org.elasticsearch.common.lucene.index.FilterableTermsEnum;
-import org.elasticsearch.common.lucene.index.FreqTermsEnum;
 import org.elasticsearch.index.mapper.MappedFieldType;
 import org.elasticsearch.search.aggregations.AggregationExecutionException;
 import org.elasticsearch.search.aggregations.Aggregator;
@@ -133,8 +130,7 @@ public class SignificantTermsAggregatorFactory extends ValuesSourceAggregatorFac
     private final String executionHint;
     private String indexedFieldName;
     private MappedFieldType fieldType;
-    private FilterableTermsEnum termsEnum;
-    private int numberOfAggregatorsCreated = 0;
+    private BackgroundFrequencyLookup background;
     private final Query filter;
     private final TermsAggregator.BucketCountThresholds bucketCountThresholds;
     private final SignificanceHeuristic significanceHeuristic;
@@ -177,11 +173,11 @@ public class SignificantTermsAggregatorFactory extends ValuesSourceAggregatorFac
             boolean collectsFromSingleBucket, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData)
             throws IOException {
         if (collectsFromSingleBucket == false) {
+            // TODO: key the buckets on the owning bucket like the terms aggregators do, this needs the subset sizes to
+            // be tracked per owning bucket as well
             return asMultiBucketAggregator(this, aggregationContext, parent);
         }
 
-        numberOfAggregatorsCreated++;
-
         if (valuesSource instanceof ValuesSource.Bytes) {
             ExecutionMode execution = null;
             if (executionHint != null) {
@@ -226,59 +222,95 @@ public class SignificantTermsAggregatorFactory extends ValuesSourceAggregatorFac
     }
 
     /**
-     * Creates the TermsEnum (if not already created) and must be called before any calls to getBackgroundFrequency
+     * Creates the background frequency lookup (if not already created) and must be called before any calls to getBackgroundFrequency
      * @param context The aggregation context
      * @return The number of documents in the index (after an optional filter might have been applied)
      */
     public long prepareBackground(AggregationContext context) {
-        if (termsEnum != null) {
+        if (background != null) {
             // already prepared - return
-            return termsEnum.getNumDocs();
+            return background.numDocs();
         }
         SearchContext searchContext = context.searchContext();
         IndexReader reader = searchContext.searcher().getIndexReader();
         try {
-            if (numberOfAggregatorsCreated == 1) {
-                // Setup a termsEnum for sole use by one aggregator
-                termsEnum = new FilterableTermsEnum(reader, indexedFieldName, PostingsEnum.NONE, filter);
-            } else {
-                // When we have > 1 agg we have possibility of duplicate term frequency lookups
-                // and so use a TermsEnum that caches results of all term lookups
-                termsEnum = new FreqTermsEnum(reader, indexedFieldName, true, false, filter, searchContext.bigArrays());
-            }
+            // frequencies are cached per segment so that several aggregators, and subsequent requests, share lookups
+            background = new BackgroundFrequencyLookup(reader, indexedFieldName, filter, searchContext.docFreqCache());
         } catch (IOException e) {
-            throw new ElasticsearchException("failed to build terms enumeration", e);
+            throw new ElasticsearchException("failed to build background frequency lookup", e);
         }
-        return termsEnum.getNumDocs();
+        return background.numDocs();
     }
 
     public long getBackgroundFrequency(BytesRef termBytes) {
-        assert termsEnum != null; // having failed to find a field in the index we don't expect any calls for frequencies
-        long result = 0;
+        assert background != null; // having failed to find a field in the index we don't expect any calls for frequencies
         try {
-            if (termsEnum.seekExact(termBytes)) {
-                result = termsEnum.docFreq();
-            }
+            return background.docFreq(termBytes);
         } catch (IOException e) {
             throw new ElasticsearchException("IOException loading background document frequency info", e);
         }
-        return result;
     }
 
-
     public long getBackgroundFrequency(long term) {
         BytesRef indexedVal = fieldType.indexedValueForSearch(term);
         return getBackgroundFrequency(indexedVal);
     }
 
-    @Override
-    public void close() {
-        try {
-            if (termsEnum instanceof Releasable) {
-                ((Releasable) termsEnum).close();
+    /**
+     * Looks up the background frequencies of several terms at once. The terms are looked up in sorted order so that
+     * the terms dictionary of each segment is walked forward once rather than seeked in random order.
+     * @return the frequencies, in the same order as the given terms
+     */
+    public long[] getBackgroundFrequencies(final BytesRef[] terms, int size) {
+        final int[] order = new int[size];
+        for (int i = 0; i < size; ++i) {
+            order[i] = i;
+        }
+        new IntroSorter() {
+            private BytesRef pivot;
+
+            @Override
+            protected void swap(int i, int j) {
+                final int tmp = order[i];
+                order[i] = order[j];
+                order[j] = tmp;
+            }
+
+            @Override
+            protected int compare(int i, int j) {
+                return terms[order[i]].compareTo(terms[order[j]]);
             }
-        } finally {
-            termsEnum = null;
+
+            @Override
+            protected void setPivot(int i) {
+                pivot = terms[order[i]];
+            }
+
+            @Override
+            protected int comparePivot(int j) {
+                return pivot.compareTo(terms[order[j]]);
+            }
+        }.sort(0, size);
+        final long[] frequencies = new long[size];
+        for (int i = 0; i < size; ++i) {
+            frequencies[order[i]] = getBackgroundFrequency(terms[order[i]]);
         }
+        return frequencies;
+    }
+
+    /**
+     * Same as {@link #getBackgroundFrequencies(BytesRef[], int)} for numeric terms.
+     */
+    public long[] getBackgroundFrequencies(long[] terms, int size) {
+        final BytesRef[] indexedVals = new BytesRef[size];
+        for (int i = 0; i < size; ++i) {
+            indexedVals[i] = fieldType.indexedValueForSearch(terms[i]);
+        }
+        return getBackgroundFrequencies(indexedVals, size);
+    }
+
+    @Override
+    public void close() {
+        background = null;
     }
 }
@@ -31,7 +31,6 @@ import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.util.IntArray;
-import org.elasticsearch.common.util.LongHash;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.index.fielddata.AbstractRandomAccessOrds;
 import org.elasticsearch.index.fielddata.ordinals.GlobalOrdinalMapping;
@@ -41,6 +40,7 @@ import org.elasticsearch.search.aggregations.InternalAggregation;
 import org.elasticsearch.search.aggregations.InternalAggregations;
 import org.elasticsearch.search.aggregations.LeafBucketCollector;
 import org.elasticsearch.search.aggregations.LeafBucketCollectorBase;
+import org.elasticsearch.search.aggregations.bucket.LongKeyedBucketOrds;
 import org.elasticsearch.search.aggregations.bucket.terms.InternalTerms.Bucket;
 import org.elasticsearch.search.aggregations.bucket.terms.support.BucketPriorityQueue;
 import org.elasticsearch.search.aggregations.bucket.terms.support.IncludeExclude;
@@ -179,7 +179,14 @@ public class GlobalOrdinalsStringTermsAggregator extends AbstractStringTermsAggr
                 }
             }
         }
+        return buildTopBuckets(ordered, otherDocCount);
+    }
 
+    /**
+     * Builds the aggregation out of the buckets that made it into the queue, <code>otherDocCount</code> is the sum of the
+     * doc counts of all buckets that were offered to the queue.
+     */
+    protected final InternalAggregation buildTopBuckets(BucketPriorityQueue ordered, long otherDocCount) throws IOException {
         // Get the top buckets
         final InternalTerms.Bucket[] list = new InternalTerms.Bucket[ordered.size()];
         long survivingBucketOrds[] = new long[ordered.size()];
@@ -261,20 +268,30 @@ public class GlobalOrdinalsStringTermsAggregator extends AbstractStringTermsAggr
 
     /**
      * Variant of {@link GlobalOrdinalsStringTermsAggregator} that rebases hashes in order to make them dense. Might be
-     * useful in case few hashes are visited.
+     * useful in case few hashes are visited. The hashes are keyed on the owning bucket as well, so that a single
+     * aggregator handles all owning buckets when it is collected from many of them.
      */
     public static class WithHash extends GlobalOrdinalsStringTermsAggregator {
 
-        private final LongHash bucketOrds;
+        private final LongKeyedBucketOrds bucketOrds;
 
         public WithHash(String name, AggregatorFactories factories, ValuesSource.Bytes.WithOrdinals.FieldData valuesSource,
                         Terms.Order order, BucketCountThresholds bucketCountThresholds, IncludeExclude.OrdinalsFilter includeExclude, AggregationContext aggregationContext,
  Aggregator parent, SubAggCollectionMode collectionMode,
                 boolean showTermDocCountError, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData)
                 throws IOException {
+            this(name, factories, valuesSource, order, bucketCountThresholds, includeExclude, aggregationContext, parent, collectionMode,
+                    showTermDocCountError, true, pipelineAggregators, metaData);
+        }
+
+        public WithHash(String name, AggregatorFactories factories, ValuesSource.Bytes.WithOrdinals.FieldData valuesSource,
+                Terms.Order order, BucketCountThresholds bucketCountThresholds, IncludeExclude.OrdinalsFilter includeExclude,
+                AggregationContext aggregationContext, Aggregator parent, SubAggCollectionMode collectionMode,
+                boolean showTermDocCountError, boolean collectsFromSingleBucket, List<PipelineAggregator> pipelineAggregators,
+                Map<String, Object> metaData) throws IOException {
             super(name, factories, valuesSource, order, bucketCountThresholds, includeExclude, aggregationContext, parent, collectionMode,
                     showTermDocCountError, pipelineAggregators, metaData);
-            bucketOrds = new LongHash(1, aggregationContext.bigArrays());
+            bucketOrds = LongKeyedBucketOrds.build(aggregationContext.bigArrays(), collectsFromSingleBucket);
         }
 
         @Override
@@ -286,7 +303,7 @@ public class GlobalOrdinalsStringTermsAggregator extends AbstractStringTermsAggr
                     public void collect(int doc, long bucket) throws IOException {
                         final int globalOrd = singleValues.getOrd(doc);
                         if (globalOrd >= 0) {
-                            long bucketOrd = bucketOrds.add(globalOrd);
+                            long bucketOrd = bucketOrds.add(bucket, globalOrd);
                             if (bucketOrd < 0) {
                                 bucketOrd = -1 - bucketOrd;
                                 collectExistingBucket(sub, doc, bucketOrd);
@@ -304,7 +321,7 @@ public class GlobalOrdinalsStringTermsAggregator extends AbstractStringTermsAggr
                         final int numOrds = ords.cardinality();
                         for (int i = 0; i < numOrds; i++) {
                             final long globalOrd = ords.ordAt(i);
-                            long bucketOrd = bucketOrds.add(globalOrd);
+                            long bucketOrd = bucketOrds.add(bucket, globalOrd);
                             if (bucketOrd < 0) {
                                 bucketOrd = -1 - bucketOrd;
                                 collectExistingBucket(sub, doc, bucketOrd);
@@ -318,8 +335,38 @@ public class GlobalOrdinalsStringTermsAggregator extends AbstractStringTermsAggr
         }
 
         @Override
-        protected long getBucketOrd(long termOrd) {
-            return bucketOrds.find(termOrd);
+        public InternalAggregation buildAggregation(long owningBucketOrdinal) throws IOException {
+            if (globalOrds == null) { // no context in this reader
+                return buildEmptyAggregation();
+            }
+            if (bucketCountThresholds.getMinDocCount() == 0) {
+                // the terms that were not collected into this owning bucket still need a bucket
+                for (long globalTermOrd = 0; globalTermOrd < globalOrds.getValueCount(); ++globalTermOrd) {
+                    if (includeExclude == null || acceptedGlobalOrdinals.get(globalTermOrd)) {
+                        bucketOrds.add(owningBucketOrdinal, globalTermOrd);
+                    }
+                }
+            }
+
+            final int size = (int) Math.min(bucketOrds.bucketsInOrd(owningBucketOrdinal), bucketCountThresholds.getShardSize());
+            long otherDocCount = 0;
+            BucketPriorityQueue ordered = new BucketPriorityQueue(size, order.comparator(this));
+            OrdBucket spare = new OrdBucket(-1, 0, null, showTermDocCountError, 0);
+            LongKeyedBucketOrds.BucketOrdsEnum ordsEnum = bucketOrds.ordsEnum(owningBucketOrdinal);
+            while (ordsEnum.next()) {
+                final int bucketDocCount = bucketDocCount(ordsEnum.ord());
+                otherDocCount += bucketDocCount;
+                spare.globalOrd = ordsEnum.value();
+                spare.bucketOrd = ordsEnum.ord();
+                spare.docCount = bucketDocCount;
+                if (bucketCountThresholds.getShardMinDocCount() <= spare.docCount) {
+                    spare = (OrdBucket) ordered.insertWithOverflow(spare);
+                    if (spare == null) {
+                        spare = new OrdBucket(-1, 0, null, showTermDocCountError, 0);
+                    }
+                }
+            }
+            return buildTopBuckets(ordered, otherDocCount);
         }
 
         @Override
@@ -21,12 +21,12 @@ package org.elasticsearch.search.aggregations.bucket.terms;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.SortedNumericDocValues;
 import org.elasticsearch.common.lease.Releasables;
-import org.elasticsearch.common.util.LongHash;
 import org.elasticsearch.search.aggregations.Aggregator;
 import org.elasticsearch.search.aggregations.AggregatorFactories;
 import org.elasticsearch.search.aggregations.InternalAggregation;
 import org.elasticsearch.search.aggregations.LeafBucketCollector;
 import org.elasticsearch.search.aggregations.LeafBucketCollectorBase;
+import org.elasticsearch.search.aggregations.bucket.LongKeyedBucketOrds;
 import org.elasticsearch.search.aggregations.bucket.terms.support.BucketPriorityQueue;
 import org.elasticsearch.search.aggregations.bucket.terms.support.IncludeExclude;
 import org.elasticsearch.search.aggregations.bucket.terms.support.IncludeExclude.LongFilter;
@@ -43,13 +43,22 @@ import java.util.List;
 import java.util.Map;
 
 /**
- *
+ * Terms aggregator for fields that have <code>long</code> values. Terms are mapped to bucket ordinals through a
+ * hash table, unless all values of the field are known to fall into a small range, in which case they are mapped
+ * through an array that is directly indexed by the distance of the value to the minimum value. A single aggregator
+ * handles all owning buckets when it is collected from many of them.
  */
 public class LongTermsAggregator extends TermsAggregator {
 
+    /**
+     * The maximum number of distinct values a field may have in order to map its values to bucket ordinals
+     * through an array rather than a hash table.
+     */
+    public static final long MAX_DENSE_RANGE = 4096;
+
     protected final ValuesSource.Numeric valuesSource;
     protected final ValueFormatter formatter;
-    protected final LongHash bucketOrds;
+    protected final LongKeyedBucketOrds bucketOrds;
     private boolean showTermDocCountError;
     private LongFilter longFilter;
 
@@ -57,12 +66,25 @@ public class LongTermsAggregator extends TermsAggregator {
             Terms.Order order, BucketCountThresholds bucketCountThresholds, AggregationContext aggregationContext, Aggregator parent,
             SubAggCollectionMode subAggCollectMode, boolean showTermDocCountError, IncludeExclude.LongFilter longFilter,
             List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
+        this(name, factories, valuesSource, format, order, bucketCountThresholds, aggregationContext, parent, subAggCollectMode,
+                showTermDocCountError, longFilter, LongKeyedBucketOrds.build(aggregationContext.bigArrays(), true), pipelineAggregators,
+                metaData);
+    }
+
+    /**
+     * @param bucketOrds  the bucket ordinals to collect into, they are released together with this aggregator
+     */
+    public LongTermsAggregator(String name, AggregatorFactories factories, ValuesSource.Numeric valuesSource, ValueFormat format,
+            Terms.Order order, BucketCountThresholds bucketCountThresholds, AggregationContext aggregationContext, Aggregator parent,
+            SubAggCollectionMode subAggCollectMode, boolean showTermDocCountError, IncludeExclude.LongFilter longFilter,
+            LongKeyedBucketOrds bucketOrds, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData)
+            throws IOException {
         super(name, factories, aggregationContext, parent, bucketCountThresholds, order, subAggCollectMode, pipelineAggregators, metaData);
         this.valuesSource = valuesSource;
         this.showTermDocCountError = showTermDocCountError;
         this.formatter = format.formatter();
         this.longFilter = longFilter;
-        bucketOrds = new LongHash(1, aggregationContext.bigArrays());
+        this.bucketOrds = bucketOrds;
     }
 
     @Override
@@ -81,7 +103,6 @@ public class LongTermsAggregator extends TermsAggregator {
         return new LeafBucketCollectorBase(sub, values) {
             @Override
             public void collect(int doc, long owningBucketOrdinal) throws IOException {
-                assert owningBucketOrdinal == 0;
                 values.setDocument(doc);
                 final int valuesCount = values.count();
 
@@ -90,7 +111,7 @@ public class LongTermsAggregator extends TermsAggregator {
                     final long val = values.valueAt(i);
                     if (previous != val || i == 0) {
                         if ((longFilter == null) || (longFilter.accept(val))) {
-                            long bucketOrdinal = bucketOrds.add(val);
+                            long bucketOrdinal = bucketOrds.add(owningBucketOrdinal, val);
                             if (bucketOrdinal < 0) { // already seen
                                 bucketOrdinal = - 1 - bucketOrdinal;
                                 collectExistingBucket(sub, doc, bucketOrdinal);
@@ -108,9 +129,8 @@ public class LongTermsAggregator extends TermsAggregator {
 
     @Override
     public InternalAggregation buildAggregation(long owningBucketOrdinal) throws IOException {
-        assert owningBucketOrdinal == 0;
-
-        if (bucketCountThresholds.getMinDocCount() == 0 && (order != InternalOrder.COUNT_DESC || bucketOrds.size() < bucketCountThresholds.getRequiredSize())) {
+        if (bucketCountThresholds.getMinDocCount() == 0 && (order != InternalOrder.COUNT_DESC
+                || bucketOrds.bucketsInOrd(owningBucketOrdinal) < bucketCountThresholds.getRequiredSize())) {
             // we need to fill-in the blanks
             for (LeafReaderContext ctx : context.searchContext().searcher().getTopReaderContext().leaves()) {
                 final SortedNumericDocValues values = getValues(valuesSource, ctx);
@@ -118,25 +138,26 @@ public class LongTermsAggregator extends TermsAggregator {
                     values.setDocument(docId);
                     final int valueCount = values.count();
                     for (int i = 0; i < valueCount; ++i) {
-                        bucketOrds.add(values.valueAt(i));
+                        bucketOrds.add(owningBucketOrdinal, values.valueAt(i));
                     }
                 }
             }
         }
 
-        final int size = (int) Math.min(bucketOrds.size(), bucketCountThresholds.getShardSize());
+        final int size = (int) Math.min(bucketOrds.bucketsInOrd(owningBucketOrdinal), bucketCountThresholds.getShardSize());
 
         long otherDocCount = 0;
         BucketPriorityQueue ordered = new BucketPriorityQueue(size, order.comparator(this));
         LongTerms.Bucket spare = null;
-        for (long i = 0; i < bucketOrds.size(); i++) {
+        LongKeyedBucketOrds.BucketOrdsEnum ordsEnum = bucketOrds.ordsEnum(owningBucketOrdinal);
+        while (ordsEnum.next()) {
             if (spare == null) {
                 spare = new LongTerms.Bucket(0, 0, null, showTermDocCountError, 0, formatter);
             }
-            spare.term = bucketOrds.get(i);
-            spare.docCount = bucketDocCount(i);
+            spare.term = ordsEnum.value();
+            spare.docCount = bucketDocCount(ordsEnum.ord());
             otherDocCount += spare.docCount;
-            spare.bucketOrd = i;
+            spare.bucketOrd = ordsEnum.ord();
             if (bucketCountThresholds.getShardMinDocCount() <= spare.docCount) {
                 spare = (LongTerms.Bucket) ordered.insertWithOverflow(spare);
             }
@@ -176,5 +197,4 @@ public class LongTermsAggregator extends TermsAggregator {
     public void doClose() {
         Releasables.close(bucketOrds);
     }
-
 }
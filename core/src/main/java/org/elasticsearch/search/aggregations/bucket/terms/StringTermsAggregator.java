@@ -29,6 +29,7 @@ import org.elasticsearch.search.aggregations.AggregatorFactories;
 import org.elasticsearch.search.aggregations.InternalAggregation;
 import org.elasticsearch.search.aggregations.LeafBucketCollector;
 import org.elasticsearch.search.aggregations.LeafBucketCollectorBase;
+import org.elasticsearch.search.aggregations.bucket.LongKeyedBucketOrds;
 import org.elasticsearch.search.aggregations.bucket.terms.support.BucketPriorityQueue;
 import org.elasticsearch.search.aggregations.bucket.terms.support.IncludeExclude;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
@@ -41,12 +42,15 @@ import java.util.List;
 import java.util.Map;
 
 /**
- * An aggregator of string values.
+ * An aggregator of string values. Terms are mapped to term ordinals through a hash table, and the (owning bucket, term
+ * ordinal) pairs are mapped to bucket ordinals, so that a single aggregator handles all owning buckets when it is
+ * collected from many of them.
  */
 public class StringTermsAggregator extends AbstractStringTermsAggregator {
 
     private final ValuesSource valuesSource;
-    protected final BytesRefHash bucketOrds;
+    protected final BytesRefHash terms;
+    protected final LongKeyedBucketOrds bucketOrds;
     private final IncludeExclude.StringFilter includeExclude;
 
     public StringTermsAggregator(String name, AggregatorFactories factories, ValuesSource valuesSource,
@@ -54,12 +58,33 @@ public class StringTermsAggregator extends AbstractStringTermsAggregator {
             IncludeExclude.StringFilter includeExclude, AggregationContext aggregationContext,
             Aggregator parent, SubAggCollectionMode collectionMode, boolean showTermDocCountError, List<PipelineAggregator> pipelineAggregators,
             Map<String, Object> metaData) throws IOException {
+        this(name, factories, valuesSource, order, bucketCountThresholds, includeExclude, aggregationContext, parent, collectionMode,
+                showTermDocCountError, LongKeyedBucketOrds.build(aggregationContext.bigArrays(), true), pipelineAggregators, metaData);
+    }
+
+    /**
+     * @param bucketOrds  the bucket ordinals to collect into, they are released together with this aggregator
+     */
+    public StringTermsAggregator(String name, AggregatorFactories factories, ValuesSource valuesSource,
+            Terms.Order order, BucketCountThresholds bucketCountThresholds,
+            IncludeExclude.StringFilter includeExclude, AggregationContext aggregationContext,
+            Aggregator parent, SubAggCollectionMode collectionMode, boolean showTermDocCountError, LongKeyedBucketOrds bucketOrds,
+            List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
 
         super(name, factories, aggregationContext, parent, order, bucketCountThresholds, collectionMode, showTermDocCountError, pipelineAggregators,
                 metaData);
         this.valuesSource = valuesSource;
         this.includeExclude = includeExclude;
-        bucketOrds = new BytesRefHash(1, aggregationContext.bigArrays());
+        this.bucketOrds = bucketOrds;
+        terms = new BytesRefHash(1, aggregationContext.bigArrays());
+    }
+
+    /**
+     * Returns the ordinal of the given term, adding it if it was not seen before.
+     */
+    protected final long termOrd(BytesRef term) {
+        final long termOrd = terms.add(term);
+        return termOrd < 0 ? -1 - termOrd : termOrd;
     }
 
     @Override
@@ -75,8 +100,7 @@ public class StringTermsAggregator extends AbstractStringTermsAggregator {
             final BytesRefBuilder previous = new BytesRefBuilder();
 
             @Override
-            public void collect(int doc, long bucket) throws IOException {
-                assert bucket == 0;
+            public void collect(int doc, long owningBucketOrdinal) throws IOException {
                 values.setDocument(doc);
                 final int valuesCount = values.count();
 
@@ -90,7 +114,7 @@ public class StringTermsAggregator extends AbstractStringTermsAggregator {
                     if (previous.get().equals(bytes)) {
                         continue;
                     }
-                    long bucketOrdinal = bucketOrds.add(bytes);
+                    long bucketOrdinal = bucketOrds.add(owningBucketOrdinal, termOrd(bytes));
                     if (bucketOrdinal < 0) { // already seen
                         bucketOrdinal = - 1 - bucketOrdinal;
                         collectExistingBucket(sub, doc, bucketOrdinal);
@@ -105,9 +129,8 @@ public class StringTermsAggregator extends AbstractStringTermsAggregator {
 
     @Override
     public InternalAggregation buildAggregation(long owningBucketOrdinal) throws IOException {
-        assert owningBucketOrdinal == 0;
-
-        if (bucketCountThresholds.getMinDocCount() == 0 && (order != InternalOrder.COUNT_DESC || bucketOrds.size() < bucketCountThresholds.getRequiredSize())) {
+        if (bucketCountThresholds.getMinDocCount() == 0 && (order != InternalOrder.COUNT_DESC
+                || bucketOrds.bucketsInOrd(owningBucketOrdinal) < bucketCountThresholds.getRequiredSize())) {
             // we need to fill-in the blanks
             for (LeafReaderContext ctx : context.searchContext().searcher().getTopReaderContext().leaves()) {
                 final SortedBinaryDocValues values = valuesSource.bytesValues(ctx);
@@ -118,26 +141,27 @@ public class StringTermsAggregator extends AbstractStringTermsAggregator {
                     for (int i = 0; i < valueCount; ++i) {
                         final BytesRef term = values.valueAt(i);
                         if (includeExclude == null || includeExclude.accept(term)) {
-                            bucketOrds.add(term);
+                            bucketOrds.add(owningBucketOrdinal, termOrd(term));
                         }
                     }
                 }
             }
         }
 
-        final int size = (int) Math.min(bucketOrds.size(), bucketCountThresholds.getShardSize());
+        final int size = (int) Math.min(bucketOrds.bucketsInOrd(owningBucketOrdinal), bucketCountThresholds.getShardSize());
 
         long otherDocCount = 0;
         BucketPriorityQueue ordered = new BucketPriorityQueue(size, order.comparator(this));
         StringTerms.Bucket spare = null;
-        for (int i = 0; i < bucketOrds.size(); i++) {
+        LongKeyedBucketOrds.BucketOrdsEnum ordsEnum = bucketOrds.ordsEnum(owningBucketOrdinal);
+        while (ordsEnum.next()) {
             if (spare == null) {
                 spare = new StringTerms.Bucket(new BytesRef(), 0, null, showTermDocCountError, 0);
             }
-            bucketOrds.get(i, spare.termBytes);
-            spare.docCount = bucketDocCount(i);
+            terms.get(ordsEnum.value(), spare.termBytes);
+            spare.docCount = bucketDocCount(ordsEnum.ord());
             otherDocCount += spare.docCount;
-            spare.bucketOrd = i;
+            spare.bucketOrd = ordsEnum.ord();
             if (bucketCountThresholds.getShardMinDocCount() <= spare.docCount) {
                 spare = (StringTerms.Bucket) ordered.insertWithOverflow(spare);
             }
@@ -170,7 +194,7 @@ public class StringTermsAggregator extends AbstractStringTermsAggregator {
 
     @Override
     public void doClose() {
-        Releasables.close(bucketOrds);
+        Releasables.close(terms, bucketOrds);
     }
 
 }
@@ -18,15 +18,21 @@
  */
 package org.elasticsearch.search.aggregations.bucket.terms;
 
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.MultiFields;
+import org.apache.lucene.index.Terms;
 import org.apache.lucene.search.IndexSearcher;
+import org.elasticsearch.action.fieldstats.FieldStats;
 import org.elasticsearch.common.ParseField;
 import org.elasticsearch.common.ParseFieldMatcher;
+import org.elasticsearch.index.mapper.MappedFieldType;
 import org.elasticsearch.search.aggregations.AggregationExecutionException;
 import org.elasticsearch.search.aggregations.Aggregator;
 import org.elasticsearch.search.aggregations.Aggregator.SubAggCollectionMode;
 import org.elasticsearch.search.aggregations.AggregatorFactories;
 import org.elasticsearch.search.aggregations.InternalAggregation;
 import org.elasticsearch.search.aggregations.NonCollectingAggregator;
+import org.elasticsearch.search.aggregations.bucket.LongKeyedBucketOrds;
 import org.elasticsearch.search.aggregations.bucket.terms.support.IncludeExclude;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 import org.elasticsearch.search.aggregations.support.AggregationContext;
@@ -50,12 +56,13 @@ public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory<Values
             @Override
             Aggregator create(String name, AggregatorFactories factories, ValuesSource valuesSource, Terms.Order order,
                     TermsAggregator.BucketCountThresholds bucketCountThresholds, IncludeExclude includeExclude,
-                    AggregationContext aggregationContext, Aggregator parent, SubAggCollectionMode subAggCollectMode,
-                    boolean showTermDocCountError, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData)
-                    throws IOException {
+                    AggregationContext aggregationContext, Aggregator parent, boolean collectsFromSingleBucket,
+                    SubAggCollectionMode subAggCollectMode, boolean showTermDocCountError, List<PipelineAggregator> pipelineAggregators,
+                    Map<String, Object> metaData) throws IOException {
                 final IncludeExclude.StringFilter filter = includeExclude == null ? null : includeExclude.convertToStringFilter();
                 return new StringTermsAggregator(name, factories, valuesSource, order, bucketCountThresholds, filter, aggregationContext,
-                        parent, subAggCollectMode, showTermDocCountError, pipelineAggregators, metaData);
+                        parent, subAggCollectMode, showTermDocCountError,
+                        LongKeyedBucketOrds.build(aggregationContext.bigArrays(), collectsFromSingleBucket), pipelineAggregators, metaData);
             }
 
             @Override
@@ -69,9 +76,15 @@ public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory<Values
             @Override
             Aggregator create(String name, AggregatorFactories factories, ValuesSource valuesSource, Terms.Order order,
                     TermsAggregator.BucketCountThresholds bucketCountThresholds, IncludeExclude includeExclude,
-                    AggregationContext aggregationContext, Aggregator parent, SubAggCollectionMode subAggCollectMode,
-                    boolean showTermDocCountError, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData)
-                    throws IOException {
+                    AggregationContext aggregationContext, Aggregator parent, boolean collectsFromSingleBucket,
+                    SubAggCollectionMode subAggCollectMode, boolean showTermDocCountError, List<PipelineAggregator> pipelineAggregators,
+                    Map<String, Object> metaData) throws IOException {
+                if (collectsFromSingleBucket == false) {
+                    // buckets are indexed by global ordinal, they can only be keyed on the owning bucket through a hash table
+                    return GLOBAL_ORDINALS_HASH.create(name, factories, valuesSource, order, bucketCountThresholds, includeExclude,
+                            aggregationContext, parent, collectsFromSingleBucket, subAggCollectMode, showTermDocCountError,
+                            pipelineAggregators, metaData);
+                }
                 final IncludeExclude.OrdinalsFilter filter = includeExclude == null ? null : includeExclude.convertToOrdinalsFilter();
                 return new GlobalOrdinalsStringTermsAggregator(name, factories, (ValuesSource.Bytes.WithOrdinals) valuesSource, order,
                         bucketCountThresholds, filter, aggregationContext, parent, subAggCollectMode, showTermDocCountError,
@@ -89,13 +102,13 @@ public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory<Values
             @Override
             Aggregator create(String name, AggregatorFactories factories, ValuesSource valuesSource, Terms.Order order,
                     TermsAggregator.BucketCountThresholds bucketCountThresholds, IncludeExclude includeExclude,
-                    AggregationContext aggregationContext, Aggregator parent, SubAggCollectionMode subAggCollectMode,
-                    boolean showTermDocCountError, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData)
-                    throws IOException {
+                    AggregationContext aggregationContext, Aggregator parent, boolean collectsFromSingleBucket,
+                    SubAggCollectionMode subAggCollectMode, boolean showTermDocCountError, List<PipelineAggregator> pipelineAggregators,
+                    Map<String, Object> metaData) throws IOException {
                 final IncludeExclude.OrdinalsFilter filter = includeExclude == null ? null : includeExclude.convertToOrdinalsFilter();
                 return new GlobalOrdinalsStringTermsAggregator.WithHash(name, factories,
                         (ValuesSource.Bytes.WithOrdinals.FieldData) valuesSource, order, bucketCountThresholds, filter, aggregationContext,
-                        parent, subAggCollectMode, showTermDocCountError, pipelineAggregators, metaData);
+                        parent, subAggCollectMode, showTermDocCountError, collectsFromSingleBucket, pipelineAggregators, metaData);
             }
 
             @Override
@@ -108,12 +121,13 @@ public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory<Values
             @Override
             Aggregator create(String name, AggregatorFactories factories, ValuesSource valuesSource, Terms.Order order,
                     TermsAggregator.BucketCountThresholds bucketCountThresholds, IncludeExclude includeExclude,
-                    AggregationContext aggregationContext, Aggregator parent, SubAggCollectionMode subAggCollectMode,
-                    boolean showTermDocCountError, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData)
-                    throws IOException {
-                if (includeExclude != null || factories.count() > 0) {
+                    AggregationContext aggregationContext, Aggregator parent, boolean collectsFromSingleBucket,
+                    SubAggCollectionMode subAggCollectMode, boolean showTermDocCountError, List<PipelineAggregator> pipelineAggregators,
+                    Map<String, Object> metaData) throws IOException {
+                if (includeExclude != null || factories.count() > 0 || collectsFromSingleBucket == false) {
                     return GLOBAL_ORDINALS.create(name, factories, valuesSource, order, bucketCountThresholds, includeExclude,
-                            aggregationContext, parent, subAggCollectMode, showTermDocCountError, pipelineAggregators, metaData);
+                            aggregationContext, parent, collectsFromSingleBucket, subAggCollectMode, showTermDocCountError,
+                            pipelineAggregators, metaData);
                 }
                 return new GlobalOrdinalsStringTermsAggregator.LowCardinality(name, factories,
                         (ValuesSource.Bytes.WithOrdinals) valuesSource, order, bucketCountThresholds, aggregationContext, parent,
@@ -143,9 +157,9 @@ public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory<Values
 
         abstract Aggregator create(String name, AggregatorFactories factories, ValuesSource valuesSource, Terms.Order order,
                 TermsAggregator.BucketCountThresholds bucketCountThresholds, IncludeExclude includeExclude,
-                AggregationContext aggregationContext, Aggregator parent, SubAggCollectionMode subAggCollectMode,
-                boolean showTermDocCountError, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData)
-                throws IOException;
+                AggregationContext aggregationContext, Aggregator parent, boolean collectsFromSingleBucket,
+                SubAggCollectionMode subAggCollectMode, boolean showTermDocCountError, List<PipelineAggregator> pipelineAggregators,
+                Map<String, Object> metaData) throws IOException;
 
         abstract boolean needsGlobalOrdinals();
 
@@ -196,7 +210,10 @@ public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory<Values
     protected Aggregator doCreateInternal(ValuesSource valuesSource, AggregationContext aggregationContext, Aggregator parent,
             boolean collectsFromSingleBucket, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData)
             throws IOException {
-        if (collectsFromSingleBucket == false) {
+        if (collectsFromSingleBucket == false && collectMode == SubAggCollectionMode.BREADTH_FIRST
+                && factories != AggregatorFactories.EMPTY) {
+            // the deferred sub-aggregations can only be replayed once per aggregator, so we need an aggregator per
+            // owning bucket
             return asMultiBucketAggregator(this, aggregationContext, parent);
         }
         if (valuesSource instanceof ValuesSource.Bytes) {
@@ -245,7 +262,7 @@ public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory<Values
             }
 
             return execution.create(name, factories, valuesSource, order, bucketCountThresholds, includeExclude, aggregationContext,
-                    parent, collectMode, showTermDocCountError, pipelineAggregators, metaData);
+                    parent, collectsFromSingleBucket, collectMode, showTermDocCountError, pipelineAggregators, metaData);
         }
 
         if ((includeExclude != null) && (includeExclude.isRegexBased())) {
@@ -264,18 +281,52 @@ public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory<Values
                 }
                 return new DoubleTermsAggregator(name, factories, (ValuesSource.Numeric) valuesSource, config.format(), order,
                         bucketCountThresholds, aggregationContext, parent, collectMode, showTermDocCountError, longFilter,
-                        pipelineAggregators, metaData);
+                        LongKeyedBucketOrds.build(aggregationContext.bigArrays(), collectsFromSingleBucket), pipelineAggregators,
+                        metaData);
             }
             if (includeExclude != null) {
                 longFilter = includeExclude.convertToLongFilter();
             }
+            LongKeyedBucketOrds bucketOrds = null;
+            // values can only be mapped through an array if the bounds are known for sure, which is not the case with
+            // scripts or missing values. It is also not worth it under a bucket aggregator, the array would be allocated
+            // for every parent bucket while each of them might only see a few terms.
+            if (collectsFromSingleBucket && valuesSource instanceof ValuesSource.Numeric.FieldData
+                    && Aggregator.descendsFromBucketAggregator(parent) == false) {
+                FieldStats<?> stats = fieldStats(aggregationContext);
+                if (stats instanceof FieldStats.Long) {
+                    bucketOrds = LongKeyedBucketOrds.buildForRange(aggregationContext.bigArrays(),
+                            ((FieldStats.Long) stats).getMinValue(), ((FieldStats.Long) stats).getMaxValue(),
+                            LongTermsAggregator.MAX_DENSE_RANGE);
+                }
+            }
+            if (bucketOrds == null) {
+                bucketOrds = LongKeyedBucketOrds.build(aggregationContext.bigArrays(), collectsFromSingleBucket);
+            }
             return new LongTermsAggregator(name, factories, (ValuesSource.Numeric) valuesSource, config.format(), order,
-                    bucketCountThresholds, aggregationContext, parent, collectMode, showTermDocCountError, longFilter, pipelineAggregators,
-                    metaData);
+                    bucketCountThresholds, aggregationContext, parent, collectMode, showTermDocCountError, longFilter, bucketOrds,
+                    pipelineAggregators, metaData);
         }
 
         throw new AggregationExecutionException("terms aggregation cannot be applied to field [" + config.fieldContext().field()
                 + "]. It can only be applied to numeric or string fields.");
     }
 
+    /**
+     * Returns the statistics, including the minimum and maximum value, of the field on this shard, or <code>null</code>
+     * if the field is not indexed.
+     */
+    private FieldStats<?> fieldStats(AggregationContext aggregationContext) throws IOException {
+        final MappedFieldType fieldType = config.fieldContext().fieldType();
+        if (fieldType == null) {
+            return null;
+        }
+        final IndexReader reader = aggregationContext.searchContext().searcher().getIndexReader();
+        final Terms terms = MultiFields.getTerms(reader, fieldType.name());
+        if (terms == null) {
+            return null;
+        }
+        return fieldType.stats(terms, reader.maxDoc());
+    }
+
 }
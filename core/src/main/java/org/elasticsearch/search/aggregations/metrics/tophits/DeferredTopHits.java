@@ -0,0 +1,184 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.metrics.tophits;
+
+import com.carrotsearch.hppc.IntHashSet;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.ScoreDoc;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.util.concurrent.AtomicArray;
+import org.elasticsearch.search.aggregations.Aggregation;
+import org.elasticsearch.search.aggregations.Aggregations;
+import org.elasticsearch.search.aggregations.bucket.MultiBucketsAggregation;
+import org.elasticsearch.search.aggregations.bucket.SingleBucketAggregation;
+import org.elasticsearch.search.fetch.FetchSearchResult;
+import org.elasticsearch.search.fetch.FetchSearchResultProvider;
+import org.elasticsearch.search.internal.InternalSearchHit;
+import org.elasticsearch.search.internal.InternalSearchHits;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Helps the coordinating node with top_hits aggregations whose hits were not fetched during the query phase. Most of
+ * the buckets that shards return get pruned when the aggregations are reduced, so shards only return the ids and sort
+ * values of the top docs of each bucket. Once the aggregations are reduced, the coordinating node asks each shard for
+ * the hits of the surviving buckets, in a single batch per top_hits aggregation that is sent along with the fetch phase,
+ * and fills them into the reduced aggregations.
+ * <p>
+ * top_hits aggregations are identified by the names of the aggregations on their path, separated by <code>&gt;</code>.
+ */
+public final class DeferredTopHits {
+
+    public static final char PATH_DELIMITER = '>';
+
+    private DeferredTopHits() {
+    }
+
+    /**
+     * Whether the given shard level aggregations contain top hits whose hits still need to be fetched.
+     */
+    public static boolean hasDeferredHits(@Nullable Aggregations aggregations) {
+        if (aggregations == null) {
+            return false;
+        }
+        final boolean[] deferred = new boolean[1];
+        walk(aggregations, new ArrayDeque<>(), (path, topHits) -> deferred[0] |= topHits.topDocs().scoreDocs.length > 0);
+        return deferred[0];
+    }
+
+    /**
+     * Records the index of the shard that the given aggregations come from in their deferred top hits. Must be called
+     * before the aggregations are reduced.
+     */
+    public static void shardIndex(@Nullable Aggregations aggregations, int shardIndex) {
+        if (aggregations != null) {
+            walk(aggregations, new ArrayDeque<>(), (path, topHits) -> topHits.shardIndex(shardIndex));
+        }
+    }
+
+    /**
+     * Collects the ids of the docs that need to be fetched for the deferred top hits of the given reduced aggregations.
+     * For each shard index, the doc ids are grouped by top_hits path, sorted and deduplicated.
+     */
+    public static void fillDocIdsToLoad(AtomicArray<Map<String, int[]>> docIdsToLoad, @Nullable Aggregations reduced) {
+        if (reduced == null) {
+            return;
+        }
+        final Map<Integer, Map<String, IntHashSet>> docIds = new HashMap<>();
+        walk(reduced, new ArrayDeque<>(), (path, topHits) -> {
+            final ScoreDoc[] scoreDocs = topHits.topDocs().scoreDocs;
+            for (int i = 0; i < scoreDocs.length; i++) {
+                Map<String, IntHashSet> shardDocIds = docIds.get(topHits.shardIndices()[i]);
+                if (shardDocIds == null) {
+                    shardDocIds = new HashMap<>();
+                    docIds.put(topHits.shardIndices()[i], shardDocIds);
+                }
+                IntHashSet pathDocIds = shardDocIds.get(path);
+                if (pathDocIds == null) {
+                    pathDocIds = new IntHashSet();
+                    shardDocIds.put(path, pathDocIds);
+                }
+                pathDocIds.add(scoreDocs[i].doc);
+            }
+        });
+        for (Map.Entry<Integer, Map<String, IntHashSet>> shard : docIds.entrySet()) {
+            final Map<String, int[]> shardDocIds = new HashMap<>();
+            for (Map.Entry<String, IntHashSet> path : shard.getValue().entrySet()) {
+                final int[] sorted = path.getValue().toArray();
+                Arrays.sort(sorted);
+                shardDocIds.put(path.getKey(), sorted);
+            }
+            docIdsToLoad.set(shard.getKey(), shardDocIds);
+        }
+    }
+
+    /**
+     * Fills the hits that were fetched from the shards into the deferred top hits of the given reduced aggregations.
+     * Hits of shards that failed to fetch them are left out.
+     */
+    public static void fillHits(@Nullable Aggregations reduced, AtomicArray<Map<String, int[]>> docIdsToLoad,
+                                AtomicArray<? extends FetchSearchResultProvider> fetchResults) {
+        if (reduced == null) {
+            return;
+        }
+        walk(reduced, new ArrayDeque<>(), (path, topHits) -> {
+            final ScoreDoc[] scoreDocs = topHits.topDocs().scoreDocs;
+            final InternalSearchHit[] hits = new InternalSearchHit[scoreDocs.length];
+            for (int i = 0; i < scoreDocs.length; i++) {
+                final int shardIndex = topHits.shardIndices()[i];
+                final Map<String, int[]> shardDocIds = docIdsToLoad.get(shardIndex);
+                final FetchSearchResultProvider fetchResultProvider = fetchResults.get(shardIndex);
+                if (shardDocIds == null || fetchResultProvider == null) {
+                    continue;
+                }
+                final FetchSearchResult fetchResult = fetchResultProvider.fetchResult();
+                final InternalSearchHits shardHits = fetchResult.topHits().get(path);
+                final int[] pathDocIds = shardDocIds.get(path);
+                if (shardHits == null || pathDocIds == null) {
+                    continue;
+                }
+                final int position = Arrays.binarySearch(pathDocIds, scoreDocs[i].doc);
+                if (position < 0 || position >= shardHits.internalHits().length) {
+                    continue;
+                }
+                // the same doc may be a top hit of several buckets, its score and sort values are the same in all of them
+                final InternalSearchHit hit = shardHits.internalHits()[position];
+                hit.shard(fetchResult.shardTarget());
+                hit.score(scoreDocs[i].score);
+                if (scoreDocs[i] instanceof FieldDoc) {
+                    hit.sortValues(((FieldDoc) scoreDocs[i]).fields);
+                }
+                hits[i] = hit;
+            }
+            topHits.hits(hits);
+        });
+    }
+
+    private static void walk(Aggregations aggregations, Deque<String> names, BiConsumer<String, InternalTopHits> consumer) {
+        for (Aggregation aggregation : aggregations) {
+            if (aggregation instanceof InternalTopHits) {
+                final InternalTopHits topHits = (InternalTopHits) aggregation;
+                if (topHits.isDeferred()) {
+                    final StringBuilder path = new StringBuilder();
+                    for (String name : names) {
+                        path.append(name).append(PATH_DELIMITER);
+                    }
+                    consumer.accept(path.append(topHits.getName()).toString(), topHits);
+                }
+            } else if (aggregation instanceof MultiBucketsAggregation) {
+                names.addLast(aggregation.getName());
+                for (MultiBucketsAggregation.Bucket bucket : ((MultiBucketsAggregation) aggregation).getBuckets()) {
+                    if (bucket.getAggregations() != null) {
+                        walk(bucket.getAggregations(), names, consumer);
+                    }
+                }
+                names.removeLast();
+            } else if (aggregation instanceof SingleBucketAggregation) {
+                names.addLast(aggregation.getName());
+                walk(((SingleBucketAggregation) aggregation).getAggregations(), names, consumer);
+                names.removeLast();
+            }
+        }
+    }
+}
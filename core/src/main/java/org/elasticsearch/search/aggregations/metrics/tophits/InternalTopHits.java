@@ -36,6 +36,8 @@ import org.elasticsearch.search.internal.InternalSearchHit;
 import org.elasticsearch.search.internal.InternalSearchHits;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
@@ -62,6 +64,8 @@ public class InternalTopHits extends InternalMetricsAggregation implements TopHi
     private int size;
     private TopDocs topDocs;
     private InternalSearchHits searchHits;
+    // the index of the shard that each of the top docs comes from, only used on the coordinating node while hits are deferred
+    private transient int[] shardIndices;
 
     InternalTopHits() {
     }
@@ -75,6 +79,15 @@ public class InternalTopHits extends InternalMetricsAggregation implements TopHi
         this.searchHits = searchHits;
     }
 
+    /**
+     * Creates top hits whose hits are not fetched yet. Only the ids and sort values of the top docs are returned by the
+     * query phase so that hits only get fetched for the buckets that survive the reduction on the coordinating node.
+     */
+    public InternalTopHits(String name, int from, int size, TopDocs topDocs, List<PipelineAggregator> pipelineAggregators,
+            Map<String, Object> metaData) {
+        this(name, from, size, topDocs, null, pipelineAggregators, metaData);
+    }
+
     @Override
     public Type type() {
         return TYPE;
@@ -85,12 +98,60 @@ public class InternalTopHits extends InternalMetricsAggregation implements TopHi
         return searchHits;
     }
 
+    /**
+     * Whether the hits still need to be fetched, see {@link DeferredTopHits}.
+     */
+    public boolean isDeferred() {
+        return searchHits == null;
+    }
+
+    TopDocs topDocs() {
+        return topDocs;
+    }
+
+    /**
+     * Records the shard that the top docs of these deferred hits come from, before they get reduced.
+     */
+    void shardIndex(int shardIndex) {
+        assert isDeferred();
+        shardIndices = new int[topDocs.scoreDocs.length];
+        Arrays.fill(shardIndices, shardIndex);
+    }
+
+    /**
+     * The index of the shard that each of the top docs of these deferred hits comes from.
+     */
+    int[] shardIndices() {
+        return shardIndices;
+    }
+
+    /**
+     * Sets the fetched hits, one per top doc. Hits that could not be fetched are <code>null</code> and get dropped.
+     */
+    void hits(InternalSearchHit[] hits) {
+        assert isDeferred();
+        List<InternalSearchHit> fetched = new ArrayList<>(hits.length);
+        for (InternalSearchHit hit : hits) {
+            if (hit != null) {
+                fetched.add(hit);
+            }
+        }
+        searchHits = new InternalSearchHits(fetched.toArray(new InternalSearchHit[fetched.size()]), topDocs.totalHits,
+                topDocs.getMaxScore());
+        shardIndices = null;
+    }
+
     @Override
     public InternalAggregation doReduce(List<InternalAggregation> aggregations, ReduceContext reduceContext) {
         InternalSearchHits[] shardHits = new InternalSearchHits[aggregations.size()];
 
         final TopDocs reducedTopDocs;
         final TopDocs[] shardDocs;
+        // shards without any top docs return their (empty) hits right away even if the others deferred fetching them
+        boolean deferred = false;
+        for (InternalAggregation aggregation : aggregations) {
+            deferred |= ((InternalTopHits) aggregation).isDeferred();
+        }
 
         try {
             if (topDocs instanceof TopFieldDocs) {
@@ -112,6 +173,29 @@ public class InternalTopHits extends InternalMetricsAggregation implements TopHi
                 reducedTopDocs = TopDocs.merge(from, size, shardDocs);
             }
 
+            if (reducedTopDocs.scoreDocs.length == 0) {
+                // nothing left to fetch, the response must still carry (empty) hits
+                return new InternalTopHits(name, from, size, reducedTopDocs, new InternalSearchHits(new InternalSearchHit[0],
+                        reducedTopDocs.totalHits, reducedTopDocs.getMaxScore()), pipelineAggregators(), getMetaData());
+            }
+
+            if (deferred) {
+                // the hits are fetched once the whole response is reduced, only keep track of the shards of the top docs
+                final int[] tracker = new int[shardDocs.length];
+                final int[] shardIndices = new int[reducedTopDocs.scoreDocs.length];
+                for (int i = 0; i < reducedTopDocs.scoreDocs.length; i++) {
+                    ScoreDoc scoreDoc = reducedTopDocs.scoreDocs[i];
+                    int position;
+                    do {
+                        position = tracker[scoreDoc.shardIndex]++;
+                    } while (shardDocs[scoreDoc.shardIndex].scoreDocs[position] != scoreDoc);
+                    shardIndices[i] = ((InternalTopHits) aggregations.get(scoreDoc.shardIndex)).shardIndices[position];
+                }
+                InternalTopHits reduced = new InternalTopHits(name, from, size, reducedTopDocs, pipelineAggregators(), getMetaData());
+                reduced.shardIndices = shardIndices;
+                return reduced;
+            }
+
             final int[] tracker = new int[shardHits.length];
             InternalSearchHit[] hits = new InternalSearchHit[reducedTopDocs.scoreDocs.length];
             for (int i = 0; i < reducedTopDocs.scoreDocs.length; i++) {
@@ -145,7 +229,9 @@ public class InternalTopHits extends InternalMetricsAggregation implements TopHi
         size = in.readVInt();
         topDocs = Lucene.readTopDocs(in);
         assert topDocs != null;
-        searchHits = InternalSearchHits.readSearchHits(in);
+        if (in.readBoolean()) {
+            searchHits = InternalSearchHits.readSearchHits(in);
+        }
     }
 
     @Override
@@ -153,12 +239,19 @@ public class InternalTopHits extends InternalMetricsAggregation implements TopHi
         out.writeVInt(from);
         out.writeVInt(size);
         Lucene.writeTopDocs(out, topDocs);
-        searchHits.writeTo(out);
+        if (searchHits == null) {
+            out.writeBoolean(false);
+        } else {
+            out.writeBoolean(true);
+            searchHits.writeTo(out);
+        }
     }
 
     @Override
     public XContentBuilder doXContentBody(XContentBuilder builder, Params params) throws IOException {
-        searchHits.toXContent(builder, params);
+        if (searchHits != null) {
+            searchHits.toXContent(builder, params);
+        }
         return builder;
     }
 }
@@ -70,6 +70,7 @@ public class TopHitsAggregator extends MetricsAggregator {
     final FetchPhase fetchPhase;
     final SubSearchContext subSearchContext;
     final LongObjectPagedHashMap<TopDocsAndLeafCollector> topDocsCollectors;
+    final boolean deferFetch;
 
     public TopHitsAggregator(FetchPhase fetchPhase, SubSearchContext subSearchContext, String name, AggregationContext context,
             Aggregator parent, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
@@ -77,6 +78,7 @@ public class TopHitsAggregator extends MetricsAggregator {
         this.fetchPhase = fetchPhase;
         topDocsCollectors = new LongObjectPagedHashMap<>(1, context.bigArrays());
         this.subSearchContext = subSearchContext;
+        this.deferFetch = context.searchContext().topHitsFetchDeferred();
     }
 
     @Override
@@ -139,6 +141,11 @@ public class TopHitsAggregator extends MetricsAggregator {
             topHits = buildEmptyAggregation();
         } else {
             final TopDocs topDocs = topDocsCollector.topLevelCollector.topDocs();
+            if (deferFetch && topDocs.scoreDocs.length > 0) {
+                // most buckets get pruned on the coordinating node, which fetches the hits of the remaining ones in a later round
+                return new InternalTopHits(name, subSearchContext.from(), subSearchContext.size(), topDocs, pipelineAggregators(),
+                        metaData());
+            }
 
             subSearchContext.queryResult().topDocs(topDocs);
             int[] docIdsToLoad = new int[topDocs.scoreDocs.length];
@@ -192,6 +199,31 @@ public class TopHitsAggregator extends MetricsAggregator {
             this.subSearchContext = subSearchContext;
         }
 
+        /**
+         * The names of this aggregation and of its parents, separated by <code>&gt;</code>.
+         */
+        public String path() {
+            StringBuilder path = new StringBuilder(name);
+            for (AggregatorFactory parent = parent(); parent != null; parent = parent.parent()) {
+                path.insert(0, DeferredTopHits.PATH_DELIMITER).insert(0, parent.name());
+            }
+            return path.toString();
+        }
+
+        /**
+         * Fetches the hits of deferred top hits, the given doc ids must be sorted.
+         */
+        public InternalSearchHits fetch(int[] docIds) {
+            ScoreDoc[] scoreDocs = new ScoreDoc[docIds.length];
+            for (int i = 0; i < docIds.length; i++) {
+                scoreDocs[i] = new ScoreDoc(docIds[i], Float.NaN);
+            }
+            subSearchContext.queryResult().topDocs(new TopDocs(docIds.length, scoreDocs, Float.NaN));
+            subSearchContext.docIdsToLoad(docIds, 0, docIds.length);
+            fetchPhase.execute(subSearchContext);
+            return subSearchContext.fetchResult().hits();
+        }
+
         @Override
         public Aggregator createInternal(AggregationContext aggregationContext, Aggregator parent, boolean collectsFromSingleBucket,
                 List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
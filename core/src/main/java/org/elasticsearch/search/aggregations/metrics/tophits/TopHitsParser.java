@@ -135,7 +135,9 @@ public class TopHitsParser implements Aggregator.Parser {
         } catch (Exception e) {
             throw ExceptionsHelper.convertToElastic(e);
         }
-        return new TopHitsAggregator.Factory(aggregationName, fetchPhase, subSearchContext);
+        TopHitsAggregator.Factory factory = new TopHitsAggregator.Factory(aggregationName, fetchPhase, subSearchContext);
+        context.registerDeferredTopHits(factory);
+        return factory;
     }
 
 }
@@ -46,6 +46,7 @@ import org.elasticsearch.search.fetch.source.FetchSourceContext;
 import org.elasticsearch.search.highlight.HighlightBuilder;
 import org.elasticsearch.search.internal.SearchContext;
 import org.elasticsearch.search.rescore.RescoreBuilder;
+import org.elasticsearch.search.searchafter.SearchAfterBuilder;
 import org.elasticsearch.search.sort.SortBuilder;
 import org.elasticsearch.search.sort.SortBuilders;
 import org.elasticsearch.search.sort.SortOrder;
@@ -83,6 +84,7 @@ public final class SearchSourceBuilder extends ToXContentToBytes implements Writ
     public static final ParseField IGNORE_FAILURE_FIELD = new ParseField("ignore_failure");
     public static final ParseField SORT_FIELD = new ParseField("sort");
     public static final ParseField TRACK_SCORES_FIELD = new ParseField("track_scores");
+    public static final ParseField TRACK_TOTAL_HITS_FIELD = new ParseField("track_total_hits");
     public static final ParseField INDICES_BOOST_FIELD = new ParseField("indices_boost");
     public static final ParseField AGGREGATIONS_FIELD = new ParseField("aggregations", "aggs");
     public static final ParseField HIGHLIGHT_FIELD = new ParseField("highlight");
@@ -92,6 +94,7 @@ public final class SearchSourceBuilder extends ToXContentToBytes implements Writ
     public static final ParseField STATS_FIELD = new ParseField("stats");
     public static final ParseField EXT_FIELD = new ParseField("ext");
     public static final ParseField PROFILE_FIELD = new ParseField("profile");
+    public static final ParseField SEARCH_AFTER = new ParseField("search_after");
 
     private static final SearchSourceBuilder PROTOTYPE = new SearchSourceBuilder();
 
@@ -133,6 +136,10 @@ public final class SearchSourceBuilder extends ToXContentToBytes implements Writ
 
     private boolean trackScores = false;
 
+    private boolean trackTotalHits = true;
+
+    private SearchAfterBuilder searchAfterBuilder;
+
     private Float minScore;
 
     private long timeoutInMillis = -1;
@@ -379,6 +386,43 @@ public final class SearchSourceBuilder extends ToXContentToBytes implements Writ
         return trackScores;
     }
 
+    /**
+     * Controls if the total number of hits must be computed accurately. When set to <tt>false</tt>, shards whose
+     * segments are sorted by the search sort may stop collecting once they found the top hits, in which case the
+     * total hit count of the response is a lower bound. Defaults to <tt>true</tt>.
+     */
+    public SearchSourceBuilder trackTotalHits(boolean trackTotalHits) {
+        this.trackTotalHits = trackTotalHits;
+        return this;
+    }
+
+    /**
+     * Indicates whether the total number of hits will be tracked accurately for this request.
+     */
+    public boolean trackTotalHits() {
+        return trackTotalHits;
+    }
+
+    /**
+     * The sort values of the last hit of the previous page, this page starts right after it. Requires a sort and
+     * a <tt>from</tt> of <tt>0</tt>, and can't be used with scrolls. Ties are broken by the index order of the
+     * documents, which may change across refreshes, so the sort should end with a field that is unique per document.
+     */
+    public SearchSourceBuilder searchAfter(Object[] values) {
+        this.searchAfterBuilder = new SearchAfterBuilder().setSortValues(values);
+        return this;
+    }
+
+    /**
+     * The sort values to start the page after, or <tt>null</tt> if not set.
+     */
+    public Object[] searchAfter() {
+        if (searchAfterBuilder == null) {
+            return null;
+        }
+        return searchAfterBuilder.getSortValues();
+    }
+
     /**
      * Add an aggregation to perform as part of the search.
      */
@@ -735,6 +779,8 @@ public final class SearchSourceBuilder extends ToXContentToBytes implements Writ
                     builder.explain = parser.booleanValue();
                 } else if (context.parseFieldMatcher().match(currentFieldName, TRACK_SCORES_FIELD)) {
                     builder.trackScores = parser.booleanValue();
+                } else if (context.parseFieldMatcher().match(currentFieldName, TRACK_TOTAL_HITS_FIELD)) {
+                    builder.trackTotalHits = parser.booleanValue();
                 } else if (context.parseFieldMatcher().match(currentFieldName, _SOURCE_FIELD)) {
                     builder.fetchSourceContext = FetchSourceContext.parse(parser, context);
                 } else if (context.parseFieldMatcher().match(currentFieldName, FIELDS_FIELD)) {
@@ -884,6 +930,8 @@ public final class SearchSourceBuilder extends ToXContentToBytes implements Writ
                         rescoreBuilders.add(xContentBuilder.bytes());
                     }
                     builder.rescoreBuilders = rescoreBuilders;
+                } else if (context.parseFieldMatcher().match(currentFieldName, SEARCH_AFTER)) {
+                    builder.searchAfterBuilder = SearchAfterBuilder.fromXContent(parser);
                 } else if (context.parseFieldMatcher().match(currentFieldName, STATS_FIELD)) {
                     List<String> stats = new ArrayList<>();
                     while ((token = parser.nextToken()) != XContentParser.Token.END_ARRAY) {
@@ -1003,6 +1051,14 @@ public final class SearchSourceBuilder extends ToXContentToBytes implements Writ
             builder.field(TRACK_SCORES_FIELD.getPreferredName(), true);
         }
 
+        if (trackTotalHits == false) {
+            builder.field(TRACK_TOTAL_HITS_FIELD.getPreferredName(), false);
+        }
+
+        if (searchAfterBuilder != null) {
+            searchAfterBuilder.toXContent(builder, params);
+        }
+
         if (indexBoost != null) {
             builder.startObject(INDICES_BOOST_FIELD.getPreferredName());
             assert !indexBoost.containsKey(null);
@@ -1234,10 +1290,14 @@ public final class SearchSourceBuilder extends ToXContentToBytes implements Writ
         builder.terminateAfter = in.readVInt();
         builder.timeoutInMillis = in.readLong();
         builder.trackScores = in.readBoolean();
+        builder.trackTotalHits = in.readBoolean();
         builder.version = in.readOptionalBoolean();
         if (in.readBoolean()) {
             builder.ext = in.readBytesReference();
         }
+        if (in.readBoolean()) {
+            builder.searchAfterBuilder = SearchAfterBuilder.PROTOTYPE.readFrom(in);
+        }
         if (in.getVersion().onOrAfter(Version.V_2_2_0)) {
             builder.profile = in.readBoolean();
         } else {
@@ -1350,12 +1410,18 @@ public final class SearchSourceBuilder extends ToXContentToBytes implements Writ
         out.writeVInt(terminateAfter);
         out.writeLong(timeoutInMillis);
         out.writeBoolean(trackScores);
+        out.writeBoolean(trackTotalHits);
         out.writeOptionalBoolean(version);
         boolean hasExt = ext != null;
         out.writeBoolean(hasExt);
         if (hasExt) {
             out.writeBytesReference(ext);
         }
+        boolean hasSearchAfter = searchAfterBuilder != null;
+        out.writeBoolean(hasSearchAfter);
+        if (hasSearchAfter) {
+            searchAfterBuilder.writeTo(out);
+        }
         if (out.getVersion().onOrAfter(Version.V_2_2_0)) {
             out.writeBoolean(profile);
         }
@@ -1365,7 +1431,8 @@ public final class SearchSourceBuilder extends ToXContentToBytes implements Writ
     public int hashCode() {
         return Objects.hash(aggregations, explain, fetchSourceContext, fieldDataFields, fieldNames, from,
                 highlightBuilder, indexBoost, innerHitsBuilder, minScore, postQueryBuilder, queryBuilder, rescoreBuilders, scriptFields,
-                size, sorts, stats, suggestBuilder, terminateAfter, timeoutInMillis, trackScores, version, profile);
+                size, sorts, stats, suggestBuilder, terminateAfter, timeoutInMillis, trackScores, trackTotalHits, searchAfterBuilder,
+                version, profile);
     }
 
     @Override
@@ -1398,6 +1465,8 @@ public final class SearchSourceBuilder extends ToXContentToBytes implements Writ
                 && Objects.equals(terminateAfter, other.terminateAfter)
                 && Objects.equals(timeoutInMillis, other.timeoutInMillis)
                 && Objects.equals(trackScores, other.trackScores)
+                && Objects.equals(trackTotalHits, other.trackTotalHits)
+                && Objects.equals(searchAfterBuilder, other.searchAfterBuilder)
                 && Objects.equals(version, other.version)
                 && Objects.equals(profile, other.profile);
     }
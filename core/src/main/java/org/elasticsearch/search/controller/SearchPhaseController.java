@@ -32,6 +32,7 @@ import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.TopFieldDocs;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.common.HasContextAndHeaders;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.collect.HppcMaps;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.inject.Inject;
@@ -40,9 +41,11 @@ import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.concurrent.AtomicArray;
 import org.elasticsearch.script.ScriptService;
+import org.elasticsearch.search.aggregations.Aggregations;
 import org.elasticsearch.search.aggregations.InternalAggregation;
 import org.elasticsearch.search.aggregations.InternalAggregation.ReduceContext;
 import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.metrics.tophits.DeferredTopHits;
 import org.elasticsearch.search.aggregations.pipeline.SiblingPipelineAggregator;
 import org.elasticsearch.search.dfs.AggregatedDfs;
 import org.elasticsearch.search.dfs.DfsSearchResult;
@@ -298,8 +301,47 @@ public class SearchPhaseController extends AbstractComponent {
         }
     }
 
+    /**
+     * Prepares the top_hits aggregations of the shards that deferred fetching their hits to be reduced.
+     * @return whether any of the shards deferred fetching the hits of top_hits aggregations
+     */
+    public boolean prepareDeferredTopHits(AtomicArray<? extends QuerySearchResultProvider> queryResultsArr) {
+        boolean deferred = false;
+        for (AtomicArray.Entry<? extends QuerySearchResultProvider> entry : queryResultsArr.asList()) {
+            Aggregations aggregations = entry.value.queryResult().aggregations();
+            if (DeferredTopHits.hasDeferredHits(aggregations)) {
+                DeferredTopHits.shardIndex(aggregations, entry.index);
+                deferred = true;
+            }
+        }
+        return deferred;
+    }
+
+    /**
+     * Fills the ids of the docs to fetch for the top_hits aggregations that survived the reduction, per shard and
+     * top_hits path.
+     */
+    public void fillTopHitsDocIdsToLoad(AtomicArray<Map<String, int[]>> topHitsDocIdsToLoad, InternalAggregations aggregations) {
+        DeferredTopHits.fillDocIdsToLoad(topHitsDocIdsToLoad, aggregations);
+    }
+
     public InternalSearchResponse merge(ScoreDoc[] sortedDocs, AtomicArray<? extends QuerySearchResultProvider> queryResultsArr,
             AtomicArray<? extends FetchSearchResultProvider> fetchResultsArr, HasContextAndHeaders headersContext) {
+        final long start = System.nanoTime();
+        final InternalAggregations aggregations = reduceAggregations(queryResultsArr, headersContext);
+        return merge(sortedDocs, queryResultsArr, fetchResultsArr, headersContext, aggregations, System.nanoTime() - start, null);
+    }
+
+    /**
+     * Merges the results of the shards like {@link #merge(ScoreDoc[], AtomicArray, AtomicArray, HasContextAndHeaders)}, with
+     * aggregations that were already reduced, see {@link #reduceAggregations(AtomicArray, HasContextAndHeaders)}. The hits of
+     * their top_hits aggregations that deferred fetching them are taken from the fetch results. The time it took to reduce
+     * the aggregations, in nanoseconds, is reported by profiled requests.
+     */
+    public InternalSearchResponse merge(ScoreDoc[] sortedDocs, AtomicArray<? extends QuerySearchResultProvider> queryResultsArr,
+            AtomicArray<? extends FetchSearchResultProvider> fetchResultsArr, HasContextAndHeaders headersContext,
+            InternalAggregations aggregations, long aggregationsReduceTime,
+            @Nullable AtomicArray<Map<String, int[]>> topHitsDocIdsToLoad) {
 
         List<? extends AtomicArray.Entry<? extends QuerySearchResultProvider>> queryResults = queryResultsArr.asList();
         List<? extends AtomicArray.Entry<? extends FetchSearchResultProvider>> fetchResults = fetchResultsArr.asList();
@@ -399,16 +441,8 @@ public class SearchPhaseController extends AbstractComponent {
             suggest = hasSuggestions ? new Suggest(Suggest.Fields.SUGGEST, Suggest.reduce(groupedSuggestions)) : null;
         }
 
-        // merge addAggregation
-        InternalAggregations aggregations = null;
-        if (!queryResults.isEmpty()) {
-            if (firstResult.aggregations() != null && firstResult.aggregations().asList() != null) {
-                List<InternalAggregations> aggregationsList = new ArrayList<>(queryResults.size());
-                for (AtomicArray.Entry<? extends QuerySearchResultProvider> entry : queryResults) {
-                    aggregationsList.add((InternalAggregations) entry.value.queryResult().aggregations());
-                }
-                aggregations = InternalAggregations.reduce(aggregationsList, new ReduceContext(bigArrays, scriptService, headersContext));
-            }
+        if (topHitsDocIdsToLoad != null) {
+            DeferredTopHits.fillHits(aggregations, topHitsDocIdsToLoad, fetchResultsArr);
         }
 
         //Collect profile results
@@ -417,9 +451,44 @@ public class SearchPhaseController extends AbstractComponent {
             Map<String, List<ProfileShardResult>> profileResults = new HashMap<>(queryResults.size());
             for (AtomicArray.Entry<? extends QuerySearchResultProvider> entry : queryResults) {
                 String key = entry.value.queryResult().shardTarget().toString();
-                profileResults.put(key, entry.value.queryResult().profileResults());
+                List<ProfileShardResult> shardProfile = entry.value.queryResult().profileResults();
+                FetchSearchResultProvider fetchResultProvider = fetchResultsArr.get(entry.index);
+                if (fetchResultProvider != null && fetchResultProvider.fetchResult().profileResult() != null
+                        && shardProfile.isEmpty() == false) {
+                    // the fetch phase is reported along with the first search of the shard
+                    shardProfile = new ArrayList<>(shardProfile);
+                    shardProfile.set(0, shardProfile.get(0).withFetchResult(fetchResultProvider.fetchResult().profileResult()));
+                }
+                profileResults.put(key, shardProfile);
             }
-            shardResults = new InternalProfileShardResults(profileResults);
+            shardResults = new InternalProfileShardResults(profileResults, aggregations == null ? -1 : aggregationsReduceTime);
+        }
+
+        InternalSearchHits searchHits = new InternalSearchHits(hits.toArray(new InternalSearchHit[hits.size()]), totalHits, maxScore);
+
+        return new InternalSearchResponse(searchHits, aggregations, suggest, shardResults, timedOut, terminatedEarly);
+    }
+
+    /**
+     * Reduces the aggregations of the shards, including the top level pipeline aggregations.
+     * @return the reduced aggregations, or <code>null</code> if the request has no aggregations
+     */
+    public InternalAggregations reduceAggregations(AtomicArray<? extends QuerySearchResultProvider> queryResultsArr,
+            HasContextAndHeaders headersContext) {
+        List<? extends AtomicArray.Entry<? extends QuerySearchResultProvider>> queryResults = queryResultsArr.asList();
+        if (queryResults.isEmpty()) {
+            return null;
+        }
+        QuerySearchResult firstResult = queryResults.get(0).value.queryResult();
+
+        // merge addAggregation
+        InternalAggregations aggregations = null;
+        if (firstResult.aggregations() != null && firstResult.aggregations().asList() != null) {
+            List<InternalAggregations> aggregationsList = new ArrayList<>(queryResults.size());
+            for (AtomicArray.Entry<? extends QuerySearchResultProvider> entry : queryResults) {
+                aggregationsList.add((InternalAggregations) entry.value.queryResult().aggregations());
+            }
+            aggregations = InternalAggregations.reduce(aggregationsList, new ReduceContext(bigArrays, scriptService, headersContext));
         }
 
         if (aggregations != null) {
@@ -437,9 +506,7 @@ public class SearchPhaseController extends AbstractComponent {
             }
         }
 
-        InternalSearchHits searchHits = new InternalSearchHits(hits.toArray(new InternalSearchHit[hits.size()]), totalHits, maxScore);
-
-        return new InternalSearchResponse(searchHits, aggregations, suggest, shardResults, timedOut, terminatedEarly);
+        return aggregations;
     }
 
 }
@@ -53,12 +53,14 @@ import org.elasticsearch.search.internal.InternalSearchHitField;
 import org.elasticsearch.search.internal.InternalSearchHits;
 import org.elasticsearch.search.internal.SearchContext;
 import org.elasticsearch.search.lookup.SourceLookup;
+import org.elasticsearch.search.profile.FetchProfileResult;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -96,6 +98,9 @@ public class FetchPhase implements SearchPhase {
 
     @Override
     public void execute(SearchContext context) {
+        final boolean profile = context.getProfilers() != null;
+        final long startTime = profile ? System.nanoTime() : 0L;
+        final long[] subPhaseTimings = profile ? new long[fetchSubPhases.length] : null;
         FieldsVisitor fieldsVisitor;
         Set<String> fieldNames = null;
         List<String> fieldNamePatterns = null;
@@ -163,20 +168,43 @@ public class FetchPhase implements SearchPhase {
 
             hits[index] = searchHit;
             hitContext.reset(searchHit, subReaderContext, subDocId, context.searcher());
-            for (FetchSubPhase fetchSubPhase : fetchSubPhases) {
+            for (int i = 0; i < fetchSubPhases.length; i++) {
+                FetchSubPhase fetchSubPhase = fetchSubPhases[i];
                 if (fetchSubPhase.hitExecutionNeeded(context)) {
+                    long subPhaseStart = profile ? System.nanoTime() : 0L;
                     fetchSubPhase.hitExecute(context, hitContext);
+                    if (profile) {
+                        subPhaseTimings[i] += Math.max(1, System.nanoTime() - subPhaseStart);
+                    }
                 }
             }
         }
 
-        for (FetchSubPhase fetchSubPhase : fetchSubPhases) {
+        for (int i = 0; i < fetchSubPhases.length; i++) {
+            FetchSubPhase fetchSubPhase = fetchSubPhases[i];
             if (fetchSubPhase.hitsExecutionNeeded(context)) {
+                long subPhaseStart = profile ? System.nanoTime() : 0L;
                 fetchSubPhase.hitsExecute(context, hits);
+                if (profile) {
+                    subPhaseTimings[i] += Math.max(1, System.nanoTime() - subPhaseStart);
+                }
             }
         }
 
         context.fetchResult().hits(new InternalSearchHits(hits, context.queryResult().topDocs().totalHits, context.queryResult().topDocs().getMaxScore()));
+        if (profile) {
+            context.fetchResult().profileResult(buildProfileResult(System.nanoTime() - startTime, subPhaseTimings));
+        }
+    }
+
+    private FetchProfileResult buildProfileResult(long time, long[] subPhaseTimings) {
+        Map<String, Long> breakdown = new LinkedHashMap<>();
+        for (int i = 0; i < fetchSubPhases.length; i++) {
+            if (subPhaseTimings[i] > 0) {
+                breakdown.put(fetchSubPhases[i].getClass().getSimpleName(), subPhaseTimings[i]);
+            }
+        }
+        return new FetchProfileResult(time, breakdown);
     }
 
     private int findRootDocumentIfNested(SearchContext context, LeafReaderContext subReaderContext, int subDocId) throws IOException {
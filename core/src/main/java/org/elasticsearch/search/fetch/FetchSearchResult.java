@@ -23,9 +23,13 @@ import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.search.SearchShardTarget;
 import org.elasticsearch.search.internal.InternalSearchHits;
+import org.elasticsearch.search.profile.FetchProfileResult;
 import org.elasticsearch.transport.TransportResponse;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 
 import static org.elasticsearch.search.internal.InternalSearchHits.StreamContext;
 
@@ -37,6 +41,8 @@ public class FetchSearchResult extends TransportResponse implements FetchSearchR
     private long id;
     private SearchShardTarget shardTarget;
     private InternalSearchHits hits;
+    private Map<String, InternalSearchHits> topHits = Collections.emptyMap();
+    private FetchProfileResult profileResult;
     // client side counter
     private transient int counter;
 
@@ -77,6 +83,38 @@ public class FetchSearchResult extends TransportResponse implements FetchSearchR
         return hits;
     }
 
+    /**
+     * Sets the hits that were fetched for a top_hits aggregation that deferred fetching them, in the order of the
+     * requested doc ids.
+     */
+    public void topHits(String path, InternalSearchHits hits) {
+        if (topHits.isEmpty()) {
+            topHits = new HashMap<>();
+        }
+        topHits.put(path, hits);
+    }
+
+    /**
+     * Returns the hits that were fetched for top_hits aggregations, by path.
+     */
+    public Map<String, InternalSearchHits> topHits() {
+        return topHits;
+    }
+
+    /**
+     * Sets the profile of the fetch phase, only set if the request is profiled.
+     */
+    public void profileResult(FetchProfileResult profileResult) {
+        this.profileResult = profileResult;
+    }
+
+    /**
+     * Returns the profile of the fetch phase, or {@code null} if the request is not profiled.
+     */
+    public FetchProfileResult profileResult() {
+        return profileResult;
+    }
+
     public FetchSearchResult initCounter() {
         counter = 0;
         return this;
@@ -97,6 +135,17 @@ public class FetchSearchResult extends TransportResponse implements FetchSearchR
         super.readFrom(in);
         id = in.readLong();
         hits = InternalSearchHits.readSearchHits(in, InternalSearchHits.streamContext().streamShardTarget(StreamContext.ShardTargetType.NO_STREAM));
+        int numTopHits = in.readVInt();
+        if (numTopHits > 0) {
+            topHits = new HashMap<>(numTopHits);
+            for (int i = 0; i < numTopHits; i++) {
+                topHits.put(in.readString(), InternalSearchHits.readSearchHits(in,
+                        InternalSearchHits.streamContext().streamShardTarget(StreamContext.ShardTargetType.NO_STREAM)));
+            }
+        }
+        if (in.readBoolean()) {
+            profileResult = new FetchProfileResult(in);
+        }
     }
 
     @Override
@@ -104,5 +153,16 @@ public class FetchSearchResult extends TransportResponse implements FetchSearchR
         super.writeTo(out);
         out.writeLong(id);
         hits.writeTo(out, InternalSearchHits.streamContext().streamShardTarget(StreamContext.ShardTargetType.NO_STREAM));
+        out.writeVInt(topHits.size());
+        for (Map.Entry<String, InternalSearchHits> entry : topHits.entrySet()) {
+            out.writeString(entry.getKey());
+            entry.getValue().writeTo(out, InternalSearchHits.streamContext().streamShardTarget(StreamContext.ShardTargetType.NO_STREAM));
+        }
+        if (profileResult == null) {
+            out.writeBoolean(false);
+        } else {
+            out.writeBoolean(true);
+            profileResult.writeTo(out);
+        }
     }
 }
@@ -23,18 +23,24 @@ import com.carrotsearch.hppc.IntArrayList;
 import org.apache.lucene.search.FieldDoc;
 import org.apache.lucene.search.ScoreDoc;
 import org.elasticsearch.action.search.SearchScrollRequest;
+import org.elasticsearch.action.search.SearchTask;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.tasks.ChildTaskRequest;
+import org.elasticsearch.tasks.Task;
 import org.elasticsearch.transport.TransportRequest;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Shard level fetch base request. Holds all the info needed to execute a fetch.
  * Used with search scroll as the original request doesn't hold indices.
  */
-public class ShardFetchRequest extends TransportRequest {
+public class ShardFetchRequest extends ChildTaskRequest {
 
     private long id;
 
@@ -44,6 +50,8 @@ public class ShardFetchRequest extends TransportRequest {
 
     private ScoreDoc lastEmittedDoc;
 
+    private Map<String, int[]> topHitsDocIds = Collections.emptyMap();
+
     public ShardFetchRequest() {
     }
 
@@ -79,6 +87,27 @@ public class ShardFetchRequest extends TransportRequest {
         return lastEmittedDoc;
     }
 
+    /**
+     * Sets the ids of the docs to fetch for top_hits aggregations that deferred fetching their hits, by path.
+     */
+    public void topHitsDocIds(Map<String, int[]> topHitsDocIds) {
+        this.topHitsDocIds = topHitsDocIds;
+    }
+
+    public Map<String, int[]> topHitsDocIds() {
+        return topHitsDocIds;
+    }
+
+    @Override
+    public Task createTask(long id, String type, String action) {
+        return new SearchTask(id, type, action, this::getDescription, getParentTask());
+    }
+
+    @Override
+    public String getDescription() {
+        return "id[" + id + "], size[" + size + "]";
+    }
+
     @Override
     public void readFrom(StreamInput in) throws IOException {
         super.readFrom(in);
@@ -96,6 +125,18 @@ public class ShardFetchRequest extends TransportRequest {
         } else if (flag != 0) {
             throw new IOException("Unknown flag: " + flag);
         }
+        int numTopHits = in.readVInt();
+        if (numTopHits > 0) {
+            topHitsDocIds = new HashMap<>(numTopHits);
+            for (int i = 0; i < numTopHits; i++) {
+                String path = in.readString();
+                int[] docIds = new int[in.readVInt()];
+                for (int j = 0; j < docIds.length; j++) {
+                    docIds[j] = in.readVInt();
+                }
+                topHitsDocIds.put(path, docIds);
+            }
+        }
     }
 
     @Override
@@ -115,5 +156,13 @@ public class ShardFetchRequest extends TransportRequest {
             out.writeByte((byte) 2);
             Lucene.writeScoreDoc(out, lastEmittedDoc);
         }
+        out.writeVInt(topHitsDocIds.size());
+        for (Map.Entry<String, int[]> entry : topHitsDocIds.entrySet()) {
+            out.writeString(entry.getKey());
+            out.writeVInt(entry.getValue().length);
+            for (int docId : entry.getValue()) {
+                out.writeVInt(docId);
+            }
+        }
     }
 }
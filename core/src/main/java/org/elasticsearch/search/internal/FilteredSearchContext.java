@@ -20,15 +20,18 @@
 package org.elasticsearch.search.internal;
 
 import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.FieldDoc;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.Sort;
 import org.apache.lucene.util.Counter;
+import org.elasticsearch.action.search.SearchTask;
 import org.elasticsearch.action.search.SearchType;
 import org.elasticsearch.cache.recycler.PageCacheRecycler;
 import org.elasticsearch.common.ParseFieldMatcher;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.index.analysis.AnalysisService;
 import org.elasticsearch.index.cache.bitset.BitsetFilterCache;
+import org.elasticsearch.index.cache.docfreq.DocFreqCache;
 import org.elasticsearch.index.fielddata.IndexFieldDataService;
 import org.elasticsearch.index.mapper.MappedFieldType;
 import org.elasticsearch.index.mapper.MapperService;
@@ -39,6 +42,7 @@ import org.elasticsearch.index.similarity.SimilarityService;
 import org.elasticsearch.script.ScriptService;
 import org.elasticsearch.search.SearchShardTarget;
 import org.elasticsearch.search.aggregations.SearchContextAggregations;
+import org.elasticsearch.search.aggregations.metrics.tophits.TopHitsAggregator;
 import org.elasticsearch.search.dfs.DfsSearchResult;
 import org.elasticsearch.search.fetch.FetchSearchResult;
 import org.elasticsearch.search.fetch.FetchSubPhase;
@@ -166,6 +170,26 @@ public abstract class FilteredSearchContext extends SearchContext {
         return in.aggregations(aggregations);
     }
 
+    @Override
+    public void deferTopHitsFetch() {
+        in.deferTopHitsFetch();
+    }
+
+    @Override
+    public boolean topHitsFetchDeferred() {
+        return in.topHitsFetchDeferred();
+    }
+
+    @Override
+    public void registerDeferredTopHits(TopHitsAggregator.Factory factory) {
+        in.registerDeferredTopHits(factory);
+    }
+
+    @Override
+    public TopHitsAggregator.Factory deferredTopHits(String path) {
+        return in.deferredTopHits(path);
+    }
+
     @Override
     public SearchContextHighlight highlight() {
         return in.highlight();
@@ -281,6 +305,11 @@ public abstract class FilteredSearchContext extends SearchContext {
         return in.bitsetFilterCache();
     }
 
+    @Override
+    public DocFreqCache docFreqCache() {
+        return in.docFreqCache();
+    }
+
     @Override
     public IndexFieldDataService fieldData() {
         return in.fieldData();
@@ -336,6 +365,26 @@ public abstract class FilteredSearchContext extends SearchContext {
         return in.trackScores();
     }
 
+    @Override
+    public SearchContext trackTotalHits(boolean trackTotalHits) {
+        return in.trackTotalHits(trackTotalHits);
+    }
+
+    @Override
+    public boolean trackTotalHits() {
+        return in.trackTotalHits();
+    }
+
+    @Override
+    public SearchContext searchAfter(FieldDoc searchAfter) {
+        return in.searchAfter(searchAfter);
+    }
+
+    @Override
+    public FieldDoc searchAfter() {
+        return in.searchAfter();
+    }
+
     @Override
     public SearchContext parsedPostFilter(ParsedQuery postFilter) {
         return in.parsedPostFilter(postFilter);
@@ -516,6 +565,16 @@ public abstract class FilteredSearchContext extends SearchContext {
         return in.getProfilers();
     }
 
+    @Override
+    public void setTask(SearchTask task) {
+        in.setTask(task);
+    }
+
+    @Override
+    public SearchTask getTask() {
+        return in.getTask();
+    }
+
     @Override
     public Map<Class<?>, Collector> queryCollectors() { return in.queryCollectors();}
 
@@ -106,6 +106,17 @@ public class InternalSearchResponse implements Streamable, ToXContent {
         return profileResults.getShardResults();
     }
 
+    /**
+     * Returns the time it took to reduce the aggregations of the shards, in nanoseconds, or <code>-1</code> if
+     * profiling was not enabled or the request has no aggregations.
+     */
+    public long profileAggregationsReduceTime() {
+        if (profileResults == null) {
+            return -1;
+        }
+        return profileResults.getAggregationsReduceTime();
+    }
+
     @Override
     public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
         hits.toXContent(builder, params);
@@ -0,0 +1,100 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.internal;
+
+import org.elasticsearch.action.IndicesRequest;
+import org.elasticsearch.action.support.IndicesOptions;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.transport.TransportRequest;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The shard level requests of a search that are sent from the coordinating node to a single node holding several
+ * of the shards to search. The shard requests only differ in the shard they target, so the search source they share
+ * is sent once for all of them.
+ */
+public class NodeSearchTransportRequest extends TransportRequest implements IndicesRequest {
+
+    private List<ShardSearchTransportRequest> shardRequests;
+
+    public NodeSearchTransportRequest() {
+    }
+
+    public NodeSearchTransportRequest(List<ShardSearchTransportRequest> shardRequests) {
+        super(shardRequests.get(0));
+        assert shardRequests.stream().allMatch(request -> request.source() == shardRequests.get(0).source())
+                : "shard requests must share their source";
+        this.shardRequests = Collections.unmodifiableList(shardRequests);
+    }
+
+    /**
+     * The shard level requests, in the order they were added.
+     */
+    public List<ShardSearchTransportRequest> shardRequests() {
+        return shardRequests;
+    }
+
+    @Override
+    public String[] indices() {
+        return shardRequests.get(0).indices();
+    }
+
+    @Override
+    public IndicesOptions indicesOptions() {
+        return shardRequests.get(0).indicesOptions();
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        super.readFrom(in);
+        final SearchSourceBuilder source = in.readBoolean() ? SearchSourceBuilder.readSearchSourceFrom(in) : null;
+        final int size = in.readVInt();
+        final List<ShardSearchTransportRequest> shardRequests = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            ShardSearchTransportRequest shardRequest = new ShardSearchTransportRequest();
+            shardRequest.readFrom(in);
+            // all shard requests share the same instance, which is only read once
+            shardRequest.source(source);
+            shardRequests.add(shardRequest);
+        }
+        this.shardRequests = Collections.unmodifiableList(shardRequests);
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        final SearchSourceBuilder source = shardRequests.get(0).source();
+        if (source == null) {
+            out.writeBoolean(false);
+        } else {
+            out.writeBoolean(true);
+            source.writeTo(out);
+        }
+        out.writeVInt(shardRequests.size());
+        for (ShardSearchTransportRequest shardRequest : shardRequests) {
+            shardRequest.writeTo(out, false);
+        }
+    }
+}
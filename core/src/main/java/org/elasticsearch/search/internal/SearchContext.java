@@ -20,9 +20,11 @@ package org.elasticsearch.search.internal;
 
 
 import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.FieldDoc;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.Sort;
 import org.apache.lucene.util.Counter;
+import org.elasticsearch.action.search.SearchTask;
 import org.elasticsearch.action.search.SearchType;
 import org.elasticsearch.cache.recycler.PageCacheRecycler;
 import org.elasticsearch.common.DelegatingHasContextAndHeaders;
@@ -35,6 +37,7 @@ import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.iterable.Iterables;
 import org.elasticsearch.index.analysis.AnalysisService;
 import org.elasticsearch.index.cache.bitset.BitsetFilterCache;
+import org.elasticsearch.index.cache.docfreq.DocFreqCache;
 import org.elasticsearch.index.fielddata.IndexFieldDataService;
 import org.elasticsearch.index.mapper.MappedFieldType;
 import org.elasticsearch.index.mapper.MapperService;
@@ -46,6 +49,7 @@ import org.elasticsearch.index.similarity.SimilarityService;
 import org.elasticsearch.script.ScriptService;
 import org.elasticsearch.search.SearchShardTarget;
 import org.elasticsearch.search.aggregations.SearchContextAggregations;
+import org.elasticsearch.search.aggregations.metrics.tophits.TopHitsAggregator;
 import org.elasticsearch.search.dfs.DfsSearchResult;
 import org.elasticsearch.search.fetch.FetchSearchResult;
 import org.elasticsearch.search.fetch.FetchSubPhase;
@@ -112,6 +116,8 @@ public abstract class SearchContext extends DelegatingHasContextAndHeaders imple
 
     private boolean nowInMillisUsed;
 
+    private List<TopHitsAggregator.Factory> deferredTopHits = null;
+
     protected abstract void doClose();
 
     /**
@@ -162,6 +168,41 @@ public abstract class SearchContext extends DelegatingHasContextAndHeaders imple
 
     public abstract SearchContextAggregations aggregations();
 
+    /**
+     * Lets top_hits aggregations only return the ids of their top docs from the query phase. Their hits are fetched
+     * during the fetch phase, once the coordinating node knows which of them survived the reduction.
+     */
+    public void deferTopHitsFetch() {
+        deferredTopHits = new ArrayList<>();
+    }
+
+    public boolean topHitsFetchDeferred() {
+        return deferredTopHits != null;
+    }
+
+    /**
+     * Registers a top_hits aggregation whose hits may have to be fetched during the fetch phase.
+     */
+    public void registerDeferredTopHits(TopHitsAggregator.Factory factory) {
+        if (deferredTopHits != null) {
+            deferredTopHits.add(factory);
+        }
+    }
+
+    /**
+     * Returns the top_hits aggregation at the given path, or <code>null</code> if there is none.
+     */
+    public TopHitsAggregator.Factory deferredTopHits(String path) {
+        if (deferredTopHits != null) {
+            for (TopHitsAggregator.Factory factory : deferredTopHits) {
+                if (factory.path().equals(path)) {
+                    return factory;
+                }
+            }
+        }
+        return null;
+    }
+
     public abstract SearchContext aggregations(SearchContextAggregations aggregations);
 
     public abstract  <SubPhaseContext extends FetchSubPhaseContext> SubPhaseContext getFetchSubPhaseContext(FetchSubPhase.ContextFactory<SubPhaseContext> contextFactory);
@@ -218,6 +259,8 @@ public abstract class SearchContext extends DelegatingHasContextAndHeaders imple
 
     public abstract BitsetFilterCache bitsetFilterCache();
 
+    public abstract DocFreqCache docFreqCache();
+
     public abstract IndexFieldDataService fieldData();
 
     public abstract long timeoutInMillis();
@@ -240,6 +283,21 @@ public abstract class SearchContext extends DelegatingHasContextAndHeaders imple
 
     public abstract boolean trackScores();
 
+    public abstract SearchContext trackTotalHits(boolean trackTotalHits);
+
+    /**
+     * Indicates if the total number of hits must be computed accurately or if collection may terminate early
+     * once the top hits are known.
+     */
+    public abstract boolean trackTotalHits();
+
+    public abstract SearchContext searchAfter(FieldDoc searchAfter);
+
+    /**
+     * The sort values after which hits are collected, or <code>null</code> if hits are collected from the first one.
+     */
+    public abstract FieldDoc searchAfter();
+
     public abstract SearchContext parsedPostFilter(ParsedQuery postFilter);
 
     public abstract ParsedQuery parsedPostFilter();
@@ -311,6 +369,26 @@ public abstract class SearchContext extends DelegatingHasContextAndHeaders imple
      */
     public abstract Profilers getProfilers();
 
+    /**
+     * Sets the task that executes the current phase of this search, or {@code null} once the phase is done.
+     */
+    public abstract void setTask(SearchTask task);
+
+    /**
+     * Returns the task that executes the current phase of this search, or {@code null} if the phase is not executed
+     * for a task.
+     */
+    public abstract SearchTask getTask();
+
+    /**
+     * Returns {@code true} if the task executing the current phase has been cancelled, in which case the phase
+     * should stop as soon as possible.
+     */
+    public boolean isCancelled() {
+        SearchTask task = getTask();
+        return task != null && task.isCancelled();
+    }
+
     /**
      * Schedule the release of a resource. The time when {@link Releasable#close()} will be called on this object
      * is function of the provided {@link Lifetime}.
@@ -197,6 +197,14 @@ public class ShardSearchLocalRequest extends ContextAndHeaderHolder implements S
     }
 
     protected void innerWriteTo(StreamOutput out, boolean asKey) throws IOException {
+        innerWriteTo(out, asKey, true);
+    }
+
+    /**
+     * Writes this request, leaving the source out if <code>withSource</code> is <code>false</code> so that it can
+     * be written once for several shard requests.
+     */
+    void innerWriteTo(StreamOutput out, boolean asKey, boolean withSource) throws IOException {
         out.writeString(index);
         out.writeVInt(shardId);
         out.writeByte(searchType.id());
@@ -209,7 +217,7 @@ public class ShardSearchLocalRequest extends ContextAndHeaderHolder implements S
             out.writeBoolean(true);
             scroll.writeTo(out);
         }
-        if (source == null) {
+        if (source == null || withSource == false) {
             out.writeBoolean(false);
         } else {
             out.writeBoolean(true);
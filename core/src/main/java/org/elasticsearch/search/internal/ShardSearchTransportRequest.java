@@ -22,6 +22,7 @@ package org.elasticsearch.search.internal;
 import org.elasticsearch.action.IndicesRequest;
 import org.elasticsearch.action.OriginalIndices;
 import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchTask;
 import org.elasticsearch.action.search.SearchType;
 import org.elasticsearch.action.support.IndicesOptions;
 import org.elasticsearch.cluster.routing.ShardRouting;
@@ -31,7 +32,8 @@ import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.script.Template;
 import org.elasticsearch.search.Scroll;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
-import org.elasticsearch.transport.TransportRequest;
+import org.elasticsearch.tasks.ChildTaskRequest;
+import org.elasticsearch.tasks.Task;
 
 import java.io.IOException;
 
@@ -40,7 +42,7 @@ import java.io.IOException;
  * the shards where the query needs to be executed. Holds the same info as {@link org.elasticsearch.search.internal.ShardSearchLocalRequest}
  * but gets sent over the transport and holds also the indices coming from the original request that generated it, plus its headers and context.
  */
-public class ShardSearchTransportRequest extends TransportRequest implements ShardSearchRequest, IndicesRequest {
+public class ShardSearchTransportRequest extends ChildTaskRequest implements ShardSearchRequest, IndicesRequest {
 
     private OriginalIndices originalIndices;
 
@@ -131,6 +133,16 @@ public class ShardSearchTransportRequest extends TransportRequest implements Sha
         return shardSearchLocalRequest.scroll();
     }
 
+    @Override
+    public Task createTask(long id, String type, String action) {
+        return new SearchTask(id, type, action, this::getDescription, getParentTask());
+    }
+
+    @Override
+    public String getDescription() {
+        return "shard [" + index() + "][" + shardId() + "]";
+    }
+
     @Override
     public void readFrom(StreamInput in) throws IOException {
         super.readFrom(in);
@@ -141,8 +153,16 @@ public class ShardSearchTransportRequest extends TransportRequest implements Sha
 
     @Override
     public void writeTo(StreamOutput out) throws IOException {
+        writeTo(out, true);
+    }
+
+    /**
+     * Writes this request, leaving the source out if <code>withSource</code> is <code>false</code>. The source then
+     * needs to be set again once the request is read, see {@link NodeSearchTransportRequest}.
+     */
+    void writeTo(StreamOutput out, boolean withSource) throws IOException {
         super.writeTo(out);
-        shardSearchLocalRequest.innerWriteTo(out, false);
+        shardSearchLocalRequest.innerWriteTo(out, false, withSource);
         OriginalIndices.writeOriginalIndices(originalIndices, out);
     }
 
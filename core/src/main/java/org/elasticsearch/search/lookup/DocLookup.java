@@ -21,6 +21,7 @@ package org.elasticsearch.search.lookup;
 import org.apache.lucene.index.LeafReaderContext;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.index.fielddata.IndexFieldDataService;
+import org.elasticsearch.index.mapper.MappedFieldType;
 import org.elasticsearch.index.mapper.MapperService;
 
 /**
@@ -51,4 +52,18 @@ public class DocLookup {
     public LeafDocLookup getLeafDocLookup(LeafReaderContext context) {
         return new LeafDocLookup(mapperService, fieldDataService, types, context);
     }
+
+    /**
+     * Resolves access to the doc values of a field, for script engines that bind field references once
+     * rather than going through {@link LeafDocLookup} for every document. Returns <code>null</code> if the
+     * field is not mapped.
+     */
+    @Nullable
+    public DocValuesAccessor accessor(String field) {
+        final MappedFieldType fieldType = mapperService.fullName(field);
+        if (fieldType == null) {
+            return null;
+        }
+        return new DocValuesAccessor(fieldType, fieldDataService.getForField(fieldType));
+    }
 }
@@ -0,0 +1,81 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.lookup;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.elasticsearch.index.fielddata.AtomicFieldData;
+import org.elasticsearch.index.fielddata.IndexFieldData;
+import org.elasticsearch.index.fielddata.IndexNumericFieldData;
+import org.elasticsearch.index.mapper.MappedFieldType;
+
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+
+/**
+ * Access to the doc values of a single field that script engines resolve once, when a script is compiled
+ * or bound to a search, instead of looking the field up by name for every document through {@link LeafDocLookup}.
+ * Per-segment values are read through {@link #getLeaf(LeafReaderContext)}.
+ */
+public final class DocValuesAccessor {
+
+    private final MappedFieldType fieldType;
+    private final IndexFieldData<?> fieldData;
+
+    DocValuesAccessor(MappedFieldType fieldType, IndexFieldData<?> fieldData) {
+        this.fieldType = fieldType;
+        this.fieldData = fieldData;
+    }
+
+    /**
+     * The full name of the field.
+     */
+    public String name() {
+        return fieldType.name();
+    }
+
+    /**
+     * Whether the values of the field can be read as numbers, see {@link LeafDocValuesAccessor#longValues()} and
+     * {@link LeafDocValuesAccessor#doubleValues()}.
+     */
+    public boolean isNumeric() {
+        return fieldData instanceof IndexNumericFieldData;
+    }
+
+    /**
+     * Whether the field holds floating point numbers, which should be read as doubles.
+     */
+    public boolean isFloatingPoint() {
+        return isNumeric() && ((IndexNumericFieldData) fieldData).getNumericType().isFloatingPoint();
+    }
+
+    /**
+     * Loads the values of the field for the given segment.
+     */
+    public LeafDocValuesAccessor getLeaf(final LeafReaderContext context) {
+        // load fielddata on behalf of the script: otherwise it would need additional permissions
+        // to deal with pagedbytes/ramusagestimator/etc
+        AtomicFieldData data = AccessController.doPrivileged(new PrivilegedAction<AtomicFieldData>() {
+            @Override
+            public AtomicFieldData run() {
+                return fieldData.load(context);
+            }
+        });
+        return new LeafDocValuesAccessor(data, isFloatingPoint());
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.lookup;
+
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.elasticsearch.index.fielddata.AtomicFieldData;
+import org.elasticsearch.index.fielddata.AtomicNumericFieldData;
+import org.elasticsearch.index.fielddata.ScriptDocValues;
+import org.elasticsearch.index.fielddata.SortedNumericDoubleValues;
+
+/**
+ * The values of a field on a single segment, see {@link DocValuesAccessor}. The typed getters read the first
+ * value of a document without boxing it, they follow the conventions of {@link ScriptDocValues}: documents
+ * without a value read as <code>0</code>. Like doc values, this class is not thread-safe.
+ */
+public final class LeafDocValuesAccessor {
+
+    private final AtomicFieldData data;
+    private final boolean floatingPoint;
+
+    private SortedNumericDocValues longValues;
+    private SortedNumericDoubleValues doubleValues;
+    private ScriptDocValues<?> scriptValues;
+
+    LeafDocValuesAccessor(AtomicFieldData data, boolean floatingPoint) {
+        this.data = data;
+        this.floatingPoint = floatingPoint;
+    }
+
+    /**
+     * The values of a numeric field, as longs.
+     */
+    public SortedNumericDocValues longValues() {
+        if (longValues == null) {
+            longValues = numericData().getLongValues();
+        }
+        return longValues;
+    }
+
+    /**
+     * The values of a numeric field, as doubles.
+     */
+    public SortedNumericDoubleValues doubleValues() {
+        if (doubleValues == null) {
+            doubleValues = numericData().getDoubleValues();
+        }
+        return doubleValues;
+    }
+
+    /**
+     * The values of the field as exposed to scripts through <code>doc['field']</code>.
+     */
+    public ScriptDocValues<?> scriptValues() {
+        if (scriptValues == null) {
+            scriptValues = data.getScriptValues();
+        }
+        return scriptValues;
+    }
+
+    /**
+     * The first value of the document as a long, or <code>0</code> if it has no value.
+     */
+    public long longValue(int doc) {
+        final SortedNumericDocValues values = longValues();
+        values.setDocument(doc);
+        return values.count() == 0 ? 0L : values.valueAt(0);
+    }
+
+    /**
+     * The first value of the document as a double, or <code>0</code> if it has no value.
+     */
+    public double doubleValue(int doc) {
+        final SortedNumericDoubleValues values = doubleValues();
+        values.setDocument(doc);
+        return values.count() == 0 ? 0d : values.valueAt(0);
+    }
+
+    /**
+     * Whether the values of the field can be read through {@link #longValues()} and {@link #doubleValues()}.
+     */
+    public boolean isNumeric() {
+        return data instanceof AtomicNumericFieldData;
+    }
+
+    /**
+     * Whether the field holds floating point numbers, which scripts see as doubles rather than longs.
+     */
+    public boolean isFloatingPoint() {
+        return floatingPoint;
+    }
+
+    /**
+     * Returns the first value of script doc values that have been positioned on a document, with the same
+     * defaults as the <code>getValue</code> methods of the {@link ScriptDocValues} implementations.
+     */
+    public static Object firstValue(ScriptDocValues<?> values) {
+        if (values instanceof ScriptDocValues.Longs) {
+            return ((ScriptDocValues.Longs) values).getValue();
+        } else if (values instanceof ScriptDocValues.Doubles) {
+            return ((ScriptDocValues.Doubles) values).getValue();
+        } else if (values instanceof ScriptDocValues.Strings) {
+            return ((ScriptDocValues.Strings) values).getValue();
+        } else if (values instanceof ScriptDocValues.GeoPoints) {
+            return ((ScriptDocValues.GeoPoints) values).getValue();
+        }
+        return values.isEmpty() ? null : values.get(0);
+    }
+
+    private AtomicNumericFieldData numericData() {
+        if ((data instanceof AtomicNumericFieldData) == false) {
+            throw new IllegalStateException("Field values are not numeric");
+        }
+        return (AtomicNumericFieldData) data;
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.profile;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A record of timings for the various operations that may happen while an aggregator
+ * runs on a shard. Timings are inclusive of the time spent in sub-aggregators.
+ */
+public final class AggregationProfileBreakdown {
+
+    /** Enumeration of all supported timing types. */
+    public enum TimingType {
+        INITIALIZE,
+        COLLECT,
+        BUILD_AGGREGATION;
+
+        @Override
+        public String toString() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /**
+     * The accumulated timings for this aggregator
+     */
+    private final long[] timings;
+
+    /** Sole constructor. */
+    public AggregationProfileBreakdown() {
+        timings = new long[TimingType.values().length];
+    }
+
+    /**
+     * Add the given elapsed time to the timing of the given type. Unlike {@link ProfileBreakdown}
+     * this does not keep a start time so that several aggregator instances, which may be created
+     * for the same aggregation under multi-bucket parents, can share one breakdown.
+     *
+     * @param timing    The timing context being profiled
+     * @param time      The elapsed time in nanoseconds
+     */
+    public void addTime(TimingType timing, long time) {
+        timings[timing.ordinal()] += Math.max(1, time);
+    }
+
+    /** Return the sum of all timings of this breakdown. */
+    public long getTotalTime() {
+        long total = 0;
+        for (long timing : timings) {
+            total += timing;
+        }
+        return total;
+    }
+
+    /** Convert this record to a map from {@link TimingType} to times. */
+    public Map<String, Long> toTimingMap() {
+        Map<String, Long> map = new HashMap<>();
+        for (TimingType timingType : TimingType.values()) {
+            map.put(timingType.toString(), timings[timingType.ordinal()]);
+        }
+        return Collections.unmodifiableMap(map);
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.profile;
+
+import org.elasticsearch.common.ParseField;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The profile of a single aggregator on a shard, corresponding to a single node in the
+ * aggregation tree. Sub-aggregations are reported as children.
+ */
+public final class AggregationProfileResult implements Writeable<AggregationProfileResult>, ToXContent {
+
+    private static final ParseField TYPE = new ParseField("type");
+    private static final ParseField DESCRIPTION = new ParseField("description");
+    private static final ParseField NODE_TIME = new ParseField("time");
+    private static final ParseField CHILDREN = new ParseField("children");
+    private static final ParseField BREAKDOWN = new ParseField("breakdown");
+
+    private final String type;
+    private final String description;
+    private final Map<String, Long> timings;
+    private final long nodeTime;
+    private final List<AggregationProfileResult> children;
+
+    public AggregationProfileResult(String type, String description, Map<String, Long> timings,
+                                    List<AggregationProfileResult> children, long nodeTime) {
+        this.type = type;
+        this.description = description;
+        this.timings = timings;
+        this.children = children;
+        this.nodeTime = nodeTime;
+    }
+
+    public AggregationProfileResult(StreamInput in) throws IOException {
+        this.type = in.readString();
+        this.description = in.readString();
+        this.nodeTime = in.readLong();
+
+        int timingsSize = in.readVInt();
+        this.timings = new HashMap<>(timingsSize);
+        for (int i = 0; i < timingsSize; ++i) {
+            timings.put(in.readString(), in.readLong());
+        }
+
+        int size = in.readVInt();
+        this.children = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            children.add(new AggregationProfileResult(in));
+        }
+    }
+
+    /**
+     * Retrieve the type of the aggregation (e.g. "terms")
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * Retrieve the name of the aggregation
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * Returns the timing breakdown for this aggregator
+     */
+    public Map<String, Long> getTimeBreakdown() {
+        return Collections.unmodifiableMap(timings);
+    }
+
+    /**
+     * Returns the total time spent in this aggregator, inclusive of its sub-aggregators.
+     *
+     * @return  elapsed time in nanoseconds
+     */
+    public long getTime() {
+        return nodeTime;
+    }
+
+    /**
+     * Returns the profiles of the sub-aggregators
+     */
+    public List<AggregationProfileResult> getProfiledChildren() {
+        return Collections.unmodifiableList(children);
+    }
+
+    @Override
+    public AggregationProfileResult readFrom(StreamInput in) throws IOException {
+        return new AggregationProfileResult(in);
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeString(type);
+        out.writeString(description);
+        out.writeLong(nodeTime);
+        out.writeVInt(timings.size());
+        for (Map.Entry<String, Long> entry : timings.entrySet()) {
+            out.writeString(entry.getKey());
+            out.writeLong(entry.getValue());
+        }
+        out.writeVInt(children.size());
+        for (AggregationProfileResult child : children) {
+            child.writeTo(out);
+        }
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject()
+                .field(TYPE.getPreferredName(), type)
+                .field(DESCRIPTION.getPreferredName(), description)
+                .field(NODE_TIME.getPreferredName(), String.format(Locale.US, "%.10gms", (double)(getTime() / 1000000.0)))
+                .field(BREAKDOWN.getPreferredName(), timings);
+        if (!children.isEmpty()) {
+            builder.startArray(CHILDREN.getPreferredName());
+            for (AggregationProfileResult child : children) {
+                child.toXContent(builder, params);
+            }
+            builder.endArray();
+        }
+        return builder.endObject();
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.profile;
+
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.search.aggregations.Aggregator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps track of the {@link AggregationProfileBreakdown}s of all aggregators of a shard request. Aggregators
+ * are identified by the path of aggregation names leading to them so that aggregators which are created once
+ * per parent bucket report their timings under a single node of the tree.
+ */
+public final class AggregationProfiler {
+
+    private final Map<List<String>, Node> nodes = new LinkedHashMap<>();
+
+    /**
+     * Get the {@link AggregationProfileBreakdown} for the given aggregator, creating it if necessary.
+     *
+     * @param aggregator    The aggregator to profile
+     * @param type          The type of the aggregation, used for reporting only
+     */
+    public AggregationProfileBreakdown getBreakdown(Aggregator aggregator, String type) {
+        return getBreakdown(aggregator.parent(), aggregator.name(), type);
+    }
+
+    /**
+     * Get the {@link AggregationProfileBreakdown} for an aggregator that is not created yet, creating it if necessary.
+     *
+     * @param parent        The parent of the aggregator, or <code>null</code> for top-level aggregators
+     * @param name          The name of the aggregation
+     * @param type          The type of the aggregation, used for reporting only
+     */
+    public AggregationProfileBreakdown getBreakdown(@Nullable Aggregator parent, String name, String type) {
+        List<String> path = new ArrayList<>();
+        path.add(name);
+        for (Aggregator agg = parent; agg != null; agg = agg.parent()) {
+            path.add(agg.name());
+        }
+        Collections.reverse(path);
+        Node node = nodes.get(path);
+        if (node == null) {
+            node = new Node(type, new AggregationProfileBreakdown());
+            nodes.put(path, node);
+        }
+        return node.breakdown;
+    }
+
+    /**
+     * Build the tree of profiled aggregators. The roots of the returned list are top-level aggregations,
+     * sub-aggregations are reported as children of their parent aggregation.
+     */
+    public List<AggregationProfileResult> getTree() {
+        Map<List<String>, List<List<String>>> children = new LinkedHashMap<>();
+        List<List<String>> roots = new ArrayList<>();
+        for (List<String> path : nodes.keySet()) {
+            List<String> parentPath = path.subList(0, path.size() - 1);
+            if (parentPath.isEmpty() || nodes.containsKey(parentPath) == false) {
+                roots.add(path);
+            } else {
+                List<List<String>> siblings = children.get(parentPath);
+                if (siblings == null) {
+                    siblings = new ArrayList<>();
+                    children.put(parentPath, siblings);
+                }
+                siblings.add(path);
+            }
+        }
+        List<AggregationProfileResult> results = new ArrayList<>(roots.size());
+        for (List<String> root : roots) {
+            results.add(buildResult(root, children));
+        }
+        return results;
+    }
+
+    private AggregationProfileResult buildResult(List<String> path, Map<List<String>, List<List<String>>> children) {
+        Node node = nodes.get(path);
+        List<List<String>> childPaths = children.get(path);
+        List<AggregationProfileResult> childResults;
+        if (childPaths == null) {
+            childResults = Collections.emptyList();
+        } else {
+            childResults = new ArrayList<>(childPaths.size());
+            for (List<String> childPath : childPaths) {
+                childResults.add(buildResult(childPath, children));
+            }
+        }
+        return new AggregationProfileResult(node.type, path.get(path.size() - 1), node.breakdown.toTimingMap(),
+                childResults, node.breakdown.getTotalTime());
+    }
+
+    private static final class Node {
+        private final String type;
+        private final AggregationProfileBreakdown breakdown;
+
+        private Node(String type, AggregationProfileBreakdown breakdown) {
+            this.type = type;
+            this.breakdown = breakdown;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.profile;
+
+import org.elasticsearch.common.ParseField;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The profile of the fetch phase on a single shard: the total time it took to load the hits
+ * and the time spent in each fetch sub-phase (highlighting, source filtering, inner hits, ...).
+ */
+public final class FetchProfileResult implements Writeable<FetchProfileResult>, ToXContent {
+
+    private static final ParseField TIME = new ParseField("time");
+    private static final ParseField BREAKDOWN = new ParseField("breakdown");
+
+    private final long time;
+    private final Map<String, Long> subPhaseTimings;
+
+    public FetchProfileResult(long time, Map<String, Long> subPhaseTimings) {
+        this.time = time;
+        this.subPhaseTimings = subPhaseTimings;
+    }
+
+    public FetchProfileResult(StreamInput in) throws IOException {
+        this.time = in.readLong();
+        int size = in.readVInt();
+        this.subPhaseTimings = new LinkedHashMap<>(size);
+        for (int i = 0; i < size; i++) {
+            subPhaseTimings.put(in.readString(), in.readLong());
+        }
+    }
+
+    /**
+     * Returns the total time of the fetch phase, inclusive of all sub-phases.
+     *
+     * @return  elapsed time in nanoseconds
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * Returns the time spent in each fetch sub-phase that ran, keyed by the name of the sub-phase.
+     */
+    public Map<String, Long> getSubPhaseTimings() {
+        return Collections.unmodifiableMap(subPhaseTimings);
+    }
+
+    @Override
+    public FetchProfileResult readFrom(StreamInput in) throws IOException {
+        return new FetchProfileResult(in);
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeLong(time);
+        out.writeVInt(subPhaseTimings.size());
+        for (Map.Entry<String, Long> entry : subPhaseTimings.entrySet()) {
+            out.writeString(entry.getKey());
+            out.writeLong(entry.getValue());
+        }
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        return builder.startObject()
+                .field(TIME.getPreferredName(), String.format(Locale.US, "%.10gms", (double)(time / 1000000.0)))
+                .field(BREAKDOWN.getPreferredName(), subPhaseTimings)
+                .endObject();
+    }
+}
@@ -30,6 +30,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.stream.Collectors;
 
@@ -41,7 +42,17 @@ public final class InternalProfileShardResults implements Writeable<InternalProf
 
     private Map<String, List<ProfileShardResult>> shardResults;
 
+    private final long aggregationsReduceTime;
+
     public InternalProfileShardResults(Map<String, List<ProfileShardResult>> shardResults) {
+        this(shardResults, -1);
+    }
+
+    /**
+     * @param aggregationsReduceTime    The time it took the coordinating node to reduce the aggregations of the shards,
+     *                                  in nanoseconds, or <code>-1</code> if the request has no aggregations
+     */
+    public InternalProfileShardResults(Map<String, List<ProfileShardResult>> shardResults, long aggregationsReduceTime) {
         Map<String, List<ProfileShardResult>> transformed =
                 shardResults.entrySet()
                         .stream()
@@ -50,6 +61,7 @@ public final class InternalProfileShardResults implements Writeable<InternalProf
                                         e -> Collections.unmodifiableList(e.getValue()))
                         );
         this.shardResults =  Collections.unmodifiableMap(transformed);
+        this.aggregationsReduceTime = aggregationsReduceTime;
     }
 
     public InternalProfileShardResults(StreamInput in) throws IOException {
@@ -69,12 +81,22 @@ public final class InternalProfileShardResults implements Writeable<InternalProf
             shardResults.put(key, Collections.unmodifiableList(shardResult));
         }
         shardResults = Collections.unmodifiableMap(shardResults);
+        aggregationsReduceTime = in.readLong();
     }
 
     public Map<String, List<ProfileShardResult>> getShardResults() {
         return this.shardResults;
     }
 
+    /**
+     * Returns the time it took to reduce the aggregations of the shards on the coordinating node.
+     *
+     * @return  elapsed time in nanoseconds, or <code>-1</code> if the request has no aggregations
+     */
+    public long getAggregationsReduceTime() {
+        return aggregationsReduceTime;
+    }
+
     @Override
     public InternalProfileShardResults readFrom(StreamInput in) throws IOException {
         return new InternalProfileShardResults(in);
@@ -91,6 +113,7 @@ public final class InternalProfileShardResults implements Writeable<InternalProf
                 result.writeTo(out);
             }
         }
+        out.writeLong(aggregationsReduceTime);
     }
 
     @Override
@@ -107,7 +130,13 @@ public final class InternalProfileShardResults implements Writeable<InternalProf
             builder.endArray().endObject();
         }
 
-        builder.endArray().endObject();
+        builder.endArray();
+        if (aggregationsReduceTime != -1) {
+            builder.startObject("aggregations_reduce")
+                    .field("time", String.format(Locale.US, "%.10gms", (double)(aggregationsReduceTime / 1000000.0)))
+                    .endObject();
+        }
+        builder.endObject();
         return builder;
     }
 }
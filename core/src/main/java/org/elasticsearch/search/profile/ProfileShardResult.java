@@ -32,7 +32,9 @@ import java.util.List;
 
 /**
  * A container class to hold the profile results for a single shard in the request.
- * Contains a list of query profiles, a collector tree and a total rewrite tree.
+ * Contains a list of query profiles, a collector tree and a total rewrite tree. The first
+ * search of a shard also carries the profile of the shard's aggregations and fetch phase,
+ * if any.
  */
 public final class ProfileShardResult implements Writeable<ProfileShardResult>, ToXContent {
 
@@ -42,12 +44,24 @@ public final class ProfileShardResult implements Writeable<ProfileShardResult>,
 
     private final long rewriteTime;
 
+    private final List<AggregationProfileResult> aggregationResults;
+
+    private final FetchProfileResult fetchResult;
+
     public ProfileShardResult(List<ProfileResult> profileResults, long rewriteTime,
                               CollectorResult profileCollector) {
+        this(profileResults, rewriteTime, profileCollector, Collections.emptyList(), null);
+    }
+
+    public ProfileShardResult(List<ProfileResult> profileResults, long rewriteTime, CollectorResult profileCollector,
+                              List<AggregationProfileResult> aggregationResults, FetchProfileResult fetchResult) {
         assert(profileCollector != null);
+        assert(aggregationResults != null);
         this.profileResults = profileResults;
         this.profileCollector = profileCollector;
         this.rewriteTime = rewriteTime;
+        this.aggregationResults = aggregationResults;
+        this.fetchResult = fetchResult;
     }
 
     public ProfileShardResult(StreamInput in) throws IOException {
@@ -59,6 +73,12 @@ public final class ProfileShardResult implements Writeable<ProfileShardResult>,
 
         profileCollector = new CollectorResult(in);
         rewriteTime = in.readLong();
+        int aggregationsSize = in.readVInt();
+        aggregationResults = new ArrayList<>(aggregationsSize);
+        for (int j = 0; j < aggregationsSize; j++) {
+            aggregationResults.add(new AggregationProfileResult(in));
+        }
+        fetchResult = in.readBoolean() ? new FetchProfileResult(in) : null;
     }
 
     public List<ProfileResult> getQueryResults() {
@@ -73,6 +93,27 @@ public final class ProfileShardResult implements Writeable<ProfileShardResult>,
         return profileCollector;
     }
 
+    /**
+     * Returns the profiles of the top-level aggregations of this shard, with their sub-aggregations as children.
+     */
+    public List<AggregationProfileResult> getAggregationResults() {
+        return Collections.unmodifiableList(aggregationResults);
+    }
+
+    /**
+     * Returns the profile of the fetch phase of this shard, or {@code null} if the shard was not fetched from.
+     */
+    public FetchProfileResult getFetchResult() {
+        return fetchResult;
+    }
+
+    /**
+     * Returns a copy of this result that carries the given fetch phase profile.
+     */
+    public ProfileShardResult withFetchResult(FetchProfileResult fetchResult) {
+        return new ProfileShardResult(profileResults, rewriteTime, profileCollector, aggregationResults, fetchResult);
+    }
+
     @Override
     public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
         builder.startArray("query");
@@ -84,6 +125,17 @@ public final class ProfileShardResult implements Writeable<ProfileShardResult>,
         builder.startArray("collector");
         profileCollector.toXContent(builder, params);
         builder.endArray();
+        if (aggregationResults.isEmpty() == false) {
+            builder.startArray("aggregations");
+            for (AggregationProfileResult p : aggregationResults) {
+                p.toXContent(builder, params);
+            }
+            builder.endArray();
+        }
+        if (fetchResult != null) {
+            builder.field("fetch");
+            fetchResult.toXContent(builder, params);
+        }
         return builder;
     }
 
@@ -100,6 +152,16 @@ public final class ProfileShardResult implements Writeable<ProfileShardResult>,
         }
         profileCollector.writeTo(out);
         out.writeLong(rewriteTime);
+        out.writeVInt(aggregationResults.size());
+        for (AggregationProfileResult p : aggregationResults) {
+            p.writeTo(out);
+        }
+        if (fetchResult == null) {
+            out.writeBoolean(false);
+        } else {
+            out.writeBoolean(true);
+            fetchResult.writeTo(out);
+        }
     }
 
 }
@@ -22,6 +22,7 @@ package org.elasticsearch.search.profile;
 import org.apache.lucene.search.Query;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 
@@ -119,10 +120,27 @@ public final class Profiler {
      * @return          A list of corresponding InternalProfileShardResults
      */
     public static List<ProfileShardResult> buildShardResults(List<Profiler> profilers) {
+        return buildShardResults(profilers, null);
+    }
+
+    /**
+     * Helper method to convert Profiler into InternalProfileShardResults, which can be
+     * serialized to other nodes, emitted as JSON, etc. The aggregation profile, if any,
+     * is attached to the first search of the shard.
+     *
+     * @param profilers             A list of Profilers to convert into InternalProfileShardResults
+     * @param aggregationProfiler   The profiler of the shard's aggregations, may be {@code null}
+     * @return                      A list of corresponding InternalProfileShardResults
+     */
+    public static List<ProfileShardResult> buildShardResults(List<Profiler> profilers, AggregationProfiler aggregationProfiler) {
         List<ProfileShardResult> results = new ArrayList<>(profilers.size());
         for (Profiler profiler : profilers) {
+            List<AggregationProfileResult> aggregationResults = Collections.emptyList();
+            if (aggregationProfiler != null && results.isEmpty()) {
+                aggregationResults = aggregationProfiler.getTree();
+            }
             ProfileShardResult result =  new ProfileShardResult(
-                    profiler.getQueryTree(), profiler.getRewriteTime(), profiler.getCollector());
+                    profiler.getQueryTree(), profiler.getRewriteTime(), profiler.getCollector(), aggregationResults, null);
             results.add(result);
         }
         return results;
@@ -30,6 +30,7 @@ public final class Profilers {
 
     private final ContextIndexSearcher searcher;
     private final List<Profiler> profilers;
+    private final AggregationProfiler aggregationProfiler = new AggregationProfiler();
 
     /** Sole constructor. This {@link Profilers} instance will initiall wrap one {@link Profiler}. */
     public Profilers(ContextIndexSearcher searcher) {
@@ -56,4 +57,14 @@ public final class Profilers {
         return Collections.unmodifiableList(profilers);
     }
 
+    /** Return the profiler of the aggregations of this request. */
+    public AggregationProfiler getAggregationProfiler() {
+        return aggregationProfiler;
+    }
+
+    /** Build the shard level profile results of all searches and aggregations so far. */
+    public List<ProfileShardResult> buildShardResults() {
+        return Profiler.buildShardResults(profilers, aggregationProfiler);
+    }
+
 }
@@ -0,0 +1,154 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.profile;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.Scorer;
+import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.LeafBucketCollector;
+import org.elasticsearch.search.aggregations.support.AggregationContext;
+
+import java.io.IOException;
+
+/**
+ * Aggregator wrapper that records how much time is spent initializing the wrapped
+ * aggregator, collecting documents into it and building its aggregations. The time it
+ * takes to create the aggregator is recorded by {@link org.elasticsearch.search.aggregations.AggregatorFactories}
+ * as part of its initialization.
+ */
+public final class ProfilingAggregator extends Aggregator {
+
+    private final Aggregator delegate;
+    private final AggregationProfileBreakdown profile;
+
+    public ProfilingAggregator(Aggregator delegate, String type, AggregationProfiler profiler) {
+        this(delegate, profiler.getBreakdown(delegate, type));
+    }
+
+    /**
+     * Wraps an aggregator whose timings are recorded into the given breakdown, which may already hold the time it
+     * took to create the aggregator.
+     */
+    public ProfilingAggregator(Aggregator delegate, AggregationProfileBreakdown profile) {
+        this.delegate = delegate;
+        this.profile = profile;
+    }
+
+    /**
+     * Returns the aggregator that is wrapped by the given aggregator if it is a
+     * {@link ProfilingAggregator}, or the given aggregator otherwise.
+     */
+    public static Aggregator unwrap(Aggregator aggregator) {
+        if (aggregator instanceof ProfilingAggregator) {
+            return ((ProfilingAggregator) aggregator).delegate;
+        }
+        return aggregator;
+    }
+
+    @Override
+    public String name() {
+        return delegate.name();
+    }
+
+    @Override
+    public AggregationContext context() {
+        return delegate.context();
+    }
+
+    @Override
+    public Aggregator parent() {
+        return delegate.parent();
+    }
+
+    @Override
+    public Aggregator subAggregator(String name) {
+        return delegate.subAggregator(name);
+    }
+
+    @Override
+    public boolean needsScores() {
+        return delegate.needsScores();
+    }
+
+    @Override
+    public void preCollection() throws IOException {
+        final long start = System.nanoTime();
+        try {
+            delegate.preCollection();
+        } finally {
+            profile.addTime(AggregationProfileBreakdown.TimingType.INITIALIZE, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public LeafBucketCollector getLeafCollector(LeafReaderContext ctx) throws IOException {
+        final LeafBucketCollector in = delegate.getLeafCollector(ctx);
+        if (in == LeafBucketCollector.NO_OP_COLLECTOR) {
+            // keep the no-op collector recognizable so that it can still be pruned by its parent
+            return in;
+        }
+        return new LeafBucketCollector() {
+            @Override
+            public void setScorer(Scorer scorer) throws IOException {
+                in.setScorer(scorer);
+            }
+
+            @Override
+            public void collect(int doc, long bucket) throws IOException {
+                final long start = System.nanoTime();
+                try {
+                    in.collect(doc, bucket);
+                } finally {
+                    profile.addTime(AggregationProfileBreakdown.TimingType.COLLECT, System.nanoTime() - start);
+                }
+            }
+        };
+    }
+
+    @Override
+    public void postCollection() throws IOException {
+        delegate.postCollection();
+    }
+
+    @Override
+    public InternalAggregation buildAggregation(long bucket) throws IOException {
+        final long start = System.nanoTime();
+        try {
+            return delegate.buildAggregation(bucket);
+        } finally {
+            profile.addTime(AggregationProfileBreakdown.TimingType.BUILD_AGGREGATION, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public InternalAggregation buildEmptyAggregation() {
+        return delegate.buildEmptyAggregation();
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    @Override
+    public String toString() {
+        return delegate.toString();
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.query;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.FilterCollector;
+import org.apache.lucene.search.FilterLeafCollector;
+import org.apache.lucene.search.LeafCollector;
+import org.elasticsearch.tasks.TaskCancelledException;
+
+import java.io.IOException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * A {@link Collector} that aborts the search with a {@link TaskCancelledException} once the search has been
+ * cancelled. Cancellation is checked when a segment is about to be collected, and every
+ * {@link #CHECK_INTERVAL} documents within a segment so that large segments are not collected to the end.
+ */
+public final class CancellableCollector extends FilterCollector {
+
+    /** the number of collected documents between two checks, must be a power of two */
+    static final int CHECK_INTERVAL = 1 << 11;
+
+    private final BooleanSupplier cancelled;
+
+    public CancellableCollector(BooleanSupplier cancelled, Collector in) {
+        super(in);
+        this.cancelled = cancelled;
+    }
+
+    @Override
+    public LeafCollector getLeafCollector(LeafReaderContext context) throws IOException {
+        ensureNotCancelled();
+        return new FilterLeafCollector(super.getLeafCollector(context)) {
+            private int numCollected;
+
+            @Override
+            public void collect(int doc) throws IOException {
+                if ((++numCollected & (CHECK_INTERVAL - 1)) == 0) {
+                    ensureNotCancelled();
+                }
+                super.collect(doc);
+            }
+        };
+    }
+
+    private void ensureNotCancelled() {
+        if (cancelled.getAsBoolean()) {
+            throw new TaskCancelledException("cancelled");
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.query;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SortingMergePolicy;
+import org.apache.lucene.search.CollectionTerminatedException;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.FilterCollector;
+import org.apache.lucene.search.FilterLeafCollector;
+import org.apache.lucene.search.LeafCollector;
+import org.apache.lucene.search.Sort;
+
+import java.io.IOException;
+
+/**
+ * A {@link Collector} that stops collecting a segment once it collected <code>numDocsToCollect</code> documents if the
+ * segment is sorted by the index sort. The search sort must be a prefix of the index sort, see
+ * {@link org.elasticsearch.index.shard.IndexSortConfig#canEarlyTerminate(Sort, Sort)}, so that the first documents
+ * of a sorted segment are also its top hits. Segments that have not been sorted yet, like freshly flushed ones, are
+ * collected entirely. Hit counts are no longer accurate once a segment terminated early.
+ */
+final class IndexSortEarlyTerminatingCollector extends FilterCollector {
+
+    private final Sort indexSort;
+    private final int numDocsToCollect;
+    private boolean terminatedEarly = false;
+
+    IndexSortEarlyTerminatingCollector(Collector in, Sort indexSort, int numDocsToCollect) {
+        super(in);
+        if (numDocsToCollect <= 0) {
+            throw new IllegalArgumentException("numDocsToCollect must be greater than 0, got " + numDocsToCollect);
+        }
+        this.indexSort = indexSort;
+        this.numDocsToCollect = numDocsToCollect;
+    }
+
+    @Override
+    public LeafCollector getLeafCollector(LeafReaderContext context) throws IOException {
+        final LeafCollector leafCollector = super.getLeafCollector(context);
+        if (SortingMergePolicy.isSorted(context.reader(), indexSort) == false) {
+            return leafCollector;
+        }
+        return new FilterLeafCollector(leafCollector) {
+            private int numCollected;
+
+            @Override
+            public void collect(int doc) throws IOException {
+                super.collect(doc);
+                if (++numCollected >= numDocsToCollect) {
+                    terminatedEarly = true;
+                    throw new CollectionTerminatedException();
+                }
+            }
+        };
+    }
+
+    /**
+     * Returns <code>true</code> if at least one segment stopped collecting before all its matches were seen.
+     */
+    boolean terminatedEarly() {
+        return terminatedEarly;
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.query;
+
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.util.concurrent.AtomicArray;
+import org.elasticsearch.transport.TransportResponse;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The query phase results of the shard requests of a {@link org.elasticsearch.search.internal.NodeSearchTransportRequest},
+ * in the same order as the shard requests. Shards fail independently of each other, each shard has either a result
+ * or a failure. The time the node took for each shard is recorded as well, so that the coordinating node does not
+ * have to attribute the latency of the whole batch to every shard.
+ */
+public class NodeQuerySearchResult extends TransportResponse {
+
+    private AtomicArray<QuerySearchResult> results;
+    private AtomicArray<Throwable> failures;
+    private AtomicLongArray tookInNanos;
+
+    public NodeQuerySearchResult() {
+    }
+
+    public NodeQuerySearchResult(int size) {
+        this.results = new AtomicArray<>(size);
+        this.failures = new AtomicArray<>(size);
+        this.tookInNanos = new AtomicLongArray(size);
+    }
+
+    public int size() {
+        return results.length();
+    }
+
+    public void result(int index, QuerySearchResult result) {
+        results.set(index, result);
+    }
+
+    public void failure(int index, Throwable failure) {
+        failures.set(index, failure);
+    }
+
+    /**
+     * Records the time, in nanoseconds, from the node receiving the batch to the shard with the given index being done.
+     */
+    public void tookInNanos(int index, long nanos) {
+        tookInNanos.set(index, nanos);
+    }
+
+    /**
+     * The time, in nanoseconds, from the node receiving the batch to the shard with the given index being done. This
+     * includes the time the shard waited for a search thread, like a shard request sent on its own would.
+     */
+    public long tookInNanos(int index) {
+        return tookInNanos.get(index);
+    }
+
+    /**
+     * The result of the shard with the given index, or <code>null</code> if it failed.
+     */
+    @Nullable
+    public QuerySearchResult result(int index) {
+        return results.get(index);
+    }
+
+    /**
+     * The failure of the shard with the given index, or <code>null</code> if it succeeded.
+     */
+    @Nullable
+    public Throwable failure(int index) {
+        return failures.get(index);
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        super.readFrom(in);
+        final int size = in.readVInt();
+        results = new AtomicArray<>(size);
+        failures = new AtomicArray<>(size);
+        tookInNanos = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            if (in.readBoolean()) {
+                results.set(i, QuerySearchResult.readQuerySearchResult(in));
+            } else {
+                failures.set(i, in.readThrowable());
+            }
+            tookInNanos.set(i, in.readVLong());
+        }
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeVInt(size());
+        for (int i = 0; i < size(); i++) {
+            final QuerySearchResult result = results.get(i);
+            if (result != null) {
+                out.writeBoolean(true);
+                result.writeTo(out);
+            } else {
+                out.writeBoolean(false);
+                out.writeThrowable(failures.get(i));
+            }
+            out.writeVLong(tookInNanos.get(i));
+        }
+    }
+}
@@ -46,6 +46,7 @@ import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.common.lucene.MinimumScoreCollector;
 import org.elasticsearch.common.lucene.search.FilteredCollector;
+import org.elasticsearch.index.shard.IndexSortConfig;
 import org.elasticsearch.search.SearchParseElement;
 import org.elasticsearch.search.SearchPhase;
 import org.elasticsearch.search.SearchService;
@@ -55,12 +56,12 @@ import org.elasticsearch.search.internal.SearchContext;
 import org.elasticsearch.search.profile.CollectorResult;
 import org.elasticsearch.search.profile.InternalProfileCollector;
 import org.elasticsearch.search.profile.ProfileShardResult;
-import org.elasticsearch.search.profile.Profiler;
 import org.elasticsearch.search.rescore.RescorePhase;
 import org.elasticsearch.search.rescore.RescoreSearchContext;
 import org.elasticsearch.search.sort.SortParseElement;
 import org.elasticsearch.search.sort.TrackScoresParseElement;
 import org.elasticsearch.search.suggest.SuggestPhase;
+import org.elasticsearch.tasks.TaskCancelledException;
 
 import java.util.AbstractList;
 import java.util.ArrayList;
@@ -132,7 +133,7 @@ public class QueryPhase implements SearchPhase {
         aggregationPhase.execute(searchContext);
 
         if (searchContext.getProfilers() != null) {
-            List<ProfileShardResult> shardResults = Profiler.buildShardResults(searchContext.getProfilers().getProfilers());
+            List<ProfileShardResult> shardResults = searchContext.getProfilers().buildShardResults();
             searchContext.queryResult().profileResults(shardResults);
         }
     }
@@ -172,6 +173,7 @@ public class QueryPhase implements SearchPhase {
 
             Collector collector;
             Callable<TopDocs> topDocsCallable;
+            IndexSortEarlyTerminatingCollector indexSortCollector = null;
 
             assert query == searcher.rewrite(query); // already rewritten
 
@@ -217,7 +219,8 @@ public class QueryPhase implements SearchPhase {
                         }
                     }
                 } else {
-                    lastEmittedDoc = null;
+                    // with search_after, the top docs collector skips all hits up to and including the given sort values
+                    lastEmittedDoc = searchContext.searchAfter();
                 }
                 if (totalNumDocs == 0) {
                     // top collectors don't like a size of 0
@@ -235,6 +238,15 @@ public class QueryPhase implements SearchPhase {
                     topDocsCollector = TopScoreDocCollector.create(numDocs, lastEmittedDoc);
                 }
                 collector = topDocsCollector;
+                if (scrollContext == null && searchContext.searchAfter() == null && searchContext.trackTotalHits() == false
+                        && searchContext.queryCollectors().isEmpty()) {
+                    // segments sorted by the search sort can stop after the top hits, at the cost of an accurate hit count
+                    final Sort indexSort = searchContext.indexShard() == null ? null : searchContext.indexShard().getIndexSort();
+                    if (IndexSortConfig.canEarlyTerminate(indexSort, searchContext.sort())) {
+                        indexSortCollector = new IndexSortEarlyTerminatingCollector(collector, indexSort, numDocs);
+                        collector = indexSortCollector;
+                    }
+                }
                 if (doProfile) {
                     collector = new InternalProfileCollector(collector, CollectorResult.REASON_SEARCH_TOP_HITS, Collections.emptyList());
                 }
@@ -378,6 +390,16 @@ public class QueryPhase implements SearchPhase {
                 }
             }
 
+            if (searchContext.getTask() != null && collector != null) {
+                final Collector child = collector;
+                // throws TaskCancelledException once the search has been cancelled
+                collector = new CancellableCollector(searchContext::isCancelled, collector);
+                if (doProfile) {
+                    collector = new InternalProfileCollector(collector, CollectorResult.REASON_SEARCH_CANCELLED,
+                            Collections.singletonList((InternalProfileCollector) child));
+                }
+            }
+
             try {
                 if (collector != null) {
                     if (doProfile) {
@@ -394,19 +416,23 @@ public class QueryPhase implements SearchPhase {
             } finally {
                 searchContext.clearReleasables(SearchContext.Lifetime.COLLECTION);
             }
-            if (terminateAfterSet && queryResult.terminatedEarly() == null) {
+            if (indexSortCollector != null && indexSortCollector.terminatedEarly()) {
+                queryResult.terminatedEarly(true);
+            } else if (terminateAfterSet && queryResult.terminatedEarly() == null) {
                 queryResult.terminatedEarly(false);
             }
 
             queryResult.topDocs(topDocsCallable.call());
 
             if (searchContext.getProfilers() != null) {
-                List<ProfileShardResult> shardResults = Profiler.buildShardResults(searchContext.getProfilers().getProfilers());
+                List<ProfileShardResult> shardResults = searchContext.getProfilers().buildShardResults();
                 searchContext.queryResult().profileResults(shardResults);
             }
 
             return rescore;
 
+        } catch (TaskCancelledException e) {
+            throw e;
         } catch (Throwable e) {
             throw new QueryPhaseExecutionException(searchContext, "Failed to execute main query", e);
         }
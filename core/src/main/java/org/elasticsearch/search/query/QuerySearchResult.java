@@ -57,6 +57,8 @@ public class QuerySearchResult extends QuerySearchResultProvider {
     private boolean searchTimedOut;
     private Boolean terminatedEarly = null;
     private List<ProfileShardResult> profileShardResults;
+    private int nodeQueueSize = -1;
+    private long serviceTimeEWMA = -1;
 
     public QuerySearchResult() {
 
@@ -140,6 +142,30 @@ public class QuerySearchResult extends QuerySearchResultProvider {
         this.profileShardResults = shardResults;
     }
 
+    /**
+     * Returns the size of the search queue on the node that executed this request when the result was produced or
+     * <code>-1</code> if unknown.
+     */
+    public int nodeQueueSize() {
+        return nodeQueueSize;
+    }
+
+    public void nodeQueueSize(int nodeQueueSize) {
+        this.nodeQueueSize = nodeQueueSize;
+    }
+
+    /**
+     * Returns the moving average of the query phase service time in nanoseconds on the node that executed this request
+     * or <code>-1</code> if unknown.
+     */
+    public long serviceTimeEWMA() {
+        return serviceTimeEWMA;
+    }
+
+    public void serviceTimeEWMA(long serviceTimeEWMA) {
+        this.serviceTimeEWMA = serviceTimeEWMA;
+    }
+
     public List<SiblingPipelineAggregator> pipelineAggregators() {
         return pipelineAggregators;
     }
@@ -220,6 +246,8 @@ public class QuerySearchResult extends QuerySearchResultProvider {
                 profileShardResults.add(result);
             }
         }
+        nodeQueueSize = in.readInt();
+        serviceTimeEWMA = in.readZLong();
     }
 
     @Override
@@ -270,5 +298,7 @@ public class QuerySearchResult extends QuerySearchResultProvider {
                 }
             }
         }
+        out.writeInt(nodeQueueSize);
+        out.writeZLong(serviceTimeEWMA);
     }
 }
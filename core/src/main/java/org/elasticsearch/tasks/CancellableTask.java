@@ -0,0 +1,61 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.tasks;
+
+/**
+ * A task that can be cancelled. Cancelling only flags the task, the code executing it is expected to check
+ * {@link #isCancelled()} at regular intervals and to stop early with a {@link TaskCancelledException}.
+ */
+public class CancellableTask extends Task {
+
+    private volatile String reason;
+
+    public CancellableTask(long id, String type, String action, String description, TaskId parentTask) {
+        super(id, type, action, description, parentTask);
+    }
+
+    /**
+     * Cancels the task. Tasks are cancelled through {@link TaskManager#cancel(CancellableTask, String)}.
+     */
+    final void cancel(String reason) {
+        assert reason != null;
+        this.reason = reason;
+    }
+
+    public boolean isCancelled() {
+        return reason != null;
+    }
+
+    /**
+     * The reason the task was cancelled, or <code>null</code> if it was not cancelled.
+     */
+    public String getReasonCancelled() {
+        return reason;
+    }
+
+    /**
+     * Throws a {@link TaskCancelledException} if the task has been cancelled.
+     */
+    public void ensureNotCancelled() {
+        final String reason = this.reason;
+        if (reason != null) {
+            throw new TaskCancelledException("task [" + getId() + "] was cancelled, reason [" + reason + "]");
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.tasks;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.transport.TransportRequest;
+
+import java.io.IOException;
+
+/**
+ * A transport request that is sent on behalf of a task running on another node, its parent. The task that
+ * executes the request is registered as a child of that task so that cancelling the parent also cancels it.
+ */
+public abstract class ChildTaskRequest extends TransportRequest {
+
+    private TaskId parentTaskId = TaskId.EMPTY_TASK_ID;
+
+    protected ChildTaskRequest() {
+    }
+
+    protected ChildTaskRequest(TransportRequest request) {
+        super(request);
+    }
+
+    /**
+     * Sets the task this request is executed for.
+     */
+    public void setParentTask(String parentTaskNode, long parentTaskId) {
+        this.parentTaskId = new TaskId(parentTaskNode, parentTaskId);
+    }
+
+    /**
+     * Returns the task this request is executed for, {@link TaskId#EMPTY_TASK_ID} if it is not executed for a task.
+     */
+    public TaskId getParentTask() {
+        return parentTaskId;
+    }
+
+    @Override
+    public Task createTask(long id, String type, String action) {
+        return new Task(id, type, action, getDescription(), parentTaskId);
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        super.readFrom(in);
+        parentTaskId = TaskId.readTaskId(in);
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        parentTaskId.writeTo(out);
+    }
+}
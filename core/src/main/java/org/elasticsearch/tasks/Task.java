@@ -0,0 +1,96 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.tasks;
+
+/**
+ * A task that is being executed on this node, registered with the {@link TaskManager} for as long as it runs.
+ */
+public class Task {
+
+    private final long id;
+    private final String type;
+    private final String action;
+    private final String description;
+    private final TaskId parentTask;
+    private final long startTime;
+    private final long startTimeNanos;
+
+    public Task(long id, String type, String action, String description, TaskId parentTask) {
+        this.id = id;
+        this.type = type;
+        this.action = action;
+        this.description = description;
+        this.parentTask = parentTask;
+        this.startTime = System.currentTimeMillis();
+        this.startTimeNanos = System.nanoTime();
+    }
+
+    /**
+     * Builds the externally visible information of this task.
+     *
+     * @param localNodeId  the id of the node this task runs on
+     * @param detailed     whether to include the description of the task, which might be expensive to build
+     */
+    public TaskInfo taskInfo(String localNodeId, boolean detailed) {
+        return new TaskInfo(new TaskId(localNodeId, id), type, action, detailed ? getDescription() : null, startTime,
+                System.nanoTime() - startTimeNanos, this instanceof CancellableTask, parentTask);
+    }
+
+    /**
+     * Returns the id of the task, unique on the node it runs on.
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Returns the type of the task, e.g. <code>transport</code>.
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * Returns the name of the action the task executes.
+     */
+    public String getAction() {
+        return action;
+    }
+
+    /**
+     * Returns a human readable description of what the task does.
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * Returns the time the task was started, in milliseconds since the epoch.
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * Returns the id of the task that spawned this task, {@link TaskId#EMPTY_TASK_ID} if the task has no parent.
+     */
+    public TaskId getParentTaskId() {
+        return parentTask;
+    }
+}
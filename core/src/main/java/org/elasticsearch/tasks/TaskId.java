@@ -0,0 +1,125 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.tasks;
+
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Writeable;
+
+import java.io.IOException;
+
+/**
+ * Identifies a task across the cluster: the id of the node the task runs on and the id of the task on that node.
+ * Its string representation is <code>nodeId:id</code>.
+ */
+public final class TaskId implements Writeable<TaskId> {
+
+    public static final TaskId EMPTY_TASK_ID = new TaskId("", -1L);
+
+    private final String nodeId;
+    private final long id;
+
+    public TaskId(String nodeId, long id) {
+        this.nodeId = nodeId;
+        this.id = id;
+    }
+
+    /**
+     * Parses a task id from its <code>nodeId:id</code> representation.
+     */
+    public TaskId(String taskId) {
+        if (Strings.hasLength(taskId) == false) {
+            this.nodeId = "";
+            this.id = -1L;
+            return;
+        }
+        int separator = taskId.lastIndexOf(':');
+        if (separator <= 0 || separator == taskId.length() - 1) {
+            throw new IllegalArgumentException("malformed task id [" + taskId + "], expected [node_id:id]");
+        }
+        this.nodeId = taskId.substring(0, separator);
+        try {
+            this.id = Long.parseLong(taskId.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("malformed task id [" + taskId + "], expected [node_id:id]", e);
+        }
+    }
+
+    public static TaskId readTaskId(StreamInput in) throws IOException {
+        String nodeId = in.readString();
+        if (nodeId.isEmpty()) {
+            return EMPTY_TASK_ID;
+        }
+        return new TaskId(nodeId, in.readLong());
+    }
+
+    @Override
+    public TaskId readFrom(StreamInput in) throws IOException {
+        return readTaskId(in);
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeString(nodeId);
+        if (nodeId.isEmpty() == false) {
+            out.writeLong(id);
+        }
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Returns <code>false</code> for the {@link #EMPTY_TASK_ID}, which is used as the parent of tasks without parent.
+     */
+    public boolean isSet() {
+        return id != -1L;
+    }
+
+    @Override
+    public String toString() {
+        if (isSet()) {
+            return nodeId + ":" + id;
+        }
+        return "unset";
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        TaskId taskId = (TaskId) o;
+        return id == taskId.id && nodeId.equals(taskId.nodeId);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * nodeId.hashCode() + Long.hashCode(id);
+    }
+}
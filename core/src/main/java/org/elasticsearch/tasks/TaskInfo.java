@@ -0,0 +1,159 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.tasks;
+
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentBuilderString;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Information about a task that is running on a node, as reported by the list and cancel tasks APIs.
+ */
+public final class TaskInfo implements Writeable<TaskInfo>, ToXContent {
+
+    private final TaskId taskId;
+    private final String type;
+    private final String action;
+    @Nullable
+    private final String description;
+    private final long startTime;
+    private final long runningTimeNanos;
+    private final boolean cancellable;
+    private final TaskId parentTaskId;
+
+    public TaskInfo(TaskId taskId, String type, String action, @Nullable String description, long startTime,
+                    long runningTimeNanos, boolean cancellable, TaskId parentTaskId) {
+        this.taskId = taskId;
+        this.type = type;
+        this.action = action;
+        this.description = description;
+        this.startTime = startTime;
+        this.runningTimeNanos = runningTimeNanos;
+        this.cancellable = cancellable;
+        this.parentTaskId = parentTaskId;
+    }
+
+    public TaskInfo(StreamInput in) throws IOException {
+        taskId = TaskId.readTaskId(in);
+        type = in.readString();
+        action = in.readString();
+        description = in.readOptionalString();
+        startTime = in.readLong();
+        runningTimeNanos = in.readLong();
+        cancellable = in.readBoolean();
+        parentTaskId = TaskId.readTaskId(in);
+    }
+
+    @Override
+    public TaskInfo readFrom(StreamInput in) throws IOException {
+        return new TaskInfo(in);
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        taskId.writeTo(out);
+        out.writeString(type);
+        out.writeString(action);
+        out.writeOptionalString(description);
+        out.writeLong(startTime);
+        out.writeLong(runningTimeNanos);
+        out.writeBoolean(cancellable);
+        parentTaskId.writeTo(out);
+    }
+
+    public TaskId getTaskId() {
+        return taskId;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    /**
+     * The description of the task, only set if detailed information was requested.
+     */
+    @Nullable
+    public String getDescription() {
+        return description;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public long getRunningTimeNanos() {
+        return runningTimeNanos;
+    }
+
+    public boolean isCancellable() {
+        return cancellable;
+    }
+
+    public TaskId getParentTaskId() {
+        return parentTaskId;
+    }
+
+    static final class Fields {
+        static final XContentBuilderString NODE = new XContentBuilderString("node");
+        static final XContentBuilderString ID = new XContentBuilderString("id");
+        static final XContentBuilderString TYPE = new XContentBuilderString("type");
+        static final XContentBuilderString ACTION = new XContentBuilderString("action");
+        static final XContentBuilderString DESCRIPTION = new XContentBuilderString("description");
+        static final XContentBuilderString START_TIME_IN_MILLIS = new XContentBuilderString("start_time_in_millis");
+        static final XContentBuilderString RUNNING_TIME = new XContentBuilderString("running_time");
+        static final XContentBuilderString RUNNING_TIME_IN_NANOS = new XContentBuilderString("running_time_in_nanos");
+        static final XContentBuilderString CANCELLABLE = new XContentBuilderString("cancellable");
+        static final XContentBuilderString PARENT_TASK_ID = new XContentBuilderString("parent_task_id");
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject(taskId.toString());
+        builder.field(Fields.NODE, taskId.getNodeId());
+        builder.field(Fields.ID, taskId.getId());
+        builder.field(Fields.TYPE, type);
+        builder.field(Fields.ACTION, action);
+        if (description != null) {
+            builder.field(Fields.DESCRIPTION, description);
+        }
+        builder.field(Fields.START_TIME_IN_MILLIS, startTime);
+        if (builder.humanReadable()) {
+            builder.field(Fields.RUNNING_TIME, new TimeValue(runningTimeNanos, TimeUnit.NANOSECONDS).toString());
+        }
+        builder.field(Fields.RUNNING_TIME_IN_NANOS, runningTimeNanos);
+        builder.field(Fields.CANCELLABLE, cancellable);
+        if (parentTaskId.isSet()) {
+            builder.field(Fields.PARENT_TASK_ID, parentTaskId.toString());
+        }
+        builder.endObject();
+        return builder;
+    }
+}
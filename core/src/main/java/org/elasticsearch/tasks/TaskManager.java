@@ -0,0 +1,175 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.tasks;
+
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.regex.Regex;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.common.util.concurrent.ConcurrentMapLong;
+import org.elasticsearch.transport.TransportRequest;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps track of the tasks that are running on this node, and cancels them on request.
+ * <p>
+ * Cancelling a task also cancels its children on this node. Children that are registered after their
+ * parent has been cancelled, for instance because their request was still in flight, are cancelled
+ * right away.
+ */
+public class TaskManager extends AbstractComponent {
+
+    /** how long to remember cancelled parents for children that have not reached this node yet */
+    static final TimeValue BAN_RETENTION = TimeValue.timeValueMinutes(1);
+
+    private final ConcurrentMapLong<Task> tasks = ConcurrentCollections.newConcurrentMapLongWithAggressiveConcurrency();
+
+    private final AtomicLong taskIdGenerator = new AtomicLong();
+
+    /** cancelled parents and the reason they were cancelled for, see {@link #BAN_RETENTION} */
+    private final ConcurrentMap<TaskId, Ban> bannedParents = ConcurrentCollections.newConcurrentMap();
+
+    public TaskManager(Settings settings) {
+        super(settings);
+    }
+
+    /**
+     * Registers a task for the given request, if the request is to be tracked.
+     *
+     * @return the registered task, or <code>null</code> if {@link TransportRequest#createTask} did not create one
+     */
+    public Task register(String type, String action, TransportRequest request) {
+        Task task = request.createTask(taskIdGenerator.incrementAndGet(), type, action);
+        if (task == null) {
+            return null;
+        }
+        if (logger.isTraceEnabled()) {
+            logger.trace("register {} [{}] [{}] [{}]", task.getId(), type, action, task.getDescription());
+        }
+        Task previous = tasks.put(task.getId(), task);
+        assert previous == null;
+        if (task instanceof CancellableTask && task.getParentTaskId().isSet()) {
+            Ban ban = bannedParents.get(task.getParentTaskId());
+            if (ban != null) {
+                ((CancellableTask) task).cancel(ban.reason);
+            }
+        }
+        return task;
+    }
+
+    /**
+     * Unregisters a task once it completed, successfully or not.
+     */
+    public Task unregister(Task task) {
+        if (task == null) {
+            return null;
+        }
+        logger.trace("unregister task for id: {}", task.getId());
+        return tasks.remove(task.getId());
+    }
+
+    /**
+     * Returns the tasks that are currently running on this node, keyed by their id.
+     */
+    public Map<Long, Task> getTasks() {
+        return Collections.unmodifiableMap(tasks);
+    }
+
+    /**
+     * Cancels a single task, its children on other nodes are not cancelled.
+     */
+    public void cancel(CancellableTask task, String reason) {
+        logger.trace("cancelling task with id {}", task.getId());
+        task.cancel(reason);
+    }
+
+    /**
+     * Cancels the tasks on this node that match one of the given ids, and the children of all the given ids.
+     *
+     * @param localNodeId  the id of this node, used to match the task ids
+     * @return the tasks that were cancelled
+     */
+    public List<Task> cancel(String localNodeId, Collection<TaskId> taskIds, String reason) {
+        final long now = System.nanoTime();
+        for (Iterator<Ban> it = bannedParents.values().iterator(); it.hasNext(); ) {
+            if (now - it.next().timestamp > BAN_RETENTION.nanos()) {
+                it.remove();
+            }
+        }
+        for (TaskId taskId : taskIds) {
+            bannedParents.put(taskId, new Ban(reason, now));
+        }
+        List<Task> cancelled = new ArrayList<>();
+        for (Task task : tasks.values()) {
+            if (task instanceof CancellableTask == false || ((CancellableTask) task).isCancelled()) {
+                continue;
+            }
+            if (taskIds.contains(new TaskId(localNodeId, task.getId())) || taskIds.contains(task.getParentTaskId())) {
+                cancel((CancellableTask) task, reason);
+                cancelled.add(task);
+            }
+        }
+        return cancelled;
+    }
+
+    /**
+     * Returns the tasks running on this node whose action matches one of the given patterns and whose
+     * parent is the given parent task. An empty list of patterns matches all actions and an unset parent matches all tasks.
+     */
+    public List<Task> findTasks(String[] actions, TaskId parentTaskId) {
+        List<Task> matching = new ArrayList<>();
+        for (Task task : tasks.values()) {
+            if (actions != null && actions.length > 0 && Regex.simpleMatch(actions, task.getAction()) == false) {
+                continue;
+            }
+            if (parentTaskId.isSet() && parentTaskId.equals(task.getParentTaskId()) == false) {
+                continue;
+            }
+            matching.add(task);
+        }
+        return matching;
+    }
+
+    /**
+     * Returns the cancelled parents that are still remembered, for testing.
+     */
+    Set<TaskId> getBannedParents() {
+        return Collections.unmodifiableSet(bannedParents.keySet());
+    }
+
+    private static final class Ban {
+        final String reason;
+        final long timestamp;
+
+        Ban(String reason, long timestamp) {
+            this.reason = reason;
+            this.timestamp = timestamp;
+        }
+    }
+}
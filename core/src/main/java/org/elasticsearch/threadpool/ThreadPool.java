@@ -34,6 +34,7 @@ import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.util.concurrent.EsAbortPolicy;
 import org.elasticsearch.common.util.concurrent.EsExecutors;
 import org.elasticsearch.common.util.concurrent.EsThreadPoolExecutor;
+import org.elasticsearch.common.util.concurrent.QueueResizingEsThreadPoolExecutor;
 import org.elasticsearch.common.util.concurrent.XRejectedExecutionHandler;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
@@ -170,6 +171,12 @@ public class ThreadPool extends AbstractComponent {
             return add("queue_size", Integer.toString(queueSize));
         }
 
+        public ExecutorSettingsBuilder autoQueue(int minQueueSize, int maxQueueSize, String targetResponseTime) {
+            add("min_queue_size", Integer.toString(minQueueSize));
+            add("max_queue_size", Integer.toString(maxQueueSize));
+            return add("target_response_time", targetResponseTime);
+        }
+
         public ExecutorSettingsBuilder keepAlive(String keepAlive) {
             return add("keep_alive", keepAlive);
         }
@@ -218,9 +225,9 @@ public class ThreadPool extends AbstractComponent {
         Map<String, Settings> defaultExecutorTypeSettings = new HashMap<>();
         add(defaultExecutorTypeSettings, new ExecutorSettingsBuilder(Names.GENERIC).keepAlive("30s"));
         add(defaultExecutorTypeSettings, new ExecutorSettingsBuilder(Names.INDEX).size(availableProcessors).queueSize(200));
-        add(defaultExecutorTypeSettings, new ExecutorSettingsBuilder(Names.BULK).size(availableProcessors).queueSize(50));
+        add(defaultExecutorTypeSettings, new ExecutorSettingsBuilder(Names.BULK).size(availableProcessors).queueSize(50).autoQueue(10, 500, "1s"));
         add(defaultExecutorTypeSettings, new ExecutorSettingsBuilder(Names.GET).size(availableProcessors).queueSize(1000));
-        add(defaultExecutorTypeSettings, new ExecutorSettingsBuilder(Names.SEARCH).size(((availableProcessors * 3) / 2) + 1).queueSize(1000));
+        add(defaultExecutorTypeSettings, new ExecutorSettingsBuilder(Names.SEARCH).size(((availableProcessors * 3) / 2) + 1).queueSize(1000).autoQueue(100, 2000, "1s"));
         add(defaultExecutorTypeSettings, new ExecutorSettingsBuilder(Names.SUGGEST).size(availableProcessors).queueSize(1000));
         add(defaultExecutorTypeSettings, new ExecutorSettingsBuilder(Names.PERCOLATE).size(availableProcessors).queueSize(1000));
         add(defaultExecutorTypeSettings, new ExecutorSettingsBuilder(Names.MANAGEMENT).size(5).keepAlive("5m"));
@@ -316,6 +323,7 @@ public class ThreadPool extends AbstractComponent {
             long rejected = -1;
             int largest = -1;
             long completed = -1;
+            ThreadPoolStats.AutoQueueStats autoQueue = null;
             if (holder.executor() instanceof ThreadPoolExecutor) {
                 ThreadPoolExecutor threadPoolExecutor = (ThreadPoolExecutor) holder.executor();
                 threads = threadPoolExecutor.getPoolSize();
@@ -328,7 +336,13 @@ public class ThreadPool extends AbstractComponent {
                     rejected = ((XRejectedExecutionHandler) rejectedExecutionHandler).rejected();
                 }
             }
-            stats.add(new ThreadPoolStats.Stats(name, threads, queue, active, rejected, largest, completed));
+            if (holder.executor() instanceof QueueResizingEsThreadPoolExecutor) {
+                QueueResizingEsThreadPoolExecutor executor = (QueueResizingEsThreadPoolExecutor) holder.executor();
+                autoQueue = new ThreadPoolStats.AutoQueueStats(executor.getCurrentCapacity(), executor.getMinQueueSize(),
+                    executor.getMaxQueueSize(), executor.getTargetedResponseTime(), executor.getTaskExecutionEWMA(), executor.getTaskRate(),
+                    executor.getQueueAdjustments());
+            }
+            stats.add(new ThreadPoolStats.Stats(name, threads, queue, active, rejected, largest, completed, autoQueue));
         }
         return new ThreadPoolStats(stats);
     }
@@ -453,11 +467,13 @@ public class ThreadPool extends AbstractComponent {
         } else if (ThreadPoolType.FIXED == threadPoolType) {
             int defaultSize = defaultSettings.getAsInt("size", EsExecutors.boundedNumberOfProcessors(settings));
             SizeValue defaultQueueSize = getAsSizeOrUnbounded(defaultSettings, "queue", getAsSizeOrUnbounded(defaultSettings, "queue_size", null));
+            final AutoQueueSettings autoQueue = AutoQueueSettings.resolve(settings, defaultSettings,
+                previousExecutorHolder != null ? previousExecutorHolder.executor() : null);
 
             if (previousExecutorHolder != null) {
                 if (ThreadPoolType.FIXED == previousInfo.getThreadPoolType()) {
                     SizeValue updatedQueueSize = getAsSizeOrUnbounded(settings, "capacity", getAsSizeOrUnbounded(settings, "queue", getAsSizeOrUnbounded(settings, "queue_size", previousInfo.getQueueSize())));
-                    if (Objects.equals(previousInfo.getQueueSize(), updatedQueueSize)) {
+                    if (Objects.equals(previousInfo.getQueueSize(), updatedQueueSize) && autoQueue.appliesTo(previousExecutorHolder.executor())) {
                         int updatedSize = settings.getAsInt("size", previousInfo.getMax());
                         if (previousInfo.getMax() != updatedSize) {
                             logger.debug("updating thread_pool [{}], type [{}], size [{}], queue_size [{}]", name, type, updatedSize, updatedQueueSize);
@@ -482,8 +498,19 @@ public class ThreadPool extends AbstractComponent {
 
             int size = settings.getAsInt("size", defaultSize);
             SizeValue queueSize = getAsSizeOrUnbounded(settings, "capacity", getAsSizeOrUnbounded(settings, "queue", getAsSizeOrUnbounded(settings, "queue_size", defaultQueueSize)));
-            logger.debug("creating thread_pool [{}], type [{}], size [{}], queue_size [{}]", name, type, size, queueSize);
-            Executor executor = EsExecutors.newFixed(name, size, queueSize == null ? -1 : (int) queueSize.singles(), threadFactory);
+            final Executor executor;
+            if (autoQueue.enabled) {
+                if (queueSize == null) {
+                    throw new IllegalArgumentException("thread pool [" + name + "] can only use auto_queue with a bounded queue_size");
+                }
+                logger.debug("creating thread_pool [{}], type [{}], size [{}], queue_size [{}], min_queue_size [{}], max_queue_size [{}], target_response_time [{}]",
+                    name, type, size, queueSize, autoQueue.minQueueSize, autoQueue.maxQueueSize, autoQueue.targetResponseTime);
+                executor = EsExecutors.newAutoQueueFixed(name, size, (int) queueSize.singles(), autoQueue.minQueueSize, autoQueue.maxQueueSize,
+                    autoQueue.frameSize, autoQueue.targetResponseTime, threadFactory);
+            } else {
+                logger.debug("creating thread_pool [{}], type [{}], size [{}], queue_size [{}]", name, type, size, queueSize);
+                executor = EsExecutors.newFixed(name, size, queueSize == null ? -1 : (int) queueSize.singles(), threadFactory);
+            }
             return new ExecutorHolder(executor, new Info(name, threadPoolType, size, size, null, queueSize));
         } else if (ThreadPoolType.SCALING == threadPoolType) {
             TimeValue defaultKeepAlive = defaultSettings.getAsTime("keep_alive", timeValueMinutes(5));
@@ -583,6 +610,7 @@ public class ThreadPool extends AbstractComponent {
 
     private void validate(Map<String, Settings> groupSettings) {
         for (String key : groupSettings.keySet()) {
+            validateQueueSizes(key, groupSettings.get(key));
             if (!THREAD_POOL_TYPES.containsKey(key)) {
                 continue;
             }
@@ -595,6 +623,29 @@ public class ThreadPool extends AbstractComponent {
         }
     }
 
+    /**
+     * Rejects automatic queue sizing settings whose minimum queue size is greater than their maximum queue size. Either
+     * bound may fall back to the current executor or the thread pool defaults, see {@link AutoQueueSettings}.
+     */
+    private void validateQueueSizes(String name, Settings settings) {
+        final Map<String, Settings> defaults = defaultExecutorTypeSettings;
+        final Map<String, ExecutorHolder> current = executors;
+        if (defaults == null || current == null) {
+            // the thread pools are being built, the executors validate their own settings then
+            return;
+        }
+        if (settings.get("min_queue_size") == null && settings.get("max_queue_size") == null) {
+            return;
+        }
+        final Settings defaultSettings = defaults.containsKey(name) ? defaults.get(name) : Settings.EMPTY;
+        final ExecutorHolder holder = current.get(name);
+        final AutoQueueSettings autoQueue = AutoQueueSettings.resolve(settings, defaultSettings, holder == null ? null : holder.executor());
+        if (autoQueue.minQueueSize > autoQueue.maxQueueSize) {
+            throw new IllegalArgumentException("min_queue_size [" + autoQueue.minQueueSize + "] of thread pool [" + name
+                + "] must be less than or equal to max_queue_size [" + autoQueue.maxQueueSize + "]");
+        }
+    }
+
     /**
      * A thread pool size can also be unbounded and is represented by -1, which is not supported by SizeValue (which only supports positive numbers)
      */
@@ -605,6 +656,58 @@ public class ThreadPool extends AbstractComponent {
         return parseSizeValue(settings.get(setting), defaultValue);
     }
 
+    /**
+     * The settings of a fixed thread pool that control whether and how its queue capacity is adjusted automatically,
+     * see {@link QueueResizingEsThreadPoolExecutor}. Settings that are not set fall back to the values of the current
+     * executor, then to the thread pool defaults.
+     */
+    static final class AutoQueueSettings {
+        final boolean enabled;
+        final int minQueueSize;
+        final int maxQueueSize;
+        final TimeValue targetResponseTime;
+        final int frameSize;
+
+        private AutoQueueSettings(boolean enabled, int minQueueSize, int maxQueueSize, TimeValue targetResponseTime, int frameSize) {
+            this.enabled = enabled;
+            this.minQueueSize = minQueueSize;
+            this.maxQueueSize = maxQueueSize;
+            this.targetResponseTime = targetResponseTime;
+            this.frameSize = frameSize;
+        }
+
+        static AutoQueueSettings resolve(Settings settings, Settings defaultSettings, @Nullable Executor previousExecutor) {
+            if (previousExecutor instanceof QueueResizingEsThreadPoolExecutor) {
+                QueueResizingEsThreadPoolExecutor previous = (QueueResizingEsThreadPoolExecutor) previousExecutor;
+                return new AutoQueueSettings(settings.getAsBoolean("auto_queue", true),
+                    settings.getAsInt("min_queue_size", previous.getMinQueueSize()),
+                    settings.getAsInt("max_queue_size", previous.getMaxQueueSize()),
+                    settings.getAsTime("target_response_time", previous.getTargetedResponseTime()),
+                    settings.getAsInt("auto_queue_frame_size", previous.getTasksPerFrame()));
+            }
+            return new AutoQueueSettings(settings.getAsBoolean("auto_queue", defaultSettings.getAsBoolean("auto_queue", false)),
+                settings.getAsInt("min_queue_size", defaultSettings.getAsInt("min_queue_size", 10)),
+                settings.getAsInt("max_queue_size", defaultSettings.getAsInt("max_queue_size", 1000)),
+                settings.getAsTime("target_response_time", defaultSettings.getAsTime("target_response_time", TimeValue.timeValueSeconds(1))),
+                settings.getAsInt("auto_queue_frame_size", defaultSettings.getAsInt("auto_queue_frame_size", 2000)));
+        }
+
+        /**
+         * Returns <code>true</code> if the given executor already runs with these settings and doesn't need to be replaced.
+         */
+        boolean appliesTo(Executor executor) {
+            if (executor instanceof QueueResizingEsThreadPoolExecutor) {
+                QueueResizingEsThreadPoolExecutor autoQueueExecutor = (QueueResizingEsThreadPoolExecutor) executor;
+                return enabled
+                    && minQueueSize == autoQueueExecutor.getMinQueueSize()
+                    && maxQueueSize == autoQueueExecutor.getMaxQueueSize()
+                    && targetResponseTime.equals(autoQueueExecutor.getTargetedResponseTime())
+                    && frameSize == autoQueueExecutor.getTasksPerFrame();
+            }
+            return enabled == false;
+        }
+    }
+
     class ExecutorShutdownListener implements EsThreadPoolExecutor.ShutdownListener {
 
         private ExecutorHolder holder;
@@ -19,9 +19,11 @@
 
 package org.elasticsearch.threadpool;
 
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentBuilderString;
@@ -45,12 +47,18 @@ public class ThreadPoolStats implements Streamable, ToXContent, Iterable<ThreadP
         private long rejected;
         private int largest;
         private long completed;
+        private AutoQueueStats autoQueue;
 
         Stats() {
 
         }
 
         public Stats(String name, int threads, int queue, int active, long rejected, int largest, long completed) {
+            this(name, threads, queue, active, rejected, largest, completed, null);
+        }
+
+        public Stats(String name, int threads, int queue, int active, long rejected, int largest, long completed,
+                     @Nullable AutoQueueStats autoQueue) {
             this.name = name;
             this.threads = threads;
             this.queue = queue;
@@ -58,6 +66,7 @@ public class ThreadPoolStats implements Streamable, ToXContent, Iterable<ThreadP
             this.rejected = rejected;
             this.largest = largest;
             this.completed = completed;
+            this.autoQueue = autoQueue;
         }
 
         public String getName() {
@@ -88,6 +97,15 @@ public class ThreadPoolStats implements Streamable, ToXContent, Iterable<ThreadP
             return this.completed;
         }
 
+        /**
+         * Returns the statistics of the automatic queue sizing, or <code>null</code> if the queue of this thread pool
+         * has a fixed capacity.
+         */
+        @Nullable
+        public AutoQueueStats getAutoQueue() {
+            return this.autoQueue;
+        }
+
         @Override
         public void readFrom(StreamInput in) throws IOException {
             name = in.readString();
@@ -97,6 +115,10 @@ public class ThreadPoolStats implements Streamable, ToXContent, Iterable<ThreadP
             rejected = in.readLong();
             largest = in.readInt();
             completed = in.readLong();
+            if (in.readBoolean()) {
+                autoQueue = new AutoQueueStats();
+                autoQueue.readFrom(in);
+            }
         }
 
         @Override
@@ -108,6 +130,12 @@ public class ThreadPoolStats implements Streamable, ToXContent, Iterable<ThreadP
             out.writeLong(rejected);
             out.writeInt(largest);
             out.writeLong(completed);
+            if (autoQueue == null) {
+                out.writeBoolean(false);
+            } else {
+                out.writeBoolean(true);
+                autoQueue.writeTo(out);
+            }
         }
 
         @Override
@@ -131,6 +159,9 @@ public class ThreadPoolStats implements Streamable, ToXContent, Iterable<ThreadP
             if (completed != -1) {
                 builder.field(Fields.COMPLETED, completed);
             }
+            if (autoQueue != null) {
+                autoQueue.toXContent(builder, params);
+            }
             builder.endObject();
             return builder;
         }
@@ -153,6 +184,112 @@ public class ThreadPoolStats implements Streamable, ToXContent, Iterable<ThreadP
         }
     }
 
+    /**
+     * Statistics of a thread pool whose queue capacity is adjusted automatically, along with the inputs of the last
+     * adjustment.
+     */
+    public static class AutoQueueStats implements Streamable, ToXContent {
+
+        private int queueCapacity;
+        private int minQueueSize;
+        private int maxQueueSize;
+        private TimeValue targetResponseTime;
+        private long avgTaskTimeNanos;
+        private double taskRate;
+        private long adjustments;
+
+        AutoQueueStats() {
+
+        }
+
+        public AutoQueueStats(int queueCapacity, int minQueueSize, int maxQueueSize, TimeValue targetResponseTime, long avgTaskTimeNanos,
+                              double taskRate, long adjustments) {
+            this.queueCapacity = queueCapacity;
+            this.minQueueSize = minQueueSize;
+            this.maxQueueSize = maxQueueSize;
+            this.targetResponseTime = targetResponseTime;
+            this.avgTaskTimeNanos = avgTaskTimeNanos;
+            this.taskRate = taskRate;
+            this.adjustments = adjustments;
+        }
+
+        /**
+         * The current capacity of the queue.
+         */
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public int getMinQueueSize() {
+            return minQueueSize;
+        }
+
+        public int getMaxQueueSize() {
+            return maxQueueSize;
+        }
+
+        public TimeValue getTargetResponseTime() {
+            return targetResponseTime;
+        }
+
+        /**
+         * The moving average of the time it took to execute a task.
+         */
+        public TimeValue getAvgTaskTime() {
+            return TimeValue.timeValueNanos(avgTaskTimeNanos);
+        }
+
+        /**
+         * The number of tasks per second executed during the last measured frame, <code>-1</code> if not measured yet.
+         */
+        public double getTaskRate() {
+            return taskRate;
+        }
+
+        /**
+         * The number of times the queue capacity changed.
+         */
+        public long getAdjustments() {
+            return adjustments;
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            queueCapacity = in.readInt();
+            minQueueSize = in.readInt();
+            maxQueueSize = in.readInt();
+            targetResponseTime = TimeValue.readTimeValue(in);
+            avgTaskTimeNanos = in.readLong();
+            taskRate = in.readDouble();
+            adjustments = in.readVLong();
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeInt(queueCapacity);
+            out.writeInt(minQueueSize);
+            out.writeInt(maxQueueSize);
+            targetResponseTime.writeTo(out);
+            out.writeLong(avgTaskTimeNanos);
+            out.writeDouble(taskRate);
+            out.writeVLong(adjustments);
+        }
+
+        @Override
+        public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+            builder.startObject(Fields.AUTO_QUEUE);
+            builder.field(Fields.QUEUE_CAPACITY, queueCapacity);
+            builder.field(Fields.MIN_QUEUE_SIZE, minQueueSize);
+            builder.field(Fields.MAX_QUEUE_SIZE, maxQueueSize);
+            builder.timeValueField(Fields.TARGET_RESPONSE_TIME_IN_MILLIS, Fields.TARGET_RESPONSE_TIME, targetResponseTime);
+            builder.field(Fields.AVG_TASK_TIME_IN_NANOS, avgTaskTimeNanos);
+            builder.field(Fields.TASK_RATE, taskRate);
+            builder.field(Fields.ADJUSTMENTS, adjustments);
+            builder.endObject();
+            return builder;
+        }
+    }
+
     private List<Stats> stats;
 
     ThreadPoolStats() {
@@ -202,6 +339,15 @@ public class ThreadPoolStats implements Streamable, ToXContent, Iterable<ThreadP
         static final XContentBuilderString REJECTED = new XContentBuilderString("rejected");
         static final XContentBuilderString LARGEST = new XContentBuilderString("largest");
         static final XContentBuilderString COMPLETED = new XContentBuilderString("completed");
+        static final XContentBuilderString AUTO_QUEUE = new XContentBuilderString("auto_queue");
+        static final XContentBuilderString QUEUE_CAPACITY = new XContentBuilderString("queue_capacity");
+        static final XContentBuilderString MIN_QUEUE_SIZE = new XContentBuilderString("min_queue_size");
+        static final XContentBuilderString MAX_QUEUE_SIZE = new XContentBuilderString("max_queue_size");
+        static final XContentBuilderString TARGET_RESPONSE_TIME = new XContentBuilderString("target_response_time");
+        static final XContentBuilderString TARGET_RESPONSE_TIME_IN_MILLIS = new XContentBuilderString("target_response_time_in_millis");
+        static final XContentBuilderString AVG_TASK_TIME_IN_NANOS = new XContentBuilderString("avg_task_time_in_nanos");
+        static final XContentBuilderString TASK_RATE = new XContentBuilderString("task_rate");
+        static final XContentBuilderString ADJUSTMENTS = new XContentBuilderString("adjustments");
     }
 
     @Override
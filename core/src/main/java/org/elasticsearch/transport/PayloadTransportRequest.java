@@ -0,0 +1,49 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.transport;
+
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.StreamOutput;
+
+import java.io.IOException;
+
+/**
+ * A request that carries a large payload, like a chunk of a file, that can be optimized on the network layer
+ * by sending the payload as is instead of copying it into the serialized request. Implementations must serialize
+ * to the same bytes either way: {@link TransportRequest#writeTo(StreamOutput)} must write exactly what
+ * {@link #writeThin(StreamOutput)} writes, followed by the bytes of the {@link #payload()}, followed by what
+ * {@link #writeTrailer(StreamOutput)} writes.
+ */
+public interface PayloadTransportRequest {
+
+    /**
+     * Writes the request up to its payload, including the length of the payload, but not its bytes.
+     */
+    void writeThin(StreamOutput out) throws IOException;
+
+    /**
+     * The payload, sent right after the content written by {@link #writeThin(StreamOutput)}.
+     */
+    BytesReference payload();
+
+    /**
+     * Writes the part of the request that follows the payload.
+     */
+    void writeTrailer(StreamOutput out) throws IOException;
+}
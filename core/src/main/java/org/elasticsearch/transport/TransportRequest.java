@@ -19,6 +19,8 @@
 
 package org.elasticsearch.transport;
 
+import org.elasticsearch.tasks.Task;
+
 /**
  */
 public abstract class TransportRequest extends TransportMessage<TransportRequest> {
@@ -43,4 +45,19 @@ public abstract class TransportRequest extends TransportMessage<TransportRequest
         super(request);
     }
 
+    /**
+     * Returns the task that keeps track of the execution of this request, see {@link org.elasticsearch.tasks.TaskManager}.
+     * Returns <code>null</code> by default, requests that should show up in the task list or be cancellable must override it.
+     */
+    public Task createTask(long id, String type, String action) {
+        return null;
+    }
+
+    /**
+     * Returns a human readable description of the request, used as the description of its task.
+     */
+    public String getDescription() {
+        return "";
+    }
+
 }
@@ -39,6 +39,7 @@ import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.common.util.concurrent.ConcurrentMapLong;
 import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 import org.elasticsearch.common.util.concurrent.FutureUtils;
+import org.elasticsearch.tasks.TaskManager;
 import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.IOException;
@@ -87,6 +88,8 @@ public class TransportService extends AbstractLifecycleComponent<TransportServic
 
     private final TransportService.Adapter adapter;
 
+    private final TaskManager taskManager;
+
     // tracer log
 
     public static final Setting<List<String>> TRACE_LOG_INCLUDE_SETTING = Setting.listSetting("transport.tracer.include", Collections.emptyList(), Function.identity(), true, Setting.Scope.CLUSTER);
@@ -114,6 +117,7 @@ public class TransportService extends AbstractLifecycleComponent<TransportServic
         setTracerLogExclude(TRACE_LOG_EXCLUDE_SETTING.get(settings));
         tracerLog = Loggers.getLogger(logger, ".tracer");
         adapter = createAdapter();
+        taskManager = new TaskManager(settings);
     }
 
     /**
@@ -129,6 +133,13 @@ public class TransportService extends AbstractLifecycleComponent<TransportServic
         return localNode;
     }
 
+    /**
+     * Returns the manager of the tasks running on this node.
+     */
+    public TaskManager getTaskManager() {
+        return taskManager;
+    }
+
     protected Adapter createAdapter() {
         return new Adapter();
     }
@@ -408,6 +419,23 @@ public class TransportService extends AbstractLifecycleComponent<TransportServic
         registerRequestHandler(reg);
     }
 
+    /**
+     * Registers a new request handler
+     * @param action The action the request handler is associated with
+     * @param request The request class that will be used to constrcut new instances for streaming
+     * @param executor The executor the request handling will be executed on
+     * @param forceExecution Force execution on the executor queue and never reject it
+     * @param canTripCircuitBreaker Whether incoming requests can be rejected by the in-flight requests circuit breaker
+     * @param handler The handler itself that implements the request handling
+     */
+    public <Request extends TransportRequest> void registerRequestHandler(String action, Supplier<Request> request, String executor,
+                                                                          boolean forceExecution, boolean canTripCircuitBreaker,
+                                                                          TransportRequestHandler<Request> handler) {
+        RequestHandlerRegistry<Request> reg = new RequestHandlerRegistry<>(action, request, handler, executor, forceExecution,
+                canTripCircuitBreaker);
+        registerRequestHandler(reg);
+    }
+
     protected <Request extends TransportRequest> void registerRequestHandler(RequestHandlerRegistry<Request> reg) {
         synchronized (requestHandlerMutex) {
             RequestHandlerRegistry replaced = requestHandlers.get(reg.getAction());
@@ -0,0 +1,95 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.transport.netty;
+
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.lease.Releasables;
+
+/**
+ * A transport message that was received by the {@link SizeHeaderFrameDecoder}, without its size header. The content
+ * of the message is held in recycled pages and the bytes of requests are reserved on the in-flight requests circuit
+ * breaker, both until the message is closed, which must happen once it is deserialized.
+ * <p>
+ * Requests that were rejected by the circuit breaker only hold the header of the message, so that the sender can be
+ * told about the failure.
+ */
+final class InboundMessage implements Releasable {
+
+    private final BytesReference content;
+    private final int length;
+    @Nullable
+    private final CircuitBreakingException rejection;
+    private final boolean breakerCheckPending;
+    private final Releasable[] releasables;
+
+    InboundMessage(BytesReference content, boolean breakerCheckPending, Releasable... releasables) {
+        this.content = content;
+        this.length = content.length();
+        this.rejection = null;
+        this.breakerCheckPending = breakerCheckPending;
+        this.releasables = releasables;
+    }
+
+    InboundMessage(BytesReference header, int length, CircuitBreakingException rejection) {
+        this.content = header;
+        this.length = length;
+        this.rejection = rejection;
+        this.breakerCheckPending = false;
+        this.releasables = new Releasable[0];
+    }
+
+    /**
+     * The content of the message, or only its header if the message was rejected.
+     */
+    BytesReference content() {
+        return content;
+    }
+
+    /**
+     * The length of the message on the wire, without the size header.
+     */
+    int length() {
+        return length;
+    }
+
+    /**
+     * The reason why the message was skipped rather than received, or <code>null</code> if it was received.
+     */
+    @Nullable
+    CircuitBreakingException rejection() {
+        return rejection;
+    }
+
+    /**
+     * Whether the in-flight requests circuit breaker must be checked once the action of the request is known. The
+     * action of compressed requests can only be read after decompressing them, so their size is reserved without
+     * checking the breaker.
+     */
+    boolean breakerCheckPending() {
+        return breakerCheckPending;
+    }
+
+    @Override
+    public void close() {
+        Releasables.close(releasables);
+    }
+}
@@ -21,6 +21,8 @@ package org.elasticsearch.transport.netty;
 
 import org.apache.lucene.util.IOUtils;
 import org.elasticsearch.Version;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.component.Lifecycle;
 import org.elasticsearch.common.compress.Compressor;
 import org.elasticsearch.common.compress.CompressorFactory;
@@ -83,39 +85,45 @@ public class MessageChannelHandler extends SimpleChannelUpstreamHandler {
     public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
         Transports.assertTransportThread();
         Object m = e.getMessage();
-        if (!(m instanceof ChannelBuffer)) {
+        if (!(m instanceof InboundMessage)) {
             ctx.sendUpstream(e);
             return;
         }
-        ChannelBuffer buffer = (ChannelBuffer) m;
-        int size = buffer.getInt(buffer.readerIndex() - 4);
-        transportServiceAdapter.received(size + 6);
+        // the content is held in recycled pages, it must not be referenced once the message is deserialized
+        try (InboundMessage message = (InboundMessage) m) {
+            transportServiceAdapter.received(message.length() + 6);
+            if (message.rejection() != null) {
+                handleRejectedRequest(ctx.getChannel(), message);
+            } else {
+                handleMessage(ctx.getChannel(), message);
+            }
+        }
+    }
 
+    private void handleMessage(Channel channel, InboundMessage message) throws IOException {
+        final BytesReference content = message.content();
+        final int size = content.length();
         // we have additional bytes to read, outside of the header
         boolean hasMessageBytesToRead = (size - (NettyHeader.HEADER_SIZE - 6)) != 0;
 
-        int markedReaderIndex = buffer.readerIndex();
-        int expectedIndexReader = markedReaderIndex + size;
-
-        // netty always copies a buffer, either in NioWorker in its read handler, where it copies to a fresh
-        // buffer, or in the cumlation buffer, which is cleaned each time
-        StreamInput streamIn = ChannelBufferStreamInputFactory.create(buffer, size);
+        StreamInput streamIn = content.streamInput();
         boolean success = false;
         try {
             long requestId = streamIn.readLong();
             byte status = streamIn.readByte();
             Version version = Version.fromId(streamIn.readInt());
 
-            if (TransportStatus.isCompress(status) && hasMessageBytesToRead && buffer.readable()) {
+            if (TransportStatus.isCompress(status) && hasMessageBytesToRead) {
+                final ChannelBuffer body = content.slice(NettyHeader.HEADER_SIZE - 6, size - (NettyHeader.HEADER_SIZE - 6)).toChannelBuffer();
                 Compressor compressor;
                 try {
-                    compressor = CompressorFactory.compressor(buffer);
+                    compressor = CompressorFactory.compressor(body);
                 } catch (NotCompressedException ex) {
-                    int maxToRead = Math.min(buffer.readableBytes(), 10);
-                    int offset = buffer.readerIndex();
-                    StringBuilder sb = new StringBuilder("stream marked as compressed, but no compressor found, first [").append(maxToRead).append("] content bytes out of [").append(buffer.readableBytes()).append("] readable bytes with message size [").append(size).append("] ").append("] are [");
+                    int maxToRead = Math.min(body.readableBytes(), 10);
+                    int offset = body.readerIndex();
+                    StringBuilder sb = new StringBuilder("stream marked as compressed, but no compressor found, first [").append(maxToRead).append("] content bytes out of [").append(body.readableBytes()).append("] readable bytes with message size [").append(size).append("] ").append("] are [");
                     for (int i = 0; i < maxToRead; i++) {
-                        sb.append(buffer.getByte(offset + i)).append(",");
+                        sb.append(body.getByte(offset + i)).append(",");
                     }
                     sb.append("]");
                     throw new IllegalStateException(sb.toString());
@@ -125,23 +133,15 @@ public class MessageChannelHandler extends SimpleChannelUpstreamHandler {
             streamIn.setVersion(version);
 
             if (TransportStatus.isRequest(status)) {
-                String action = handleRequest(ctx.getChannel(), streamIn, requestId, version);
+                String action = handleRequest(channel, streamIn, requestId, version, message.breakerCheckPending());
 
                 // Chek the entire message has been read
                 final int nextByte = streamIn.read();
                 // calling read() is useful to make sure the message is fully read, even if there some kind of EOS marker
                 if (nextByte != -1) {
                     throw new IllegalStateException("Message not fully read (request) for requestId [" + requestId + "], action ["
-                            + action + "], readerIndex [" + buffer.readerIndex() + "] vs expected [" + expectedIndexReader + "]; resetting");
-                }
-                if (buffer.readerIndex() < expectedIndexReader) {
-                    throw new IllegalStateException("Message is fully read (request), yet there are " + (expectedIndexReader - buffer.readerIndex()) + " remaining bytes; resetting");
+                            + action + "], message size [" + size + "]; resetting");
                 }
-                if (buffer.readerIndex() > expectedIndexReader) {
-                    throw new IllegalStateException("Message read past expected size (request) for requestId [" + requestId + "], action ["
-                            + action + "], readerIndex [" + buffer.readerIndex() + "] vs expected [" + expectedIndexReader + "]; resetting");
-                }
-
             } else {
                 TransportResponseHandler<?> handler = transportServiceAdapter.onResponseReceived(requestId);
                 // ignore if its null, the adapter logs it
@@ -149,7 +149,7 @@ public class MessageChannelHandler extends SimpleChannelUpstreamHandler {
                     if (TransportStatus.isError(status)) {
                         handlerResponseError(streamIn, handler);
                     } else {
-                        handleResponse(ctx.getChannel(), streamIn, handler);
+                        handleResponse(channel, streamIn, handler);
                     }
 
                     // Chek the entire message has been read
@@ -159,30 +159,36 @@ public class MessageChannelHandler extends SimpleChannelUpstreamHandler {
                         throw new IllegalStateException("Message not fully read (response) for requestId [" + requestId + "], handler ["
                                 + handler + "], error [" + TransportStatus.isError(status) + "]; resetting");
                     }
-                    if (buffer.readerIndex() < expectedIndexReader) {
-                        throw new IllegalStateException("Message is fully read (response), yet there are " + (expectedIndexReader - buffer.readerIndex()) + " remaining bytes; resetting");
-                    }
-                    if (buffer.readerIndex() > expectedIndexReader) {
-                        throw new IllegalStateException("Message read past expected size (response) for requestId [" + requestId + "], handler ["
-                                + handler + "], error [" + TransportStatus.isError(status) + "]; resetting");
-                    }
-
                 }
             }
+            success = true;
         } finally {
-            try {
-                if (success) {
-                    IOUtils.close(streamIn);
-                } else {
-                    IOUtils.closeWhileHandlingException(streamIn);
-                }
-            } finally {
-                // Set the expected position of the buffer, no matter what happened
-                buffer.readerIndex(expectedIndexReader);
+            if (success) {
+                IOUtils.close(streamIn);
+            } else {
+                IOUtils.closeWhileHandlingException(streamIn);
             }
         }
     }
 
+    /**
+     * Fails a request that was skipped because the in-flight requests circuit breaker tripped. Only the header of
+     * the request was received, so the action is not known.
+     */
+    private void handleRejectedRequest(Channel channel, InboundMessage message) throws IOException {
+        final StreamInput streamIn = message.content().streamInput();
+        final long requestId = streamIn.readLong();
+        streamIn.readByte();
+        final Version version = Version.fromId(streamIn.readInt());
+        final NettyTransportChannel transportChannel = new NettyTransportChannel(transport, transportServiceAdapter, "", channel, requestId, version, profileName);
+        try {
+            transportChannel.sendResponse(message.rejection());
+        } catch (IOException e) {
+            logger.warn("Failed to send error message back to client for rejected request [{}]", e, requestId);
+            logger.warn("Actual Exception", message.rejection());
+        }
+    }
+
     protected void handleResponse(Channel channel, StreamInput buffer, final TransportResponseHandler handler) {
         final TransportResponse response = handler.newInstance();
         response.remoteAddress(new InetSocketTransportAddress((InetSocketAddress) channel.getRemoteAddress()));
@@ -240,7 +246,12 @@ public class MessageChannelHandler extends SimpleChannelUpstreamHandler {
         }
     }
 
-    protected String handleRequest(Channel channel, StreamInput buffer, long requestId, Version version) throws IOException {
+    /**
+     * Handles a request, checking the in-flight requests circuit breaker first if the {@link SizeHeaderFrameDecoder}
+     * could not tell whether the action is allowed to trip it.
+     */
+    protected String handleRequest(Channel channel, StreamInput buffer, long requestId, Version version, boolean breakerCheckPending)
+            throws IOException {
         buffer = new NamedWriteableAwareStreamInput(buffer, transport.namedWriteableRegistry);
         final String action = buffer.readString();
         transportServiceAdapter.onRequestReceived(requestId, action);
@@ -250,6 +261,13 @@ public class MessageChannelHandler extends SimpleChannelUpstreamHandler {
             if (reg == null) {
                 throw new ActionNotFoundTransportException(action);
             }
+            if (breakerCheckPending && reg.canTripCircuitBreaker()) {
+                final CircuitBreaker breaker = transport.breakerService.getBreaker(CircuitBreaker.IN_FLIGHT_REQUESTS);
+                if (breaker != null) {
+                    // the size of the request is already reserved, this only fails if the breaker is over its limit
+                    breaker.addEstimateBytesAndMaybeBreak(0, "<transport_request>");
+                }
+            }
             final TransportRequest request = reg.newRequest();
             request.remoteAddress(new InetSocketTransportAddress((InetSocketAddress) channel.getRemoteAddress()));
             request.readFrom(buffer);
@@ -29,6 +29,7 @@ import org.elasticsearch.common.bytes.ReleasablePagedBytesReference;
 import org.elasticsearch.common.component.AbstractLifecycleComponent;
 import org.elasticsearch.common.compress.CompressorFactory;
 import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
 import org.elasticsearch.common.io.stream.ReleasableBytesStreamOutput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -52,12 +53,16 @@ import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.concurrent.AbstractRunnable;
 import org.elasticsearch.common.util.concurrent.EsExecutors;
 import org.elasticsearch.common.util.concurrent.KeyedLock;
+import org.elasticsearch.indices.breaker.CircuitBreakerService;
+import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
 import org.elasticsearch.monitor.jvm.JvmInfo;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.BindTransportException;
 import org.elasticsearch.transport.BytesTransportRequest;
 import org.elasticsearch.transport.ConnectTransportException;
 import org.elasticsearch.transport.NodeNotConnectedException;
+import org.elasticsearch.transport.PayloadTransportRequest;
+import org.elasticsearch.transport.RequestHandlerRegistry;
 import org.elasticsearch.transport.Transport;
 import org.elasticsearch.transport.TransportException;
 import org.elasticsearch.transport.TransportRequest;
@@ -185,6 +190,9 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
     private final TimeValue pingSchedule;
 
     protected final BigArrays bigArrays;
+    // inbound messages are accounted for by the in-flight requests breaker rather than by their pages
+    protected final BigArrays inboundBigArrays;
+    protected final CircuitBreakerService breakerService;
     protected final ThreadPool threadPool;
     // package private for testing
     volatile OpenChannelsHandler serverOpenChannels;
@@ -214,6 +222,8 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
         this.threadPool = threadPool;
         this.networkService = networkService;
         this.bigArrays = bigArrays;
+        this.inboundBigArrays = bigArrays.withoutCircuitBreaker();
+        this.breakerService = bigArrays.breakerService() == null ? new NoneCircuitBreakerService() : bigArrays.breakerService();
         this.version = version;
 
         if (settings.getAsBoolean("netty.epollBugWorkaround", false)) {
@@ -281,6 +291,15 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
         return transportServiceAdapter;
     }
 
+    /**
+     * Whether incoming requests of the given action can be rejected by the in-flight requests circuit breaker. Requests
+     * of unknown actions can, they fail anyway once they are handled.
+     */
+    boolean canTripCircuitBreaker(String action) {
+        final RequestHandlerRegistry reg = transportServiceAdapter.getRequestHandler(action);
+        return reg == null || reg.canTripCircuitBreaker();
+    }
+
     ThreadPool threadPool() {
         return threadPool;
     }
@@ -861,6 +880,17 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
                 ChannelBuffer headerBuffer = bytes.toChannelBuffer();
                 ChannelBuffer contentBuffer = bRequest.bytes().toChannelBuffer();
                 buffer = ChannelBuffers.wrappedBuffer(NettyUtils.DEFAULT_GATHERING, headerBuffer, contentBuffer);
+            } else if (request instanceof PayloadTransportRequest && options.compress() == false) {
+                // send the payload as is, e.g. file chunks that were read off-heap, rather than copying it into the stream
+                PayloadTransportRequest pRequest = (PayloadTransportRequest) request;
+                pRequest.writeThin(stream);
+                stream.close();
+                bytes = bStream.bytes();
+                BytesStreamOutput trailer = new BytesStreamOutput(32);
+                trailer.setVersion(version);
+                pRequest.writeTrailer(trailer);
+                buffer = ChannelBuffers.wrappedBuffer(NettyUtils.DEFAULT_GATHERING, bytes.toChannelBuffer(),
+                        pRequest.payload().toChannelBuffer(), trailer.bytes().toChannelBuffer());
             } else {
                 request.writeTo(stream);
                 stream.close();
@@ -1150,7 +1180,8 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
         @Override
         public ChannelPipeline getPipeline() throws Exception {
             ChannelPipeline channelPipeline = Channels.pipeline();
-            SizeHeaderFrameDecoder sizeHeader = new SizeHeaderFrameDecoder();
+            SizeHeaderFrameDecoder sizeHeader = new SizeHeaderFrameDecoder(nettyTransport.inboundBigArrays, nettyTransport.breakerService,
+                    nettyTransport::canTripCircuitBreaker);
             if (nettyTransport.maxCumulationBufferCapacity != null) {
                 if (nettyTransport.maxCumulationBufferCapacity.bytes() > Integer.MAX_VALUE) {
                     sizeHeader.setMaxCumulationBufferCapacity(Integer.MAX_VALUE);
@@ -1188,7 +1219,8 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
         public ChannelPipeline getPipeline() throws Exception {
             ChannelPipeline channelPipeline = Channels.pipeline();
             channelPipeline.addLast("openChannels", nettyTransport.serverOpenChannels);
-            SizeHeaderFrameDecoder sizeHeader = new SizeHeaderFrameDecoder();
+            SizeHeaderFrameDecoder sizeHeader = new SizeHeaderFrameDecoder(nettyTransport.inboundBigArrays, nettyTransport.breakerService,
+                    nettyTransport::canTripCircuitBreaker);
             if (nettyTransport.maxCumulationBufferCapacity != null) {
                 if (nettyTransport.maxCumulationBufferCapacity.bytes() > Integer.MAX_VALUE) {
                     sizeHeader.setMaxCumulationBufferCapacity(Integer.MAX_VALUE);
@@ -20,30 +20,128 @@
 package org.elasticsearch.transport.netty;
 
 import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.ReleasablePagedBytesReference;
+import org.elasticsearch.common.io.stream.ReleasableBytesStreamOutput;
 import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.indices.breaker.CircuitBreakerService;
+import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
 import org.elasticsearch.monitor.jvm.JvmInfo;
 import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.transport.support.TransportStatus;
 import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.channel.Channel;
 import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.ChannelStateEvent;
 import org.jboss.netty.handler.codec.frame.FrameDecoder;
 import org.jboss.netty.handler.codec.frame.TooLongFrameException;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.StreamCorruptedException;
+import java.util.function.Predicate;
 
 /**
+ * Decodes transport messages into {@link InboundMessage}s. The content of a message is copied into recycled pages as
+ * it arrives rather than being aggregated into a single buffer, and the size of a request is reserved on the
+ * {@link CircuitBreaker#IN_FLIGHT_REQUESTS} circuit breaker as soon as its header is read. Requests that trip the
+ * breaker are skipped without being buffered, only their header is passed on so that the sender gets a failure.
+ * <p>
+ * Requests of actions that must not be rejected, like the ones that keep the cluster together, are accounted for
+ * without checking the breaker. The action is read from the start of the body, unless the request is compressed in
+ * which case the check is left to the {@link MessageChannelHandler}.
  */
 public class SizeHeaderFrameDecoder extends FrameDecoder {
 
     private static final long NINETY_PER_HEAP_SIZE = (long) (JvmInfo.jvmInfo().getMem().getHeapMax().bytes() * 0.9);
 
+    private final BigArrays bigArrays;
+    private final CircuitBreakerService breakerService;
+    private final Predicate<String> canTripCircuitBreaker;
+
+    // the number of bytes of the current message that were not received yet
+    private int remaining;
+    // the content of the current message, unless it is skipped
+    private ReleasableBytesStreamOutput content;
+    // the bytes of the current message that are reserved on the breaker
+    private Releasable reservation;
+    // the current message if it is skipped
+    private InboundMessage rejected;
+    // whether the breaker is checked for the current message once its action is known
+    private boolean breakerCheckPending;
+
+    public SizeHeaderFrameDecoder() {
+        this(BigArrays.NON_RECYCLING_INSTANCE, new NoneCircuitBreakerService());
+    }
+
+    public SizeHeaderFrameDecoder(BigArrays bigArrays, CircuitBreakerService breakerService) {
+        this(bigArrays, breakerService, action -> true);
+    }
+
+    /**
+     * @param canTripCircuitBreaker whether requests of the given action can be rejected by the in-flight requests breaker
+     */
+    public SizeHeaderFrameDecoder(BigArrays bigArrays, CircuitBreakerService breakerService, Predicate<String> canTripCircuitBreaker) {
+        this.bigArrays = bigArrays;
+        this.breakerService = breakerService;
+        this.canTripCircuitBreaker = canTripCircuitBreaker;
+    }
+
     @Override
     protected Object decode(ChannelHandlerContext ctx, Channel channel, ChannelBuffer buffer) throws Exception {
-        if (buffer.readableBytes() < 6) {
+        if (remaining == 0 && startMessage(buffer) == false) {
             return null;
         }
+        final int length = Math.min(remaining, buffer.readableBytes());
+        if (rejected != null) {
+            buffer.skipBytes(length);
+        } else {
+            buffer.readBytes(content, length);
+        }
+        remaining -= length;
+        if (remaining > 0) {
+            return null;
+        }
+        final InboundMessage message;
+        if (rejected != null) {
+            message = rejected;
+        } else {
+            final ReleasablePagedBytesReference bytes = content.bytes();
+            message = new InboundMessage(bytes, breakerCheckPending, bytes, reservation);
+        }
+        rejected = null;
+        breakerCheckPending = false;
+        content = null;
+        reservation = null;
+        return message;
+    }
+
+    @Override
+    public void channelClosed(ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception {
+        try {
+            super.channelClosed(ctx, e);
+        } finally {
+            // the rest of the current message will never arrive
+            Releasables.close(content == null ? null : content.bytes(), reservation);
+            content = null;
+            reservation = null;
+        }
+    }
+
+    /**
+     * Reads the header of the next message and reserves its size on the breaker, returns <code>false</code> if the
+     * header was not fully received yet.
+     */
+    private boolean startMessage(ChannelBuffer buffer) throws Exception {
+        if (buffer.readableBytes() < 6) {
+            return false;
+        }
 
         int readerIndex = buffer.readerIndex();
         if (buffer.getByte(readerIndex) != 'E' || buffer.getByte(readerIndex + 1) != 'S') {
@@ -73,9 +171,9 @@ public class SizeHeaderFrameDecoder extends FrameDecoder {
             // discard the messages we read and continue, this is achieved by skipping the bytes
             // and returning null
             buffer.skipBytes(6);
-            return null;
+            return false;
         }
-        if (dataLen <= 0) {
+        if (dataLen < NettyHeader.HEADER_SIZE - 6) {
             throw new StreamCorruptedException("invalid data length: " + dataLen);
         }
         // safety against too large frames being sent
@@ -84,11 +182,68 @@ public class SizeHeaderFrameDecoder extends FrameDecoder {
                     "transport content length received [" + new ByteSizeValue(dataLen) + "] exceeded [" + new ByteSizeValue(NINETY_PER_HEAP_SIZE) + "]");
         }
 
-        if (buffer.readableBytes() < dataLen + 6) {
-            return null;
+        if (buffer.readableBytes() < NettyHeader.HEADER_SIZE) {
+            return false;
+        }
+        final byte status = buffer.getByte(readerIndex + 6 + 8);
+        final CircuitBreaker breaker = breakerService.getBreaker(CircuitBreaker.IN_FLIGHT_REQUESTS);
+        if (breaker != null) {
+            if (TransportStatus.isRequest(status) && TransportStatus.isCompress(status)) {
+                // the action is compressed along with the rest of the request
+                breaker.addWithoutBreaking(dataLen);
+                breakerCheckPending = true;
+            } else if (TransportStatus.isRequest(status)) {
+                final String action = peekAction(buffer, dataLen);
+                if (action == null) {
+                    return false;
+                }
+                if (canTripCircuitBreaker.test(action)) {
+                    try {
+                        breaker.addEstimateBytesAndMaybeBreak(dataLen, "<transport_request>");
+                    } catch (CircuitBreakingException e) {
+                        final byte[] header = new byte[NettyHeader.HEADER_SIZE - 6];
+                        buffer.getBytes(readerIndex + 6, header);
+                        rejected = new InboundMessage(new BytesArray(header), dataLen, e);
+                    }
+                } else {
+                    breaker.addWithoutBreaking(dataLen);
+                }
+            } else {
+                // responses are never rejected, the node asked for them and waits for them
+                breaker.addWithoutBreaking(dataLen);
+            }
+            if (rejected == null) {
+                // the breaker is looked up again on release since it is replaced when its settings change
+                reservation = () -> breakerService.getBreaker(CircuitBreaker.IN_FLIGHT_REQUESTS).addWithoutBreaking(-dataLen);
+            }
+        }
+        if (rejected == null) {
+            content = new ReleasableBytesStreamOutput(bigArrays);
         }
         buffer.skipBytes(6);
-        return buffer;
+        remaining = dataLen;
+        return true;
+    }
+
+    /**
+     * Reads the action that the body of a request starts with, without consuming anything. Returns <code>null</code>
+     * if the action was not fully received yet, and an empty string if the request does not start with a valid action,
+     * which then fails once the request is handled.
+     */
+    private static String peekAction(ChannelBuffer buffer, int dataLen) throws IOException {
+        final int bodyLength = dataLen - (NettyHeader.HEADER_SIZE - 6);
+        final int received = Math.min(bodyLength, buffer.readableBytes() - NettyHeader.HEADER_SIZE);
+        final StreamInput in = new ChannelBufferStreamInput(buffer.slice(buffer.readerIndex() + NettyHeader.HEADER_SIZE, received));
+        try {
+            final int charCount = in.readVInt();
+            if (charCount < 0 || charCount > bodyLength) {
+                return "";
+            }
+            in.reset();
+            return in.readString();
+        } catch (EOFException | IndexOutOfBoundsException e) {
+            return received == bodyLength ? "" : null;
+        }
     }
 
     private boolean bufferStartsWith(ChannelBuffer buffer, int readerIndex, String method) {
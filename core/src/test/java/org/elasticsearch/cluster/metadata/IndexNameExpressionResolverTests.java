@@ -860,6 +860,52 @@ public class IndexNameExpressionResolverTests extends ESTestCase {
         }
     }
 
+    public void testResolutionCache() {
+        ClusterState state = ClusterState.builder(new ClusterName("_name")).metaData(metaDataBuilder("logs-1", "logs-2", "other")).build();
+        IndicesOptions options = IndicesOptions.strictExpandOpen();
+        String[] results = indexNameExpressionResolver.concreteIndices(state, options, "logs-*");
+        assertThat(results, arrayContainingInAnyOrder("logs-1", "logs-2"));
+        // the returned array is a copy of the cached one
+        results[0] = "other";
+        assertThat(indexNameExpressionResolver.concreteIndices(state, options, "logs-*"), arrayContainingInAnyOrder("logs-1", "logs-2"));
+        assertThat(indexNameExpressionResolver.concreteIndices(state, IndicesOptions.strictExpandOpen(), "logs-1", "other"),
+                arrayContainingInAnyOrder("logs-1", "other"));
+
+        // the cache is dropped when the metadata changes
+        MetaData metaData = MetaData.builder(state.metaData()).put(indexBuilder("logs-3")).version(state.metaData().version() + 1).build();
+        ClusterState newState = ClusterState.builder(state).metaData(metaData).build();
+        assertThat(indexNameExpressionResolver.concreteIndices(newState, options, "logs-*"),
+                arrayContainingInAnyOrder("logs-1", "logs-2", "logs-3"));
+        // resolving against the stale state must not use the cache of the new one
+        assertThat(indexNameExpressionResolver.concreteIndices(state, options, "logs-*"), arrayContainingInAnyOrder("logs-1", "logs-2"));
+        assertThat(indexNameExpressionResolver.concreteIndices(newState, options, "logs-*"),
+                arrayContainingInAnyOrder("logs-1", "logs-2", "logs-3"));
+
+        // failed resolutions are not cached
+        try {
+            indexNameExpressionResolver.concreteIndices(newState, options, "missing");
+            fail();
+        } catch (IndexNotFoundException e) {
+            assertThat(e.getIndex(), equalTo("missing"));
+        }
+        try {
+            indexNameExpressionResolver.concreteIndices(newState, options, "missing");
+            fail();
+        } catch (IndexNotFoundException e) {
+            assertThat(e.getIndex(), equalTo("missing"));
+        }
+    }
+
+    public void testResolutionCacheDisabled() {
+        IndexNameExpressionResolver resolver = new IndexNameExpressionResolver(
+                Settings.builder().put(IndexNameExpressionResolver.RESOLUTION_CACHE_SIZE_SETTING.getKey(), 0).build());
+        ClusterState state = ClusterState.builder(new ClusterName("_name")).metaData(metaDataBuilder("logs-1", "logs-2")).build();
+        for (int i = 0; i < 3; i++) {
+            assertThat(resolver.concreteIndices(state, IndicesOptions.strictExpandOpen(), "logs-*"),
+                    arrayContainingInAnyOrder("logs-1", "logs-2"));
+        }
+    }
+
     private MetaData metaDataBuilder(String... indices) {
         MetaData.Builder mdBuilder = MetaData.builder();
         for (String concreteIndex : indices) {
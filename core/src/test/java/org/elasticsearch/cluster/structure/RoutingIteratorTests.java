@@ -26,6 +26,7 @@ import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.cluster.metadata.MetaData;
 import org.elasticsearch.cluster.node.DiscoveryNodes;
 import org.elasticsearch.cluster.routing.GroupShardsIterator;
+import org.elasticsearch.cluster.routing.IndexShardRoutingTable;
 import org.elasticsearch.cluster.routing.OperationRouting;
 import org.elasticsearch.cluster.routing.PlainShardIterator;
 import org.elasticsearch.cluster.routing.RotationShardShuffler;
@@ -39,7 +40,9 @@ import org.elasticsearch.cluster.routing.allocation.decider.AwarenessAllocationD
 import org.elasticsearch.cluster.routing.allocation.decider.ClusterRebalanceAllocationDecider;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.node.ResponseCollectorService;
 import org.elasticsearch.test.ESAllocationTestCase;
+import org.elasticsearch.test.cluster.TestClusterService;
 
 import java.util.Collections;
 import java.util.HashMap;
@@ -51,6 +54,7 @@ import static org.elasticsearch.cluster.routing.ShardRoutingState.INITIALIZING;
 import static org.elasticsearch.common.settings.Settings.settingsBuilder;
 import static org.hamcrest.Matchers.anyOf;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
@@ -479,4 +483,124 @@ public class RoutingIteratorTests extends ESAllocationTestCase {
         assertTrue(routing.primary());
     }
 
+    public void testSearchShardsFollowRoutingTableChanges() {
+        AllocationService strategy = createAllocationService(settingsBuilder()
+                .put("cluster.routing.allocation.concurrent_recoveries", 10)
+                .build());
+
+        OperationRouting operationRouting = new OperationRouting(Settings.Builder.EMPTY_SETTINGS, new AwarenessAllocationDecider());
+
+        MetaData metaData = MetaData.builder()
+                .put(IndexMetaData.builder("test").settings(settings(Version.CURRENT)).numberOfShards(2).numberOfReplicas(1))
+                .build();
+
+        RoutingTable routingTable = RoutingTable.builder()
+                .addAsNew(metaData.index("test"))
+                .build();
+
+        ClusterState clusterState = ClusterState.builder(ClusterName.DEFAULT).metaData(metaData).routingTable(routingTable).build();
+        clusterState = ClusterState.builder(clusterState).nodes(DiscoveryNodes.builder()
+                .put(newNode("node1"))
+                .put(newNode("node2"))
+                .localNodeId("node1")
+        ).build();
+        routingTable = strategy.reroute(clusterState, "reroute").routingTable();
+        clusterState = ClusterState.builder(clusterState).routingTable(routingTable).build();
+
+        // only the primaries are assigned
+        for (int i = 0; i < 2; i++) {
+            GroupShardsIterator shardIterators = operationRouting.searchShards(clusterState, new String[]{"test"}, null, null);
+            assertThat(shardIterators.size(), equalTo(2));
+            for (ShardIterator shardIterator : shardIterators) {
+                assertThat(shardIterator.size(), equalTo(1));
+            }
+        }
+
+        routingTable = strategy.applyStartedShards(clusterState, clusterState.getRoutingNodes().shardsWithState(INITIALIZING)).routingTable();
+        ClusterState newClusterState = ClusterState.builder(clusterState).routingTable(routingTable).build();
+
+        // the replicas are initializing on the new routing table
+        GroupShardsIterator shardIterators = operationRouting.searchShards(newClusterState, new String[]{"test"}, null, null);
+        assertThat(shardIterators.size(), equalTo(2));
+        for (ShardIterator shardIterator : shardIterators) {
+            assertThat(shardIterator.size(), equalTo(2));
+        }
+
+        // searches on the stale state still see it as it was
+        shardIterators = operationRouting.searchShards(clusterState, new String[]{"test"}, null, null);
+        for (ShardIterator shardIterator : shardIterators) {
+            assertThat(shardIterator.size(), equalTo(1));
+        }
+
+        // routing restricts the shards regardless of the cache
+        shardIterators = operationRouting.searchShards(newClusterState, new String[]{"test"},
+                singletonMap("test", Collections.singleton("some_routing")), null);
+        assertThat(shardIterators.size(), equalTo(1));
+    }
+
+    public void testAdaptiveReplicaSelection() {
+        AllocationService strategy = createAllocationService(settingsBuilder()
+                .put("cluster.routing.allocation.concurrent_recoveries", 20)
+                .build());
+
+        final int numShards = 6;
+        MetaData metaData = MetaData.builder()
+                .put(IndexMetaData.builder("test").settings(settings(Version.CURRENT)).numberOfShards(numShards).numberOfReplicas(2))
+                .build();
+        RoutingTable routingTable = RoutingTable.builder()
+                .addAsNew(metaData.index("test"))
+                .build();
+        ClusterState clusterState = ClusterState.builder(ClusterName.DEFAULT).metaData(metaData).routingTable(routingTable).build();
+        clusterState = ClusterState.builder(clusterState).nodes(DiscoveryNodes.builder()
+                .put(newNode("node1"))
+                .put(newNode("node2"))
+                .put(newNode("node3"))
+                .localNodeId("node1")
+        ).build();
+        routingTable = strategy.reroute(clusterState, "reroute").routingTable();
+        clusterState = ClusterState.builder(clusterState).routingTable(routingTable).build();
+        while (clusterState.getRoutingNodes().shardsWithState(INITIALIZING).isEmpty() == false) {
+            routingTable = strategy.applyStartedShards(clusterState, clusterState.getRoutingNodes().shardsWithState(INITIALIZING)).routingTable();
+            clusterState = ClusterState.builder(clusterState).routingTable(routingTable).build();
+        }
+
+        // the copies of a shard are ranked by the response times of their nodes
+        ResponseCollectorService collector = new ResponseCollectorService(Settings.EMPTY, new TestClusterService());
+        for (int i = 0; i < 10; i++) {
+            collector.onRequestSent("node1");
+            collector.onResponseReceived("node1", 10000, 2, 5000);
+            collector.onRequestSent("node2");
+            collector.onResponseReceived("node2", 1000, 0, 500);
+            collector.onRequestSent("node3");
+            collector.onResponseReceived("node3", 5000, 1, 2500);
+        }
+        IndexShardRoutingTable shardRoutingTable = clusterState.routingTable().index("test").shard(0);
+        Map<String, Long> nodeSearchCounts = new HashMap<>();
+        ShardIterator iterator = shardRoutingTable.activeInitializingShardsRankedIt(collector, nodeSearchCounts);
+        assertThat(iterator.size(), equalTo(3));
+        assertThat(iterator.nextOrNull().currentNodeId(), equalTo("node2"));
+        assertThat(iterator.nextOrNull().currentNodeId(), equalTo("node3"));
+        assertThat(iterator.nextOrNull().currentNodeId(), equalTo("node1"));
+        // the chosen node counts the request that the search is about to send it
+        assertThat(nodeSearchCounts, equalTo(singletonMap("node2", 1L)));
+        assertThat(collector.rank("node2", 1), greaterThan(collector.rank("node2")));
+
+        // the shards of a search spread over nodes with the same statistics instead of all going to the same one
+        collector = new ResponseCollectorService(Settings.EMPTY, new TestClusterService());
+        for (String nodeId : new String[] { "node1", "node2", "node3" }) {
+            collector.onRequestSent(nodeId);
+            collector.onResponseReceived(nodeId, 1000, 0, 500);
+        }
+        OperationRouting operationRouting = new OperationRouting(Settings.Builder.EMPTY_SETTINGS, new AwarenessAllocationDecider());
+        GroupShardsIterator shardIterators = operationRouting.searchShards(clusterState, new String[]{"test"}, null, null, collector);
+        assertThat(shardIterators.size(), equalTo(numShards));
+        Map<String, Integer> shardsPerNode = new HashMap<>();
+        for (ShardIterator shardIterator : shardIterators) {
+            shardsPerNode.merge(shardIterator.nextOrNull().currentNodeId(), 1, Integer::sum);
+        }
+        assertThat(shardsPerNode.size(), equalTo(3));
+        for (int count : shardsPerNode.values()) {
+            assertThat(count, equalTo(numShards / 3));
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,119 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.common.metrics;
+
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class LatencyHistogramTests extends ESTestCase {
+
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.inc(TimeUnit.MILLISECONDS.toNanos(i));
+        }
+        LatencyStats stats = histogram.stats(false);
+        assertThat(stats.getCount(), equalTo(100L));
+        // two significant digits, so values are within 1% of the exact percentile
+        assertThat(stats.getPercentileInMicros(50), allOf(greaterThanOrEqualTo(49500L), lessThanOrEqualTo(50500L)));
+        assertThat(stats.getPercentileInMicros(99), allOf(greaterThanOrEqualTo(98000L), lessThanOrEqualTo(100000L)));
+        assertThat(stats.getMaxInMicros(), allOf(greaterThanOrEqualTo(99000L), lessThanOrEqualTo(101000L)));
+        assertThat(stats.getPercentile(50).millis(), allOf(greaterThanOrEqualTo(49L), lessThanOrEqualTo(51L)));
+    }
+
+    public void testEmpty() {
+        LatencyStats stats = new LatencyHistogram().stats(false);
+        assertThat(stats.getCount(), equalTo(0L));
+        assertThat(stats.getPercentileInMicros(99), equalTo(0L));
+        assertThat(stats.getMaxInMicros(), equalTo(0L));
+    }
+
+    public void testReset() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.inc(TimeUnit.MILLISECONDS.toNanos(10));
+        assertThat(histogram.stats(false).getCount(), equalTo(1L));
+        histogram.inc(TimeUnit.MILLISECONDS.toNanos(10));
+        assertThat(histogram.stats(true).getCount(), equalTo(2L));
+        assertThat(histogram.stats(false).getCount(), equalTo(0L));
+        histogram.inc(TimeUnit.MILLISECONDS.toNanos(10));
+        assertThat(histogram.stats(false).getCount(), equalTo(1L));
+        histogram.clear();
+        assertThat(histogram.stats(false).getCount(), equalTo(0L));
+    }
+
+    public void testAdd() {
+        LatencyHistogram first = new LatencyHistogram();
+        LatencyHistogram second = new LatencyHistogram();
+        first.inc(TimeUnit.MILLISECONDS.toNanos(1));
+        second.inc(TimeUnit.SECONDS.toNanos(10));
+        LatencyStats firstStats = first.stats(false);
+        LatencyStats merged = LatencyStats.copyOf(firstStats);
+        merged.add(second.stats(false));
+        assertThat(merged.getCount(), equalTo(2L));
+        assertThat(merged.getPercentile(100).seconds(), equalTo(10L));
+        // the original stats are left untouched
+        assertThat(firstStats.getCount(), equalTo(1L));
+    }
+
+    public void testSerialization() throws IOException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        int count = randomIntBetween(1, 1000);
+        for (int i = 0; i < count; i++) {
+            histogram.inc(randomIntBetween(0, Integer.MAX_VALUE));
+        }
+        LatencyStats stats = histogram.stats(false);
+        BytesStreamOutput out = new BytesStreamOutput();
+        stats.writeTo(out);
+        StreamInput in = StreamInput.wrap(out.bytes());
+        LatencyStats read = LatencyStats.readLatencyStats(in);
+        assertThat(read.getCount(), equalTo(stats.getCount()));
+        assertThat(read.getMaxInMicros(), equalTo(stats.getMaxInMicros()));
+        for (double percentile : new double[] { 50, 90, 99, 99.9 }) {
+            assertThat(read.getPercentileInMicros(percentile), equalTo(stats.getPercentileInMicros(percentile)));
+        }
+        // read stats can be merged into
+        read.add(stats);
+        assertThat(read.getCount(), equalTo(2L * count));
+    }
+
+    public void testPercentilesParam() {
+        assertArrayEquals(new double[] { 50, 95, 99 }, LatencyStats.percentiles(ToXContent.EMPTY_PARAMS), 0d);
+        ToXContent.Params params = new ToXContent.MapParams(Collections.singletonMap(LatencyStats.PERCENTILES_PARAM, "75, 99.9"));
+        assertArrayEquals(new double[] { 75, 99.9 }, LatencyStats.percentiles(params), 0d);
+        assertThat(LatencyStats.percentileKey(75), equalTo("p75"));
+        assertThat(LatencyStats.percentileKey(99.9), equalTo("p99.9"));
+        try {
+            LatencyStats.percentiles(new ToXContent.MapParams(Collections.singletonMap(LatencyStats.PERCENTILES_PARAM, "101")));
+            fail("expected percentiles above 100 to be rejected");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), equalTo("[latency_percentiles] must be between 0 and 100 but was [101]"));
+        }
+    }
+}
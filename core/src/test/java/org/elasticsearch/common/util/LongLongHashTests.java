@@ -0,0 +1,89 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.common.util;
+
+import org.elasticsearch.test.ESSingleNodeTestCase;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class LongLongHashTests extends ESSingleNodeTestCase {
+
+    private static final class Key {
+        final long key1;
+        final long key2;
+
+        Key(long key1, long key2) {
+            this.key1 = key1;
+            this.key2 = key2;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == null || getClass() != obj.getClass()) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return key1 == other.key1 && key2 == other.key2;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Long.hashCode(key1) + Long.hashCode(key2);
+        }
+    }
+
+    public void testDuell() {
+        // Test high load factors to make sure that collision resolution works fine
+        final float maxLoadFactor = 0.6f + randomFloat() * 0.39f;
+        try (LongLongHash hash = new LongLongHash(randomIntBetween(0, 100), maxLoadFactor, BigArraysTests.randombigArrays())) {
+            // few distinct first keys, like owning bucket ordinals
+            final Key[] keys = new Key[randomIntBetween(1, 10000)];
+            for (int i = 0; i < keys.length; ++i) {
+                keys[i] = new Key(randomInt(20), randomBoolean() ? randomLong() : randomInt(100));
+            }
+            final Map<Key, Long> keyToId = new HashMap<>();
+            final List<Key> idToKey = new ArrayList<>();
+            final int iters = randomInt(100000);
+            for (int i = 0; i < iters; ++i) {
+                final Key key = randomFrom(keys);
+                final Long id = keyToId.get(key);
+                if (id != null) {
+                    assertEquals(-1 - id, hash.add(key.key1, key.key2));
+                } else {
+                    assertEquals(keyToId.size(), hash.add(key.key1, key.key2));
+                    keyToId.put(key, (long) keyToId.size());
+                    idToKey.add(key);
+                }
+            }
+
+            assertEquals(keyToId.size(), hash.size());
+            for (Map.Entry<Key, Long> entry : keyToId.entrySet()) {
+                assertEquals(entry.getValue().longValue(), hash.find(entry.getKey().key1, entry.getKey().key2));
+            }
+            for (int id = 0; id < idToKey.size(); id++) {
+                assertEquals(idToKey.get(id).key1, hash.getKey1(id));
+                assertEquals(idToKey.get(id).key2, hash.getKey2(id));
+            }
+            assertEquals(-1, hash.find(21, 0));
+        }
+    }
+}
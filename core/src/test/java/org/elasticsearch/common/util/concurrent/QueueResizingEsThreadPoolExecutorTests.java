@@ -0,0 +1,119 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.common.util.concurrent;
+
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+
+public class QueueResizingEsThreadPoolExecutorTests extends ESTestCase {
+
+    public void testAdjustCapacity() {
+        ResizableBlockingQueue<Runnable> queue = new ResizableBlockingQueue<>(ConcurrentCollections.<Runnable>newBlockingQueue(), 100);
+        assertThat(queue.capacity(), equalTo(100));
+        // grows by at most the adjustment amount
+        assertThat(queue.adjustCapacity(1000, 10, 10, 500), equalTo(110));
+        // shrinks by at most the adjustment amount
+        assertThat(queue.adjustCapacity(0, 10, 10, 500), equalTo(100));
+        // never overshoots the optimal capacity
+        assertThat(queue.adjustCapacity(105, 10, 10, 500), equalTo(105));
+        // stays within bounds
+        assertThat(queue.adjustCapacity(1000, 1000, 10, 500), equalTo(500));
+        assertThat(queue.adjustCapacity(0, 1000, 10, 500), equalTo(10));
+    }
+
+    public void testCapacityIsEnforced() {
+        ResizableBlockingQueue<Runnable> queue = new ResizableBlockingQueue<>(ConcurrentCollections.<Runnable>newBlockingQueue(), 2);
+        assertTrue(queue.offer(() -> {}));
+        assertTrue(queue.offer(() -> {}));
+        assertFalse(queue.offer(() -> {}));
+        assertThat(queue.adjustCapacity(1, 1, 1, 10), equalTo(1));
+        // lowering the capacity doesn't drop queued elements
+        assertThat(queue.size(), equalTo(2));
+        assertThat(queue.remainingCapacity(), equalTo(0));
+        assertNotNull(queue.poll());
+        assertNotNull(queue.poll());
+        assertTrue(queue.offer(() -> {}));
+        assertFalse(queue.offer(() -> {}));
+    }
+
+    public void testLittlesLaw() {
+        // 2 threads running 4ms tasks process 500 tasks per second, a target of 500ms leaves room for 250 queued tasks
+        double lambda = QueueResizingEsThreadPoolExecutor.calculateLambda(2, TimeUnit.MILLISECONDS.toNanos(4));
+        assertThat(QueueResizingEsThreadPoolExecutor.calculateL(lambda, TimeUnit.MILLISECONDS.toNanos(500)), equalTo(250));
+        lambda = QueueResizingEsThreadPoolExecutor.calculateLambda(1, TimeUnit.MILLISECONDS.toNanos(1));
+        assertThat(QueueResizingEsThreadPoolExecutor.calculateL(lambda, TimeUnit.SECONDS.toNanos(1)), equalTo(1000));
+    }
+
+    public void testQueueShrinksWithSlowTasks() throws Exception {
+        int frameSize = 10;
+        QueueResizingEsThreadPoolExecutor executor = EsExecutors.newAutoQueueFixed(getTestName(), 1, 1000, 10, 1000, frameSize,
+            TimeValue.timeValueMillis(1), EsExecutors.daemonThreadFactory("test"));
+        try {
+            for (int i = 0; i < frameSize * 3; i++) {
+                executor.execute(() -> {
+                    try {
+                        Thread.sleep(2);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+            assertBusy(() -> assertThat(executor.getCompletedTaskCount(), equalTo((long) frameSize * 3)));
+            // tasks take longer than the targeted response time so the queue must have been shrunk
+            assertThat(executor.getCurrentCapacity(), lessThan(1000));
+            assertThat(executor.getQueueAdjustments(), greaterThan(0L));
+            assertThat(executor.getTaskExecutionEWMA(), greaterThan(0L));
+            assertThat(executor.getTaskRate(), greaterThan(0d));
+        } finally {
+            terminate(executor);
+        }
+    }
+
+    public void testFramesWithConcurrentCompletions() throws Exception {
+        int frameSize = 10;
+        int frames = randomIntBetween(10, 50);
+        QueueResizingEsThreadPoolExecutor executor = EsExecutors.newAutoQueueFixed(getTestName(), 4, 1000, 10, 1000, frameSize,
+            TimeValue.timeValueSeconds(1), EsExecutors.daemonThreadFactory("test"));
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            for (int i = 0; i < frameSize * frames; i++) {
+                executor.execute(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+            start.countDown();
+            assertBusy(() -> assertThat(executor.getCompletedTaskCount(), equalTo((long) frameSize * frames)));
+            // no completion is lost when threads end their tasks concurrently, so every frame is completed
+            assertBusy(() -> assertThat(executor.getCompletedFrames(), equalTo((long) frames)));
+        } finally {
+            terminate(executor);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.gateway;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.FailedNodeException;
+import org.elasticsearch.cluster.ClusterName;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.gateway.TransportNodesListGatewayStartedShards.NodeGatewayStartedShards;
+import org.elasticsearch.gateway.TransportNodesListGatewayStartedShards.NodesGatewayStartedShards;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class ShardFetchBatcherTests extends ESTestCase {
+
+    private final ShardId shard1 = new ShardId("test", 0);
+    private final ShardId shard2 = new ShardId("test", 1);
+    private final ShardId shard3 = new ShardId("other", 0);
+
+    public void testBatchesByNodes() {
+        TestAction action = new TestAction();
+        ShardFetchBatcher<NodesGatewayStartedShards, NodeGatewayStartedShards> batcher =
+                new ShardFetchBatcher<>(Loggers.getLogger(getClass()), "test", action, 100);
+        Map<ShardId, AtomicReference<NodesGatewayStartedShards>> responses = new HashMap<>();
+        for (ShardId shardId : new ShardId[] { shard1, shard2 }) {
+            responses.put(shardId, new AtomicReference<>());
+            batcher.list(shardId, null, new String[] { "node1", "node2" }, listener(responses.get(shardId)));
+        }
+        responses.put(shard3, new AtomicReference<>());
+        batcher.list(shard3, null, new String[] { "node2" }, listener(responses.get(shard3)));
+        assertThat(action.batches.size(), equalTo(0));
+        assertThat(batcher.getNumberOfPendingFetches(), equalTo(3));
+
+        batcher.flush();
+        assertThat(batcher.getNumberOfPendingFetches(), equalTo(0));
+        assertThat(action.batches.size(), equalTo(2));
+        Map<ShardId, NodesGatewayStartedShards> batchResponses = new HashMap<>();
+        for (Batch batch : action.batches) {
+            if (batch.nodesIds.length == 2) {
+                assertThat(batch.shards.keySet(), containsInAnyOrder(shard1, shard2));
+            } else {
+                assertThat(batch.shards.keySet(), containsInAnyOrder(shard3));
+            }
+            Map<ShardId, NodesGatewayStartedShards> shardResponses = new HashMap<>();
+            for (ShardId shardId : batch.shards.keySet()) {
+                shardResponses.put(shardId, new NodesGatewayStartedShards(ClusterName.DEFAULT, new NodeGatewayStartedShards[0],
+                        new FailedNodeException[0]));
+            }
+            batchResponses.putAll(shardResponses);
+            batch.listener.onResponse(shardResponses);
+        }
+        for (ShardId shardId : new ShardId[] { shard1, shard2, shard3 }) {
+            assertThat(responses.get(shardId).get(), sameInstance(batchResponses.get(shardId)));
+        }
+
+        // nothing left to send
+        batcher.flush();
+        assertThat(action.batches.size(), equalTo(2));
+    }
+
+    public void testFailure() {
+        TestAction action = new TestAction();
+        ShardFetchBatcher<NodesGatewayStartedShards, NodeGatewayStartedShards> batcher =
+                new ShardFetchBatcher<>(Loggers.getLogger(getClass()), "test", action, 100);
+        final List<Throwable> failures = new ArrayList<>();
+        for (ShardId shardId : new ShardId[] { shard1, shard2 }) {
+            batcher.list(shardId, null, new String[] { "node1" }, new ActionListener<NodesGatewayStartedShards>() {
+                @Override
+                public void onResponse(NodesGatewayStartedShards response) {
+                    fail("unexpected response");
+                }
+
+                @Override
+                public void onFailure(Throwable e) {
+                    failures.add(e);
+                }
+            });
+        }
+        batcher.flush();
+        assertThat(action.batches.size(), equalTo(1));
+        Exception failure = new Exception("simulated");
+        action.batches.get(0).listener.onFailure(failure);
+        assertThat(failures.size(), equalTo(2));
+        assertThat(failures.get(0), sameInstance(failure));
+        assertThat(failures.get(1), sameInstance(failure));
+    }
+
+    public void testMaxBatchSize() {
+        TestAction action = new TestAction();
+        ShardFetchBatcher<NodesGatewayStartedShards, NodeGatewayStartedShards> batcher =
+                new ShardFetchBatcher<>(Loggers.getLogger(getClass()), "test", action, 2);
+        AtomicReference<NodesGatewayStartedShards> response = new AtomicReference<>();
+        batcher.list(shard1, null, new String[] { "node1" }, listener(response));
+        assertThat(action.batches.size(), equalTo(0));
+        batcher.list(shard2, null, new String[] { "node1" }, listener(response));
+        // the batch is full, it is sent right away
+        assertThat(action.batches.size(), equalTo(1));
+        batcher.list(shard3, null, new String[] { "node1" }, listener(response));
+        assertThat(action.batches.size(), equalTo(1));
+        batcher.flush();
+        assertThat(action.batches.size(), equalTo(2));
+        assertThat(action.batches.get(1).shards.keySet(), containsInAnyOrder(shard3));
+        assertThat(response.get(), nullValue());
+    }
+
+    private static ActionListener<NodesGatewayStartedShards> listener(final AtomicReference<NodesGatewayStartedShards> response) {
+        return new ActionListener<NodesGatewayStartedShards>() {
+            @Override
+            public void onResponse(NodesGatewayStartedShards nodesResponse) {
+                assertTrue(response.compareAndSet(null, nodesResponse));
+            }
+
+            @Override
+            public void onFailure(Throwable e) {
+                throw new AssertionError(e);
+            }
+        };
+    }
+
+    private static class Batch {
+        final Map<ShardId, IndexMetaData> shards;
+        final String[] nodesIds;
+        final ActionListener<Map<ShardId, NodesGatewayStartedShards>> listener;
+
+        Batch(Map<ShardId, IndexMetaData> shards, String[] nodesIds, ActionListener<Map<ShardId, NodesGatewayStartedShards>> listener) {
+            this.shards = shards;
+            this.nodesIds = nodesIds;
+            this.listener = listener;
+        }
+    }
+
+    private static class TestAction implements AsyncShardFetch.BatchedList<NodesGatewayStartedShards, NodeGatewayStartedShards> {
+
+        final List<Batch> batches = new ArrayList<>();
+
+        @Override
+        public void list(Map<ShardId, IndexMetaData> shards, String[] nodesIds, ActionListener<Map<ShardId, NodesGatewayStartedShards>> listener) {
+            batches.add(new Batch(shards, nodesIds, listener));
+        }
+
+        @Override
+        public void list(ShardId shardId, IndexMetaData indexMetaData, String[] nodesIds, ActionListener<NodesGatewayStartedShards> listener) {
+            throw new UnsupportedOperationException("shards should be listed in batches");
+        }
+    }
+}
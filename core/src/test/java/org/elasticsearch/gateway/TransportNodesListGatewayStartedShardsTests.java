@@ -0,0 +1,148 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.gateway;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.action.FailedNodeException;
+import org.elasticsearch.cluster.ClusterName;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.transport.DummyTransportAddress;
+import org.elasticsearch.gateway.TransportNodesListGatewayStartedShards.NodeGatewayStartedShards;
+import org.elasticsearch.gateway.TransportNodesListGatewayStartedShards.NodeGatewayStartedShardsBatch;
+import org.elasticsearch.gateway.TransportNodesListGatewayStartedShards.NodesGatewayStartedShards;
+import org.elasticsearch.gateway.TransportNodesListGatewayStartedShards.NodesGatewayStartedShardsBatch;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonMap;
+import static org.hamcrest.Matchers.arrayWithSize;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.nullValue;
+
+public class TransportNodesListGatewayStartedShardsTests extends ESTestCase {
+
+    private final DiscoveryNode node1 = new DiscoveryNode("node1", DummyTransportAddress.INSTANCE, Version.CURRENT);
+    private final DiscoveryNode node2 = new DiscoveryNode("node2", DummyTransportAddress.INSTANCE, Version.CURRENT);
+    private final DiscoveryNode node3 = new DiscoveryNode("node3", DummyTransportAddress.INSTANCE, Version.CURRENT);
+    private final ShardId shard1 = new ShardId("test", 0);
+    private final ShardId shard2 = new ShardId("test", 1);
+
+    private NodesGatewayStartedShardsBatch response() {
+        Map<ShardId, NodeGatewayStartedShards> node1States = new HashMap<>();
+        node1States.put(shard1, new NodeGatewayStartedShards(node1, 3, "alloc1"));
+        node1States.put(shard2, new NodeGatewayStartedShards(node1, 2, null, new IllegalStateException("corrupted")));
+        NodeGatewayStartedShardsBatch node1Response = new NodeGatewayStartedShardsBatch(node1, node1States, emptyMap());
+        NodeGatewayStartedShardsBatch node2Response = new NodeGatewayStartedShardsBatch(node2,
+                singletonMap(shard1, new NodeGatewayStartedShards(node2, 5, "alloc2")),
+                singletonMap(shard2, new IllegalStateException("failed to list")));
+        FailedNodeException node3Failure = new FailedNodeException(node3.id(), "Failed node [" + node3.id() + "]",
+                new IllegalStateException("node left"));
+        return new NodesGatewayStartedShardsBatch(ClusterName.DEFAULT,
+                new NodeGatewayStartedShardsBatch[] { node1Response, node2Response }, new FailedNodeException[] { node3Failure });
+    }
+
+    private static NodesGatewayStartedShardsBatch roundTrip(NodesGatewayStartedShardsBatch response) throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        response.writeTo(out);
+        StreamInput in = StreamInput.wrap(out.bytes());
+        NodesGatewayStartedShardsBatch read = new NodesGatewayStartedShardsBatch();
+        read.readFrom(in);
+        return read;
+    }
+
+    public void testSerialization() throws IOException {
+        NodesGatewayStartedShardsBatch response = roundTrip(response());
+        assertThat(response.getClusterName(), equalTo(ClusterName.DEFAULT));
+        assertThat(response.getNodes(), arrayWithSize(2));
+
+        NodeGatewayStartedShardsBatch node1Response = response.getNodes()[0];
+        assertThat(node1Response.getNode(), equalTo(node1));
+        assertThat(node1Response.shardStates().size(), equalTo(2));
+        assertThat(node1Response.failures().size(), equalTo(0));
+        NodeGatewayStartedShards shard1State = node1Response.shardStates().get(shard1);
+        assertThat(shard1State.getNode(), equalTo(node1));
+        assertThat(shard1State.version(), equalTo(3L));
+        assertThat(shard1State.allocationId(), equalTo("alloc1"));
+        assertThat(shard1State.storeException(), nullValue());
+        NodeGatewayStartedShards shard2State = node1Response.shardStates().get(shard2);
+        assertThat(shard2State.version(), equalTo(2L));
+        assertThat(shard2State.allocationId(), nullValue());
+        assertThat(shard2State.storeException(), instanceOf(IllegalStateException.class));
+        assertThat(shard2State.storeException().getMessage(), equalTo("corrupted"));
+
+        NodeGatewayStartedShardsBatch node2Response = response.getNodes()[1];
+        assertThat(node2Response.getNode(), equalTo(node2));
+        assertThat(node2Response.shardStates().size(), equalTo(1));
+        assertThat(node2Response.shardStates().get(shard1).getNode(), equalTo(node2));
+        assertThat(node2Response.shardStates().get(shard1).version(), equalTo(5L));
+        assertThat(node2Response.failures().size(), equalTo(1));
+        assertThat(node2Response.failures().get(shard2), instanceOf(IllegalStateException.class));
+        assertThat(node2Response.failures().get(shard2).getMessage(), equalTo("failed to list"));
+
+        assertThat(response.failures(), arrayWithSize(1));
+        assertThat(response.failures()[0].nodeId(), equalTo(node3.id()));
+        assertThat(response.failures()[0].getCause().getMessage(), equalTo("node left"));
+    }
+
+    public void testByShard() throws IOException {
+        NodesGatewayStartedShardsBatch response = randomBoolean() ? response() : roundTrip(response());
+        ShardId missingShard = new ShardId("other", 0);
+        Map<ShardId, NodesGatewayStartedShards> byShard = response.byShard(new HashSet<>(Arrays.asList(shard1, shard2, missingShard)));
+        assertThat(byShard.size(), equalTo(3));
+
+        NodesGatewayStartedShards shard1Response = byShard.get(shard1);
+        assertThat(shard1Response.getClusterName(), equalTo(ClusterName.DEFAULT));
+        assertThat(shard1Response.getNodes(), arrayWithSize(2));
+        assertThat(shard1Response.getNodesMap().get(node1.id()).version(), equalTo(3L));
+        assertThat(shard1Response.getNodesMap().get(node2.id()).version(), equalTo(5L));
+        // the node that failed as a whole fails every shard
+        assertThat(shard1Response.failures(), arrayWithSize(1));
+        assertThat(shard1Response.failures()[0].nodeId(), equalTo(node3.id()));
+
+        // a store exception is part of the state of the shard, a failure to list it is a failure of the node
+        NodesGatewayStartedShards shard2Response = byShard.get(shard2);
+        assertThat(shard2Response.getNodes(), arrayWithSize(1));
+        assertThat(shard2Response.getNodes()[0].getNode(), equalTo(node1));
+        assertThat(shard2Response.getNodes()[0].storeException().getMessage(), equalTo("corrupted"));
+        assertThat(shard2Response.failures(), arrayWithSize(2));
+        assertThat(shard2Response.failures()[0].nodeId(), equalTo(node3.id()));
+        assertThat(shard2Response.failures()[1].nodeId(), equalTo(node2.id()));
+        assertThat(shard2Response.failures()[1].getCause().getMessage(), equalTo("failed to list"));
+
+        // a shard that a node didn't return at all is a failure of that node
+        NodesGatewayStartedShards missingResponse = byShard.get(missingShard);
+        assertThat(missingResponse.getNodes(), arrayWithSize(0));
+        assertThat(missingResponse.failures(), arrayWithSize(3));
+        assertThat(missingResponse.failures()[1].nodeId(), equalTo(node1.id()));
+        assertThat(missingResponse.failures()[1].getCause(), instanceOf(IllegalStateException.class));
+        assertThat(missingResponse.failures()[1].getCause().getMessage(), containsString("didn't return the state of shard"));
+        assertThat(missingResponse.failures()[2].nodeId(), equalTo(node2.id()));
+    }
+}
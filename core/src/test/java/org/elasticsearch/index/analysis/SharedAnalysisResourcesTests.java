@@ -0,0 +1,135 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.index.analysis;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.env.Environment;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.IndexSettings;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.test.IndexSettingsModule;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class SharedAnalysisResourcesTests extends ESTestCase {
+
+    public void testAcquireAndRelease() throws IOException {
+        SharedAnalysisResources resources = new SharedAnalysisResources();
+        AtomicInteger loads = new AtomicInteger();
+        SharedAnalysisResources.Loader<Object> loader = () -> {
+            loads.incrementAndGet();
+            return new Object();
+        };
+        String key = SharedAnalysisResources.key("test", "content");
+        SharedAnalysisResources.Reference<Object> first = resources.acquire(key, loader);
+        SharedAnalysisResources.Reference<Object> second = resources.acquire(key, loader);
+        assertThat(first.get(), sameInstance(second.get()));
+        assertThat(loads.get(), equalTo(1));
+        assertThat(resources.size(), equalTo(1));
+
+        first.close();
+        first.close(); // double release is a noop
+        assertThat(resources.size(), equalTo(1));
+        second.close();
+        assertThat(resources.size(), equalTo(0));
+
+        SharedAnalysisResources.Reference<Object> third = resources.acquire(key, loader);
+        assertThat(loads.get(), equalTo(2));
+        third.close();
+    }
+
+    public void testFailedLoadReleasesEntry() throws IOException {
+        SharedAnalysisResources resources = new SharedAnalysisResources();
+        try {
+            resources.acquire("key", () -> {
+                throw new IOException("boom");
+            });
+            fail("expected IOException");
+        } catch (IOException e) {
+            assertThat(e.getMessage(), equalTo("boom"));
+        }
+        assertThat(resources.size(), equalTo(0));
+    }
+
+    public void testSynonymMapsAreSharedAcrossIndices() throws IOException {
+        Settings settings = Settings.settingsBuilder()
+            .put("path.home", createTempDir().toString())
+            .put(IndexMetaData.SETTING_VERSION_CREATED, Version.CURRENT)
+            .put("index.analysis.filter.my_synonym.type", "synonym")
+            .putArray("index.analysis.filter.my_synonym.synonyms", "kimchy => shay", "dude => elasticsearch")
+            .build();
+        Settings otherSettings = Settings.settingsBuilder()
+            .put(settings)
+            .putArray("index.analysis.filter.my_synonym.synonyms", "kimchy => shay")
+            .build();
+        AnalysisRegistry registry = new AnalysisRegistry(null, new Environment(settings));
+        AnalysisService first = registry.build(IndexSettingsModule.newIndexSettings(new Index("first"), settings));
+        AnalysisService second = registry.build(IndexSettingsModule.newIndexSettings(new Index("second"), settings));
+        assertThat(registry.getSharedResources().size(), equalTo(1));
+        AnalysisService other = registry.build(IndexSettingsModule.newIndexSettings(new Index("other"), otherSettings));
+        assertThat(registry.getSharedResources().size(), equalTo(2));
+        assertThat(first.tokenFilter("my_synonym"), not(sameInstance(second.tokenFilter("my_synonym"))));
+
+        first.close();
+        assertThat(registry.getSharedResources().size(), equalTo(2));
+        second.close();
+        assertThat(registry.getSharedResources().size(), equalTo(1));
+        other.close();
+        assertThat(registry.getSharedResources().size(), equalTo(0));
+        registry.close();
+    }
+
+    public void testReferencesAreReleasedWhenAnalysisServiceFailsToBuild() throws IOException {
+        Settings.Builder builder = Settings.settingsBuilder()
+            .put("path.home", createTempDir().toString())
+            .put(IndexMetaData.SETTING_VERSION_CREATED, Version.CURRENT)
+            .put("index.analysis.filter.my_synonym.type", "synonym")
+            .putArray("index.analysis.filter.my_synonym.synonyms", "kimchy => shay");
+        final String expectedMessage;
+        if (randomBoolean()) {
+            // a later token filter fails to build
+            builder.put("index.analysis.filter.other_synonym.type", "synonym")
+                .putArray("index.analysis.filter.other_synonym.synonyms", "dude => elasticsearch")
+                .put("index.analysis.filter.other_synonym.tokenizer", "does_not_exist");
+            expectedMessage = "failed to find tokenizer [does_not_exist] for synonym token filter";
+        } else {
+            // the analysis service fails to build after all token filters were built
+            builder.put("index.analysis.analyzer.my_analyzer.tokenizer", "does_not_exist")
+                .putArray("index.analysis.analyzer.my_analyzer.filter", "my_synonym");
+            expectedMessage = "Custom Analyzer [my_analyzer] failed to find tokenizer under name [does_not_exist]";
+        }
+        Settings settings = builder.build();
+        AnalysisRegistry registry = new AnalysisRegistry(null, new Environment(settings));
+        try {
+            registry.build(IndexSettingsModule.newIndexSettings(new Index("test"), settings));
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), equalTo(expectedMessage));
+        }
+        assertThat(registry.getSharedResources().size(), equalTo(0));
+        registry.close();
+    }
+}
@@ -794,6 +794,49 @@ public class InternalEngineTests extends ESTestCase {
         }
     }
 
+    public void testRetainTranslogSinceSyncedFlush() throws IOException {
+        try (Store store = createStore();
+             Engine engine = new InternalEngine(config(defaultSettings, store, createTempDir(), new MergeSchedulerConfig(defaultSettings),
+                     new LogByteSizeMergePolicy()), false)) {
+            final String syncId = randomUnicodeOfCodepointLengthBetween(10, 20);
+            ParsedDocument doc = testParsedDocument("1", "1", "test", null, -1, -1, testDocumentWithTextField(), B_1, null);
+            engine.index(new Engine.Index(newUid("1"), doc));
+            assertThat(engine.acquireRetainedTranslogView(syncId, 1), nullValue());
+            Engine.CommitId commitID = engine.flush();
+            assertEquals(Engine.SyncedFlushResult.SUCCESS, engine.syncFlush(syncId, commitID));
+            assertThat(engine.acquireRetainedTranslogView(syncId + "1", 1), nullValue());
+            assertThat(engine.acquireRetainedTranslogView(syncId, 2), nullValue());
+
+            final int numDocs = randomIntBetween(1, 10);
+            for (int i = 0; i < numDocs; i++) {
+                doc = testParsedDocument(Integer.toString(i + 2), Integer.toString(i + 2), "test", null, -1, -1, testDocumentWithTextField(), B_1, null);
+                engine.index(new Engine.Index(newUid(Integer.toString(i + 2)), doc));
+                if (rarely()) {
+                    // regular commits must not release the operations since the synced flush
+                    engine.flush();
+                }
+            }
+            try (Translog.View view = engine.acquireRetainedTranslogView(syncId, 1)) {
+                assertThat(view, notNullValue());
+                assertEquals(numDocs, view.totalOperations());
+                engine.flush(true, true);
+                try (Translog.Snapshot snapshot = view.snapshot()) {
+                    for (int i = 0; i < numDocs; i++) {
+                        Translog.Operation op = snapshot.next();
+                        assertThat(op, notNullValue());
+                        assertEquals(Integer.toString(i + 2), ((Translog.Index) op).id());
+                    }
+                    assertThat(snapshot.next(), nullValue());
+                }
+                // the retained operations are released once they exceed the retention size, acquired views stay usable
+                engine.config().setTranslogRetentionSize(new ByteSizeValue(1));
+                engine.flush(true, true);
+                assertThat(engine.acquireRetainedTranslogView(syncId, 1), nullValue());
+                assertEquals(numDocs, view.totalOperations());
+            }
+        }
+    }
+
     public void testRenewSyncFlush() throws Exception {
         final int iters = randomIntBetween(2, 5); // run this a couple of times to get some coverage
         for (int i = 0; i < iters; i++) {
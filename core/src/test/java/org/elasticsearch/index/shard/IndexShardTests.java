@@ -104,6 +104,7 @@ import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -375,6 +376,59 @@ public class IndexShardTests extends ESSingleNodeTestCase {
         assertNotNull(indexStats.getShards()[0].getCommitStats().getUserData().get(Engine.SYNC_COMMIT_ID));
     }
 
+    public void testSearchIdleShardRefreshesOnSearch() throws Exception {
+        createIndex("test", settingsBuilder().put(SETTING_NUMBER_OF_SHARDS, 1).put(SETTING_NUMBER_OF_REPLICAS, 0)
+            .put(IndexShard.INDEX_REFRESH_INTERVAL, "10ms").put(IndexShard.INDEX_SEARCH_IDLE_AFTER, "0ms").build());
+        ensureGreen();
+        IndicesService indicesService = getInstanceFromNode(IndicesService.class);
+        IndexShard shard = indicesService.indexService("test").getShardOrNull(0);
+        assertTrue(shard.isSearchIdle());
+
+        client().prepareIndex("test", "test", "1").setSource("{}").get();
+        // scheduled refreshes are skipped, the search refreshes the shard instead
+        assertHitCount(client().prepareSearch("test").get(), 1);
+
+        assertAcked(client().admin().indices().prepareUpdateSettings("test")
+            .setSettings(settingsBuilder().put(IndexShard.INDEX_SEARCH_IDLE_AFTER, "-1").build()));
+        assertFalse(shard.isSearchIdle());
+    }
+
+    public void testConcurrentSearchesWaitForSearchIdleRefresh() throws Exception {
+        createIndex("test", settingsBuilder().put(SETTING_NUMBER_OF_SHARDS, 1).put(SETTING_NUMBER_OF_REPLICAS, 0)
+            .put(IndexShard.INDEX_REFRESH_INTERVAL, "10ms").put(IndexShard.INDEX_SEARCH_IDLE_AFTER, "100ms").build());
+        ensureGreen();
+        IndicesService indicesService = getInstanceFromNode(IndicesService.class);
+        IndexShard shard = indicesService.indexService("test").getShardOrNull(0);
+        final int rounds = randomIntBetween(1, 5);
+        for (int round = 0; round < rounds; round++) {
+            assertBusy(() -> assertTrue(shard.isSearchIdle()));
+            client().prepareIndex("test", "test", Integer.toString(round)).setSource("{}").get();
+            final int expectedDocs = round + 1;
+            final Thread[] threads = new Thread[randomIntBetween(2, 8)];
+            final CyclicBarrier barrier = new CyclicBarrier(threads.length);
+            final CopyOnWriteArrayList<Throwable> failures = new CopyOnWriteArrayList<>();
+            for (int i = 0; i < threads.length; i++) {
+                threads[i] = new Thread(() -> {
+                    try {
+                        barrier.await();
+                        shard.markSearcherAccessed();
+                        // no search may see the shard as no longer idle before the wake-up refresh is done
+                        try (Engine.Searcher searcher = shard.acquireSearcher("test")) {
+                            assertEquals(expectedDocs, searcher.reader().numDocs());
+                        }
+                    } catch (Throwable t) {
+                        failures.add(t);
+                    }
+                });
+                threads[i].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            assertTrue(failures.toString(), failures.isEmpty());
+        }
+    }
+
     public static ShardStateMetaData load(ESLogger logger, Path... shardPaths) throws IOException {
         return ShardStateMetaData.FORMAT.loadLatestState(logger, shardPaths);
     }
@@ -0,0 +1,94 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.index.shard;
+
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.SortedNumericSelector;
+import org.apache.lucene.search.SortedNumericSortField;
+import org.apache.lucene.search.SortedSetSelector;
+import org.apache.lucene.search.SortedSetSortField;
+import org.elasticsearch.index.fielddata.IndexFieldData.XFieldComparatorSource.Nested;
+import org.elasticsearch.index.fielddata.fieldcomparator.BytesRefFieldComparatorSource;
+import org.elasticsearch.index.fielddata.fieldcomparator.LongValuesComparatorSource;
+import org.elasticsearch.search.MultiValueMode;
+import org.elasticsearch.test.ESTestCase;
+
+public class IndexSortConfigTests extends ESTestCase {
+
+    private static final Sort INDEX_SORT = new Sort(
+        new SortedNumericSortField("rank", SortField.Type.LONG, false, SortedNumericSelector.Type.MIN),
+        new SortedSetSortField("name", true, SortedSetSelector.Type.MAX));
+
+    private static SortField rank(Object missing, MultiValueMode sortMode, Nested nested, boolean reverse) {
+        return new SortField("rank", new LongValuesComparatorSource(null, missing, sortMode, nested), reverse);
+    }
+
+    private static SortField name(Object missing, MultiValueMode sortMode, Nested nested, boolean reverse) {
+        return new SortField("name", new BytesRefFieldComparatorSource(null, missing, sortMode, nested), reverse);
+    }
+
+    public void testPrefixOfIndexSort() {
+        assertTrue(IndexSortConfig.canEarlyTerminate(INDEX_SORT, new Sort(rank(null, MultiValueMode.MIN, null, false))));
+        assertTrue(IndexSortConfig.canEarlyTerminate(INDEX_SORT, new Sort(rank("_last", MultiValueMode.MIN, null, false))));
+        assertTrue(IndexSortConfig.canEarlyTerminate(INDEX_SORT,
+            new Sort(rank(null, MultiValueMode.MIN, null, false), name(null, MultiValueMode.MAX, null, true))));
+        assertTrue(IndexSortConfig.canEarlyTerminate(INDEX_SORT, INDEX_SORT));
+    }
+
+    public void testNoSort() {
+        assertFalse(IndexSortConfig.canEarlyTerminate(null, new Sort(rank(null, MultiValueMode.MIN, null, false))));
+        assertFalse(IndexSortConfig.canEarlyTerminate(INDEX_SORT, null));
+    }
+
+    public void testDifferentFieldOrOrder() {
+        assertFalse(IndexSortConfig.canEarlyTerminate(INDEX_SORT, new Sort(name(null, MultiValueMode.MAX, null, true))));
+        assertFalse(IndexSortConfig.canEarlyTerminate(INDEX_SORT, new Sort(rank(null, MultiValueMode.MAX, null, true))));
+        assertFalse(IndexSortConfig.canEarlyTerminate(INDEX_SORT,
+            new Sort(rank(null, MultiValueMode.MIN, null, false), name(null, MultiValueMode.MIN, null, false))));
+        assertFalse(IndexSortConfig.canEarlyTerminate(INDEX_SORT, new Sort(SortField.FIELD_SCORE)));
+    }
+
+    public void testDifferentMissingValue() {
+        assertFalse(IndexSortConfig.canEarlyTerminate(INDEX_SORT, new Sort(rank("_first", MultiValueMode.MIN, null, false))));
+        assertFalse(IndexSortConfig.canEarlyTerminate(INDEX_SORT, new Sort(rank("42", MultiValueMode.MIN, null, false))));
+        assertFalse(IndexSortConfig.canEarlyTerminate(INDEX_SORT,
+            new Sort(rank(null, MultiValueMode.MIN, null, false), name("_first", MultiValueMode.MAX, null, true))));
+    }
+
+    public void testDifferentSortMode() {
+        for (MultiValueMode sortMode : new MultiValueMode[] { MultiValueMode.MAX, MultiValueMode.AVG, MultiValueMode.SUM,
+            MultiValueMode.MEDIAN }) {
+            assertFalse(IndexSortConfig.canEarlyTerminate(INDEX_SORT, new Sort(rank(null, sortMode, null, false))));
+        }
+        assertFalse(IndexSortConfig.canEarlyTerminate(INDEX_SORT,
+            new Sort(rank(null, MultiValueMode.MIN, null, false), name(null, MultiValueMode.MIN, null, true))));
+    }
+
+    public void testNestedSort() {
+        Nested nested = new Nested(null, null);
+        assertFalse(IndexSortConfig.canEarlyTerminate(INDEX_SORT, new Sort(rank(null, MultiValueMode.MIN, nested, false))));
+    }
+
+    public void testPlainSortFieldMustEqualIndexSortField() {
+        assertFalse(IndexSortConfig.canEarlyTerminate(INDEX_SORT, new Sort(new SortField("rank", SortField.Type.LONG))));
+        assertFalse(IndexSortConfig.canEarlyTerminate(INDEX_SORT,
+            new Sort(new SortedNumericSortField("rank", SortField.Type.LONG, false, SortedNumericSelector.Type.MAX))));
+    }
+}
@@ -20,6 +20,8 @@ package org.elasticsearch.indices;
 
 import org.apache.lucene.store.LockObtainFailedException;
 import org.elasticsearch.Version;
+import org.elasticsearch.action.admin.indices.stats.CommonStatsFlags;
+import org.elasticsearch.action.admin.indices.stats.CommonStatsFlags.Flag;
 import org.elasticsearch.cluster.ClusterService;
 import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.cluster.metadata.MetaData;
@@ -30,15 +32,23 @@ import org.elasticsearch.gateway.GatewayMetaState;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.IndexService;
 import org.elasticsearch.index.IndexSettings;
+import org.elasticsearch.index.NodeServicesProvider;
+import org.elasticsearch.index.shard.IndexEventListener;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.shard.ShardPath;
 import org.elasticsearch.test.ESSingleNodeTestCase;
 import org.elasticsearch.test.IndexSettingsModule;
 
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
 import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertHitCount;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.instanceOf;
 
 public class IndicesServiceTests extends ESSingleNodeTestCase {
 
@@ -135,6 +145,98 @@ public class IndicesServiceTests extends ESSingleNodeTestCase {
         ensureGreen("test");
     }
 
+    public void testConcurrentCreateAndDeleteOfSameIndex() throws Exception {
+        IndicesService indicesService = getIndicesService();
+        NodeServicesProvider nodeServicesProvider = getInstanceFromNode(NodeServicesProvider.class);
+        ClusterService clusterService = getInstanceFromNode(ClusterService.class);
+        IndexMetaData metaData = IndexMetaData.builder("test").settings(settings(Version.CURRENT)).numberOfShards(1)
+                .numberOfReplicas(0).build();
+        final CountDownLatch creating = new CountDownLatch(1);
+        final CountDownLatch proceed = new CountDownLatch(1);
+        IndexEventListener blockingListener = new IndexEventListener() {
+            @Override
+            public void beforeIndexCreated(Index index, Settings indexSettings) {
+                creating.countDown();
+                try {
+                    proceed.await();
+                } catch (InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+            }
+        };
+        final AtomicReference<IndexService> created = new AtomicReference<>();
+        final AtomicReference<Throwable> createFailure = new AtomicReference<>();
+        Thread creator = new Thread(() -> {
+            try {
+                created.set(indicesService.createIndex(nodeServicesProvider, metaData, Collections.singletonList(blockingListener)));
+            } catch (Throwable t) {
+                createFailure.set(t);
+            }
+        });
+        creator.start();
+        creating.await();
+
+        // the name is reserved, so a second creation fails right away
+        try {
+            indicesService.createIndex(nodeServicesProvider, metaData, Collections.emptyList());
+            fail("the index is already being created");
+        } catch (IndexAlreadyExistsException ex) {
+            // all good
+        }
+
+        // lookups don't wait for the creation, they may run on network threads
+        assertFalse(indicesService.hasIndex("test"));
+        assertNull(indicesService.indexService("test"));
+
+        final AtomicReference<Throwable> deleteFailure = new AtomicReference<>();
+        Thread deleter = new Thread(() -> {
+            try {
+                indicesService.deleteIndexStore("boom", metaData, clusterService.state(), false);
+            } catch (Throwable t) {
+                deleteFailure.set(t);
+            }
+        });
+        deleter.start();
+        // deleting the store waits for the creation to finish instead of deleting it underneath the new index
+        assertBusy(() -> assertThat(deleter.getState(), equalTo(Thread.State.WAITING)));
+        proceed.countDown();
+        creator.join();
+        deleter.join();
+
+        assertNull(createFailure.get());
+        assertTrue(indicesService.hasIndex("test"));
+        // the store of the newly created index was not deleted underneath it
+        assertThat(deleteFailure.get(), instanceOf(IllegalStateException.class));
+        assertSame(created.get(), indicesService.indexService("test"));
+        indicesService.deleteIndex("test", "simon says");
+        assertFalse(indicesService.hasIndex("test"));
+    }
+
+    public void testResetLatencyOfClosedShards() throws Exception {
+        IndicesService indicesService = getIndicesService();
+        createIndex("test");
+        client().prepareIndex("test", "type", "1").setSource("field", "value").get();
+        client().prepareGet("test", "type", "1").get();
+        client().admin().indices().prepareRefresh("test").get();
+        client().prepareSearch("test").get();
+        // the stats of closed shards are kept by the node
+        assertAcked(client().admin().indices().prepareDelete("test"));
+
+        CommonStatsFlags flags = new CommonStatsFlags(Flag.Get, Flag.Indexing, Flag.Search).resetLatency(true);
+        NodeIndicesStats stats = indicesService.stats(true, flags);
+        assertThat(stats.getGet().getLatency().getCount(), equalTo(1L));
+        assertThat(stats.getIndexing().getTotal().getIndexLatency().getCount(), equalTo(1L));
+        assertThat(stats.getSearch().getTotal().getQueryLatency().getCount(), greaterThan(0L));
+
+        // only the latencies start over, the counters are kept
+        stats = indicesService.stats(true, flags);
+        assertThat(stats.getGet().getCount(), equalTo(1L));
+        assertThat(stats.getGet().getLatency().getCount(), equalTo(0L));
+        assertThat(stats.getIndexing().getTotal().getIndexCount(), equalTo(1L));
+        assertThat(stats.getIndexing().getTotal().getIndexLatency().getCount(), equalTo(0L));
+        assertThat(stats.getSearch().getTotal().getQueryLatency().getCount(), equalTo(0L));
+    }
+
     public void testPendingTasks() throws Exception {
         IndicesService indicesService = getIndicesService();
         IndexService test = createIndex("test");
@@ -0,0 +1,261 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.indices.cache.docfreq;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.indices.breaker.HierarchyCircuitBreakerService;
+import org.elasticsearch.test.ESTestCase;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class IndicesDocFreqCacheTests extends ESTestCase {
+
+    private static HierarchyCircuitBreakerService breakerService(String fielddataLimit) {
+        Settings settings = Settings.builder()
+            .put(HierarchyCircuitBreakerService.FIELDDATA_CIRCUIT_BREAKER_LIMIT_SETTING.getKey(), fielddataLimit)
+            .build();
+        return new HierarchyCircuitBreakerService(settings,
+            new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS));
+    }
+
+    private static IndicesDocFreqCache cache(String size, HierarchyCircuitBreakerService breakerService) {
+        return new IndicesDocFreqCache(Settings.builder().put(IndicesDocFreqCache.INDICES_CACHE_DOC_FREQ_SIZE, size).build(),
+            breakerService);
+    }
+
+    private static DirectoryReader openReader(Directory dir) throws Exception {
+        try (IndexWriter w = new IndexWriter(dir, newIndexWriterConfig())) {
+            Document doc = new Document();
+            doc.add(new StringField("tag", "a", Field.Store.NO));
+            w.addDocument(doc);
+        }
+        return DirectoryReader.open(dir);
+    }
+
+    public void testTotalSizeIsBounded() throws Exception {
+        HierarchyCircuitBreakerService breakerService = breakerService("60%");
+        CircuitBreaker breaker = breakerService.getBreaker(CircuitBreaker.FIELDDATA);
+        IndicesDocFreqCache cache = cache("10kb", breakerService);
+        try (Directory dir = newDirectory(); DirectoryReader reader = openReader(dir)) {
+            LeafReaderContext context = reader.leaves().get(0);
+            Index index = new Index("test");
+            IndicesDocFreqCache.Segment unfiltered = cache.segment(index, context, "tag", null);
+            IndicesDocFreqCache.Segment filtered = cache.segment(index, context, "tag", new TermQuery(new Term("tag", "a")));
+            final int numTerms = 1000;
+            for (int i = 0; i < numTerms; i++) {
+                BytesRef term = new BytesRef("term" + i);
+                (randomBoolean() ? unfiltered : filtered).cacheDocFreq(term, i);
+                assertThat(cache.ramBytesUsed(), lessThanOrEqualTo(10L * 1024));
+                assertThat(breaker.getUsed(), equalTo(cache.ramBytesUsed()));
+            }
+            assertThat(cache.count(), lessThan(numTerms));
+            // the most recently cached frequency is still there, the least recently used ones were evicted
+            BytesRef last = new BytesRef("term" + (numTerms - 1));
+            assertThat(Math.max(unfiltered.docFreq(last), filtered.docFreq(last)), equalTo(numTerms - 1));
+            assertThat(Math.max(unfiltered.docFreq(new BytesRef("term0")), filtered.docFreq(new BytesRef("term0"))), equalTo(-1));
+        }
+        cache.close();
+        assertThat(cache.count(), equalTo(0));
+        assertThat(breaker.getUsed(), equalTo(0L));
+    }
+
+    public void testNotCachedWhenBreakerTrips() throws Exception {
+        HierarchyCircuitBreakerService breakerService = breakerService("1b");
+        IndicesDocFreqCache cache = cache("1mb", breakerService);
+        try (Directory dir = newDirectory(); DirectoryReader reader = openReader(dir)) {
+            IndicesDocFreqCache.Segment segment = cache.segment(new Index("test"), reader.leaves().get(0), "tag", null);
+            segment.cacheDocFreq(new BytesRef("a"), 1);
+            segment.cacheNumDocs(1);
+            assertThat(segment.docFreq(new BytesRef("a")), equalTo(-1));
+            assertThat(segment.numDocs(), equalTo(-1));
+            assertThat(cache.count(), equalTo(0));
+            assertThat(breakerService.getBreaker(CircuitBreaker.FIELDDATA).getUsed(), equalTo(0L));
+        }
+        cache.close();
+    }
+
+    public void testDroppedWhenSegmentIsClosed() throws Exception {
+        HierarchyCircuitBreakerService breakerService = breakerService("60%");
+        IndicesDocFreqCache cache = cache("1mb", breakerService);
+        try (Directory dir = newDirectory()) {
+            DirectoryReader reader = openReader(dir);
+            IndicesDocFreqCache.Segment segment = cache.segment(new Index("test"), reader.leaves().get(0), "tag", null);
+            segment.cacheDocFreq(new BytesRef("a"), 1);
+            assertThat(segment.docFreq(new BytesRef("a")), equalTo(1));
+            assertThat(cache.count(), equalTo(1));
+            reader.close();
+            assertThat(cache.count(), equalTo(0));
+            assertThat(breakerService.getBreaker(CircuitBreaker.FIELDDATA).getUsed(), equalTo(0L));
+        }
+        cache.close();
+    }
+
+    public void testClearIndex() throws Exception {
+        HierarchyCircuitBreakerService breakerService = breakerService("60%");
+        IndicesDocFreqCache cache = cache("1mb", breakerService);
+        try (Directory dir = newDirectory(); DirectoryReader reader = openReader(dir)) {
+            LeafReaderContext context = reader.leaves().get(0);
+            IndicesDocFreqCache.Segment first = cache.segment(new Index("first"), context, "tag", null);
+            IndicesDocFreqCache.Segment second = cache.segment(new Index("second"), context, "tag", null);
+            first.cacheDocFreq(new BytesRef("a"), 1);
+            second.cacheDocFreq(new BytesRef("a"), 1);
+            cache.clear(new Index("first"));
+            assertThat(first.docFreq(new BytesRef("a")), equalTo(-1));
+            assertThat(second.docFreq(new BytesRef("a")), equalTo(1));
+            assertThat(breakerService.getBreaker(CircuitBreaker.FIELDDATA).getUsed(), equalTo(cache.ramBytesUsed()));
+        }
+        cache.close();
+    }
+
+    public void testHits() throws Exception {
+        HierarchyCircuitBreakerService breakerService = breakerService("60%");
+        IndicesDocFreqCache cache = cache("1mb", breakerService);
+        try (Directory dir = newDirectory(); DirectoryReader reader = openReader(dir)) {
+            LeafReaderContext context = reader.leaves().get(0);
+            Index index = new Index("test");
+            TermQuery filter = new TermQuery(new Term("tag", "a"));
+            IndicesDocFreqCache.Segment unfiltered = cache.segment(index, context, "tag", null);
+            IndicesDocFreqCache.Segment filtered = cache.segment(index, context, "tag", filter);
+            unfiltered.cacheDocFreq(new BytesRef("a"), 3);
+            filtered.cacheDocFreq(new BytesRef("a"), 2);
+            filtered.cacheNumDocs(5);
+
+            // segments that are looked up again share the cached frequencies
+            IndicesDocFreqCache.Segment again = cache.segment(index, context, "tag", new TermQuery(new Term("tag", "a")));
+            assertThat(again.docFreq(new BytesRef("a")), equalTo(2));
+            assertThat(again.numDocs(), equalTo(5));
+            assertThat(cache.segment(index, context, "tag", null).docFreq(new BytesRef("a")), equalTo(3));
+            assertThat(unfiltered.numDocs(), equalTo(-1));
+            // other terms, fields, filters and indices are not
+            assertThat(unfiltered.docFreq(new BytesRef("b")), equalTo(-1));
+            assertThat(cache.segment(index, context, "other", null).docFreq(new BytesRef("a")), equalTo(-1));
+            assertThat(cache.segment(index, context, "tag", new TermQuery(new Term("tag", "b"))).numDocs(), equalTo(-1));
+            assertThat(cache.segment(new Index("other"), context, "tag", null).docFreq(new BytesRef("a")), equalTo(-1));
+            assertThat(cache.count(), equalTo(3));
+            assertThat(breakerService.getBreaker(CircuitBreaker.FIELDDATA).getUsed(), equalTo(cache.ramBytesUsed()));
+        }
+        cache.close();
+    }
+
+    public void testDeletesInvalidateFilteredCounts() throws Exception {
+        HierarchyCircuitBreakerService breakerService = breakerService("60%");
+        IndicesDocFreqCache cache = cache("1mb", breakerService);
+        Index index = new Index("test");
+        TermQuery filter = new TermQuery(new Term("tag", "a"));
+        try (Directory dir = newDirectory(); IndexWriter w = new IndexWriter(dir, newIndexWriterConfig())) {
+            for (String id : new String[] { "1", "2" }) {
+                Document doc = new Document();
+                doc.add(new StringField("id", id, Field.Store.NO));
+                doc.add(new StringField("tag", "a", Field.Store.NO));
+                w.addDocument(doc);
+            }
+            w.commit();
+            try (DirectoryReader reader = DirectoryReader.open(w, true)) {
+                LeafReaderContext context = reader.leaves().get(0);
+                cache.segment(index, context, "tag", null).cacheDocFreq(new BytesRef("a"), 2);
+                cache.segment(index, context, "tag", filter).cacheDocFreq(new BytesRef("a"), 2);
+                cache.segment(index, context, "tag", filter).cacheNumDocs(2);
+
+                w.deleteDocuments(new Term("id", "1"));
+                try (DirectoryReader withDeletes = DirectoryReader.openIfChanged(reader, w, true)) {
+                    LeafReaderContext newContext = withDeletes.leaves().get(0);
+                    assertSame(context.reader().getCoreCacheKey(), newContext.reader().getCoreCacheKey());
+                    assertThat(newContext.reader().numDeletedDocs(), equalTo(1));
+                    // the terms dictionary ignores deletes, so unfiltered frequencies still apply
+                    assertThat(cache.segment(index, newContext, "tag", null).docFreq(new BytesRef("a")), equalTo(2));
+                    // but counts through a filter only count live documents
+                    IndicesDocFreqCache.Segment filtered = cache.segment(index, newContext, "tag", filter);
+                    assertThat(filtered.docFreq(new BytesRef("a")), equalTo(-1));
+                    assertThat(filtered.numDocs(), equalTo(-1));
+                    filtered.cacheNumDocs(1);
+                    assertThat(filtered.numDocs(), equalTo(1));
+                }
+                // the reader without deletes still sees its own counts
+                assertThat(cache.segment(index, context, "tag", filter).numDocs(), equalTo(2));
+            }
+        }
+        assertThat(cache.count(), equalTo(0));
+        assertThat(breakerService.getBreaker(CircuitBreaker.FIELDDATA).getUsed(), equalTo(0L));
+        cache.close();
+    }
+
+    public void testEvictionReleasesBreaker() throws Exception {
+        HierarchyCircuitBreakerService breakerService = breakerService("60%");
+        CircuitBreaker breaker = breakerService.getBreaker(CircuitBreaker.FIELDDATA);
+        IndicesDocFreqCache cache = cache("1kb", breakerService);
+        try (Directory dir = newDirectory()) {
+            DirectoryReader reader = openReader(dir);
+            IndicesDocFreqCache.Segment segment = cache.segment(new Index("test"), reader.leaves().get(0), "tag", null);
+            for (int i = 0; i < 100; i++) {
+                segment.cacheDocFreq(new BytesRef("term" + i), i);
+            }
+            assertThat(cache.count(), lessThan(100));
+            assertThat(breaker.getUsed(), equalTo(cache.ramBytesUsed()));
+            // replacing a frequency releases what the replaced one held
+            long used = breaker.getUsed();
+            segment.cacheDocFreq(new BytesRef("term99"), 99);
+            assertThat(breaker.getUsed(), equalTo(used));
+            reader.close();
+            assertThat(cache.count(), equalTo(0));
+            assertThat(breaker.getUsed(), equalTo(0L));
+        }
+        cache.close();
+    }
+
+    public void testOnlyClosedSegmentIsDropped() throws Exception {
+        HierarchyCircuitBreakerService breakerService = breakerService("60%");
+        IndicesDocFreqCache cache = cache("1mb", breakerService);
+        try (Directory firstDir = newDirectory(); Directory secondDir = newDirectory();
+             DirectoryReader second = openReader(secondDir)) {
+            DirectoryReader first = openReader(firstDir);
+            Index index = new Index("test");
+            IndicesDocFreqCache.Segment firstSegment = cache.segment(index, first.leaves().get(0), "tag", null);
+            IndicesDocFreqCache.Segment secondSegment = cache.segment(index, second.leaves().get(0), "tag", null);
+            final int numTerms = randomIntBetween(1, 100);
+            for (int i = 0; i < numTerms; i++) {
+                firstSegment.cacheDocFreq(new BytesRef("term" + i), i);
+                secondSegment.cacheDocFreq(new BytesRef("term" + i), i);
+            }
+            assertThat(cache.count(), equalTo(2 * numTerms));
+            first.close();
+            assertThat(cache.count(), equalTo(numTerms));
+            for (int i = 0; i < numTerms; i++) {
+                assertThat(secondSegment.docFreq(new BytesRef("term" + i)), equalTo(i));
+            }
+            assertThat(breakerService.getBreaker(CircuitBreaker.FIELDDATA).getUsed(), equalTo(cache.ramBytesUsed()));
+        }
+        assertThat(cache.count(), equalTo(0));
+        cache.close();
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.indices.cluster;
+
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.equalTo;
+
+public class IndicesClusterStateServiceTests extends ESTestCase {
+
+    public void testRunConcurrentlyRunsAllTasksAndReportsEveryFailure() throws Exception {
+        ExecutorService executor = EsExecutors.newFixed("test", 3, 10, EsExecutors.daemonThreadFactory("test"));
+        try {
+            final int numTasks = randomIntBetween(1, 50);
+            final Set<Integer> completed = ConcurrentHashMap.newKeySet();
+            final List<String> failures = new CopyOnWriteArrayList<>();
+            final List<String> expectedFailures = new ArrayList<>();
+            final List<Runnable> tasks = new ArrayList<>();
+            for (int i = 0; i < numTasks; i++) {
+                final int id = i;
+                if (randomBoolean()) {
+                    expectedFailures.add("task " + id);
+                    tasks.add(() -> {
+                        throw new IllegalStateException("task " + id);
+                    });
+                } else {
+                    tasks.add(() -> completed.add(id));
+                }
+            }
+            IndicesClusterStateService.runConcurrently(executor, randomIntBetween(1, 4), tasks, t -> failures.add(t.getMessage()));
+            // all tasks are done once the call returns, failures did not prevent the remaining tasks from running
+            assertThat(completed.size() + failures.size(), equalTo(numTasks));
+            assertThat(failures, containsInAnyOrder(expectedFailures.toArray(new String[0])));
+        } finally {
+            terminate(executor);
+        }
+    }
+
+    public void testRunConcurrentlyRunsRejectedWorkOnCallingThread() throws Exception {
+        final Thread caller = Thread.currentThread();
+        final AtomicInteger rejections = new AtomicInteger();
+        final AtomicInteger ranOnCaller = new AtomicInteger();
+        final int numTasks = randomIntBetween(2, 20);
+        final List<Runnable> tasks = new ArrayList<>();
+        for (int i = 0; i < numTasks; i++) {
+            tasks.add(() -> {
+                if (Thread.currentThread() == caller) {
+                    ranOnCaller.incrementAndGet();
+                }
+            });
+        }
+        IndicesClusterStateService.runConcurrently(command -> {
+            rejections.incrementAndGet();
+            throw new EsRejectedExecutionException("rejected");
+        }, 4, tasks, t -> fail("unexpected failure " + t));
+        assertThat(rejections.get(), equalTo(Math.min(4, numTasks) - 1));
+        assertThat(ranOnCaller.get(), equalTo(numTasks));
+    }
+}
@@ -20,13 +20,18 @@
 package org.elasticsearch.indices.memory.breaker;
 
 import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
 import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.indices.breaker.BreakerSettings;
 import org.elasticsearch.indices.breaker.CircuitBreakerService;
+import org.elasticsearch.indices.breaker.CircuitBreakerStats;
 import org.elasticsearch.indices.breaker.HierarchyCircuitBreakerService;
 import org.elasticsearch.test.ESTestCase;
 
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
@@ -76,4 +81,53 @@ public class CircuitBreakerUnitTests extends ESTestCase {
         assertThat(breaker, instanceOf(CircuitBreaker.class));
         assertThat(breaker.getName(), is(customName));
     }
+
+    public void testParentBreakerUsesRealMemory() throws Exception {
+        Settings settings = Settings.builder()
+                .put(HierarchyCircuitBreakerService.USE_REAL_MEMORY_USAGE_SETTING.getKey(), true)
+                .put(HierarchyCircuitBreakerService.TOTAL_CIRCUIT_BREAKER_LIMIT_SETTING.getKey(), "200b")
+                .put(HierarchyCircuitBreakerService.REQUEST_CIRCUIT_BREAKER_LIMIT_SETTING.getKey(), "300b")
+                .build();
+        final AtomicLong memoryUsage = new AtomicLong();
+        HierarchyCircuitBreakerService service = new HierarchyCircuitBreakerService(settings,
+                new ClusterSettings(settings, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS)) {
+            @Override
+            protected long currentMemoryUsage() {
+                return memoryUsage.get();
+            }
+        };
+        CircuitBreaker requestBreaker = service.getBreaker(CircuitBreaker.REQUEST);
+
+        // the accounted usage is below the parent limit, but the real usage is not
+        memoryUsage.set(150);
+        requestBreaker.addEstimateBytesAndMaybeBreak(40, "should not break");
+        try {
+            requestBreaker.addEstimateBytesAndMaybeBreak(60, "should break");
+            fail("should have tripped the parent breaker");
+        } catch (CircuitBreakingException e) {
+            assertThat(e.getMessage(), containsString("real usage: [150/150b], new bytes reserved: [60/60b]"));
+            assertThat(e.getBytesWanted(), equalTo(210L));
+            assertThat(e.getByteLimit(), equalTo(200L));
+        }
+        assertThat(requestBreaker.getUsed(), equalTo(40L));
+
+        // releasing memory never trips the breaker
+        memoryUsage.set(500);
+        requestBreaker.addWithoutBreaking(-40);
+        assertThat(requestBreaker.getUsed(), equalTo(0L));
+
+        // the parent stats report the real memory usage
+        CircuitBreakerStats parentStats = service.stats().getStats(CircuitBreaker.PARENT);
+        assertThat(parentStats.getEstimated(), equalTo(500L));
+        assertThat(parentStats.getLimit(), equalTo(200L));
+        assertThat(parentStats.getTrippedCount(), equalTo(1L));
+    }
+
+    public void testRealMemoryChangesDefaultParentLimit() {
+        long accountingLimit = HierarchyCircuitBreakerService.TOTAL_CIRCUIT_BREAKER_LIMIT_SETTING.get(Settings.EMPTY).bytes();
+        long realMemoryLimit = HierarchyCircuitBreakerService.TOTAL_CIRCUIT_BREAKER_LIMIT_SETTING.get(Settings.builder()
+                .put(HierarchyCircuitBreakerService.USE_REAL_MEMORY_USAGE_SETTING.getKey(), true).build()).bytes();
+        assertThat(accountingLimit, equalTo(pctBytes("70%")));
+        assertThat(realMemoryLimit, equalTo(pctBytes("95%")));
+    }
 }
@@ -0,0 +1,84 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.indices.recovery;
+
+import org.apache.lucene.util.Version;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.ChannelBufferBytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.index.store.StoreFileMetaData;
+import org.elasticsearch.test.ESTestCase;
+import org.jboss.netty.buffer.ChannelBuffers;
+
+import java.nio.ByteBuffer;
+
+import static org.hamcrest.Matchers.equalTo;
+
+public class RecoveryFileChunkRequestTests extends ESTestCase {
+
+    public void testThinSerialization() throws Exception {
+        final byte[] bytes = randomBytes(randomIntBetween(0, 1024));
+        final BytesReference content;
+        if (randomBoolean()) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+            buffer.put(bytes);
+            buffer.flip();
+            content = new ChannelBufferBytesReference(ChannelBuffers.wrappedBuffer(buffer));
+        } else {
+            content = new BytesArray(bytes);
+        }
+        StoreFileMetaData metaData = new StoreFileMetaData("_0.cfs", bytes.length + randomIntBetween(0, 100),
+                randomBoolean() ? null : "abc", randomBoolean() ? null : Version.LATEST);
+        RecoveryFileChunkRequest request = new RecoveryFileChunkRequest(randomLong(), new ShardId("test", 0), metaData,
+                randomIntBetween(0, 100), content, randomBoolean(), randomIntBetween(0, 1000), randomLong());
+
+        BytesStreamOutput full = new BytesStreamOutput();
+        request.writeTo(full);
+
+        // what the network layer sends when it does not copy the payload
+        BytesStreamOutput thin = new BytesStreamOutput();
+        request.writeThin(thin);
+        request.payload().writeTo(thin);
+        request.writeTrailer(thin);
+        assertThat(thin.bytes().toBytesArray(), equalTo(full.bytes().toBytesArray()));
+
+        StreamInput in = StreamInput.wrap(thin.bytes());
+        RecoveryFileChunkRequest read = new RecoveryFileChunkRequest();
+        read.readFrom(in);
+        assertThat(read.recoveryId(), equalTo(request.recoveryId()));
+        assertThat(read.shardId(), equalTo(request.shardId()));
+        assertThat(read.name(), equalTo(request.name()));
+        assertThat(read.position(), equalTo(request.position()));
+        assertThat(read.length(), equalTo(request.length()));
+        assertThat(read.checksum(), equalTo(request.checksum()));
+        assertThat(read.content().toBytesArray(), equalTo(new BytesArray(bytes)));
+        assertThat(read.lastChunk(), equalTo(request.lastChunk()));
+        assertThat(read.totalTranslogOps(), equalTo(request.totalTranslogOps()));
+        assertThat(read.sourceThrottleTimeInNanos(), equalTo(request.sourceThrottleTimeInNanos()));
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        random().nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.indices.recovery;
+
+import org.elasticsearch.action.admin.indices.recovery.RecoveryResponse;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.cluster.routing.ShardRouting;
+import org.elasticsearch.cluster.routing.allocation.decider.EnableAllocationDecider;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.engine.EngineConfig;
+import org.elasticsearch.test.ESIntegTestCase;
+import org.elasticsearch.test.ESIntegTestCase.ClusterScope;
+import org.elasticsearch.test.ESIntegTestCase.Scope;
+import org.elasticsearch.test.InternalTestCluster;
+
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertHitCount;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+
+/**
+ * Tests that a replica which still holds the commit of a synced flush is recovered by replaying the translog
+ * operations that the primary retained since that flush, and that recoveries fall back to copying files otherwise.
+ */
+@ClusterScope(scope = Scope.TEST, numDataNodes = 0)
+public class RetainedTranslogRecoveryIT extends ESIntegTestCase {
+
+    public void testReplaysRetainedTranslogWhenSyncIdMatches() throws Exception {
+        final int numDocsAfterSyncedFlush = randomIntBetween(1, 50);
+        RecoveryState recoveryState = restartReplica(Settings.EMPTY, true, numDocsAfterSyncedFlush);
+        // the replica keeps all of its files, only the operations since the synced flush are replayed
+        assertThat(recoveryState.getIndex().totalFileCount(), equalTo(0));
+        assertThat(recoveryState.getTranslog().recoveredOperations(), equalTo(numDocsAfterSyncedFlush));
+    }
+
+    public void testFallsBackToPhase1WhenRetentionIsExceeded() throws Exception {
+        // a size of 0 disables the retention, any operation exceeds a retention of a single byte
+        Settings settings = Settings.builder()
+                .put(EngineConfig.INDEX_TRANSLOG_RETENTION_SIZE_SETTING, randomFrom("0", "1b"))
+                .build();
+        RecoveryState recoveryState = restartReplica(settings, true, randomIntBetween(1, 50));
+        // the sync ids still match, so the files are compared but all of them are reused
+        assertThat(recoveryState.getIndex().totalFileCount(), greaterThan(0));
+        assertThat(recoveryState.getIndex().reusedFileCount(), equalTo(recoveryState.getIndex().totalFileCount()));
+    }
+
+    public void testFallsBackToPhase1WithoutSyncId() throws Exception {
+        RecoveryState recoveryState = restartReplica(Settings.EMPTY, false, randomIntBetween(1, 50));
+        assertThat(recoveryState.getIndex().totalFileCount(), greaterThan(0));
+    }
+
+    /**
+     * Indexes documents into a single shard index with one replica, optionally synced flushes it, restarts the node that holds
+     * the replica while indexing more documents and returns the state of the recovery of the replica.
+     */
+    private RecoveryState restartReplica(Settings indexSettings, boolean syncedFlush, int numDocsWhileStopped) throws Exception {
+        internalCluster().startMasterOnlyNode(Settings.EMPTY);
+        internalCluster().startDataOnlyNodesAsync(2).get();
+        assertAcked(prepareCreate("test").setSettings(Settings.builder().put(indexSettings)
+                .put(IndexMetaData.SETTING_NUMBER_OF_SHARDS, 1)
+                .put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 1)
+                .put(EnableAllocationDecider.INDEX_ROUTING_REBALANCE_ENABLE, EnableAllocationDecider.Rebalance.NONE)));
+        ensureGreen("test");
+
+        final int numDocs = randomIntBetween(1, 100);
+        for (int i = 0; i < numDocs; i++) {
+            client().prepareIndex("test", "type", Integer.toString(i)).setSource("field", "value").get();
+        }
+        client().admin().indices().prepareFlush("test").setWaitIfOngoing(true).get();
+        if (syncedFlush) {
+            assertThat(client().admin().indices().prepareSyncedFlush("test").get().failedShards(), equalTo(0));
+        }
+
+        ClusterState state = client().admin().cluster().prepareState().get().getState();
+        ShardRouting replica = state.routingTable().index("test").shard(0).replicaShards().get(0);
+        String replicaNode = state.nodes().get(replica.currentNodeId()).name();
+        internalCluster().restartNode(replicaNode, new InternalTestCluster.RestartCallback() {
+            @Override
+            public Settings onNodeStopped(String nodeName) throws Exception {
+                for (int i = 0; i < numDocsWhileStopped; i++) {
+                    client().prepareIndex("test", "type", Integer.toString(numDocs + i)).setSource("field", "value").get();
+                }
+                return super.onNodeStopped(nodeName);
+            }
+        });
+        ensureGreen("test");
+
+        refresh();
+        assertHitCount(client().prepareSearch("test").setPreference("_replica").setSize(0).get(), numDocs + numDocsWhileStopped);
+        RecoveryResponse recoveryResponse = client().admin().indices().prepareRecoveries("test").get();
+        for (RecoveryState recoveryState : recoveryResponse.shardRecoveryStates().get("test")) {
+            if (recoveryState.getPrimary() == false) {
+                assertThat(recoveryState.getType(), equalTo(RecoveryState.Type.REPLICA));
+                return recoveryState;
+            }
+        }
+        throw new AssertionError("no recovery of the replica found");
+    }
+}
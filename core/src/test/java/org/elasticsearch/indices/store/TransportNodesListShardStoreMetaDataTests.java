@@ -0,0 +1,158 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.indices.store;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.action.FailedNodeException;
+import org.elasticsearch.cluster.ClusterName;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.transport.DummyTransportAddress;
+import org.elasticsearch.index.engine.Engine;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.index.store.Store;
+import org.elasticsearch.index.store.StoreFileMetaData;
+import org.elasticsearch.indices.store.TransportNodesListShardStoreMetaData.NodeStoreFilesMetaDataBatch;
+import org.elasticsearch.indices.store.TransportNodesListShardStoreMetaData.NodesStoreFilesMetaData;
+import org.elasticsearch.indices.store.TransportNodesListShardStoreMetaData.NodesStoreFilesMetaDataBatch;
+import org.elasticsearch.indices.store.TransportNodesListShardStoreMetaData.StoreFilesMetaData;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonMap;
+import static org.hamcrest.Matchers.arrayWithSize;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.nullValue;
+
+public class TransportNodesListShardStoreMetaDataTests extends ESTestCase {
+
+    private final DiscoveryNode node1 = new DiscoveryNode("node1", DummyTransportAddress.INSTANCE, Version.CURRENT);
+    private final DiscoveryNode node2 = new DiscoveryNode("node2", DummyTransportAddress.INSTANCE, Version.CURRENT);
+    private final DiscoveryNode node3 = new DiscoveryNode("node3", DummyTransportAddress.INSTANCE, Version.CURRENT);
+    private final ShardId shard1 = new ShardId("test", 0);
+    private final ShardId shard2 = new ShardId("test", 1);
+
+    private StoreFilesMetaData storeFilesMetaData(ShardId shardId) {
+        Map<String, StoreFileMetaData> files = new HashMap<>();
+        files.put("segments_1", new StoreFileMetaData("segments_1", 100, "abc", org.apache.lucene.util.Version.LATEST));
+        files.put("_0.cfs", new StoreFileMetaData("_0.cfs", 1000, "def", org.apache.lucene.util.Version.LATEST));
+        return new StoreFilesMetaData(true, shardId, new Store.MetadataSnapshot(files, singletonMap(Engine.SYNC_COMMIT_ID, "sync"), 10));
+    }
+
+    private NodesStoreFilesMetaDataBatch response() {
+        Map<ShardId, StoreFilesMetaData> node1MetaData = new HashMap<>();
+        node1MetaData.put(shard1, storeFilesMetaData(shard1));
+        // the node has nothing to list for the shard
+        node1MetaData.put(shard2, null);
+        NodeStoreFilesMetaDataBatch node1Response = new NodeStoreFilesMetaDataBatch(node1, node1MetaData, emptyMap());
+        NodeStoreFilesMetaDataBatch node2Response = new NodeStoreFilesMetaDataBatch(node2,
+                singletonMap(shard1, storeFilesMetaData(shard1)), singletonMap(shard2, new IllegalStateException("failed to list")));
+        FailedNodeException node3Failure = new FailedNodeException(node3.id(), "Failed node [" + node3.id() + "]",
+                new IllegalStateException("node left"));
+        return new NodesStoreFilesMetaDataBatch(ClusterName.DEFAULT,
+                new NodeStoreFilesMetaDataBatch[] { node1Response, node2Response }, new FailedNodeException[] { node3Failure });
+    }
+
+    private static NodesStoreFilesMetaDataBatch roundTrip(NodesStoreFilesMetaDataBatch response) throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        response.writeTo(out);
+        StreamInput in = StreamInput.wrap(out.bytes());
+        NodesStoreFilesMetaDataBatch read = new NodesStoreFilesMetaDataBatch();
+        read.readFrom(in);
+        return read;
+    }
+
+    private static void assertStoreFilesMetaData(StoreFilesMetaData metaData, ShardId shardId) {
+        assertThat(metaData.allocated(), equalTo(true));
+        assertThat(metaData.shardId(), equalTo(shardId));
+        assertThat(metaData.syncId(), equalTo("sync"));
+        assertThat(metaData.fileExists("segments_1"), equalTo(true));
+        assertThat(metaData.file("_0.cfs").length(), equalTo(1000L));
+        assertThat(metaData.file("_0.cfs").checksum(), equalTo("def"));
+    }
+
+    public void testSerialization() throws IOException {
+        NodesStoreFilesMetaDataBatch response = roundTrip(response());
+        assertThat(response.getClusterName(), equalTo(ClusterName.DEFAULT));
+        assertThat(response.getNodes(), arrayWithSize(2));
+
+        NodeStoreFilesMetaDataBatch node1Response = response.getNodes()[0];
+        assertThat(node1Response.getNode(), equalTo(node1));
+        assertThat(node1Response.storeFilesMetaData().size(), equalTo(2));
+        assertStoreFilesMetaData(node1Response.storeFilesMetaData().get(shard1), shard1);
+        assertThat(node1Response.storeFilesMetaData().containsKey(shard2), equalTo(true));
+        assertThat(node1Response.storeFilesMetaData().get(shard2), nullValue());
+        assertThat(node1Response.failures().size(), equalTo(0));
+
+        NodeStoreFilesMetaDataBatch node2Response = response.getNodes()[1];
+        assertThat(node2Response.getNode(), equalTo(node2));
+        assertThat(node2Response.storeFilesMetaData().size(), equalTo(1));
+        assertStoreFilesMetaData(node2Response.storeFilesMetaData().get(shard1), shard1);
+        assertThat(node2Response.failures().size(), equalTo(1));
+        assertThat(node2Response.failures().get(shard2), instanceOf(IllegalStateException.class));
+        assertThat(node2Response.failures().get(shard2).getMessage(), equalTo("failed to list"));
+
+        assertThat(response.failures(), arrayWithSize(1));
+        assertThat(response.failures()[0].nodeId(), equalTo(node3.id()));
+        assertThat(response.failures()[0].getCause().getMessage(), equalTo("node left"));
+    }
+
+    public void testByShard() throws IOException {
+        NodesStoreFilesMetaDataBatch response = randomBoolean() ? response() : roundTrip(response());
+        ShardId missingShard = new ShardId("other", 0);
+        Map<ShardId, NodesStoreFilesMetaData> byShard = response.byShard(Arrays.asList(shard1, shard2, missingShard));
+        assertThat(byShard.size(), equalTo(3));
+
+        NodesStoreFilesMetaData shard1Response = byShard.get(shard1);
+        assertThat(shard1Response.getClusterName(), equalTo(ClusterName.DEFAULT));
+        assertThat(shard1Response.getNodes(), arrayWithSize(2));
+        assertStoreFilesMetaData(shard1Response.getNodesMap().get(node1.id()).storeFilesMetaData(), shard1);
+        assertStoreFilesMetaData(shard1Response.getNodesMap().get(node2.id()).storeFilesMetaData(), shard1);
+        // the node that failed as a whole fails every shard
+        assertThat(shard1Response.failures(), arrayWithSize(1));
+        assertThat(shard1Response.failures()[0].nodeId(), equalTo(node3.id()));
+
+        // null store metadata is a node response without metadata, not a failure
+        NodesStoreFilesMetaData shard2Response = byShard.get(shard2);
+        assertThat(shard2Response.getNodes(), arrayWithSize(1));
+        assertThat(shard2Response.getNodes()[0].getNode(), equalTo(node1));
+        assertThat(shard2Response.getNodes()[0].storeFilesMetaData(), nullValue());
+        assertThat(shard2Response.failures(), arrayWithSize(2));
+        assertThat(shard2Response.failures()[0].nodeId(), equalTo(node3.id()));
+        assertThat(shard2Response.failures()[1].nodeId(), equalTo(node2.id()));
+        assertThat(shard2Response.failures()[1].getCause().getMessage(), equalTo("failed to list"));
+
+        // a shard that a node didn't return at all is a failure of that node
+        NodesStoreFilesMetaData missingResponse = byShard.get(missingShard);
+        assertThat(missingResponse.getNodes(), arrayWithSize(0));
+        assertThat(missingResponse.failures(), arrayWithSize(3));
+        assertThat(missingResponse.failures()[1].nodeId(), equalTo(node1.id()));
+        assertThat(missingResponse.failures()[1].getCause(), instanceOf(IllegalStateException.class));
+        assertThat(missingResponse.failures()[1].getCause().getMessage(), containsString("didn't return the store metadata of shard"));
+        assertThat(missingResponse.failures()[2].nodeId(), equalTo(node2.id()));
+    }
+}
@@ -19,12 +19,21 @@
 
 package org.elasticsearch.monitor.fs;
 
+import org.elasticsearch.common.collect.Tuple;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.env.NodeEnvironment;
 import org.elasticsearch.test.ESTestCase;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 
+import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.isEmptyOrNullString;
 import static org.hamcrest.Matchers.not;
@@ -55,4 +64,71 @@ public class FsProbeTests extends ESTestCase {
             }
         }
     }
+
+    public void testIoStats() throws IOException {
+        final AtomicReference<List<String>> diskStats = new AtomicReference<>(Arrays.asList(
+                " 259       0 nvme0n1 336609 0 7923613 82813 10264051 0 182983933 52451441 0 2970886 52536260",
+                " 259       1 nvme0n1p1 602 0 9919 131 1 0 1 0 0 19 131",
+                " 253       0 dm-0 287716 0 7184666 33457 8398869 0 118857776 18730966 3 1918440 18767169",
+                " 253       1 dm-1 112 0 4624 13 0 0 0 0 0 5 13"));
+        try (NodeEnvironment env = newNodeEnvironment()) {
+            FsProbe probe = new FsProbe(Settings.EMPTY, env) {
+                @Override
+                List<String> readProcDiskStats() throws IOException {
+                    return diskStats.get();
+                }
+            };
+            Set<Tuple<Integer, Integer>> devicesNumbers = new HashSet<>(Arrays.asList(Tuple.tuple(259, 1), Tuple.tuple(253, 0)));
+
+            FsInfo.IoStats first = probe.ioStats(devicesNumbers, null, 1000);
+            assertThat(first.getDevicesStats().length, equalTo(2));
+            FsInfo.DeviceStats nvme = first.getDevicesStats()[0];
+            assertThat(nvme.getDeviceName(), equalTo("nvme0n1p1"));
+            // there is no previous sample to compute deltas against
+            assertThat(nvme.operations(), equalTo(-1L));
+            assertThat(nvme.readKilobytes(), equalTo(-1L));
+            assertThat(first.getIntervalInMillis(), equalTo(-1L));
+            assertThat(first.getTotalOperations(), equalTo(-1L));
+            assertThat(first.getDevicesStats()[1].queueSize(), equalTo(3L));
+            assertThat(first.getTotalQueueSize(), equalTo(3L));
+
+            diskStats.set(Arrays.asList(
+                    " 259       0 nvme0n1 336870 0 7928397 82876 10264393 0 182986405 52451610 0 2971042 52536492",
+                    " 259       1 nvme0n1p1 602 0 9919 131 1 0 1 0 0 19 131",
+                    " 253       0 dm-0 287734 0 7185242 33464 8398869 0 118857776 18730966 0 1918444 18767176",
+                    " 253       1 dm-1 112 0 4624 13 0 0 0 0 0 5 13"));
+            FsInfo previous = new FsInfo(1000, first, new FsInfo.Path[0]);
+            FsInfo.IoStats second = probe.ioStats(devicesNumbers, previous, 3500);
+            // the deltas cover the time since the previous sample, whenever it was taken
+            assertThat(second.getIntervalInMillis(), equalTo(2500L));
+            nvme = second.getDevicesStats()[0];
+            assertThat(nvme.operations(), equalTo(0L));
+            assertThat(nvme.ioTimeInMillis(), equalTo(0L));
+            FsInfo.DeviceStats dm = second.getDevicesStats()[1];
+            assertThat(dm.getDeviceName(), equalTo("dm-0"));
+            assertThat(dm.readOperations(), equalTo(18L));
+            assertThat(dm.writeOperations(), equalTo(0L));
+            assertThat(dm.operations(), equalTo(18L));
+            assertThat(dm.readKilobytes(), equalTo(288L));
+            assertThat(dm.writeKilobytes(), equalTo(0L));
+            assertThat(dm.ioTimeInMillis(), equalTo(4L));
+            assertThat(dm.queueSize(), equalTo(0L));
+            assertThat(second.getTotalOperations(), equalTo(18L));
+            assertThat(second.getTotalReadKilobytes(), equalTo(288L));
+            assertThat(second.getTotalIOTimeInMillis(), equalTo(4L));
+
+            BytesStreamOutput out = new BytesStreamOutput();
+            second.writeTo(out);
+            FsInfo.IoStats read = FsInfo.IoStats.readIoStats(StreamInput.wrap(out.bytes()));
+            assertThat(read.getDevicesStats().length, equalTo(2));
+            assertThat(read.getDevicesStats()[1].readKilobytes(), equalTo(288L));
+            assertThat(read.getTotalOperations(), equalTo(18L));
+            assertThat(read.getIntervalInMillis(), equalTo(2500L));
+
+            // unreadable stats degrade to no I/O statistics at all
+            diskStats.set(Arrays.asList("garbage 1 2 3 4 5 6 7 8 9 10 11 12 13"));
+            assertNull(probe.ioStats(devicesNumbers, previous, 4000));
+            assertNull(probe.ioStats(new HashSet<>(), previous, 4000));
+        }
+    }
 }
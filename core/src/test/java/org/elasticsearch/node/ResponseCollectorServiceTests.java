@@ -0,0 +1,65 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.node;
+
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.test.cluster.TestClusterService;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+public class ResponseCollectorServiceTests extends ESTestCase {
+
+    public void testUnknownNodesHaveNoRank() {
+        ResponseCollectorService collector = new ResponseCollectorService(Settings.EMPTY, new TestClusterService());
+        assertThat(collector.rank("node_1"), nullValue());
+        collector.onRequestSent("node_1");
+        // no response yet
+        assertThat(collector.rank("node_1"), nullValue());
+        collector.onResponseReceived("node_1", 100, 0, 50);
+        assertThat(collector.rank("node_1"), notNullValue());
+    }
+
+    public void testSlowNodesRankWorse() {
+        ResponseCollectorService collector = new ResponseCollectorService(Settings.EMPTY, new TestClusterService());
+        for (int i = 0; i < 10; i++) {
+            collector.onRequestSent("fast");
+            collector.onResponseReceived("fast", 1000, 0, 500);
+            collector.onRequestSent("slow");
+            collector.onResponseReceived("slow", 100000, 20, 50000);
+        }
+        assertThat(collector.rank("fast"), lessThan(collector.rank("slow")));
+
+        AdaptiveSelectionStats stats = collector.getAdaptiveStats();
+        assertThat(stats.getNodeStats().size(), equalTo(2));
+        assertThat(stats.getNodeStats().get("fast").getOutstandingRequests(), equalTo(0L));
+        assertThat(stats.getRanks().get("slow"), greaterThan(stats.getRanks().get("fast")));
+    }
+
+    public void testOutstandingRequestsIncreaseRank() {
+        ResponseCollectorService.ComputedNodeStats idle = new ResponseCollectorService.ComputedNodeStats("node", 0, 0, 1000, 500);
+        ResponseCollectorService.ComputedNodeStats busy = new ResponseCollectorService.ComputedNodeStats("node", 5, 0, 1000, 500);
+        assertThat(idle.rank(1), lessThan(busy.rank(1)));
+        assertThat(busy.rank(1), lessThan(busy.rank(3)));
+    }
+}
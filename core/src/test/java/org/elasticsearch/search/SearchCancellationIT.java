@@ -0,0 +1,321 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search;
+
+import org.apache.http.impl.client.HttpClients;
+import org.apache.lucene.index.LeafReaderContext;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.ListenableActionFuture;
+import org.elasticsearch.action.admin.cluster.node.tasks.cancel.CancelTasksResponse;
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.search.SearchAction;
+import org.elasticsearch.action.search.SearchPhaseExecutionException;
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.ShardSearchFailure;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.http.HttpServerTransport;
+import org.elasticsearch.node.Node;
+import org.elasticsearch.plugins.Plugin;
+import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.script.AbstractSearchScript;
+import org.elasticsearch.script.CompiledScript;
+import org.elasticsearch.script.ExecutableScript;
+import org.elasticsearch.script.LeafSearchScript;
+import org.elasticsearch.script.Script;
+import org.elasticsearch.script.ScriptEngineService;
+import org.elasticsearch.script.ScriptModule;
+import org.elasticsearch.script.ScriptService.ScriptType;
+import org.elasticsearch.script.SearchScript;
+import org.elasticsearch.search.lookup.SearchLookup;
+import org.elasticsearch.tasks.TaskCancelledException;
+import org.elasticsearch.test.ESIntegTestCase;
+import org.elasticsearch.test.ESIntegTestCase.ClusterScope;
+import org.elasticsearch.test.ESIntegTestCase.Scope;
+import org.elasticsearch.test.rest.client.http.HttpRequestBuilder;
+import org.elasticsearch.test.rest.client.http.HttpResponse;
+import org.junit.After;
+import org.junit.Before;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.elasticsearch.cluster.metadata.IndexMetaData.SETTING_NUMBER_OF_REPLICAS;
+import static org.elasticsearch.cluster.metadata.IndexMetaData.SETTING_NUMBER_OF_SHARDS;
+import static org.elasticsearch.index.query.QueryBuilders.matchAllQuery;
+import static org.elasticsearch.index.query.QueryBuilders.scriptQuery;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.terms;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.notNullValue;
+
+/**
+ * Blocks searches in a script, cancels them while they are blocked and checks that the search stops collecting
+ * documents and reports the cancellation.
+ */
+@ClusterScope(scope = Scope.SUITE, numDataNodes = 1)
+public class SearchCancellationIT extends ESIntegTestCase {
+
+    /** the number of segments of the index, cancellation is noticed when the next segment is about to be collected */
+    private static final int NUM_SEGMENTS = 3;
+
+    @Override
+    protected Settings nodeSettings(int nodeOrdinal) {
+        return Settings.settingsBuilder()
+                .put(super.nodeSettings(nodeOrdinal))
+                .put(Node.HTTP_ENABLED, true)
+                .build();
+    }
+
+    @Override
+    protected Collection<Class<? extends Plugin>> nodePlugins() {
+        return Collections.singletonList(BlockingScriptPlugin.class);
+    }
+
+    @Before
+    public void resetScript() {
+        BlockingScriptEngine.reset();
+    }
+
+    @After
+    public void releaseScript() {
+        // never leave search threads blocked, even if the test failed
+        BlockingScriptEngine.release();
+    }
+
+    public void testCancelQuery() throws Exception {
+        final int numDocs = indexDocs();
+        SearchRequestBuilder search = client().prepareSearch("test").setQuery(scriptQuery(BlockingScriptEngine.script()));
+        assertSearchCancelled(search, numDocs);
+    }
+
+    public void testCancelAggregation() throws Exception {
+        final int numDocs = indexDocs();
+        SearchRequestBuilder search = client().prepareSearch("test").setQuery(matchAllQuery())
+                .addAggregation(terms("terms").script(BlockingScriptEngine.script()));
+        assertSearchCancelled(search, numDocs);
+    }
+
+    public void testCancelOverRest() throws Exception {
+        final int numDocs = indexDocs();
+        final HttpServerTransport httpServerTransport = internalCluster().getDataNodeInstance(HttpServerTransport.class);
+        final AtomicReference<HttpResponse> searchResponse = new AtomicReference<>();
+        final AtomicReference<Throwable> searchFailure = new AtomicReference<>();
+        Thread searchThread = new Thread(() -> {
+            try {
+                searchResponse.set(new HttpRequestBuilder(HttpClients.createDefault())
+                        .httpTransport(httpServerTransport)
+                        .method("POST")
+                        .path("/test/_search")
+                        .body("{\"query\":{\"script\":{\"script\":{\"inline\":\"block\",\"lang\":\"" + BlockingScriptEngine.NAME + "\"}}}}")
+                        .execute());
+            } catch (Throwable t) {
+                searchFailure.set(t);
+            }
+        });
+        searchThread.start();
+        BlockingScriptEngine.awaitStarted();
+
+        HttpResponse cancelResponse = new HttpRequestBuilder(HttpClients.createDefault())
+                .httpTransport(httpServerTransport)
+                .method("POST")
+                .path("/_tasks/_cancel")
+                .addParam("actions", SearchAction.NAME)
+                .execute();
+        assertThat(cancelResponse.getStatusCode(), equalTo(RestStatus.OK.getStatus()));
+        assertThat(cancelResponse.getBody(), containsString(SearchAction.NAME));
+
+        BlockingScriptEngine.release();
+        searchThread.join(TimeUnit.SECONDS.toMillis(30));
+        assertNull(searchFailure.get());
+        HttpResponse response = searchResponse.get();
+        assertThat(response, notNullValue());
+        assertThat(response.getStatusCode(), equalTo(RestStatus.BAD_REQUEST.getStatus()));
+        assertThat(response.getBody(), containsString("task_cancelled_exception"));
+        assertThat(BlockingScriptEngine.runs(), lessThan(numDocs));
+    }
+
+    /**
+     * Indexes documents into a single shard, in several segments, and returns the number of documents.
+     */
+    private int indexDocs() throws Exception {
+        assertAcked(prepareCreate("test").setSettings(SETTING_NUMBER_OF_SHARDS, 1, SETTING_NUMBER_OF_REPLICAS, 0));
+        ensureGreen("test");
+        final int docsPerSegment = randomIntBetween(5, 50);
+        for (int segment = 0; segment < NUM_SEGMENTS; segment++) {
+            BulkRequestBuilder bulk = client().prepareBulk();
+            for (int i = 0; i < docsPerSegment; i++) {
+                bulk.add(client().prepareIndex("test", "type").setSource("field", "value"));
+            }
+            assertFalse(bulk.get().hasFailures());
+            refresh();
+        }
+        return NUM_SEGMENTS * docsPerSegment;
+    }
+
+    private void assertSearchCancelled(SearchRequestBuilder search, int numDocs) throws Exception {
+        ListenableActionFuture<SearchResponse> future = search.execute();
+        BlockingScriptEngine.awaitStarted();
+
+        CancelTasksResponse cancelled = client().admin().cluster().prepareCancelTasks().setActions(SearchAction.NAME).get();
+        assertThat(cancelled.getTasks().size(), greaterThan(0));
+
+        BlockingScriptEngine.release();
+        try {
+            future.actionGet();
+            fail("the search should have been cancelled");
+        } catch (Exception e) {
+            Throwable cause = ExceptionsHelper.unwrapCause(e);
+            if (cause instanceof SearchPhaseExecutionException) {
+                ShardSearchFailure[] shardFailures = ((SearchPhaseExecutionException) cause).shardFailures();
+                assertThat(shardFailures.length, greaterThan(0));
+                for (ShardSearchFailure shardFailure : shardFailures) {
+                    assertThat(ExceptionsHelper.unwrap(shardFailure.getCause(), TaskCancelledException.class), notNullValue());
+                }
+            } else {
+                assertThat(ExceptionsHelper.unwrap(cause, TaskCancelledException.class), notNullValue());
+            }
+            assertThat(ExceptionsHelper.status(cause), equalTo(RestStatus.BAD_REQUEST));
+        }
+        // the shard stopped before it collected the other segments
+        assertThat(BlockingScriptEngine.runs(), lessThan(numDocs));
+    }
+
+    public static class BlockingScriptPlugin extends Plugin {
+
+        @Override
+        public String name() {
+            return BlockingScriptEngine.NAME;
+        }
+
+        @Override
+        public String description() {
+            return "Blocking script engine for " + SearchCancellationIT.class;
+        }
+
+        public void onModule(ScriptModule module) {
+            module.addScriptEngine(BlockingScriptEngine.class);
+        }
+    }
+
+    /**
+     * A script engine whose scripts block on their first run until {@link #release()} is called, and then match
+     * every document.
+     */
+    public static class BlockingScriptEngine implements ScriptEngineService {
+
+        public static final String NAME = "blocking";
+
+        private static volatile CountDownLatch started;
+        private static volatile CountDownLatch released;
+        private static final AtomicInteger RUNS = new AtomicInteger();
+
+        static Script script() {
+            return new Script("block", ScriptType.INLINE, NAME, null);
+        }
+
+        static void reset() {
+            started = new CountDownLatch(1);
+            released = new CountDownLatch(1);
+            RUNS.set(0);
+        }
+
+        static void awaitStarted() throws InterruptedException {
+            assertTrue("the script did not run", started.await(30, TimeUnit.SECONDS));
+        }
+
+        static void release() {
+            released.countDown();
+        }
+
+        static int runs() {
+            return RUNS.get();
+        }
+
+        @Override
+        public String[] types() {
+            return new String[] { NAME };
+        }
+
+        @Override
+        public String[] extensions() {
+            return types();
+        }
+
+        @Override
+        public boolean sandboxed() {
+            return true;
+        }
+
+        @Override
+        public Object compile(String script, Map<String, String> params) {
+            return script;
+        }
+
+        @Override
+        public ExecutableScript executable(CompiledScript compiledScript, @Nullable Map<String, Object> vars) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public SearchScript search(CompiledScript compiledScript, SearchLookup lookup, @Nullable Map<String, Object> vars) {
+            return new SearchScript() {
+                @Override
+                public LeafSearchScript getLeafSearchScript(LeafReaderContext context) throws IOException {
+                    return new AbstractSearchScript() {
+                        @Override
+                        public Object run() {
+                            RUNS.incrementAndGet();
+                            started.countDown();
+                            try {
+                                released.await(30, TimeUnit.SECONDS);
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                            return Boolean.TRUE;
+                        }
+                    };
+                }
+
+                @Override
+                public boolean needsScores() {
+                    return false;
+                }
+            };
+        }
+
+        @Override
+        public void scriptRemoved(@Nullable CompiledScript script) {
+        }
+
+        @Override
+        public void close() throws IOException {
+        }
+    }
+}
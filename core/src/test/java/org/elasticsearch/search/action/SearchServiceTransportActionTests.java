@@ -0,0 +1,138 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.action;
+
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.common.util.concurrent.EsThreadPoolExecutor;
+import org.elasticsearch.search.query.NodeQuerySearchResult;
+import org.elasticsearch.search.query.QuerySearchResult;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+public class SearchServiceTransportActionTests extends ESTestCase {
+
+    public void testExecuteShardsWithRejectionsAndFailures() throws Exception {
+        final int queueSize = randomIntBetween(1, 5);
+        EsThreadPoolExecutor executor = EsExecutors.newFixed(getTestName(), 1, queueSize, EsExecutors.daemonThreadFactory("test"));
+        try {
+            // occupy the only thread so that the shards beyond the queue size are rejected
+            final CountDownLatch blocking = new CountDownLatch(1);
+            final CountDownLatch block = new CountDownLatch(1);
+            executor.execute(() -> {
+                blocking.countDown();
+                try {
+                    block.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            blocking.await();
+
+            final int numShards = queueSize + randomIntBetween(1, 10);
+            final Set<Integer> failingShards = new HashSet<>();
+            for (int i = 0; i < queueSize; i++) {
+                if (randomBoolean()) {
+                    failingShards.add(i);
+                }
+            }
+            final AtomicInteger calls = new AtomicInteger();
+            final AtomicReference<NodeQuerySearchResult> response = new AtomicReference<>();
+            final CountDownLatch done = new CountDownLatch(1);
+            SearchServiceTransportAction.executeShards(executor, numShards, index -> {
+                if (failingShards.contains(index)) {
+                    throw new IllegalStateException("shard [" + index + "] failed");
+                }
+                return new QuerySearchResult();
+            }, result -> {
+                calls.incrementAndGet();
+                response.set(result);
+                done.countDown();
+            });
+            // the rejected shards must not complete the batch while the queued shards are still waiting to run
+            assertThat(calls.get(), equalTo(0));
+
+            block.countDown();
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+            assertThat(calls.get(), equalTo(1));
+
+            NodeQuerySearchResult result = response.get();
+            assertThat(result.size(), equalTo(numShards));
+            for (int i = 0; i < numShards; i++) {
+                if (i >= queueSize) {
+                    assertThat(result.result(i), nullValue());
+                    assertThat(result.failure(i), instanceOf(EsRejectedExecutionException.class));
+                } else if (failingShards.contains(i)) {
+                    assertThat(result.result(i), nullValue());
+                    assertThat(result.failure(i), instanceOf(IllegalStateException.class));
+                } else {
+                    assertThat(result.result(i), notNullValue());
+                    assertThat(result.failure(i), nullValue());
+                }
+            }
+        } finally {
+            terminate(executor);
+        }
+    }
+
+    public void testExecuteShardsRecordsTimePerShard() throws Exception {
+        // a single thread runs the shards one after the other, in order
+        EsThreadPoolExecutor executor = EsExecutors.newFixed(getTestName(), 1, 100, EsExecutors.daemonThreadFactory("test"));
+        try {
+            final int numShards = randomIntBetween(2, 10);
+            final long sleepMillis = 50;
+            final AtomicReference<NodeQuerySearchResult> response = new AtomicReference<>();
+            final CountDownLatch done = new CountDownLatch(1);
+            SearchServiceTransportAction.executeShards(executor, numShards, index -> {
+                if (index == numShards - 1) {
+                    Thread.sleep(sleepMillis);
+                }
+                return new QuerySearchResult();
+            }, result -> {
+                response.set(result);
+                done.countDown();
+            });
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+
+            NodeQuerySearchResult result = response.get();
+            for (int i = 1; i < numShards; i++) {
+                assertThat(result.tookInNanos(i), greaterThanOrEqualTo(result.tookInNanos(i - 1)));
+            }
+            // only the slow shard is charged for its own sleep
+            assertThat(result.tookInNanos(numShards - 1) - result.tookInNanos(numShards - 2),
+                    greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(sleepMillis)));
+        } finally {
+            terminate(executor);
+        }
+    }
+}
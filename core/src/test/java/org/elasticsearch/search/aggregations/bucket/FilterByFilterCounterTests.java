@@ -0,0 +1,151 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.bucket;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.NumericRangeQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.store.Directory;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.index.mapper.core.IntegerFieldMapper;
+import org.elasticsearch.index.mapper.core.LongFieldMapper;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+public class FilterByFilterCounterTests extends ESTestCase {
+
+    public void testCount() throws IOException {
+        try (Directory dir = newDirectory(); RandomIndexWriter w = new RandomIndexWriter(random(), dir)) {
+            final int numDocs = scaledRandomIntBetween(10, 2000);
+            for (int i = 0; i < numDocs; ++i) {
+                Document doc = new Document();
+                doc.add(new StringField("id", Integer.toString(i), Field.Store.NO));
+                doc.add(new StringField("tag", randomFrom("a", "b", "c"), Field.Store.NO));
+                doc.add(new LongField("number", randomInt(100), Field.Store.NO));
+                w.addDocument(doc);
+            }
+            for (int i = randomInt(numDocs / 10); i > 0; --i) {
+                w.deleteDocuments(new Term("id", Integer.toString(randomInt(numDocs - 1))));
+            }
+            try (DirectoryReader reader = w.getReader()) {
+                IndexSearcher searcher = newSearcher(reader);
+                Query query = randomBoolean() ? new MatchAllDocsQuery() : new TermQuery(new Term("tag", randomFrom("a", "b", "c")));
+                MappedFieldType fieldType = new LongFieldMapper.LongFieldType();
+                fieldType.setName("number");
+                Query[] filters = new Query[] {
+                        FilterByFilterCounter.rangeQuery(fieldType, Double.NEGATIVE_INFINITY, 25),
+                        FilterByFilterCounter.rangeQuery(fieldType, 25, 50.5),
+                        FilterByFilterCounter.rangeQuery(fieldType, 50.5, Double.POSITIVE_INFINITY),
+                        new TermQuery(new Term("tag", "b")),
+                        null
+                };
+                Weight[] filterWeights = new Weight[filters.length];
+                for (int i = 0; i < filters.length; ++i) {
+                    if (filters[i] != null) {
+                        filterWeights[i] = searcher.createNormalizedWeight(filters[i], false);
+                    }
+                }
+                FilterByFilterCounter counter = new FilterByFilterCounter(searcher.createNormalizedWeight(query, false), filterWeights);
+                for (LeafReaderContext ctx : searcher.getIndexReader().leaves()) {
+                    int[] counts = counter.count(ctx);
+                    if (counts == null) {
+                        // the aggregator would collect this segment document by document
+                        continue;
+                    }
+                    IndexSearcher leafSearcher = new IndexSearcher(ctx.reader());
+                    for (int i = 0; i < filters.length; ++i) {
+                        int expected = 0;
+                        if (filters[i] != null) {
+                            BooleanQuery.Builder intersection = new BooleanQuery.Builder();
+                            intersection.add(query, Occur.FILTER);
+                            intersection.add(filters[i], Occur.FILTER);
+                            expected = leafSearcher.count(intersection.build());
+                        }
+                        assertThat(counts[i], equalTo(expected));
+                    }
+                }
+            }
+        }
+    }
+
+    public void testFallBackToCollection() throws IOException {
+        try (Directory dir = newDirectory(); RandomIndexWriter w = new RandomIndexWriter(random(), dir)) {
+            for (int i = 0; i < 100; ++i) {
+                Document doc = new Document();
+                doc.add(new StringField("tag", i == 0 ? "rare" : "common", Field.Store.NO));
+                w.addDocument(doc);
+            }
+            w.forceMerge(1);
+            try (DirectoryReader reader = w.getReader()) {
+                IndexSearcher searcher = new IndexSearcher(reader);
+                Weight query = searcher.createNormalizedWeight(new TermQuery(new Term("tag", "rare")), false);
+                Weight filter = searcher.createNormalizedWeight(new MatchAllDocsQuery(), false);
+                // the query only matches one document, checking the filter for it is cheaper than intersecting
+                assertThat(new FilterByFilterCounter(query, new Weight[] { filter }).count(reader.leaves().get(0)), nullValue());
+                // the other way around, the filter is sparser than the query
+                int[] counts = new FilterByFilterCounter(filter, new Weight[] { query }).count(reader.leaves().get(0));
+                assertThat(counts, notNullValue());
+                assertThat(counts[0], equalTo(1));
+            }
+        }
+    }
+
+    public void testLongRangeQuery() throws IOException {
+        MappedFieldType fieldType = new LongFieldMapper.LongFieldType();
+        fieldType.setName("number");
+        assertTrue(FilterByFilterCounter.supportsRangeQueries(fieldType));
+        assertThat(FilterByFilterCounter.rangeQuery(fieldType, 10, 10), nullValue());
+        assertThat(FilterByFilterCounter.rangeQuery(fieldType, 0.5, 0.7), nullValue());
+        assertThat(FilterByFilterCounter.rangeQuery(fieldType, 1e19, Double.POSITIVE_INFINITY), nullValue());
+        assertThat(FilterByFilterCounter.rangeQuery(fieldType, Double.NEGATIVE_INFINITY, -1e19), nullValue());
+        assertThat(FilterByFilterCounter.rangeQuery(fieldType, -1e19, 1e19),
+                equalTo(NumericRangeQuery.newLongRange("number", fieldType.numericPrecisionStep(), null, null, true, false)));
+        assertThat(FilterByFilterCounter.rangeQuery(fieldType, 0.5, 2.5),
+                equalTo(NumericRangeQuery.newLongRange("number", fieldType.numericPrecisionStep(), 1L, 3L, true, false)));
+    }
+
+    public void testIntRangeQuery() throws IOException {
+        MappedFieldType fieldType = new IntegerFieldMapper.IntegerFieldType();
+        fieldType.setName("number");
+        assertTrue(FilterByFilterCounter.supportsRangeQueries(fieldType));
+        assertThat(FilterByFilterCounter.rangeQuery(fieldType, 1e10, Double.POSITIVE_INFINITY), nullValue());
+        assertThat(FilterByFilterCounter.rangeQuery(fieldType, 0.5, 0.7), nullValue());
+        assertThat(FilterByFilterCounter.rangeQuery(fieldType, -1e10, -1.5),
+                equalTo(NumericRangeQuery.newIntRange("number", fieldType.numericPrecisionStep(), null, -1,
+                        true, false)));
+    }
+}
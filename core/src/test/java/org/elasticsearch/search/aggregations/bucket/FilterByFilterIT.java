@@ -0,0 +1,135 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.bucket;
+
+import org.elasticsearch.action.index.IndexRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.search.aggregations.AbstractAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.filter.Filter;
+import org.elasticsearch.search.aggregations.bucket.filters.Filters;
+import org.elasticsearch.search.aggregations.bucket.range.Range;
+import org.elasticsearch.search.aggregations.bucket.range.RangeBuilder;
+import org.elasticsearch.test.ESIntegTestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
+import static org.elasticsearch.index.query.QueryBuilders.matchAllQuery;
+import static org.elasticsearch.index.query.QueryBuilders.rangeQuery;
+import static org.elasticsearch.index.query.QueryBuilders.termQuery;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.filter;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.filters;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.range;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertSearchResponse;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Checks that top-level filters and range aggregations, which count their buckets filter by filter, return the same
+ * counts as when they are nested under another aggregation, which makes them collect document by document.
+ */
+@ESIntegTestCase.SuiteScopeTestCase
+public class FilterByFilterIT extends ESIntegTestCase {
+
+    @Override
+    public void setupSuiteScopeCluster() throws Exception {
+        assertAcked(prepareCreate("idx").addMapping("type", jsonBuilder().startObject().startObject("type").startObject("properties")
+                .startObject("tag").field("type", "string").field("index", "not_analyzed").endObject()
+                .startObject("long").field("type", "long").endObject()
+                .startObject("int").field("type", "integer").endObject()
+                .startObject("double").field("type", "double").endObject()
+                .endObject().endObject().endObject()));
+        List<IndexRequestBuilder> builders = new ArrayList<>();
+        final int numDocs = scaledRandomIntBetween(50, 500);
+        for (int i = 0; i < numDocs; i++) {
+            builders.add(client().prepareIndex("idx", "type", Integer.toString(i)).setSource(jsonBuilder().startObject()
+                    .field("tag", randomFrom("a", "b", "c"))
+                    .field("long", randomIntBetween(-50, 50))
+                    .field("int", new int[] { randomIntBetween(-50, 50), randomIntBetween(-50, 50) })
+                    .field("double", randomDouble() * 100 - 50)
+                    .endObject()));
+        }
+        // several segments, some of them with deleted documents
+        indexRandom(true, true, builders);
+        for (int i = randomInt(numDocs / 10); i > 0; i--) {
+            client().prepareDelete("idx", "type", Integer.toString(randomInt(numDocs - 1))).get();
+        }
+        refresh();
+        ensureSearchable();
+    }
+
+    private static QueryBuilder randomQuery() {
+        return randomFrom(matchAllQuery(), termQuery("tag", randomFrom("a", "b", "c")), rangeQuery("long").gte(randomIntBetween(-50, 0)));
+    }
+
+    /**
+     * Runs the given aggregation both at the top level and nested under a filter that matches everything.
+     */
+    private SearchResponse search(QueryBuilder query, AbstractAggregationBuilder aggregation) {
+        SearchResponse response = client().prepareSearch("idx").setSize(0).setQuery(query)
+                .addAggregation(aggregation)
+                .addAggregation(filter("collect").filter(matchAllQuery()).subAggregation(aggregation))
+                .get();
+        assertSearchResponse(response);
+        return response;
+    }
+
+    public void testFilters() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            SearchResponse response = search(randomQuery(), filters("filters")
+                    .filter("a", termQuery("tag", "a"))
+                    .filter("b", termQuery("tag", "b"))
+                    .filter("negative", rangeQuery("long").lt(0))
+                    .filter("none", termQuery("tag", "none")));
+            Filters filterByFilter = response.getAggregations().get("filters");
+            Filters collected = ((Filter) response.getAggregations().get("collect")).getAggregations().get("filters");
+            assertThat(filterByFilter.getBuckets().size(), equalTo(4));
+            for (Filters.Bucket bucket : collected.getBuckets()) {
+                assertThat(bucket.getKeyAsString(), filterByFilter.getBucketByKey(bucket.getKeyAsString()).getDocCount(),
+                        equalTo(bucket.getDocCount()));
+            }
+        }
+    }
+
+    public void testRanges() throws Exception {
+        for (String field : new String[] { "long", "int", "double" }) {
+            for (int i = 0; i < 5; i++) {
+                RangeBuilder range = range("range").field(field)
+                        .addUnboundedTo(randomIntBetween(-40, -20) + (randomBoolean() ? 0 : 0.5))
+                        .addRange(-10.5, 10.5)
+                        .addRange(0.5, 0.7)
+                        .addRange(5, 5)
+                        .addRange(randomIntBetween(-50, 0), randomIntBetween(0, 50))
+                        .addUnboundedFrom(randomIntBetween(20, 40) + (randomBoolean() ? 0 : 0.5));
+                SearchResponse response = search(randomQuery(), range);
+                Range filterByFilter = response.getAggregations().get("range");
+                Range collected = ((Filter) response.getAggregations().get("collect")).getAggregations().get("range");
+                assertThat(filterByFilter.getBuckets().size(), equalTo(collected.getBuckets().size()));
+                for (int b = 0; b < collected.getBuckets().size(); b++) {
+                    Range.Bucket expected = collected.getBuckets().get(b);
+                    Range.Bucket actual = filterByFilter.getBuckets().get(b);
+                    assertThat(actual.getKeyAsString(), equalTo(expected.getKeyAsString()));
+                    assertThat(field + " " + expected.getKeyAsString(), actual.getDocCount(), equalTo(expected.getDocCount()));
+                }
+            }
+        }
+    }
+}
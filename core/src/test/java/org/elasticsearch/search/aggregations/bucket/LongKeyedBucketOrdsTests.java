@@ -0,0 +1,130 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.bucket;
+
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.lessThan;
+
+public class LongKeyedBucketOrdsTests extends ESTestCase {
+
+    public void testIsDenseRange() {
+        assertTrue(LongKeyedBucketOrds.isDenseRange(0, 0, 10));
+        assertTrue(LongKeyedBucketOrds.isDenseRange(-4, 5, 10));
+        assertFalse(LongKeyedBucketOrds.isDenseRange(-5, 5, 10));
+        assertFalse(LongKeyedBucketOrds.isDenseRange(Long.MIN_VALUE, Long.MAX_VALUE, 10));
+        assertFalse(LongKeyedBucketOrds.isDenseRange(-1, Long.MAX_VALUE, 10));
+        assertFalse(LongKeyedBucketOrds.isDenseRange(Long.MIN_VALUE, 1, 10));
+        assertFalse(LongKeyedBucketOrds.isDenseRange(10, 0, 100));
+    }
+
+    public void testSingleDenseMatchesHash() {
+        final long minValue = randomIntBetween(-1000, 1000);
+        final long maxValue = minValue + randomIntBetween(0, 4095);
+        try (LongKeyedBucketOrds dense = LongKeyedBucketOrds.buildForRange(BigArrays.NON_RECYCLING_INSTANCE, minValue, maxValue, 4096);
+                LongKeyedBucketOrds hash = LongKeyedBucketOrds.build(BigArrays.NON_RECYCLING_INSTANCE, true)) {
+            assertThat(dense, instanceOf(LongKeyedBucketOrds.FromSingleDense.class));
+            final int iters = scaledRandomIntBetween(1, 10000);
+            for (int i = 0; i < iters; i++) {
+                final long value = minValue + randomIntBetween(0, (int) (maxValue - minValue));
+                assertThat(dense.add(0, value), equalTo(hash.add(0, value)));
+            }
+            assertThat(dense.size(), equalTo(hash.size()));
+            assertThat(dense.bucketsInOrd(0), equalTo(hash.bucketsInOrd(0)));
+            LongKeyedBucketOrds.BucketOrdsEnum denseEnum = dense.ordsEnum(0);
+            LongKeyedBucketOrds.BucketOrdsEnum hashEnum = hash.ordsEnum(0);
+            while (hashEnum.next()) {
+                assertTrue(denseEnum.next());
+                assertThat(denseEnum.ord(), equalTo(hashEnum.ord()));
+                assertThat(denseEnum.value(), equalTo(hashEnum.value()));
+                assertThat(dense.get(denseEnum.ord()), equalTo(hashEnum.value()));
+            }
+            assertFalse(denseEnum.next());
+        }
+    }
+
+    public void testSingleDenseRejectsOutOfRangeValues() {
+        try (LongKeyedBucketOrds dense = LongKeyedBucketOrds.buildForRange(BigArrays.NON_RECYCLING_INSTANCE, 5, 10, 4096)) {
+            assertThat(dense.add(0, 5), equalTo(0L));
+            assertThat(dense.add(0, 10), equalTo(1L));
+            assertThat(dense.add(0, 5), equalTo(-1L));
+            try {
+                dense.add(0, 11);
+                fail("expected an exception");
+            } catch (IllegalStateException e) {
+                assertThat(e.getMessage(), equalTo("value [11] is out of the expected range [5-10]"));
+            }
+        }
+    }
+
+    public void testWideRangeUsesHash() {
+        try (LongKeyedBucketOrds ords = LongKeyedBucketOrds.buildForRange(BigArrays.NON_RECYCLING_INSTANCE, 0, 4096, 4096)) {
+            assertThat(ords, instanceOf(LongKeyedBucketOrds.FromSingle.class));
+        }
+    }
+
+    public void testFromMany() {
+        final int owningBucketCount = randomIntBetween(1, 50);
+        final Map<Long, Set<Long>> expected = new HashMap<>();
+        final List<Long> ordToValue = new ArrayList<>();
+        try (LongKeyedBucketOrds ords = LongKeyedBucketOrds.build(BigArrays.NON_RECYCLING_INSTANCE, false)) {
+            final int iters = scaledRandomIntBetween(1, 10000);
+            for (int i = 0; i < iters; i++) {
+                final long owningBucketOrd = randomInt(owningBucketCount - 1);
+                final long value = randomBoolean() ? randomLong() : randomInt(100);
+                Set<Long> values = expected.get(owningBucketOrd);
+                if (values == null) {
+                    values = new HashSet<>();
+                    expected.put(owningBucketOrd, values);
+                }
+                final long ord = ords.add(owningBucketOrd, value);
+                if (values.add(value)) {
+                    assertThat(ord, equalTo((long) ordToValue.size()));
+                    ordToValue.add(value);
+                } else {
+                    assertThat(ord, lessThan(0L));
+                    assertThat(ordToValue.get((int) (-1 - ord)), equalTo(value));
+                }
+            }
+            assertThat(ords.size(), equalTo((long) ordToValue.size()));
+            for (long owningBucketOrd = 0; owningBucketOrd <= owningBucketCount; owningBucketOrd++) {
+                final Set<Long> values = expected.containsKey(owningBucketOrd) ? expected.get(owningBucketOrd) : new HashSet<>();
+                assertThat(ords.bucketsInOrd(owningBucketOrd), equalTo((long) values.size()));
+                final Set<Long> seen = new HashSet<>();
+                LongKeyedBucketOrds.BucketOrdsEnum ordsEnum = ords.ordsEnum(owningBucketOrd);
+                while (ordsEnum.next()) {
+                    assertThat(ordsEnum.value(), equalTo(ordToValue.get((int) ordsEnum.ord())));
+                    assertThat(ords.get(ordsEnum.ord()), equalTo(ordsEnum.value()));
+                    assertTrue(seen.add(ordsEnum.value()));
+                }
+                assertThat(seen, equalTo(values));
+            }
+        }
+    }
+}
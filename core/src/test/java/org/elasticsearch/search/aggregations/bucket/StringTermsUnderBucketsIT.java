@@ -0,0 +1,118 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.bucket;
+
+import org.elasticsearch.action.index.IndexRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.search.aggregations.bucket.histogram.Histogram;
+import org.elasticsearch.search.aggregations.bucket.terms.Terms;
+import org.elasticsearch.search.aggregations.bucket.terms.TermsAggregatorFactory;
+import org.elasticsearch.test.ESIntegTestCase;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.elasticsearch.cluster.metadata.IndexMetaData.SETTING_NUMBER_OF_REPLICAS;
+import static org.elasticsearch.cluster.metadata.IndexMetaData.SETTING_NUMBER_OF_SHARDS;
+import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.histogram;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.terms;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertSearchResponse;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Checks that string terms aggregations that are collected from many owning buckets, and so share their bucket
+ * ordinals across all of them, compute the same buckets as if every owning bucket had its own aggregator.
+ */
+public class StringTermsUnderBucketsIT extends ESIntegTestCase {
+
+    private static final int NUM_PARENTS = 5;
+    private static final int NUM_TAGS = 7;
+
+    public void testTermsUnderHistogram() throws Exception {
+        assertAcked(prepareCreate("idx").addMapping("type", "tag", "type=string,index=not_analyzed"));
+        List<IndexRequestBuilder> docs = new ArrayList<>();
+        // expected doc count of every tag, per parent bucket
+        List<Map<String, Long>> expected = new ArrayList<>();
+        for (int parent = 0; parent < NUM_PARENTS; parent++) {
+            expected.add(new HashMap<String, Long>());
+        }
+        final int numDocs = scaledRandomIntBetween(50, 200);
+        for (int i = 0; i < numDocs; i++) {
+            final int parent = randomInt(NUM_PARENTS - 1);
+            // only the lower parent buckets see the highest tags, so that buckets have different terms
+            final String tag = "tag" + randomInt(Math.min(NUM_TAGS - 1, parent + 2));
+            final Long count = expected.get(parent).get(tag);
+            expected.get(parent).put(tag, count == null ? 1 : count + 1);
+            docs.add(client().prepareIndex("idx", "type").setSource(jsonBuilder().startObject()
+                    .field("parent", parent)
+                    .field("tag", tag)
+                    .endObject()));
+        }
+        indexRandom(true, docs);
+
+        final String executionHint = randomBoolean() ? null : randomFrom(TermsAggregatorFactory.ExecutionMode.values()).toString();
+        SearchResponse response = client().prepareSearch("idx")
+                .addAggregation(histogram("parents").field("parent").interval(1)
+                        .subAggregation(terms("tags").field("tag").executionHint(executionHint).size(NUM_TAGS)))
+                .get();
+        assertSearchResponse(response);
+
+        Histogram parents = response.getAggregations().get("parents");
+        for (Histogram.Bucket parentBucket : parents.getBuckets()) {
+            final Map<String, Long> expectedCounts = expected.get(((Number) parentBucket.getKey()).intValue());
+            Terms tags = parentBucket.getAggregations().get("tags");
+            assertThat(tags.getBuckets().size(), equalTo(expectedCounts.size()));
+            for (Terms.Bucket tagBucket : tags.getBuckets()) {
+                assertThat(tagBucket.getDocCount(), equalTo(expectedCounts.get(tagBucket.getKeyAsString())));
+            }
+        }
+    }
+
+    public void testTermsUnderHistogramWithMinDocCountZero() throws Exception {
+        // a single shard, so that the empty buckets are filled in with the terms of all documents
+        assertAcked(prepareCreate("idx").setSettings(SETTING_NUMBER_OF_SHARDS, 1, SETTING_NUMBER_OF_REPLICAS, 0)
+                .addMapping("type", "tag", "type=string,index=not_analyzed"));
+        indexRandom(true,
+                client().prepareIndex("idx", "type").setSource("parent", 0, "tag", "a"),
+                client().prepareIndex("idx", "type").setSource("parent", 0, "tag", "a"),
+                client().prepareIndex("idx", "type").setSource("parent", 1, "tag", "b"));
+
+        final String executionHint = randomBoolean() ? null : randomFrom(TermsAggregatorFactory.ExecutionMode.values()).toString();
+        SearchResponse response = client().prepareSearch("idx")
+                .addAggregation(histogram("parents").field("parent").interval(1)
+                        .subAggregation(terms("tags").field("tag").executionHint(executionHint).minDocCount(0)))
+                .get();
+        assertSearchResponse(response);
+
+        Histogram parents = response.getAggregations().get("parents");
+        assertThat(parents.getBuckets().size(), equalTo(2));
+        Terms first = parents.getBuckets().get(0).getAggregations().get("tags");
+        assertThat(first.getBuckets().size(), equalTo(2));
+        assertThat(first.getBucketByKey("a").getDocCount(), equalTo(2L));
+        assertThat(first.getBucketByKey("b").getDocCount(), equalTo(0L));
+        Terms second = parents.getBuckets().get(1).getAggregations().get("tags");
+        assertThat(second.getBuckets().size(), equalTo(2));
+        assertThat(second.getBucketByKey("a").getDocCount(), equalTo(0L));
+        assertThat(second.getBucketByKey("b").getDocCount(), equalTo(1L));
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.bucket.significant;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.lucene.index.FilterableTermsEnum;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.cache.docfreq.DocFreqCache;
+import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
+import org.elasticsearch.indices.cache.docfreq.IndicesDocFreqCache;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.test.IndexSettingsModule;
+
+import java.io.IOException;
+
+import static org.hamcrest.Matchers.equalTo;
+
+public class BackgroundFrequencyLookupTests extends ESTestCase {
+
+    private static final String[] TAGS = new String[] { "a", "b", "c", "d", "missing" };
+
+    public void testSameAsFilterableTermsEnum() throws IOException {
+        IndicesDocFreqCache indicesCache = new IndicesDocFreqCache(Settings.EMPTY, new NoneCircuitBreakerService());
+        DocFreqCache cache = new DocFreqCache(IndexSettingsModule.newIndexSettings(new Index("test"), Settings.EMPTY), indicesCache);
+        try (Directory dir = newDirectory(); RandomIndexWriter w = new RandomIndexWriter(random(), dir)) {
+            final int numDocs = scaledRandomIntBetween(10, 1000);
+            for (int i = 0; i < numDocs; ++i) {
+                Document doc = new Document();
+                doc.add(new StringField("id", Integer.toString(i), Field.Store.NO));
+                doc.add(new StringField("tag", randomFrom("a", "b", "c", "d"), Field.Store.NO));
+                doc.add(new StringField("group", randomFrom("x", "y"), Field.Store.NO));
+                w.addDocument(doc);
+            }
+            for (int iter = 0; iter < 3; ++iter) {
+                try (DirectoryReader reader = w.getReader()) {
+                    for (Query filter : new Query[] { null, new TermQuery(new Term("group", "x")) }) {
+                        // twice, the second time frequencies come from the cache
+                        for (int i = 0; i < 2; ++i) {
+                            assertSameFrequencies(reader, filter, cache);
+                        }
+                        assertSameFrequencies(reader, filter, null);
+                    }
+                }
+                // deletes must be taken into account by filtered frequencies even though the segments did not change
+                for (int i = randomInt(numDocs / 10); i > 0; --i) {
+                    w.deleteDocuments(new Term("id", Integer.toString(randomInt(numDocs - 1))));
+                }
+            }
+        }
+        cache.close();
+        indicesCache.close();
+    }
+
+    private void assertSameFrequencies(DirectoryReader reader, Query filter, DocFreqCache cache) throws IOException {
+        BackgroundFrequencyLookup lookup = new BackgroundFrequencyLookup(reader, "tag", filter, cache);
+        FilterableTermsEnum expected = new FilterableTermsEnum(reader, "tag", PostingsEnum.NONE, filter);
+        assertThat(lookup.numDocs(), equalTo((long) expected.getNumDocs()));
+        for (String tag : TAGS) {
+            BytesRef term = new BytesRef(tag);
+            long expectedDocFreq = expected.seekExact(term) ? expected.docFreq() : 0;
+            assertThat(lookup.docFreq(term), equalTo(expectedDocFreq));
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.metrics;
+
+import org.elasticsearch.action.index.IndexRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchType;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.search.SearchHits;
+import org.elasticsearch.search.aggregations.bucket.filter.Filter;
+import org.elasticsearch.search.aggregations.bucket.terms.Terms;
+import org.elasticsearch.search.aggregations.metrics.tophits.TopHits;
+import org.elasticsearch.search.sort.SortOrder;
+import org.elasticsearch.test.ESIntegTestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
+import static org.elasticsearch.index.query.QueryBuilders.matchAllQuery;
+import static org.elasticsearch.index.query.QueryBuilders.termQuery;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.filter;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.terms;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.topHits;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertSearchResponse;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.notNullValue;
+
+/**
+ * Tests top_hits aggregations whose hits are fetched after the aggregations are reduced, which requires the search to
+ * go through the query and the fetch phase on several shards.
+ */
+@ESIntegTestCase.SuiteScopeTestCase
+public class DeferredTopHitsIT extends ESIntegTestCase {
+
+    private static final int NUM_GROUPS = 5;
+    private static final int DOCS_PER_GROUP = 4;
+
+    @Override
+    public void setupSuiteScopeCluster() throws Exception {
+        Settings settings = Settings.builder().put(IndexMetaData.SETTING_NUMBER_OF_SHARDS, randomIntBetween(2, 5)).build();
+        String mapping = jsonBuilder().startObject().startObject("type").startObject("properties")
+                .startObject("group").field("type", "string").field("index", "not_analyzed").endObject()
+                .startObject("sort").field("type", "long").endObject()
+                .endObject().endObject().endObject().string();
+        assertAcked(prepareCreate("empty").setSettings(settings).addMapping("type", mapping));
+        assertAcked(prepareCreate("idx").setSettings(settings).addMapping("type", mapping));
+        // all docs live on a single shard so that the other shards have no top hits at all
+        assertAcked(prepareCreate("routed").setSettings(settings).addMapping("type", mapping));
+        List<IndexRequestBuilder> builders = new ArrayList<>();
+        for (int group = 0; group < NUM_GROUPS; group++) {
+            for (int i = 0; i < DOCS_PER_GROUP; i++) {
+                int sort = group * DOCS_PER_GROUP + i;
+                builders.add(client().prepareIndex("idx", "type", Integer.toString(sort))
+                        .setSource(jsonBuilder().startObject().field("group", "group" + group).field("sort", sort).endObject()));
+                builders.add(client().prepareIndex("routed", "type", Integer.toString(sort)).setRouting("r")
+                        .setSource(jsonBuilder().startObject().field("group", "group" + group).field("sort", sort).endObject()));
+            }
+        }
+        indexRandom(true, builders);
+        ensureSearchable();
+    }
+
+    private static SearchType searchType() {
+        return randomFrom(SearchType.QUERY_THEN_FETCH, SearchType.DFS_QUERY_THEN_FETCH);
+    }
+
+    private static void assertEmptyHits(TopHits topHits, long totalHits) {
+        assertThat(topHits, notNullValue());
+        SearchHits hits = topHits.getHits();
+        assertThat(hits, notNullValue());
+        assertThat(hits.totalHits(), equalTo(totalHits));
+        assertThat(hits.getHits().length, equalTo(0));
+    }
+
+    public void testEmptyIndex() throws Exception {
+        SearchResponse response = client().prepareSearch("empty").setSearchType(searchType())
+                .addAggregation(topHits("hits"))
+                .get();
+        assertSearchResponse(response);
+        assertEmptyHits(response.getAggregations().get("hits"), 0);
+    }
+
+    public void testFilterWithoutMatches() throws Exception {
+        SearchResponse response = client().prepareSearch("idx").setSearchType(searchType())
+                .addAggregation(filter("filter").filter(termQuery("group", "missing")).subAggregation(topHits("hits")))
+                .get();
+        assertSearchResponse(response);
+        Filter filter = response.getAggregations().get("filter");
+        assertThat(filter.getDocCount(), equalTo(0L));
+        assertEmptyHits(filter.getAggregations().get("hits"), 0);
+    }
+
+    public void testAllHitsPastFrom() throws Exception {
+        SearchResponse response = client().prepareSearch("idx").setSearchType(searchType())
+                .addAggregation(terms("terms").field("group")
+                        .subAggregation(topHits("hits").addSort("sort", SortOrder.ASC).setFrom(DOCS_PER_GROUP)))
+                .get();
+        assertSearchResponse(response);
+        Terms terms = response.getAggregations().get("terms");
+        assertThat(terms.getBuckets().size(), equalTo(NUM_GROUPS));
+        for (Terms.Bucket bucket : terms.getBuckets()) {
+            assertEmptyHits(bucket.getAggregations().get("hits"), DOCS_PER_GROUP);
+        }
+    }
+
+    public void testAllBucketsPruned() throws Exception {
+        SearchResponse response = client().prepareSearch("idx").setSearchType(searchType())
+                .addAggregation(terms("terms").field("group").minDocCount(DOCS_PER_GROUP + 1)
+                        .subAggregation(topHits("hits").addSort("sort", SortOrder.ASC)))
+                .get();
+        assertSearchResponse(response);
+        Terms terms = response.getAggregations().get("terms");
+        assertThat(terms.getBuckets().size(), equalTo(0));
+    }
+
+    public void testShardsWithoutTopHits() throws Exception {
+        SearchResponse response = client().prepareSearch("routed").setSearchType(searchType())
+                .setQuery(matchAllQuery())
+                .addAggregation(topHits("top").addSort("sort", SortOrder.DESC).setSize(1))
+                .addAggregation(terms("terms").field("group").size(1).order(Terms.Order.term(true))
+                        .subAggregation(topHits("hits").addSort("sort", SortOrder.ASC).setSize(2)))
+                .get();
+        assertSearchResponse(response);
+        TopHits top = response.getAggregations().get("top");
+        assertThat(top.getHits().totalHits(), equalTo((long) NUM_GROUPS * DOCS_PER_GROUP));
+        assertThat(top.getHits().getHits().length, equalTo(1));
+        assertThat(top.getHits().getAt(0).id(), equalTo(Integer.toString(NUM_GROUPS * DOCS_PER_GROUP - 1)));
+
+        Terms terms = response.getAggregations().get("terms");
+        assertThat(terms.getBuckets().size(), equalTo(1));
+        Terms.Bucket bucket = terms.getBuckets().get(0);
+        assertThat(bucket.getKeyAsString(), equalTo("group0"));
+        TopHits hits = bucket.getAggregations().get("hits");
+        assertThat(hits.getHits().totalHits(), equalTo((long) DOCS_PER_GROUP));
+        assertThat(hits.getHits().getHits().length, equalTo(2));
+        assertThat(hits.getHits().getAt(0).id(), equalTo("0"));
+        assertThat(hits.getHits().getAt(1).id(), equalTo("1"));
+    }
+}
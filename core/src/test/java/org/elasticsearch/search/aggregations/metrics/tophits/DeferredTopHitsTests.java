@@ -0,0 +1,172 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.metrics.tophits;
+
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.elasticsearch.common.text.Text;
+import org.elasticsearch.common.util.concurrent.AtomicArray;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.SearchShardTarget;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.InternalAggregation.ReduceContext;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.fetch.FetchSearchResult;
+import org.elasticsearch.search.internal.InternalSearchHit;
+import org.elasticsearch.search.internal.InternalSearchHits;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class DeferredTopHitsTests extends ESTestCase {
+
+    private final SearchShardTarget shard0 = new SearchShardTarget("node", "index", 0);
+    private final SearchShardTarget shard1 = new SearchShardTarget("node", "index", 1);
+
+    public void testFetchSurvivingHits() {
+        InternalAggregations reduced = reduce();
+        AtomicArray<Map<String, int[]>> docIdsToLoad = new AtomicArray<>(2);
+        DeferredTopHits.fillDocIdsToLoad(docIdsToLoad, reduced);
+        // doc 7 of the first shard did not make it to the top 2
+        assertThat(docIdsToLoad.get(0).size(), equalTo(1));
+        assertThat(docIdsToLoad.get(0).get("top"), equalTo(new int[] { 5 }));
+        assertThat(docIdsToLoad.get(1).size(), equalTo(1));
+        assertThat(docIdsToLoad.get(1).get("top"), equalTo(new int[] { 2 }));
+
+        AtomicArray<FetchSearchResult> fetchResults = new AtomicArray<>(2);
+        fetchResults.set(0, fetchResult(shard0, 5));
+        fetchResults.set(1, fetchResult(shard1, 2));
+        DeferredTopHits.fillHits(reduced, docIdsToLoad, fetchResults);
+
+        InternalTopHits topHits = reduced.get("top");
+        assertFalse(topHits.isDeferred());
+        SearchHit[] hits = topHits.getHits().getHits();
+        assertThat(hits.length, equalTo(2));
+        assertThat(hits[0].getId(), equalTo("5"));
+        assertThat(hits[0].getScore(), equalTo(3f));
+        assertThat(hits[0].getShard(), sameInstance(shard0));
+        assertThat(hits[1].getId(), equalTo("2"));
+        assertThat(hits[1].getScore(), equalTo(2f));
+        assertThat(hits[1].getShard(), sameInstance(shard1));
+    }
+
+    public void testFailedFetch() {
+        InternalAggregations reduced = reduce();
+        AtomicArray<Map<String, int[]>> docIdsToLoad = new AtomicArray<>(2);
+        DeferredTopHits.fillDocIdsToLoad(docIdsToLoad, reduced);
+
+        AtomicArray<FetchSearchResult> fetchResults = new AtomicArray<>(2);
+        fetchResults.set(1, fetchResult(shard1, 2));
+        DeferredTopHits.fillHits(reduced, docIdsToLoad, fetchResults);
+
+        // the hits of the shard that failed to fetch them are left out
+        SearchHit[] hits = ((InternalTopHits) reduced.get("top")).getHits().getHits();
+        assertThat(hits.length, equalTo(1));
+        assertThat(hits[0].getId(), equalTo("2"));
+    }
+
+    public void testNotDeferred() {
+        InternalTopHits topHits = new InternalTopHits("top", 0, 2, topDocs(new ScoreDoc(1, 1f)), InternalSearchHits.empty(),
+                Collections.emptyList(), null);
+        InternalAggregations aggregations = new InternalAggregations(Collections.<InternalAggregation>singletonList(topHits));
+        assertFalse(DeferredTopHits.hasDeferredHits(aggregations));
+        assertFalse(DeferredTopHits.hasDeferredHits(null));
+        AtomicArray<Map<String, int[]>> docIdsToLoad = new AtomicArray<>(1);
+        DeferredTopHits.fillDocIdsToLoad(docIdsToLoad, aggregations);
+        assertThat(docIdsToLoad.get(0), nullValue());
+    }
+
+    public void testReduceWithoutTopDocs() {
+        InternalTopHits empty = new InternalTopHits("top", 0, 2, new TopDocs(0, new ScoreDoc[0], Float.NaN),
+                InternalSearchHits.empty(), Collections.emptyList(), null);
+        // the top doc of the deferred shard is past from
+        InternalTopHits pastFrom = new InternalTopHits("top", 1, 2, topDocs(new ScoreDoc(1, 1f)), Collections.emptyList(), null);
+        InternalAggregations shardAggs0 = new InternalAggregations(Collections.<InternalAggregation>singletonList(empty));
+        InternalAggregations shardAggs1 = new InternalAggregations(Collections.<InternalAggregation>singletonList(pastFrom));
+        DeferredTopHits.shardIndex(shardAggs1, 1);
+        InternalAggregations reduced = InternalAggregations.reduce(Arrays.asList(shardAggs0, shardAggs1),
+                new ReduceContext(null, null, null));
+
+        // there is nothing left to fetch, but the hits are still there
+        InternalTopHits topHits = reduced.get("top");
+        assertFalse(topHits.isDeferred());
+        assertThat(topHits.getHits().totalHits(), equalTo(1L));
+        assertThat(topHits.getHits().getHits().length, equalTo(0));
+        AtomicArray<Map<String, int[]>> docIdsToLoad = new AtomicArray<>(2);
+        DeferredTopHits.fillDocIdsToLoad(docIdsToLoad, reduced);
+        assertThat(docIdsToLoad.asList().size(), equalTo(0));
+    }
+
+    public void testReduceWithShardWithoutTopDocs() {
+        InternalTopHits empty = new InternalTopHits("top", 0, 2, new TopDocs(0, new ScoreDoc[0], Float.NaN),
+                InternalSearchHits.empty(), Collections.emptyList(), null);
+        InternalAggregations shardAggs0 = new InternalAggregations(Collections.<InternalAggregation>singletonList(empty));
+        InternalAggregations shardAggs1 = deferred(new ScoreDoc(2, 2f));
+        assertFalse(DeferredTopHits.hasDeferredHits(shardAggs0));
+        DeferredTopHits.shardIndex(shardAggs1, 1);
+        // the shard without top docs comes first and must not prevent the others from being reduced as deferred
+        InternalAggregations reduced = InternalAggregations.reduce(Arrays.asList(shardAggs0, shardAggs1),
+                new ReduceContext(null, null, null));
+        assertTrue(((InternalTopHits) reduced.get("top")).isDeferred());
+
+        AtomicArray<Map<String, int[]>> docIdsToLoad = new AtomicArray<>(2);
+        DeferredTopHits.fillDocIdsToLoad(docIdsToLoad, reduced);
+        assertThat(docIdsToLoad.get(0), nullValue());
+        assertThat(docIdsToLoad.get(1).get("top"), equalTo(new int[] { 2 }));
+        AtomicArray<FetchSearchResult> fetchResults = new AtomicArray<>(2);
+        fetchResults.set(1, fetchResult(shard1, 2));
+        DeferredTopHits.fillHits(reduced, docIdsToLoad, fetchResults);
+        SearchHit[] hits = ((InternalTopHits) reduced.get("top")).getHits().getHits();
+        assertThat(hits.length, equalTo(1));
+        assertThat(hits[0].getId(), equalTo("2"));
+    }
+
+    private InternalAggregations reduce() {
+        InternalAggregations shardAggs0 = deferred(new ScoreDoc(5, 3f), new ScoreDoc(7, 1f));
+        InternalAggregations shardAggs1 = deferred(new ScoreDoc(2, 2f));
+        assertTrue(DeferredTopHits.hasDeferredHits(shardAggs0));
+        DeferredTopHits.shardIndex(shardAggs0, 0);
+        DeferredTopHits.shardIndex(shardAggs1, 1);
+        return InternalAggregations.reduce(Arrays.asList(shardAggs0, shardAggs1), new ReduceContext(null, null, null));
+    }
+
+    private static InternalAggregations deferred(ScoreDoc... scoreDocs) {
+        InternalTopHits topHits = new InternalTopHits("top", 0, 2, topDocs(scoreDocs), Collections.emptyList(), null);
+        assertTrue(topHits.isDeferred());
+        return new InternalAggregations(Collections.<InternalAggregation>singletonList(topHits));
+    }
+
+    private static TopDocs topDocs(ScoreDoc... scoreDocs) {
+        return new TopDocs(scoreDocs.length, scoreDocs, scoreDocs[0].score);
+    }
+
+    private static FetchSearchResult fetchResult(SearchShardTarget shardTarget, int docId) {
+        FetchSearchResult fetchResult = new FetchSearchResult(1, shardTarget);
+        fetchResult.hits(InternalSearchHits.empty());
+        InternalSearchHit hit = new InternalSearchHit(docId, Integer.toString(docId), new Text("type"), null);
+        fetchResult.topHits("top", new InternalSearchHits(new InternalSearchHit[] { hit }, 1, Float.NaN));
+        return fetchResult;
+    }
+}
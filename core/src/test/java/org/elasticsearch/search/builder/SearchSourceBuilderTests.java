@@ -254,6 +254,14 @@ public class SearchSourceBuilderTests extends ESTestCase {
                 }
             }
         }
+        if (randomBoolean()) {
+            int numSearchAfter = randomIntBetween(1, 5);
+            Object[] searchAfter = new Object[numSearchAfter];
+            for (int i = 0; i < numSearchAfter; i++) {
+                searchAfter[i] = randomBoolean() ? randomInt() : randomAsciiOfLengthBetween(5, 20);
+            }
+            builder.searchAfter(searchAfter);
+        }
         if (randomBoolean()) {
             builder.highlighter(HighlightBuilderTests.randomHighlighterBuilder());
         }
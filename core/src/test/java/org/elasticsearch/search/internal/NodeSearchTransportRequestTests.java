@@ -0,0 +1,73 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.internal;
+
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.cluster.routing.ShardRoutingState;
+import org.elasticsearch.cluster.routing.TestShardRouting;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class NodeSearchTransportRequestTests extends ESTestCase {
+
+    public void testSerialization() throws IOException {
+        SearchSourceBuilder source = new SearchSourceBuilder().from(randomIntBetween(0, 10)).size(randomIntBetween(0, 100));
+        SearchRequest searchRequest = new SearchRequest("index").source(source);
+        final int numShards = randomIntBetween(1, 10);
+        final long nowInMillis = randomIntBetween(0, Integer.MAX_VALUE);
+        List<ShardSearchTransportRequest> shardRequests = new ArrayList<>();
+        for (int i = 0; i < numShards; i++) {
+            String[] filteringAliases = randomBoolean() ? null : new String[] { "alias" };
+            shardRequests.add(new ShardSearchTransportRequest(searchRequest,
+                    TestShardRouting.newShardRouting("index", i, "node", true, ShardRoutingState.STARTED, 1), numShards, filteringAliases,
+                    nowInMillis));
+        }
+
+        BytesStreamOutput out = new BytesStreamOutput();
+        new NodeSearchTransportRequest(shardRequests).writeTo(out);
+        StreamInput in = StreamInput.wrap(out.bytes());
+        NodeSearchTransportRequest deserialized = new NodeSearchTransportRequest();
+        deserialized.readFrom(in);
+
+        assertThat(deserialized.indices(), equalTo(searchRequest.indices()));
+        assertThat(deserialized.shardRequests().size(), equalTo(numShards));
+        for (int i = 0; i < numShards; i++) {
+            ShardSearchTransportRequest expected = shardRequests.get(i);
+            ShardSearchTransportRequest shardRequest = deserialized.shardRequests().get(i);
+            assertThat(shardRequest.index(), equalTo("index"));
+            assertThat(shardRequest.shardId(), equalTo(i));
+            assertThat(shardRequest.numberOfShards(), equalTo(numShards));
+            assertThat(shardRequest.nowInMillis(), equalTo(nowInMillis));
+            String[] expectedAliases = expected.filteringAliases() == null ? new String[0] : expected.filteringAliases();
+            assertThat(shardRequest.filteringAliases(), equalTo(expectedAliases));
+            assertThat(shardRequest.source(), equalTo(source));
+            // the source is read once and shared by all shards
+            assertThat(shardRequest.source(), sameInstance(deserialized.shardRequests().get(0).source()));
+        }
+    }
+}
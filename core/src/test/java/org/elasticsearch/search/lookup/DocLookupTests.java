@@ -0,0 +1,83 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.lookup;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.IndexService;
+import org.elasticsearch.index.engine.Engine;
+import org.elasticsearch.index.fielddata.ScriptDocValues;
+import org.elasticsearch.test.ESSingleNodeTestCase;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+public class DocLookupTests extends ESSingleNodeTestCase {
+
+    public void testAccessorMatchesLeafDocLookup() throws Exception {
+        IndexService indexService = createIndex("test", Settings.EMPTY, "type",
+                "long", "type=long", "double", "type=double", "string", "type=string,index=not_analyzed");
+        final int numDocs = scaledRandomIntBetween(10, 100);
+        for (int i = 0; i < numDocs; i++) {
+            if (rarely()) {
+                client().prepareIndex("test", "type", Integer.toString(i)).setSource("other", i).get();
+            } else {
+                client().prepareIndex("test", "type", Integer.toString(i))
+                        .setSource("long", randomInt(), "double", randomDouble(), "string", randomFrom("a", "b", "c")).get();
+            }
+            if (rarely()) {
+                client().admin().indices().prepareRefresh("test").get();
+            }
+        }
+        client().admin().indices().prepareRefresh("test").get();
+
+        DocLookup docLookup = new SearchLookup(indexService.mapperService(), indexService.fieldData(), null).doc();
+        assertThat(docLookup.accessor("unmapped"), nullValue());
+        DocValuesAccessor longAccessor = docLookup.accessor("long");
+        DocValuesAccessor doubleAccessor = docLookup.accessor("double");
+        DocValuesAccessor stringAccessor = docLookup.accessor("string");
+        assertTrue(longAccessor.isNumeric());
+        assertFalse(longAccessor.isFloatingPoint());
+        assertTrue(doubleAccessor.isFloatingPoint());
+        assertFalse(stringAccessor.isNumeric());
+
+        try (Engine.Searcher searcher = indexService.getShard(0).acquireSearcher("test")) {
+            for (LeafReaderContext ctx : searcher.reader().leaves()) {
+                LeafDocLookup leafDocLookup = docLookup.getLeafDocLookup(ctx);
+                LeafDocValuesAccessor longs = longAccessor.getLeaf(ctx);
+                LeafDocValuesAccessor doubles = doubleAccessor.getLeaf(ctx);
+                LeafDocValuesAccessor strings = stringAccessor.getLeaf(ctx);
+                assertTrue(longs.isNumeric());
+                assertFalse(longs.isFloatingPoint());
+                assertTrue(doubles.isFloatingPoint());
+                assertFalse(strings.isNumeric());
+                for (int doc = 0; doc < ctx.reader().maxDoc(); doc++) {
+                    leafDocLookup.setDocument(doc);
+                    ScriptDocValues.Longs expectedLongs = (ScriptDocValues.Longs) leafDocLookup.get("long");
+                    assertThat(longs.longValue(doc), equalTo(expectedLongs.getValue()));
+                    ScriptDocValues.Doubles expectedDoubles = (ScriptDocValues.Doubles) leafDocLookup.get("double");
+                    assertThat(doubles.doubleValue(doc), equalTo(expectedDoubles.getValue()));
+                    ScriptDocValues.Strings expectedStrings = (ScriptDocValues.Strings) leafDocLookup.get("string");
+                    strings.scriptValues().setNextDocId(doc);
+                    assertThat(LeafDocValuesAccessor.firstValue(strings.scriptValues()), equalTo((Object) expectedStrings.getValue()));
+                }
+            }
+        }
+    }
+}
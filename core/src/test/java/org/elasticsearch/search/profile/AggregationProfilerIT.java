@@ -0,0 +1,116 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.profile;
+
+import org.elasticsearch.action.index.IndexRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchType;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.test.ESIntegTestCase;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.elasticsearch.search.aggregations.AggregationBuilders.avg;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.max;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.terms;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertSearchResponse;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.notNullValue;
+
+public class AggregationProfilerIT extends ESIntegTestCase {
+
+    public void testProfileAggregationsAndFetch() throws Exception {
+        createIndex("test");
+        ensureGreen();
+
+        int numDocs = randomIntBetween(50, 100);
+        IndexRequestBuilder[] docs = new IndexRequestBuilder[numDocs];
+        for (int i = 0; i < numDocs; i++) {
+            docs[i] = client().prepareIndex("test", "type1", String.valueOf(i)).setSource(
+                    "tag", randomFrom("a", "b", "c"),
+                    "number", i
+            );
+        }
+        indexRandom(true, docs);
+
+        SearchResponse resp = client().prepareSearch("test")
+                .setProfile(true)
+                .setSearchType(SearchType.QUERY_THEN_FETCH)
+                .setSize(numDocs)
+                .addAggregation(terms("tags").field("tag").subAggregation(avg("avg_number").field("number")))
+                .addAggregation(max("max_number").field("number"))
+                .get();
+        assertSearchResponse(resp);
+
+        Set<String> shardsWithHits = new HashSet<>();
+        for (SearchHit hit : resp.getHits()) {
+            shardsWithHits.add(hit.getShard().toString());
+        }
+        assertThat(shardsWithHits.size(), greaterThan(0));
+
+        Map<String, List<ProfileShardResult>> profileResults = resp.getProfileResults();
+        assertThat(profileResults.size(), greaterThan(0));
+        for (Map.Entry<String, List<ProfileShardResult>> shard : profileResults.entrySet()) {
+            ProfileShardResult result = shard.getValue().get(0);
+
+            List<AggregationProfileResult> aggregations = result.getAggregationResults();
+            assertThat(aggregations.size(), equalTo(2));
+            AggregationProfileResult tags = aggregations.get(0);
+            assertThat(tags.getType(), equalTo("terms"));
+            assertThat(tags.getDescription(), equalTo("tags"));
+            // creating the aggregator is part of its initialization
+            assertThat(tags.getTimeBreakdown().get("initialize"), greaterThan(0L));
+            assertThat(tags.getTimeBreakdown().get("build_aggregation"), greaterThan(0L));
+            assertThat(tags.getTime(), greaterThan(0L));
+            assertThat(tags.getProfiledChildren().size(), equalTo(1));
+            AggregationProfileResult avgNumber = tags.getProfiledChildren().get(0);
+            assertThat(avgNumber.getType(), equalTo("avg"));
+            assertThat(avgNumber.getDescription(), equalTo("avg_number"));
+            assertThat(avgNumber.getTimeBreakdown().get("initialize"), greaterThan(0L));
+            AggregationProfileResult maxNumber = aggregations.get(1);
+            assertThat(maxNumber.getType(), equalTo("max"));
+            assertThat(maxNumber.getDescription(), equalTo("max_number"));
+            assertThat(maxNumber.getProfiledChildren().size(), equalTo(0));
+
+            // all documents are returned, so every shard that has some was fetched from
+            FetchProfileResult fetch = result.getFetchResult();
+            if (shardsWithHits.contains(shard.getKey())) {
+                assertThat(fetch, notNullValue());
+                assertThat(fetch.getTime(), greaterThan(0L));
+            }
+        }
+        assertThat(resp.getProfileAggregationsReduceTime(), greaterThanOrEqualTo(0L));
+    }
+
+    public void testNoAggregationsReduceTimeWithoutAggregations() throws Exception {
+        createIndex("test");
+        ensureGreen();
+        indexRandom(true, client().prepareIndex("test", "type1", "1").setSource("tag", "a"));
+
+        SearchResponse resp = client().prepareSearch("test").setProfile(true).get();
+        assertSearchResponse(resp);
+        assertThat(resp.getProfileResults().size(), greaterThan(0));
+        assertThat(resp.getProfileAggregationsReduceTime(), equalTo(-1L));
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.profile;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.LeafBucketCollector;
+import org.elasticsearch.search.aggregations.support.AggregationContext;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class AggregationProfilerTests extends ESTestCase {
+
+    public void testTree() throws IOException {
+        AggregationProfiler profiler = new AggregationProfiler();
+        Aggregator terms = new MockAggregator("my_terms", null);
+        Aggregator avg = new MockAggregator("my_avg", terms);
+        Aggregator otherAvg = new MockAggregator("my_avg", terms); // e.g. created once per parent bucket
+        Aggregator max = new MockAggregator("my_max", null);
+
+        // sub-aggregators are created before their parent
+        Aggregator profiledAvg = new ProfilingAggregator(avg, "avg", profiler);
+        Aggregator profiledOtherAvg = new ProfilingAggregator(otherAvg, "avg", profiler);
+        Aggregator profiledTerms = new ProfilingAggregator(terms, "terms", profiler);
+        Aggregator profiledMax = new ProfilingAggregator(max, "max", profiler);
+        assertThat(ProfilingAggregator.unwrap(profiledTerms), sameInstance(terms));
+        assertThat(ProfilingAggregator.unwrap(terms), sameInstance(terms));
+
+        for (Aggregator aggregator : new Aggregator[] { profiledAvg, profiledOtherAvg, profiledTerms, profiledMax }) {
+            aggregator.preCollection();
+            aggregator.getLeafCollector(null).collect(0, 0);
+            aggregator.buildAggregation(0);
+        }
+
+        List<AggregationProfileResult> tree = profiler.getTree();
+        assertThat(tree.size(), equalTo(2));
+        assertThat(tree.get(0).getType(), equalTo("terms"));
+        assertThat(tree.get(0).getDescription(), equalTo("my_terms"));
+        assertThat(tree.get(1).getType(), equalTo("max"));
+        assertThat(tree.get(1).getProfiledChildren().size(), equalTo(0));
+        List<AggregationProfileResult> children = tree.get(0).getProfiledChildren();
+        assertThat(children.size(), equalTo(1));
+        assertThat(children.get(0).getType(), equalTo("avg"));
+        assertThat(children.get(0).getDescription(), equalTo("my_avg"));
+        for (AggregationProfileBreakdown.TimingType timingType : AggregationProfileBreakdown.TimingType.values()) {
+            // both avg aggregators recorded into the same breakdown
+            assertThat(children.get(0).getTimeBreakdown().get(timingType.toString()), greaterThan(1L));
+            assertThat(tree.get(1).getTimeBreakdown().get(timingType.toString()), greaterThan(0L));
+        }
+        assertThat(tree.get(0).getTime(), greaterThan(0L));
+    }
+
+    public void testBreakdownBeforeCreation() throws IOException {
+        AggregationProfiler profiler = new AggregationProfiler();
+        Aggregator terms = new MockAggregator("my_terms", null);
+        // the breakdown is looked up before the aggregator exists so that its creation can be timed
+        AggregationProfileBreakdown breakdown = profiler.getBreakdown(terms, "my_avg", "avg");
+        breakdown.addTime(AggregationProfileBreakdown.TimingType.INITIALIZE, 5);
+        Aggregator avg = new MockAggregator("my_avg", terms);
+        assertThat(profiler.getBreakdown(avg, "avg"), sameInstance(breakdown));
+        new ProfilingAggregator(avg, breakdown).preCollection();
+        assertThat(breakdown.toTimingMap().get("initialize"), greaterThan(5L));
+        assertThat(profiler.getBreakdown(null, "my_terms", "terms"), sameInstance(profiler.getBreakdown(terms, "terms")));
+    }
+
+    public void testSerialization() throws IOException {
+        AggregationProfiler profiler = new AggregationProfiler();
+        Aggregator terms = new MockAggregator("my_terms", null);
+        new ProfilingAggregator(new MockAggregator("my_avg", terms), "avg", profiler).preCollection();
+        new ProfilingAggregator(terms, "terms", profiler).preCollection();
+        AggregationProfileResult result = profiler.getTree().get(0);
+
+        BytesStreamOutput out = new BytesStreamOutput();
+        result.writeTo(out);
+        StreamInput in = StreamInput.wrap(out.bytes());
+        AggregationProfileResult read = new AggregationProfileResult(in);
+        assertThat(read.getType(), equalTo(result.getType()));
+        assertThat(read.getDescription(), equalTo(result.getDescription()));
+        assertThat(read.getTime(), equalTo(result.getTime()));
+        assertThat(read.getTimeBreakdown(), equalTo(result.getTimeBreakdown()));
+        assertThat(read.getProfiledChildren().size(), equalTo(1));
+        assertThat(read.getProfiledChildren().get(0).getDescription(), equalTo("my_avg"));
+    }
+
+    private static class MockAggregator extends Aggregator {
+
+        private final String name;
+        private final Aggregator parent;
+
+        MockAggregator(String name, Aggregator parent) {
+            this.name = name;
+            this.parent = parent;
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public AggregationContext context() {
+            return null;
+        }
+
+        @Override
+        public Aggregator parent() {
+            return parent;
+        }
+
+        @Override
+        public Aggregator subAggregator(String name) {
+            return null;
+        }
+
+        @Override
+        public InternalAggregation buildAggregation(long bucket) throws IOException {
+            return null;
+        }
+
+        @Override
+        public InternalAggregation buildEmptyAggregation() {
+            return null;
+        }
+
+        @Override
+        public LeafBucketCollector getLeafCollector(LeafReaderContext ctx) throws IOException {
+            return new LeafBucketCollector() {
+                @Override
+                public void collect(int doc, long bucket) throws IOException {
+                }
+            };
+        }
+
+        @Override
+        public void preCollection() throws IOException {
+        }
+
+        @Override
+        public void postCollection() throws IOException {
+        }
+
+        @Override
+        public boolean needsScores() {
+            return false;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
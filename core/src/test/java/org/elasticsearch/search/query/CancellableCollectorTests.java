@@ -0,0 +1,108 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.query;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.SimpleCollector;
+import org.apache.lucene.search.TotalHitCountCollector;
+import org.apache.lucene.store.Directory;
+import org.elasticsearch.tasks.TaskCancelledException;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.hamcrest.Matchers.equalTo;
+
+public class CancellableCollectorTests extends ESTestCase {
+
+    public void testNotCancelled() throws IOException {
+        try (Directory dir = newDirectory(); RandomIndexWriter w = new RandomIndexWriter(random(), dir)) {
+            final int numDocs = indexDocs(w);
+            try (DirectoryReader reader = w.getReader()) {
+                TotalHitCountCollector counter = new TotalHitCountCollector();
+                new IndexSearcher(reader).search(new MatchAllDocsQuery(), new CancellableCollector(() -> false, counter));
+                assertThat(counter.getTotalHits(), equalTo(numDocs));
+            }
+        }
+    }
+
+    public void testCancelledBeforeCollection() throws IOException {
+        try (Directory dir = newDirectory(); RandomIndexWriter w = new RandomIndexWriter(random(), dir)) {
+            indexDocs(w);
+            try (DirectoryReader reader = w.getReader()) {
+                TotalHitCountCollector counter = new TotalHitCountCollector();
+                try {
+                    new IndexSearcher(reader).search(new MatchAllDocsQuery(), new CancellableCollector(() -> true, counter));
+                    fail("collection should have been cancelled");
+                } catch (TaskCancelledException e) {
+                    // expected
+                }
+                assertThat(counter.getTotalHits(), equalTo(0));
+            }
+        }
+    }
+
+    public void testCancelledDuringCollection() throws IOException {
+        try (Directory dir = newDirectory(); RandomIndexWriter w = new RandomIndexWriter(random(), dir)) {
+            indexDocs(w);
+            // a single segment, so that cancellation can only be noticed within the segment
+            w.forceMerge(1);
+            try (DirectoryReader reader = w.getReader()) {
+                final AtomicBoolean cancelled = new AtomicBoolean();
+                final int[] collected = new int[1];
+                SimpleCollector cancelling = new SimpleCollector() {
+                    @Override
+                    public void collect(int doc) throws IOException {
+                        collected[0]++;
+                        cancelled.set(true);
+                    }
+
+                    @Override
+                    public boolean needsScores() {
+                        return false;
+                    }
+                };
+                try {
+                    new IndexSearcher(reader).search(new MatchAllDocsQuery(), new CancellableCollector(cancelled::get, cancelling));
+                    fail("collection should have been cancelled");
+                } catch (TaskCancelledException e) {
+                    // expected
+                }
+                // cancellation is only checked every CHECK_INTERVAL documents
+                assertThat(collected[0], equalTo(CancellableCollector.CHECK_INTERVAL - 1));
+            }
+        }
+    }
+
+    /**
+     * Indexes more documents than are collected between two cancellation checks.
+     */
+    private static int indexDocs(RandomIndexWriter w) throws IOException {
+        final int numDocs = CancellableCollector.CHECK_INTERVAL + randomIntBetween(1, CancellableCollector.CHECK_INTERVAL);
+        for (int i = 0; i < numDocs; i++) {
+            w.addDocument(new Document());
+        }
+        return numDocs;
+    }
+}
@@ -21,26 +21,43 @@ package org.elasticsearch.search.query;
 
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedNumericDocValuesField;
 import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.MultiReader;
 import org.apache.lucene.index.NoMergePolicy;
 import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.index.SortingMergePolicy;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.BooleanClause.Occur;
 import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.Collector;
 import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.FieldDoc;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.MatchNoDocsQuery;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.SortedNumericSortField;
 import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopFieldCollector;
 import org.apache.lucene.search.Weight;
 import org.apache.lucene.store.Directory;
+import org.elasticsearch.common.Strings;
 import org.elasticsearch.index.query.ParsedQuery;
+import org.elasticsearch.index.shard.IndexSortConfig;
+import org.elasticsearch.search.internal.ShardSearchLocalRequest;
+import org.elasticsearch.search.internal.ShardSearchRequest;
+import org.elasticsearch.search.searchafter.SearchAfterBuilder;
 import org.elasticsearch.test.ESTestCase;
 import org.elasticsearch.test.TestSearchContext;
 
@@ -165,4 +182,97 @@ public class QueryPhaseTests extends ESTestCase {
         assertTrue(collected.get());
     }
 
+    public void testSearchAfterPagesThroughAllHits() throws Exception {
+        Directory dir = newDirectory();
+        RandomIndexWriter w = new RandomIndexWriter(random(), dir);
+        final int numDocs = scaledRandomIntBetween(100, 200);
+        for (int i = 0; i < numDocs; ++i) {
+            Document doc = new Document();
+            // few distinct ranks so that pages often end in the middle of a tie
+            doc.add(new NumericDocValuesField("rank", randomIntBetween(0, 10)));
+            doc.add(new NumericDocValuesField("id", i));
+            w.addDocument(doc);
+        }
+        final IndexReader reader = w.getReader();
+        w.close();
+        IndexSearcher searcher = new IndexSearcher(reader);
+        // like _uid, the id breaks ties so that the sort values of a hit identify it
+        Sort sort = new Sort(new SortField("rank", SortField.Type.LONG, randomBoolean()),
+            new SortField("id", SortField.Type.LONG, randomBoolean()));
+        TopDocs expected = searcher.search(new MatchAllDocsQuery(), numDocs, sort);
+
+        TestSearchContext context = new TestSearchContext() {
+            @Override
+            public ShardSearchRequest request() {
+                return new ShardSearchLocalRequest(Strings.EMPTY_ARRAY, System.currentTimeMillis());
+            }
+        };
+        context.parsedQuery(new ParsedQuery(new MatchAllDocsQuery()));
+        context.sort(sort);
+        context.setSize(randomIntBetween(1, 30));
+        int collected = 0;
+        while (true) {
+            QueryPhase.execute(context, searcher);
+            ScoreDoc[] page = context.queryResult().topDocs().scoreDocs;
+            assertEquals(numDocs, context.queryResult().topDocs().totalHits);
+            if (page.length == 0) {
+                break;
+            }
+            assertTrue(page.length <= context.size());
+            for (ScoreDoc hit : page) {
+                // the pages neither skip nor repeat hits of the full sort
+                assertEquals(expected.scoreDocs[collected].doc, hit.doc);
+                collected++;
+            }
+            // like a search request, only the sort values of the last hit are passed on to the next page
+            context.searchAfter(SearchAfterBuilder.buildFieldDoc(sort, ((FieldDoc) page[page.length - 1]).fields));
+        }
+        assertEquals(numDocs, collected);
+
+        reader.close();
+        dir.close();
+    }
+
+    public void testIndexSortEarlyTermination() throws Exception {
+        Directory dir = newDirectory();
+        Sort indexSort = new Sort(new SortedNumericSortField("rank", SortField.Type.LONG));
+        IndexWriterConfig iwc = newIndexWriterConfig().setMergePolicy(new SortingMergePolicy(newLogMergePolicy(), indexSort));
+        IndexWriter w = new IndexWriter(dir, iwc);
+        final int numDocs = scaledRandomIntBetween(100, 200);
+        for (int i = 0; i < numDocs; ++i) {
+            Document doc = new Document();
+            doc.add(new SortedNumericDocValuesField("rank", randomIntBetween(0, 1000)));
+            w.addDocument(doc);
+            if (i == numDocs / 2) {
+                // make sure the force merge below has segments to merge, only merged segments are sorted
+                w.commit();
+            }
+        }
+        w.forceMerge(1);
+        final IndexReader reader = DirectoryReader.open(w, true);
+        IndexSearcher searcher = new IndexSearcher(reader);
+        final int size = randomIntBetween(1, 20);
+
+        TopFieldCollector topDocsCollector = TopFieldCollector.create(indexSort, size, true, false, false);
+        IndexSortEarlyTerminatingCollector collector = new IndexSortEarlyTerminatingCollector(topDocsCollector, indexSort, size);
+        searcher.search(new MatchAllDocsQuery(), collector);
+        assertTrue(collector.terminatedEarly());
+        assertEquals(size, topDocsCollector.getTotalHits());
+
+        TopDocs expected = searcher.search(new MatchAllDocsQuery(), size, indexSort);
+        TopDocs actual = topDocsCollector.topDocs();
+        assertEquals(expected.scoreDocs.length, actual.scoreDocs.length);
+        for (int i = 0; i < expected.scoreDocs.length; i++) {
+            assertEquals(expected.scoreDocs[i].doc, actual.scoreDocs[i].doc);
+        }
+
+        // a sort that isn't a prefix of the index sort can't terminate early
+        Sort reverse = new Sort(new SortedNumericSortField("rank", SortField.Type.LONG, true));
+        assertFalse(IndexSortConfig.canEarlyTerminate(indexSort, reverse));
+        assertTrue(IndexSortConfig.canEarlyTerminate(indexSort, new Sort(new SortedNumericSortField("rank", SortField.Type.LONG))));
+
+        reader.close();
+        w.close();
+        dir.close();
+    }
 }
@@ -0,0 +1,140 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.searchafter;
+
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+
+public class SearchAfterBuilderTests extends ESTestCase {
+
+    private static SearchAfterBuilder randomSearchAfterBuilder() {
+        Object[] values = new Object[randomIntBetween(1, 10)];
+        for (int i = 0; i < values.length; i++) {
+            switch (randomInt(3)) {
+                case 0:
+                    values[i] = randomInt();
+                    break;
+                case 1:
+                    values[i] = randomAsciiOfLengthBetween(5, 20);
+                    break;
+                case 2:
+                    values[i] = randomBoolean();
+                    break;
+                case 3:
+                    values[i] = null;
+                    break;
+                default:
+                    throw new IllegalStateException();
+            }
+        }
+        return new SearchAfterBuilder().setSortValues(values);
+    }
+
+    public void testSerialization() throws IOException {
+        SearchAfterBuilder original = randomSearchAfterBuilder();
+        BytesStreamOutput out = new BytesStreamOutput();
+        original.writeTo(out);
+        StreamInput in = StreamInput.wrap(out.bytes());
+        SearchAfterBuilder deserialized = SearchAfterBuilder.PROTOTYPE.readFrom(in);
+        assertEquals(original, deserialized);
+        assertEquals(original.hashCode(), deserialized.hashCode());
+    }
+
+    public void testFromXContent() throws IOException {
+        SearchAfterBuilder original = randomSearchAfterBuilder();
+        XContentBuilder builder = XContentFactory.contentBuilder(randomFrom(XContentType.values()));
+        builder.startObject();
+        original.toXContent(builder, ToXContent.EMPTY_PARAMS);
+        builder.endObject();
+        XContentParser parser = XContentFactory.xContent(builder.bytes()).createParser(builder.bytes());
+        parser.nextToken(); // start object
+        parser.nextToken(); // search_after
+        parser.nextToken(); // start array
+        SearchAfterBuilder parsed = SearchAfterBuilder.fromXContent(parser);
+        assertEquals(original, parsed);
+    }
+
+    public void testRejectsUnsupportedValues() {
+        try {
+            new SearchAfterBuilder().setSortValues(new Object[] { new Object() });
+            fail("expected an exception");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), containsString("Can't handle search_after field value of type"));
+        }
+        try {
+            new SearchAfterBuilder().setSortValues(new Object[0]);
+            fail("expected an exception");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), equalTo("Values must contains at least one value."));
+        }
+    }
+
+    public void testBuildFieldDoc() {
+        Sort sort = new Sort(new SortField("long", SortField.Type.LONG), new SortField("double", SortField.Type.DOUBLE),
+                new SortField("string", SortField.Type.STRING), SortField.FIELD_SCORE);
+        FieldDoc fieldDoc = SearchAfterBuilder.buildFieldDoc(sort, new Object[] { 42, "1.5", "foo", 2.0 });
+        assertThat(fieldDoc.doc, equalTo(Integer.MAX_VALUE));
+        assertThat(fieldDoc.fields.length, equalTo(4));
+        assertThat(fieldDoc.fields[0], equalTo((Object) 42L));
+        assertThat(fieldDoc.fields[1], equalTo((Object) 1.5d));
+        assertThat(fieldDoc.fields[2], equalTo((Object) new BytesRef("foo")));
+        assertThat(fieldDoc.fields[3], equalTo((Object) 2.0f));
+
+        // missing string values are sorted according to the missing order
+        fieldDoc = SearchAfterBuilder.buildFieldDoc(new Sort(new SortField("string", SortField.Type.STRING)), new Object[] { null });
+        assertNull(fieldDoc.fields[0]);
+    }
+
+    public void testBuildFieldDocValidation() {
+        try {
+            SearchAfterBuilder.buildFieldDoc(null, new Object[] { 1 });
+            fail("expected an exception");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), equalTo("Sort must contain at least one field."));
+        }
+        Sort sort = new Sort(new SortField("long", SortField.Type.LONG));
+        try {
+            SearchAfterBuilder.buildFieldDoc(sort, new Object[] { 1, 2 });
+            fail("expected an exception");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), equalTo("search_after has 2 value(s) but sort has 1."));
+        }
+        try {
+            SearchAfterBuilder.buildFieldDoc(sort, new Object[] { "foo" });
+            fail("expected an exception");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), equalTo("Failed to parse search_after value for field [long]."));
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.tasks;
+
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.transport.TransportRequest;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+public class TaskManagerTests extends ESTestCase {
+
+    public void testRegisterAndUnregister() {
+        TaskManager taskManager = new TaskManager(Settings.EMPTY);
+        assertThat(taskManager.register("transport", "test", new TransportRequest.Empty()), nullValue());
+
+        Task task = taskManager.register("transport", "test", new TestRequest());
+        assertThat(task.getAction(), equalTo("test"));
+        assertThat(task.getDescription(), equalTo("test request"));
+        assertThat(taskManager.getTasks().get(task.getId()), equalTo(task));
+
+        TaskInfo info = task.taskInfo("node1", false);
+        assertThat(info.getTaskId(), equalTo(new TaskId("node1", task.getId())));
+        assertThat(info.getDescription(), nullValue());
+        assertTrue(info.isCancellable());
+        assertThat(task.taskInfo("node1", true).getDescription(), equalTo("test request"));
+
+        assertThat(taskManager.unregister(task), equalTo(task));
+        assertTrue(taskManager.getTasks().isEmpty());
+        assertThat(taskManager.unregister(null), nullValue());
+    }
+
+    public void testCancelCancelsChildren() {
+        TaskManager taskManager = new TaskManager(Settings.EMPTY);
+        CancellableTask parent = (CancellableTask) taskManager.register("transport", "parent", new TestRequest());
+        TestRequest childRequest = new TestRequest();
+        childRequest.setParentTask("node1", parent.getId());
+        CancellableTask child = (CancellableTask) taskManager.register("transport", "child", childRequest);
+        CancellableTask unrelated = (CancellableTask) taskManager.register("transport", "unrelated", new TestRequest());
+
+        List<Task> cancelled = taskManager.cancel("node1", Collections.singleton(new TaskId("node1", parent.getId())), "test");
+        assertThat(cancelled.size(), equalTo(2));
+        assertTrue(parent.isCancelled());
+        assertTrue(child.isCancelled());
+        assertThat(child.getReasonCancelled(), equalTo("test"));
+        assertFalse(unrelated.isCancelled());
+        unrelated.ensureNotCancelled();
+        try {
+            child.ensureNotCancelled();
+            fail("expected the child to be cancelled");
+        } catch (TaskCancelledException e) {
+            assertThat(e.getMessage(), equalTo("task [" + child.getId() + "] was cancelled, reason [test]"));
+        }
+
+        // cancelling again does not report the tasks twice
+        assertTrue(taskManager.cancel("node1", Collections.singleton(new TaskId("node1", parent.getId())), "test").isEmpty());
+    }
+
+    public void testChildOfCancelledParentIsCancelledOnRegistration() {
+        TaskManager taskManager = new TaskManager(Settings.EMPTY);
+        TaskId remoteParent = new TaskId("node2", 42);
+        assertTrue(taskManager.cancel("node1", Collections.singleton(remoteParent), "test").isEmpty());
+        assertThat(taskManager.getBannedParents(), contains(remoteParent));
+
+        TestRequest childRequest = new TestRequest();
+        childRequest.setParentTask("node2", 42);
+        CancellableTask child = (CancellableTask) taskManager.register("transport", "child", childRequest);
+        assertTrue(child.isCancelled());
+
+        TestRequest otherRequest = new TestRequest();
+        otherRequest.setParentTask("node2", 43);
+        assertFalse(((CancellableTask) taskManager.register("transport", "child", otherRequest)).isCancelled());
+    }
+
+    public void testFindTasks() {
+        TaskManager taskManager = new TaskManager(Settings.EMPTY);
+        Task search = taskManager.register("transport", "indices:data/read/search", new TestRequest());
+        TestRequest childRequest = new TestRequest();
+        childRequest.setParentTask("node1", search.getId());
+        Task child = taskManager.register("transport", "indices:data/read/search[phase/query]", childRequest);
+        Task other = taskManager.register("transport", "cluster:monitor/nodes/stats", new TestRequest());
+
+        assertThat(taskManager.findTasks(new String[0], TaskId.EMPTY_TASK_ID).size(), equalTo(3));
+        assertThat(taskManager.findTasks(new String[] { "cluster:*" }, TaskId.EMPTY_TASK_ID), contains(other));
+        assertThat(taskManager.findTasks(new String[0], new TaskId("node1", search.getId())), contains(child));
+        assertThat(taskManager.findTasks(new String[] { "*search" }, TaskId.EMPTY_TASK_ID), contains(search));
+    }
+
+    public void testTaskIdParsingAndSerialization() throws IOException {
+        TaskId taskId = new TaskId(randomAsciiOfLength(10), randomIntBetween(0, Integer.MAX_VALUE));
+        assertThat(new TaskId(taskId.toString()), equalTo(taskId));
+        assertThat(new TaskId("node:with:colons:7"), equalTo(new TaskId("node:with:colons", 7)));
+        assertFalse(new TaskId("").isSet());
+
+        for (TaskId id : Arrays.asList(taskId, TaskId.EMPTY_TASK_ID)) {
+            BytesStreamOutput out = new BytesStreamOutput();
+            id.writeTo(out);
+            StreamInput in = StreamInput.wrap(out.bytes());
+            assertThat(TaskId.readTaskId(in), equalTo(id));
+        }
+
+        for (String malformed : new String[] { "node", "node:", ":1", "node:abc" }) {
+            try {
+                new TaskId(malformed);
+                fail("expected [" + malformed + "] to be rejected");
+            } catch (IllegalArgumentException e) {
+                assertThat(e.getMessage(), equalTo("malformed task id [" + malformed + "], expected [node_id:id]"));
+            }
+        }
+    }
+
+    private static class TestRequest extends ChildTaskRequest {
+        @Override
+        public Task createTask(long id, String type, String action) {
+            return new CancellableTask(id, type, action, getDescription(), getParentTask());
+        }
+
+        @Override
+        public String getDescription() {
+            return "test request";
+        }
+    }
+}
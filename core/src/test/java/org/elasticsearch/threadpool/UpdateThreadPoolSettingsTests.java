@@ -22,6 +22,7 @@ package org.elasticsearch.threadpool;
 import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.concurrent.EsThreadPoolExecutor;
+import org.elasticsearch.common.util.concurrent.QueueResizingEsThreadPoolExecutor;
 import org.elasticsearch.test.ESTestCase;
 import org.elasticsearch.threadpool.ThreadPool.Names;
 
@@ -115,6 +116,47 @@ public class UpdateThreadPoolSettingsTests extends ESTestCase {
         }
     }
 
+    public void testUpdateSettingsRejectsMinQueueSizeAboveMax() throws InterruptedException {
+        ThreadPool threadPool = null;
+        try {
+            threadPool = new ThreadPool(settingsBuilder()
+                    .put("name", "testUpdateSettingsRejectsMinQueueSizeAboveMax")
+                    .put("threadpool." + Names.SEARCH + ".auto_queue", true)
+                    .build());
+            ClusterSettings clusterSettings = new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS);
+            threadPool.setClusterSettings(clusterSettings);
+
+            try {
+                // the max queue size of the search thread pool defaults to 2000
+                clusterSettings.applySettings(settingsBuilder().put("threadpool." + Names.SEARCH + ".min_queue_size", 3000).build());
+                fail("expected IllegalArgumentException");
+            } catch (IllegalArgumentException e) {
+                assertThat(e.getCause().getMessage(),
+                        is("min_queue_size [3000] of thread pool [search] must be less than or equal to max_queue_size [2000]"));
+            }
+            try {
+                clusterSettings.applySettings(settingsBuilder()
+                        .put("threadpool." + Names.SEARCH + ".min_queue_size", 200)
+                        .put("threadpool." + Names.SEARCH + ".max_queue_size", 100)
+                        .build());
+                fail("expected IllegalArgumentException");
+            } catch (IllegalArgumentException e) {
+                assertThat(e.getCause().getMessage(),
+                        is("min_queue_size [200] of thread pool [search] must be less than or equal to max_queue_size [100]"));
+            }
+            // the thread pool keeps running with its previous settings
+            assertThat(((QueueResizingEsThreadPoolExecutor) threadPool.executor(Names.SEARCH)).getMaxQueueSize(), equalTo(2000));
+
+            clusterSettings.applySettings(settingsBuilder()
+                    .put("threadpool." + Names.SEARCH + ".min_queue_size", 200)
+                    .put("threadpool." + Names.SEARCH + ".max_queue_size", 300)
+                    .build());
+            assertThat(((QueueResizingEsThreadPoolExecutor) threadPool.executor(Names.SEARCH)).getMinQueueSize(), equalTo(200));
+        } finally {
+            terminateThreadPoolIfNeeded(threadPool);
+        }
+    }
+
     public void testCachedExecutorType() throws InterruptedException {
         String threadPoolName = randomThreadPool(ThreadPool.ThreadPoolType.CACHED);
         ThreadPool threadPool = null;
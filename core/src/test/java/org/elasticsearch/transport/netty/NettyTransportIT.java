@@ -129,7 +129,8 @@ public class NettyTransportIT extends ESIntegTestCase {
                 pipeline.replace("dispatcher", "dispatcher", new MessageChannelHandler(nettyTransport, logger, NettyTransport.DEFAULT_PROFILE) {
 
                     @Override
-                    protected String handleRequest(Channel channel, StreamInput buffer, long requestId, Version version) throws IOException {
+                    protected String handleRequest(Channel channel, StreamInput buffer, long requestId, Version version,
+                                                   boolean breakerCheckPending) throws IOException {
                         final String action = buffer.readString();
 
                         final NettyTransportChannel transportChannel = new NettyTransportChannel(transport, transportServiceAdapter, action, channel, requestId, version, name);
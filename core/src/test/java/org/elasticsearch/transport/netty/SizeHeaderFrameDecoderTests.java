@@ -0,0 +1,211 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.transport.netty;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.indices.breaker.HierarchyCircuitBreakerService;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.transport.support.TransportStatus;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+public class SizeHeaderFrameDecoderTests extends ESTestCase {
+
+    public void testDecodeMessagesReceivedInPieces() throws Exception {
+        HierarchyCircuitBreakerService breakerService = breakerService(1 << 20);
+        SizeHeaderFrameDecoder decoder = new SizeHeaderFrameDecoder(BigArrays.NON_RECYCLING_INSTANCE, breakerService);
+        CircuitBreaker breaker = breakerService.getBreaker(CircuitBreaker.IN_FLIGHT_REQUESTS);
+
+        final int numMessages = randomIntBetween(1, 10);
+        List<byte[]> bodies = new ArrayList<>();
+        long expectedUsed = 0;
+        ChannelBuffer wire = ChannelBuffers.dynamicBuffer();
+        for (int i = 0; i < numMessages; i++) {
+            byte[] body = randomBytes(randomIntBetween(0, 3 * BigArrays.BYTE_PAGE_SIZE));
+            bodies.add(body);
+            expectedUsed += NettyHeader.HEADER_SIZE - 6 + body.length;
+            if (randomBoolean()) {
+                wire.writeBytes(NettyHeader.pingHeader());
+            }
+            writeMessage(wire, i, randomBoolean(), body);
+        }
+
+        List<InboundMessage> messages = decode(decoder, wire);
+        assertThat(messages.size(), equalTo(numMessages));
+        for (int i = 0; i < numMessages; i++) {
+            InboundMessage message = messages.get(i);
+            assertThat(message.rejection(), nullValue());
+            assertThat(message.length(), equalTo(NettyHeader.HEADER_SIZE - 6 + bodies.get(i).length));
+            StreamInput in = message.content().streamInput();
+            assertThat(in.readLong(), equalTo((long) i));
+            in.readByte();
+            assertThat(in.readInt(), equalTo(Version.CURRENT.id));
+            byte[] body = new byte[bodies.get(i).length];
+            in.readBytes(body, 0, body.length);
+            assertArrayEquals(bodies.get(i), body);
+            assertThat(in.read(), equalTo(-1));
+        }
+        assertThat(breaker.getUsed(), equalTo(expectedUsed));
+        for (InboundMessage message : messages) {
+            message.close();
+        }
+        assertThat(breaker.getUsed(), equalTo(0L));
+    }
+
+    public void testSkipRequestsThatTripTheBreaker() throws Exception {
+        final int limit = randomIntBetween(100, 1000);
+        HierarchyCircuitBreakerService breakerService = breakerService(limit);
+        SizeHeaderFrameDecoder decoder = new SizeHeaderFrameDecoder(BigArrays.NON_RECYCLING_INSTANCE, breakerService);
+        CircuitBreaker breaker = breakerService.getBreaker(CircuitBreaker.IN_FLIGHT_REQUESTS);
+
+        ChannelBuffer wire = ChannelBuffers.dynamicBuffer();
+        writeMessage(wire, 1, true, randomBytes(limit + randomIntBetween(0, 1000)));
+        // responses are accounted for but never rejected
+        writeMessage(wire, 2, false, randomBytes(limit + randomIntBetween(0, 1000)));
+        List<InboundMessage> messages = decode(decoder, wire);
+        assertThat(messages.size(), equalTo(2));
+        InboundMessage rejected = messages.get(0);
+        assertThat(rejected.rejection(), notNullValue());
+        assertThat(rejected.content().length(), equalTo(NettyHeader.HEADER_SIZE - 6));
+        assertThat(rejected.content().streamInput().readLong(), equalTo(1L));
+        assertThat(messages.get(1).rejection(), nullValue());
+        assertThat(breaker.getUsed(), equalTo((long) messages.get(1).length()));
+        for (InboundMessage message : messages) {
+            message.close();
+        }
+        assertThat(breaker.getUsed(), equalTo(0L));
+
+        // the breaker does not hold on to skipped requests
+        byte[] small = randomBytes(randomIntBetween(0, 10));
+        writeMessage(wire, 3, true, small);
+        messages = decode(decoder, wire);
+        assertThat(messages.size(), equalTo(1));
+        assertThat(messages.get(0).rejection(), nullValue());
+        assertThat(messages.get(0).length(), equalTo(NettyHeader.HEADER_SIZE - 6 + small.length));
+        messages.get(0).close();
+        assertThat(breaker.getUsed(), equalTo(0L));
+    }
+
+    public void testRequestsThatCannotTripTheBreaker() throws Exception {
+        final int limit = randomIntBetween(100, 1000);
+        HierarchyCircuitBreakerService breakerService = breakerService(limit);
+        SizeHeaderFrameDecoder decoder = new SizeHeaderFrameDecoder(BigArrays.NON_RECYCLING_INSTANCE, breakerService,
+                action -> action.equals("internal:discovery/zen/fd/ping") == false);
+        CircuitBreaker breaker = breakerService.getBreaker(CircuitBreaker.IN_FLIGHT_REQUESTS);
+
+        ChannelBuffer wire = ChannelBuffers.dynamicBuffer();
+        writeMessage(wire, 1, TransportStatus.setRequest((byte) 0), action("indices:data/read/search", limit));
+        writeMessage(wire, 2, TransportStatus.setRequest((byte) 0), action("internal:discovery/zen/fd/ping", limit));
+        // the action of compressed requests cannot be read yet, they are checked once they are decompressed
+        writeMessage(wire, 3, TransportStatus.setCompress(TransportStatus.setRequest((byte) 0)), randomBytes(limit));
+        List<InboundMessage> messages = decode(decoder, wire);
+        assertThat(messages.size(), equalTo(3));
+        assertThat(messages.get(0).rejection(), notNullValue());
+        assertThat(messages.get(0).content().streamInput().readLong(), equalTo(1L));
+        assertThat(messages.get(1).rejection(), nullValue());
+        assertFalse(messages.get(1).breakerCheckPending());
+        assertThat(messages.get(2).rejection(), nullValue());
+        assertTrue(messages.get(2).breakerCheckPending());
+        // requests that are let through are still accounted for
+        assertThat(breaker.getUsed(), equalTo((long) messages.get(1).length() + messages.get(2).length()));
+        for (InboundMessage message : messages) {
+            message.close();
+        }
+        assertThat(breaker.getUsed(), equalTo(0L));
+    }
+
+    private static HierarchyCircuitBreakerService breakerService(long limit) {
+        return new HierarchyCircuitBreakerService(
+                Settings.builder()
+                        .put(HierarchyCircuitBreakerService.IN_FLIGHT_REQUESTS_CIRCUIT_BREAKER_LIMIT_SETTING.getKey(), limit, ByteSizeUnit.BYTES)
+                        .build(),
+                new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS));
+    }
+
+    /**
+     * Feeds the given bytes to the decoder in random pieces, the way {@link org.jboss.netty.handler.codec.frame.FrameDecoder}
+     * does, and returns the decoded messages.
+     */
+    private List<InboundMessage> decode(SizeHeaderFrameDecoder decoder, ChannelBuffer wire) throws Exception {
+        List<InboundMessage> messages = new ArrayList<>();
+        ChannelBuffer cumulation = ChannelBuffers.dynamicBuffer();
+        while (wire.readable()) {
+            cumulation.writeBytes(wire, Math.min(wire.readableBytes(), randomIntBetween(1, 2 * BigArrays.BYTE_PAGE_SIZE)));
+            while (true) {
+                int readerIndex = cumulation.readerIndex();
+                Object message = decoder.decode(null, null, cumulation);
+                if (message != null) {
+                    messages.add((InboundMessage) message);
+                } else if (readerIndex == cumulation.readerIndex()) {
+                    break;
+                }
+            }
+            cumulation.discardReadBytes();
+        }
+        assertFalse(cumulation.readable());
+        return messages;
+    }
+
+    private static void writeMessage(ChannelBuffer wire, long requestId, boolean request, byte[] body) {
+        byte status = 0;
+        status = request ? TransportStatus.setRequest(status) : TransportStatus.setResponse(status);
+        writeMessage(wire, requestId, status, body);
+    }
+
+    private static void writeMessage(ChannelBuffer wire, long requestId, byte status, byte[] body) {
+        wire.writeByte('E');
+        wire.writeByte('S');
+        wire.writeInt(NettyHeader.HEADER_SIZE - 6 + body.length);
+        wire.writeLong(requestId);
+        wire.writeByte(status);
+        wire.writeInt(Version.CURRENT.id);
+        wire.writeBytes(body);
+    }
+
+    /**
+     * A request body that starts with the given action, followed by at least the given number of random bytes.
+     */
+    private static byte[] action(String action, int length) throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.writeString(action);
+        out.writeBytes(randomBytes(length + randomIntBetween(0, 1000)));
+        return out.bytes().toBytes();
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        random().nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -23,6 +23,9 @@ import org.elasticsearch.ElasticsearchTimeoutException;
 import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.ActionRequestValidationException;
 import org.elasticsearch.action.admin.indices.alias.Alias;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.action.delete.DeleteRequest;
 import org.elasticsearch.action.delete.DeleteResponse;
 import org.elasticsearch.action.get.GetResponse;
@@ -69,6 +72,7 @@ import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
@@ -996,6 +1000,57 @@ public class UpdateIT extends ESIntegTestCase {
         }
     }
 
+    public void testBulkUpdatesOfSameDocument() throws Exception {
+        assertAcked(prepareCreate("counters").setSettings(Settings.builder().put("index.number_of_shards", 1)));
+        ensureGreen();
+        client().prepareIndex("counters", "type1", "1").setSource("field", 0).get();
+
+        // consecutive updates of a document are applied in memory and indexed at once
+        final int numUpdates = scaledRandomIntBetween(2, 200);
+        BulkRequestBuilder bulk = client().prepareBulk();
+        for (int i = 0; i < numUpdates; i++) {
+            if (i % 10 == 5) {
+                bulk.add(client().prepareUpdate("counters", "type1", "1").setDoc("tag", "tag" + i).setFields("field", "tag"));
+            } else {
+                bulk.add(client().prepareUpdate("counters", "type1", "1")
+                        .setScript(new Script("field", ScriptService.ScriptType.INLINE, "field_inc", null)).setFields("field"));
+            }
+        }
+        // another document and a failing update in between
+        bulk.add(client().prepareUpdate("counters", "type1", "2").setDoc("field", 1));
+        bulk.add(client().prepareUpdate("counters", "type1", "1").setScript(new Script("field", ScriptService.ScriptType.INLINE, "field_inc", null)));
+        BulkResponse response = bulk.get();
+
+        long expectedValue = 0;
+        for (int i = 0; i < numUpdates; i++) {
+            BulkItemResponse item = response.getItems()[i];
+            assertFalse(item.isFailed());
+            UpdateResponse updateResponse = item.getResponse();
+            assertThat(updateResponse.getVersion(), equalTo(i + 2L));
+            assertFalse(updateResponse.isCreated());
+            if (i % 10 == 5) {
+                assertThat(updateResponse.getGetResult().field("tag").getValue(), equalTo((Object) ("tag" + i)));
+            } else {
+                expectedValue++;
+            }
+            assertThat(((Number) updateResponse.getGetResult().field("field").getValue()).longValue(), equalTo(expectedValue));
+        }
+        assertTrue(response.getItems()[numUpdates].isFailed());
+        assertThat(response.getItems()[numUpdates].getFailure().getCause(), instanceOf(DocumentMissingException.class));
+        UpdateResponse last = response.getItems()[numUpdates + 1].getResponse();
+        assertThat(last.getVersion(), equalTo(numUpdates + 2L));
+
+        refresh();
+        for (String preference : new String[] { "_primary", "_replica" }) {
+            if ("_replica".equals(preference) && getNumShards("counters").numReplicas == 0) {
+                continue;
+            }
+            GetResponse get = client().prepareGet("counters", "type1", "1").setPreference(preference).setRealtime(false).get();
+            assertThat(get.getVersion(), equalTo(numUpdates + 2L));
+            assertThat(((Number) get.getSource().get("field")).longValue(), equalTo(expectedValue + 1));
+        }
+    }
+
     public void testStressUpdateDeleteConcurrency() throws Exception {
         //We create an index with merging disabled so that deletes don't get merged away
         assertAcked(prepareCreate("test")
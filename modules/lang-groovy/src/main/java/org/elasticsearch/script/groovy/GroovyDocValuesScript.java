@@ -0,0 +1,131 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.script.groovy;
+
+import groovy.lang.Script;
+import org.apache.lucene.index.LeafReaderContext;
+import org.codehaus.groovy.runtime.InvokerHelper;
+import org.elasticsearch.index.fielddata.ScriptDocValues;
+import org.elasticsearch.search.lookup.DocLookup;
+import org.elasticsearch.search.lookup.DocValuesAccessor;
+import org.elasticsearch.search.lookup.LeafDocValuesAccessor;
+
+import java.util.Arrays;
+
+/**
+ * Base class of compiled Groovy scripts. Reads of <code>doc['field'].value</code> with a constant field name
+ * are rewritten at compile time into calls to {@link #_docValue(int, String)}, which resolves the field once
+ * per segment into a {@link LeafDocValuesAccessor} instead of looking it up in the <code>doc</code> map for
+ * every document. Numeric fields are read through the typed getters of the accessor, and the value handed to the
+ * script is only boxed again when it differs from the one of the previous document.
+ */
+public abstract class GroovyDocValuesScript extends Script {
+
+    static final String DOC_VALUE_METHOD = "_docValue";
+
+    private DocLookup docLookup;
+    private LeafReaderContext context;
+    private BoundField[] fields = new BoundField[0];
+    private int doc = -1;
+
+    /**
+     * Binds the script to a segment. Scripts that are not bound read doc values through the <code>doc</code>
+     * variable of their binding.
+     */
+    void bindDocValues(DocLookup docLookup, LeafReaderContext context) {
+        this.docLookup = docLookup;
+        this.context = context;
+        this.fields = new BoundField[0];
+    }
+
+    void unbindDocValues() {
+        bindDocValues(null, null);
+    }
+
+    void setDocument(int doc) {
+        this.doc = doc;
+    }
+
+    /**
+     * Returns <code>doc[field].value</code> for the current document, <code>slot</code> is the number the
+     * compiler assigned to the field within the script.
+     */
+    public Object _docValue(int slot, String field) {
+        BoundField bound = slot < fields.length ? fields[slot] : null;
+        if (bound == null && docLookup != null) {
+            DocValuesAccessor fieldAccessor = docLookup.accessor(field);
+            if (fieldAccessor != null) {
+                bound = new BoundField(fieldAccessor.getLeaf(context));
+                if (slot >= fields.length) {
+                    fields = Arrays.copyOf(fields, slot + 1);
+                }
+                fields[slot] = bound;
+            }
+        }
+        if (bound == null) {
+            // same dynamic lookup as the original expression, which fails the same way for unmapped fields
+            return InvokerHelper.getProperty(InvokerHelper.invokeMethod(getProperty("doc"), "getAt", field), "value");
+        }
+        return bound.value(doc);
+    }
+
+    /**
+     * A field bound to a segment, along with the value it returned for the last document.
+     */
+    private static final class BoundField {
+
+        private final LeafDocValuesAccessor accessor;
+
+        private int doc = -1;
+        private long bits;
+        private Object value;
+
+        BoundField(LeafDocValuesAccessor accessor) {
+            this.accessor = accessor;
+        }
+
+        Object value(int doc) {
+            if (doc == this.doc) {
+                return value;
+            }
+            this.doc = doc;
+            // numeric field data exposes ScriptDocValues.Doubles to scripts for floating point fields and
+            // ScriptDocValues.Longs otherwise, both of which return 0 for documents without a value
+            if (accessor.isNumeric() == false) {
+                ScriptDocValues<?> values = accessor.scriptValues();
+                values.setNextDocId(doc);
+                value = LeafDocValuesAccessor.firstValue(values);
+            } else if (accessor.isFloatingPoint()) {
+                double v = accessor.doubleValue(doc);
+                long b = Double.doubleToRawLongBits(v);
+                if (value == null || b != bits) {
+                    bits = b;
+                    value = v;
+                }
+            } else {
+                long v = accessor.longValue(doc);
+                if (value == null || v != bits) {
+                    bits = v;
+                    value = v;
+                }
+            }
+            return value;
+        }
+    }
+}
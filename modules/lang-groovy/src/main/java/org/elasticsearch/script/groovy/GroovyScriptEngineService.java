@@ -26,9 +26,16 @@ import groovy.lang.Script;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.search.Scorer;
 import org.codehaus.groovy.ast.ClassCodeExpressionTransformer;
+import org.codehaus.groovy.ast.ClassHelper;
 import org.codehaus.groovy.ast.ClassNode;
+import org.codehaus.groovy.ast.DynamicVariable;
+import org.codehaus.groovy.ast.expr.ArgumentListExpression;
+import org.codehaus.groovy.ast.expr.BinaryExpression;
 import org.codehaus.groovy.ast.expr.ConstantExpression;
 import org.codehaus.groovy.ast.expr.Expression;
+import org.codehaus.groovy.ast.expr.MethodCallExpression;
+import org.codehaus.groovy.ast.expr.PropertyExpression;
+import org.codehaus.groovy.ast.expr.VariableExpression;
 import org.codehaus.groovy.classgen.GeneratorContext;
 import org.codehaus.groovy.control.CompilationFailedException;
 import org.codehaus.groovy.control.CompilePhase;
@@ -36,6 +43,7 @@ import org.codehaus.groovy.control.CompilerConfiguration;
 import org.codehaus.groovy.control.SourceUnit;
 import org.codehaus.groovy.control.customizers.CompilationCustomizer;
 import org.codehaus.groovy.control.customizers.ImportCustomizer;
+import org.codehaus.groovy.syntax.Types;
 import org.elasticsearch.SpecialPermission;
 import org.elasticsearch.bootstrap.BootstrapInfo;
 import org.elasticsearch.common.Nullable;
@@ -93,6 +101,9 @@ public class GroovyScriptEngineService extends AbstractComponent implements Scri
         config.addCompilationCustomizers(imports);
         // Add BigDecimal -> Double transformer
         config.addCompilationCustomizers(new GroovyBigDecimalTransformer(CompilePhase.CONVERSION));
+        // Read doc['field'].value through doc values accessors that are resolved once per segment
+        config.setScriptBaseClass(GroovyDocValuesScript.class.getName());
+        config.addCompilationCustomizers(new GroovyDocValuesTransformer(CompilePhase.CANONICALIZATION));
 
         // always enable invokeDynamic, not the crazy softreference-based stuff
         config.getOptimizationOptions().put(GROOVY_INDY_SETTING_NAME, true);
@@ -244,6 +255,9 @@ public class GroovyScriptEngineService extends AbstractComponent implements Scri
                 } catch (InstantiationException | IllegalAccessException e) {
                     throw new ScriptException("failed to build search " + compiledScript, e);
                 }
+                if (scriptObject instanceof GroovyDocValuesScript && allVars.get("doc") == leafLookup.doc()) {
+                    ((GroovyDocValuesScript) scriptObject).bindDocValues(lookup.doc(), context);
+                }
                 return new GroovyScript(compiledScript, scriptObject, leafLookup, logger);
             }
 
@@ -286,12 +300,19 @@ public class GroovyScriptEngineService extends AbstractComponent implements Scri
             if (lookup != null) {
                 lookup.setDocument(doc);
             }
+            if (script instanceof GroovyDocValuesScript) {
+                ((GroovyDocValuesScript) script).setDocument(doc);
+            }
         }
 
         @SuppressWarnings({"unchecked"})
         @Override
         public void setNextVar(String name, Object value) {
             variables.put(name, value);
+            if ("doc".equals(name) && script instanceof GroovyDocValuesScript) {
+                // doc values must be read from the new variable from now on
+                ((GroovyDocValuesScript) script).unbindDocValues();
+            }
         }
 
         @Override
@@ -387,4 +408,86 @@ public class GroovyScriptEngineService extends AbstractComponent implements Scri
             return super.transform(newExpr);
         }
     }
+
+    /**
+     * A compilation customizer that rewrites reads of <code>doc['field'].value</code>, where <code>field</code>
+     * is a constant, into calls to {@link GroovyDocValuesScript#_docValue(int, String)}.
+     */
+    private class GroovyDocValuesTransformer extends CompilationCustomizer {
+
+        private GroovyDocValuesTransformer(CompilePhase phase) {
+            super(phase);
+        }
+
+        @Override
+        public void call(final SourceUnit source, final GeneratorContext context, final ClassNode classNode) throws CompilationFailedException {
+            // only the script class itself extends GroovyDocValuesScript and reads doc from its binding
+            if (classNode.isScript() && classNode.isDerivedFrom(ClassHelper.make(GroovyDocValuesScript.class))) {
+                new DocValuesExpressionTransformer(source).visitClass(classNode);
+            }
+        }
+    }
+
+    /**
+     * Groovy expression transformer that binds doc value reads to slots of the script
+     */
+    private class DocValuesExpressionTransformer extends ClassCodeExpressionTransformer {
+
+        private final SourceUnit source;
+        private final Map<String, Integer> slots = new HashMap<>();
+
+        private DocValuesExpressionTransformer(SourceUnit source) {
+            this.source = source;
+        }
+
+        @Override
+        protected SourceUnit getSourceUnit() {
+            return this.source;
+        }
+
+        @Override
+        public Expression transform(Expression expr) {
+            if (expr instanceof PropertyExpression) {
+                String field = docValueField((PropertyExpression) expr);
+                if (field != null) {
+                    Integer slot = slots.get(field);
+                    if (slot == null) {
+                        slot = slots.size();
+                        slots.put(field, slot);
+                    }
+                    MethodCallExpression call = new MethodCallExpression(VariableExpression.THIS_EXPRESSION,
+                            GroovyDocValuesScript.DOC_VALUE_METHOD,
+                            new ArgumentListExpression(new ConstantExpression(slot), new ConstantExpression(field)));
+                    call.setImplicitThis(false);
+                    call.setSourcePosition(expr);
+                    return call;
+                }
+            }
+            return super.transform(expr);
+        }
+
+        /**
+         * Returns the field of a <code>doc['field'].value</code> expression, or <code>null</code> if the
+         * expression reads something else.
+         */
+        private String docValueField(PropertyExpression expr) {
+            if ("value".equals(expr.getPropertyAsString()) == false || expr.isSafe() || expr.isSpreadSafe()
+                    || (expr.getObjectExpression() instanceof BinaryExpression) == false) {
+                return null;
+            }
+            BinaryExpression index = (BinaryExpression) expr.getObjectExpression();
+            if (index.getOperation().getType() != Types.LEFT_SQUARE_BRACKET
+                    || (index.getLeftExpression() instanceof VariableExpression) == false
+                    || (index.getRightExpression() instanceof ConstantExpression) == false) {
+                return null;
+            }
+            VariableExpression doc = (VariableExpression) index.getLeftExpression();
+            Object field = ((ConstantExpression) index.getRightExpression()).getValue();
+            // a declared variable or parameter named doc shadows the one of the binding
+            if ("doc".equals(doc.getName()) && doc.getAccessedVariable() instanceof DynamicVariable && field instanceof String) {
+                return (String) field;
+            }
+            return null;
+        }
+    }
 }
@@ -578,7 +578,7 @@ public class IndicesRequestTests extends ESIntegTestCase {
     }
 
     public void testSearchQueryThenFetch() throws Exception {
-        interceptTransportActions(SearchServiceTransportAction.QUERY_ACTION_NAME,
+        interceptTransportActions(SearchServiceTransportAction.QUERY_ACTION_NAME, SearchServiceTransportAction.QUERY_BATCH_ACTION_NAME,
                 SearchServiceTransportAction.FETCH_ID_ACTION_NAME, SearchServiceTransportAction.FREE_CONTEXT_ACTION_NAME);
 
         String[] randomIndicesOrAliases = randomIndicesOrAliases();
@@ -593,7 +593,10 @@ public class IndicesRequestTests extends ESIntegTestCase {
         assertThat(searchResponse.getHits().totalHits(), greaterThan(0l));
 
         clearInterceptedActions();
-        assertSameIndices(searchRequest, SearchServiceTransportAction.QUERY_ACTION_NAME, SearchServiceTransportAction.FETCH_ID_ACTION_NAME);
+        assertSameIndices(searchRequest, SearchServiceTransportAction.FETCH_ID_ACTION_NAME);
+        //shards held by the same node are queried with a single request, so either of the query actions may not be sent
+        assertSameIndicesAnyOf(searchRequest, SearchServiceTransportAction.QUERY_ACTION_NAME,
+                SearchServiceTransportAction.QUERY_BATCH_ACTION_NAME);
         //free context messages are not necessarily sent, but if they are, check their indices
         assertSameIndicesOptionalRequests(searchRequest, SearchServiceTransportAction.FREE_CONTEXT_ACTION_NAME);
     }
@@ -676,11 +679,27 @@ public class IndicesRequestTests extends ESIntegTestCase {
             if (!optional) {
                 assertThat("no internal requests intercepted for action [" + action + "]", requests.size(), greaterThan(0));
             }
-            for (TransportRequest internalRequest : requests) {
-                assertThat(internalRequest, instanceOf(IndicesRequest.class));
-                assertThat(internalRequest.getClass().getName(), ((IndicesRequest)internalRequest).indices(), equalTo(originalRequest.indices()));
-                assertThat(((IndicesRequest)internalRequest).indicesOptions(), equalTo(originalRequest.indicesOptions()));
-            }
+            assertSameIndices(originalRequest, requests);
+        }
+    }
+
+    /**
+     * Checks the indices of the requests of all the given actions, at least one of which must have been intercepted.
+     */
+    private static void assertSameIndicesAnyOf(IndicesRequest originalRequest, String... actions) {
+        List<TransportRequest> requests = new ArrayList<>();
+        for (String action : actions) {
+            requests.addAll(consumeTransportRequests(action));
+        }
+        assertThat("no internal requests intercepted for any of the actions " + Arrays.toString(actions), requests.size(), greaterThan(0));
+        assertSameIndices(originalRequest, requests);
+    }
+
+    private static void assertSameIndices(IndicesRequest originalRequest, List<TransportRequest> requests) {
+        for (TransportRequest internalRequest : requests) {
+            assertThat(internalRequest, instanceOf(IndicesRequest.class));
+            assertThat(internalRequest.getClass().getName(), ((IndicesRequest)internalRequest).indices(), equalTo(originalRequest.indices()));
+            assertThat(((IndicesRequest)internalRequest).indicesOptions(), equalTo(originalRequest.indicesOptions()));
         }
     }
     private static void assertIndicesSubset(List<String> indices, String... actions) {
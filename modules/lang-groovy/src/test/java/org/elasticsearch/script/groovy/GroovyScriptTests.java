@@ -122,6 +122,43 @@ public class GroovyScriptTests extends ESIntegTestCase {
         assertOrderedSearchHits(resp, "3", "2", "1");
     }
 
+    public void testGroovyDocValuesAccess() {
+        client().prepareIndex("test", "doc", "1").setSource("foo", "quick brow fox jumped over the lazy dog", "bar", 1, "baz", 5).get();
+        client().prepareIndex("test", "doc", "2").setSource("foo", "fast jumping spiders", "bar", 2, "baz", 3).get();
+        client().prepareIndex("test", "doc", "3").setSource("foo", "dog spiders that can eat a dog", "bar", 3).get();
+        refresh();
+
+        // doc['field'].value reads are bound to doc values, missing values read as 0
+        SearchResponse resp = client().prepareSearch("test").setQuery(functionScoreQuery(scriptFunction(
+                new Script("doc['baz'].value * 10 + doc['bar'].value", ScriptType.INLINE, "groovy", null)))
+            .boostMode(CombineFunction.REPLACE)).get();
+        assertNoFailures(resp);
+        assertOrderedSearchHits(resp, "1", "2", "3");
+
+        // also within closures, and mixed with regular doc access
+        resp = client().prepareSearch("test").setQuery(functionScoreQuery(scriptFunction(
+                new Script("def f = { doc['bar'].value }; doc['baz'].empty ? 10 * f() : f()", ScriptType.INLINE, "groovy", null)))
+            .boostMode(CombineFunction.REPLACE)).get();
+        assertNoFailures(resp);
+        assertOrderedSearchHits(resp, "3", "2", "1");
+
+        // a local variable named doc is not rewritten
+        resp = client().prepareSearch("test").setQuery(functionScoreQuery(scriptFunction(
+                new Script("def doc = ['bar': [value: 1]]; doc['bar'].value", ScriptType.INLINE, "groovy", null)))
+            .boostMode(CombineFunction.REPLACE)).get();
+        assertNoFailures(resp);
+        assertThat(resp.getHits().getAt(0).score(), equalTo(1f));
+
+        // unmapped fields fail like before
+        try {
+            client().prepareSearch("test").setQuery(functionScoreQuery(scriptFunction(
+                    new Script("doc['unmapped'].value", ScriptType.INLINE, "groovy", null)))).get();
+            fail("should have failed");
+        } catch (SearchPhaseExecutionException e) {
+            assertThat(e.toString(), e.toString().contains("No field found for [unmapped]"), equalTo(true));
+        }
+    }
+
     public void testScoreAccess() {
         client().prepareIndex("test", "doc", "1").setSource("foo", "quick brow fox jumped over the lazy dog", "bar", 1).get();
         client().prepareIndex("test", "doc", "2").setSource("foo", "fast jumping spiders", "bar", 2).get();
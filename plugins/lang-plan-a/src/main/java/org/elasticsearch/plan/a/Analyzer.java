@@ -139,6 +139,7 @@ class Analyzer extends PlanAParserBaseVisitor<Void> {
         incrementScope();
         addVariable(null, "this", definition.execType);
         addVariable(null, "input", definition.smapType);
+        addVariable(null, "#docs", definition.objectType);
 
         adapter.createStatementMetadata(adapter.root);
         visit(adapter.root);
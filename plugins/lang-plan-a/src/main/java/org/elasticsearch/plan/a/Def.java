@@ -19,6 +19,10 @@
 
 package org.elasticsearch.plan.a;
 
+import org.elasticsearch.index.fielddata.ScriptDocValues;
+import org.elasticsearch.search.lookup.LeafDocLookup;
+import org.elasticsearch.search.lookup.LeafDocValuesAccessor;
+
 import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Array;
 import java.util.List;
@@ -119,7 +123,12 @@ public class Def {
 
     @SuppressWarnings("unchecked")
     public static Object fieldLoad(final Object owner, final String name, final Definition definition) {
-        if (owner.getClass().isArray() && "length".equals(name)) {
+        if (owner instanceof LeafDocLookup) {
+            // doc.field is the hot path of search scripts, skip the dynamic struct walk
+            return ((LeafDocLookup)owner).get(name);
+        } else if (owner instanceof ScriptDocValues) {
+            return docValuesLoad((ScriptDocValues<?>)owner, name);
+        } else if (owner.getClass().isArray() && "length".equals(name)) {
             return Array.getLength(owner);
         } else {
             final Field field = getField(owner, name, definition);
@@ -163,6 +172,24 @@ public class Def {
         }
     }
 
+    private static Object docValuesLoad(final ScriptDocValues<?> values, final String name) {
+        if ("value".equals(name)) {
+            return LeafDocValuesAccessor.firstValue(values);
+        } else if ("values".equals(name)) {
+            return values.getValues();
+        } else if ("empty".equals(name)) {
+            return values.isEmpty();
+        }
+
+        try {
+            final int index = Integer.parseInt(name);
+
+            return values.get(index);
+        } catch (NumberFormatException exception) {
+            throw new IllegalArgumentException("Illegal doc values shortcut value [" + name + "].");
+        }
+    }
+
     @SuppressWarnings("unchecked")
     public static void arrayStore(final Object array, Object index, Object value, final Definition definition,
                                   final boolean indexsafe, final boolean valuesafe) {
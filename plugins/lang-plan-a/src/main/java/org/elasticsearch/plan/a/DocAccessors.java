@@ -0,0 +1,107 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.plan.a;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.elasticsearch.index.fielddata.ScriptDocValues;
+import org.elasticsearch.search.lookup.DocLookup;
+import org.elasticsearch.search.lookup.DocValuesAccessor;
+import org.elasticsearch.search.lookup.LeafDocLookup;
+import org.elasticsearch.search.lookup.LeafDocValuesAccessor;
+
+import java.util.Arrays;
+
+/**
+ * The doc values of a search script bound to a segment. Reads of <code>doc.field</code> and
+ * <code>doc['field']</code> with a constant field name are compiled into calls to
+ * {@link #fieldLoad(Object, String, DocAccessors, int, Definition)} and
+ * {@link #arrayLoad(Object, Object, DocAccessors, int, Definition, boolean)}, which resolve the field once per
+ * segment into a {@link LeafDocValuesAccessor} rather than going through {@link LeafDocLookup} for every document.
+ * The slot is the number the {@link Writer} assigned to the field name within the script.
+ */
+public final class DocAccessors {
+    private final DocLookup lookup;
+    private final LeafDocLookup leafLookup;
+    private final LeafReaderContext context;
+
+    private LeafDocValuesAccessor[] accessors = new LeafDocValuesAccessor[0];
+    private int doc = -1;
+
+    DocAccessors(final DocLookup lookup, final LeafDocLookup leafLookup, final LeafReaderContext context) {
+        this.lookup = lookup;
+        this.leafLookup = leafLookup;
+        this.context = context;
+    }
+
+    void setDocument(final int doc) {
+        this.doc = doc;
+    }
+
+    public static Object fieldLoad(final Object owner, final String name,
+                                   final DocAccessors docs, final int slot, final Definition definition) {
+        if (docs != null && owner == docs.leafLookup) {
+            final ScriptDocValues<?> values = docs.values(slot, name);
+
+            if (values != null) {
+                return values;
+            }
+        }
+
+        return Def.fieldLoad(owner, name, definition);
+    }
+
+    public static Object arrayLoad(final Object array, final Object index, final DocAccessors docs, final int slot,
+                                   final Definition definition, final boolean indexsafe) {
+        if (docs != null && array == docs.leafLookup) {
+            final ScriptDocValues<?> values = docs.values(slot, (String)index);
+
+            if (values != null) {
+                return values;
+            }
+        }
+
+        return Def.arrayLoad(array, index, definition, indexsafe);
+    }
+
+    private ScriptDocValues<?> values(final int slot, final String name) {
+        LeafDocValuesAccessor accessor = slot < accessors.length ? accessors[slot] : null;
+
+        if (accessor == null) {
+            final DocValuesAccessor field = lookup.accessor(name);
+
+            if (field == null) {
+                // unmapped fields fail through LeafDocLookup like they would without the binding
+                return null;
+            }
+
+            accessor = field.getLeaf(context);
+
+            if (slot >= accessors.length) {
+                accessors = Arrays.copyOf(accessors, slot + 1);
+            }
+
+            accessors[slot] = accessor;
+        }
+
+        final ScriptDocValues<?> values = accessor.scriptValues();
+        values.setNextDocId(doc);
+
+        return values;
+    }
+}
@@ -46,5 +46,13 @@ public abstract class Executable {
         return definition;
     }
 
-    public abstract Object execute(Map<String, Object> input);
+    public Object execute(Map<String, Object> input) {
+        return execute(input, null);
+    }
+
+    /**
+     * Runs the script, <code>docs</code> is the segment the script is bound to, or <code>null</code> if it is
+     * not run as part of a search.
+     */
+    public abstract Object execute(Map<String, Object> input, DocAccessors docs);
 }
@@ -134,7 +134,8 @@ public class PlanAScriptEngineService extends AbstractComponent implements Scrip
         return new SearchScript() {
             @Override
             public LeafSearchScript getLeafSearchScript(LeafReaderContext context) throws IOException {
-                return new ScriptImpl((Executable) compiledScript.compiled(), vars, lookup.getLeafSearchLookup(context));
+                return new ScriptImpl((Executable) compiledScript.compiled(), vars, lookup.getLeafSearchLookup(context),
+                        lookup.doc(), context);
             }
 
             @Override
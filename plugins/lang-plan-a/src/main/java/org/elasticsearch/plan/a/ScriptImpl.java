@@ -19,10 +19,12 @@
 
 package org.elasticsearch.plan.a;
 
+import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.search.Scorer;
 import org.elasticsearch.script.ExecutableScript;
 import org.elasticsearch.script.LeafSearchScript;
 import org.elasticsearch.script.ScoreAccessor;
+import org.elasticsearch.search.lookup.DocLookup;
 import org.elasticsearch.search.lookup.LeafSearchLookup;
 
 import java.util.HashMap;
@@ -32,10 +34,17 @@ final class ScriptImpl implements ExecutableScript, LeafSearchScript {
     final Executable executable;
     final Map<String,Object> variables;
     final LeafSearchLookup lookup;
+    final DocAccessors docs;
     
     ScriptImpl(Executable executable, Map<String,Object> vars, LeafSearchLookup lookup) {
+        this(executable, vars, lookup, null, null);
+    }
+
+    ScriptImpl(Executable executable, Map<String,Object> vars, LeafSearchLookup lookup,
+               DocLookup docLookup, LeafReaderContext context) {
         this.executable = executable;
         this.lookup = lookup;
+        this.docs = docLookup == null ? null : new DocAccessors(docLookup, lookup.doc(), context);
         this.variables = new HashMap<>();
         if (vars != null) {
             variables.putAll(vars);
@@ -52,7 +61,7 @@ final class ScriptImpl implements ExecutableScript, LeafSearchScript {
     
     @Override
     public Object run() {
-        return executable.execute(variables);
+        return executable.execute(variables, docs);
     }
     
     @Override
@@ -85,6 +94,9 @@ final class ScriptImpl implements ExecutableScript, LeafSearchScript {
         if (lookup != null) {
             lookup.setDocument(doc);
         }
+        if (docs != null) {
+            docs.setDocument(doc);
+        }
     }
 
     @Override
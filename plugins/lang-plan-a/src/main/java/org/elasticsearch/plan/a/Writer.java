@@ -136,10 +136,14 @@ class Writer extends PlanAParserBaseVisitor<Void> {
     private final static org.objectweb.asm.commons.Method CONSTRUCTOR = org.objectweb.asm.commons.Method.getMethod(
             "void <init>(org.elasticsearch.plan.a.Definition, java.lang.String, java.lang.String)");
     private final static org.objectweb.asm.commons.Method EXECUTE = org.objectweb.asm.commons.Method.getMethod(
-            "java.lang.Object execute(java.util.Map)");
-    private final static String SIGNATURE = "(Ljava/util/Map<Ljava/lang/String;Ljava/lang/Object;>;)Ljava/lang/Object;";
+            "java.lang.Object execute(java.util.Map, org.elasticsearch.plan.a.DocAccessors)");
+    private final static String SIGNATURE = "(Ljava/util/Map<Ljava/lang/String;Ljava/lang/Object;>;" +
+            "Lorg/elasticsearch/plan/a/DocAccessors;)Ljava/lang/Object;";
+    // this, input, and then the doc accessors, see the variables reserved by the Analyzer
+    private final static int DOCS_SLOT = 2;
 
     private final static org.objectweb.asm.Type DEFINITION_TYPE = org.objectweb.asm.Type.getType(Definition.class);
+    private final static org.objectweb.asm.Type DOCS_TYPE = org.objectweb.asm.Type.getType(DocAccessors.class);
 
     private final static org.objectweb.asm.commons.Method DEF_METHOD_CALL = org.objectweb.asm.commons.Method.getMethod(
             "java.lang.Object methodCall(java.lang.Object, java.lang.String, " +
@@ -155,6 +159,12 @@ class Writer extends PlanAParserBaseVisitor<Void> {
             "org.elasticsearch.plan.a.Definition, boolean)");
     private final static org.objectweb.asm.commons.Method DEF_FIELD_LOAD = org.objectweb.asm.commons.Method.getMethod(
             "java.lang.Object fieldLoad(java.lang.Object, java.lang.String, org.elasticsearch.plan.a.Definition)");
+    private final static org.objectweb.asm.commons.Method DOCS_ARRAY_LOAD = org.objectweb.asm.commons.Method.getMethod(
+            "java.lang.Object arrayLoad(java.lang.Object, java.lang.Object, org.elasticsearch.plan.a.DocAccessors, " +
+            "int, org.elasticsearch.plan.a.Definition, boolean)");
+    private final static org.objectweb.asm.commons.Method DOCS_FIELD_LOAD = org.objectweb.asm.commons.Method.getMethod(
+            "java.lang.Object fieldLoad(java.lang.Object, java.lang.String, org.elasticsearch.plan.a.DocAccessors, " +
+            "int, org.elasticsearch.plan.a.Definition)");
 
     private final static org.objectweb.asm.commons.Method DEF_NOT_CALL = org.objectweb.asm.commons.Method.getMethod(
             "java.lang.Object not(java.lang.Object)");
@@ -311,6 +321,7 @@ class Writer extends PlanAParserBaseVisitor<Void> {
     private final Map<ParserRuleContext, Branch> branches;
     private final Deque<Branch> jumps;
     private final Set<ParserRuleContext> strings;
+    private final Map<String, Integer> docSlots;
 
     private ClassWriter writer;
     private GeneratorAdapter execute;
@@ -325,6 +336,7 @@ class Writer extends PlanAParserBaseVisitor<Void> {
         branches = new HashMap<>();
         jumps = new ArrayDeque<>();
         strings = new HashSet<>();
+        docSlots = new HashMap<>();
 
         writeBegin();
         writeConstructor();
@@ -2041,9 +2053,11 @@ class Writer extends PlanAParserBaseVisitor<Void> {
             execute.invokeStatic(definition.defobjType.type, DEF_FIELD_STORE);
         } else {
             execute.push(name);
+            execute.visitVarInsn(Opcodes.ALOAD, DOCS_SLOT);
+            execute.push(getDocSlot(name));
             execute.loadThis();
             execute.getField(CLASS_TYPE, "definition", DEFINITION_TYPE);
-            execute.invokeStatic(definition.defobjType.type, DEF_FIELD_LOAD);
+            execute.invokeStatic(DOCS_TYPE, DOCS_FIELD_LOAD);
         }
     }
 
@@ -2067,10 +2081,21 @@ class Writer extends PlanAParserBaseVisitor<Void> {
                 execute.push(parentemd.token == 0 && expremd1.typesafe);
                 execute.invokeStatic(definition.defobjType.type, DEF_ARRAY_STORE);
             } else {
-                execute.loadThis();
-                execute.getField(CLASS_TYPE, "definition", DEFINITION_TYPE);
-                execute.push(expremd0.typesafe);
-                execute.invokeStatic(definition.defobjType.type, DEF_ARRAY_LOAD);
+                final String name = getConstantName(adapter.updateExpressionTree(bracectx.expression()));
+
+                if (name == null) {
+                    execute.loadThis();
+                    execute.getField(CLASS_TYPE, "definition", DEFINITION_TYPE);
+                    execute.push(expremd0.typesafe);
+                    execute.invokeStatic(definition.defobjType.type, DEF_ARRAY_LOAD);
+                } else {
+                    execute.visitVarInsn(Opcodes.ALOAD, DOCS_SLOT);
+                    execute.push(getDocSlot(name));
+                    execute.loadThis();
+                    execute.getField(CLASS_TYPE, "definition", DEFINITION_TYPE);
+                    execute.push(expremd0.typesafe);
+                    execute.invokeStatic(DOCS_TYPE, DOCS_ARRAY_LOAD);
+                }
             }
         } else {
             if (store) {
@@ -2081,6 +2106,35 @@ class Writer extends PlanAParserBaseVisitor<Void> {
         }
     }
 
+    /**
+     * The name used by a def array load if its index is a string literal, such as <code>doc['field']</code>.
+     */
+    private String getConstantName(final ExpressionContext exprctx) {
+        if (exprctx instanceof ExternalContext) {
+            final ExtstringContext stringctx = ((ExternalContext)exprctx).extstart().extstring();
+
+            if (stringctx != null && stringctx.extdot() == null && stringctx.extbrace() == null) {
+                return (String)adapter.getExtNodeMetadata(stringctx).target;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * The slot of {@link DocAccessors} that holds the doc values of the given field name.
+     */
+    private int getDocSlot(final String name) {
+        Integer slot = docSlots.get(name);
+
+        if (slot == null) {
+            slot = docSlots.size();
+            docSlots.put(name, slot);
+        }
+
+        return slot;
+    }
+
     private void writeLoadStoreShortcut(final boolean store, final Method getter, final Method setter) {
         final Method method = store ? setter : getter;
 